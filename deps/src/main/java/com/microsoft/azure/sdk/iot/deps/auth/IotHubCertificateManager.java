@@ -151,6 +151,16 @@ public class IotHubCertificateManager
         }
     }
 
+    /**
+     * Getter for the PEM content of the certificates used to communicate with IotHub
+     * @return the valid certificates, or null if setting them failed.
+     */
+    String getValidCert()
+    {
+        //Codes_SRS_IOTHUBCERTIFICATEMANAGER_34_012: [This method shall return the saved valid certificate.]
+        return this.validCert;
+    }
+
     /**
      * Setter for a valid certificate path provided by user
      * @param certPath The valid path where a certificate could be loaded from.
@@ -15,6 +15,7 @@ import org.bouncycastle.util.io.pem.PemReader;
 
 import javax.net.ssl.KeyManagerFactory;
 import javax.net.ssl.SSLContext;
+import javax.net.ssl.TrustManager;
 import javax.net.ssl.TrustManagerFactory;
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
@@ -31,6 +32,7 @@ import java.util.UUID;
 public class IotHubSSLContext
 {
     private SSLContext sslContext = null;
+    private TrustManager[] trustManagers = null;
 
     private static final String SSL_CONTEXT_INSTANCE = "TLSv1.2";
 
@@ -160,6 +162,34 @@ public class IotHubSSLContext
         generateSSLContextWithKeys(publicKeyCertificateString, privateKeyString, new IotHubCertificateManager());
     }
 
+    /**
+     * Creates an SSLContext for the IotHub from a public key certificate and private key pair that trusts the given
+     * trust managers, so that contexts created for the same trusted certificates can share them.
+     *
+     * @param publicKeyCertificateString The PEM formatted public key certificate string
+     * @param privateKeyString The PEM formatted private key string
+     * @param trustManagers the trust managers to initialize the SSLContext with.
+     * @throws KeyManagementException If the SSLContext could not be initialized
+     * @throws IOException If an IO exception occurs
+     * @throws CertificateException If a certificate cannot be loaded
+     * @throws KeyStoreException If the provided certificates cannot be loaded into the JVM keystore
+     * @throws UnrecoverableKeyException if accessing the passphrase protected keystore fails due to the key
+     * @throws NoSuchAlgorithmException if the SSLContext cannot be created
+     */
+    IotHubSSLContext(String publicKeyCertificateString, String privateKeyString, TrustManager[] trustManagers)
+            throws KeyManagementException, IOException, CertificateException, KeyStoreException, NoSuchAlgorithmException, UnrecoverableKeyException
+    {
+        //Codes_SRS_IOTHUBSSLCONTEXT_34_047: [This constructor shall create an SSL context for TLSv1.2 and initialize it with a keystore holding the public key certificate and the private key, the provided trust managers and a new secure random.]
+        char[] temporaryPassword = generateTemporaryPassword();
+        KeyStore keystore = generateKeyStore(publicKeyCertificateString, privateKeyString, temporaryPassword);
+
+        KeyManagerFactory kmf = KeyManagerFactory.getInstance(KeyManagerFactory.getDefaultAlgorithm());
+        kmf.init(keystore, temporaryPassword);
+
+        this.sslContext = SSLContext.getInstance(SSL_CONTEXT_INSTANCE);
+        this.sslContext.init(kmf.getKeyManagers(), trustManagers, new SecureRandom());
+    }
+
     /**
      * Getter for the IotHubSSLContext
      * @return SSLContext defined for the IotHub.
@@ -170,6 +200,16 @@ public class IotHubSSLContext
         return this.sslContext;
     }
 
+    /**
+     * Getter for the trust managers of an SSLContext that only holds trusted certificates.
+     * @return the trust managers, or null if this context was created with a key pair or from an existing SSLContext.
+     */
+    TrustManager[] getTrustManagers()
+    {
+        //Codes_SRS_IOTHUBSSLCONTEXT_34_048: [This method shall return the trust managers the default SSL context was initialized with, or null if there are none.]
+        return this.trustManagers;
+    }
+
     /**
      * Creates an SSLContext from a public key certificate, private key, and certificate manager.
      *
@@ -185,19 +225,11 @@ public class IotHubSSLContext
     private void generateSSLContextWithKeys(String publicKeyCertificateString, String privateKeyString, IotHubCertificateManager certificateManager)
             throws KeyManagementException, IOException, CertificateException, KeyStoreException, NoSuchAlgorithmException, UnrecoverableKeyException
     {
-        Key privateKey = IotHubSSLContext.parsePrivateKey(privateKeyString);
-        Collection<X509Certificate> certChain = IotHubSSLContext.parsePublicKeyCertificate(publicKeyCertificateString);
-
-        X509Certificate[] certs = certChain.toArray(new X509Certificate[certChain.size()]);
-
         //Codes_SRS_IOTHUBSSLCONTEXT_34_018: [This constructor shall generate a temporary password to protect the created keystore holding the private key.]
         char[] temporaryPassword = generateTemporaryPassword();
 
         //Codes_SRS_IOTHUBSSLCONTEXT_34_020: [The constructor shall create a keystore containing the public key certificate and the private key.]
-        KeyStore keystore = KeyStore.getInstance(KeyStore.getDefaultType());
-        keystore.load(null);
-        keystore.setCertificateEntry(CERTIFICATE_ALIAS, certs[0]);
-        keystore.setKeyEntry(PRIVATE_KEY_ALIAS, privateKey, temporaryPassword, certs);
+        KeyStore keystore = generateKeyStore(publicKeyCertificateString, privateKeyString, temporaryPassword);
 
         KeyManagerFactory kmf = KeyManagerFactory.getInstance(KeyManagerFactory.getDefaultAlgorithm());
         kmf.init(keystore, temporaryPassword);
@@ -212,6 +244,21 @@ public class IotHubSSLContext
         this.sslContext.init(kmf.getKeyManagers(), trustManagerFactory.getTrustManagers(), new SecureRandom());
     }
 
+    private static KeyStore generateKeyStore(String publicKeyCertificateString, String privateKeyString, char[] password)
+            throws IOException, CertificateException, KeyStoreException, NoSuchAlgorithmException
+    {
+        Key privateKey = IotHubSSLContext.parsePrivateKey(privateKeyString);
+        Collection<X509Certificate> certChain = IotHubSSLContext.parsePublicKeyCertificate(publicKeyCertificateString);
+
+        X509Certificate[] certs = certChain.toArray(new X509Certificate[certChain.size()]);
+
+        KeyStore keystore = KeyStore.getInstance(KeyStore.getDefaultType());
+        keystore.load(null);
+        keystore.setCertificateEntry(CERTIFICATE_ALIAS, certs[0]);
+        keystore.setKeyEntry(PRIVATE_KEY_ALIAS, privateKey, password, certs);
+        return keystore;
+    }
+
     /**
      * Generates the default SSL Context and saves it to this object's SSLContext object
      *
@@ -234,7 +281,8 @@ public class IotHubSSLContext
         //Codes_SRS_IOTHUBSSLCONTEXT_25_007: [The constructor shall initialize SSL context with the above initialized TrustManagerFactory and a new secure random.]
         TrustManagerFactory trustManagerFactory = generateTrustManagerFactory(certificateManager, null);
 
-        this.sslContext.init(null, trustManagerFactory.getTrustManagers(), new SecureRandom());
+        this.trustManagers = trustManagerFactory.getTrustManagers();
+        this.sslContext.init(null, this.trustManagers, new SecureRandom());
     }
 
     /**
@@ -0,0 +1,230 @@
+/*
+ *  Copyright (c) Microsoft. All rights reserved.
+ *  Licensed under the MIT license. See LICENSE file in the project root for full license information.
+ */
+
+package com.microsoft.azure.sdk.iot.deps.auth;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.KeyManagementException;
+import java.security.KeyStoreException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.UnrecoverableKeyException;
+import java.security.cert.CertificateException;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/**
+ * A process-wide, reference counted cache of {@link IotHubSSLContext} objects, so that the clients of a JVM that trust
+ * the same certificates parse them, build their trust store and initialize their trust managers once, and share one
+ * SSLContext and therefore its TLS session cache. Contexts with a key pair are cached by their key pair as well and
+ * reuse the trust managers of the context that holds their trusted certificates.
+ * <p>
+ * Entries are keyed by a SHA-256 digest of the certificate content, so a certificate file is read again on every
+ * acquire and a changed file gets a new context. Every acquired context must be released once it is no longer used;
+ * a context that is no longer used by anyone is dropped from the cache.
+ * </p>
+ */
+public final class IotHubSSLContextCache
+{
+    private static final String DIGEST_ALGORITHM = "SHA-256";
+    private static final String DEFAULT_TRUSTED_CERT_KEY = "default";
+    private static final char KEY_SEPARATOR = '\n';
+
+    private static final Map<String, Entry> entriesByKey = new HashMap<>();
+    private static final Map<IotHubSSLContext, Entry> entriesByContext = new IdentityHashMap<>();
+
+    private IotHubSSLContextCache()
+    {
+    }
+
+    /**
+     * Acquires a shared SSLContext that trusts the given certificate.
+     *
+     * @param trustedCert the PEM formatted trusted certificate, the path of a file holding it, or null for the
+     *                    certificates that IotHub is trusted with by default.
+     * @param isPath true if trustedCert is a path.
+     * @return the shared context, which must be released with {@link #release(IotHubSSLContext)}.
+     * @throws KeyStoreException if the trusted certificates cannot be loaded into a keystore.
+     * @throws KeyManagementException if the SSLContext cannot be initialized.
+     * @throws IOException if the trusted certificate is invalid or cannot be read.
+     * @throws CertificateException if the trusted certificate cannot be parsed.
+     * @throws NoSuchAlgorithmException if the SSLContext or the digest of the certificate cannot be created.
+     */
+    public static synchronized IotHubSSLContext acquire(String trustedCert, boolean isPath)
+            throws KeyStoreException, KeyManagementException, IOException, CertificateException, NoSuchAlgorithmException
+    {
+        //Codes_SRS_IOTHUBSSLCONTEXTCACHE_34_001: [This function shall return the cached context for the content of the trusted certificate and increase its reference count, creating and caching it first if there is none.]
+        return getOrCreateTrustEntry(readTrustedCert(trustedCert, isPath)).use();
+    }
+
+    /**
+     * Acquires a shared SSLContext that authenticates with the given key pair and trusts the given certificate.
+     *
+     * @param publicKeyCertificateString the PEM formatted public key certificate.
+     * @param privateKeyString the PEM formatted private key.
+     * @param trustedCert the PEM formatted trusted certificate, the path of a file holding it, or null for the
+     *                    certificates that IotHub is trusted with by default.
+     * @param isPath true if trustedCert is a path.
+     * @return the shared context, which must be released with {@link #release(IotHubSSLContext)}.
+     * @throws KeyStoreException if the key pair or the trusted certificates cannot be loaded into a keystore.
+     * @throws KeyManagementException if the SSLContext cannot be initialized.
+     * @throws IOException if a certificate is invalid or cannot be read.
+     * @throws CertificateException if a certificate or the private key cannot be parsed.
+     * @throws NoSuchAlgorithmException if the SSLContext or the digest of the certificates cannot be created.
+     * @throws UnrecoverableKeyException if the private key cannot be read back from its keystore.
+     */
+    public static synchronized IotHubSSLContext acquire(String publicKeyCertificateString, String privateKeyString, String trustedCert, boolean isPath)
+            throws KeyStoreException, KeyManagementException, IOException, CertificateException, NoSuchAlgorithmException, UnrecoverableKeyException
+    {
+        if (publicKeyCertificateString == null || privateKeyString == null)
+        {
+            //Codes_SRS_IOTHUBSSLCONTEXTCACHE_34_002: [If the public key certificate or the private key is null, this function shall throw an IllegalArgumentException.]
+            throw new IllegalArgumentException("publicKeyCertificateString and privateKeyString cannot be null");
+        }
+
+        String trustedCertContent = readTrustedCert(trustedCert, isPath);
+        String key = digest(trustedCertContent, publicKeyCertificateString, privateKeyString);
+
+        //Codes_SRS_IOTHUBSSLCONTEXTCACHE_34_003: [This function shall return the cached context for the content of the key pair and the trusted certificate and increase its reference count.]
+        Entry entry = entriesByKey.get(key);
+        if (entry == null)
+        {
+            //Codes_SRS_IOTHUBSSLCONTEXTCACHE_34_004: [If there is no cached context, this function shall create one from the key pair and the trust managers of the cached context of the trusted certificate, which it acquires for as long as the new context is cached.]
+            Entry trustEntry = getOrCreateTrustEntry(trustedCertContent);
+            trustEntry.use();
+            try
+            {
+                IotHubSSLContext context = new IotHubSSLContext(publicKeyCertificateString, privateKeyString, trustEntry.context.getTrustManagers());
+                entry = add(new Entry(key, context, trustEntry));
+            }
+            finally
+            {
+                if (entry == null)
+                {
+                    releaseEntry(trustEntry);
+                }
+            }
+        }
+
+        return entry.use();
+    }
+
+    /**
+     * Releases a context acquired from this cache. Once every user of a context has released it, it is dropped from the
+     * cache, but it remains usable by anyone that still holds it.
+     *
+     * @param iotHubSSLContext the context to release.
+     * @return true if the context was acquired from this cache, false otherwise.
+     */
+    public static synchronized boolean release(IotHubSSLContext iotHubSSLContext)
+    {
+        Entry entry = entriesByContext.get(iotHubSSLContext);
+        if (entry == null)
+        {
+            //Codes_SRS_IOTHUBSSLCONTEXTCACHE_34_005: [If the context was not acquired from this cache, this function shall do nothing and return false.]
+            return false;
+        }
+
+        //Codes_SRS_IOTHUBSSLCONTEXTCACHE_34_006: [This function shall decrease the reference count of the context and drop it from the cache once it reaches zero, releasing the context that holds its trusted certificates if it has one.]
+        releaseEntry(entry);
+        return true;
+    }
+
+    private static Entry getOrCreateTrustEntry(String trustedCertContent)
+            throws KeyStoreException, KeyManagementException, IOException, CertificateException, NoSuchAlgorithmException
+    {
+        String key = trustedCertContent == null ? DEFAULT_TRUSTED_CERT_KEY : digest(trustedCertContent);
+        Entry entry = entriesByKey.get(key);
+        if (entry == null)
+        {
+            IotHubSSLContext context = trustedCertContent == null ? new IotHubSSLContext() : new IotHubSSLContext(trustedCertContent, false);
+            entry = add(new Entry(key, context, null));
+        }
+
+        return entry;
+    }
+
+    private static Entry add(Entry entry)
+    {
+        entriesByKey.put(entry.key, entry);
+        entriesByContext.put(entry.context, entry);
+        return entry;
+    }
+
+    private static void releaseEntry(Entry entry)
+    {
+        if (--entry.references <= 0)
+        {
+            entriesByKey.remove(entry.key);
+            entriesByContext.remove(entry.context);
+            if (entry.trustEntry != null)
+            {
+                releaseEntry(entry.trustEntry);
+            }
+        }
+    }
+
+    private static String readTrustedCert(String trustedCert, boolean isPath) throws IOException
+    {
+        if (trustedCert == null)
+        {
+            return null;
+        }
+
+        if (!isPath)
+        {
+            return trustedCert;
+        }
+
+        IotHubCertificateManager certificateManager = new IotHubCertificateManager();
+        certificateManager.setValidCertPath(trustedCert);
+        return certificateManager.getValidCert();
+    }
+
+    private static String digest(String... contents) throws NoSuchAlgorithmException
+    {
+        MessageDigest messageDigest = MessageDigest.getInstance(DIGEST_ALGORITHM);
+        for (String content : contents)
+        {
+            if (content != null)
+            {
+                messageDigest.update(content.getBytes(StandardCharsets.UTF_8));
+            }
+
+            messageDigest.update((byte) KEY_SEPARATOR);
+        }
+
+        StringBuilder key = new StringBuilder();
+        for (byte b : messageDigest.digest())
+        {
+            key.append(String.format("%02x", b));
+        }
+
+        return key.toString();
+    }
+
+    private static final class Entry
+    {
+        private final String key;
+        private final IotHubSSLContext context;
+        private final Entry trustEntry;
+        private int references;
+
+        private Entry(String key, IotHubSSLContext context, Entry trustEntry)
+        {
+            this.key = key;
+            this.context = context;
+            this.trustEntry = trustEntry;
+        }
+
+        private IotHubSSLContext use()
+        {
+            this.references++;
+            return this.context;
+        }
+    }
+}
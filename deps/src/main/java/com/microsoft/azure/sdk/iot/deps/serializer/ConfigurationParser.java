@@ -12,6 +12,8 @@ import java.util.HashMap;
 
 public class ConfigurationParser
 {
+    private static final Gson exposedFieldsGson = new GsonBuilder().excludeFieldsWithoutExposeAnnotation().create();
+
     private static final String CONFIGURATION_ID_NAME = "id";
     @Expose(serialize = true, deserialize = true)
     @SerializedName(CONFIGURATION_ID_NAME)
@@ -74,7 +76,7 @@ public class ConfigurationParser
     @SerializedName(E_TAG_NAME)
     private String eTag;
 
-    private transient static Gson gson = new GsonBuilder().enableComplexMapKeySerialization().serializeNulls().create();
+    private static final Gson gson = new GsonBuilder().enableComplexMapKeySerialization().serializeNulls().create();
 
     /**
      * Empty constructor: Used only to keep GSON happy.
@@ -159,8 +161,7 @@ public class ConfigurationParser
         }
 
         //Codes_SRS_CONFIGURATION_PARSER_28_006: [This method shall return a json representation of this.]
-        Gson gson = new GsonBuilder().excludeFieldsWithoutExposeAnnotation().create();
-        JsonObject jsonObject = gson.toJsonTree(this).getAsJsonObject();
+        JsonObject jsonObject = exposedFieldsGson.toJsonTree(this).getAsJsonObject();
 
         /* SRS_TWIN_STATE_21_009: [If the tags is null, the JSON shall not include the `tags`.] */
         if (this.content != null)
@@ -85,7 +85,7 @@ public class DeviceParser
     @SerializedName(CAPABILITIES_NAME)
     private DeviceCapabilitiesParser capabilities;
 
-    private transient Gson gson = new Gson();
+    private static final Gson gson = new Gson();
 
     /**
      * Converts this into json format and returns it
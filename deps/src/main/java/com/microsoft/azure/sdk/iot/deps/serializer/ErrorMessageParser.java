@@ -13,6 +13,8 @@ import com.google.gson.annotations.SerializedName;
  */
 public class ErrorMessageParser
 {
+    private static final Gson gson = new GsonBuilder().create();
+
     static class ErrorMessage
     {
         @SerializedName("Message")
@@ -37,8 +39,6 @@ public class ErrorMessageParser
             return "";
         }
 
-        Gson gson = new GsonBuilder().create();
-
         String rootMessage = fullErrorMessage;
         String rootException = null;
         ErrorMessage subMessage;
@@ -17,6 +17,8 @@ import com.google.gson.annotations.SerializedName;
  */
 public class FileUploadRequestParser
 {
+    private static final Gson gson = new GsonBuilder().disableHtmlEscaping().serializeNulls().create();
+
     private static final String BLOB_NAME_TAG = "blobName";
     @Expose(serialize = true, deserialize = true)
     @SerializedName(BLOB_NAME_TAG)
@@ -46,8 +48,6 @@ public class FileUploadRequestParser
      */
     public String toJson()
     {
-        Gson gson = new GsonBuilder().disableHtmlEscaping().serializeNulls().create();
-
         /* Codes_SRS_FILE_UPLOAD_REQUEST_21_004: [The toJson shall return a string with a json that represents the contend of the FileUploadResponseParser.] */
         return gson.toJson(this);
     }
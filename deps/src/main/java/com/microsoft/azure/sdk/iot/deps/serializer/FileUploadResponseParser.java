@@ -22,6 +22,8 @@ import com.google.gson.annotations.SerializedName;
  */
 public class FileUploadResponseParser
 {
+    private static final Gson gson = new GsonBuilder().disableHtmlEscaping().serializeNulls().create();
+
     private static final String CORRELATION_ID_TAG = "correlationId";
     @Expose(serialize = true, deserialize = true)
     @SerializedName(CORRELATION_ID_TAG)
@@ -57,7 +59,6 @@ public class FileUploadResponseParser
     public FileUploadResponseParser(String json) throws IllegalArgumentException
     {
         /* Codes_SRS_FILE_UPLOAD_RESPONSE_21_001: [The constructor shall create an instance of the FileUploadResponseParser.] */
-        Gson gson = new GsonBuilder().disableHtmlEscaping().serializeNulls().create();
         FileUploadResponseParser newFileUploadResponseParser;
 
         /* Codes_SRS_FILE_UPLOAD_RESPONSE_21_003: [If the provided json is null, empty, or not valid, the constructor shall throws IllegalArgumentException.] */
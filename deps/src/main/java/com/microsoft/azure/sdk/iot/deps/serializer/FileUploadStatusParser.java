@@ -20,6 +20,8 @@ import com.google.gson.annotations.SerializedName;
  */
 public class FileUploadStatusParser
 {
+    private static final Gson gson = new GsonBuilder().disableHtmlEscaping().serializeNulls().create();
+
     private static final String CORRELATION_ID_TAG = "correlationId";
     @Expose(serialize = true, deserialize = true)
     @SerializedName(CORRELATION_ID_TAG)
@@ -87,8 +89,6 @@ public class FileUploadStatusParser
      */
     public String toJson()
     {
-        Gson gson = new GsonBuilder().disableHtmlEscaping().serializeNulls().create();
-
         /* Codes_SRS_FILE_UPLOAD_STATUS_21_004: [The toJson shall return a string with a json that represents the contend of the FileUploadStatusParser.] */
         return gson.toJson(this);
     }
@@ -14,6 +14,9 @@ import java.io.IOException;
 
 public class JobQueryResponseError
 {
+    private static final Gson gson = new GsonBuilder().disableHtmlEscaping().create();
+    private static final Gson serializeNullsGson = new GsonBuilder().serializeNulls().create();
+
     // Code for the error
     private static final String CODE_TAG = "code";
     @SerializedName(CODE_TAG)
@@ -38,7 +41,6 @@ public class JobQueryResponseError
             throw new IllegalArgumentException("Json is null or empty");
         }
 
-        Gson gson = new GsonBuilder().disableHtmlEscaping().create();
         JobQueryResponseError jobQueryResponseError = null;
         try
         {
@@ -72,8 +74,7 @@ public class JobQueryResponseError
     public String toJson()
     {
         //Codes_SRSJOB_QUERY_RESPONSE_ERROR_25_003: [The method shall build the json with the values provided to this object.]
-        Gson gson = new GsonBuilder().serializeNulls().create();
-        return gson.toJson(this);
+        return serializeNullsGson.toJson(this);
     }
 
     /**
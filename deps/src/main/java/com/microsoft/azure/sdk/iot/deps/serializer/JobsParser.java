@@ -19,6 +19,8 @@ import java.util.TimeZone;
  */
 public class JobsParser
 {
+    private static final Gson gson = new GsonBuilder().disableHtmlEscaping().serializeNulls().create();
+
     private transient static final String DATEFORMAT = "yyyy-MM-dd'T'HH:mm:ss.SSS'Z'";
     private transient static final String TIMEZONE = "UTC";
     private transient static final String SCHEDULE_DEVICE_METHOD = "scheduleDeviceMethod";
@@ -188,7 +190,6 @@ public class JobsParser
      */
     public String toJson()
     {
-        Gson gson = new GsonBuilder().disableHtmlEscaping().serializeNulls().create();
         /* Codes_SRS_JOBSPARSER_21_013: [The toJson shall return a String with a json that represents the content of this class.] */
         return gson.toJson(this);
     }
@@ -21,6 +21,8 @@ import java.util.Map;
  */
 public class JobsResponseParser
 {
+    private static final Gson gson = new GsonBuilder().disableHtmlEscaping().create();
+
     @Expose(deserialize = false)
     private static final String DATEFORMAT = "yyyy-MM-dd'T'HH:mm:ss.SSS'Z'";
     @Expose(deserialize = false)
@@ -177,8 +179,6 @@ public class JobsResponseParser
      */
     public static JobsResponseParser createFromJson(String json) throws IllegalArgumentException, JsonParseException
     {
-        Gson gson = new GsonBuilder().disableHtmlEscaping().create();
-
         /* Codes_SRS_JOBSRESPONSEPARSER_21_006: [If the json is null or empty, the createFromJson shall throws IllegalArgumentException.] */
         if((json == null) || json.isEmpty())
         {
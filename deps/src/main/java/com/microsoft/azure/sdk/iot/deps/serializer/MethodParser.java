@@ -14,6 +14,9 @@ import java.util.Map;
  */
 public class MethodParser
 {
+    private static final Gson gson = new GsonBuilder().serializeNulls().create();
+    private static final Gson payloadGson = new GsonBuilder().enableComplexMapKeySerialization().serializeNulls().create();
+
     protected enum Operation
     {
         invoke,
@@ -151,8 +154,6 @@ public class MethodParser
         }
 
         /* Codes_SRS_METHODPARSER_21_007: [The json can contain values `null`, `"null"`, and `""`, which represents null, the string null, and empty string respectively.] */
-        Gson gson = new GsonBuilder().serializeNulls().create();
-
         /* Codes_SRS_METHODPARSER_21_006: [The fromJson shall parse the json and fill the method collection.] */
         if(json.contains(METHOD_NAME_TAG))
         {
@@ -303,7 +304,6 @@ public class MethodParser
         /* Codes_SRS_METHODPARSER_21_019: [If the payload is null, the toJsonElement shall include `payload` with value `null`.] */
         /* Codes_SRS_METHODPARSER_21_024: [The class toJsonElement include status as `status` in the json.] */
         /* Codes_SRS_METHODPARSER_21_025: [If the status is null, the toJsonElement shall include `status` as `null`.] */
-        Gson gson = new GsonBuilder().enableComplexMapKeySerialization().serializeNulls().create();
         JsonObject jsonProperty = new JsonObject();
 
         switch(operation)
@@ -342,7 +342,7 @@ public class MethodParser
                 }
                 else
                 {
-                    jsonProperty.add(PAYLOAD_TAG, gson.toJsonTree(payload));
+                    jsonProperty.add(PAYLOAD_TAG, payloadGson.toJsonTree(payload));
                 }
                 return jsonProperty;
 
@@ -361,7 +361,7 @@ public class MethodParser
                 }
                 else
                 {
-                    jsonProperty.add(PAYLOAD_TAG, gson.toJsonTree(payload));
+                    jsonProperty.add(PAYLOAD_TAG, payloadGson.toJsonTree(payload));
                 }
                 return jsonProperty;
 
@@ -378,7 +378,7 @@ public class MethodParser
                 {
                     return ParserUtility.mapToJsonElement((Map<String, Object>) payload);
                 }
-                return gson.toJsonTree(payload);
+                return payloadGson.toJsonTree(payload);
 
             default:
                 /* Codes_SRS_METHODPARSER_21_036: [If the method operation is `none`, the toJsonElement shall throw IllegalArgumentException.] */
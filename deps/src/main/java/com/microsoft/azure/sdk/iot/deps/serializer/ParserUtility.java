@@ -22,6 +22,8 @@ import java.util.regex.Pattern;
  */
 public class ParserUtility
 {
+    private static final Gson gson = new GsonBuilder().serializeNulls().create();
+
     private static final String DATEFORMAT = "yyyy-MM-dd'T'HH:mm:ss";
     private static final String OFFSETFORMAT = "yyyy-MM-dd'T'HH:mm:ssXXX";
     private static final String TIMEZONE = "UTC";
@@ -477,7 +479,6 @@ public class ParserUtility
     {
         /* Codes_SRS_PARSER_UTILITY_21_035: [The mapToJsonElement shall serialize the provided map into a JsonElement.] */
         /* Codes_SRS_PARSER_UTILITY_21_036: [The mapToJsonElement shall include keys with null values in the JsonElement.] */
-        Gson gson = new GsonBuilder().serializeNulls().create();
 
         /* Codes_SRS_PARSER_UTILITY_21_038: [If the map is empty, the mapToJsonElement shall return a empty JsonElement.] */
         JsonObject json = new JsonObject();
@@ -12,6 +12,8 @@ import com.google.gson.annotations.SerializedName;
 
 public class QueryRequestParser
 {
+    private static final Gson gson = new GsonBuilder().disableHtmlEscaping().create();
+
     private static final String QUERY_TAG = "query";
     @Expose(serialize = true, deserialize = false)
     @SerializedName(QUERY_TAG)
@@ -41,8 +43,6 @@ public class QueryRequestParser
      */
     public String toJson()
     {
-        Gson gson = new GsonBuilder().disableHtmlEscaping().create();
-
         //Codes_SRS_QUERY_REQUEST_PARSER_25_004: [The toJson shall return a string with a json that represents the contents of the QueryRequestParser.]
         return gson.toJson(this);
     }
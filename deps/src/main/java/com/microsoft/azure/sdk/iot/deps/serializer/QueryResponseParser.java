@@ -15,7 +15,7 @@ import java.util.List;
 
 public class QueryResponseParser
 {
-    private transient Gson gson;
+    private static final Gson gson = new GsonBuilder().disableHtmlEscaping().create();
     private JsonObject[] jsonItems = null;
 
     /**
@@ -28,8 +28,6 @@ public class QueryResponseParser
     public QueryResponseParser(String json) throws IllegalArgumentException
     {
         //Codes_SRS_QUERY_RESPONSE_PARSER_25_001: [The constructor shall create an instance of the QueryResponseParser.]
-        gson = new GsonBuilder().disableHtmlEscaping().create();
-
         //Codes_SRS_QUERY_RESPONSE_PARSER_25_003: [If the provided json is null, empty, or not valid, the constructor shall throws IllegalArgumentException.]
         if((json == null) || json.isEmpty())
         {
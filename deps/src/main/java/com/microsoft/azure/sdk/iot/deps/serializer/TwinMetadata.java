@@ -22,6 +22,7 @@ import java.util.TimeZone;
 @Deprecated
 public class TwinMetadata
 {
+    private static final Gson gson = new GsonBuilder().create();
 
     private static final String DATEFORMAT = "yyyy-MM-dd'T'HH:mm:ss.SSS'Z'";
     private static final String TIMEZONE = "UTC";
@@ -109,7 +110,6 @@ public class TwinMetadata
 
     protected JsonElement toJsonElement()
     {
-        Gson gson = new GsonBuilder().create();
         return gson.toJsonTree(this);
     }
 }
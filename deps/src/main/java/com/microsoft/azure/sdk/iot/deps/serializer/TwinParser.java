@@ -16,6 +16,8 @@ import java.util.Map;
 @Deprecated
 public class TwinParser
 {
+    private static final Gson gson = new GsonBuilder().disableHtmlEscaping().create();
+    private static final Gson innerClassExcludingGson = new GsonBuilder().disableInnerClassSerialization().disableHtmlEscaping().create();
 
     private TwinChangedCallback onDesiredCallback = null;
     private TwinChangedCallback onReportedCallback = null;
@@ -152,7 +154,6 @@ public class TwinParser
     public JsonElement toJsonElement()
     {
         /* Codes_SRS_TWINPARSER_21_017: [The toJsonElement shall return a JsonElement with information in the TwinParser using json format.] */
-        Gson gson = new GsonBuilder().disableHtmlEscaping().create();
         JsonObject twinJson = gson.toJsonTree(manager).getAsJsonObject();
 
         /* Codes_SRS_TWINPARSER_21_018: [The toJsonElement shall not include null fields.] */
@@ -219,7 +220,6 @@ public class TwinParser
         validateMap(reportedPropertyMap);
         validateMap(tagsMap);
 
-        Gson gson = new GsonBuilder().disableHtmlEscaping().create();
         jsonTwin = gson.toJsonTree(manager).getAsJsonObject();
 
         /* Codes_SRS_TWINPARSER_21_075: [If Tags is not enable and `tagsMap` is not null, the updateTwin shall throw IOException.] */
@@ -620,15 +620,14 @@ public class TwinParser
         /* Codes_SRS_TWINPARSER_21_071: [If the provided json is empty, the updateTwin shall not change the collection and not call the OnDesiredCallback or the OnReportedCallback.] */
         if(!json.isEmpty())
         {
-            Gson gson = new GsonBuilder().disableInnerClassSerialization().disableHtmlEscaping().create();
             Map<String, Object> jsonTree;
             try
             {
                 /* Codes_SRS_TWINPARSER_21_097: [If the provided json have any duplicated `properties` or `tags`, the updateTwin shall throw IllegalArgumentException.] */
                 /* Codes_SRS_TWINPARSER_21_098: [If the provided json is properties only and contains duplicated `desired` or `reported`, the updateTwin shall throws IllegalArgumentException.] */
                 /* Codes_SRS_TWINPARSER_21_094: [If the provided json have any duplicated `key`, the updateTwin shall use the content of the last one in the String.] */
-                jsonTree = (Map<String, Object>) gson.fromJson(json, HashMap.class);
-                manager = gson.fromJson(json, RegisterManagerParser.class);
+                jsonTree = (Map<String, Object>) innerClassExcludingGson.fromJson(json, HashMap.class);
+                manager = innerClassExcludingGson.fromJson(json, RegisterManagerParser.class);
             }
             catch (JsonSyntaxException e)
             {
@@ -1007,8 +1006,7 @@ public class TwinParser
         Map<String, Object> map;
         try
         {
-            Gson gson = new GsonBuilder().disableInnerClassSerialization().disableHtmlEscaping().create();
-            map = (Map<String, Object>) gson.fromJson(json, HashMap.class);
+            map = (Map<String, Object>) innerClassExcludingGson.fromJson(json, HashMap.class);
         }
         catch (Exception e)
         {
@@ -4,12 +4,18 @@
 package com.microsoft.azure.sdk.iot.deps.serializer;
 
 import com.google.gson.Gson;
-import com.google.gson.GsonBuilder;
 import com.google.gson.JsonElement;
+import com.google.gson.TypeAdapter;
 import com.google.gson.internal.LinkedTreeMap;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
 
+import java.io.IOException;
+import java.io.StringReader;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 
@@ -24,6 +30,7 @@ import java.util.concurrent.ConcurrentMap;
 @Deprecated
 public class TwinProperty
 {
+    private static final TypeAdapter<Object> valueAdapter = new Gson().getAdapter(Object.class);
 
     private static final String VERSION_TAG = "$version";
     private static final String METADATA_TAG = "$metadata";
@@ -319,6 +326,121 @@ public class TwinProperty
             throw new IllegalArgumentException("Malformed Json:" + e);
         }
 
+        reportChanges(diffField, diffMetadata, onCallback);
+    }
+
+    /**
+     * Updates the collection from a json patch without building the tree of the whole json. Each property is
+     * compared with the collection as it is read, and only the changed ones are kept, in the map that is then
+     * handed to the callback. The collection is changed only once the whole json was read successfully.
+     */
+    protected void update(String json, TwinChangedCallback onCallback) throws IllegalArgumentException
+    {
+        Map<String, Object> diffField = new HashMap<>();
+        Map<String, Object> diffMetadata = new HashMap<>();
+
+        synchronized (lock)
+        {
+            Integer newVersion = null;
+            Map<String, Object> metadataTree = null;
+            try
+            {
+                JsonReader reader = new JsonReader(new StringReader(json));
+                reader.setLenient(true);
+                Set<String> keys = new HashSet<>();
+
+                reader.beginObject();
+                while (reader.hasNext())
+                {
+                    String key = reader.nextName();
+                    if (!keys.add(key))
+                    {
+                        /* Codes_SRS_TWINPARSER_21_095: [If the provided json have any duplicated `key`, the updateReportedProperty shall throws IllegalArgumentException.] */
+                        /* Codes_SRS_TWINPARSER_21_096: [If the provided json have any duplicated `key`, the updateDesiredProperty shall throws IllegalArgumentException.] */
+                        throw new IllegalArgumentException("Duplicated key on Json: " + key);
+                    }
+
+                    if (key.isEmpty())
+                    {
+                        throw new IllegalArgumentException("Invalid Key on Json");
+                    }
+                    else if (key.equals(VERSION_TAG))
+                    {
+                        newVersion = (int) reader.nextDouble();
+                    }
+                    else if (key.equals(METADATA_TAG))
+                    {
+                        metadataTree = (Map<String, Object>) valueAdapter.read(reader);
+                    }
+                    else if (key.contains("$"))
+                    {
+                        reader.skipValue();
+                    }
+                    else
+                    {
+                        /* Codes_SRS_TWINPARSER_21_040: [The updateTwin shall not change fields that is not reported in the json string.] */
+                        /* Codes_SRS_TWINPARSER_21_030: [The updateDesiredProperty shall generate a map with all pairs key value that had its content changed.] */
+                        /* Codes_SRS_TWINPARSER_21_035: [The updateReportedProperty shall generate a map with all pairs key value that had its content changed.] */
+                        Object value = valueAdapter.read(reader);
+                        Property current = property.get(key);
+                        if ((current == null) ? (value != null) : !current.value.equals(value))
+                        {
+                            diffField.put(key, value);
+                        }
+                    }
+                }
+                reader.endObject();
+
+                if (reader.peek() != JsonToken.END_DOCUMENT)
+                {
+                    throw new IllegalArgumentException("Json has content after its root object");
+                }
+            }
+            catch (IOException | RuntimeException e)
+            {
+                /* Codes_SRS_TWINPARSER_21_092: [If the provided json is not valid, the updateDesiredProperty shall throws IllegalArgumentException.] */
+                /* Codes_SRS_TWINPARSER_21_093: [If the provided json is not valid, the updateReportedProperty shall throws IllegalArgumentException.] */
+                throw new IllegalArgumentException("Malformed Json:" + e);
+            }
+
+            /* Codes_SRS_TWINPARSER_21_029: [The updateDesiredProperty shall update the Desired property using the information provided in the json.] */
+            /* Codes_SRS_TWINPARSER_21_034: [The updateReportedProperty shall update the Reported property using the information provided in the json.] */
+            if (newVersion != null)
+            {
+                version = newVersion;
+            }
+
+            for (Map.Entry<String, Object> entry : diffField.entrySet())
+            {
+                if (entry.getValue() == null)
+                {
+                    /* Codes_SRS_TWINPARSER_21_042: [If a valid key has a null value, the updateTwin shall delete this property.] */
+                    property.remove(entry.getKey());
+                }
+                else
+                {
+                    property.put(entry.getKey(), new Property(entry.getValue(), null));
+                }
+            }
+
+            if (metadataTree != null)
+            {
+                try
+                {
+                    diffMetadata = updateMetadataItems(metadataTree);
+                }
+                catch (RuntimeException e)
+                {
+                    throw new IllegalArgumentException("Malformed Json:" + e);
+                }
+            }
+        }
+
+        reportChanges(diffField, diffMetadata, onCallback);
+    }
+
+    private void reportChanges(Map<String, Object> diffField, Map<String, Object> diffMetadata, TwinChangedCallback onCallback)
+    {
         if(reportMetadata)
         {
             for(Map.Entry<String, Object> entry : diffMetadata.entrySet())
@@ -354,23 +476,6 @@ public class TwinProperty
         }
     }
 
-    protected void update(String json, TwinChangedCallback onCallback) throws IllegalArgumentException
-    {
-        Map   <String, Object> newValues;
-        try
-        {
-            /* Codes_SRS_TWINPARSER_21_095: [If the provided json have any duplicated `key`, the updateReportedProperty shall throws IllegalArgumentException.] */
-            /* Codes_SRS_TWINPARSER_21_096: [If the provided json have any duplicated `key`, the updateDesiredProperty shall throws IllegalArgumentException.] */
-            Gson gson = new GsonBuilder().create();
-            newValues = (Map<String, Object>) gson.fromJson(json, Map.class);
-        }
-        catch (Exception e)
-        {
-            throw new IllegalArgumentException("Malformed Json:" + e);
-        }
-        update(newValues, onCallback);
-    }
-
     private void updateVersion(Map<String, Object> jsonTree)
     {
         for (Map.Entry<String, Object> entry : jsonTree.entrySet())
@@ -385,40 +490,44 @@ public class TwinProperty
 
     private Map<String, Object> updateMetadata(Map<String, Object> jsonTree)
     {
-        Map<String, Object> diff = new HashMap<>();
         for (Map.Entry<String, Object> entry : jsonTree.entrySet())
         {
             if(entry.getKey().equals(METADATA_TAG))
             {
-                Map<String, Object> metadataTree = (Map<String, Object>)entry.getValue();
-                for (Map.Entry<String, Object> item : metadataTree.entrySet())
+                return updateMetadataItems((Map<String, Object>)entry.getValue());
+            }
+        }
+        return new HashMap<>();
+    }
+
+    private Map<String, Object> updateMetadataItems(Map<String, Object> metadataTree)
+    {
+        Map<String, Object> diff = new HashMap<>();
+        for (Map.Entry<String, Object> item : metadataTree.entrySet())
+        {
+            synchronized (lock)
+            {
+                if (property.containsKey(item.getKey()))
                 {
-                    synchronized (lock)
+                    Map<String, Object> itemTree = (Map<String, Object>) item.getValue();
+                    String lastUpdated = null;
+                    Integer lastUpdatedVersion = null;
+                    for (Map.Entry<String, Object> metadataItem : itemTree.entrySet())
                     {
-                        if (property.containsKey(item.getKey()))
+                        if (metadataItem.getKey().equals(LAST_UPDATE_TAG))
                         {
-                            Map<String, Object> itemTree = (Map<String, Object>) item.getValue();
-                            String lastUpdated = null;
-                            Integer lastUpdatedVersion = null;
-                            for (Map.Entry<String, Object> metadataItem : itemTree.entrySet())
-                            {
-                                if (metadataItem.getKey().equals(LAST_UPDATE_TAG))
-                                {
-                                    lastUpdated = metadataItem.getValue().toString();
-                                }
-                                else if (metadataItem.getKey().equals(LAST_UPDATE_VERSION_TAG))
-                                {
-                                    lastUpdatedVersion = (int) ((double) metadataItem.getValue());
-                                }
-                            }
-                            if (property.get(item.getKey()).metadata.update(lastUpdated, lastUpdatedVersion))
-                            {
-                                diff.put(item.getKey(), item.getValue());
-                            }
+                            lastUpdated = metadataItem.getValue().toString();
+                        }
+                        else if (metadataItem.getKey().equals(LAST_UPDATE_VERSION_TAG))
+                        {
+                            lastUpdatedVersion = (int) ((double) metadataItem.getValue());
                         }
                     }
+                    if (property.get(item.getKey()).metadata.update(lastUpdated, lastUpdatedVersion))
+                    {
+                        diff.put(item.getKey(), item.getValue());
+                    }
                 }
-                break;
             }
         }
         return diff;
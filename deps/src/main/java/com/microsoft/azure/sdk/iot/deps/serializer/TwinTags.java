@@ -20,6 +20,8 @@ import java.util.Map;
 @Deprecated
 public class TwinTags
 {
+    private static final Gson gson = new GsonBuilder().create();
+
     private static final String VERSION_TAG = "$version";
     private static final String METADATA_TAG = "$metadata";
     private static final int MAX_PROPERTY_LEVEL = 5;
@@ -132,13 +134,11 @@ public class TwinTags
 
     protected String toJson()
     {
-        Gson gson = new GsonBuilder().create();
         return gson.toJson(tags);
     }
 
     protected JsonElement toJsonElement()
     {
-        Gson gson = new GsonBuilder().create();
         /* Codes_SRS_TWINPARSER_21_017: [The toJsonElement shall return a JsonElement with information in the TwinParser using json format.] */
         return gson.toJsonTree(tags);
     }
@@ -101,6 +101,10 @@ import java.util.Map;
  */
 public class TwinState extends RegisterManager
 {
+    private static final Gson serializeNullsGson = new GsonBuilder().disableHtmlEscaping().serializeNulls().create();
+    private static final Gson prettyPrintingGson = new GsonBuilder().excludeFieldsWithoutExposeAnnotation().setPrettyPrinting().disableHtmlEscaping().create();
+    private static final Gson gson = new GsonBuilder().excludeFieldsWithoutExposeAnnotation().disableHtmlEscaping().create();
+
     // the twin tags
     private static final String TAGS_TAG = "tags";
     @Expose(serialize = false, deserialize = true)
@@ -182,8 +186,7 @@ public class TwinState extends RegisterManager
         /* SRS_TWIN_STATE_21_002: [The toJsonElement shall return a JsonElement with the information in this class in a JSON format.] */
         /* SRS_TWIN_STATE_21_003: [If the tags is null, the toJsonElement shall not include the `tags` in the final JSON.] */
         /* SRS_TWIN_STATE_21_004: [If the property is null, the toJsonElement shall not include the `properties` in the final JSON.] */
-        Gson gson = new GsonBuilder().disableHtmlEscaping().serializeNulls().create();
-        JsonElement json = gson.toJsonTree(this).getAsJsonObject();
+        JsonElement json = serializeNullsGson.toJsonTree(this).getAsJsonObject();
 
         //since null values are lost when building the json tree, need to manually re-add properties as reported properties
         // may have contained a property with a null value. Those must be preserved so users can delete properties
@@ -257,8 +260,7 @@ public class TwinState extends RegisterManager
     public String toString()
     {
         /* SRS_TWIN_STATE_21_008: [The toString shall return a String with the information in this class in a pretty print JSON.] */
-        Gson gson = new GsonBuilder().excludeFieldsWithoutExposeAnnotation().setPrettyPrinting().disableHtmlEscaping().create();
-        JsonObject jsonObject = gson.toJsonTree(this).getAsJsonObject();
+        JsonObject jsonObject = prettyPrintingGson.toJsonTree(this).getAsJsonObject();
 
         /* SRS_TWIN_STATE_21_009: [If the tags is null, the JSON shall not include the `tags`.] */
         if(this.tags != null)
@@ -293,7 +295,6 @@ public class TwinState extends RegisterManager
 
         /* SRS_TWIN_STATE_21_012: [The factory shall throw JsonSyntaxException if the JSON is invalid.] */
         /* SRS_TWIN_STATE_21_013: [The factory shall deserialize the provided JSON for the twin class and subclasses.] */
-        Gson gson = new GsonBuilder().excludeFieldsWithoutExposeAnnotation().disableHtmlEscaping().create();
         TwinState result = gson.fromJson(json, TwinState.class);
 
         /*
@@ -329,7 +330,6 @@ public class TwinState extends RegisterManager
 
         /* SRS_TWIN_STATE_21_015: [The factory shall throw JsonSyntaxException if the JSON is invalid.] */
         /* SRS_TWIN_STATE_21_016: [The factory shall deserialize the provided JSON for the Twin class and subclasses.] */
-        Gson gson = new GsonBuilder().excludeFieldsWithoutExposeAnnotation().disableHtmlEscaping().create();
         TwinCollection result = gson.fromJson(json, TwinCollection.class);
 
         return new TwinState(null, result, null);
@@ -353,7 +353,6 @@ public class TwinState extends RegisterManager
 
         /* SRS_TWIN_STATE_21_018: [The factory shall throw JsonSyntaxException if the JSON is invalid.] */
         /* SRS_TWIN_STATE_21_019: [The factory shall deserialize the provided JSON for the Twin class and subclasses.] */
-        Gson gson = new GsonBuilder().excludeFieldsWithoutExposeAnnotation().disableHtmlEscaping().create();
         TwinCollection result = gson.fromJson(json, TwinCollection.class);
 
         return new TwinState(null, null, result);
@@ -377,7 +376,6 @@ public class TwinState extends RegisterManager
 
         /* SRS_TWIN_STATE_21_021: [The factory shall throw JsonSyntaxException if the JSON is invalid.] */
         /* SRS_TWIN_STATE_21_022: [The factory shall deserialize the provided JSON for the Twin class and subclasses.] */
-        Gson gson = new GsonBuilder().excludeFieldsWithoutExposeAnnotation().disableHtmlEscaping().create();
         TwinProperties result = gson.fromJson(json, TwinProperties.class);
 
         return new TwinState(null, result.getDesired(), result.getReported());
@@ -283,13 +283,67 @@ public final class Base64
         return new String(encodeBase64Internal(dataValues));
     }
 
+    /**
+     * Returns the number of Base64 values needed to encode the given number of bytes.
+     *
+     * @param dataLength is the number of bytes to encode
+     * @return the length of the Base64 encoded values, including padding
+     * @throws IllegalArgumentException if the provided length is negative
+     */
+    public static int encodedLength(int dataLength) throws IllegalArgumentException
+    {
+        /* Codes_SRS_BASE64_34_012: [If the `dataLength` is negative, the encodedLength shall throw IllegalArgumentException.] */
+        if(dataLength < 0)
+        {
+            throw new IllegalArgumentException("negative dataLength");
+        }
+
+        /* Codes_SRS_BASE64_34_011: [The encodedLength shall return the number of Base64 values, including padding, needed to encode `dataLength` bytes.] */
+        return ((dataLength + BYTE_GROUP_SIZE - 1) / BYTE_GROUP_SIZE) * BASE64_GROUP_SIZE;
+    }
+
+    /**
+     * Convert a array of bytes in MIME Base64 values written into the provided destination array, starting at
+     * the provided offset.
+     * <a href="http://www.ietf.org/rfc/rfc2045.txt">RFC 2045</a>.
+     *
+     * @param dataValues is an array of bytes with the original values
+     * @param destination is the array that receives the base64 encoded values
+     * @param destinationOffset is the position in the destination of the first encoded value
+     * @return the number of base64 values written to the destination
+     * @throws IllegalArgumentException if the provided arrays are null, or the destination is too small
+     */
+    public static int encodeBase64Local(byte[] dataValues, byte[] destination, int destinationOffset) throws IllegalArgumentException
+    {
+        /* Codes_SRS_BASE64_34_014: [If the `dataValues` or the `destination` is null, the encodeBase64Local shall throw IllegalArgumentException.] */
+        if(dataValues == null || destination == null)
+        {
+            throw new IllegalArgumentException("null dataValues or destination");
+        }
+
+        int encodedLength = encodedLength(dataValues.length);
+
+        /* Codes_SRS_BASE64_34_015: [If the encoded values do not fit in the `destination` from the `destinationOffset`, the encodeBase64Local shall throw IllegalArgumentException.] */
+        if(destinationOffset < 0 || destinationOffset > destination.length - encodedLength)
+        {
+            throw new IllegalArgumentException("destination too small for the encoded values");
+        }
+
+        /* Codes_SRS_BASE64_34_013: [The encodeBase64Local shall write the provided `dataValues` encoded using the Base64 format define in the RFC2045 in the `destination`, starting at `destinationOffset`, and return the number of values written.] */
+        encodeBase64Internal(dataValues, destination, destinationOffset);
+        return encodedLength;
+    }
+
     private static byte[] encodeBase64Internal(byte[] dataValues) throws IllegalArgumentException
     {
-        int encodedLength = (((dataValues.length - 1) / BYTE_GROUP_SIZE) + 1) * BASE64_GROUP_SIZE;
-        int destinationPosition = 0;
-        int currentPosition = 0;
+        byte[] encodedResult = new byte[encodedLength(dataValues.length)];
+        encodeBase64Internal(dataValues, encodedResult, 0);
+        return encodedResult;
+    }
 
-        byte[] encodedResult = new byte[encodedLength];
+    private static void encodeBase64Internal(byte[] dataValues, byte[] encodedResult, int destinationPosition)
+    {
+        int currentPosition = 0;
 
         while((dataValues.length - currentPosition) >= BYTE_GROUP_SIZE)
         {
@@ -318,7 +372,5 @@ public final class Base64
             encodedResult[destinationPosition++] = BASE64_PAD;
             encodedResult[destinationPosition] = BASE64_PAD;
         }
-
-        return encodedResult;
     }
 }
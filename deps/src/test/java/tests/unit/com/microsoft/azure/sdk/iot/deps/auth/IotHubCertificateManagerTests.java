@@ -177,6 +177,24 @@ public class IotHubCertificateManagerTests
 
     }
 
+    //Tests_SRS_IOTHUBCERTIFICATEMANAGER_34_012: [This method shall return the saved valid certificate.]
+    @Test
+    public void getValidCertGetsSavedCert()
+    {
+        //arrange
+        IotHubCertificateManager testCertManager = Deencapsulation.newInstance(IotHubCertificateManager.class);
+        String validCertString = "-----BEGIN CERTIFICATE-----\r\n" +
+                "SomeRandomCertValue\r\n" +
+                "-----END CERTIFICATE-----\r\n";
+        Deencapsulation.invoke(testCertManager, "setValidCert", validCertString);
+
+        //act
+        String actualValidCert = Deencapsulation.invoke(testCertManager, "getValidCert");
+
+        //assert
+        assertEquals(validCertString, actualValidCert);
+    }
+
     //Tests_SRS_IOTHUBCERTIFICATEMANAGER_25_007: [**This method shall throw IllegalArgumentException if parameter is null.**]**
     @Test (expected = IllegalArgumentException.class)
     public void setValidCertThrowsIfCertIsEmpty()
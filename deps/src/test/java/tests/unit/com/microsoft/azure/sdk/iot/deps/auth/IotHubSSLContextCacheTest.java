@@ -0,0 +1,247 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See LICENSE file in the project root for full license information.
+
+package tests.unit.com.microsoft.azure.sdk.iot.deps.auth;
+
+import com.microsoft.azure.sdk.iot.deps.auth.IotHubCertificateManager;
+import com.microsoft.azure.sdk.iot.deps.auth.IotHubSSLContext;
+import com.microsoft.azure.sdk.iot.deps.auth.IotHubSSLContextCache;
+import mockit.Deencapsulation;
+import mockit.Mocked;
+import mockit.NonStrictExpectations;
+import mockit.Verifications;
+import org.junit.After;
+import org.junit.Test;
+
+import javax.net.ssl.TrustManager;
+import java.security.cert.CertificateException;
+import java.util.Map;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/*
+ * Unit tests for IotHubSSLContextCache
+ * Code Coverage:
+ * Methods: 100%
+ * Lines: 100%
+ */
+public class IotHubSSLContextCacheTest
+{
+    private static final String TRUSTED_CERT = "someTrustedCert";
+    private static final String TRUSTED_CERT_PATH = "some/trusted/cert/path";
+    private static final String PUBLIC_KEY_CERTIFICATE = "somePublicKeyCertificate";
+    private static final String PRIVATE_KEY = "somePrivateKey";
+
+    @Mocked IotHubSSLContext mockedIotHubSSLContext;
+    @Mocked IotHubCertificateManager mockedCertificateManager;
+    @Mocked TrustManager[] mockedTrustManagers;
+
+    @After
+    public void clearCache()
+    {
+        Map<?, ?> entriesByKey = Deencapsulation.getField(IotHubSSLContextCache.class, "entriesByKey");
+        Map<?, ?> entriesByContext = Deencapsulation.getField(IotHubSSLContextCache.class, "entriesByContext");
+        entriesByKey.clear();
+        entriesByContext.clear();
+    }
+
+    //Tests_SRS_IOTHUBSSLCONTEXTCACHE_34_001: [This function shall return the cached context for the content of the trusted certificate and increase its reference count, creating and caching it first if there is none.]
+    @Test
+    public void acquireDefaultCreatesContextOnce() throws Exception
+    {
+        //act
+        IotHubSSLContext first = IotHubSSLContextCache.acquire(null, false);
+        IotHubSSLContext second = IotHubSSLContextCache.acquire(null, false);
+
+        //assert
+        assertSame(first, second);
+        new Verifications()
+        {
+            {
+                new IotHubSSLContext();
+                times = 1;
+            }
+        };
+    }
+
+    //Tests_SRS_IOTHUBSSLCONTEXTCACHE_34_001: [This function shall return the cached context for the content of the trusted certificate and increase its reference count, creating and caching it first if there is none.]
+    @Test
+    public void acquireWithTrustedCertCreatesContextOnce() throws Exception
+    {
+        //act
+        IotHubSSLContext first = IotHubSSLContextCache.acquire(TRUSTED_CERT, false);
+        IotHubSSLContext second = IotHubSSLContextCache.acquire(TRUSTED_CERT, false);
+        IotHubSSLContext other = IotHubSSLContextCache.acquire("someOtherTrustedCert", false);
+
+        //assert
+        assertSame(first, second);
+        assertNotSame(first, other);
+        new Verifications()
+        {
+            {
+                Deencapsulation.newInstance(IotHubSSLContext.class, new Class[] {String.class, boolean.class}, TRUSTED_CERT, false);
+                times = 1;
+            }
+        };
+    }
+
+    //Tests_SRS_IOTHUBSSLCONTEXTCACHE_34_001: [This function shall return the cached context for the content of the trusted certificate and increase its reference count, creating and caching it first if there is none.]
+    @Test
+    public void acquireWithTrustedCertPathCachesByContent() throws Exception
+    {
+        //arrange
+        new NonStrictExpectations()
+        {
+            {
+                Deencapsulation.invoke(mockedCertificateManager, "getValidCert");
+                result = TRUSTED_CERT;
+            }
+        };
+
+        //act
+        IotHubSSLContext fromPath = IotHubSSLContextCache.acquire(TRUSTED_CERT_PATH, true);
+        IotHubSSLContext fromContent = IotHubSSLContextCache.acquire(TRUSTED_CERT, false);
+
+        //assert
+        assertSame(fromPath, fromContent);
+        new Verifications()
+        {
+            {
+                Deencapsulation.invoke(mockedCertificateManager, "setValidCertPath", TRUSTED_CERT_PATH);
+                times = 1;
+                Deencapsulation.newInstance(IotHubSSLContext.class, new Class[] {String.class, boolean.class}, TRUSTED_CERT, false);
+                times = 1;
+            }
+        };
+    }
+
+    //Tests_SRS_IOTHUBSSLCONTEXTCACHE_34_002: [If the public key certificate or the private key is null, this function shall throw an IllegalArgumentException.]
+    @Test (expected = IllegalArgumentException.class)
+    public void acquireWithKeysThrowsForNullPublicKeyCertificate() throws Exception
+    {
+        //act
+        IotHubSSLContextCache.acquire(null, PRIVATE_KEY, null, false);
+    }
+
+    //Tests_SRS_IOTHUBSSLCONTEXTCACHE_34_002: [If the public key certificate or the private key is null, this function shall throw an IllegalArgumentException.]
+    @Test (expected = IllegalArgumentException.class)
+    public void acquireWithKeysThrowsForNullPrivateKey() throws Exception
+    {
+        //act
+        IotHubSSLContextCache.acquire(PUBLIC_KEY_CERTIFICATE, null, null, false);
+    }
+
+    //Tests_SRS_IOTHUBSSLCONTEXTCACHE_34_003: [This function shall return the cached context for the content of the key pair and the trusted certificate and increase its reference count.]
+    //Tests_SRS_IOTHUBSSLCONTEXTCACHE_34_004: [If there is no cached context, this function shall create one from the key pair and the trust managers of the cached context of the trusted certificate, which it acquires for as long as the new context is cached.]
+    @Test
+    public void acquireWithKeysSharesTrustManagers() throws Exception
+    {
+        //arrange
+        new NonStrictExpectations()
+        {
+            {
+                Deencapsulation.invoke(mockedIotHubSSLContext, "getTrustManagers");
+                result = mockedTrustManagers;
+            }
+        };
+
+        //act
+        IotHubSSLContext first = IotHubSSLContextCache.acquire(PUBLIC_KEY_CERTIFICATE, PRIVATE_KEY, null, false);
+        IotHubSSLContext second = IotHubSSLContextCache.acquire(PUBLIC_KEY_CERTIFICATE, PRIVATE_KEY, null, false);
+        IotHubSSLContext trustOnly = IotHubSSLContextCache.acquire(null, false);
+
+        //assert
+        assertSame(first, second);
+        assertNotSame(first, trustOnly);
+        new Verifications()
+        {
+            {
+                new IotHubSSLContext();
+                times = 1;
+                Deencapsulation.newInstance(IotHubSSLContext.class, new Class[] {String.class, String.class, TrustManager[].class}, PUBLIC_KEY_CERTIFICATE, PRIVATE_KEY, mockedTrustManagers);
+                times = 1;
+            }
+        };
+    }
+
+    //Tests_SRS_IOTHUBSSLCONTEXTCACHE_34_004: [If there is no cached context, this function shall create one from the key pair and the trust managers of the cached context of the trusted certificate, which it acquires for as long as the new context is cached.]
+    @Test
+    public void acquireWithKeysDropsTrustContextIfCreationFails() throws Exception
+    {
+        //arrange
+        new NonStrictExpectations()
+        {
+            {
+                Deencapsulation.newInstance(IotHubSSLContext.class, new Class[] {String.class, String.class, TrustManager[].class}, PUBLIC_KEY_CERTIFICATE, PRIVATE_KEY, null);
+                result = new CertificateException();
+            }
+        };
+
+        //act
+        try
+        {
+            IotHubSSLContextCache.acquire(PUBLIC_KEY_CERTIFICATE, PRIVATE_KEY, null, false);
+            fail("Expected a CertificateException");
+        }
+        catch (CertificateException expected)
+        {
+            // expected
+        }
+
+        //assert
+        Map<?, ?> entriesByKey = Deencapsulation.getField(IotHubSSLContextCache.class, "entriesByKey");
+        assertTrue(entriesByKey.isEmpty());
+    }
+
+    //Tests_SRS_IOTHUBSSLCONTEXTCACHE_34_005: [If the context was not acquired from this cache, this function shall do nothing and return false.]
+    @Test
+    public void releaseReturnsFalseForUnknownContext()
+    {
+        //act
+        boolean released = IotHubSSLContextCache.release(mockedIotHubSSLContext);
+
+        //assert
+        assertFalse(released);
+    }
+
+    //Tests_SRS_IOTHUBSSLCONTEXTCACHE_34_006: [This function shall decrease the reference count of the context and drop it from the cache once it reaches zero, releasing the context that holds its trusted certificates if it has one.]
+    @Test
+    public void releaseDropsContextOnceUnused() throws Exception
+    {
+        //arrange
+        IotHubSSLContext first = IotHubSSLContextCache.acquire(null, false);
+        IotHubSSLContextCache.acquire(null, false);
+
+        //act
+        assertTrue(IotHubSSLContextCache.release(first));
+        IotHubSSLContext stillCached = IotHubSSLContextCache.acquire(null, false);
+        assertTrue(IotHubSSLContextCache.release(stillCached));
+        assertTrue(IotHubSSLContextCache.release(first));
+        IotHubSSLContext recreated = IotHubSSLContextCache.acquire(null, false);
+
+        //assert
+        assertSame(first, stillCached);
+        assertNotSame(first, recreated);
+    }
+
+    //Tests_SRS_IOTHUBSSLCONTEXTCACHE_34_006: [This function shall decrease the reference count of the context and drop it from the cache once it reaches zero, releasing the context that holds its trusted certificates if it has one.]
+    @Test
+    public void releaseOfKeyPairContextReleasesTrustContext() throws Exception
+    {
+        //arrange
+        IotHubSSLContext keyPairContext = IotHubSSLContextCache.acquire(PUBLIC_KEY_CERTIFICATE, PRIVATE_KEY, null, false);
+
+        //act
+        IotHubSSLContextCache.release(keyPairContext);
+
+        //assert
+        Map<?, ?> entriesByKey = Deencapsulation.getField(IotHubSSLContextCache.class, "entriesByKey");
+        Map<?, ?> entriesByContext = Deencapsulation.getField(IotHubSSLContextCache.class, "entriesByContext");
+        assertTrue(entriesByKey.isEmpty());
+        assertTrue(entriesByContext.isEmpty());
+    }
+}
@@ -30,6 +30,7 @@ import java.util.UUID;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 
 /*
@@ -626,4 +627,93 @@ public class IotHubSSLContextTest
         //act
         new IotHubSSLContext(null);
     }
+
+    //Tests_SRS_IOTHUBSSLCONTEXT_34_047: [This constructor shall create an SSL context for TLSv1.2 and initialize it with a keystore holding the public key certificate and the private key, the provided trust managers and a new secure random.]
+    @Test
+    public void constructorWithCertKeyAndTrustManagersSuccess()
+            throws NoSuchAlgorithmException, KeyStoreException, KeyManagementException, IOException, CertificateException, UnrecoverableKeyException
+    {
+        //arrange
+        final String publicKeyCert = "someCert";
+        final String privateKey = "someKey";
+
+        final Collection<X509Certificate> testCertChain = new ArrayList<>();
+        testCertChain.add(mockedX509Certificate);
+
+        new MockUp<IotHubSSLContext>()
+        {
+            @Mock Key parsePrivateKey(String privateKeyString) throws CertificateException
+            {
+                return mockedPrivateKey;
+            }
+
+            @Mock Collection<X509Certificate> parsePublicKeyCertificate(String publicKeyCertificateString) throws CertificateException
+            {
+                return testCertChain;
+            }
+        };
+
+        new NonStrictExpectations()
+        {
+            {
+                KeyManagerFactory.getInstance(anyString);
+                result = mockKeyManagerFactory;
+
+                mockKeyManagerFactory.getKeyManagers();
+                result = mockKeyManagers;
+            }
+        };
+
+        //act
+        Deencapsulation.newInstance(IotHubSSLContext.class, new Class[]{String.class, String.class, TrustManager[].class}, publicKeyCert, privateKey, mockedTrustManager);
+
+        //assert
+        new Verifications()
+        {
+            {
+                SSLContext.getInstance("TLSv1.2");
+                times = 1;
+
+                mockedKeyStore.setCertificateEntry(anyString, mockedX509Certificate);
+                times = 1;
+
+                TrustManagerFactory.getInstance(anyString);
+                times = 0;
+
+                mockedSSLContext.init(mockKeyManagers, mockedTrustManager, new SecureRandom());
+                times = 1;
+            }
+        };
+    }
+
+    //Tests_SRS_IOTHUBSSLCONTEXT_34_048: [This method shall return the trust managers the default SSL context was initialized with, or null if there are none.]
+    @Test
+    public void getTrustManagersGetsDefaultTrustManagers() throws NoSuchAlgorithmException, KeyStoreException, KeyManagementException, IOException, CertificateException
+    {
+        //arrange
+        testCollection.add(mockedX509Certificate);
+        generateSSLContextExpectations();
+        IotHubSSLContext testContext = Deencapsulation.newInstance(IotHubSSLContext.class);
+
+        //act
+        TrustManager[] actualTrustManagers = Deencapsulation.invoke(testContext, "getTrustManagers");
+
+        //assert
+        assertEquals(mockedTrustManager, actualTrustManagers);
+        testCollection.remove(mockedX509Certificate);
+    }
+
+    //Tests_SRS_IOTHUBSSLCONTEXT_34_048: [This method shall return the trust managers the default SSL context was initialized with, or null if there are none.]
+    @Test
+    public void getTrustManagersReturnsNullForProvidedSSLContext()
+    {
+        //arrange
+        IotHubSSLContext iotHubSSLContext = new IotHubSSLContext(mockedSSLContext);
+
+        //act
+        TrustManager[] actualTrustManagers = Deencapsulation.invoke(iotHubSSLContext, "getTrustManagers");
+
+        //assert
+        assertNull(actualTrustManagers);
+    }
 }
@@ -0,0 +1,124 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See LICENSE file in the project root for full license information.
+
+package tests.unit.com.microsoft.azure.sdk.iot.deps.serializer;
+
+import com.microsoft.azure.sdk.iot.deps.serializer.TwinChangedCallback;
+import com.microsoft.azure.sdk.iot.deps.serializer.TwinParser;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Unit tests for the json patches of TwinParser, which are read as a stream
+ */
+@SuppressWarnings("deprecation")
+public class TwinParserTest
+{
+    private static class RecordingCallback implements TwinChangedCallback
+    {
+        private final List<Map<String, Object>> calls = new ArrayList<>();
+
+        @Override
+        public void execute(Map<String, Object> changes)
+        {
+            calls.add(changes);
+        }
+    }
+
+    /* Tests_SRS_TWINPARSER_21_029: [The updateDesiredProperty shall update the Desired property using the information provided in the json.] */
+    /* Tests_SRS_TWINPARSER_21_030: [The updateDesiredProperty shall generate a map with all pairs key value that had its content changed.] */
+    /* Tests_SRS_TWINPARSER_21_031: [The updateDesiredProperty shall send the map with all changed pairs to the upper layer calling onDesiredCallback (TwinChangedCallback).] */
+    @Test
+    public void updateDesiredPropertyReportsOnlyChangedProperties()
+    {
+        // arrange
+        RecordingCallback callback = new RecordingCallback();
+        TwinParser twinParser = new TwinParser(callback);
+        twinParser.updateDesiredProperty("{\"key1\":\"value1\",\"key2\":{\"inner\":[1,2]},\"$version\":3}");
+
+        // act
+        twinParser.updateDesiredProperty("{\"key1\":\"value1\",\"key2\":{\"inner\":[1,3]},\"key3\":true,\"$version\":4}");
+
+        // assert
+        assertEquals(2, callback.calls.size());
+        Map<String, Object> changes = callback.calls.get(1);
+        assertEquals(2, changes.size());
+        assertTrue(changes.containsKey("key2"));
+        assertEquals(true, changes.get("key3"));
+        assertEquals(4, (int) twinParser.getDesiredPropertyVersion());
+        assertEquals(3, twinParser.getDesiredPropertyMap().size());
+    }
+
+    /* Tests_SRS_TWINPARSER_21_042: [If a valid key has a null value, the updateTwin shall delete this property.] */
+    /* Tests_SRS_TWINPARSER_21_033: [If there is no change in the Desired property, the updateDesiredProperty shall not change the collection and not call the OnDesiredCallback.] */
+    @Test
+    public void updateDesiredPropertyDeletesNullPropertiesAndSkipsUnchangedPatches()
+    {
+        // arrange
+        RecordingCallback callback = new RecordingCallback();
+        TwinParser twinParser = new TwinParser(callback);
+        twinParser.updateDesiredProperty("{\"key1\":\"value1\",\"key2\":\"value2\"}");
+
+        // act
+        twinParser.updateDesiredProperty("{\"key1\":null,\"unknown\":null}");
+        twinParser.updateDesiredProperty("{\"key2\":\"value2\",\"$foo\":1}");
+
+        // assert
+        assertEquals(2, callback.calls.size());
+        Map<String, Object> changes = callback.calls.get(1);
+        assertEquals(1, changes.size());
+        assertNull(changes.get("key1"));
+        assertFalse(twinParser.getDesiredPropertyMap().containsKey("key1"));
+    }
+
+    /* Tests_SRS_TWINPARSER_21_096: [If the provided json have any duplicated `key`, the updateDesiredProperty shall throws IllegalArgumentException.] */
+    @Test
+    public void updateDesiredPropertyThrowsOnDuplicatedKeyWithoutChangingCollection()
+    {
+        // arrange
+        RecordingCallback callback = new RecordingCallback();
+        TwinParser twinParser = new TwinParser(callback);
+        twinParser.updateDesiredProperty("{\"key1\":\"value1\"}");
+
+        // act
+        try
+        {
+            twinParser.updateDesiredProperty("{\"key1\":\"value2\",\"key2\":1,\"key2\":2}");
+            fail("Expected an IllegalArgumentException");
+        }
+        catch (IllegalArgumentException expected)
+        {
+            // expected
+        }
+
+        // assert
+        assertEquals(1, callback.calls.size());
+        assertEquals("value1", twinParser.getDesiredPropertyMap().get("key1"));
+        assertFalse(twinParser.getDesiredPropertyMap().containsKey("key2"));
+    }
+
+    /* Tests_SRS_TWINPARSER_21_092: [If the provided json is not valid, the updateDesiredProperty shall throws IllegalArgumentException.] */
+    @Test (expected = IllegalArgumentException.class)
+    public void updateDesiredPropertyThrowsOnContentAfterRootObject()
+    {
+        // act
+        new TwinParser().updateDesiredProperty("{\"key1\":\"value1\"} {\"key2\":1}");
+    }
+
+    /* Tests_SRS_TWINPARSER_21_092: [If the provided json is not valid, the updateDesiredProperty shall throws IllegalArgumentException.] */
+    @Test (expected = IllegalArgumentException.class)
+    public void updateDesiredPropertyThrowsOnNonObjectJson()
+    {
+        // act
+        new TwinParser().updateDesiredProperty("[1,2]");
+    }
+}
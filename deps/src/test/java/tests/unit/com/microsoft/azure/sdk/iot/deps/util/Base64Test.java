@@ -204,6 +204,61 @@ public class Base64Test
     }
 
 
+    /* Tests_SRS_BASE64_34_011: [The encodedLength shall return the number of Base64 values, including padding, needed to encode `dataLength` bytes.] */
+    @Test
+    public void encodedLengthIncludesPadding() throws IllegalArgumentException
+    {
+        // act - assert
+        assertEquals(0, Base64.encodedLength(0));
+        assertEquals(4, Base64.encodedLength(1));
+        assertEquals(4, Base64.encodedLength(2));
+        assertEquals(4, Base64.encodedLength(3));
+        assertEquals(8, Base64.encodedLength(4));
+    }
+
+    /* Tests_SRS_BASE64_34_012: [If the `dataLength` is negative, the encodedLength shall throw IllegalArgumentException.] */
+    @Test (expected = IllegalArgumentException.class)
+    public void encodedLengthThrowsOnNegativeLength() throws IllegalArgumentException
+    {
+        // act
+        Base64.encodedLength(-1);
+    }
+
+    /* Tests_SRS_BASE64_34_013: [The encodeBase64Local shall write the provided `dataValues` encoded using the Base64 format define in the RFC2045 in the `destination`, starting at `destinationOffset`, and return the number of values written.] */
+    @Test
+    public void encodeBase64IntoDestinationSuccess() throws UnsupportedEncodingException, IllegalArgumentException
+    {
+        // arrange
+        String textToEncode = "This is a valid test (aBcDeFgHiJKLmnoPqRstuVWXyz)-01234567";
+        String expectedBase64Result = "VGhpcyBpcyBhIHZhbGlkIHRlc3QgKGFCY0RlRmdIaUpLTG1ub1BxUnN0dVZXWHl6KS0wMTIzNDU2Nw==";
+        byte[] destination = new byte[expectedBase64Result.length() + 4];
+        destination[0] = '[';
+        destination[1] = '"';
+
+        // act
+        int written = Base64.encodeBase64Local(textToEncode.getBytes(), destination, 2);
+
+        // assert
+        assertEquals(expectedBase64Result.length(), written);
+        assertEquals("[\"" + expectedBase64Result, new String(destination, 0, 2 + written));
+    }
+
+    /* Tests_SRS_BASE64_34_014: [If the `dataValues` or the `destination` is null, the encodeBase64Local shall throw IllegalArgumentException.] */
+    @Test (expected = IllegalArgumentException.class)
+    public void encodeBase64IntoDestinationThrowsOnNullDestination() throws IllegalArgumentException
+    {
+        // act
+        Base64.encodeBase64Local("test".getBytes(), null, 0);
+    }
+
+    /* Tests_SRS_BASE64_34_015: [If the encoded values do not fit in the `destination` from the `destinationOffset`, the encodeBase64Local shall throw IllegalArgumentException.] */
+    @Test (expected = IllegalArgumentException.class)
+    public void encodeBase64IntoDestinationThrowsIfDestinationTooSmall() throws IllegalArgumentException
+    {
+        // act
+        Base64.encodeBase64Local("test".getBytes(), new byte[8], 1);
+    }
+
     /* Tests_SRS_BASE64_21_008: [The encodeBase64StringLocal shall encoded the provided `dataValues` in a string using the Base64 format define in the RFC2045.] */
     @Test
     public void encodeBase64StringMultipleOf4CharactersSuccess() throws UnsupportedEncodingException, IllegalArgumentException
@@ -0,0 +1,296 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See LICENSE file in the project root for full license information.
+
+package com.microsoft.azure.sdk.iot.device.benchmarks;
+
+import com.microsoft.azure.sdk.iot.device.hsm.HttpsHsmClient;
+import com.microsoft.azure.sdk.iot.device.hsm.HttpsRequestResponseSerializer;
+import com.microsoft.azure.sdk.iot.device.hsm.parser.SignRequest;
+import com.microsoft.azure.sdk.iot.device.hsm.parser.SignResponse;
+import com.microsoft.azure.sdk.iot.device.hsm.parser.TrustBundleResponse;
+import com.microsoft.azure.sdk.iot.device.transport.https.HttpsMethod;
+import com.microsoft.azure.sdk.iot.device.transport.https.HttpsRequest;
+import com.microsoft.azure.sdk.iot.device.transport.https.HttpsResponse;
+import jnr.unixsocket.UnixServerSocketChannel;
+import jnr.unixsocket.UnixSocketAddress;
+import jnr.unixsocket.UnixSocketChannel;
+import org.openjdk.jmh.annotations.*;
+
+import javax.crypto.Mac;
+import java.io.BufferedInputStream;
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.StringReader;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures how long {@link HttpsHsmClient} takes to get a signature or the trust bundle from an Edge HSM listening on
+ * a unix domain socket.
+ * <p>
+ * {@code sign} and {@code getTrustBundle} call the client, which keeps its connection to the socket open between
+ * requests and reads each response through a buffer. {@code legacy...} benchmarks send the same requests the way the
+ * client used to, opening a connection per request and reading the response ten bytes at a time into a growing
+ * string. The HSM is an in-process stub on a temporary socket that answers every request with a canned response, so
+ * the results only contain the cost of the connection and of the HTTP exchange.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HsmSigningBenchmark
+{
+    private static final String API_VERSION = "2018-06-28";
+    private static final String MODULE_ID = "module";
+    private static final String GENERATION_ID = "generation";
+    private static final String SIGN_RESPONSE_BODY = "{\"digest\":\"c2lnbmF0dXJlLW9mLXRoZS1zYXMtdG9rZW4=\"}";
+
+    /** A trust bundle of three certificates, about the size the Edge HSM returns. */
+    private static final int TRUST_BUNDLE_CERTIFICATE_LENGTH = 3 * 1400;
+
+    private File socketFile;
+    private UnixServerSocketChannel serverChannel;
+    private HttpsHsmClient client;
+    private SignRequest signRequest;
+    private String trustBundleResponseBody;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception
+    {
+        char[] certificate = new char[TRUST_BUNDLE_CERTIFICATE_LENGTH];
+        Arrays.fill(certificate, 'A');
+        this.trustBundleResponseBody = "{\"certificate\":\"" + new String(certificate) + "\"}";
+
+        this.socketFile = File.createTempFile("hsm-benchmark", ".sock");
+        this.socketFile.delete();
+        this.serverChannel = UnixServerSocketChannel.open();
+        this.serverChannel.socket().bind(new UnixSocketAddress(this.socketFile));
+
+        Thread acceptThread = new Thread(new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                acceptConnections();
+            }
+        }, "hsm-stub-accept");
+        acceptThread.setDaemon(true);
+        acceptThread.start();
+
+        this.client = new HttpsHsmClient("unix://" + this.socketFile.getAbsolutePath());
+        this.signRequest = new SignRequest();
+        this.signRequest.setAlgo(Mac.getInstance("HmacSHA256"));
+        this.signRequest.setData("benchmark.azure-devices.net/devices/benchmark/modules/module\n1543287362".getBytes(StandardCharsets.UTF_8));
+        this.signRequest.setKeyId("primary");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException
+    {
+        this.serverChannel.close();
+        this.socketFile.delete();
+    }
+
+    @Benchmark
+    public SignResponse sign() throws Exception
+    {
+        return this.client.sign(API_VERSION, MODULE_ID, this.signRequest, GENERATION_ID);
+    }
+
+    @Benchmark
+    public SignResponse legacySign() throws Exception
+    {
+        String path = "/modules/" + MODULE_ID + "/genid/" + GENERATION_ID + "/sign";
+        HttpsResponse response = legacySend(HttpsMethod.POST, this.signRequest.toJson().getBytes(), path);
+        return SignResponse.fromJson(new String(response.getBody()));
+    }
+
+    @Benchmark
+    public TrustBundleResponse getTrustBundle() throws Exception
+    {
+        return this.client.getTrustBundle(API_VERSION);
+    }
+
+    @Benchmark
+    public TrustBundleResponse legacyGetTrustBundle() throws Exception
+    {
+        HttpsResponse response = legacySend(HttpsMethod.GET, new byte[0], "/trust-bundle");
+        return TrustBundleResponse.fromJson(new String(response.getBody()));
+    }
+
+    /**
+     * The unix socket exchange {@code HttpsHsmClient} used before it pooled its connections.
+     */
+    private HttpsResponse legacySend(HttpsMethod method, byte[] body, String path) throws Exception
+    {
+        String socketPath = this.socketFile.getAbsolutePath();
+        String queryString = "api-version=" + API_VERSION;
+        HttpsRequest httpsRequest = new HttpsRequest(new URL("unix://" + socketPath + path + "?" + queryString), method, body, "");
+        httpsRequest.setHeaderField("Accept", "application/json");
+        if (body.length > 0)
+        {
+            httpsRequest.setHeaderField("Content-Type", "application/json");
+        }
+
+        byte[] requestBytes = HttpsRequestResponseSerializer.serializeRequest(httpsRequest, path, queryString, socketPath);
+        UnixSocketChannel channel = UnixSocketChannel.open(new UnixSocketAddress(socketPath));
+        try
+        {
+            channel.write(ByteBuffer.wrap(requestBytes));
+            if (httpsRequest.getBody() != null)
+            {
+                channel.write(ByteBuffer.wrap(httpsRequest.getBody()));
+            }
+
+            ByteBuffer buf = ByteBuffer.allocateDirect(10);
+            String response = "";
+            int numRead = 0;
+            while (numRead >= 0)
+            {
+                buf.rewind();
+                numRead = channel.read(buf);
+                buf.rewind();
+                for (int i = 0; i < numRead; i++)
+                {
+                    response = response + new String(new byte[] {buf.get()}, StandardCharsets.US_ASCII);
+                }
+            }
+
+            return HttpsRequestResponseSerializer.deserializeResponse(new BufferedReader(new StringReader(response)));
+        }
+        finally
+        {
+            channel.close();
+        }
+    }
+
+    private void acceptConnections()
+    {
+        while (this.serverChannel.isOpen())
+        {
+            try
+            {
+                final UnixSocketChannel channel = this.serverChannel.accept();
+                Thread connectionThread = new Thread(new Runnable()
+                {
+                    @Override
+                    public void run()
+                    {
+                        serveConnection(channel);
+                    }
+                }, "hsm-stub-connection");
+                connectionThread.setDaemon(true);
+                connectionThread.start();
+            }
+            catch (IOException e)
+            {
+                // the server socket was closed by tearDown
+                return;
+            }
+        }
+    }
+
+    /**
+     * Answers the requests of one connection, until the client closes it or asks the stub to close it.
+     */
+    private void serveConnection(UnixSocketChannel channel)
+    {
+        try
+        {
+            InputStream inputStream = new BufferedInputStream(Channels.newInputStream(channel));
+            OutputStream outputStream = Channels.newOutputStream(channel);
+            while (true)
+            {
+                String requestLine = readLine(inputStream);
+                if (requestLine == null)
+                {
+                    return;
+                }
+
+                int contentLength = 0;
+                boolean close = false;
+                String header = readLine(inputStream);
+                while (header != null && !header.isEmpty())
+                {
+                    String lowerCaseHeader = header.toLowerCase();
+                    if (lowerCaseHeader.startsWith("content-length:"))
+                    {
+                        contentLength = Integer.parseInt(header.substring("content-length:".length()).trim());
+                    }
+                    else if (lowerCaseHeader.startsWith("connection:") && lowerCaseHeader.contains("close"))
+                    {
+                        close = true;
+                    }
+
+                    header = readLine(inputStream);
+                }
+
+                for (int i = 0; i < contentLength; i++)
+                {
+                    inputStream.read();
+                }
+
+                String responseBody = requestLine.contains("/trust-bundle") ? this.trustBundleResponseBody : SIGN_RESPONSE_BODY;
+                String response = "HTTP/1.1 200 OK\r\n"
+                        + "Content-Type: application/json\r\n"
+                        + "Content-Length: " + responseBody.length() + "\r\n"
+                        + (close ? "Connection: close\r\n" : "")
+                        + "\r\n"
+                        + responseBody;
+                outputStream.write(response.getBytes(StandardCharsets.US_ASCII));
+                outputStream.flush();
+
+                if (close)
+                {
+                    return;
+                }
+            }
+        }
+        catch (IOException e)
+        {
+            // the client went away
+        }
+        finally
+        {
+            try
+            {
+                channel.close();
+            }
+            catch (IOException e)
+            {
+                // already closed
+            }
+        }
+    }
+
+    private static String readLine(InputStream inputStream) throws IOException
+    {
+        StringBuilder line = new StringBuilder();
+        int next = inputStream.read();
+        if (next < 0)
+        {
+            return null;
+        }
+
+        while (next >= 0 && next != '\n')
+        {
+            if (next != '\r')
+            {
+                line.append((char) next);
+            }
+
+            next = inputStream.read();
+        }
+
+        return line.toString();
+    }
+}
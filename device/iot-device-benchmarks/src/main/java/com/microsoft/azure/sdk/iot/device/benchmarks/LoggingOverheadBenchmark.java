@@ -0,0 +1,85 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See LICENSE file in the project root for full license information.
+
+package com.microsoft.azure.sdk.iot.device.benchmarks;
+
+import com.microsoft.azure.sdk.iot.device.CustomLogger;
+import com.microsoft.azure.sdk.iot.device.Message;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures what a {@link CustomLogger} call costs on the per-message path when logging is off.
+ * <p>
+ * The benchmarks jar ships without an slf4j binding, so every level is disabled. {@code noLogging} is the floor: it
+ * only touches the message. The other benchmarks add one log statement written the way the transport used to write
+ * it ({@code stackWalking...}, {@code eager...}) or the way it writes it now ({@code literal...}, {@code guarded...}).
+ * The new forms should be within a few nanoseconds of {@code noLogging}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LoggingOverheadBenchmark
+{
+    private static final CustomLogger logger = new CustomLogger(LoggingOverheadBenchmark.class);
+
+    private Message message;
+
+    @Setup(Level.Trial)
+    public void setUp()
+    {
+        this.message = new Message(new byte[256]);
+    }
+
+    @Benchmark
+    public void noLogging(Blackhole blackhole)
+    {
+        blackhole.consume(this.message.getMessageId());
+    }
+
+    /**
+     * The method name is looked up from the stack even though the message is dropped.
+     */
+    @Benchmark
+    public void stackWalkingMethodName(Blackhole blackhole)
+    {
+        blackhole.consume(this.message.getMessageId());
+        logger.LogInfo("Get the message from waiting message queue to be sent to IoT Hub, method name is %s ",
+                logger.getMethodName());
+    }
+
+    @Benchmark
+    public void literalMethodName(Blackhole blackhole)
+    {
+        blackhole.consume(this.message.getMessageId());
+        logger.LogInfo("Get the message from waiting message queue to be sent to IoT Hub, method name is sendMessages ");
+    }
+
+    /**
+     * The arguments are built and boxed before the level is checked.
+     */
+    @Benchmark
+    public void eagerArguments(Blackhole blackhole)
+    {
+        blackhole.consume(this.message.getMessageId());
+        logger.LogInfo("Message with hashcode %s is received from IotHub on %s, method name is onMessageReceived",
+                this.message.hashCode(), new Date());
+    }
+
+    @Benchmark
+    public void guardedArguments(Blackhole blackhole)
+    {
+        blackhole.consume(this.message.getMessageId());
+        if (logger.isInfoEnabled())
+        {
+            logger.LogInfo("Message with hashcode %s is received from IotHub on %s, method name is onMessageReceived",
+                    this.message.hashCode(), new Date());
+        }
+    }
+}
@@ -0,0 +1,164 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See LICENSE file in the project root for full license information.
+
+package com.microsoft.azure.sdk.iot.device.benchmarks;
+
+import com.microsoft.azure.sdk.iot.device.MessageType;
+import com.microsoft.azure.sdk.iot.device.transport.IotHubTransportMessage;
+import com.microsoft.azure.sdk.iot.device.transport.mqtt.MqttConnection;
+import com.microsoft.azure.sdk.iot.device.transport.mqtt.MqttDeviceMethod;
+import com.microsoft.azure.sdk.iot.device.transport.mqtt.MqttMessaging;
+import org.apache.commons.lang3.tuple.MutablePair;
+import org.apache.commons.lang3.tuple.Pair;
+import org.eclipse.paho.client.mqttv3.MqttMessage;
+import org.openjdk.jmh.annotations.*;
+
+import javax.net.ssl.SSLContext;
+import java.io.UnsupportedEncodingException;
+import java.lang.reflect.Constructor;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures how long the MQTT transport takes to turn a received topic and payload into a message.
+ * <p>
+ * {@code receive...} benchmarks hand the topic to {@link MqttMessaging} and {@link MqttDeviceMethod} the way paho does
+ * and then receive the parsed message, which is the path the transport takes. {@code legacy...} benchmarks queue the
+ * same topic in the same way and then parse it with the {@code String.split} and {@code URLDecoder} code the
+ * transport used before. Nothing is sent over the network.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MqttTopicParsingBenchmark
+{
+    private static final String TELEMETRY_TOPIC = "devices/benchmark/modules/module/inputs/input/"
+            + "%24.mid=6a4c7a44-9a3e-4a7a-8d8c-7b0bd0f0c1a2&%24.cid=correlation&%24.ct=application%2Fjson"
+            + "&%24.ce=utf-8&iothub-ack=full&temperature=21.5&humidity=40&site=building-7";
+    private static final String METHOD_TOPIC = "$iothub/methods/POST/reboot/?$rid=17";
+    private static final byte[] PAYLOAD = new byte[256];
+
+    private MqttMessaging messaging;
+    private MqttDeviceMethod deviceMethod;
+    private MqttMessage mqttMessage;
+    private ConcurrentLinkedQueue<Pair<String, byte[]>> legacyReceivedMessages;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception
+    {
+        Constructor<MqttConnection> connectionConstructor = MqttConnection.class.getDeclaredConstructor(
+                String.class, String.class, String.class, String.class, SSLContext.class);
+        connectionConstructor.setAccessible(true);
+        MqttConnection connection = connectionConstructor.newInstance(
+                "ssl://benchmark.azure-devices.net:8883", "benchmark", "benchmark", "password", SSLContext.getDefault());
+
+        this.messaging = new MqttMessaging(connection, "benchmark", null, null, "connectionId", "module", false);
+        this.deviceMethod = new MqttDeviceMethod(connection, "connectionId");
+        this.mqttMessage = new MqttMessage(PAYLOAD);
+        this.legacyReceivedMessages = new ConcurrentLinkedQueue<>();
+    }
+
+    @Benchmark
+    public IotHubTransportMessage receiveTelemetry() throws Exception
+    {
+        this.messaging.messageArrived(TELEMETRY_TOPIC, this.mqttMessage);
+        return this.messaging.receive();
+    }
+
+    @Benchmark
+    public IotHubTransportMessage legacyReceiveTelemetry() throws Exception
+    {
+        this.legacyReceivedMessages.add(new MutablePair<>(TELEMETRY_TOPIC, this.mqttMessage.getPayload()));
+        Pair<String, byte[]> received = this.legacyReceivedMessages.poll();
+        return legacyConstructMessage(received.getValue(), received.getKey());
+    }
+
+    @Benchmark
+    public IotHubTransportMessage receiveMethodRequest() throws Exception
+    {
+        this.deviceMethod.messageArrived(METHOD_TOPIC, this.mqttMessage);
+        return this.deviceMethod.receive();
+    }
+
+    @Benchmark
+    public IotHubTransportMessage legacyReceiveMethodRequest()
+    {
+        this.legacyReceivedMessages.add(new MutablePair<>(METHOD_TOPIC, this.mqttMessage.getPayload()));
+        Pair<String, byte[]> received = this.legacyReceivedMessages.poll();
+        return legacyConstructMethodRequest(received.getValue(), received.getKey());
+    }
+
+    /**
+     * The telemetry parsing {@code Mqtt} used before it read topics by index.
+     */
+    private static IotHubTransportMessage legacyConstructMessage(byte[] data, String topic) throws UnsupportedEncodingException
+    {
+        IotHubTransportMessage message = new IotHubTransportMessage(data, MessageType.DEVICE_TELEMETRY);
+
+        int propertiesStringStartingIndex = topic.indexOf("%24");
+        if (propertiesStringStartingIndex != -1)
+        {
+            String propertiesString = topic.substring(propertiesStringStartingIndex);
+            for (String propertyString : propertiesString.split(String.valueOf('&')))
+            {
+                String key = URLDecoder.decode(propertyString.split("=")[0], StandardCharsets.UTF_8.name());
+                String value = URLDecoder.decode(propertyString.split("=")[1], StandardCharsets.UTF_8.name());
+                switch (key)
+                {
+                    case "$.mid":
+                        message.setMessageId(value);
+                        break;
+                    case "$.cid":
+                        message.setCorrelationId(value);
+                        break;
+                    case "$.ce":
+                        message.setContentEncoding(value);
+                        break;
+                    case "$.ct":
+                        message.setContentType(value);
+                        break;
+                    case "iothub-ack":
+                        break;
+                    default:
+                        message.setProperty(key, value);
+                }
+            }
+
+            String[] routeComponents = topic.substring(0, propertiesStringStartingIndex).split("/");
+            if (routeComponents.length > 2 && routeComponents[2].equals("modules"))
+            {
+                message.setConnectionModuleId(routeComponents[3]);
+            }
+
+            if (routeComponents.length > 4 && routeComponents[4].equals("inputs"))
+            {
+                message.setInputName(routeComponents[5]);
+            }
+        }
+
+        return message;
+    }
+
+    /**
+     * The method request parsing {@code TopicParser} used before it read topics by index.
+     */
+    private static IotHubTransportMessage legacyConstructMethodRequest(byte[] data, String topic)
+    {
+        String[] topicTokens = topic.split("/");
+        IotHubTransportMessage message = new IotHubTransportMessage(data, MessageType.DEVICE_METHODS);
+        message.setMethodName(topicTokens[3]);
+
+        String token = topicTokens[4];
+        if (token.contains("$rid=") && token.contains("?"))
+        {
+            message.setRequestId(token.substring(token.indexOf("$rid=") + "$rid=".length()));
+        }
+
+        return message;
+    }
+}
@@ -0,0 +1,497 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See LICENSE file in the project root for full license information.
+
+package com.microsoft.azure.sdk.iot.device.benchmarks;
+
+import com.microsoft.azure.sdk.iot.device.DeviceClientConfig;
+import com.microsoft.azure.sdk.iot.device.IotHubConnectionString;
+import com.microsoft.azure.sdk.iot.device.MessageType;
+import com.microsoft.azure.sdk.iot.device.transport.amqps.AmqpsSessionManager;
+import org.apache.qpid.proton.Proton;
+import org.apache.qpid.proton.amqp.Binary;
+import org.apache.qpid.proton.amqp.messaging.Accepted;
+import org.apache.qpid.proton.amqp.messaging.ApplicationProperties;
+import org.apache.qpid.proton.amqp.messaging.Data;
+import org.apache.qpid.proton.amqp.messaging.Properties;
+import org.apache.qpid.proton.amqp.transport.Source;
+import org.apache.qpid.proton.amqp.transport.Target;
+import org.apache.qpid.proton.engine.Collector;
+import org.apache.qpid.proton.engine.Connection;
+import org.apache.qpid.proton.engine.Delivery;
+import org.apache.qpid.proton.engine.Event;
+import org.apache.qpid.proton.engine.Link;
+import org.apache.qpid.proton.engine.Receiver;
+import org.apache.qpid.proton.engine.Sender;
+import org.apache.qpid.proton.engine.Transport;
+import org.apache.qpid.proton.message.Message;
+import org.openjdk.jmh.annotations.*;
+
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures an {@link AmqpsSessionManager} that multiplexes thousands of devices as sessions on one AMQP connection.
+ * <p>
+ * {@code open} times how long the manager takes to authenticate every device over CBS and open all of their links.
+ * {@code send} measures steady-state telemetry throughput once the devices are open, sending round robin across the
+ * devices and waiting until the service has accepted every message. The service is a second Proton engine in the same
+ * process that accepts every link, answers every CBS put-token with status 200 and accepts every message; the bytes
+ * of the two engines are copied between them in memory, without SASL, TLS or sockets.
+ */
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MultiplexedSessionBenchmark
+{
+    private static final int MESSAGES_PER_INVOCATION = 1000;
+
+    @State(Scope.Benchmark)
+    public static class ClosedHub
+    {
+        @Param({"1000", "5000"})
+        public int devices;
+
+        private LocalAmqpHub hub;
+
+        @Setup(Level.Invocation)
+        public void setUp() throws Exception
+        {
+            this.hub = new LocalAmqpHub(this.devices);
+        }
+
+        @TearDown(Level.Invocation)
+        public void tearDown() throws Exception
+        {
+            this.hub.close();
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class OpenedHub
+    {
+        @Param({"1000", "5000"})
+        public int devices;
+
+        private LocalAmqpHub hub;
+
+        @Setup(Level.Trial)
+        public void setUp() throws Exception
+        {
+            this.hub = new LocalAmqpHub(this.devices);
+            this.hub.open();
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() throws Exception
+        {
+            this.hub.close();
+        }
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Warmup(iterations = 3)
+    @Measurement(iterations = 10)
+    public void open(ClosedHub state) throws Exception
+    {
+        state.hub.open();
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    @OperationsPerInvocation(MESSAGES_PER_INVOCATION)
+    public int send(OpenedHub state) throws Exception
+    {
+        return state.hub.send(MESSAGES_PER_INVOCATION);
+    }
+
+    /**
+     * A session manager connected to an in-process AMQP service. All Proton objects are only touched from the single
+     * scheduler thread of the manager, which also runs its CBS send task, the same way a reactor thread owns them in
+     * the transport.
+     */
+    private static final class LocalAmqpHub
+    {
+        private static final String CONNECTION_STRING_FORMAT = "HostName=benchmark.azure-devices.net;DeviceId=device%d;SharedAccessKey=YmVuY2htYXJrLWtleQ==";
+        private static final String CBS_ADDRESS = "$cbs";
+        private static final int LINK_CREDIT = 1000;
+        private static final long PUMP_PERIOD_MICROSECONDS = 500;
+
+        private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+        private final AmqpsSessionManager sessionManager;
+        private final String[] deviceIds;
+        private final Message telemetry;
+
+        private final Connection clientConnection = Proton.connection();
+        private final Transport clientTransport = Proton.transport();
+        private final Collector clientCollector = Proton.collector();
+        private final Connection serviceConnection = Proton.connection();
+        private final Transport serviceTransport = Proton.transport();
+        private final Collector serviceCollector = Proton.collector();
+        private final Map<String, Sender> serviceSendersBySource = new HashMap<>();
+        private final ScheduledFuture<?> pumpFuture;
+
+        private final Method addDeviceOperationSession;
+        private final Method onConnectionInit;
+        private final Method onLinkInit;
+        private final Method onLinkRemoteOpen;
+        private final Method getMessageFromReceiverLink;
+        private final Method onLinkFlow;
+        private final Method sendMessage;
+        private final Method closeNow;
+        private final Method isAuthenticationOpened;
+        private final Method areAllLinksOpen;
+
+        private long acceptedMessages;
+        private long replyTag;
+
+        LocalAmqpHub(int devices) throws Exception
+        {
+            this.addDeviceOperationSession = method("addDeviceOperationSession", DeviceClientConfig.class);
+            this.onConnectionInit = method("onConnectionInit", Connection.class);
+            this.onLinkInit = method("onLinkInit", Link.class);
+            this.onLinkRemoteOpen = method("onLinkRemoteOpen", Event.class);
+            this.getMessageFromReceiverLink = method("getMessageFromReceiverLink", String.class);
+            this.onLinkFlow = method("onLinkFlow", String.class);
+            this.sendMessage = method("sendMessage", Message.class, MessageType.class, String.class);
+            this.closeNow = method("closeNow");
+            this.isAuthenticationOpened = method("isAuthenticationOpened");
+            this.areAllLinksOpen = method("areAllLinksOpen");
+
+            this.deviceIds = new String[devices];
+            DeviceClientConfig config = newConfig(0);
+            this.deviceIds[0] = config.getDeviceId();
+            this.sessionManager = new AmqpsSessionManager(config, this.scheduler);
+            for (int i = 1; i < devices; i++)
+            {
+                config = newConfig(i);
+                this.deviceIds[i] = config.getDeviceId();
+                this.addDeviceOperationSession.invoke(this.sessionManager, config);
+            }
+
+            this.telemetry = Proton.message();
+            this.telemetry.setBody(new Data(new Binary(new byte[256])));
+
+            this.clientConnection.collect(this.clientCollector);
+            this.clientConnection.setContainer("client");
+            this.clientTransport.bind(this.clientConnection);
+            this.serviceConnection.collect(this.serviceCollector);
+            this.serviceConnection.setContainer("service");
+            this.serviceTransport.bind(this.serviceConnection);
+
+            this.pumpFuture = this.scheduler.scheduleAtFixedRate(new Runnable()
+            {
+                @Override
+                public void run()
+                {
+                    try
+                    {
+                        pump();
+                    }
+                    catch (Exception e)
+                    {
+                        throw new IllegalStateException(e);
+                    }
+                }
+            }, 0, PUMP_PERIOD_MICROSECONDS, TimeUnit.MICROSECONDS);
+        }
+
+        /**
+         * Opens the connection and the authentication links, authenticates every device and opens their links,
+         * the same sequence {@code AmqpsIotHubConnection} drives.
+         */
+        void open() throws Exception
+        {
+            this.onPumpThread(new Callable<Void>()
+            {
+                @Override
+                public Void call() throws Exception
+                {
+                    clientConnection.open();
+                    onConnectionInit.invoke(sessionManager, clientConnection);
+                    return null;
+                }
+            });
+
+            while (!this.isOpen(this.isAuthenticationOpened))
+            {
+                Thread.sleep(1);
+            }
+
+            this.sessionManager.authenticate();
+
+            this.onPumpThread(new Callable<Void>()
+            {
+                @Override
+                public Void call() throws Exception
+                {
+                    onConnectionInit.invoke(sessionManager, clientConnection);
+                    return null;
+                }
+            });
+
+            this.sessionManager.openDeviceOperationLinks();
+            if (!this.isOpen(this.areAllLinksOpen))
+            {
+                throw new IllegalStateException("The links of the devices did not open");
+            }
+        }
+
+        /**
+         * Sends telemetry round robin across the devices and waits until the service accepted all of it.
+         */
+        int send(final int count) throws Exception
+        {
+            final long target = this.onPumpThread(new Callable<Long>()
+            {
+                @Override
+                public Long call() throws Exception
+                {
+                    for (int i = 0; i < count; i++)
+                    {
+                        String deviceId = deviceIds[(int) ((acceptedMessages + i) % deviceIds.length)];
+                        if ((Long) sendMessage.invoke(sessionManager, telemetry, MessageType.DEVICE_TELEMETRY, deviceId) < 0)
+                        {
+                            throw new IllegalStateException("The message was not sent");
+                        }
+                    }
+
+                    return acceptedMessages + count;
+                }
+            });
+
+            while (this.onPumpThread(new Callable<Long>()
+            {
+                @Override
+                public Long call()
+                {
+                    return acceptedMessages;
+                }
+            }) < target)
+            {
+                Thread.sleep(0, 100000);
+            }
+
+            return count;
+        }
+
+        void close() throws Exception
+        {
+            this.pumpFuture.cancel(false);
+            this.onPumpThread(new Callable<Void>()
+            {
+                @Override
+                public Void call()
+                {
+                    return null;
+                }
+            });
+
+            // Shuts the scheduler down, since the manager owns it.
+            this.closeNow.invoke(this.sessionManager);
+        }
+
+        private boolean isOpen(final Method linkStateGetter) throws Exception
+        {
+            return this.onPumpThread(new Callable<Boolean>()
+            {
+                @Override
+                public Boolean call() throws Exception
+                {
+                    return (Boolean) linkStateGetter.invoke(sessionManager);
+                }
+            });
+        }
+
+        private <T> T onPumpThread(Callable<T> task) throws Exception
+        {
+            return this.scheduler.submit(task).get();
+        }
+
+        /**
+         * Moves bytes between the two engines and handles the events they raise until neither has anything to send.
+         */
+        private void pump() throws Exception
+        {
+            boolean moved = true;
+            while (moved)
+            {
+                this.handleClientEvents();
+                this.handleServiceEvents();
+                moved = transfer(this.clientTransport, this.serviceTransport);
+                moved |= transfer(this.serviceTransport, this.clientTransport);
+            }
+        }
+
+        private void handleClientEvents() throws Exception
+        {
+            Event event;
+            while ((event = this.clientCollector.peek()) != null)
+            {
+                Link link = event.getLink();
+                switch (event.getType())
+                {
+                    case LINK_INIT:
+                        this.onLinkInit.invoke(this.sessionManager, link);
+                        break;
+                    case LINK_LOCAL_OPEN:
+                        topUpCredit(link);
+                        break;
+                    case LINK_REMOTE_OPEN:
+                        this.onLinkRemoteOpen.invoke(this.sessionManager, event);
+                        break;
+                    case LINK_FLOW:
+                        this.onLinkFlow.invoke(this.sessionManager, link.getName());
+                        break;
+                    case DELIVERY:
+                        Delivery delivery = event.getDelivery();
+                        if (link instanceof Receiver && delivery.isReadable() && !delivery.isPartial())
+                        {
+                            this.getMessageFromReceiverLink.invoke(this.sessionManager, link.getName());
+                            delivery.settle();
+                            topUpCredit(link);
+                        }
+                        else if (delivery.remotelySettled())
+                        {
+                            delivery.settle();
+                        }
+                        break;
+                    default:
+                        break;
+                }
+
+                this.clientCollector.pop();
+            }
+        }
+
+        private void handleServiceEvents()
+        {
+            Event event;
+            while ((event = this.serviceCollector.peek()) != null)
+            {
+                switch (event.getType())
+                {
+                    case CONNECTION_REMOTE_OPEN:
+                        event.getConnection().open();
+                        break;
+                    case SESSION_REMOTE_OPEN:
+                        event.getSession().open();
+                        break;
+                    case LINK_REMOTE_OPEN:
+                        Link link = event.getLink();
+                        link.setSource(link.getRemoteSource());
+                        link.setTarget(link.getRemoteTarget());
+                        link.open();
+                        if (link instanceof Sender)
+                        {
+                            this.serviceSendersBySource.put(((Source) link.getRemoteSource()).getAddress(), (Sender) link);
+                        }
+                        topUpCredit(link);
+                        break;
+                    case DELIVERY:
+                        this.onServiceDelivery(event.getDelivery());
+                        break;
+                    default:
+                        break;
+                }
+
+                this.serviceCollector.pop();
+            }
+        }
+
+        private void onServiceDelivery(Delivery delivery)
+        {
+            Link link = delivery.getLink();
+            if (!(link instanceof Receiver) || !delivery.isReadable() || delivery.isPartial())
+            {
+                return;
+            }
+
+            Receiver receiver = (Receiver) link;
+            byte[] buffer = new byte[delivery.pending()];
+            int read = receiver.recv(buffer, 0, buffer.length);
+            receiver.advance();
+
+            if (CBS_ADDRESS.equals(((Target) link.getRemoteTarget()).getAddress()))
+            {
+                Message request = Proton.message();
+                request.decode(buffer, 0, read);
+                this.replyToPutToken(request);
+            }
+            else
+            {
+                this.acceptedMessages++;
+            }
+
+            delivery.disposition(Accepted.getInstance());
+            delivery.settle();
+            topUpCredit(receiver);
+        }
+
+        private void replyToPutToken(Message request)
+        {
+            Properties properties = new Properties();
+            properties.setCorrelationId(request.getMessageId());
+            Map<String, Object> applicationProperties = new HashMap<>();
+            applicationProperties.put("status-code", 200);
+
+            Message reply = Proton.message();
+            reply.setProperties(properties);
+            reply.setApplicationProperties(new ApplicationProperties(applicationProperties));
+
+            byte[] buffer = new byte[256];
+            int length = reply.encode(buffer, 0, buffer.length);
+            Sender sender = this.serviceSendersBySource.get(CBS_ADDRESS);
+            sender.delivery(String.valueOf(this.replyTag++).getBytes());
+            sender.send(buffer, 0, length);
+            sender.advance();
+        }
+
+        private static void topUpCredit(Link link)
+        {
+            if (link instanceof Receiver && link.getCredit() < LINK_CREDIT / 2)
+            {
+                ((Receiver) link).flow(LINK_CREDIT - link.getCredit());
+            }
+        }
+
+        private static boolean transfer(Transport from, Transport to)
+        {
+            int pending = from.pending();
+            int capacity = to.capacity();
+            if (pending <= 0 || capacity <= 0)
+            {
+                return false;
+            }
+
+            int length = Math.min(pending, capacity);
+            ByteBuffer head = from.head();
+            head.limit(head.position() + length);
+            to.tail().put(head);
+            to.process();
+            from.pop(length);
+            return true;
+        }
+
+        private static DeviceClientConfig newConfig(int device) throws Exception
+        {
+            return new DeviceClientConfig(new IotHubConnectionString(String.format(CONNECTION_STRING_FORMAT, device)));
+        }
+
+        private static Method method(String name, Class<?>... parameterTypes) throws NoSuchMethodException
+        {
+            Method method = AmqpsSessionManager.class.getDeclaredMethod(name, parameterTypes);
+            method.setAccessible(true);
+            return method;
+        }
+    }
+}
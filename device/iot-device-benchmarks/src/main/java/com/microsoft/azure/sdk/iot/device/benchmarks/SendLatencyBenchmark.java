@@ -0,0 +1,189 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See LICENSE file in the project root for full license information.
+
+package com.microsoft.azure.sdk.iot.device.benchmarks;
+
+import com.microsoft.azure.sdk.iot.device.*;
+import com.microsoft.azure.sdk.iot.device.transport.IotHubConnectionStatus;
+import com.microsoft.azure.sdk.iot.device.transport.IotHubListener;
+import com.microsoft.azure.sdk.iot.device.transport.IotHubSendTask;
+import com.microsoft.azure.sdk.iot.device.transport.IotHubTransport;
+import com.microsoft.azure.sdk.iot.device.transport.IotHubTransportConnection;
+import org.openjdk.jmh.annotations.*;
+
+import java.lang.reflect.Field;
+import java.util.Queue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures how long a telemetry message waits in {@link IotHubTransport} before it is sent and its callback runs.
+ * <p>
+ * {@code SIGNALLED} runs {@link IotHubSendTask} the way {@code DeviceIO} does, woken up by the transport whenever a
+ * message is queued. {@code FIXED_RATE_POLLING} drives the same transport from {@code scheduleAtFixedRate} every
+ * {@link #SEND_PERIOD_MILLIS} milliseconds, which is how {@code DeviceIO} used to run the send task. The connection is
+ * a loopback that acknowledges every message as soon as it is sent, so the results only contain the time spent
+ * queueing and dispatching inside the client.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SendLatencyBenchmark
+{
+    public enum Dispatch
+    {
+        FIXED_RATE_POLLING, SIGNALLED
+    }
+
+    /** The default send period of the device client. */
+    private static final long SEND_PERIOD_MILLIS = 10L;
+    private static final int BURST_SIZE = 100;
+    private static final String CONNECTION_STRING =
+            "HostName=benchmark.azure-devices.net;DeviceId=benchmark;SharedAccessKey=YmVuY2htYXJrLWtleQ==";
+    private static final byte[] PAYLOAD = new byte[256];
+
+    @Param
+    public Dispatch dispatch;
+
+    private IotHubTransport transport;
+    private IotHubSendTask sendTask;
+    private ScheduledExecutorService executor;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception
+    {
+        DeviceClientConfig config = new DeviceClientConfig(new IotHubConnectionString(CONNECTION_STRING));
+        this.transport = new IotHubTransport(config);
+        setField(this.transport, "iotHubTransportConnection", new LoopbackConnection(this.transport));
+        setField(this.transport, "connectionStatus", IotHubConnectionStatus.CONNECTED);
+
+        this.executor = Executors.newScheduledThreadPool(1);
+        if (this.dispatch == Dispatch.SIGNALLED)
+        {
+            this.sendTask = new IotHubSendTask(this.transport);
+            this.executor.execute(this.sendTask);
+        }
+        else
+        {
+            final IotHubTransport polledTransport = this.transport;
+            this.executor.scheduleAtFixedRate(new Runnable()
+            {
+                @Override
+                public void run()
+                {
+                    polledTransport.sendMessages();
+                    polledTransport.invokeCallbacks();
+                }
+            }, 0, SEND_PERIOD_MILLIS, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws InterruptedException
+    {
+        if (this.sendTask != null)
+        {
+            this.sendTask.stop();
+        }
+
+        this.executor.shutdown();
+        this.executor.awaitTermination(1, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Latency of a single message on an otherwise idle client.
+     */
+    @Benchmark
+    public void sendOneMessage() throws InterruptedException
+    {
+        CountDownLatch acknowledged = new CountDownLatch(1);
+        this.transport.addMessage(new Message(PAYLOAD), new LatchCallback(), acknowledged);
+        acknowledged.await();
+    }
+
+    /**
+     * Time per message when {@link #BURST_SIZE} messages are queued at once.
+     */
+    @Benchmark
+    @OperationsPerInvocation(BURST_SIZE)
+    public void sendBurst() throws InterruptedException
+    {
+        CountDownLatch acknowledged = new CountDownLatch(BURST_SIZE);
+        LatchCallback callback = new LatchCallback();
+        for (int i = 0; i < BURST_SIZE; i++)
+        {
+            this.transport.addMessage(new Message(PAYLOAD), callback, acknowledged);
+        }
+
+        acknowledged.await();
+    }
+
+    private static void setField(Object target, String name, Object value) throws ReflectiveOperationException
+    {
+        Field field = target.getClass().getDeclaredField(name);
+        field.setAccessible(true);
+        field.set(target, value);
+    }
+
+    private static final class LatchCallback implements IotHubEventCallback
+    {
+        @Override
+        public void execute(IotHubStatusCode responseStatus, Object callbackContext)
+        {
+            ((CountDownLatch) callbackContext).countDown();
+        }
+    }
+
+    /**
+     * Stands in for the network: every message is acknowledged as soon as it is sent.
+     */
+    private static final class LoopbackConnection implements IotHubTransportConnection
+    {
+        private IotHubListener listener;
+
+        LoopbackConnection(IotHubListener listener)
+        {
+            this.listener = listener;
+        }
+
+        @Override
+        public void open(Queue<DeviceClientConfig> deviceClientConfigs)
+        {
+        }
+
+        @Override
+        public void setListener(IotHubListener listener)
+        {
+            this.listener = listener;
+        }
+
+        @Override
+        public void close(boolean isReconnecting)
+        {
+        }
+
+        @Override
+        public IotHubStatusCode sendMessage(Message message)
+        {
+            this.listener.onMessageSent(message, null);
+            return IotHubStatusCode.OK_EMPTY;
+        }
+
+        @Override
+        public boolean sendMessageResult(Message message, IotHubMessageResult result)
+        {
+            return true;
+        }
+
+        @Override
+        public String getConnectionId()
+        {
+            return "loopback";
+        }
+    }
+}
@@ -6,6 +6,13 @@ package com.microsoft.azure.sdk.iot.device;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+/**
+ * Thin wrapper over slf4j used by the device client.
+ * <p>
+ * Every Log method checks its level before formatting, but its arguments are still evaluated by the caller. On paths
+ * that run once per message, pass only values that are already at hand, or guard the call with the matching
+ * {@code is...Enabled} method when an argument is expensive to compute.
+ */
 public class CustomLogger {
 
     private final Logger logger;
@@ -16,6 +23,51 @@ public class CustomLogger {
         logger = LoggerFactory.getLogger(clazz);
     }
 
+    /**
+     * @return {@code true} if messages logged with {@link #LogInfo(String, Object...)} are recorded.
+     */
+    public boolean isInfoEnabled()
+    {
+        // Codes_SRS_CUSTOMLOGGER_34_021: [The function shall return true if the INFO level is enabled in the underlying logger, and false otherwise.]
+        return logger.isInfoEnabled();
+    }
+
+    /**
+     * @return {@code true} if messages logged with {@link #LogDebug(String, Object...)} are recorded.
+     */
+    public boolean isDebugEnabled()
+    {
+        // Codes_SRS_CUSTOMLOGGER_34_022: [The function shall return true if the DEBUG level is enabled in the underlying logger, and false otherwise.]
+        return logger.isDebugEnabled();
+    }
+
+    /**
+     * @return {@code true} if messages logged with {@link #LogTrace(String, Object...)} are recorded.
+     */
+    public boolean isTraceEnabled()
+    {
+        // Codes_SRS_CUSTOMLOGGER_34_023: [The function shall return true if the TRACE level is enabled in the underlying logger, and false otherwise.]
+        return logger.isTraceEnabled();
+    }
+
+    /**
+     * @return {@code true} if messages logged with {@link #LogWarn(String, Object...)} are recorded.
+     */
+    public boolean isWarnEnabled()
+    {
+        // Codes_SRS_CUSTOMLOGGER_34_024: [The function shall return true if the WARN level is enabled in the underlying logger, and false otherwise.]
+        return logger.isWarnEnabled();
+    }
+
+    /**
+     * @return {@code true} if messages logged with {@link #LogError(String, Object...)} are recorded.
+     */
+    public boolean isErrorEnabled()
+    {
+        // Codes_SRS_CUSTOMLOGGER_34_025: [The function shall return true if the ERROR level is enabled in the underlying logger, and false otherwise.]
+        return logger.isErrorEnabled();
+    }
+
     public void LogInfo(String message, Object...params)
     {
         if(logger.isInfoEnabled())
@@ -85,6 +137,12 @@ public class CustomLogger {
         }
     }
 
+    /**
+     * Returns the name of the calling method by walking the stack of the current thread. This is expensive and runs
+     * whether or not the log level is enabled, so it must not be used on paths that run once per message.
+     *
+     * @return the name of the calling method.
+     */
     public String getMethodName()
     {
         return Thread.currentThread().getStackTrace()[CALLING_METHOD_NAME_DEPTH].getMethodName();
@@ -6,6 +6,7 @@ package com.microsoft.azure.sdk.iot.device;
 import com.microsoft.azure.sdk.iot.deps.serializer.ParserUtility;
 import com.microsoft.azure.sdk.iot.device.DeviceTwin.*;
 import com.microsoft.azure.sdk.iot.device.fileupload.FileUpload;
+import com.microsoft.azure.sdk.iot.device.transport.amqps.AmqpsEventLoopGroup;
 import com.microsoft.azure.sdk.iot.device.transport.amqps.IoTHubConnectionType;
 import com.microsoft.azure.sdk.iot.provisioning.security.SecurityProvider;
 
@@ -151,7 +152,7 @@ public final class DeviceClient extends InternalClient implements Closeable
         this.transportClient.registerDeviceClient(this);
 
         this.logger = new CustomLogger(this.getClass());
-        logger.LogInfo("DeviceClient object is created successfully, method name is %s ", logger.getMethodName());
+        logger.LogInfo("DeviceClient object is created successfully, method name is DeviceClient ");
     }
 
     /**
@@ -317,7 +318,7 @@ public final class DeviceClient extends InternalClient implements Closeable
             super.open();
         }
 
-        logger.LogInfo("Connection opened with success, method name is %s ", logger.getMethodName());
+        logger.LogInfo("Connection opened with success, method name is open ");
     }
 
     /**
@@ -351,7 +352,7 @@ public final class DeviceClient extends InternalClient implements Closeable
             super.close();
         }
 
-        logger.LogInfo("Connection closed with success, method name is %s ", logger.getMethodName());
+        logger.LogInfo("Connection closed with success, method name is close ");
     }
 
     /**
@@ -387,7 +388,7 @@ public final class DeviceClient extends InternalClient implements Closeable
             this.closeFileUpload();
         }
 
-        logger.LogInfo("Connection closed with success, method name is %s ", logger.getMethodName());
+        logger.LogInfo("Connection closed with success, method name is closeNow ");
     }
 
     /**
@@ -541,6 +542,40 @@ public final class DeviceClient extends InternalClient implements Closeable
      *         option will restart the transport with the updated expiry time, and
      *         will use that expiry time length for all subsequently generated sas tokens.
      *         The value is expected to be of type {@code long}.
+     *	    - <b>SetHttpsBatchSize</b> - this option is applicable only
+     *	      when the transport configured with this client is HTTP. This
+     *	      option specifies the maximum number of queued telemetry messages
+     *	      that are sent together in one batched request. A value of 1, the
+     *	      default, sends one request per message. The value is expected to
+     *	      be of type {@code int}.
+     *	    - <b>SetHttpsBatchLingerTime</b> - this option is applicable only
+     *	      when the transport configured with this client is HTTP. This
+     *	      option specifies the time in milliseconds that a message may wait
+     *	      for its batch to fill up before the batch is sent anyway. The
+     *	      default is 0. The value is expected to be of type {@code long}.
+     *	    - <b>SetMqttMaxInFlightCount</b> - this option is applicable only
+     *	      when the transport configured with this client is MQTT. This
+     *	      option specifies how many messages may be published before the
+     *	      client waits for the service to acknowledge them. The default is
+     *	      10. It can only be set while the client is closed. The value is
+     *	      expected to be of type {@code int}.
+     *	    - <b>SetMqttTelemetryQos</b> - this option is applicable only
+     *	      when the transport configured with this client is MQTT. This
+     *	      option specifies the MQTT quality of service, 0 or 1, used to
+     *	      send telemetry. At 0 the callback of a message runs once it is
+     *	      written to the socket, and the message is lost if the connection
+     *	      drops before it reaches the service. The default is 1. It can
+     *	      only be set while the client is closed. The value is expected to
+     *	      be of type {@code int}.
+     *	    - <b>SetAmqpsEventLoopGroup</b> - this option is applicable only
+     *	      when the transport configured with this client is AMQPS. This
+     *	      option hands the AMQPS connection of this client to an
+     *	      {@link AmqpsEventLoopGroup}, whose threads run the connections of
+     *	      all the clients given the same group instead of each client
+     *	      running its connection on threads of its own. The group must be
+     *	      closed by its owner after these clients are closed. It can only be
+     *	      set while the client is closed. The value is expected to be of
+     *	      type {@link AmqpsEventLoopGroup}.
      *
      * @param optionName the option name to modify
      * @param value an object of the appropriate type for the option's value
@@ -638,6 +673,41 @@ public final class DeviceClient extends InternalClient implements Closeable
                     return;
                 }
             }
+            // Codes_SRS_DEVICECLIENT_34_076: ["SetHttpsBatchSize" and "SetHttpsBatchLingerTime" - configure batched telemetry over HTTPS.]
+            case SET_HTTPS_BATCH_SIZE:
+            case SET_HTTPS_BATCH_LINGER_TIME:
+            {
+                if (this.ioTHubConnectionType == IoTHubConnectionType.USE_TRANSPORTCLIENT)
+                {
+                    // Codes_SRS_DEVICECLIENT_34_077: [If the client configured to use TransportClient the
+                    // SetHttpsBatchSize and SetHttpsBatchLingerTime options shall throw IllegalStateException.]
+                    throw new IllegalStateException("setOption " + optionName + " only works with HTTP protocol");
+                }
+                break;
+            }
+            // Codes_SRS_DEVICECLIENT_34_078: ["SetMqttMaxInFlightCount" and "SetMqttTelemetryQos" - configure how telemetry is published over MQTT.]
+            case SET_MQTT_MAX_IN_FLIGHT_COUNT:
+            case SET_MQTT_TELEMETRY_QOS:
+            {
+                if (this.ioTHubConnectionType == IoTHubConnectionType.USE_TRANSPORTCLIENT)
+                {
+                    // Codes_SRS_DEVICECLIENT_34_079: [If the client configured to use TransportClient the
+                    // SetMqttMaxInFlightCount and SetMqttTelemetryQos options shall throw IllegalStateException.]
+                    throw new IllegalStateException("setOption " + optionName + " only works with MQTT protocol");
+                }
+                break;
+            }
+            // Codes_SRS_DEVICECLIENT_34_080: ["SetAmqpsEventLoopGroup" - runs the AMQPS connection on a shared event loop group.]
+            case SET_AMQPS_EVENT_LOOP_GROUP:
+            {
+                if (this.ioTHubConnectionType == IoTHubConnectionType.USE_TRANSPORTCLIENT)
+                {
+                    // Codes_SRS_DEVICECLIENT_34_081: [If the client configured to use TransportClient the
+                    // SetAmqpsEventLoopGroup option shall throw IllegalStateException.]
+                    throw new IllegalStateException("setOption " + optionName + " only works with a client that has its own connection");
+                }
+                break;
+            }
             default:
             {
                 throw new IllegalArgumentException("optionName is unknown = " + optionName);
@@ -650,7 +720,7 @@ public final class DeviceClient extends InternalClient implements Closeable
     @Override
     void setOption_SetSASTokenExpiryTime(Object value) throws IllegalArgumentException
     {
-        logger.LogInfo("Setting SASTokenExpiryTime as %s seconds, method name is %s ", value, logger.getMethodName());
+        logger.LogInfo("Setting SASTokenExpiryTime as %s seconds, method name is setOption_SetSASTokenExpiryTime ", value);
 
         if (this.getConfig().getAuthenticationType() != DeviceClientConfig.AuthType.SAS_TOKEN)
         {
@@ -7,6 +7,7 @@ import com.microsoft.azure.sdk.iot.device.DeviceTwin.Pair;
 import com.microsoft.azure.sdk.iot.device.auth.*;
 import com.microsoft.azure.sdk.iot.device.transport.ExponentialBackoffWithJitter;
 import com.microsoft.azure.sdk.iot.device.transport.RetryPolicy;
+import com.microsoft.azure.sdk.iot.device.transport.amqps.AmqpsEventLoopGroup;
 import com.microsoft.azure.sdk.iot.provisioning.security.SecurityProvider;
 import com.microsoft.azure.sdk.iot.provisioning.security.SecurityProviderTpm;
 import com.microsoft.azure.sdk.iot.provisioning.security.SecurityProviderX509;
@@ -28,6 +29,14 @@ public final class DeviceClientConfig
 
     private static final long DEFAULT_OPERATION_TIMEOUT = 4 * 60 * 1000; //4 minutes
 
+    private static final int DEFAULT_HTTPS_BATCH_SIZE = 1;
+
+    private static final long DEFAULT_HTTPS_BATCH_LINGER_MILLIS = 0;
+
+    private static final int DEFAULT_MQTT_MAX_IN_FLIGHT_COUNT = 10;
+
+    private static final int DEFAULT_MQTT_TELEMETRY_QOS = 1;
+
     private boolean useWebsocket;
 
     private IotHubAuthenticationProvider authenticationProvider;
@@ -68,6 +77,14 @@ public final class DeviceClientConfig
     private long operationTimeout = DEFAULT_OPERATION_TIMEOUT;
     private IotHubClientProtocol protocol;
 
+    private int httpsBatchSize = DEFAULT_HTTPS_BATCH_SIZE;
+    private long httpsBatchLingerMillis = DEFAULT_HTTPS_BATCH_LINGER_MILLIS;
+
+    private int mqttMaxInFlightCount = DEFAULT_MQTT_MAX_IN_FLIGHT_COUNT;
+    private int mqttTelemetryQos = DEFAULT_MQTT_TELEMETRY_QOS;
+
+    private AmqpsEventLoopGroup amqpsEventLoopGroup;
+
     // Codes_SRS_DEVICECLIENTCONFIG_28_001: [The class shall have ExponentialBackOff as the default retryPolicy.]
     private RetryPolicy retryPolicy = new ExponentialBackoffWithJitter();
 
@@ -110,8 +127,8 @@ public final class DeviceClientConfig
         this.productInfo = new ProductInfo();
 
         this.logger = new CustomLogger(this.getClass());
-        logger.LogInfo("DeviceClientConfig object is created successfully with IotHubName=%s, deviceID=%s , method name is %s ",
-                iotHubConnectionString.getHostName(), iotHubConnectionString.getDeviceId(), logger.getMethodName());
+        logger.LogInfo("DeviceClientConfig object is created successfully with IotHubName=%s, deviceID=%s , method name is DeviceClientConfig ",
+                iotHubConnectionString.getHostName(), iotHubConnectionString.getDeviceId());
     }
 
     public DeviceClientConfig(IotHubAuthenticationProvider authenticationProvider) throws IllegalArgumentException
@@ -128,8 +145,8 @@ public final class DeviceClientConfig
         this.productInfo = new ProductInfo();
 
         this.logger = new CustomLogger(this.getClass());
-        logger.LogInfo("DeviceClientConfig object is created successfully with IotHubName=%s, deviceID=%s , method name is %s ",
-                this.authenticationProvider.getHostname(), authenticationProvider.getDeviceId(), logger.getMethodName());
+        logger.LogInfo("DeviceClientConfig object is created successfully with IotHubName=%s, deviceID=%s , method name is DeviceClientConfig ",
+                this.authenticationProvider.getHostname(), authenticationProvider.getDeviceId());
     }
 
     /**
@@ -169,8 +186,8 @@ public final class DeviceClientConfig
                 publicKeyCertificate, isPathForPublic, privateKey, isPathForPrivate);
 
         this.logger = new CustomLogger(this.getClass());
-        logger.LogInfo("DeviceClientConfig object is created successfully with IotHubName=%s, deviceID=%s , method name is %s ",
-                iotHubConnectionString.getHostName(), iotHubConnectionString.getDeviceId(), logger.getMethodName());
+        logger.LogInfo("DeviceClientConfig object is created successfully with IotHubName=%s, deviceID=%s , method name is DeviceClientConfig ",
+                iotHubConnectionString.getHostName(), iotHubConnectionString.getDeviceId());
     }
 
     /**
@@ -225,8 +242,8 @@ public final class DeviceClientConfig
         this.productInfo = new ProductInfo();
 
         this.logger = new CustomLogger(this.getClass());
-        logger.LogInfo("DeviceClientConfig object is created successfully with IotHubName=%s, deviceID=%s , method name is %s ",
-                connectionString.getHostName(), connectionString.getDeviceId(), logger.getMethodName());
+        logger.LogInfo("DeviceClientConfig object is created successfully with IotHubName=%s, deviceID=%s , method name is DeviceClientConfig ",
+                connectionString.getHostName(), connectionString.getDeviceId());
     }
 
     public IotHubClientProtocol getProtocol()
@@ -584,6 +601,143 @@ public final class DeviceClientConfig
         return this.operationTimeout;
     }
 
+    /**
+     * Sets the maximum number of telemetry messages that the HTTPS transport may send in a single batched request
+     * @param batchSize the maximum number of messages per request. A value of 1 disables batching
+     * @throws IllegalArgumentException if batchSize is 0 or negative
+     */
+    void setHttpsBatchSize(int batchSize) throws IllegalArgumentException
+    {
+        if (batchSize < 1)
+        {
+            //Codes_SRS_DEVICECLIENTCONFIG_34_085: [If the provided batch size is 0 or negative, this function shall throw an IllegalArgumentException.]
+            throw new IllegalArgumentException("Https batch size cannot be 0 or negative");
+        }
+
+        //Codes_SRS_DEVICECLIENTCONFIG_34_086: [This function shall save the provided batch size.]
+        this.httpsBatchSize = batchSize;
+    }
+
+    /**
+     * Getter for the maximum number of telemetry messages sent in a single batched HTTPS request
+     * @return the maximum number of messages per request, 1 if batching is disabled
+     */
+    public int getHttpsBatchSize()
+    {
+        //Codes_SRS_DEVICECLIENTCONFIG_34_087: [This function shall return the saved batch size, 1 by default.]
+        return this.httpsBatchSize;
+    }
+
+    /**
+     * Sets how long the HTTPS transport may hold back a partially filled batch while waiting for more messages
+     * @param lingerMillis the amount of time, in milliseconds, a message may wait for its batch to fill up
+     * @throws IllegalArgumentException if lingerMillis is negative
+     */
+    void setHttpsBatchLingerMillis(long lingerMillis) throws IllegalArgumentException
+    {
+        if (lingerMillis < 0)
+        {
+            //Codes_SRS_DEVICECLIENTCONFIG_34_088: [If the provided linger time is negative, this function shall throw an IllegalArgumentException.]
+            throw new IllegalArgumentException("Https batch linger time cannot be negative");
+        }
+
+        //Codes_SRS_DEVICECLIENTCONFIG_34_089: [This function shall save the provided linger time.]
+        this.httpsBatchLingerMillis = lingerMillis;
+    }
+
+    /**
+     * Getter for the amount of time the HTTPS transport may hold back a partially filled batch
+     * @return the linger time in milliseconds, 0 by default
+     */
+    public long getHttpsBatchLingerMillis()
+    {
+        //Codes_SRS_DEVICECLIENTCONFIG_34_090: [This function shall return the saved linger time, 0 by default.]
+        return this.httpsBatchLingerMillis;
+    }
+
+    /**
+     * Sets the maximum number of messages the MQTT transport may publish before it waits for acknowledgements
+     * @param maxInFlightCount the size of the publish window
+     * @throws IllegalArgumentException if maxInFlightCount is 0 or negative
+     */
+    void setMqttMaxInFlightCount(int maxInFlightCount) throws IllegalArgumentException
+    {
+        if (maxInFlightCount < 1)
+        {
+            //Codes_SRS_DEVICECLIENTCONFIG_34_091: [If the provided count is 0 or negative, this function shall throw an IllegalArgumentException.]
+            throw new IllegalArgumentException("Mqtt max in flight count cannot be 0 or negative");
+        }
+
+        //Codes_SRS_DEVICECLIENTCONFIG_34_092: [This function shall save the provided count.]
+        this.mqttMaxInFlightCount = maxInFlightCount;
+    }
+
+    /**
+     * Getter for the maximum number of unacknowledged messages the MQTT transport may have in flight
+     * @return the size of the publish window, 10 by default
+     */
+    public int getMqttMaxInFlightCount()
+    {
+        //Codes_SRS_DEVICECLIENTCONFIG_34_093: [This function shall return the saved count, 10 by default.]
+        return this.mqttMaxInFlightCount;
+    }
+
+    /**
+     * Sets the quality of service the MQTT transport uses to publish telemetry messages. At QoS 0 a message is
+     * reported as sent as soon as it is written to the socket, and it may be lost if the connection drops
+     * @param qos 0 for at most once delivery, or 1 for at least once delivery
+     * @throws IllegalArgumentException if qos is neither 0 nor 1
+     */
+    void setMqttTelemetryQos(int qos) throws IllegalArgumentException
+    {
+        if (qos != 0 && qos != 1)
+        {
+            //Codes_SRS_DEVICECLIENTCONFIG_34_094: [If the provided qos is neither 0 nor 1, this function shall throw an IllegalArgumentException.]
+            throw new IllegalArgumentException("Mqtt telemetry qos must be 0 or 1");
+        }
+
+        //Codes_SRS_DEVICECLIENTCONFIG_34_095: [This function shall save the provided qos.]
+        this.mqttTelemetryQos = qos;
+    }
+
+    /**
+     * Getter for the quality of service of telemetry messages published over MQTT
+     * @return the telemetry qos, 1 by default
+     */
+    public int getMqttTelemetryQos()
+    {
+        //Codes_SRS_DEVICECLIENTCONFIG_34_096: [This function shall return the saved qos, 1 by default.]
+        return this.mqttTelemetryQos;
+    }
+
+    /**
+     * Sets the event loop group that runs the AMQPS connection of this client together with the connections of
+     * other clients
+     * @param amqpsEventLoopGroup the shared event loop group
+     * @throws IllegalArgumentException if amqpsEventLoopGroup is null
+     */
+    void setAmqpsEventLoopGroup(AmqpsEventLoopGroup amqpsEventLoopGroup) throws IllegalArgumentException
+    {
+        if (amqpsEventLoopGroup == null)
+        {
+            //Codes_SRS_DEVICECLIENTCONFIG_34_097: [If the provided event loop group is null, this function shall throw an IllegalArgumentException.]
+            throw new IllegalArgumentException("Amqps event loop group cannot be null");
+        }
+
+        //Codes_SRS_DEVICECLIENTCONFIG_34_098: [This function shall save the provided event loop group.]
+        this.amqpsEventLoopGroup = amqpsEventLoopGroup;
+    }
+
+    /**
+     * Getter for the event loop group shared with other clients
+     * @return the shared event loop group, or null if this client runs its AMQPS connection on threads of its own
+     */
+    public AmqpsEventLoopGroup getAmqpsEventLoopGroup()
+    {
+        //Codes_SRS_DEVICECLIENTCONFIG_34_099: [This function shall return the saved event loop group, null by default.]
+        return this.amqpsEventLoopGroup;
+    }
+
     public ProductInfo getProductInfo()
     {
         //Codes_SRS_DEVICECLIENTCONFIG_34_040: [This function shall return the saved product info.]
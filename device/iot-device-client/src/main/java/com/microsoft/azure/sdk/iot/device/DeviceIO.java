@@ -7,12 +7,14 @@ import com.microsoft.azure.sdk.iot.device.exceptions.DeviceClientException;
 import com.microsoft.azure.sdk.iot.device.transport.IotHubReceiveTask;
 import com.microsoft.azure.sdk.iot.device.transport.IotHubSendTask;
 import com.microsoft.azure.sdk.iot.device.transport.IotHubTransport;
+import com.microsoft.azure.sdk.iot.device.transport.amqps.AmqpsEventLoopGroup;
 
 import java.io.IOException;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
 
 /*
@@ -85,6 +87,7 @@ public final class DeviceIO
     private IotHubClientProtocol protocol = null;
 
     private ScheduledExecutorService taskScheduler;
+    private ScheduledFuture<?> sharedReceiveTaskFuture;
     private IotHubClientState state;
 
     private List<DeviceClientConfig> deviceClientConfigs = new LinkedList<>();
@@ -136,7 +139,7 @@ public final class DeviceIO
         this.state = IotHubClientState.CLOSED;
 
         this.logger = new CustomLogger(this.getClass());
-        logger.LogInfo("DeviceIO object is created successfully, method name is %s ", logger.getMethodName());
+        logger.LogInfo("DeviceIO object is created successfully, method name is DeviceIO ");
     }
 
     /**
@@ -192,16 +195,28 @@ public final class DeviceIO
         this.sendTask = new IotHubSendTask(this.transport);
         this.receiveTask = new IotHubReceiveTask(this.transport);
 
-        this.taskScheduler = Executors.newScheduledThreadPool(2);
+        AmqpsEventLoopGroup eventLoopGroup = this.config.getAmqpsEventLoopGroup();
+        this.taskScheduler = Executors.newScheduledThreadPool(eventLoopGroup == null ? 2 : 1);
+        // the send task runs for as long as the client is open, and is woken
+        // up by the transport whenever there is something to send, so it
+        // is started once rather than scheduled at a fixed rate.
+        /* Codes_SRS_DEVICE_IO_34_021: [The open shall start the send task once on its own thread.] */
+        this.taskScheduler.execute(this.sendTask);
         // the scheduler waits until each execution is finished before
         // scheduling the next one, so executions of a given task
         // will never overlap.
-        /* Codes_SRS_DEVICE_IO_21_013: [The open shall schedule send tasks to run every SEND_PERIOD_MILLIS milliseconds.] */
-        this.taskScheduler.scheduleAtFixedRate(this.sendTask, 0,
-                sendPeriodInMilliseconds, TimeUnit.MILLISECONDS);
-        /* Codes_SRS_DEVICE_IO_21_014: [The open shall schedule receive tasks to run every receivePeriodInMilliseconds milliseconds.] */
-        this.taskScheduler.scheduleAtFixedRate(this.receiveTask, 0,
-                receivePeriodInMilliseconds, TimeUnit.MILLISECONDS);
+        if (eventLoopGroup == null)
+        {
+            /* Codes_SRS_DEVICE_IO_21_014: [The open shall schedule receive tasks to run every receivePeriodInMilliseconds milliseconds.] */
+            this.taskScheduler.scheduleAtFixedRate(this.receiveTask, 0,
+                    receivePeriodInMilliseconds, TimeUnit.MILLISECONDS);
+        }
+        else
+        {
+            /* Codes_SRS_DEVICE_IO_34_023: [If the config has an AmqpsEventLoopGroup, the open shall schedule the receive task on the scheduler of that group instead.] */
+            this.sharedReceiveTaskFuture = eventLoopGroup.getScheduler().scheduleAtFixedRate(this.receiveTask, 0,
+                    receivePeriodInMilliseconds, TimeUnit.MILLISECONDS);
+        }
 
         /* Codes_SRS_DEVICE_IO_21_016: [The open shall set the `state` as `CONNECTED`.] */
         this.state = IotHubClientState.OPEN;
@@ -217,6 +232,12 @@ public final class DeviceIO
      */
     public void close() throws IOException
     {
+        /* Codes_SRS_DEVICE_IO_34_022: [The close shall stop the send task.] */
+        if (this.sendTask != null)
+        {
+            this.sendTask.stop();
+        }
+
         /* Codes_SRS_DEVICE_IO_21_017: [The close shall finish all ongoing tasks.] */
         /* Codes_SRS_DEVICE_IO_21_018: [The close shall cancel all recurring tasks.] */
         if (taskScheduler != null)
@@ -224,6 +245,13 @@ public final class DeviceIO
             this.taskScheduler.shutdown();
         }
 
+        /* Codes_SRS_DEVICE_IO_34_024: [The close shall cancel the receive task scheduled on a shared AmqpsEventLoopGroup, without shutting the group down.] */
+        if (this.sharedReceiveTaskFuture != null)
+        {
+            this.sharedReceiveTaskFuture.cancel(false);
+            this.sharedReceiveTaskFuture = null;
+        }
+
         /* Codes_SRS_DEVICE_IO_21_019: [The close shall close the transport.] */
         try
         {
@@ -291,7 +319,7 @@ public final class DeviceIO
             message.setConnectionDeviceId(deviceId);
         }
 
-        logger.LogInfo("Message with messageid %s along with callback and callbackcontext is added to the queue, method name is %s ", message.getMessageId(), logger.getMethodName());
+        logger.LogInfo("Message with messageid %s along with callback and callbackcontext is added to the queue, method name is sendEventAsync ", message.getMessageId());
         /* Codes_SRS_DEVICE_IO_21_022: [The sendEventAsync shall add the message, with its associated callback and callback context, to the transport.] */
         transport.addMessage(message, callback, callbackContext);
     }
@@ -334,8 +362,18 @@ public final class DeviceIO
                 throw new IOException("transport receive task not set");
             }
 
-            this.taskScheduler.scheduleAtFixedRate(this.receiveTask, 0,
-                    this.receivePeriodInMilliseconds, TimeUnit.MILLISECONDS);
+            if (this.sharedReceiveTaskFuture != null)
+            {
+                /* Codes_SRS_DEVICE_IO_34_025: [If the receive task runs on a shared AmqpsEventLoopGroup, the setReceivePeriodInMilliseconds shall cancel it and schedule it again on that group with the new value.] */
+                this.sharedReceiveTaskFuture.cancel(false);
+                this.sharedReceiveTaskFuture = this.config.getAmqpsEventLoopGroup().getScheduler().scheduleAtFixedRate(this.receiveTask, 0,
+                        this.receivePeriodInMilliseconds, TimeUnit.MILLISECONDS);
+            }
+            else
+            {
+                this.taskScheduler.scheduleAtFixedRate(this.receiveTask, 0,
+                        this.receivePeriodInMilliseconds, TimeUnit.MILLISECONDS);
+            }
         }
     }
 
@@ -351,7 +389,9 @@ public final class DeviceIO
     }
 
     /**
-     * Setter for the send period in milliseconds.
+     * Setter for the send period in milliseconds. Messages are sent as soon as
+     * they are queued, so the send period no longer delays or limits sending;
+     * it is only kept for compatibility.
      *
      * @param newIntervalInMilliseconds is the new interval in milliseconds.
      * @throws IOException if the task schedule exist but there is no send task function to call.
@@ -368,17 +408,10 @@ public final class DeviceIO
         /* Codes_SRS_DEVICE_IO_21_033: [The setSendPeriodInMilliseconds shall store the new send period in milliseconds.] */
         this.sendPeriodInMilliseconds = newIntervalInMilliseconds;
 
-        /* Codes_SRS_DEVICE_IO_21_034: [If the task scheduler already exists, the setSendPeriodInMilliseconds shall change the `scheduleAtFixedRate` for the sendTask to the new value.] */
-        if(this.taskScheduler != null)
+        /* Codes_SRS_DEVICE_IO_21_035: [If the task scheduler already exists and the `sendTask` is null, the setSendPeriodInMilliseconds shall throw IOException.] */
+        if(this.taskScheduler != null && this.sendTask == null)
         {
-            /* Codes_SRS_DEVICE_IO_21_035: [If the `sendTask` is null, the setSendPeriodInMilliseconds shall throw IOException.] */
-            if(this.sendTask == null)
-            {
-                throw new IOException("transport send task not set");
-            }
-
-            this.taskScheduler.scheduleAtFixedRate(this.sendTask, 0,
-                    this.sendPeriodInMilliseconds, TimeUnit.MILLISECONDS);
+            throw new IOException("transport send task not set");
         }
     }
 
@@ -8,7 +8,9 @@ package com.microsoft.azure.sdk.iot.device;
 import com.microsoft.azure.sdk.iot.device.DeviceTwin.*;
 import com.microsoft.azure.sdk.iot.device.auth.IotHubAuthenticationProvider;
 import com.microsoft.azure.sdk.iot.device.exceptions.TransportException;
+import com.microsoft.azure.sdk.iot.device.hsm.IotHubSasTokenHsmAuthenticationProvider;
 import com.microsoft.azure.sdk.iot.device.transport.RetryPolicy;
+import com.microsoft.azure.sdk.iot.device.transport.amqps.AmqpsEventLoopGroup;
 import com.microsoft.azure.sdk.iot.provisioning.security.SecurityProvider;
 
 import java.io.IOError;
@@ -26,6 +28,11 @@ public class InternalClient
     static final String SET_CERTIFICATE_PATH = "SetCertificatePath";
 	static final String SET_CERTIFICATE_AUTHORITY = "SetCertificateAuthority";
     static final String SET_SAS_TOKEN_EXPIRY_TIME = "SetSASTokenExpiryTime";
+    static final String SET_HTTPS_BATCH_SIZE = "SetHttpsBatchSize";
+    static final String SET_HTTPS_BATCH_LINGER_TIME = "SetHttpsBatchLingerTime";
+    static final String SET_MQTT_MAX_IN_FLIGHT_COUNT = "SetMqttMaxInFlightCount";
+    static final String SET_MQTT_TELEMETRY_QOS = "SetMqttTelemetryQos";
+    static final String SET_AMQPS_EVENT_LOOP_GROUP = "SetAmqpsEventLoopGroup";
 
     DeviceClientConfig config;
     DeviceIO deviceIO;
@@ -139,12 +146,24 @@ public class InternalClient
 
         //Codes_SRS_INTERNALCLIENT_21_042: [The closeNow shall closeNow the deviceIO connection.]
         this.deviceIO.close();
+
+        //Codes_SRS_INTERNALCLIENT_34_103: [The close shall release the ssl context of the client to the shared cache.]
+        this.config.getAuthenticationProvider().releaseSSLContext();
+
+        //Codes_SRS_INTERNALCLIENT_34_105: [If the client authenticates with an HSM, the close shall stop the renewals of its sas token ahead of expiry.]
+        this.stopSasTokenRenewal();
     }
 
     public void closeNow() throws IOException
     {
         //Codes_SRS_INTERNALCLIENT_21_008: [The closeNow shall closeNow the deviceIO connection.]
         this.deviceIO.close();
+
+        //Codes_SRS_INTERNALCLIENT_34_104: [The closeNow shall release the ssl context of the client to the shared cache.]
+        this.config.getAuthenticationProvider().releaseSSLContext();
+
+        //Codes_SRS_INTERNALCLIENT_34_106: [If the client authenticates with an HSM, the closeNow shall stop the renewals of its sas token ahead of expiry.]
+        this.stopSasTokenRenewal();
     }
 
     /**
@@ -357,6 +376,40 @@ public class InternalClient
      *         option will restart the transport with the updated expiry time, and
      *         will use that expiry time length for all subsequently generated sas tokens.
      *         The value is expected to be of type {@code long}.
+     *	    - <b>SetHttpsBatchSize</b> - this option is applicable only
+     *	      when the transport configured with this client is HTTP. This
+     *	      option specifies the maximum number of queued telemetry messages
+     *	      that are sent together in one batched request. A value of 1, the
+     *	      default, sends one request per message. The value is expected to
+     *	      be of type {@code int}.
+     *	    - <b>SetHttpsBatchLingerTime</b> - this option is applicable only
+     *	      when the transport configured with this client is HTTP. This
+     *	      option specifies the time in milliseconds that a message may wait
+     *	      for its batch to fill up before the batch is sent anyway. The
+     *	      default is 0. The value is expected to be of type {@code long}.
+     *	    - <b>SetMqttMaxInFlightCount</b> - this option is applicable only
+     *	      when the transport configured with this client is MQTT. This
+     *	      option specifies how many messages may be published before the
+     *	      client waits for the service to acknowledge them. The default is
+     *	      10. It can only be set while the client is closed. The value is
+     *	      expected to be of type {@code int}.
+     *	    - <b>SetMqttTelemetryQos</b> - this option is applicable only
+     *	      when the transport configured with this client is MQTT. This
+     *	      option specifies the MQTT quality of service, 0 or 1, used to
+     *	      send telemetry. At 0 the callback of a message runs once it is
+     *	      written to the socket, and the message is lost if the connection
+     *	      drops before it reaches the service. The default is 1. It can
+     *	      only be set while the client is closed. The value is expected to
+     *	      be of type {@code int}.
+     *	    - <b>SetAmqpsEventLoopGroup</b> - this option is applicable only
+     *	      when the transport configured with this client is AMQPS. This
+     *	      option hands the AMQPS connection of this client to an
+     *	      {@link AmqpsEventLoopGroup}, whose threads run the connections of
+     *	      all the clients given the same group instead of each client
+     *	      running its connection on threads of its own. The group must be
+     *	      closed by its owner after these clients are closed. It can only be
+     *	      set while the client is closed. The value is expected to be of
+     *	      type {@link AmqpsEventLoopGroup}.
      *
      * @param optionName the option name to modify
      * @param value an object of the appropriate type for the option's value
@@ -447,6 +500,77 @@ public class InternalClient
                     setOption_SetSASTokenExpiryTime(value);
                     break;
                 }
+                case SET_HTTPS_BATCH_SIZE:
+                case SET_HTTPS_BATCH_LINGER_TIME:
+                {
+                    if (this.deviceIO.getProtocol() != HTTPS)
+                    {
+                        // Codes_SRS_INTERNALCLIENT_34_088: [If the option is SET_HTTPS_BATCH_SIZE or
+                        // SET_HTTPS_BATCH_LINGER_TIME, and the saved protocol is not HTTPS, this function shall throw an
+                        // IllegalArgumentException.]
+                        throw new IllegalArgumentException("optionName is unknown = " + optionName + " for " + this.deviceIO.getProtocol().toString());
+                    }
+
+                    if (SET_HTTPS_BATCH_SIZE.equals(optionName))
+                    {
+                        setOption_SetHttpsBatchSize(value);
+                    }
+                    else
+                    {
+                        setOption_SetHttpsBatchLingerTime(value);
+                    }
+
+                    break;
+                }
+                case SET_MQTT_MAX_IN_FLIGHT_COUNT:
+                case SET_MQTT_TELEMETRY_QOS:
+                {
+                    if (this.deviceIO.getProtocol() != MQTT && this.deviceIO.getProtocol() != MQTT_WS)
+                    {
+                        // Codes_SRS_INTERNALCLIENT_34_093: [If the option is SET_MQTT_MAX_IN_FLIGHT_COUNT or
+                        // SET_MQTT_TELEMETRY_QOS, and the saved protocol is not MQTT or MQTT_WS, this function shall
+                        // throw an IllegalArgumentException.]
+                        throw new IllegalArgumentException("optionName is unknown = " + optionName + " for " + this.deviceIO.getProtocol().toString());
+                    }
+
+                    if (this.deviceIO.isOpen())
+                    {
+                        // Codes_SRS_INTERNALCLIENT_34_094: [If the option is SET_MQTT_MAX_IN_FLIGHT_COUNT or
+                        // SET_MQTT_TELEMETRY_QOS, and the client is open, this function shall throw an
+                        // IllegalStateException.]
+                        throw new IllegalStateException("setOption " + optionName + " only works when the transport is closed");
+                    }
+
+                    if (SET_MQTT_MAX_IN_FLIGHT_COUNT.equals(optionName))
+                    {
+                        setOption_SetMqttMaxInFlightCount(value);
+                    }
+                    else
+                    {
+                        setOption_SetMqttTelemetryQos(value);
+                    }
+
+                    break;
+                }
+                case SET_AMQPS_EVENT_LOOP_GROUP:
+                {
+                    if (this.deviceIO.getProtocol() != AMQPS && this.deviceIO.getProtocol() != AMQPS_WS)
+                    {
+                        // Codes_SRS_INTERNALCLIENT_34_099: [If the option is SET_AMQPS_EVENT_LOOP_GROUP, and the saved
+                        // protocol is not AMQPS or AMQPS_WS, this function shall throw an IllegalArgumentException.]
+                        throw new IllegalArgumentException("optionName is unknown = " + optionName + " for " + this.deviceIO.getProtocol().toString());
+                    }
+
+                    if (this.deviceIO.isOpen())
+                    {
+                        // Codes_SRS_INTERNALCLIENT_34_100: [If the option is SET_AMQPS_EVENT_LOOP_GROUP, and the client
+                        // is open, this function shall throw an IllegalStateException.]
+                        throw new IllegalStateException("setOption " + optionName + " only works when the transport is closed");
+                    }
+
+                    setOption_SetAmqpsEventLoopGroup(value);
+                    break;
+                }
                 default:
                 {
                     throw new IllegalArgumentException("optionName is unknown = " + optionName);
@@ -701,6 +825,76 @@ public class InternalClient
         }
     }
 
+    void setOption_SetHttpsBatchSize(Object value)
+    {
+        // Codes_SRS_INTERNALCLIENT_34_089: ["SetHttpsBatchSize" needs to have value type int.]
+        if (value instanceof Integer)
+        {
+            // Codes_SRS_INTERNALCLIENT_34_090: ["SetHttpsBatchSize" shall save the batch size in the config.]
+            this.config.setHttpsBatchSize((int) value);
+        }
+        else
+        {
+            throw new IllegalArgumentException("value is not int = " + value);
+        }
+    }
+
+    void setOption_SetHttpsBatchLingerTime(Object value)
+    {
+        // Codes_SRS_INTERNALCLIENT_34_091: ["SetHttpsBatchLingerTime" needs to have value type long.]
+        if (value instanceof Long)
+        {
+            // Codes_SRS_INTERNALCLIENT_34_092: ["SetHttpsBatchLingerTime" shall save the linger time in the config.]
+            this.config.setHttpsBatchLingerMillis((long) value);
+        }
+        else
+        {
+            throw new IllegalArgumentException("value is not long = " + value);
+        }
+    }
+
+    void setOption_SetMqttMaxInFlightCount(Object value)
+    {
+        // Codes_SRS_INTERNALCLIENT_34_095: ["SetMqttMaxInFlightCount" needs to have value type int.]
+        if (value instanceof Integer)
+        {
+            // Codes_SRS_INTERNALCLIENT_34_096: ["SetMqttMaxInFlightCount" shall save the count in the config.]
+            this.config.setMqttMaxInFlightCount((int) value);
+        }
+        else
+        {
+            throw new IllegalArgumentException("value is not int = " + value);
+        }
+    }
+
+    void setOption_SetMqttTelemetryQos(Object value)
+    {
+        // Codes_SRS_INTERNALCLIENT_34_097: ["SetMqttTelemetryQos" needs to have value type int.]
+        if (value instanceof Integer)
+        {
+            // Codes_SRS_INTERNALCLIENT_34_098: ["SetMqttTelemetryQos" shall save the qos in the config.]
+            this.config.setMqttTelemetryQos((int) value);
+        }
+        else
+        {
+            throw new IllegalArgumentException("value is not int = " + value);
+        }
+    }
+
+    void setOption_SetAmqpsEventLoopGroup(Object value)
+    {
+        // Codes_SRS_INTERNALCLIENT_34_101: ["SetAmqpsEventLoopGroup" needs to have value type AmqpsEventLoopGroup.]
+        if (value instanceof AmqpsEventLoopGroup)
+        {
+            // Codes_SRS_INTERNALCLIENT_34_102: ["SetAmqpsEventLoopGroup" shall save the event loop group in the config.]
+            this.config.setAmqpsEventLoopGroup((AmqpsEventLoopGroup) value);
+        }
+        else
+        {
+            throw new IllegalArgumentException("value is not AmqpsEventLoopGroup = " + value);
+        }
+    }
+
     void setOption_SetSASTokenExpiryTime(Object value)
     {
         if (this.config.getAuthenticationType() != DeviceClientConfig.AuthType.SAS_TOKEN)
@@ -768,4 +962,13 @@ public class InternalClient
             throw new UnsupportedOperationException("Communication with edgehub only supported by MQTT/MQTT_WS");
         }
     }
+
+    private void stopSasTokenRenewal()
+    {
+        IotHubAuthenticationProvider authenticationProvider = this.config.getAuthenticationProvider();
+        if (authenticationProvider instanceof IotHubSasTokenHsmAuthenticationProvider)
+        {
+            ((IotHubSasTokenHsmAuthenticationProvider) authenticationProvider).stopRenewal();
+        }
+    }
 }
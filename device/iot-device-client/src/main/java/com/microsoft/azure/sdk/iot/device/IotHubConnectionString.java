@@ -123,7 +123,7 @@ public class IotHubConnectionString
         this.hubName = parseHubName(this.hostName);
 
         this.logger = new CustomLogger(this.getClass());
-        logger.LogInfo("IotHubConnectionString object is created successfully for %s, method name is %s ", this.hostName, logger.getMethodName());
+        logger.LogInfo("IotHubConnectionString object is created successfully for %s, method name is IotHubConnectionString ", this.hostName);
     }
 
     /**
@@ -182,7 +182,7 @@ public class IotHubConnectionString
         }
 
         this.logger = new CustomLogger(this.getClass());
-        logger.LogInfo("IotHubConnectionString object is created successfully for %s, method name is %s ", this.hostName, logger.getMethodName());
+        logger.LogInfo("IotHubConnectionString object is created successfully for %s, method name is IotHubConnectionString ", this.hostName);
     }
 
     /**
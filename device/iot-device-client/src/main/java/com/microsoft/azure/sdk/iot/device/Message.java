@@ -5,9 +5,12 @@ package com.microsoft.azure.sdk.iot.device;
 
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
-import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Date;
 import java.util.UUID;
@@ -18,6 +21,8 @@ public class Message
 
     public static final Charset DEFAULT_IOTHUB_MESSAGE_CHARSET = StandardCharsets.UTF_8;
 
+    private static final int BODY_STREAM_CHUNK_SIZE = 4096;
+
 
     // ----- Data Fields -----
 
@@ -124,12 +129,20 @@ public class Message
     /**
      * User-defined properties.
      */
-    private ArrayList<MessageProperty> properties;
+    private MessagePropertyTable properties;
 
     /**
-     * The message body
+     * The message body, which is the bodyLength bytes of this array starting at bodyOffset
      */
     private byte[] body;
+    private int bodyOffset;
+    private int bodyLength;
+
+    /**
+     * The body in an array of its own, copied the first time it is needed if the body is a part of a larger array. It
+     * is published in a single write, so the body and its offset never change once they are set.
+     */
+    private volatile byte[] bodyArray;
 
     /**
      * Message routing options
@@ -138,10 +151,11 @@ public class Message
     private String contentEncoding;
 
     /**
-     * Stream that will provide the bytes for the body of the
+     * Stream that will provide the bytes for the body of the message, until they are read into the body
      */
-    private ByteArrayInputStream bodyStream;
-    private CustomLogger logger;
+    private InputStream bodyStream;
+    private boolean bodyStreamRead;
+    private static final CustomLogger logger = new CustomLogger(Message.class);
 
     // ----- Constructors -----
 
@@ -154,12 +168,48 @@ public class Message
     }
 
     /**
-     * Constructor.
-     * @param stream A stream to provide the body of the new Message instance.
+     * Constructor. Earlier versions of this constructor ignored the stream and built a message without a body; the
+     * available bytes of the stream are now the body, read when the message is sent.
+     * @param stream A stream to provide the body of the new Message instance. Its available bytes make up the body.
+     * @throws IllegalArgumentException if the stream is null.
      */
     public Message(ByteArrayInputStream stream)
     {
+        // Codes_SRS_MESSAGE_34_089: [If the stream is null, the constructor shall throw an IllegalArgumentException.]
+        // Codes_SRS_MESSAGE_34_090: [The constructor shall save the stream as the body stream, with its available bytes as the body length, without reading it.]
+        this(stream, stream == null ? 0 : stream.available());
+    }
+
+    /**
+     * Constructor for a body that is read from a stream while the message is sent. The HTTPS transport writes the
+     * stream to the connection as it reads it, so the body is never held in memory as a whole. MQTT and AMQP send a
+     * message in a single frame, so they read the body into one array of the given length.
+     * <p>
+     * If the stream supports mark and reset, a send that is retried sends the body again. Otherwise a retried send
+     * fails. The stream is not closed by the message.
+     * </p>
+     * @param bodyStream The stream to read the body of the new Message instance from.
+     * @param bodyLength The number of bytes of the body.
+     */
+    public Message(InputStream bodyStream, int bodyLength)
+    {
+        // Codes_SRS_MESSAGE_34_071: [If the body stream is null, the constructor shall throw an IllegalArgumentException.]
+        if (bodyStream == null)
+        {
+            throw new IllegalArgumentException("Message body stream cannot be 'null'.");
+        }
+
+        // Codes_SRS_MESSAGE_34_072: [If the body length is negative, the constructor shall throw an IllegalArgumentException.]
+        if (bodyLength < 0)
+        {
+            throw new IllegalArgumentException("Message body length cannot be negative.");
+        }
+
         initialize();
+
+        // Codes_SRS_MESSAGE_34_073: [The constructor shall save the body stream and length without reading the stream.]
+        this.bodyStream = bodyStream;
+        this.bodyLength = bodyLength;
     }
 
     /**
@@ -178,6 +228,39 @@ public class Message
 
         // Codes_SRS_MESSAGE_11_024: [The constructor shall save the message body.]
         this.body = body;
+        this.bodyLength = body.length;
+    }
+
+    /**
+     * Constructor. The body is not copied if the buffer is backed by an accessible array, so its content shall not
+     * change until the message is sent.
+     * @param body The body of the new Message instance, which is the content between the position and the limit of the
+     *             buffer. The position of the buffer is not changed.
+     */
+    public Message(ByteBuffer body)
+    {
+        // Codes_SRS_MESSAGE_34_063: [If the message body is null, the constructor shall throw an IllegalArgumentException.]
+        if (body == null)
+        {
+            throw new IllegalArgumentException("Message body cannot be 'null'.");
+        }
+
+        initialize();
+
+        if (body.hasArray())
+        {
+            // Codes_SRS_MESSAGE_34_064: [If the buffer is backed by an accessible array, the constructor shall save the remaining content of the buffer without copying it.]
+            this.body = body.array();
+            this.bodyOffset = body.arrayOffset() + body.position();
+        }
+        else
+        {
+            // Codes_SRS_MESSAGE_34_065: [If the buffer is direct or read only, the constructor shall save a copy of the remaining content of the buffer.]
+            this.body = new byte[body.remaining()];
+            body.duplicate().get(this.body);
+        }
+
+        this.bodyLength = body.remaining();
     }
 
     /**
@@ -194,6 +277,7 @@ public class Message
         initialize();
 
         this.body = body.getBytes(DEFAULT_IOTHUB_MESSAGE_CHARSET);
+        this.bodyLength = this.body.length;
         this.setContentType(DEFAULT_IOTHUB_MESSAGE_CHARSET.name());
     }
 
@@ -209,39 +293,232 @@ public class Message
         return null;
     }
 
+    /**
+     * Returns whether the body of this Message is still to be read from the stream it was created with.
+     * @return true if the body is read from a stream that was not read into memory yet, false otherwise.
+     */
+    public boolean hasBodyStream()
+    {
+        // Codes_SRS_MESSAGE_34_074: [The function shall return true if the body is a stream that was not read into memory, and false otherwise.]
+        return this.bodyStream != null;
+    }
+
+    /**
+     * The length of the body, which does not read a body stream.
+     * @return The number of bytes of this Message body, or 0 if the message has no body.
+     */
+    public int getBodyLength()
+    {
+        // Codes_SRS_MESSAGE_34_075: [The function shall return the number of bytes of the body.]
+        return this.bodyLength;
+    }
+
+    /**
+     * Writes the body to the provided stream. A body stream is copied in small chunks, without reading all of it
+     * into memory.
+     * @param outputStream The stream to write the body to.
+     * @throws IOException if the body stream could not be read, ended before the body length, or was read already
+     * and does not support reset, or if the output stream could not be written.
+     */
+    public void writeBody(OutputStream outputStream) throws IOException
+    {
+        if (this.bodyStream != null)
+        {
+            // Codes_SRS_MESSAGE_34_076: [If the body is a stream, the function shall copy the body length bytes of the stream to the output stream in chunks.]
+            InputStream stream = this.rewindBodyStream();
+            byte[] chunk = new byte[Math.min(BODY_STREAM_CHUNK_SIZE, Math.max(this.bodyLength, 1))];
+            int remaining = this.bodyLength;
+            while (remaining > 0)
+            {
+                int read = stream.read(chunk, 0, Math.min(chunk.length, remaining));
+                if (read < 0)
+                {
+                    // Codes_SRS_MESSAGE_34_077: [If the body stream ends before the body length, the function shall throw an IOException.]
+                    throw new IOException("Message body stream ended " + remaining + " bytes before the body length.");
+                }
+
+                outputStream.write(chunk, 0, read);
+                remaining -= read;
+            }
+        }
+        else if (this.body != null)
+        {
+            // Codes_SRS_MESSAGE_34_078: [If the body is not a stream, the function shall write the body to the output stream.]
+            outputStream.write(this.body, this.bodyOffset, this.bodyLength);
+        }
+    }
+
     /**
      * The byte content of the body.
      * @return A copy of this Message body, as a byte array.
      */
     public byte[] getBytes()
     {
+        this.readBodyStream();
+
         // Codes_SRS_MESSAGE_11_002: [The function shall return the message body.]
         byte[] bodyClone = null;
 
         if (this.body != null) {
-            bodyClone = Arrays.copyOf(this.body, this.body.length);
+            bodyClone = Arrays.copyOfRange(this.body, this.bodyOffset, this.bodyOffset + this.bodyLength);
         }
 
         return bodyClone;
     }
 
     /**
-     * Gets the values of user-defined properties of this Message.
-     * @param name Name of the user-defined property to search for.
-     * @return The value of the property if it is set, or null otherwise.
+     * A read only view of the body, which does not copy it.
+     * @return A buffer whose content between its position and its limit is this Message body, or null if the message
+     * has no body.
      */
-    public String getProperty(String name)
+    public ByteBuffer getBodyBuffer()
+    {
+        this.readBodyStream();
+
+        if (this.body == null)
+        {
+            // Codes_SRS_MESSAGE_34_066: [If the message has no body, the function shall return null.]
+            return null;
+        }
+
+        // Codes_SRS_MESSAGE_34_067: [The function shall return a read only buffer over the message body that does not copy it.]
+        return ByteBuffer.wrap(this.body, this.bodyOffset, this.bodyLength).slice().asReadOnlyBuffer();
+    }
+
+    /**
+     * The byte content of the body, as sent by the transports. Unlike {@link #getBytes()}, the returned array is the
+     * one this Message holds, so it shall not be modified. If the body is a part of a larger array, it is copied once
+     * into an array of its own, which later calls return again. The transports reach it through
+     * {@link MessageBodyAccessor}.
+     * @return This Message body, as a byte array, or null if the message has no body.
+     */
+    byte[] getBodyArray()
+    {
+        this.readBodyStream();
+
+        if (this.body == null)
+        {
+            // Codes_SRS_MESSAGE_34_068: [If the message has no body, the function shall return null.]
+            return null;
+        }
+
+        if (this.bodyOffset == 0 && this.bodyLength == this.body.length)
+        {
+            // Codes_SRS_MESSAGE_34_069: [If the body spans the whole array that holds it, the function shall return that array without copying it.]
+            return this.body;
+        }
+
+        // Codes_SRS_MESSAGE_34_070: [If the body is a part of a larger array, the function shall return a copy of that part, made by the first call and returned by the later ones.]
+        // The transports read the body more than once per send, so only the first read copies it. Threads that race
+        // on the first read may each copy the body, which is harmless since the copies are equal.
+        byte[] array = this.bodyArray;
+        if (array == null)
+        {
+            array = Arrays.copyOfRange(this.body, this.bodyOffset, this.bodyOffset + this.bodyLength);
+            this.bodyArray = array;
+        }
+
+        return array;
+    }
+
+    /**
+     * The array that holds the body, which is the {@link #getBodyLength()} bytes of it starting at
+     * {@link #getBodyOffset()}. The array is not copied, so it shall not be modified.
+     * @return The array that holds this Message body, or null if the message has no body.
+     */
+    byte[] getBodyBackingArray()
     {
-        MessageProperty messageProperty = null;
+        this.readBodyStream();
+
+        // Codes_SRS_MESSAGE_34_087: [The function shall return the array that holds the body without copying it, or null if the message has no body.]
+        return this.body;
+    }
 
-        for (MessageProperty currentMessageProperty: this.properties)
+    /**
+     * The offset of the body in the array returned by {@link #getBodyBackingArray()}.
+     * @return The index of the first byte of this Message body in the array that holds it.
+     */
+    int getBodyOffset()
+    {
+        // Codes_SRS_MESSAGE_34_088: [The function shall return the index of the first byte of the body in the array that holds it.]
+        return this.bodyOffset;
+    }
+
+    /**
+     * Reads the body stream, if any, into the body, in a single array of the body length.
+     */
+    private void readBodyStream()
+    {
+        if (this.bodyStream == null)
+        {
+            return;
+        }
+
+        // Codes_SRS_MESSAGE_34_079: [If the body is a stream, the functions that return the body shall first read the stream into a single array of the body length.]
+        byte[] streamedBody = new byte[this.bodyLength];
+        try
+        {
+            InputStream stream = this.rewindBodyStream();
+            int offset = 0;
+            while (offset < this.bodyLength)
+            {
+                int read = stream.read(streamedBody, offset, this.bodyLength - offset);
+                if (read < 0)
+                {
+                    throw new IOException("Message body stream ended " + (this.bodyLength - offset) + " bytes before the body length.");
+                }
+
+                offset += read;
+            }
+        }
+        catch (IOException e)
+        {
+            // Codes_SRS_MESSAGE_34_080: [If the body stream cannot be read, the functions that return the body shall throw an IllegalStateException.]
+            throw new IllegalStateException("Cannot read the message body from its stream", e);
+        }
+
+        this.body = streamedBody;
+        this.bodyStream = null;
+    }
+
+    /**
+     * Returns the body stream positioned at the start of the body. The stream is marked the first time so that a
+     * send that is retried can read the body again.
+     */
+    private InputStream rewindBodyStream() throws IOException
+    {
+        if (!this.bodyStreamRead)
         {
-            if (currentMessageProperty.hasSameName(name))
+            // Codes_SRS_MESSAGE_34_081: [The body stream shall be marked before it is first read, if it supports mark.]
+            if (this.bodyStream.markSupported())
             {
-                messageProperty = currentMessageProperty;
-                break;
+                this.bodyStream.mark(this.bodyLength);
             }
+
+            this.bodyStreamRead = true;
+        }
+        else if (this.bodyStream.markSupported())
+        {
+            // Codes_SRS_MESSAGE_34_082: [If the body stream was read already, it shall be reset to its mark before it is read again.]
+            this.bodyStream.reset();
         }
+        else
+        {
+            // Codes_SRS_MESSAGE_34_083: [If the body stream was read already and does not support mark, reading it again shall throw an IOException.]
+            throw new IOException("Message body stream was read already and does not support reset.");
+        }
+
+        return this.bodyStream;
+    }
+
+    /**
+     * Gets the values of user-defined properties of this Message.
+     * @param name Name of the user-defined property to search for.
+     * @return The value of the property if it is set, or null otherwise.
+     */
+    public String getProperty(String name)
+    {
+        MessageProperty messageProperty = this.properties.get(name);
 
         // Codes_SRS_MESSAGE_11_034: [If no value associated with the property name is found, the function shall return null.]
         if (messageProperty == null) {
@@ -273,24 +550,8 @@ public class Message
         }
 
         // Codes_SRS_MESSAGE_11_026: [The function shall set the message property to the given value.]
-        MessageProperty messageProperty = null;
-
-        for (MessageProperty currentMessageProperty: this.properties)
-        {
-            if (currentMessageProperty.hasSameName(name))
-            {
-                messageProperty = currentMessageProperty;
-                break;
-            }
-        }
-
-        if (messageProperty != null)
-        {
-            this.properties.remove(messageProperty);
-        }
-
-        logger.LogInfo("Setting message property with name=%s and value=%s, method name is %s ", name, value, logger.getMethodName());
-        this.properties.add(new MessageProperty(name, value));
+        // Codes_SRS_MESSAGE_34_084: [If a property with the same name exists, the function shall replace it in place, keeping the order in which the properties were first set.]
+        this.properties.put(name, new MessageProperty(name, value));
     }
 
     /**
@@ -301,7 +562,20 @@ public class Message
     public MessageProperty[] getProperties()
     {
         // Codes_SRS_MESSAGE_11_033: [The function shall return a copy of the message properties.]
-        return properties.toArray(new MessageProperty[this.properties.size()]);
+        return this.properties.toArray();
+    }
+
+    /**
+     * Returns the user-defined properties as {@code name=value} pairs separated by {@code &}, with the values URL
+     * encoded in UTF-8. The string is built once and reused until a property is set again.
+     *
+     * @return the encoded properties, or an empty string if the message has no property with a non-empty value.
+     */
+    public String getUrlEncodedProperties()
+    {
+        // Codes_SRS_MESSAGE_34_085: [The function shall return the properties with a non-empty value as name=value pairs separated by '&', in the order they were first set, with the values URL encoded in UTF-8.]
+        // Codes_SRS_MESSAGE_34_086: [The function shall build the string once and return the same string until a property is set.]
+        return this.properties.toUrlEncodedString();
     }
 
     // ----- Private Methods -----
@@ -316,8 +590,7 @@ public class Message
         this.correlationId = UUID.randomUUID().toString();
         this.feedbackStatusCode = FeedbackStatusCodeEnum.none;
         this.ack = FeedbackStatusCodeEnum.none;
-        this.properties = new ArrayList<>();
-        this.logger = new CustomLogger(this.getClass());
+        this.properties = new MessagePropertyTable();
     }
 
     /**
@@ -339,7 +612,7 @@ public class Message
             long currentTime = System.currentTimeMillis();
             if (currentTime > expiryTime)
             {
-                logger.LogWarn("The message with messageid %s expired on %s, method name is %s ", this.getMessageId(), new Date(), logger.getMethodName());
+                logger.LogWarn("The message with messageid %s expired on %s, method name is isExpired ", this.getMessageId(), new Date());
                 messageExpired = true;
             }
             else
@@ -406,7 +679,10 @@ public class Message
         // Codes_SRS_MESSAGE_34_047: [The function shall set the message's expiry time.]
         long currentTime = System.currentTimeMillis();
         this.expiryTime = currentTime + timeOut;
-        logger.LogInfo("The message with messageid %s has expiry time as %s milliseconds and the message will expire on %s, method name is %s ", this.getMessageId(), timeOut, new Date(this.expiryTime), logger.getMethodName());
+        if (logger.isInfoEnabled())
+        {
+            logger.LogInfo("The message with messageid %s has expiry time as %s milliseconds and the message will expire on %s, method name is setExpiryTime ", this.getMessageId(), timeOut, new Date(this.expiryTime));
+        }
     }
 
     /**
@@ -423,7 +699,10 @@ public class Message
 
         // Codes_SRS_MESSAGE_34_037: [The function shall set the message's expiry time to be the number of milliseconds since the epoch provided in absoluteTimeout.]
         this.expiryTime = absoluteTimeout;
-        logger.LogInfo("The message with messageid %s has expiry time as %s milliseconds and the message will expire on %s, method name is %s ", this.getMessageId(), absoluteTimeout, new Date(this.expiryTime), logger.getMethodName());
+        if (logger.isInfoEnabled())
+        {
+            logger.LogInfo("The message with messageid %s has expiry time as %s milliseconds and the message will expire on %s, method name is setAbsoluteExpiryTime ", this.getMessageId(), absoluteTimeout, new Date(this.expiryTime));
+        }
     }
 
     /**
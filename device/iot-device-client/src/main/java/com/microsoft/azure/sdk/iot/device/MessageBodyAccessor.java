@@ -0,0 +1,51 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See LICENSE file in the project root for full license information.
+
+package com.microsoft.azure.sdk.iot.device;
+
+/**
+ * Gives the transports of this SDK the arrays that hold a {@link Message} body, without copying them. The arrays are
+ * the ones the Message holds, so they shall not be modified. This class is meant for the SDK itself, not for
+ * applications, which should read the body through {@link Message#getBytes()} or {@link Message#getBodyBuffer()}.
+ */
+public final class MessageBodyAccessor
+{
+    private MessageBodyAccessor()
+    {
+    }
+
+    /**
+     * The body of the provided message in an array of its own, which is copied once if the body is a part of a
+     * larger array.
+     * @param message the message to read the body of.
+     * @return The message body, or null if the message has no body.
+     */
+    public static byte[] getBodyArray(Message message)
+    {
+        // Codes_SRS_MESSAGEBODYACCESSOR_34_001: [The function shall return the result of getBodyArray on the provided message.]
+        return message.getBodyArray();
+    }
+
+    /**
+     * The array that holds the body of the provided message, which is {@link Message#getBodyLength()} bytes long and
+     * starts at {@link #getBodyOffset(Message)}.
+     * @param message the message to read the body of.
+     * @return The array that holds the message body, or null if the message has no body.
+     */
+    public static byte[] getBodyBackingArray(Message message)
+    {
+        // Codes_SRS_MESSAGEBODYACCESSOR_34_002: [The function shall return the result of getBodyBackingArray on the provided message.]
+        return message.getBodyBackingArray();
+    }
+
+    /**
+     * The offset of the body of the provided message in the array returned by {@link #getBodyBackingArray(Message)}.
+     * @param message the message to read the body offset of.
+     * @return The index of the first byte of the message body in the array that holds it.
+     */
+    public static int getBodyOffset(Message message)
+    {
+        // Codes_SRS_MESSAGEBODYACCESSOR_34_003: [The function shall return the result of getBodyOffset on the provided message.]
+        return message.getBodyOffset();
+    }
+}
@@ -55,11 +55,13 @@ public final class MessageProperty {
         RESERVED_PROPERTY_NAMES = Collections.unmodifiableSet(reservedPropertyNames);
     }
 
+    static final char MAX_ASCII_CHARACTER = 0x7F;
+
     /** The property name. */
     private String name;
     /** The property value. */
     private String value;
-    private CustomLogger logger;
+    private static final CustomLogger logger = new CustomLogger(MessageProperty.class);
     
     /**
      * Constructor.
@@ -72,27 +74,26 @@ public final class MessageProperty {
      * A message property name cannot be one of the reserved property names.
      */
     public MessageProperty(String name, String value) {
-        this.logger = new CustomLogger(this.getClass());
         if (name == null) {
-            logger.LogError("Property argument 'name' cannot be null, method name is %s ", logger.getMethodName());
+            logger.LogError("Property argument 'name' cannot be null, method name is MessageProperty ");
             throw new IllegalArgumentException("Property argument 'name' cannot be null.");
         }
 
         if (value == null) {
-            logger.LogError("Property argument 'value' cannot be null, method name is %s ", logger.getMethodName());
+            logger.LogError("Property argument 'value' cannot be null, method name is MessageProperty ");
             throw new IllegalArgumentException("Property argument 'value' cannot be null.");
         }
 
         // Codes_SRS_MESSAGEPROPERTY_11_002: [If the name contains a character that is not in US-ASCII, the function shall throw an IllegalArgumentException.]
         if (!usesValidChars(name)) {
-            logger.LogError("%s is not a valid IoT Hub message property name, method name is %s ", name, logger.getMethodName());
+            logger.LogError("%s is not a valid IoT Hub message property name, method name is MessageProperty ", name);
             String errMsg = String.format("%s is not a valid IoT Hub message property name. %n", name);
             throw new IllegalArgumentException(errMsg);
         }
 
         // Codes_SRS_MESSAGEPROPERTY_11_008: [If the name is a reserved property name, the function shall throw an IllegalArgumentException.]
         if (RESERVED_PROPERTY_NAMES.contains(name)) {
-            logger.LogError("%s is a reserved IoT Hub message property name, method name is %s ", name, logger.getMethodName());
+            logger.LogError("%s is a reserved IoT Hub message property name, method name is MessageProperty ", name);
             String errMsg = String.format("%s is a reserved IoT Hub message property name.%n", name);
             throw new IllegalArgumentException(errMsg);
         }
@@ -100,7 +101,7 @@ public final class MessageProperty {
         // Codes_SRS_MESSAGEPROPERTY_11_003: [If the value contains a character that is not in US-ASCII, the function shall throw an IllegalArgumentException.]
         if (!usesValidChars(value))
         {
-            logger.LogError("%s is not a valid IoT Hub message property value, method name is %s ", value, logger.getMethodName());
+            logger.LogError("%s is not a valid IoT Hub message property value, method name is MessageProperty ", value);
             String errMsg = String.format("%s is not a valid IoT Hub message property value.%n", value);
             throw new IllegalArgumentException(errMsg);
         }
@@ -199,14 +200,16 @@ public final class MessageProperty {
      * @return whether the string only uses US-ASCII 
      */
     private static boolean usesValidChars(String s) {
-        boolean isValid = false;
-
-        if (s.matches("\\p{ASCII}*"))
+        // a plain loop instead of a regular expression, which would be compiled again for every property
+        for (int i = 0; i < s.length(); i++)
         {
-            isValid = true;
+            if (s.charAt(i) > MAX_ASCII_CHARACTER)
+            {
+                return false;
+            }
         }
 
-        return isValid;
+        return true;
     }
 
     @SuppressWarnings("unused")
@@ -0,0 +1,196 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See LICENSE file in the project root for full license information.
+
+package com.microsoft.azure.sdk.iot.device;
+
+import com.microsoft.azure.sdk.iot.device.net.UrlEncoding;
+
+import java.io.UnsupportedEncodingException;
+import java.util.Arrays;
+
+/**
+ * The user-defined properties of a {@link Message}. The properties are kept in the order they were first set, and an
+ * open-addressing table of their case-insensitive names finds them without scanning the others. The URL encoded form
+ * of the properties is built once and reused until a property is set again.
+ */
+final class MessagePropertyTable
+{
+    private static final int INITIAL_CAPACITY = 8;
+    private static final char PROPERTY_SEPARATOR = '&';
+    private static final char KEY_VALUE_SEPARATOR = '=';
+
+    private MessageProperty[] entries;
+    private int[] entryHashes;
+    // The index of each entry plus one, at the slot of its hash; 0 marks an empty slot. The table is never more than
+    // half full, so probing always reaches an empty slot.
+    private int[] slots;
+    private int size;
+
+    private String urlEncodedProperties;
+
+    /**
+     * Returns the property with the provided name.
+     * @param name the name of the property, compared in a case-insensitive manner
+     * @return the property, or null if there is no property with this name
+     */
+    MessageProperty get(String name)
+    {
+        int index = indexOf(name, hashOf(name));
+        return index < 0 ? null : this.entries[index];
+    }
+
+    /**
+     * Adds the property, or replaces the property with the same name in place.
+     * @param name the name of the property, compared in a case-insensitive manner
+     * @param property the property to save
+     */
+    void put(String name, MessageProperty property)
+    {
+        int hash = hashOf(name);
+        int index = indexOf(name, hash);
+        if (index >= 0)
+        {
+            this.entries[index] = property;
+        }
+        else
+        {
+            if (this.entries == null)
+            {
+                this.entries = new MessageProperty[INITIAL_CAPACITY];
+                this.entryHashes = new int[INITIAL_CAPACITY];
+                this.slots = new int[INITIAL_CAPACITY * 2];
+            }
+            else if (this.size == this.entries.length)
+            {
+                grow();
+            }
+
+            this.entries[this.size] = property;
+            this.entryHashes[this.size] = hash;
+            this.size++;
+            addSlot(hash, this.size);
+        }
+
+        this.urlEncodedProperties = null;
+    }
+
+    /**
+     * Returns the properties in the order they were first set.
+     * @return a new array holding the properties
+     */
+    MessageProperty[] toArray()
+    {
+        if (this.size == 0)
+        {
+            return new MessageProperty[0];
+        }
+
+        return Arrays.copyOf(this.entries, this.size);
+    }
+
+    /**
+     * Returns the properties as {@code name=value} pairs separated by {@code &}, where the values are URL encoded in
+     * UTF-8 and properties with empty values are left out.
+     * @return the encoded properties, or an empty string if there are none to encode
+     */
+    String toUrlEncodedString()
+    {
+        if (this.urlEncodedProperties == null)
+        {
+            StringBuilder builder = new StringBuilder();
+            for (int i = 0; i < this.size; i++)
+            {
+                String value = this.entries[i].getValue();
+                if (value != null && !value.isEmpty())
+                {
+                    if (builder.length() > 0)
+                    {
+                        builder.append(PROPERTY_SEPARATOR);
+                    }
+
+                    builder.append(this.entries[i].getName());
+                    builder.append(KEY_VALUE_SEPARATOR);
+                    try
+                    {
+                        UrlEncoding.appendEncoded(builder, value);
+                    }
+                    catch (UnsupportedEncodingException e)
+                    {
+                        // should never happen, since the encoding is hard-coded.
+                        throw new IllegalStateException(e);
+                    }
+                }
+            }
+
+            this.urlEncodedProperties = builder.toString();
+        }
+
+        return this.urlEncodedProperties;
+    }
+
+    private int indexOf(String name, int hash)
+    {
+        if (this.slots == null)
+        {
+            return -1;
+        }
+
+        int mask = this.slots.length - 1;
+        for (int slot = hash & mask; this.slots[slot] != 0; slot = (slot + 1) & mask)
+        {
+            int index = this.slots[slot] - 1;
+            if (this.entryHashes[index] == hash && this.entries[index].hasSameName(name))
+            {
+                return index;
+            }
+        }
+
+        return -1;
+    }
+
+    private void addSlot(int hash, int slotValue)
+    {
+        int mask = this.slots.length - 1;
+        int slot = hash & mask;
+        while (this.slots[slot] != 0)
+        {
+            slot = (slot + 1) & mask;
+        }
+
+        this.slots[slot] = slotValue;
+    }
+
+    private void grow()
+    {
+        int capacity = this.entries.length * 2;
+        this.entries = Arrays.copyOf(this.entries, capacity);
+        this.entryHashes = Arrays.copyOf(this.entryHashes, capacity);
+        this.slots = new int[capacity * 2];
+        for (int i = 0; i < this.size; i++)
+        {
+            addSlot(this.entryHashes[i], i + 1);
+        }
+    }
+
+    // Folds the case of each character the way String.equalsIgnoreCase compares them
+    private static int hashOf(String name)
+    {
+        int hash = 0;
+        for (int i = 0; i < name.length(); i++)
+        {
+            char character = name.charAt(i);
+            if (character >= 'A' && character <= 'Z')
+            {
+                character = (char) (character + ('a' - 'A'));
+            }
+            else if (character > MessageProperty.MAX_ASCII_CHARACTER)
+            {
+                character = Character.toLowerCase(Character.toUpperCase(character));
+            }
+
+            hash = 31 * hash + character;
+        }
+
+        return hash ^ (hash >>> 16);
+    }
+}
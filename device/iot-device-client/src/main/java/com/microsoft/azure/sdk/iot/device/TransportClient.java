@@ -71,7 +71,7 @@ public class TransportClient
 
         this.logger = new CustomLogger(this.getClass());
 
-        logger.LogInfo("TransportClient object is created successfully, method name is %s ", logger.getMethodName());
+        logger.LogInfo("TransportClient object is created successfully, method name is TransportClient ");
     }
 
     /**
@@ -113,7 +113,7 @@ public class TransportClient
 
         this.transportClientState = TransportClientState.OPENED;
 
-        logger.LogInfo("TransportClient is opened successfully, method name is %s ", logger.getMethodName());
+        logger.LogInfo("TransportClient is opened successfully, method name is open ");
     }
 
     /**
@@ -139,7 +139,13 @@ public class TransportClient
             this.deviceIO = null;
         }
 
-        logger.LogInfo("Connection closed with success, method name is %s ", logger.getMethodName());
+        // Codes_SRS_TRANSPORTCLIENT_34_001: [The function shall release the ssl contexts of all registered devices to the shared cache.]
+        for (int i = 0; i < this.deviceClientList.size(); i++)
+        {
+            deviceClientList.get(i).getConfig().getAuthenticationProvider().releaseSSLContext();
+        }
+
+        logger.LogInfo("Connection closed with success, method name is closeNow ");
     }
 
     /***
@@ -165,7 +171,7 @@ public class TransportClient
         // Codes_SRS_TRANSPORTCLIENT_12_018: [The function shall set the new interval on the underlying device IO it the transport client is not open.]
         this.deviceIO.setSendPeriodInMilliseconds(newIntervalInMilliseconds);
 
-        logger.LogInfo("Send interval updated successfully in the transport client, method name is %s ", logger.getMethodName());
+        logger.LogInfo("Send interval updated successfully in the transport client, method name is setSendInterval ");
     }
 
     /**
@@ -190,7 +196,7 @@ public class TransportClient
             deviceClientList.get(i).getConfig().setRetryPolicy(retryPolicy);
         }
 
-        logger.LogInfo("Retry policy updated successfully in the transport client, method name is %s ", logger.getMethodName());
+        logger.LogInfo("Retry policy updated successfully in the transport client, method name is setRetryPolicy ");
     }
 
     /**
@@ -216,7 +222,7 @@ public class TransportClient
         // Codes_SRS_TRANSPORTCLIENT_12_007: [The function shall add the given device client to the deviceClientList.]
         this.deviceClientList.add(deviceClient);
 
-        logger.LogInfo("DeviceClient is added successfully to the transport client, method name is %s ", logger.getMethodName());
+        logger.LogInfo("DeviceClient is added successfully to the transport client, method name is registerDeviceClient ");
     }
 
     /**
@@ -6,6 +6,7 @@
 package com.microsoft.azure.sdk.iot.device.auth;
 
 import com.microsoft.azure.sdk.iot.deps.auth.IotHubSSLContext;
+import com.microsoft.azure.sdk.iot.deps.auth.IotHubSSLContextCache;
 import com.microsoft.azure.sdk.iot.device.exceptions.TransportException;
 
 import javax.net.ssl.SSLContext;
@@ -37,8 +38,15 @@ public abstract class IotHubAuthenticationProvider
             if (this.iotHubSSLContext == null || this.sslContextNeedsUpdate)
             {
                 //Codes_SRS_AUTHENTICATIONPROVIDER_34_010: [If this object's ssl context has not been generated yet or if it needs to be re-generated, this function shall regenerate the ssl context.]
+                IotHubSSLContext previousSSLContext = this.iotHubSSLContext;
                 this.iotHubSSLContext = generateSSLContext();
                 this.sslContextNeedsUpdate = false;
+
+                if (previousSSLContext != null)
+                {
+                    //Codes_SRS_AUTHENTICATIONPROVIDER_34_065: [If this function regenerated the ssl context, it shall release the previous one to the shared cache.]
+                    IotHubSSLContextCache.release(previousSSLContext);
+                }
             }
 
             //Codes_SRS_AUTHENTICATIONPROVIDER_34_011: [This function shall return the generated IotHubSSLContext.]
@@ -51,6 +59,20 @@ public abstract class IotHubAuthenticationProvider
         }
     }
 
+    /**
+     * Releases the ssl context of this object to the cache it shares with the other clients of this process, so that
+     * the cache can drop it once no client uses it. The next call to {@link #getSSLContext()} acquires it again. Ssl
+     * contexts that were not taken from the cache, such as those of hardware security providers, are kept.
+     */
+    public void releaseSSLContext()
+    {
+        if (this.iotHubSSLContext != null && IotHubSSLContextCache.release(this.iotHubSSLContext))
+        {
+            //Codes_SRS_AUTHENTICATIONPROVIDER_34_066: [If this object's ssl context was acquired from the shared cache, this function shall release it and forget it.]
+            this.iotHubSSLContext = null;
+        }
+    }
+
     /**
      * Setter for the providing trusted certificate.
      * @param pathToCertificate path to the certificate for one way authentication.
@@ -160,18 +182,18 @@ public abstract class IotHubAuthenticationProvider
     {
         if (this.iotHubTrustedCert != null)
         {
-            // Codes_SRS_AUTHENTICATIONPROVIDER_34_019: [If this has a saved iotHubTrustedCert, this function shall generate a new IotHubSSLContext object with that saved cert as the trusted cert.]
-            return new IotHubSSLContext(this.iotHubTrustedCert, false);
+            // Codes_SRS_AUTHENTICATIONPROVIDER_34_019: [If this has a saved iotHubTrustedCert, this function shall acquire the shared IotHubSSLContext object with that saved cert as the trusted cert.]
+            return IotHubSSLContextCache.acquire(this.iotHubTrustedCert, false);
         }
         else if (this.pathToIotHubTrustedCert != null)
         {
-            // Codes_SRS_AUTHENTICATIONPROVIDER_34_020: [If this has a saved path to a iotHubTrustedCert, this function shall generate a new IotHubSSLContext object with that saved cert path as the trusted cert.]
-            return new IotHubSSLContext(this.pathToIotHubTrustedCert, true);
+            // Codes_SRS_AUTHENTICATIONPROVIDER_34_020: [If this has a saved path to a iotHubTrustedCert, this function shall acquire the shared IotHubSSLContext object with that saved cert path as the trusted cert.]
+            return IotHubSSLContextCache.acquire(this.pathToIotHubTrustedCert, true);
         }
         else
         {
-            // Codes_SRS_AUTHENTICATIONPROVIDER_34_021: [If this has no saved iotHubTrustedCert or path, This function shall create and save a new default IotHubSSLContext object.]
-            return new IotHubSSLContext();
+            // Codes_SRS_AUTHENTICATIONPROVIDER_34_021: [If this has no saved iotHubTrustedCert or path, This function shall acquire the shared default IotHubSSLContext object.]
+            return IotHubSSLContextCache.acquire(null, false);
         }
     }
 }
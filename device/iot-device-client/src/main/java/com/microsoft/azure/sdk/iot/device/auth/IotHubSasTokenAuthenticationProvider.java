@@ -32,7 +32,8 @@ public abstract class IotHubSasTokenAuthenticationProvider extends IotHubAuthent
 
     protected static final String ENCODING_FORMAT_NAME = StandardCharsets.UTF_8.displayName();
 
-    protected IotHubSasToken sasToken;
+    // Replaced by the thread that renews it and read by the transport threads
+    protected volatile IotHubSasToken sasToken;
 
     public abstract boolean canRefreshToken();
     public abstract String getRenewedSasToken() throws IOException, TransportException;
@@ -6,6 +6,7 @@
 package com.microsoft.azure.sdk.iot.device.auth;
 
 import com.microsoft.azure.sdk.iot.deps.auth.IotHubSSLContext;
+import com.microsoft.azure.sdk.iot.deps.auth.IotHubSSLContextCache;
 
 import javax.net.ssl.SSLContext;
 import java.io.IOException;
@@ -53,8 +54,15 @@ public class IotHubX509SoftwareAuthenticationProvider extends IotHubAuthenticati
             if (this.iotHubSSLContext == null || this.sslContextNeedsUpdate)
             {
                 //Codes_SRS_IOTHUBX509SOFTWAREAUTHENTICATION_34_003: [If this object's ssl context has not been generated yet, this function shall generate it from the saved security provider.]
+                IotHubSSLContext previousSSLContext = this.iotHubSSLContext;
                 this.iotHubSSLContext = generateSSLContext();
                 this.sslContextNeedsUpdate = false;
+
+                if (previousSSLContext != null)
+                {
+                    //Codes_SRS_IOTHUBX509SOFTWAREAUTHENTICATION_34_065: [If this function regenerated the ssl context, it shall release the previous one to the shared cache.]
+                    IotHubSSLContextCache.release(previousSSLContext);
+                }
             }
 
             //Codes_SRS_IOTHUBX509SOFTWAREAUTHENTICATION_34_005: [This function shall return the saved IotHubSSLContext.]
@@ -82,18 +90,18 @@ public class IotHubX509SoftwareAuthenticationProvider extends IotHubAuthenticati
     {
         if (this.iotHubTrustedCert != null)
         {
-            // Codes_SRS_IOTHUBX509AUTHENTICATION_34_019: [If this has a saved iotHubTrustedCert, this function shall generate a new IotHubSSLContext object with that saved cert as the trusted cert and with the saved public and private key combo.]
-            return new IotHubSSLContext(this.iotHubX509.getPublicKeyCertificate(), this.iotHubX509.getPrivateKey(), this.iotHubTrustedCert, false);
+            // Codes_SRS_IOTHUBX509AUTHENTICATION_34_019: [If this has a saved iotHubTrustedCert, this function shall acquire the shared IotHubSSLContext object with that saved cert as the trusted cert and with the saved public and private key combo.]
+            return IotHubSSLContextCache.acquire(this.iotHubX509.getPublicKeyCertificate(), this.iotHubX509.getPrivateKey(), this.iotHubTrustedCert, false);
         }
         else if (this.pathToIotHubTrustedCert != null)
         {
-            // Codes_SRS_IOTHUBX509AUTHENTICATION_34_020: [If this has a saved path to a iotHubTrustedCert, this function shall generate a new IotHubSSLContext object with that saved cert path as the trusted cert and with the saved public and private key combo.]
-            return new IotHubSSLContext(this.iotHubX509.getPublicKeyCertificate(), this.iotHubX509.getPrivateKey(), this.pathToIotHubTrustedCert, true);
+            // Codes_SRS_IOTHUBX509AUTHENTICATION_34_020: [If this has a saved path to a iotHubTrustedCert, this function shall acquire the shared IotHubSSLContext object with that saved cert path as the trusted cert and with the saved public and private key combo.]
+            return IotHubSSLContextCache.acquire(this.iotHubX509.getPublicKeyCertificate(), this.iotHubX509.getPrivateKey(), this.pathToIotHubTrustedCert, true);
         }
         else
         {
-            // Codes_SRS_IOTHUBX509AUTHENTICATION_34_021: [If this has no saved iotHubTrustedCert or path, This function shall create and save a new IotHubSSLContext object with the saved public and private key combo.]
-            return new IotHubSSLContext(this.iotHubX509.getPublicKeyCertificate(), this.iotHubX509.getPrivateKey());
+            // Codes_SRS_IOTHUBX509AUTHENTICATION_34_021: [If this has no saved iotHubTrustedCert or path, This function shall acquire the shared IotHubSSLContext object with the default trusted certs and the saved public and private key combo.]
+            return IotHubSSLContextCache.acquire(this.iotHubX509.getPublicKeyCertificate(), this.iotHubX509.getPrivateKey(), null, false);
         }
     }
 }
@@ -0,0 +1,78 @@
+/*
+ *  Copyright (c) Microsoft. All rights reserved.
+ *  Licensed under the MIT license. See LICENSE file in the project root for full license information.
+ */
+
+package com.microsoft.azure.sdk.iot.device.hsm;
+
+import java.lang.ref.WeakReference;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Renews the sas tokens of every {@link IotHubSasTokenHsmAuthenticationProvider} of the process ahead of their
+ * expiry. The renewals run one after another on a single daemon thread, so that the providers of a process never
+ * send more than one renewal to the HSM at a time, and a provider that is no longer used is not kept alive by the
+ * renewal it has scheduled.
+ */
+final class HsmSasTokenRenewalScheduler
+{
+    private static final String THREAD_NAME = "azure-iot-sdk-HsmSasTokenRenewal";
+
+    // Created on first use, so that processes without an HSM provider do not start the thread
+    private static final class SchedulerHolder
+    {
+        private static final ScheduledThreadPoolExecutor scheduler = createScheduler();
+    }
+
+    private HsmSasTokenRenewalScheduler()
+    {
+    }
+
+    /**
+     * Schedules the renewal of the sas token of the provided authentication provider.
+     * @param authenticationProvider the provider to renew the sas token of
+     * @param delayMilliseconds the time to wait before renewing
+     * @return the scheduled renewal, to be cancelled if the provider schedules another one
+     */
+    static ScheduledFuture<?> schedule(IotHubSasTokenHsmAuthenticationProvider authenticationProvider, long delayMilliseconds)
+    {
+        // Codes_SRS_HSMSASTOKENRENEWALSCHEDULER_34_001: [This function shall schedule the renewal on the shared
+        // scheduler thread, holding the provider only through a weak reference.]
+        final WeakReference<IotHubSasTokenHsmAuthenticationProvider> providerReference = new WeakReference<>(authenticationProvider);
+        return SchedulerHolder.scheduler.schedule(new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                IotHubSasTokenHsmAuthenticationProvider provider = providerReference.get();
+                if (provider != null)
+                {
+                    // Codes_SRS_HSMSASTOKENRENEWALSCHEDULER_34_002: [When the delay has passed, the renewal shall
+                    // renew the sas token of the provider, unless the provider was garbage collected.]
+                    provider.renewSasTokenAheadOfExpiry();
+                }
+            }
+        }, delayMilliseconds, TimeUnit.MILLISECONDS);
+    }
+
+    private static ScheduledThreadPoolExecutor createScheduler()
+    {
+        ScheduledThreadPoolExecutor scheduler = new ScheduledThreadPoolExecutor(1, new ThreadFactory()
+        {
+            @Override
+            public Thread newThread(Runnable runnable)
+            {
+                Thread thread = new Thread(runnable, THREAD_NAME);
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+
+        // A provider cancels its renewal whenever its token was renewed, so the cancelled renewals would pile up
+        scheduler.setRemoveOnCancelPolicy(true);
+        return scheduler;
+    }
+}
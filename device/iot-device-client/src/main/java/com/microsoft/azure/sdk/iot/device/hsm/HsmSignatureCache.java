@@ -0,0 +1,275 @@
+/*
+ *  Copyright (c) Microsoft. All rights reserved.
+ *  Licensed under the MIT license. See LICENSE file in the project root for full license information.
+ */
+
+package com.microsoft.azure.sdk.iot.device.hsm;
+
+import com.microsoft.azure.sdk.iot.device.auth.SignatureProvider;
+import com.microsoft.azure.sdk.iot.device.exceptions.TransportException;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.URISyntaxException;
+import java.util.Iterator;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+
+/**
+ * Sas token signatures from the HSM, shared by every {@link IotHubSasTokenHsmAuthenticationProvider} of the process.
+ * A scope is the audience of a sas token together with the signature provider, key, generation id and time to live
+ * it is signed with. The signature of a scope is reused for new sas tokens until it is near its expiry, and concurrent
+ * requests for a scope without a usable signature wait for one request to the HSM instead of sending one each.
+ */
+final class HsmSignatureCache
+{
+    private static final long MILLISECONDS_PER_SECOND = 1000L;
+
+    private static final ConcurrentMap<Scope, Entry> entries = new ConcurrentHashMap<>();
+
+    private HsmSignatureCache()
+    {
+    }
+
+    /**
+     * Returns a signature of the provided audience, from the cache if the cached signature lives for longer than the
+     * provided renewal window, and from the signature provider otherwise.
+     * @param signatureProvider the signature provider to sign with
+     * @param keyName the key to sign with
+     * @param generationId the generation id of the key
+     * @param audience the audience of the sas token to sign
+     * @param timeToLiveSeconds the time a new signature lives for
+     * @param renewalWindowSeconds the time before its expiry from which a signature is no longer reused
+     * @return the signature and its expiry time
+     * @throws IOException if the signing party cannot be reached, or the thread is interrupted while waiting for it
+     * @throws TransportException if the signing party cannot be reached
+     * @throws URISyntaxException if the url for the signing party cannot be parsed
+     * @throws HsmException if the signing party fails to sign
+     */
+    static Signature sign(final SignatureProvider signatureProvider, final String keyName, final String generationId, final String audience, final long timeToLiveSeconds, long renewalWindowSeconds)
+            throws IOException, TransportException, URISyntaxException, HsmException
+    {
+        Scope scope = new Scope(signatureProvider, keyName, generationId, audience, timeToLiveSeconds);
+        Entry entry = entries.get(scope);
+        if (entry == null)
+        {
+            Entry newEntry = new Entry();
+            entry = entries.putIfAbsent(scope, newEntry);
+            if (entry == null)
+            {
+                entry = newEntry;
+            }
+        }
+
+        FutureTask<Signature> request;
+        boolean sendsRequest = false;
+        synchronized (entry)
+        {
+            long currentTimeSeconds = System.currentTimeMillis() / MILLISECONDS_PER_SECOND;
+            if (entry.signature != null && entry.signature.expiryTime - currentTimeSeconds > renewalWindowSeconds)
+            {
+                // Codes_SRS_HSMSIGNATURECACHE_34_001: [If the cached signature of the scope expires after the renewal
+                // window, this function shall return it without calling the signature provider.]
+                return entry.signature;
+            }
+
+            if (entry.pendingRequest == null)
+            {
+                // Codes_SRS_HSMSIGNATURECACHE_34_002: [If there is no usable signature and no pending request for the
+                // scope, this function shall sign "<audience>\n<expiry time>" with the signature provider, where the
+                // expiry time is the current time plus the time to live.]
+                final Entry requestEntry = entry;
+                entry.pendingRequest = new FutureTask<>(new Callable<Signature>()
+                {
+                    @Override
+                    public Signature call() throws Exception
+                    {
+                        Signature signature = null;
+                        try
+                        {
+                            long expiryTime = (System.currentTimeMillis() / MILLISECONDS_PER_SECOND) + timeToLiveSeconds;
+                            signature = new Signature(signatureProvider.sign(keyName, audience + "\n" + expiryTime, generationId), expiryTime);
+                            return signature;
+                        }
+                        finally
+                        {
+                            // Cached in the same step that ends the request, so that a caller finds one or the other
+                            synchronized (requestEntry)
+                            {
+                                requestEntry.pendingRequest = null;
+                                if (signature != null)
+                                {
+                                    requestEntry.signature = signature;
+                                }
+                            }
+                        }
+                    }
+                });
+                sendsRequest = true;
+            }
+
+            // Codes_SRS_HSMSIGNATURECACHE_34_003: [If a request for the scope is pending, this function shall wait for
+            // its signature instead of calling the signature provider.]
+            request = entry.pendingRequest;
+        }
+
+        if (sendsRequest)
+        {
+            request.run();
+        }
+
+        Signature signature = awaitSignature(request);
+        if (sendsRequest)
+        {
+            removeExpiredEntries();
+        }
+
+        return signature;
+    }
+
+    private static Signature awaitSignature(FutureTask<Signature> request) throws IOException, TransportException, URISyntaxException, HsmException
+    {
+        try
+        {
+            return request.get();
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for the HSM to sign");
+        }
+        catch (ExecutionException e)
+        {
+            // Codes_SRS_HSMSIGNATURECACHE_34_004: [If the signature provider fails, this function shall throw its
+            // exception to every caller waiting for that request, and shall not cache anything.]
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException)
+            {
+                throw (IOException) cause;
+            }
+            else if (cause instanceof TransportException)
+            {
+                throw (TransportException) cause;
+            }
+            else if (cause instanceof URISyntaxException)
+            {
+                throw (URISyntaxException) cause;
+            }
+            else if (cause instanceof HsmException)
+            {
+                throw (HsmException) cause;
+            }
+            else if (cause instanceof RuntimeException)
+            {
+                throw (RuntimeException) cause;
+            }
+            else if (cause instanceof Error)
+            {
+                throw (Error) cause;
+            }
+
+            throw new IOException(cause);
+        }
+    }
+
+    // Drops the scopes that nobody renewed before their signature expired, such as those of closed clients
+    private static void removeExpiredEntries()
+    {
+        long currentTimeSeconds = System.currentTimeMillis() / MILLISECONDS_PER_SECOND;
+        Iterator<Entry> iterator = entries.values().iterator();
+        while (iterator.hasNext())
+        {
+            Entry entry = iterator.next();
+            synchronized (entry)
+            {
+                if (entry.pendingRequest == null && entry.signature != null && entry.signature.expiryTime <= currentTimeSeconds)
+                {
+                    iterator.remove();
+                }
+            }
+        }
+    }
+
+    /**
+     * A signature from the HSM and the expiry time that was signed with it.
+     */
+    static final class Signature
+    {
+        private final String signature;
+        private final long expiryTime;
+
+        private Signature(String signature, long expiryTime)
+        {
+            this.signature = signature;
+            this.expiryTime = expiryTime;
+        }
+
+        String getSignature()
+        {
+            return this.signature;
+        }
+
+        long getExpiryTime()
+        {
+            return this.expiryTime;
+        }
+    }
+
+    private static final class Entry
+    {
+        private Signature signature;
+        private FutureTask<Signature> pendingRequest;
+    }
+
+    private static final class Scope
+    {
+        private final SignatureProvider signatureProvider;
+        private final String keyName;
+        private final String generationId;
+        private final String audience;
+        private final long timeToLiveSeconds;
+
+        private Scope(SignatureProvider signatureProvider, String keyName, String generationId, String audience, long timeToLiveSeconds)
+        {
+            this.signatureProvider = signatureProvider;
+            this.keyName = keyName;
+            this.generationId = generationId;
+            this.audience = audience;
+            this.timeToLiveSeconds = timeToLiveSeconds;
+        }
+
+        @Override
+        public boolean equals(Object other)
+        {
+            if (!(other instanceof Scope))
+            {
+                return false;
+            }
+
+            Scope scope = (Scope) other;
+            return this.signatureProvider.equals(scope.signatureProvider)
+                    && equalStrings(this.keyName, scope.keyName)
+                    && equalStrings(this.generationId, scope.generationId)
+                    && this.audience.equals(scope.audience)
+                    && this.timeToLiveSeconds == scope.timeToLiveSeconds;
+        }
+
+        @Override
+        public int hashCode()
+        {
+            int hash = this.signatureProvider.hashCode();
+            hash = 31 * hash + (this.keyName == null ? 0 : this.keyName.hashCode());
+            hash = 31 * hash + (this.generationId == null ? 0 : this.generationId.hashCode());
+            hash = 31 * hash + this.audience.hashCode();
+            return 31 * hash + (int) (this.timeToLiveSeconds ^ (this.timeToLiveSeconds >>> 32));
+        }
+
+        private static boolean equalStrings(String first, String second)
+        {
+            return first == null ? second == null : first.equals(second);
+        }
+    }
+}
@@ -27,6 +27,7 @@ public class HttpHsmSignatureProvider implements SignatureProvider
     private static final String DEFAULT_KEY_ID = "primary";
     private Mac defaultSignRequestAlgo = Mac.getInstance(MAC);
 
+    private String providerUri;
     private String apiVersion;
     private HttpsHsmClient httpClient;
 
@@ -54,6 +55,8 @@ public class HttpHsmSignatureProvider implements SignatureProvider
         // Codes_SRS_HTTPHSMSIGNATUREPROVIDER_34_002: [This constructor shall create a new HttpsHsmClient with the provided providerUri.]
         this.httpClient = new HttpsHsmClient(providerUri);
 
+        this.providerUri = providerUri;
+
         // Codes_SRS_HTTPHSMSIGNATUREPROVIDER_34_003: [This constructor shall save the provided api version.]
         this.apiVersion = apiVersion;
     }
@@ -86,4 +89,30 @@ public class HttpHsmSignatureProvider implements SignatureProvider
 
         return URLEncoder.encode(response.getDigest(), ENCODING_CHARSET);
     }
+
+    /**
+     * Two signature providers are equal if they call the same signing party with the same api version, so that the
+     * signatures of one can be used in place of the other's.
+     * @param other the object to compare with
+     * @return true if the other object is an HttpHsmSignatureProvider for the same uri and api version
+     */
+    @Override
+    public boolean equals(Object other)
+    {
+        if (!(other instanceof HttpHsmSignatureProvider))
+        {
+            return false;
+        }
+
+        // Codes_SRS_HTTPHSMSIGNATUREPROVIDER_34_008: [This function shall return true if and only if the other object
+        // is an HttpHsmSignatureProvider with the same provider uri and api version.]
+        HttpHsmSignatureProvider otherProvider = (HttpHsmSignatureProvider) other;
+        return this.providerUri.equals(otherProvider.providerUri) && this.apiVersion.equals(otherProvider.apiVersion);
+    }
+
+    @Override
+    public int hashCode()
+    {
+        return 31 * this.providerUri.hashCode() + this.apiVersion.hashCode();
+    }
 }
@@ -13,15 +13,9 @@ import com.microsoft.azure.sdk.iot.device.hsm.parser.TrustBundleResponse;
 import com.microsoft.azure.sdk.iot.device.transport.https.HttpsMethod;
 import com.microsoft.azure.sdk.iot.device.transport.https.HttpsRequest;
 import com.microsoft.azure.sdk.iot.device.transport.https.HttpsResponse;
-import jnr.unixsocket.UnixSocketAddress;
-import jnr.unixsocket.UnixSocketChannel;
 
-import java.io.BufferedReader;
 import java.io.IOException;
-import java.io.StringReader;
 import java.net.*;
-import java.nio.ByteBuffer;
-import java.nio.charset.StandardCharsets;
 
 public class HttpsHsmClient
 {
@@ -233,72 +227,16 @@ public class HttpsHsmClient
     }
 
     /**
-     * Send an HTTP request over a unix domain socket
+     * Send an HTTP request over a unix domain socket, reusing a kept-alive connection to that socket if there is one
      * @param httpsRequest the request to send
      * @return the response from the HSM unit
      * @throws IOException If the unix socket cannot be reached
      */
     private HttpsResponse sendHttpRequestUsingUnixSocket(HttpsRequest httpsRequest, String httpRequestPath, String httpRequestQueryString, String unixSocketAddress) throws IOException
     {
-        UnixSocketChannel channel = null;
-        HttpsResponse response = null;
-        try
-        {
-            //write to socket
-            byte[] requestBytes = HttpsRequestResponseSerializer.serializeRequest(httpsRequest, httpRequestPath, httpRequestQueryString, unixSocketAddress);
-            UnixSocketAddress address = new UnixSocketAddress(unixSocketAddress);
-            channel = UnixSocketChannel.open(address);
-
-            channel.write(ByteBuffer.wrap(requestBytes));
-
-            if (httpsRequest.getBody() != null)
-            {
-                channel.write(ByteBuffer.wrap(httpsRequest.getBody()));
-            }
-
-            //read response
-            String responseString = readResponseFromChannel(channel);
-            response = HttpsRequestResponseSerializer.deserializeResponse(new BufferedReader(new StringReader(responseString)));
-        }
-        finally
-        {
-            if (channel != null)
-            {
-                channel.close();
-            }
-        }
-
-        return response;
-    }
-
-    private String readResponseFromChannel(UnixSocketChannel channel) throws IOException
-    {
-        ByteBuffer buf = ByteBuffer.allocateDirect(10);
-        String response = "";
-        int numRead = 0;
-        while (numRead >= 0)
-        {
-            // read() places read bytes at the buffer's position so the
-            // position should always be properly set before calling read()
-            // This method sets the position to 0
-            buf.rewind();
-
-            // Read bytes from the channel
-            numRead = channel.read(buf);
-
-            // The read() method also moves the position so in order to
-            // read the new bytes, the buffer's position must be
-            // set back to 0
-            buf.rewind();
-
-            // Read bytes from ByteBuffer; see also
-            // e159 Getting Bytes from a ByteBuffer
-            for (int i=0; i<numRead; i++)
-            {
-                response = response + new String(new byte[] {buf.get()}, StandardCharsets.US_ASCII);
-            }
-        }
-
-        return response;
+        // Codes_SRS_HSMHTTPCLIENT_34_013: [If the scheme of the provided url is Unix, this function shall send the request
+        // over a keep-alive connection from the pool of the unix socket, and read the response from that connection.]
+        byte[] requestBytes = HttpsRequestResponseSerializer.serializeRequest(httpsRequest, httpRequestPath, httpRequestQueryString, unixSocketAddress, true);
+        return UnixSocketConnectionPool.forSocket(unixSocketAddress).send(requestBytes, httpsRequest.getBody());
     }
 }
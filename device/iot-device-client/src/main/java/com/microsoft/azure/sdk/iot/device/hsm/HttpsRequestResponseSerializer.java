@@ -9,7 +9,9 @@ import com.microsoft.azure.sdk.iot.device.transport.https.HttpsRequest;
 import com.microsoft.azure.sdk.iot.device.transport.https.HttpsResponse;
 
 import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.UnsupportedEncodingException;
 import java.nio.charset.StandardCharsets;
 import java.util.*;
@@ -24,6 +26,15 @@ public class HttpsRequestResponseSerializer
     private static final String HeaderSeparator = ":";
     private static final String VERSION = "1.1";
 
+    private static final String CONNECTION_HEADER = "Connection";
+    private static final String CONNECTION_CLOSE = "close";
+    private static final String CONNECTION_KEEP_ALIVE = "keep-alive";
+    private static final String CONTENT_LENGTH_HEADER = "Content-Length";
+    private static final String TRANSFER_ENCODING_HEADER = "Transfer-Encoding";
+    private static final String CHUNKED_TRANSFER_ENCODING = "chunked";
+    private static final int MAX_LINE_LENGTH = 8192;
+    private static final int READ_TO_END_CHUNK_SIZE = 4096;
+
     /**
      * Serialize the provided request
      *
@@ -35,6 +46,22 @@ public class HttpsRequestResponseSerializer
      * @throws IllegalArgumentException if the provided httpsRequest is null or has a null request url
      */
     public static byte[] serializeRequest(HttpsRequest httpsRequest, String path, String queryString, String host) throws IllegalArgumentException
+    {
+        return serializeRequest(httpsRequest, path, queryString, host, false);
+    }
+
+    /**
+     * Serialize the provided request, asking the server to either keep the connection open or close it after responding
+     *
+     * @param httpsRequest the request to be serialized
+     * @param path the path for the request to invoke on (e.g. /trust-bundle)
+     * @param queryString the full querystring associated with the http request. Should not include the '?' character at the beginning
+     * @param host the host that the request is being made to
+     * @param keepAlive true if the connection is to be reused for later requests
+     * @return the serialized request
+     * @throws IllegalArgumentException if the provided httpsRequest is null or has a null request url
+     */
+    public static byte[] serializeRequest(HttpsRequest httpsRequest, String path, String queryString, String host, boolean keepAlive) throws IllegalArgumentException
     {
         if (httpsRequest == null)
         {
@@ -66,7 +93,8 @@ public class HttpsRequestResponseSerializer
         // <header>: <value1>; <value2>
         // .]
 
-        httpsRequest.setHeaderField("Connection", "close");
+        // Codes_SRS_HTTPREQUESTRESPONSESERIALIZER_34_009: [If keepAlive is true, this function shall set the Connection header to keep-alive instead of close.]
+        httpsRequest.setHeaderField(CONNECTION_HEADER, keepAlive ? CONNECTION_KEEP_ALIVE : CONNECTION_CLOSE);
 
         String updatedPath = preProcessRequestPath(path);
 
@@ -172,6 +200,168 @@ public class HttpsRequestResponseSerializer
         return new HttpsResponse(statusCode, body, headerFields, errorReason);
     }
 
+    /**
+     * Read one HTTP/1.1 response from the provided stream. The body is read as far as its Content-Length or its chunked
+     * transfer encoding says, so that the stream is left at the start of the next response, or until the stream ends if
+     * the response has neither.
+     * @param inputStream the stream to read from, which should be buffered. It is not closed by this method
+     * @return the deserialized response
+     * @throws IOException if the stream cannot be read from, or ends before the response does
+     */
+    public static HttpsResponse readResponse(InputStream inputStream) throws IOException
+    {
+        if (inputStream == null)
+        {
+            // Codes_SRS_HTTPREQUESTRESPONSESERIALIZER_34_010: [If the provided inputStream is null, this function shall throw an IllegalArgumentException.]
+            throw new IllegalArgumentException("input stream cannot be null");
+        }
+
+        String statusLine = readLine(inputStream);
+        if (statusLine == null || statusLine.isEmpty())
+        {
+            // Codes_SRS_HTTPREQUESTRESPONSESERIALIZER_34_011: [If the stream ends before the status line, this function shall throw an IOException.]
+            throw new IOException("Response is empty.");
+        }
+
+        // Codes_SRS_HTTPREQUESTRESPONSESERIALIZER_34_012: [This function shall read the status line in the form
+        // <version> <status code> <reason phrase>, where the reason phrase may contain spaces or be empty, and throw an
+        // IOException if the version is not an HTTP version or the status code is not a number.]
+        int versionEnd = statusLine.indexOf(SP);
+        if (versionEnd < 0 || !statusLine.startsWith(Protocol + ProtocolVersionSeparator))
+        {
+            throw new IOException("Status line is not valid.");
+        }
+
+        int statusCodeEnd = statusLine.indexOf(SP, versionEnd + 1);
+        if (statusCodeEnd < 0)
+        {
+            statusCodeEnd = statusLine.length();
+        }
+
+        int statusCode;
+        try
+        {
+            statusCode = Integer.parseInt(statusLine.substring(versionEnd + 1, statusCodeEnd));
+        }
+        catch (NumberFormatException e)
+        {
+            throw new IOException("StatusCode is not valid " + statusLine.substring(versionEnd + 1, statusCodeEnd) + ".");
+        }
+
+        String reasonPhrase = statusCodeEnd < statusLine.length() ? statusLine.substring(statusCodeEnd + 1) : "";
+
+        // Codes_SRS_HTTPREQUESTRESPONSESERIALIZER_34_013: [This function shall read the header lines until the empty
+        // line that ends them, trimming the values, and throw an IOException if a header has no ':' separator.]
+        Map<String, List<String>> headerFields = new HashMap<>();
+        String contentLength = null;
+        boolean chunked = false;
+        String line = readLine(inputStream);
+        while (line != null && !line.isEmpty())
+        {
+            int headerSeparatorPosition = line.indexOf(HeaderSeparator);
+            if (headerSeparatorPosition <= 0)
+            {
+                throw new IOException("Header is invalid " + line + ".");
+            }
+
+            String headerName = line.substring(0, headerSeparatorPosition).trim();
+            String headerValue = line.substring(headerSeparatorPosition + 1).trim();
+
+            List<String> headerValues = headerFields.get(headerName);
+            if (headerValues == null)
+            {
+                headerValues = new ArrayList<>();
+                headerFields.put(headerName, headerValues);
+            }
+            headerValues.add(headerValue);
+
+            if (headerName.equalsIgnoreCase(CONTENT_LENGTH_HEADER))
+            {
+                contentLength = headerValue;
+            }
+            else if (headerName.equalsIgnoreCase(TRANSFER_ENCODING_HEADER) && headerValue.toLowerCase().contains(CHUNKED_TRANSFER_ENCODING))
+            {
+                chunked = true;
+            }
+
+            line = readLine(inputStream);
+        }
+
+        if (line == null)
+        {
+            throw new IOException("Response ended before its headers did.");
+        }
+
+        byte[] body;
+        if (statusCode / 100 == 1 || statusCode == 204 || statusCode == 304)
+        {
+            // Codes_SRS_HTTPREQUESTRESPONSESERIALIZER_34_014: [If the status code does not allow a body, this function shall return an empty body.]
+            body = new byte[0];
+        }
+        else if (chunked)
+        {
+            // Codes_SRS_HTTPREQUESTRESPONSESERIALIZER_34_015: [If the response uses the chunked transfer encoding, this function shall read the chunks and their trailer, and return the chunks joined as the body.]
+            body = readChunkedBody(inputStream);
+        }
+        else if (contentLength != null)
+        {
+            // Codes_SRS_HTTPREQUESTRESPONSESERIALIZER_34_016: [If the response has a Content-Length, this function shall read exactly that many bytes as the body, and throw an IOException if the stream ends first.]
+            int length;
+            try
+            {
+                length = Integer.parseInt(contentLength);
+            }
+            catch (NumberFormatException e)
+            {
+                throw new IOException("Content-Length is not valid " + contentLength + ".");
+            }
+
+            if (length < 0)
+            {
+                throw new IOException("Content-Length is not valid " + contentLength + ".");
+            }
+
+            body = readFully(inputStream, length);
+        }
+        else
+        {
+            // Codes_SRS_HTTPREQUESTRESPONSESERIALIZER_34_017: [If the response has neither, this function shall read the body until the stream ends.]
+            body = readToEnd(inputStream);
+        }
+
+        return new HttpsResponse(statusCode, body, headerFields, reasonPhrase.getBytes(StandardCharsets.US_ASCII));
+    }
+
+    /**
+     * Returns whether the connection that a response was read from can carry another request, which is the case if the
+     * server did not ask to close it and the end of the body did not depend on the end of the stream.
+     * @param response a response read by {@link #readResponse(InputStream)}
+     * @return true if the connection can be reused
+     */
+    public static boolean keepsConnectionOpen(HttpsResponse response)
+    {
+        boolean bodyIsDelimited = response.getStatus() / 100 == 1 || response.getStatus() == 204 || response.getStatus() == 304;
+        for (Map.Entry<String, String> headerField : response.getHeaderFields().entrySet())
+        {
+            String headerName = headerField.getKey();
+            String headerValue = headerField.getValue();
+            if (headerName.equalsIgnoreCase(CONNECTION_HEADER) && headerValue.toLowerCase().contains(CONNECTION_CLOSE))
+            {
+                // Codes_SRS_HTTPREQUESTRESPONSESERIALIZER_34_018: [If the response has the header Connection: close, this function shall return false.]
+                return false;
+            }
+
+            if (headerName.equalsIgnoreCase(CONTENT_LENGTH_HEADER)
+                    || (headerName.equalsIgnoreCase(TRANSFER_ENCODING_HEADER) && headerValue.toLowerCase().contains(CHUNKED_TRANSFER_ENCODING)))
+            {
+                bodyIsDelimited = true;
+            }
+        }
+
+        // Codes_SRS_HTTPREQUESTRESPONSESERIALIZER_34_019: [This function shall return true if and only if the body of the response was delimited by its status code, its Content-Length or its chunked transfer encoding.]
+        return bodyIsDelimited;
+    }
+
     private static String preProcessRequestPath(String path)
     {
         String dnsSafePath = path.replace("[", "").replace("]", "");
@@ -215,6 +405,130 @@ public class HttpsRequestResponseSerializer
         return headerFields;
     }
 
+    // Reads the line up to the next LF, without its CR LF, or returns null if the stream ended before the line started
+    private static String readLine(InputStream inputStream) throws IOException
+    {
+        StringBuilder line = new StringBuilder();
+        int next = inputStream.read();
+        if (next < 0)
+        {
+            return null;
+        }
+
+        while (next >= 0 && next != '\n')
+        {
+            if (line.length() == MAX_LINE_LENGTH)
+            {
+                throw new IOException("Response line is longer than " + MAX_LINE_LENGTH + " characters.");
+            }
+
+            line.append((char) next);
+            next = inputStream.read();
+        }
+
+        if (next < 0)
+        {
+            throw new IOException("Response ended in the middle of a line.");
+        }
+
+        int length = line.length();
+        if (length > 0 && line.charAt(length - 1) == '\r')
+        {
+            line.setLength(length - 1);
+        }
+
+        return line.toString();
+    }
+
+    private static byte[] readFully(InputStream inputStream, int length) throws IOException
+    {
+        byte[] bytes = new byte[length];
+        int offset = 0;
+        while (offset < length)
+        {
+            int numRead = inputStream.read(bytes, offset, length - offset);
+            if (numRead < 0)
+            {
+                throw new IOException("Response ended after " + offset + " of its " + length + " body bytes.");
+            }
+
+            offset += numRead;
+        }
+
+        return bytes;
+    }
+
+    private static byte[] readChunkedBody(InputStream inputStream) throws IOException
+    {
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        while (true)
+        {
+            String chunkSizeLine = readLine(inputStream);
+            if (chunkSizeLine == null)
+            {
+                throw new IOException("Response ended before its last chunk.");
+            }
+
+            int extensionStart = chunkSizeLine.indexOf(';');
+            String chunkSizeString = (extensionStart < 0 ? chunkSizeLine : chunkSizeLine.substring(0, extensionStart)).trim();
+            int chunkSize;
+            try
+            {
+                chunkSize = Integer.parseInt(chunkSizeString, 16);
+            }
+            catch (NumberFormatException e)
+            {
+                throw new IOException("Chunk size is not valid " + chunkSizeString + ".");
+            }
+
+            if (chunkSize < 0)
+            {
+                throw new IOException("Chunk size is not valid " + chunkSizeString + ".");
+            }
+
+            if (chunkSize == 0)
+            {
+                break;
+            }
+
+            body.write(readFully(inputStream, chunkSize));
+
+            String chunkEnd = readLine(inputStream);
+            if (chunkEnd == null || !chunkEnd.isEmpty())
+            {
+                throw new IOException("Chunk is not followed by a line break.");
+            }
+        }
+
+        // the trailer ends with an empty line
+        String trailerLine = readLine(inputStream);
+        while (trailerLine != null && !trailerLine.isEmpty())
+        {
+            trailerLine = readLine(inputStream);
+        }
+
+        if (trailerLine == null)
+        {
+            throw new IOException("Response ended before its trailer did.");
+        }
+
+        return body.toByteArray();
+    }
+
+    private static byte[] readToEnd(InputStream inputStream) throws IOException
+    {
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        byte[] chunk = new byte[READ_TO_END_CHUNK_SIZE];
+        int numRead = inputStream.read(chunk);
+        while (numRead >= 0)
+        {
+            body.write(chunk, 0, numRead);
+            numRead = inputStream.read(chunk);
+        }
+
+        return body.toByteArray();
+    }
+
     private static byte[] readBody(BufferedReader bufferedReader) throws IOException
     {
         String bodyString = "";
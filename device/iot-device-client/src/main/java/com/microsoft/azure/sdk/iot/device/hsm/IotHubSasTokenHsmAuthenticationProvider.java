@@ -5,23 +5,45 @@
 
 package com.microsoft.azure.sdk.iot.device.hsm;
 
+import com.microsoft.azure.sdk.iot.device.CustomLogger;
 import com.microsoft.azure.sdk.iot.device.auth.IotHubSasToken;
 import com.microsoft.azure.sdk.iot.device.auth.IotHubSasTokenWithRefreshAuthenticationProvider;
 import com.microsoft.azure.sdk.iot.device.auth.SignatureProvider;
 import com.microsoft.azure.sdk.iot.device.exceptions.TransportException;
 
 import java.io.IOException;
-import java.io.UnsupportedEncodingException;
 import java.net.URISyntaxException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadLocalRandom;
 
 /**
  * Authentication method that uses HSM to get a SAS token.
+ * <p>
+ * The sas token is renewed ahead of the point where it is due for refresh, at a random moment of a window that spans
+ * up to 10 percent of its life, so that the modules that started together do not all call the HSM at the same moment
+ * and the transports rarely have to wait for a renewal. The signatures are cached for the whole process, so that the
+ * providers of a process that have the same scope send one request to the HSM per renewal. The client stops the
+ * renewals when it is closed.
+ * </p>
  */
 public class IotHubSasTokenHsmAuthenticationProvider extends IotHubSasTokenWithRefreshAuthenticationProvider
 {
+    private static final int RENEWAL_JITTER_PERCENTAGE = 10;
+    private static final long MINIMUM_RENEWAL_DELAY_MILLISECONDS = 1000L;
+    private static final long RENEWAL_RETRY_DELAY_MILLISECONDS = 10 * 1000L;
+    private static final long MAXIMUM_RENEWAL_RETRY_DELAY_MILLISECONDS = 5 * 60 * 1000L;
+
     SignatureProvider signatureProvider;
     String generationId;
 
+    private final Object renewalLock = new Object();
+    private ScheduledFuture<?> scheduledRenewal;
+    private long renewalRetryDelayMilliseconds = RENEWAL_RETRY_DELAY_MILLISECONDS;
+    private long sasTokenExpiryTime;
+    private boolean renewalStopped;
+
+    private final CustomLogger logger = new CustomLogger(this.getClass());
+
     /**
      * Constructor for a IotHubSasTokenHsmAuthenticationProvider instance
      * @param signatureProvider the signature provider to be used when generating sas tokens
@@ -45,19 +67,59 @@ public class IotHubSasTokenHsmAuthenticationProvider extends IotHubSasTokenWithR
         }
 
         // Codes_SRS_MODULEAUTHENTICATIONWITHHSM_34_001: [This function shall construct a sas token from the provided arguments and then return a IotHubSasTokenHsmAuthenticationProvider instance that uses that sas token.]
-        IotHubSasToken sasToken = createNewSasToken(hostname, gatewayHostname, deviceId, moduleId, generationId, signatureProvider, suggestedTimeToLiveSeconds);
-        return new IotHubSasTokenHsmAuthenticationProvider(hostname, gatewayHostname, deviceId, moduleId, generationId, sasToken.getSasToken(), signatureProvider, suggestedTimeToLiveSeconds, timeBufferPercentage);
+        HsmSignatureCache.Signature signature = sign(hostname, deviceId, moduleId, generationId, signatureProvider, suggestedTimeToLiveSeconds, timeBufferPercentage);
+        IotHubSasToken sasToken = createNewSasToken(hostname, gatewayHostname, deviceId, moduleId, signature);
+        IotHubSasTokenHsmAuthenticationProvider authenticationProvider = new IotHubSasTokenHsmAuthenticationProvider(hostname, gatewayHostname, deviceId, moduleId, generationId, sasToken.getSasToken(), signatureProvider, suggestedTimeToLiveSeconds, timeBufferPercentage);
+
+        // Codes_SRS_MODULEAUTHENTICATIONWITHHSM_34_007: [This function shall schedule the renewal of the sas token ahead of its expiry.]
+        authenticationProvider.scheduleRenewal(signature.getExpiryTime());
+        return authenticationProvider;
     }
 
     /**
-     * Renew the saved sas token using the HSM unit
+     * Renew the saved sas token using the HSM unit. The signature of another provider of the process with the same
+     * scope is reused instead if that provider renewed it recently.
      * @throws IOException If the Hsm unit cannot be reached
      * @throws TransportException If the Hsm unit cannot be reached
      */
     public void refreshSasToken() throws IOException, TransportException
+    {
+        synchronized (this.renewalLock)
+        {
+            // Codes_SRS_MODULEAUTHENTICATIONWITHHSM_34_012: [This function shall resume the renewals ahead of expiry if they were stopped.]
+            this.renewalStopped = false;
+        }
+
+        this.renewSasToken();
+    }
+
+    /**
+     * Stops renewing the sas token ahead of its expiry, so that the provider of a closed client no longer calls the
+     * HSM. The renewals resume once the sas token is refreshed again.
+     */
+    public void stopRenewal()
+    {
+        synchronized (this.renewalLock)
+        {
+            // Codes_SRS_MODULEAUTHENTICATIONWITHHSM_34_011: [This function shall cancel the scheduled renewal, and
+            // no renewal shall be scheduled until the sas token is refreshed again.]
+            this.renewalStopped = true;
+            if (this.scheduledRenewal != null)
+            {
+                this.scheduledRenewal.cancel(false);
+                this.scheduledRenewal = null;
+            }
+        }
+    }
+
+    private void renewSasToken() throws IOException, TransportException
     {
         // Codes_SRS_MODULEAUTHENTICATIONWITHHSM_34_005: [This function shall create a new sas token and save it locally.]
-        this.sasToken = createNewSasToken(this.hostname, this.gatewayHostname, this.deviceId, this.moduleId, this.generationId, this.signatureProvider, this.tokenValidSecs);
+        HsmSignatureCache.Signature signature = sign(this.hostname, this.deviceId, this.moduleId, this.generationId, this.signatureProvider, this.tokenValidSecs, this.timeBufferPercentage);
+        this.sasToken = createNewSasToken(this.hostname, this.gatewayHostname, this.deviceId, this.moduleId, signature);
+
+        // Codes_SRS_MODULEAUTHENTICATIONWITHHSM_34_008: [This function shall reschedule the renewal of the sas token ahead of the expiry of the new sas token.]
+        this.scheduleRenewal(signature.getExpiryTime());
     }
 
     /**
@@ -69,29 +131,119 @@ public class IotHubSasTokenHsmAuthenticationProvider extends IotHubSasTokenWithR
         return true;
     }
 
-    static IotHubSasToken createNewSasToken(String hostname, String gatewayHostName, String deviceId, String moduleId, String generationId, SignatureProvider signatureProvider, long suggestedTimeToLive) throws IOException, TransportException
+    /**
+     * Renews the sas token from the shared renewal thread, and retries later, less and less often, if the HSM cannot
+     * be reached. The transports go on using the current sas token meanwhile, and renew it themselves once it is due.
+     */
+    void renewSasTokenAheadOfExpiry()
     {
         try
         {
-            String audience = buildAudience(hostname, deviceId, moduleId);
+            // Codes_SRS_MODULEAUTHENTICATIONWITHHSM_34_009: [When its scheduled renewal runs, this provider shall refresh its sas token.]
+            this.renewSasToken();
+        }
+        catch (IOException | TransportException | RuntimeException e)
+        {
+            boolean sasTokenExpired;
+            synchronized (this.renewalLock)
+            {
+                sasTokenExpired = System.currentTimeMillis() / MILLISECONDS_PER_SECOND >= this.sasTokenExpiryTime;
+            }
+
+            if (sasTokenExpired)
+            {
+                // Codes_SRS_MODULEAUTHENTICATIONWITHHSM_34_013: [If the scheduled renewal fails after the sas token
+                // expired, it shall not be scheduled again.]
+                logger.LogWarn("Renewing the sas token ahead of its expiry failed after it expired, leaving the renewal to the transports: %s", e.getMessage());
+                return;
+            }
+
+            long retryDelayMilliseconds;
+            synchronized (this.renewalLock)
+            {
+                // Codes_SRS_MODULEAUTHENTICATIONWITHHSM_34_010: [If the scheduled renewal fails, it shall be scheduled
+                // again 10 seconds later, and each further failure shall double that delay, up to 5 minutes.]
+                retryDelayMilliseconds = this.renewalRetryDelayMilliseconds;
+                this.renewalRetryDelayMilliseconds = Math.min(retryDelayMilliseconds * 2, MAXIMUM_RENEWAL_RETRY_DELAY_MILLISECONDS);
+            }
+
+            logger.LogWarn("Renewing the sas token ahead of its expiry failed, retrying in %d milliseconds: %s", retryDelayMilliseconds, e.getMessage());
+            this.scheduleRenewalIn(retryDelayMilliseconds);
+        }
+    }
+
+    private void scheduleRenewal(long expiryTime)
+    {
+        // The time at which shouldRefreshToken starts to return true for this token, less a random part of the jitter window
+        long dueTimeMilliseconds = (expiryTime - getRefreshWindowSeconds(this.tokenValidSecs, this.timeBufferPercentage)) * MILLISECONDS_PER_SECOND;
+        long jitterWindowMilliseconds = getJitterWindowSeconds(this.tokenValidSecs, this.timeBufferPercentage) * MILLISECONDS_PER_SECOND;
+        long jitterMilliseconds = jitterWindowMilliseconds > 0 ? ThreadLocalRandom.current().nextLong(jitterWindowMilliseconds) : 0;
+        synchronized (this.renewalLock)
+        {
+            this.sasTokenExpiryTime = expiryTime;
+            this.renewalRetryDelayMilliseconds = RENEWAL_RETRY_DELAY_MILLISECONDS;
+        }
+
+        this.scheduleRenewalIn(Math.max(MINIMUM_RENEWAL_DELAY_MILLISECONDS, dueTimeMilliseconds - jitterMilliseconds - System.currentTimeMillis()));
+    }
 
-            long expiresOn = (System.currentTimeMillis() / 1000) + suggestedTimeToLive;
-            String data = audience + "\n" + expiresOn;
-            String signature = signatureProvider.sign(moduleId, data, generationId);
+    private void scheduleRenewalIn(long delayMilliseconds)
+    {
+        synchronized (this.renewalLock)
+        {
+            if (this.renewalStopped)
+            {
+                return;
+            }
 
-            String host = gatewayHostName != null && !gatewayHostName.isEmpty() ? gatewayHostName : hostname;
-            String sharedAccessToken = IotHubSasToken.buildSharedAccessToken(audience, signature, expiresOn);
+            if (this.scheduledRenewal != null)
+            {
+                this.scheduledRenewal.cancel(false);
+            }
 
-            // Codes_SRS_MODULEAUTHENTICATIONWITHHSM_34_004: [If the gatewayHostname is null or empty, this function shall construct the sas token using the hostname instead of the gateway hostname.]
-            // Codes_SRS_MODULEAUTHENTICATIONWITHHSM_34_006: [If the gatewayHostname is present, this function shall construct the sas token using the gateway hostname instead of the hostname.]
-            return new IotHubSasToken(host, deviceId, null, sharedAccessToken, moduleId, expiresOn);
+            this.scheduledRenewal = HsmSasTokenRenewalScheduler.schedule(this, delayMilliseconds);
         }
-        catch (UnsupportedEncodingException | URISyntaxException | HsmException e)
+    }
+
+    private static HsmSignatureCache.Signature sign(String hostname, String deviceId, String moduleId, String generationId, SignatureProvider signatureProvider, long suggestedTimeToLive, int timeBufferPercentage) throws IOException, TransportException
+    {
+        try
+        {
+            String audience = buildAudience(hostname, deviceId, moduleId);
+
+            // A cached signature is reused only if a token made from it would not be within its renewal window already
+            long renewalWindowSeconds = getRefreshWindowSeconds(suggestedTimeToLive, timeBufferPercentage) + getJitterWindowSeconds(suggestedTimeToLive, timeBufferPercentage);
+            return HsmSignatureCache.sign(signatureProvider, moduleId, generationId, audience, suggestedTimeToLive, renewalWindowSeconds);
+        }
+        catch (URISyntaxException | HsmException e)
         {
             throw new IOException(e);
         }
     }
 
+    static IotHubSasToken createNewSasToken(String hostname, String gatewayHostName, String deviceId, String moduleId, HsmSignatureCache.Signature signature) throws IOException
+    {
+        String audience = buildAudience(hostname, deviceId, moduleId);
+        String host = gatewayHostName != null && !gatewayHostName.isEmpty() ? gatewayHostName : hostname;
+        String sharedAccessToken = IotHubSasToken.buildSharedAccessToken(audience, signature.getSignature(), signature.getExpiryTime());
+
+        // Codes_SRS_MODULEAUTHENTICATIONWITHHSM_34_004: [If the gatewayHostname is null or empty, this function shall construct the sas token using the hostname instead of the gateway hostname.]
+        // Codes_SRS_MODULEAUTHENTICATIONWITHHSM_34_006: [If the gatewayHostname is present, this function shall construct the sas token using the gateway hostname instead of the hostname.]
+        return new IotHubSasToken(host, deviceId, null, sharedAccessToken, moduleId, signature.getExpiryTime());
+    }
+
+    // The time before its expiry from which a token is due for refresh, as computed by shouldRefreshToken
+    private static long getRefreshWindowSeconds(long tokenValidSecs, int timeBufferPercentage)
+    {
+        return tokenValidSecs - tokenValidSecs * timeBufferPercentage / 100;
+    }
+
+    // At most half of the time before a token is due for refresh, so that a renewed token is never renewed right away
+    private static long getJitterWindowSeconds(long tokenValidSecs, int timeBufferPercentage)
+    {
+        return Math.min(tokenValidSecs * RENEWAL_JITTER_PERCENTAGE / 100, tokenValidSecs * timeBufferPercentage / 200);
+    }
+
     private IotHubSasTokenHsmAuthenticationProvider(String hostname, String gatewayHostName, String deviceId, String moduleId, String generationId, String sharedAccessToken, SignatureProvider signatureProvider, int suggestedTimeToLiveSeconds, int timeBufferPercentage)
     {
         super(hostname, gatewayHostName, deviceId, moduleId, sharedAccessToken, suggestedTimeToLiveSeconds, timeBufferPercentage);
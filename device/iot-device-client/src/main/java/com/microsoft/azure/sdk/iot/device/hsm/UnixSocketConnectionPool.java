@@ -0,0 +1,210 @@
+/*
+ *  Copyright (c) Microsoft. All rights reserved.
+ *  Licensed under the MIT license. See LICENSE file in the project root for full license information.
+ */
+
+package com.microsoft.azure.sdk.iot.device.hsm;
+
+import com.microsoft.azure.sdk.iot.device.transport.https.HttpsResponse;
+import jnr.unixsocket.UnixSocketAddress;
+import jnr.unixsocket.UnixSocketChannel;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keep-alive HTTP connections to one unix domain socket, shared by every {@link HttpsHsmClient} of the process that
+ * talks to that socket. A request takes an idle connection if there is one and opens a new one otherwise, and the
+ * connection goes back to the pool once its response was read, unless the server asked to close it.
+ */
+final class UnixSocketConnectionPool
+{
+    private static final int MAX_IDLE_CONNECTIONS = 4;
+    private static final long MAX_IDLE_NANOS = TimeUnit.SECONDS.toNanos(30);
+    private static final int READ_BUFFER_SIZE = 8192;
+
+    private static final ConcurrentMap<String, UnixSocketConnectionPool> pools = new ConcurrentHashMap<>();
+
+    private final String socketPath;
+
+    // Most recently used first, so that the connections at the end are the first to expire
+    private final Deque<Connection> idleConnections = new ArrayDeque<>();
+
+    private UnixSocketConnectionPool(String socketPath)
+    {
+        this.socketPath = socketPath;
+    }
+
+    /**
+     * Returns the pool of the provided socket, creating it on first use.
+     * @param socketPath the path of the unix domain socket
+     * @return the pool of connections to that socket
+     */
+    static UnixSocketConnectionPool forSocket(String socketPath)
+    {
+        UnixSocketConnectionPool pool = pools.get(socketPath);
+        if (pool == null)
+        {
+            // Codes_SRS_UNIXSOCKETCONNECTIONPOOL_34_001: [This function shall return the same pool for every call with the same socket path.]
+            UnixSocketConnectionPool newPool = new UnixSocketConnectionPool(socketPath);
+            pool = pools.putIfAbsent(socketPath, newPool);
+            if (pool == null)
+            {
+                pool = newPool;
+            }
+        }
+
+        return pool;
+    }
+
+    /**
+     * Sends a serialized HTTP request over a pooled connection and reads its response.
+     * @param requestHead the serialized request line and headers
+     * @param body the body of the request, or null if it has none
+     * @return the response to the request
+     * @throws IOException if the socket cannot be reached, or the response cannot be read
+     */
+    HttpsResponse send(byte[] requestHead, byte[] body) throws IOException
+    {
+        // Codes_SRS_UNIXSOCKETCONNECTIONPOOL_34_002: [This function shall send the request over an idle connection of the pool if there is one.]
+        Connection connection = takeIdleConnection();
+        if (connection != null)
+        {
+            try
+            {
+                return sendAndRelease(connection, requestHead, body);
+            }
+            catch (IOException e)
+            {
+                // Codes_SRS_UNIXSOCKETCONNECTIONPOOL_34_003: [If the request fails on an idle connection, this function
+                // shall close that connection and send the request once more over a new connection.]
+                // The server may close a connection while it sits in the pool, and the HSM requests are safe to repeat.
+                // sendAndRelease closed the failed connection already.
+            }
+        }
+
+        // Codes_SRS_UNIXSOCKETCONNECTIONPOOL_34_004: [If there is no idle connection, this function shall open a new connection to the socket.]
+        return sendAndRelease(new Connection(this.socketPath), requestHead, body);
+    }
+
+    private HttpsResponse sendAndRelease(Connection connection, byte[] requestHead, byte[] body) throws IOException
+    {
+        HttpsResponse response;
+        try
+        {
+            response = connection.send(requestHead, body);
+        }
+        catch (IOException | RuntimeException e)
+        {
+            connection.close();
+            throw e;
+        }
+
+        if (HttpsRequestResponseSerializer.keepsConnectionOpen(response))
+        {
+            // Codes_SRS_UNIXSOCKETCONNECTIONPOOL_34_005: [If the response keeps the connection open, this function
+            // shall return the connection to the pool, unless the pool already holds its maximum of idle connections.]
+            release(connection);
+        }
+        else
+        {
+            // Codes_SRS_UNIXSOCKETCONNECTIONPOOL_34_006: [If the response does not keep the connection open, this function shall close the connection.]
+            connection.close();
+        }
+
+        return response;
+    }
+
+    private Connection takeIdleConnection()
+    {
+        long now = System.nanoTime();
+        Connection connection = null;
+        Deque<Connection> expiredConnections = new ArrayDeque<>();
+        synchronized (this.idleConnections)
+        {
+            // Codes_SRS_UNIXSOCKETCONNECTIONPOOL_34_007: [Connections that were idle for longer than 30 seconds shall be closed instead of reused.]
+            while (!this.idleConnections.isEmpty() && now - this.idleConnections.peekLast().idleSinceNanos > MAX_IDLE_NANOS)
+            {
+                expiredConnections.add(this.idleConnections.pollLast());
+            }
+
+            if (!this.idleConnections.isEmpty())
+            {
+                connection = this.idleConnections.pollFirst();
+            }
+        }
+
+        for (Connection expiredConnection : expiredConnections)
+        {
+            expiredConnection.close();
+        }
+
+        return connection;
+    }
+
+    private void release(Connection connection)
+    {
+        connection.idleSinceNanos = System.nanoTime();
+        synchronized (this.idleConnections)
+        {
+            if (this.idleConnections.size() < MAX_IDLE_CONNECTIONS)
+            {
+                this.idleConnections.addFirst(connection);
+                return;
+            }
+        }
+
+        connection.close();
+    }
+
+    /**
+     * One connection to the socket, used by one request at a time. Its input is buffered for as long as the connection
+     * lives, since a response is read up to its last byte and never further.
+     */
+    private static final class Connection
+    {
+        private final UnixSocketChannel channel;
+        private final InputStream inputStream;
+        private final OutputStream outputStream;
+        private long idleSinceNanos;
+
+        private Connection(String socketPath) throws IOException
+        {
+            this.channel = UnixSocketChannel.open(new UnixSocketAddress(socketPath));
+            this.inputStream = new BufferedInputStream(Channels.newInputStream(this.channel), READ_BUFFER_SIZE);
+            this.outputStream = Channels.newOutputStream(this.channel);
+        }
+
+        private HttpsResponse send(byte[] requestHead, byte[] body) throws IOException
+        {
+            this.outputStream.write(requestHead);
+            if (body != null && body.length > 0)
+            {
+                this.outputStream.write(body);
+            }
+
+            this.outputStream.flush();
+            return HttpsRequestResponseSerializer.readResponse(this.inputStream);
+        }
+
+        private void close()
+        {
+            try
+            {
+                this.channel.close();
+            }
+            catch (IOException e)
+            {
+                // the connection is dropped either way
+            }
+        }
+    }
+}
@@ -0,0 +1,53 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See LICENSE file in the project root for full license information.
+
+package com.microsoft.azure.sdk.iot.device.net;
+
+import java.io.UnsupportedEncodingException;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * URL encodes values the way {@link URLEncoder} does with UTF-8, without going through {@link URLEncoder} for the
+ * values it would leave as they are, which most message property values are.
+ */
+public final class UrlEncoding
+{
+    private static final String CHARSET_NAME = StandardCharsets.UTF_8.name();
+
+    private UrlEncoding()
+    {
+    }
+
+    /**
+     * URL encodes the provided value onto the builder. The value is appended as it is if {@link URLEncoder} would not
+     * change it.
+     * @param builder the builder to append to
+     * @param value the value to encode
+     * @throws UnsupportedEncodingException if UTF-8 is not supported
+     */
+    public static void appendEncoded(StringBuilder builder, String value) throws UnsupportedEncodingException
+    {
+        for (int i = 0; i < value.length(); i++)
+        {
+            if (!isUnreservedCharacter(value.charAt(i)))
+            {
+                // Codes_SRS_URLENCODING_34_001: [If the value contains a character that URLEncoder changes, this function shall append the value encoded by URLEncoder using UTF-8.]
+                builder.append(URLEncoder.encode(value, CHARSET_NAME));
+                return;
+            }
+        }
+
+        // Codes_SRS_URLENCODING_34_002: [If the value contains only characters that URLEncoder leaves as they are, this function shall append the value as it is.]
+        builder.append(value);
+    }
+
+    // the characters that URLEncoder leaves as they are
+    private static boolean isUnreservedCharacter(char character)
+    {
+        return (character >= 'a' && character <= 'z')
+                || (character >= 'A' && character <= 'Z')
+                || (character >= '0' && character <= '9')
+                || character == '.' || character == '-' || character == '*' || character == '_';
+    }
+}
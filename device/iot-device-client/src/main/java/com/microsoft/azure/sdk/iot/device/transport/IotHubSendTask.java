@@ -7,12 +7,14 @@ import com.microsoft.azure.sdk.iot.device.CustomLogger;
 
 /**
  * Sends batched messages and invokes callbacks on completed requests. Meant to
- * be used with an executor that continuously calls run().
+ * be run once on a dedicated thread: after each pass it sleeps until the
+ * transport signals that there is more work, so it does not poll while idle.
  */
 public final class IotHubSendTask implements Runnable
 {
     private static final String THREAD_NAME = "azure-iot-sdk-IotHubSendTask";
     private final IotHubTransport transport;
+    private volatile boolean isStopped;
 
     /**
      * Private logger for class
@@ -36,6 +38,26 @@ public final class IotHubSendTask implements Runnable
     {
         Thread.currentThread().setName(THREAD_NAME);
 
+        // Codes_SRS_IOTHUBSENDTASK_34_009: [The function shall send and invoke callbacks again each time the transport signals that there is more work, until it is stopped or the thread is interrupted.]
+        do
+        {
+            sendMessagesAndInvokeCallbacks();
+        }
+        while (!this.isStopped && this.transport.waitForSendWork());
+    }
+
+    /**
+     * Makes the thread running {@link #run()} return after its current pass.
+     */
+    public void stop()
+    {
+        // Codes_SRS_IOTHUBSENDTASK_34_010: [The function shall mark the task as stopped and signal the transport to wake the send thread.]
+        this.isStopped = true;
+        this.transport.signalSendWork();
+    }
+
+    private void sendMessagesAndInvokeCallbacks()
+    {
         logger.LogTrace("Now sending all queued messages to IoT Hub");
 
         try
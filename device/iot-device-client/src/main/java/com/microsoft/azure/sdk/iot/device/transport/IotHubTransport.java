@@ -12,12 +12,16 @@ import com.microsoft.azure.sdk.iot.device.exceptions.*;
 import com.microsoft.azure.sdk.iot.device.transport.amqps.AmqpsIotHubConnection;
 import com.microsoft.azure.sdk.iot.device.transport.amqps.exceptions.AmqpConnectionThrottledException;
 import com.microsoft.azure.sdk.iot.device.transport.amqps.exceptions.AmqpUnauthorizedAccessException;
+import com.microsoft.azure.sdk.iot.device.transport.https.HttpsBatchMessage;
 import com.microsoft.azure.sdk.iot.device.transport.https.HttpsIotHubConnection;
+import com.microsoft.azure.sdk.iot.device.transport.https.HttpsSingleMessage;
 import com.microsoft.azure.sdk.iot.device.transport.mqtt.MqttIotHubConnection;
 import com.microsoft.azure.sdk.iot.device.transport.mqtt.exceptions.MqttUnauthorizedException;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Date;
+import java.util.List;
 import java.util.Map;
 import java.util.Queue;
 import java.util.concurrent.*;
@@ -30,7 +34,7 @@ import static java.util.concurrent.TimeUnit.NANOSECONDS;
  */
 public class IotHubTransport implements IotHubListener
 {
-    private static final int MAX_MESSAGES_TO_SEND_PER_THREAD = 10;
+    private static final int MAX_IN_PROGRESS_PACKETS = 100;
     private IotHubConnectionStatus connectionStatus;
     private IotHubTransportConnection iotHubTransportConnection;
 
@@ -68,6 +72,13 @@ public class IotHubTransport implements IotHubListener
 
     final private Object reconnectionLock = new Object();
 
+    //Lock the send thread waits on until there is something for it to do
+    final private Object sendThreadLock = new Object();
+    private boolean hasSendWork;
+
+    /* Set while a task is scheduled to wake the send thread once a partial HTTPS batch has lingered long enough. */
+    private volatile boolean isBatchLingerScheduled;
+
     /**
      * Constructor for an IotHubTransport object with default values
      * @param defaultConfig the config used for opening connections, retrieving retry policy, and checking protocol
@@ -99,7 +110,7 @@ public class IotHubTransport implements IotHubListener
         if (message == null)
         {
             logger.LogError("onMessageSent called with null message, " +
-                    "method name is %s ", message.getMessageId(), logger.getMethodName());
+                    "method name is onMessageSent ");
         }
 
         // remove from in progress queue and add to callback queue
@@ -111,6 +122,10 @@ public class IotHubTransport implements IotHubListener
             packet = inProgressPackets.remove(message.getMessageId());
         }
 
+        //Codes_SRS_IOTHUBTRANSPORT_34_080: [This function shall signal the send thread, since a slot in the in progress
+        // window has been freed.]
+        this.signalSendWork();
+
         if (packet != null)
         {
             if (e == null)
@@ -142,8 +157,10 @@ public class IotHubTransport implements IotHubListener
         }
         else
         {
+            //Codes_SRS_IOTHUBTRANSPORT_34_095: [If there was no packet in the inProgressPackets queue tied to the
+            // provided message, this function shall log an error with the message id of the provided message.]
             logger.LogError("Message with message id %s was delivered to IoTHub, but was never sent, " +
-                    "method name is %s ", message.getMessageId(), logger.getMethodName());
+                    "method name is onMessageSent ", message.getMessageId());
         }
     }
 
@@ -154,8 +171,7 @@ public class IotHubTransport implements IotHubListener
         {
             //Codes_SRS_IOTHUBTRANSPORT_34_008: [If this function is called with a non-null message and a non-null
             // throwable, this function shall log an IllegalArgumentException.]
-            this.logger.LogError("IllegalArgumentException encountered, method name is %s",
-                    this.logger.getMethodName());
+            this.logger.LogError("IllegalArgumentException encountered, method name is onMessageReceived");
             this.logger.LogError(new IllegalArgumentException("Cannot call onMessageReceived with non-null message and " +
                     "non-null throwable"));
         }
@@ -163,8 +179,12 @@ public class IotHubTransport implements IotHubListener
         {
             //Codes_SRS_IOTHUBTRANSPORT_34_009: [If this function is called with a non-null message and a null
             // exception, this function shall add that message to the receivedMessagesQueue.]
-            logger.LogInfo("Message with hashcode %s is received from IotHub on %s, method name is onMessageReceived",
-                    message.hashCode(), new Date());
+            if (logger.isInfoEnabled())
+            {
+                logger.LogInfo("Message with hashcode %s is received from IotHub on %s, method name is onMessageReceived",
+                        message.hashCode(), new Date());
+            }
+
             this.receivedMessagesQueue.add(message);
         }
         else if (e != null)
@@ -172,7 +192,7 @@ public class IotHubTransport implements IotHubListener
             //Codes_SRS_IOTHUBTRANSPORT_34_010: [If this function is called with a null message and a non-null
             // throwable, this function shall log that exception.]
             this.logger.LogError("Exception encountered while receiving messages from service, " +
-                    "method name is %s", this.logger.getMethodName());
+                    "method name is onMessageReceived");
             this.logger.LogError(e);
         }
     }
@@ -219,7 +239,7 @@ public class IotHubTransport implements IotHubListener
     {
         if (connectionId.equals(this.iotHubTransportConnection.getConnectionId()))
         {
-            logger.LogInfo("The connection to the IoT Hub has been established, method name is %s ", logger.getMethodName());
+            logger.LogInfo("The connection to the IoT Hub has been established, method name is onConnectionEstablished ");
 
             //Codes_SRS_IOTHUBTRANSPORT_34_014: [If the provided connectionId is associated with the current connection, This function shall invoke updateStatus with status CONNECTED, change
             // reason CONNECTION_OK and a null throwable.]
@@ -272,6 +292,7 @@ public class IotHubTransport implements IotHubListener
         this.deviceClientConfigs = new LinkedBlockingQueue<>(deviceClientConfigs);
         this.defaultConfig = this.deviceClientConfigs.peek();
         this.taskScheduler = Executors.newScheduledThreadPool(1);
+        this.isBatchLingerScheduled = false;
 
         //Codes_SRS_IOTHUBTRANSPORT_34_019: [This function shall open the invoke the method openConnection.]
         openConnection();
@@ -339,6 +360,9 @@ public class IotHubTransport implements IotHubListener
         // callback, and context and then add that packet to the waiting queue.]
         IotHubTransportPacket packet = new IotHubTransportPacket(message, callback, callbackContext, null, System.currentTimeMillis());
         this.waitingPacketsQueue.add(packet);
+
+        //Codes_SRS_IOTHUBTRANSPORT_34_081: [This function shall signal the send thread that there is a packet to send.]
+        this.signalSendWork();
     }
 
     /**
@@ -355,27 +379,298 @@ public class IotHubTransport implements IotHubListener
             return;
         }
 
-        int timeSlice = MAX_MESSAGES_TO_SEND_PER_THREAD;
+        if (this.isHttpsBatchingEnabled())
+        {
+            //Codes_SRS_IOTHUBTRANSPORT_34_088: [If the protocol is HTTPS and the configured https batch size is
+            // greater than 1, this function shall send the waiting packets in batches.]
+            this.sendBatchedMessages();
+            return;
+        }
 
-        while (this.connectionStatus == IotHubConnectionStatus.CONNECTED && timeSlice-- > 0)
+        //Codes_SRS_IOTHUBTRANSPORT_34_044: [This function continue to dequeue packets saved in the waiting
+        // queue and send them until connection status isn't CONNECTED, the waiting queue is empty, or the in progress
+        // window is full.]
+        int maxInProgressPackets = this.getMaxInProgressPackets();
+        while (this.connectionStatus == IotHubConnectionStatus.CONNECTED
+                && this.inProgressPackets.size() < maxInProgressPackets)
         {
             IotHubTransportPacket packet = waitingPacketsQueue.poll();
-            if (packet != null)
+            if (packet == null)
+            {
+                break;
+            }
+
+            logger.LogInfo("Get the message from waiting message queue to be sent to IoT Hub, method name is sendMessages ");
+            Message message = packet.getMessage();
+
+            if (message != null && this.isMessageValid(packet))
+            {
+                sendPacket(packet);
+            }
+        }
+    }
+
+    /**
+     * Sends the waiting packets over HTTPS in batches of up to the configured batch size. A batch that is not full is
+     * held back until its oldest packet has waited for the configured linger time.
+     */
+    private void sendBatchedMessages()
+    {
+        int batchSize = this.defaultConfig.getHttpsBatchSize();
+        long lingerMillis = this.defaultConfig.getHttpsBatchLingerMillis();
+
+        while (this.connectionStatus == IotHubConnectionStatus.CONNECTED
+                && this.inProgressPackets.size() < MAX_IN_PROGRESS_PACKETS)
+        {
+            IotHubTransportPacket oldestPacket = this.waitingPacketsQueue.peek();
+            if (oldestPacket == null)
+            {
+                break;
+            }
+
+            long lingerRemainingMillis = oldestPacket.getStartTimeMillis() + lingerMillis - System.currentTimeMillis();
+            if (lingerRemainingMillis > 0 && !this.hasWaitingPackets(batchSize))
+            {
+                //Codes_SRS_IOTHUBTRANSPORT_34_089: [If fewer packets than the batch size are waiting and the oldest
+                // of them has not waited for the configured linger time, this function shall not send them, and shall
+                // schedule the send thread to be signalled once the linger time has passed.]
+                this.scheduleBatchLingerSignal(lingerRemainingMillis);
+                break;
+            }
+
+            this.sendBatch(batchSize);
+        }
+    }
+
+    /**
+     * Dequeues up to batchSize waiting packets that fit within the size limit of a batched request and sends them
+     * together. A single packet is sent on its own.
+     * @param batchSize the maximum number of packets to send
+     */
+    private void sendBatch(int batchSize)
+    {
+        HttpsBatchMessage batchMessage = new HttpsBatchMessage();
+        List<IotHubTransportPacket> batchPackets = new ArrayList<>();
+
+        while (this.connectionStatus == IotHubConnectionStatus.CONNECTED
+                && batchPackets.size() < batchSize
+                && this.inProgressPackets.size() + batchPackets.size() < MAX_IN_PROGRESS_PACKETS)
+        {
+            IotHubTransportPacket packet = this.waitingPacketsQueue.peek();
+            if (packet == null)
+            {
+                break;
+            }
+
+            Message message = packet.getMessage();
+            if (message == null || !this.isMessageValid(packet))
+            {
+                this.waitingPacketsQueue.poll();
+                continue;
+            }
+
+            if (message.hasBodyStream())
+            {
+                //Codes_SRS_IOTHUBTRANSPORT_34_094: [A message whose body is a stream shall not be batched. If no packet
+                // was added to the batch yet, this function shall send it on its own, otherwise it is left in the
+                // waiting queue.]
+                if (batchPackets.isEmpty())
+                {
+                    batchPackets.add(this.waitingPacketsQueue.poll());
+                }
+
+                break;
+            }
+
+            try
+            {
+                //Codes_SRS_IOTHUBTRANSPORT_34_090: [This function shall add waiting packets to the batch until the
+                // batch size is reached, the waiting queue is empty, or the next message would make the batch exceed
+                // the maximum size of a batched request. That message is left in the waiting queue.]
+                batchMessage.addMessage(HttpsSingleMessage.parseHttpsMessage(message));
+            }
+            catch (IotHubSizeExceededException e)
+            {
+                if (batchPackets.isEmpty())
+                {
+                    //Codes_SRS_IOTHUBTRANSPORT_34_091: [If a single message does not fit in a batch, this function
+                    // shall send it on its own.]
+                    batchPackets.add(this.waitingPacketsQueue.poll());
+                }
+
+                break;
+            }
+
+            batchPackets.add(this.waitingPacketsQueue.poll());
+        }
+
+        if (batchPackets.size() == 1)
+        {
+            this.sendPacket(batchPackets.get(0));
+        }
+        else if (batchPackets.size() > 1)
+        {
+            this.sendBatchPackets(batchMessage, batchPackets);
+        }
+    }
+
+    /**
+     * Sends a batch over the https connection. The connection notifies this object of the outcome of every message
+     * in the batch through {@link #onMessageSent(Message, Throwable)}.
+     * @param batchMessage the batch to send
+     * @param batchPackets the packets whose messages make up the batch
+     */
+    private void sendBatchPackets(HttpsBatchMessage batchMessage, List<IotHubTransportPacket> batchPackets)
+    {
+        List<Message> messages = new ArrayList<>(batchPackets.size());
+        synchronized (this.inProgressMessagesLock)
+        {
+            for (IotHubTransportPacket packet : batchPackets)
+            {
+                this.inProgressPackets.put(packet.getMessage().getMessageId(), packet);
+                messages.add(packet.getMessage());
+            }
+        }
+
+        try
+        {
+            //Codes_SRS_IOTHUBTRANSPORT_34_092: [This function shall send the batch over the https connection, which
+            // reports the single response status of the request back for every message in it.]
+            ((HttpsIotHubConnection) this.iotHubTransportConnection).sendBatchMessage(batchMessage, messages);
+        }
+        catch (TransportException transportException)
+        {
+            for (Message message : messages)
             {
-                logger.LogInfo("Get the message from waiting message queue to be sent to IoT Hub, method name is %s ",
-                        logger.getMethodName());
-                Message message = packet.getMessage();
+                IotHubTransportPacket outboundPacket;
+                synchronized (this.inProgressMessagesLock)
+                {
+                    outboundPacket = this.inProgressPackets.remove(message.getMessageId());
+                }
 
-                if (message != null && this.isMessageValid(packet))
+                if (outboundPacket != null)
                 {
-                    //Codes_SRS_IOTHUBTRANSPORT_34_044: [This function continue to dequeue packets saved in the waiting
-                    // queue and send them until connection status isn't CONNECTED or until 10 messages have been sent]
-                    sendPacket(packet);
+                    //Codes_SRS_IOTHUBTRANSPORT_34_093: [If an exception is encountered while sending the batch, this
+                    // function shall invoke handleMessageException with each packet of the batch.]
+                    this.handleMessageException(outboundPacket, transportException);
                 }
             }
         }
     }
 
+    /**
+     * Checks, without walking the whole queue, if at least the provided number of packets are waiting to be sent
+     * @param count the number of packets to look for
+     * @return true if at least count packets are waiting
+     */
+    private boolean hasWaitingPackets(int count)
+    {
+        int waiting = 0;
+        for (IotHubTransportPacket ignored : this.waitingPacketsQueue)
+        {
+            if (++waiting >= count)
+            {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Schedules the send thread to be signalled after the provided delay, unless such a signal is already scheduled
+     * @param delayMillis the delay before the signal
+     */
+    private void scheduleBatchLingerSignal(long delayMillis)
+    {
+        if (this.isBatchLingerScheduled || this.taskScheduler == null)
+        {
+            return;
+        }
+
+        this.isBatchLingerScheduled = true;
+        this.taskScheduler.schedule(new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                isBatchLingerScheduled = false;
+                signalSendWork();
+            }
+        }, delayMillis, MILLISECONDS);
+    }
+
+    /**
+     * The number of packets that may wait for their acknowledgement at the same time. Over MQTT the window grows with
+     * the configured max in flight count, so that the publish window of the connection can be filled.
+     * @return the size of the in progress window
+     */
+    private int getMaxInProgressPackets()
+    {
+        IotHubClientProtocol protocol = this.defaultConfig.getProtocol();
+        if (protocol == IotHubClientProtocol.MQTT || protocol == IotHubClientProtocol.MQTT_WS)
+        {
+            //Codes_SRS_IOTHUBTRANSPORT_34_096: [If the protocol is MQTT or MQTT_WS, the in progress window shall
+            // hold at least as many packets as the configured mqtt max in flight count.]
+            return Math.max(MAX_IN_PROGRESS_PACKETS, this.defaultConfig.getMqttMaxInFlightCount());
+        }
+
+        return MAX_IN_PROGRESS_PACKETS;
+    }
+
+    private boolean isHttpsBatchingEnabled()
+    {
+        return this.defaultConfig.getProtocol() == IotHubClientProtocol.HTTPS
+                && this.defaultConfig.getHttpsBatchSize() > 1;
+    }
+
+    /**
+     * Blocks the calling thread until there is work for the send thread, that is until a packet is queued, a
+     * callback is ready to be invoked, an in progress packet is acknowledged, or the connection is established.
+     * Signals that arrive while no thread is waiting are not lost.
+     *
+     * @return {@code true} if there is work to do, or {@code false} if the calling thread was interrupted.
+     */
+    public boolean waitForSendWork()
+    {
+        synchronized (this.sendThreadLock)
+        {
+            try
+            {
+                //Codes_SRS_IOTHUBTRANSPORT_34_082: [This function shall wait until the send thread has been signalled
+                // and then clear the signal and return true.]
+                while (!this.hasSendWork)
+                {
+                    this.sendThreadLock.wait();
+                }
+
+                this.hasSendWork = false;
+                return true;
+            }
+            catch (InterruptedException e)
+            {
+                //Codes_SRS_IOTHUBTRANSPORT_34_083: [If the waiting thread is interrupted, this function shall restore
+                // the interrupt flag and return false.]
+                Thread.currentThread().interrupt();
+                return false;
+            }
+        }
+    }
+
+    /**
+     * Wakes up the send thread if it is waiting in {@link #waitForSendWork()}, or makes its next call return
+     * immediately.
+     */
+    public void signalSendWork()
+    {
+        synchronized (this.sendThreadLock)
+        {
+            //Codes_SRS_IOTHUBTRANSPORT_34_084: [This function shall signal the send thread and wake it up if it is waiting.]
+            this.hasSendWork = true;
+            this.sendThreadLock.notifyAll();
+        }
+    }
+
     /**
      * Invokes the callbacks for all completed requests.
      */
@@ -389,7 +684,7 @@ public class IotHubTransport implements IotHubListener
             Object context = packet.getContext();
 
             logger.LogInfo("Invoking the callback function for sent message, IoT Hub responded to message with " +
-                    "status %s, method name is %s ", status.name(), logger.getMethodName());
+                    "status %s, method name is invokeCallbacks ", status.name());
 
             //Codes_SRS_IOTHUBTRANSPORT_34_045: [This function shall dequeue each packet in the callback queue and
             // execute their saved callback with their saved status and context]
@@ -563,8 +858,12 @@ public class IotHubTransport implements IotHubListener
         if (transportMessage != null)
         {
             //Codes_SRS_IOTHUBTRANSPORT_34_056: [If the saved http transport connection can receive a message, add it to receivedMessagesQueue.]
-            logger.LogInfo("Message with hashcode %s is received from IotHub on %s, method name is addReceivedMessagesOverHttpToReceivedQueue",
-                    transportMessage.hashCode(), new Date());
+            if (logger.isInfoEnabled())
+            {
+                logger.LogInfo("Message with hashcode %s is received from IotHub on %s, method name is addReceivedMessagesOverHttpToReceivedQueue",
+                        transportMessage.hashCode(), new Date());
+            }
+
             this.receivedMessagesQueue.add(transportMessage);
         }
     }
@@ -651,7 +950,7 @@ public class IotHubTransport implements IotHubListener
     private void handleDisconnection(TransportException transportException)
     {
         logger.LogInfo("The messages in progress are buffered to be sent again due to a connection loss, " +
-                "method name is %s ", logger.getMethodName());
+                "method name is handleDisconnection ");
 
         synchronized (this.inProgressMessagesLock)
         {
@@ -786,6 +1085,10 @@ public class IotHubTransport implements IotHubListener
         public void run()
         {
             this.waitingPacketsQueue.add(this.transportPacket);
+
+            //Codes_SRS_IOTHUBTRANSPORT_34_085: [This function shall signal the send thread once the packet is back in
+            // the waiting queue.]
+            IotHubTransport.this.signalSendWork();
         }
     }
 
@@ -903,7 +1206,7 @@ public class IotHubTransport implements IotHubListener
             //Codes_SRS_IOTHUBTRANSPORT_28_008:[This function shall set the packet status to MESSAGE_EXPIRED if packet has expired.]
             //Codes_SRS_IOTHUBTRANSPORT_28_009:[This function shall add the expired packet to the Callback Queue.]
             logger.LogInfo("Creating a callback for the expired message with MESSAGE_EXPIRED status, method " +
-                    "name is %s ", logger.getMethodName());
+                    "name is isMessageValid ");
             packet.setStatus(IotHubStatusCode.MESSAGE_EXPIRED);
             this.addToCallbackQueue(packet);
             return false;
@@ -914,7 +1217,7 @@ public class IotHubTransport implements IotHubListener
             //Codes_SRS_IOTHUBTRANSPORT_28_010:[This function shall set the packet status to UNAUTHORIZED if sas token has expired.]
             //Codes_SRS_IOTHUBTRANSPORT_28_011:[This function shall add the packet which sas token has expired to the Callback Queue.]
             logger.LogInfo("Creating a callback for the message with expired sas token with UNAUTHORIZED status," +
-                    " method name is %s ", logger.getMethodName());
+                    " method name is isMessageValid ");
             packet.setStatus(IotHubStatusCode.UNAUTHORIZED);
             this.addToCallbackQueue(packet);
             this.updateStatus(
@@ -952,6 +1255,10 @@ public class IotHubTransport implements IotHubListener
                 //Codes_SRS_IOTHUBTRANSPORT_28_007: [This function shall reset currentReconnectionAttempt and reconnectionAttemptStartTimeMillis if connection status is changed to CONNECTED.]
                 this.currentReconnectionAttempt = 0;
                 this.reconnectionAttemptStartTimeMillis = 0;
+
+                //Codes_SRS_IOTHUBTRANSPORT_34_086: [If the connection status is changed to CONNECTED, this function shall
+                // signal the send thread so that packets queued while disconnected are sent.]
+                this.signalSendWork();
             }
         }
     }
@@ -1032,6 +1339,9 @@ public class IotHubTransport implements IotHubListener
         if (packet.getCallback() != null)
         {
             this.callbackPacketsQueue.add(packet);
+
+            //Codes_SRS_IOTHUBTRANSPORT_34_087: [This function shall signal the send thread, which invokes the callbacks.]
+            this.signalSendWork();
         }
     }
 
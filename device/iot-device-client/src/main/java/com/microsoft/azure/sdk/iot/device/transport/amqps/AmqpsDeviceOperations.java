@@ -18,8 +18,11 @@ import org.apache.qpid.proton.engine.*;
 import org.apache.qpid.proton.message.impl.MessageImpl;
 
 import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Queue;
 import java.util.UUID;
 
 public class AmqpsDeviceOperations
@@ -50,8 +53,23 @@ public class AmqpsDeviceOperations
     protected Sender senderLink;
     protected Receiver receiverLink;
 
+    // messages sent while the sender link had no credit, in the order they were sent
+    private final Queue<PendingDelivery> pendingDeliveries = new ArrayDeque<>();
+
     private CustomLogger logger;
 
+    private static final class PendingDelivery
+    {
+        private final byte[] msgData;
+        private final byte[] deliveryTag;
+
+        private PendingDelivery(byte[] msgData, byte[] deliveryTag)
+        {
+            this.msgData = msgData;
+            this.deliveryTag = deliveryTag;
+        }
+    }
+
     /**
      * This constructor creates an instance of device operation class and initializes member variables
      *
@@ -129,7 +147,7 @@ public class AmqpsDeviceOperations
      */
     protected synchronized void openLinks(Session session) throws TransportException
     {
-        logger.LogDebug("Entered in method %s", logger.getMethodName());
+        logger.LogDebug("Entered in method openLinks");
 
         // Codes_SRS_AMQPSDEVICEOPERATIONS_12_006: [The function shall throw IllegalArgumentException if the session argument is null.]
         if (session == null)
@@ -194,15 +212,18 @@ public class AmqpsDeviceOperations
             }
         }
 
-        logger.LogDebug("Exited from method %s", logger.getMethodName());
+        logger.LogDebug("Exited from method openLinks");
     }
 
     /**
      * Closes receiver and sender link if they are not null
      */
-    protected void closeLinks()
+    protected synchronized void closeLinks()
     {
-        logger.LogDebug("Entered in method %s", logger.getMethodName());
+        logger.LogDebug("Entered in method closeLinks");
+
+        // Codes_SRS_AMQPSDEVICEOPERATIONS_34_050: [The function shall drop the messages waiting for credit on the sender link.]
+        this.pendingDeliveries.clear();
 
         // Codes_SRS_AMQPSDEVICEOPERATIONS_12_011: [If the sender link is not null the function shall close it and sets it to null.]
         if (this.senderLink != null)
@@ -219,7 +240,7 @@ public class AmqpsDeviceOperations
         this.amqpsSendLinkState = AmqpsDeviceOperationLinkState.CLOSED;
         this.amqpsRecvLinkState = AmqpsDeviceOperationLinkState.CLOSED;
 
-        logger.LogDebug("Exited from method %s", logger.getMethodName());
+        logger.LogDebug("Exited from method closeLinks");
     }
 
     /**
@@ -230,7 +251,7 @@ public class AmqpsDeviceOperations
      */
     protected synchronized void initLink(Link link) throws TransportException, IllegalArgumentException
     {
-        logger.LogDebug("Entered in method %s", logger.getMethodName());
+        logger.LogDebug("Entered in method initLink");
 
         if (link == null)
         {
@@ -284,7 +305,7 @@ public class AmqpsDeviceOperations
             }
         }
 
-        logger.LogDebug("Exited from method %s", logger.getMethodName());
+        logger.LogDebug("Exited from method initLink");
     }
 
     /**
@@ -294,7 +315,7 @@ public class AmqpsDeviceOperations
      * @param offset The start offset to copy the bytes from
      * @param length The number of bytes to be send related to the offset
      * @param deliveryTag The unique identfier of the delivery
-     * @return delivery tag
+     * @return delivery tag, with a delivery hash of -1 if the message is waiting for credit on the sender link
      * @throws IllegalStateException if sender link has not been initialized
      * @throws IllegalArgumentException if deliveryTag's length is 0
      */
@@ -312,6 +333,49 @@ public class AmqpsDeviceOperations
             throw new IllegalArgumentException("Trying deliveryTag cannot be null.");
         }
 
+        if (this.senderLink.getCredit() <= 0 || !this.pendingDeliveries.isEmpty())
+        {
+            // Codes_SRS_AMQPSDEVICEOPERATIONS_34_049: [If the sender link has no credit or other messages are waiting for credit, the function shall queue a copy of the message data behind them and return a successful result.]
+            this.pendingDeliveries.add(new PendingDelivery(Arrays.copyOfRange(msgData, offset, offset + length), deliveryTag));
+            return new AmqpsSendReturnValue(true, -1);
+        }
+
+        return this.sendDelivery(msgData, offset, length, deliveryTag);
+    }
+
+    /**
+     * Sends the messages that were queued while the sender link had no credit, for as long as the link has credit.
+     *
+     * @param linkName the name of the link whose credit changed
+     * @return true if the link is the sender link of this operation, false otherwise
+     */
+    protected synchronized boolean onLinkFlow(String linkName)
+    {
+        if (this.senderLink == null || !linkName.equals(this.getSenderLinkTag()))
+        {
+            // Codes_SRS_AMQPSDEVICEOPERATIONS_34_051: [If the sender link is not initialized or the linkName is not its tag, the function shall return false.]
+            return false;
+        }
+
+        // Codes_SRS_AMQPSDEVICEOPERATIONS_34_052: [The function shall send the queued messages in order until the queue is empty or the sender link runs out of credit.]
+        while (this.senderLink.getCredit() > 0 && !this.pendingDeliveries.isEmpty())
+        {
+            PendingDelivery pendingDelivery = this.pendingDeliveries.peek();
+            if (!this.sendDelivery(pendingDelivery.msgData, 0, pendingDelivery.msgData.length, pendingDelivery.deliveryTag).isDeliverySuccessful())
+            {
+                // Codes_SRS_AMQPSDEVICEOPERATIONS_34_053: [If proton fails to send a queued message, the function shall leave it at the head of the queue and stop.]
+                logger.LogError("Failed to send a message that was waiting for link credit, method name is onLinkFlow");
+                break;
+            }
+
+            this.pendingDeliveries.remove();
+        }
+
+        return true;
+    }
+
+    private AmqpsSendReturnValue sendDelivery(byte[] msgData, int offset, int length, byte[] deliveryTag)
+    {
         // Codes_SRS_AMQPSDEVICEOPERATIONS_12_021: [The function shall create a Delivery object using the sender link and the deliveryTag.]
         Delivery delivery = this.senderLink.delivery(deliveryTag);
         try
@@ -591,7 +655,8 @@ public class AmqpsDeviceOperations
         outgoingMessage.setApplicationProperties(applicationProperties);
 
         //Codes_SRS_AMQPSDEVICEOPERATION_34_015: [The function shall create a new Proton message using the IoTHubMessage body.]
-        Binary binary = new Binary(message.getBytes());
+        //Codes_SRS_AMQPSDEVICEOPERATION_34_055: [The Proton message body shall share the array that holds the IoTHubMessage body, at its offset and length, without copying it.]
+        Binary binary = new Binary(MessageBodyAccessor.getBodyBackingArray(message), MessageBodyAccessor.getBodyOffset(message), message.getBodyLength());
         Section section = new Data(binary);
         outgoingMessage.setBody(section);
         return outgoingMessage;
@@ -0,0 +1,307 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See LICENSE file in the project root for full license information.
+
+package com.microsoft.azure.sdk.iot.device.transport.amqps;
+
+import com.microsoft.azure.sdk.iot.device.CustomLogger;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * A bounded set of threads that runs the Proton reactors of many AMQPS connections, so that a process hosting
+ * thousands of device clients does not need a reactor thread and a scheduler per client. Each client keeps its own
+ * connection and reactor; the reactors are shared out between the event loops, and every event loop runs all of its
+ * reactors in turn every {@value #TICK_MILLISECONDS} milliseconds, the same interval a dedicated reactor thread waits
+ * for its socket. The group also provides the scheduler that runs the periodic tasks of its clients.
+ * <p>
+ * A group is opt-in. It is handed to each client through the "SetAmqpsEventLoopGroup" option, it outlives the clients
+ * that use it, and it must be closed by its owner once those clients are closed.
+ * </p>
+ */
+public final class AmqpsEventLoopGroup implements Closeable
+{
+    private static final long TICK_MILLISECONDS = 10;
+    private static final String THREAD_NAME = "azure-iot-sdk-AmqpsEventLoop-";
+
+    private final EventLoop[] eventLoops;
+    private final Thread[] threads;
+    private final ScheduledExecutorService scheduler;
+    // Held while adding a reactor and while closing, so that no reactor is added after an event loop finished its last ones
+    private final Object closeLock = new Object();
+    private volatile boolean isClosed;
+
+    private final CustomLogger logger = new CustomLogger(this.getClass());
+
+    /**
+     * Creates an event loop group with one event loop per available processor.
+     */
+    public AmqpsEventLoopGroup()
+    {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Creates an event loop group and starts its event loops.
+     *
+     * @param threadCount the number of event loops, which is also the number of scheduler threads.
+     * @throws IllegalArgumentException if the thread count is less than 1.
+     */
+    public AmqpsEventLoopGroup(int threadCount) throws IllegalArgumentException
+    {
+        if (threadCount < 1)
+        {
+            // Codes_SRS_AMQPSEVENTLOOPGROUP_34_001: [If the provided thread count is less than 1, the constructor shall throw an IllegalArgumentException.]
+            throw new IllegalArgumentException("threadCount must be at least 1");
+        }
+
+        // Codes_SRS_AMQPSEVENTLOOPGROUP_34_002: [The constructor shall start one event loop thread per the provided thread count.]
+        this.eventLoops = new EventLoop[threadCount];
+        this.threads = new Thread[threadCount];
+        for (int i = 0; i < threadCount; i++)
+        {
+            this.eventLoops[i] = new EventLoop();
+            this.threads[i] = new Thread(this.eventLoops[i], THREAD_NAME + i);
+            this.threads[i].start();
+        }
+
+        // Codes_SRS_AMQPSEVENTLOOPGROUP_34_003: [The constructor shall create a scheduler with the provided thread count.]
+        this.scheduler = Executors.newScheduledThreadPool(threadCount);
+    }
+
+    /**
+     * Hands a reactor over to the event loop that runs the fewest reactors. The event loop starts the reactor, runs
+     * it until it stops, and then frees it.
+     *
+     * @param iotHubReactor the reactor to run.
+     * @param connection the connection that owns the reactor, told about errors thrown by the reactor.
+     * @return a latch that is released once the event loop is done with the reactor.
+     * @throws IllegalArgumentException if the reactor or the connection is null.
+     * @throws IllegalStateException if the group is closed.
+     */
+    CountDownLatch register(IotHubReactor iotHubReactor, AmqpsIotHubConnection connection) throws IllegalArgumentException, IllegalStateException
+    {
+        if (iotHubReactor == null || connection == null)
+        {
+            // Codes_SRS_AMQPSEVENTLOOPGROUP_34_004: [If the provided reactor or connection is null, this function shall throw an IllegalArgumentException.]
+            throw new IllegalArgumentException("iotHubReactor and connection cannot be null");
+        }
+
+        synchronized (this.closeLock)
+        {
+            if (this.isClosed)
+            {
+                // Codes_SRS_AMQPSEVENTLOOPGROUP_34_005: [If the group is closed, this function shall throw an IllegalStateException.]
+                throw new IllegalStateException("AmqpsEventLoopGroup is closed");
+            }
+
+            // Codes_SRS_AMQPSEVENTLOOPGROUP_34_006: [This function shall add the reactor to the event loop that runs the fewest reactors and return a latch that is released once that event loop is done with the reactor.]
+            EventLoop leastLoaded = this.eventLoops[0];
+            for (EventLoop eventLoop : this.eventLoops)
+            {
+                if (eventLoop.load.get() < leastLoaded.load.get())
+                {
+                    leastLoaded = eventLoop;
+                }
+            }
+
+            Registration registration = new Registration(iotHubReactor, connection);
+            leastLoaded.load.incrementAndGet();
+            leastLoaded.added.add(registration);
+            return registration.finished;
+        }
+    }
+
+    /**
+     * Getter for the scheduler shared by the clients of this group. Clients must cancel the tasks they schedule
+     * instead of shutting the scheduler down.
+     *
+     * @return the shared scheduler.
+     */
+    public ScheduledExecutorService getScheduler()
+    {
+        // Codes_SRS_AMQPSEVENTLOOPGROUP_34_007: [This function shall return the scheduler of the group.]
+        return this.scheduler;
+    }
+
+    /**
+     * Stops the event loops and shuts the scheduler down. Returns once every event loop has stopped and freed the
+     * reactors it still ran, unless it is called from an event loop, which cannot wait for itself, or the calling
+     * thread is interrupted. Closing a closed group does nothing.
+     */
+    @Override
+    public void close()
+    {
+        synchronized (this.closeLock)
+        {
+            if (this.isClosed)
+            {
+                // Codes_SRS_AMQPSEVENTLOOPGROUP_34_008: [If the group is already closed, this function shall do nothing.]
+                return;
+            }
+
+            // Codes_SRS_AMQPSEVENTLOOPGROUP_34_009: [This function shall mark the group as closed, wake every event loop so that it finishes its reactors and exits, and shut the scheduler down.]
+            this.isClosed = true;
+        }
+
+        for (Thread thread : this.threads)
+        {
+            LockSupport.unpark(thread);
+        }
+
+        this.scheduler.shutdownNow();
+
+        // Codes_SRS_AMQPSEVENTLOOPGROUP_34_015: [This function shall wait for every event loop thread other than the calling thread to exit.]
+        for (Thread thread : this.threads)
+        {
+            if (thread == Thread.currentThread())
+            {
+                continue;
+            }
+
+            try
+            {
+                thread.join();
+            }
+            catch (InterruptedException e)
+            {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    private static final class Registration
+    {
+        private final IotHubReactor iotHubReactor;
+        private final AmqpsIotHubConnection connection;
+        private final CountDownLatch finished = new CountDownLatch(1);
+
+        private Registration(IotHubReactor iotHubReactor, AmqpsIotHubConnection connection)
+        {
+            this.iotHubReactor = iotHubReactor;
+            this.connection = connection;
+        }
+    }
+
+    /**
+     * Runs a set of reactors on one thread. Only that thread processes them; other threads only queue new reactors.
+     */
+    private final class EventLoop implements Runnable
+    {
+        private final Queue<Registration> added = new ConcurrentLinkedQueue<>();
+        private final List<Registration> running = new ArrayList<>();
+        private final AtomicInteger load = new AtomicInteger();
+
+        @Override
+        public void run()
+        {
+            while (!isClosed)
+            {
+                long passStart = System.nanoTime();
+
+                // Codes_SRS_AMQPSEVENTLOOPGROUP_34_010: [Each event loop shall start the reactors added to it before its next pass.]
+                Registration registration;
+                while ((registration = this.added.poll()) != null)
+                {
+                    try
+                    {
+                        registration.iotHubReactor.start();
+                        this.running.add(registration);
+                    }
+                    catch (RuntimeException e)
+                    {
+                        this.fail(registration, e);
+                    }
+                }
+
+                // Codes_SRS_AMQPSEVENTLOOPGROUP_34_011: [Each pass of an event loop shall process each of its reactors once, and finish and drop the reactors that stopped.]
+                Iterator<Registration> iterator = this.running.iterator();
+                while (iterator.hasNext())
+                {
+                    registration = iterator.next();
+                    try
+                    {
+                        if (!registration.iotHubReactor.process())
+                        {
+                            iterator.remove();
+                            this.finish(registration);
+                        }
+                    }
+                    catch (RuntimeException e)
+                    {
+                        // Codes_SRS_AMQPSEVENTLOOPGROUP_34_012: [If a reactor throws, the event loop shall drop it and report the error to its connection, and go on running its other reactors.]
+                        iterator.remove();
+                        this.fail(registration, e);
+                    }
+                }
+
+                // Codes_SRS_AMQPSEVENTLOOPGROUP_34_013: [Each event loop shall wait for the rest of the tick after each pass.]
+                long remainingNanos = TimeUnit.MILLISECONDS.toNanos(TICK_MILLISECONDS) - (System.nanoTime() - passStart);
+                if (remainingNanos > 0)
+                {
+                    LockSupport.parkNanos(remainingNanos);
+                }
+            }
+
+            // Codes_SRS_AMQPSEVENTLOOPGROUP_34_014: [Once the group is closed, each event loop shall finish all of its reactors and exit.]
+            this.running.addAll(this.added);
+            this.added.clear();
+            for (Registration registration : this.running)
+            {
+                this.finish(registration);
+            }
+
+            this.running.clear();
+        }
+
+        private void finish(Registration registration)
+        {
+            try
+            {
+                registration.iotHubReactor.finish();
+            }
+            catch (RuntimeException e)
+            {
+                logger.LogError(e);
+            }
+            finally
+            {
+                this.release(registration);
+            }
+        }
+
+        private void fail(Registration registration, RuntimeException e)
+        {
+            try
+            {
+                registration.connection.onReactorError(e);
+            }
+            catch (RuntimeException reportingException)
+            {
+                // The other reactors of this event loop must keep running even if the connection cannot be told
+                logger.LogError(reportingException);
+            }
+            finally
+            {
+                this.release(registration);
+            }
+        }
+
+        private void release(Registration registration)
+        {
+            this.load.decrementAndGet();
+            registration.finished.countDown();
+        }
+    }
+}
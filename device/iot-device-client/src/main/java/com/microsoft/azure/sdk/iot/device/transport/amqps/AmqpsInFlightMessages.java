@@ -0,0 +1,142 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See LICENSE file in the project root for full license information.
+
+package com.microsoft.azure.sdk.iot.device.transport.amqps;
+
+import com.microsoft.azure.sdk.iot.device.Message;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * The messages sent over an AMQP connection that IotHub has not acknowledged yet, keyed by the delivery id of the
+ * message. Delivery ids grow by one with every send, so each id has its own slot in a fixed size ring and putting,
+ * finding and removing a message takes no lock and boxes nothing. An id whose slot is still held by an older
+ * unacknowledged message goes to an overflow map instead.
+ */
+public final class AmqpsInFlightMessages
+{
+    private static final int DEFAULT_CAPACITY = 1024;
+
+    private final AtomicReferenceArray<Entry> slots;
+    private final int mask;
+    private final Map<Long, Message> overflow = new ConcurrentHashMap<>();
+
+    private static final class Entry
+    {
+        private final long deliveryId;
+        private final Message message;
+
+        private Entry(long deliveryId, Message message)
+        {
+            this.deliveryId = deliveryId;
+            this.message = message;
+        }
+    }
+
+    /**
+     * Creates an empty table with the default number of slots.
+     */
+    AmqpsInFlightMessages()
+    {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Creates an empty table.
+     *
+     * @param capacity the number of slots in the ring, rounded up to a power of two.
+     * @throws IllegalArgumentException if the capacity is less than 1.
+     */
+    AmqpsInFlightMessages(int capacity) throws IllegalArgumentException
+    {
+        if (capacity < 1)
+        {
+            // Codes_SRS_AMQPSINFLIGHTMESSAGES_34_001: [If the provided capacity is less than 1, the constructor shall throw an IllegalArgumentException.]
+            throw new IllegalArgumentException("capacity must be at least 1");
+        }
+
+        // Codes_SRS_AMQPSINFLIGHTMESSAGES_34_002: [The constructor shall create a ring with the provided capacity rounded up to a power of two.]
+        int slotCount = Integer.highestOneBit(capacity);
+        if (slotCount < capacity)
+        {
+            slotCount <<= 1;
+        }
+
+        this.slots = new AtomicReferenceArray<>(slotCount);
+        this.mask = slotCount - 1;
+    }
+
+    /**
+     * Saves a message that was sent with the provided delivery id.
+     *
+     * @param deliveryId the delivery id the message was sent with.
+     * @param message the sent message.
+     * @throws IllegalArgumentException if the delivery id is negative or the message is null.
+     */
+    void put(long deliveryId, Message message) throws IllegalArgumentException
+    {
+        if (deliveryId < 0 || message == null)
+        {
+            // Codes_SRS_AMQPSINFLIGHTMESSAGES_34_003: [If the delivery id is negative or the message is null, this function shall throw an IllegalArgumentException.]
+            throw new IllegalArgumentException("deliveryId cannot be negative and message cannot be null");
+        }
+
+        // Codes_SRS_AMQPSINFLIGHTMESSAGES_34_004: [If the slot of the delivery id is free, this function shall save the message in that slot.]
+        if (!this.slots.compareAndSet(slotOf(deliveryId), null, new Entry(deliveryId, message)))
+        {
+            // Codes_SRS_AMQPSINFLIGHTMESSAGES_34_005: [If the slot of the delivery id holds another message, this function shall save the message in the overflow map.]
+            this.overflow.put(deliveryId, message);
+        }
+    }
+
+    /**
+     * Checks for a message that was sent with the provided delivery id.
+     *
+     * @param deliveryId the delivery id to look for.
+     * @return true if a message with this delivery id has been saved and not removed yet.
+     */
+    boolean containsKey(long deliveryId)
+    {
+        // Codes_SRS_AMQPSINFLIGHTMESSAGES_34_006: [This function shall return true if and only if a message with the provided delivery id is saved in its slot or in the overflow map.]
+        Entry entry = this.slots.get(slotOf(deliveryId));
+        if (entry != null && entry.deliveryId == deliveryId)
+        {
+            return true;
+        }
+
+        return !this.overflow.isEmpty() && this.overflow.containsKey(deliveryId);
+    }
+
+    /**
+     * Removes the message that was sent with the provided delivery id.
+     *
+     * @param deliveryId the delivery id of the message.
+     * @return the removed message, or null if no message with this delivery id was saved.
+     */
+    Message remove(long deliveryId)
+    {
+        int slot = slotOf(deliveryId);
+        Entry entry = this.slots.get(slot);
+        if (entry != null && entry.deliveryId == deliveryId && this.slots.compareAndSet(slot, entry, null))
+        {
+            // Codes_SRS_AMQPSINFLIGHTMESSAGES_34_007: [If the slot of the delivery id holds its message, this function shall free the slot and return the message.]
+            return entry.message;
+        }
+
+        if (this.overflow.isEmpty())
+        {
+            // Codes_SRS_AMQPSINFLIGHTMESSAGES_34_008: [If no message with the provided delivery id is saved, this function shall return null.]
+            return null;
+        }
+
+        // Codes_SRS_AMQPSINFLIGHTMESSAGES_34_009: [If the message with the provided delivery id is in the overflow map, this function shall remove it from there and return it.]
+        return this.overflow.remove(deliveryId);
+    }
+
+    private int slotOf(long deliveryId)
+    {
+        return (int) (deliveryId & this.mask);
+    }
+}
@@ -40,7 +40,6 @@ public final class AmqpsIotHubConnection extends BaseHandler implements IotHubTr
     private static final int MAX_WAIT_TO_TERMINATE_EXECUTOR = 30;
     private IotHubConnectionStatus state;
 
-    private int linkCredit = -1;
     /** The {@link Delivery} tag. */
     private static final String WEB_SOCKET_PATH = "/$iothub/websocket";
     private static final String WEB_SOCKET_SUB_PROTOCOL = "AMQPWSB10";
@@ -54,7 +53,7 @@ public final class AmqpsIotHubConnection extends BaseHandler implements IotHubTr
     private final Boolean useWebSockets;
     private DeviceClientConfig deviceClientConfig;
 
-    private final Map<Integer, com.microsoft.azure.sdk.iot.device.Message> inProgressMessages = new ConcurrentHashMap<>();
+    private final AmqpsInFlightMessages inProgressMessages = new AmqpsInFlightMessages();
     private final Map<com.microsoft.azure.sdk.iot.device.Message, AmqpsMessage> sendAckMessages = new ConcurrentHashMap<>();
 
     private IotHubListener listener;
@@ -66,6 +65,9 @@ public final class AmqpsIotHubConnection extends BaseHandler implements IotHubTr
     private ExecutorService executorService;
     private ScheduledExecutorService scheduledExecutorService;
 
+    private final AmqpsEventLoopGroup eventLoopGroup;
+    private CountDownLatch reactorFinishedLatch;
+
     private CountDownLatch openLatch;
     private CountDownLatch closeLatch;
 
@@ -138,10 +140,20 @@ public final class AmqpsIotHubConnection extends BaseHandler implements IotHubTr
         // Codes_SRS_AMQPSIOTHUBCONNECTION_15_006: [The constructor shall set its state to DISCONNECTED.]
         this.state = IotHubConnectionStatus.DISCONNECTED;
 
-        logger.LogInfo("AmqpsIotHubConnection object is created successfully using port %s in %s method ", useWebSockets ? AMQP_WEB_SOCKET_PORT : AMQP_PORT, logger.getMethodName());
+        logger.LogInfo("AmqpsIotHubConnection object is created successfully using port %s in AmqpsIotHubConnection method ", useWebSockets ? AMQP_WEB_SOCKET_PORT : AMQP_PORT);
 
-        // Codes_SRS_AMQPSIOTHUBCONNECTION_12_001: [The constructor shall initialize the AmqpsSessionManager member variable with the given config.]
-        this.amqpsSessionManager = new AmqpsSessionManager(this.deviceClientConfig, Executors.newScheduledThreadPool(2));
+        this.eventLoopGroup = this.deviceClientConfig.getAmqpsEventLoopGroup();
+        if (this.eventLoopGroup != null)
+        {
+            // Codes_SRS_AMQPSIOTHUBCONNECTION_34_094: [If the config has an AmqpsEventLoopGroup, the constructor shall
+            // initialize the AmqpsSessionManager with the given config and the shared scheduler of that group.]
+            this.amqpsSessionManager = new AmqpsSessionManager(this.deviceClientConfig, this.eventLoopGroup.getScheduler(), true);
+        }
+        else
+        {
+            // Codes_SRS_AMQPSIOTHUBCONNECTION_12_001: [The constructor shall initialize the AmqpsSessionManager member variable with the given config.]
+            this.amqpsSessionManager = new AmqpsSessionManager(this.deviceClientConfig, Executors.newScheduledThreadPool(2));
+        }
     }
 
     /**
@@ -175,7 +187,7 @@ public final class AmqpsIotHubConnection extends BaseHandler implements IotHubTr
      */
     public void open(Queue<DeviceClientConfig> deviceClientConfigs) throws TransportException
     {
-        logger.LogDebug("Entered in method %s", logger.getMethodName());
+        logger.LogDebug("Entered in method open");
 
         // Codes_SRS_AMQPSIOTHUBCONNECTION_15_007: [If the AMQPS connection is already open, the function shall do nothing.]
         if(this.state == IotHubConnectionStatus.DISCONNECTED)
@@ -231,7 +243,7 @@ public final class AmqpsIotHubConnection extends BaseHandler implements IotHubTr
 
         this.listener.onConnectionEstablished(this.connectionId);
 
-        logger.LogDebug("Exited from method %s", logger.getMethodName());
+        logger.LogDebug("Exited from method open");
     }
 
     /**
@@ -240,7 +252,7 @@ public final class AmqpsIotHubConnection extends BaseHandler implements IotHubTr
      */
     private void openAsync() throws TransportException
     {
-        logger.LogDebug("Entered in method %s", logger.getMethodName());
+        logger.LogDebug("Entered in method openAsync");
 
         if (this.reactor == null)
         {
@@ -248,16 +260,25 @@ public final class AmqpsIotHubConnection extends BaseHandler implements IotHubTr
             this.reactor = createReactor();
         }
 
+        IotHubReactor iotHubReactor = new IotHubReactor(reactor);
+        if (this.eventLoopGroup != null)
+        {
+            // Codes_SRS_AMQPSIOTHUBCONNECTION_34_095: [If the config has an AmqpsEventLoopGroup, the function shall
+            // register the reactor with that group instead of running it on a thread of its own.]
+            this.reactorFinishedLatch = this.eventLoopGroup.register(iotHubReactor, this);
+            logger.LogInfo("Reactor is assigned to the shared event loop group, method name is openAsync ");
+            return;
+        }
+
         if (executorService == null)
         {
             executorService = Executors.newFixedThreadPool(1);
         }
 
-        IotHubReactor iotHubReactor = new IotHubReactor(reactor);
         ReactorRunner reactorRunner = new ReactorRunner(iotHubReactor, this.listener, this.connectionId);
         executorService.submit(reactorRunner);
 
-        logger.LogInfo("Reactor is assigned to executor service, method name is %s ", logger.getMethodName());
+        logger.LogInfo("Reactor is assigned to executor service, method name is openAsync ");
     }
 
     /**
@@ -266,7 +287,7 @@ public final class AmqpsIotHubConnection extends BaseHandler implements IotHubTr
      */
     public void authenticate() throws TransportException
     {
-        logger.LogDebug("Entered in method %s", logger.getMethodName());
+        logger.LogDebug("Entered in method authenticate");
 
         // Codes_SRS_AMQPSIOTHUBCONNECTION_12_020: [The function shall do nothing if the authentication is already open.]
         if (this.amqpsSessionManager.isAuthenticationOpened())
@@ -275,7 +296,7 @@ public final class AmqpsIotHubConnection extends BaseHandler implements IotHubTr
             this.amqpsSessionManager.authenticate();
         }
 
-        logger.LogDebug("Exited from method %s", logger.getMethodName());
+        logger.LogDebug("Exited from method authenticate");
     }
 
     /**
@@ -285,7 +306,7 @@ public final class AmqpsIotHubConnection extends BaseHandler implements IotHubTr
      */
     public void openLinks() throws TransportException
     {
-        logger.LogDebug("Entered in method %s", logger.getMethodName());
+        logger.LogDebug("Entered in method openLinks");
 
         // Codes_SRS_AMQPSIOTHUBCONNECTION_12_022: [The function shall do nothing if the authentication is already open.]
         if (this.amqpsSessionManager.isAuthenticationOpened())
@@ -294,7 +315,7 @@ public final class AmqpsIotHubConnection extends BaseHandler implements IotHubTr
             this.amqpsSessionManager.openDeviceOperationLinks();
         }
 
-        logger.LogDebug("Exited from method %s", logger.getMethodName());
+        logger.LogDebug("Exited from method openLinks");
     }
 
     /**
@@ -308,7 +329,7 @@ public final class AmqpsIotHubConnection extends BaseHandler implements IotHubTr
      */
     public void close(boolean isReconnecting) throws TransportException
     {
-        logger.LogDebug("Entered in method %s", logger.getMethodName());
+        logger.LogDebug("Entered in method close");
 
         closeAsync();
 
@@ -323,9 +344,32 @@ public final class AmqpsIotHubConnection extends BaseHandler implements IotHubTr
             throw new TransportException("Waited too long for the connection to close.", e);
         }
 
+        if (this.reactorFinishedLatch != null)
+        {
+            try
+            {
+                // Codes_SRS_AMQPSIOTHUBCONNECTION_34_096: [If the reactor runs on an AmqpsEventLoopGroup, the function
+                // shall wait for the group to free the reactor.]
+                if (!this.reactorFinishedLatch.await(MAX_WAIT_TO_TERMINATE_EXECUTOR, TimeUnit.SECONDS))
+                {
+                    logger.LogInfo("Event loop did not free the reactor");
+                }
+
+                this.reactorFinishedLatch = null;
+            }
+            catch (InterruptedException e)
+            {
+                // Codes_SRS_AMQPSIOTHUBCONNECTION_34_097: [The function shall throw TransportException if waiting for the
+                // group to free the reactor is interrupted.]
+                logger.LogError(e);
+                this.reactorFinishedLatch = null;
+                throw new TransportException("Waited too long for the connection to close.", e);
+            }
+        }
+
         if (this.executorService != null)
         {
-            logger.LogInfo("Shutdown of executor service has started, method name is %s ", logger.getMethodName());
+            logger.LogInfo("Shutdown of executor service has started, method name is close ");
             this.executorService.shutdown();
             try
             {
@@ -351,7 +395,7 @@ public final class AmqpsIotHubConnection extends BaseHandler implements IotHubTr
                 this.executorService = null;
                 throw new TransportException("Waited too long for the connection to close.", e);
             }
-            logger.LogInfo("Shutdown of executor service completed, method name is %s ", logger.getMethodName());
+            logger.LogInfo("Shutdown of executor service completed, method name is close ");
         }
 
         if (this.scheduledExecutorService != null && !isReconnecting)
@@ -360,7 +404,7 @@ public final class AmqpsIotHubConnection extends BaseHandler implements IotHubTr
             this.scheduledExecutorService = null;
         }
 
-        logger.LogDebug("Exited from method %s", logger.getMethodName());
+        logger.LogDebug("Exited from method close");
     }
 
     /**
@@ -369,7 +413,7 @@ public final class AmqpsIotHubConnection extends BaseHandler implements IotHubTr
      */
     private void closeAsync()
     {
-        logger.LogDebug("Entered in method %s", logger.getMethodName());
+        logger.LogDebug("Entered in method closeAsync");
 
         // Codes_SRS_AMQPSIOTHUBCONNECTION_15_012: [The function shall set the status of the AMQPS connection to DISCONNECTED.]
         this.state = IotHubConnectionStatus.DISCONNECTED;
@@ -388,9 +432,9 @@ public final class AmqpsIotHubConnection extends BaseHandler implements IotHubTr
             this.reactor.stop();
         }
 
-        logger.LogInfo("Proton reactor has been stopped, method name is %s ", logger.getMethodName());
+        logger.LogInfo("Proton reactor has been stopped, method name is closeAsync ");
 
-        logger.LogDebug("Exited from method %s", logger.getMethodName());
+        logger.LogDebug("Exited from method closeAsync");
     }
 
     /**
@@ -399,28 +443,27 @@ public final class AmqpsIotHubConnection extends BaseHandler implements IotHubTr
      * @param message The message to be sent.
      * @param messageType the type of the message being sent
      * @throws TransportException if send message fails
-     * @return An {@link Integer} representing the hash of the message, or -1 if the connection is closed.
+     * @return the delivery id of the message, or -1 if the connection is closed.
      */
-    private synchronized Integer sendMessage(Message message, MessageType messageType, String deviceId) throws TransportException
+    private long sendMessage(Message message, MessageType messageType, String deviceId) throws TransportException
     {
-        logger.LogDebug("Entered in method %s", logger.getMethodName());
+        logger.LogDebug("Entered in method sendMessage");
 
-        Integer deliveryHash = -1;
+        long deliveryId = -1;
 
-        // Codes_SRS_AMQPSIOTHUBCONNECTION_15_015: [If the state of the connection is DISCONNECTED or there is not enough
-        // credit, the function shall return -1.]
-        if (this.state == IotHubConnectionStatus.DISCONNECTED || this.linkCredit <= 0)
+        // Codes_SRS_AMQPSIOTHUBCONNECTION_15_015: [If the state of the connection is DISCONNECTED, the function shall return -1.]
+        if (this.state == IotHubConnectionStatus.DISCONNECTED)
         {
-            deliveryHash = -1;
+            deliveryId = -1;
         }
         else
         {
             // Codes_SRS_AMQPSIOTHUBCONNECTION_12_024: [The function shall call AmqpsSessionManager.sendMessage with the given parameters.]
-            deliveryHash = this.amqpsSessionManager.sendMessage(message, messageType, deviceId);
+            deliveryId = this.amqpsSessionManager.sendMessage(message, messageType, deviceId);
         }
 
-        // Codes_SRS_AMQPSIOTHUBCONNECTION_15_021: [The function shall return the delivery hash.]
-        return deliveryHash;
+        // Codes_SRS_AMQPSIOTHUBCONNECTION_15_021: [The function shall return the delivery id.]
+        return deliveryId;
     }
 
     /**
@@ -430,7 +473,7 @@ public final class AmqpsIotHubConnection extends BaseHandler implements IotHubTr
     @Override
     public void onReactorInit(Event event)
     {
-        logger.LogDebug("Entered in method %s", logger.getMethodName());
+        logger.LogDebug("Entered in method onReactorInit");
 
         // Codes_SRS_AMQPSIOTHUBCONNECTION_15_033: [The event handler shall set the current handler to handle the connection events.]
         if(this.useWebSockets)
@@ -442,7 +485,7 @@ public final class AmqpsIotHubConnection extends BaseHandler implements IotHubTr
             event.getReactor().connectionToHost(this.chooseHostname(), AMQP_PORT, this);
         }
 
-        logger.LogDebug("Exited from method %s", logger.getMethodName());
+        logger.LogDebug("Exited from method onReactorInit");
     }
 
     /**
@@ -453,7 +496,7 @@ public final class AmqpsIotHubConnection extends BaseHandler implements IotHubTr
     @Override
     public void onReactorFinal(Event event)
     {
-        logger.LogDebug("Entered in method %s", logger.getMethodName());
+        logger.LogDebug("Entered in method onReactorFinal");
 
         // Codes_SRS_AMQPSIOTHUBCONNECTION_12_011: [The function shall call countdown on close latch and open latch.]
         closeLatch.countDown();
@@ -462,7 +505,7 @@ public final class AmqpsIotHubConnection extends BaseHandler implements IotHubTr
         // Codes_SRS_AMQPSIOTHUBCONNECTION_12_012: [The function shall set the reactor member variable to null.]
         this.reactor = null;
 
-        logger.LogDebug("Exited from method %s", logger.getMethodName());
+        logger.LogDebug("Exited from method onReactorFinal");
     }
 
     /**
@@ -472,7 +515,7 @@ public final class AmqpsIotHubConnection extends BaseHandler implements IotHubTr
     @Override
     public void onConnectionInit(Event event)
     {
-        logger.LogDebug("Entered in method %s", logger.getMethodName());
+        logger.LogDebug("Entered in method onConnectionInit");
 
         // Codes_SRS_AMQPSIOTHUBCONNECTION_15_025: [The event handler shall get the Connection (Proton) object from the event handler and set the host name on the connection.]
         this.connection = event.getConnection();
@@ -491,7 +534,7 @@ public final class AmqpsIotHubConnection extends BaseHandler implements IotHubTr
             logger.LogDebug("openLinks has thrown exception: %s", e.getMessage());
         }
 
-        logger.LogDebug("Exited from method %s", logger.getMethodName());
+        logger.LogDebug("Exited from method onConnectionInit");
     }
 
     /**
@@ -501,7 +544,7 @@ public final class AmqpsIotHubConnection extends BaseHandler implements IotHubTr
     @Override
     public void onConnectionBound(Event event)
     {
-        logger.LogDebug("Entered in method %s", logger.getMethodName());
+        logger.LogDebug("Entered in method onConnectionBound");
 
         // Codes_SRS_AMQPSIOTHUBCONNECTION_15_030: [The event handler shall get the Transport (Proton) object from the event.]
         Transport transport = event.getConnection().getTransport();
@@ -526,7 +569,7 @@ public final class AmqpsIotHubConnection extends BaseHandler implements IotHubTr
             }
         }
 
-        logger.LogDebug("Exited from method %s", logger.getMethodName());
+        logger.LogDebug("Exited from method onConnectionBound");
     }
 
     /**
@@ -536,12 +579,12 @@ public final class AmqpsIotHubConnection extends BaseHandler implements IotHubTr
     @Override
     public void onConnectionUnbound(Event event)
     {
-        logger.LogDebug("Entered in method %s", logger.getMethodName());
+        logger.LogDebug("Entered in method onConnectionUnbound");
 
         // Codes_SRS_AMQPSIOTHUBCONNECTION_12_010: [The function sets the state to closed.]
         this.state = IotHubConnectionStatus.DISCONNECTED;
 
-        logger.LogDebug("Exited from method %s", logger.getMethodName());
+        logger.LogDebug("Exited from method onConnectionUnbound");
     }
 
     /**
@@ -551,7 +594,7 @@ public final class AmqpsIotHubConnection extends BaseHandler implements IotHubTr
     @Override
     public void onDelivery(Event event)
     {
-        logger.LogDebug("Entered in method %s", logger.getMethodName());
+        logger.LogDebug("Entered in method onDelivery");
 
         AmqpsMessage amqpsMessage = null;
 
@@ -583,22 +626,24 @@ public final class AmqpsIotHubConnection extends BaseHandler implements IotHubTr
             //Sender specific section for dispositions it receives
             if (event.getType() == Event.Type.DELIVERY)
             {
-                logger.LogInfo("Reading the delivery event in Sender link, method name is %s ", logger.getMethodName());
+                logger.LogInfo("Reading the delivery event in Sender link, method name is onDelivery ");
                 // Codes_SRS_AMQPSIOTHUBCONNECTION_15_038: [If this link is the Sender link and the event type is DELIVERY, the event handler shall get the Delivery (Proton) object from the event.]
                 Delivery d = event.getDelivery();
                 DeliveryState remoteState = d.getRemoteState();
 
-                logger.LogInfo("Is state of remote Delivery COMPLETE ? %s, method name is %s ", state, logger.getMethodName());
-                logger.LogInfo("Inform listener that a message has been sent to IoT Hub along with remote state, method name is %s ", logger.getMethodName());
+                logger.LogInfo("Is state of remote Delivery COMPLETE ? %s, method name is onDelivery ", state);
+                logger.LogInfo("Inform listener that a message has been sent to IoT Hub along with remote state, method name is onDelivery ");
 
                 if (!event.getLink().getSource().getAddress().equalsIgnoreCase(AmqpsDeviceAuthenticationCBS.RECEIVER_LINK_ENDPOINT_PATH))
                 {
-                    if (this.inProgressMessages.containsKey(d.hashCode()))
+                    // Codes_SRS_AMQPSIOTHUBCONNECTION_34_088: [The event handler shall match the acknowledgement to the sent message by the delivery id held in the delivery tag.]
+                    long deliveryId = AmqpsSessionDeviceOperation.toDeliveryId(d.getTag());
+                    if (this.inProgressMessages.containsKey(deliveryId))
                     {
                         if (remoteState instanceof Accepted)
                         {
                             // Codes_SRS_AMQPSIOTHUBCONNECTION_34_064: [If the acknowledgement sent from the service is "Accepted", this function shall notify its listener that the message was successfully sent.]
-                            this.listener.onMessageSent(inProgressMessages.remove(d.hashCode()), null);
+                            this.listener.onMessageSent(inProgressMessages.remove(deliveryId), null);
                         }
                         else if (remoteState instanceof Rejected)
                         {
@@ -622,7 +667,7 @@ public final class AmqpsIotHubConnection extends BaseHandler implements IotHubTr
                                 transportException = new TransportException("IotHub rejected the message");
                             }
 
-                            this.listener.onMessageSent(inProgressMessages.remove(d.hashCode()), transportException);
+                            this.listener.onMessageSent(inProgressMessages.remove(deliveryId), transportException);
 
                         }
                         else if (remoteState instanceof Modified || remoteState instanceof Released || remoteState instanceof Received)
@@ -631,7 +676,7 @@ public final class AmqpsIotHubConnection extends BaseHandler implements IotHubTr
                             TransportException transportException = new TransportException("IotHub responded to message " +
                                     "with Modified, Received or Released; message needs to be re-delivered");
                             transportException.setRetryable(true);
-                            this.listener.onMessageSent(inProgressMessages.remove(d.hashCode()), transportException);
+                            this.listener.onMessageSent(inProgressMessages.remove(deliveryId), transportException);
                         }
                     }
                     else
@@ -645,7 +690,7 @@ public final class AmqpsIotHubConnection extends BaseHandler implements IotHubTr
             }
         }
 
-        logger.LogDebug("Exited from method %s", logger.getMethodName());
+        logger.LogDebug("Exited from method onDelivery");
     }
 
     /**
@@ -655,7 +700,7 @@ public final class AmqpsIotHubConnection extends BaseHandler implements IotHubTr
     @Override
     public void onLinkInit(Event event)
     {
-        logger.LogDebug("Entered in method %s", logger.getMethodName());
+        logger.LogDebug("Entered in method onLinkInit");
 
         // Codes_SRS_AMQPSIOTHUBCONNECTION_12_016: [The function shall get the link from the event and call device operation objects with it.]
         Link link = event.getLink();
@@ -671,24 +716,25 @@ public final class AmqpsIotHubConnection extends BaseHandler implements IotHubTr
             this.savedException = e;
         }
 
-        logger.LogDebug("Exited from method %s", logger.getMethodName());
+        logger.LogDebug("Exited from method onLinkInit");
 
     }
 
     /**
-     * Event handler for the link flow event. Handles sending a single message.
+     * Event handler for the link flow event. Sends the messages that were waiting for credit on the link.
      * @param event The Proton Event object.
      */
     @Override
     public void onLinkFlow(Event event)
     {
-        logger.LogDebug("Entered in method %s", logger.getMethodName());
+        logger.LogDebug("Entered in method onLinkFlow");
 
-        // Codes_SRS_AMQPSIOTHUBCONNECTION_15_040: [The event handler shall save the remaining link credit.]
-        this.linkCredit = event.getLink().getCredit();
-        logger.LogDebug("The link credit value is %s, method name is %s", this.linkCredit, logger.getMethodName());
+        // Codes_SRS_AMQPSIOTHUBCONNECTION_15_040: [The event handler shall call AmqpsSessionManager.onLinkFlow with the name of the link, which keeps the credit of each link apart.]
+        Link link = event.getLink();
+        logger.LogDebug("The link credit value is %s, method name is onLinkFlow", link.getCredit());
+        this.amqpsSessionManager.onLinkFlow(link.getName());
 
-        logger.LogDebug("Exited from method %s", logger.getMethodName());
+        logger.LogDebug("Exited from method onLinkFlow");
     }
 
     /**
@@ -699,7 +745,7 @@ public final class AmqpsIotHubConnection extends BaseHandler implements IotHubTr
     @Override
     public void onLinkRemoteOpen(Event event)
     {
-        logger.LogDebug("Entered in method %s", logger.getMethodName());
+        logger.LogDebug("Entered in method onLinkRemoteOpen");
 
         // Codes_SRS_AMQPSIOTHUBCONNECTION_12_052: [The function shall call AmqpsSessionManager.onLinkRemoteOpen with the given link.]
         if (this.amqpsSessionManager.onLinkRemoteOpen(event))
@@ -710,7 +756,7 @@ public final class AmqpsIotHubConnection extends BaseHandler implements IotHubTr
             openLatch.countDown();
         }
 
-        logger.LogDebug("Exited from method %s", logger.getMethodName());
+        logger.LogDebug("Exited from method onLinkRemoteOpen");
     }
 
     /**
@@ -722,7 +768,7 @@ public final class AmqpsIotHubConnection extends BaseHandler implements IotHubTr
     @Override
     public void onLinkRemoteClose(Event event)
     {
-        logger.LogDebug("Entered in method %s", logger.getMethodName());
+        logger.LogDebug("Entered in method onLinkRemoteClose");
         
         this.state = IotHubConnectionStatus.DISCONNECTED;
 
@@ -731,7 +777,7 @@ public final class AmqpsIotHubConnection extends BaseHandler implements IotHubTr
 
         this.scheduleReconnection(this.savedException);
 
-        logger.LogDebug("Exited from method %s", logger.getMethodName());
+        logger.LogDebug("Exited from method onLinkRemoteClose");
     }
 
     /**
@@ -741,7 +787,7 @@ public final class AmqpsIotHubConnection extends BaseHandler implements IotHubTr
     @Override
     public void onTransportError(Event event)
     {
-        logger.LogDebug("Entered in method %s", logger.getMethodName());
+        logger.LogDebug("Entered in method onTransportError");
 
         this.state = IotHubConnectionStatus.DISCONNECTED;
 
@@ -750,7 +796,7 @@ public final class AmqpsIotHubConnection extends BaseHandler implements IotHubTr
 
         this.scheduleReconnection(this.savedException);
 
-        logger.LogDebug("Exited from method %s", logger.getMethodName());
+        logger.LogDebug("Exited from method onTransportError");
     }
 
     /**
@@ -762,7 +808,7 @@ public final class AmqpsIotHubConnection extends BaseHandler implements IotHubTr
      */
     protected AmqpsConvertToProtonReturnValue convertToProton(com.microsoft.azure.sdk.iot.device.Message message) throws TransportException
     {
-        logger.LogDebug("Entered in method %s", logger.getMethodName());
+        logger.LogDebug("Entered in method convertToProton");
 
         // Codes_SRS_AMQPSIOTHUBCONNECTION_12_056: [The function shall call AmqpsSessionManager.convertToProton with the given message.]
         return this.amqpsSessionManager.convertToProton(message);
@@ -778,7 +824,7 @@ public final class AmqpsIotHubConnection extends BaseHandler implements IotHubTr
      */
     protected AmqpsConvertFromProtonReturnValue convertFromProton(AmqpsMessage amqpsMessage, DeviceClientConfig deviceClientConfig) throws TransportException
     {
-        logger.LogDebug("Entered in method %s", logger.getMethodName());
+        logger.LogDebug("Entered in method convertFromProton");
 
         // Codes_SRS_AMQPSIOTHUBCONNECTION_12_056: [*The function shall call AmqpsSessionManager.convertFromProton with the given message. ]
         return this.amqpsSessionManager.convertFromProton(amqpsMessage, deviceClientConfig);
@@ -818,6 +864,18 @@ public final class AmqpsIotHubConnection extends BaseHandler implements IotHubTr
         }
     }
 
+    /**
+     * Called by an {@link AmqpsEventLoopGroup} on its event loop thread when the reactor of this connection threw.
+     * The connection loss is reported from another thread so that the event loop is not held up by the reconnection.
+     *
+     * @param e the exception thrown by the reactor.
+     */
+    void onReactorError(RuntimeException e)
+    {
+        // Codes_SRS_AMQPSIOTHUBCONNECTION_34_098: [The function shall schedule the reconnection with a TransportException wrapping the provided exception.]
+        this.scheduleReconnection(new TransportException(e));
+    }
+
     /**
      * Create a Proton reactor
      *
@@ -852,9 +910,9 @@ public final class AmqpsIotHubConnection extends BaseHandler implements IotHubTr
      */
     private void messageReceivedFromServer(AmqpsMessage amqpsMessage) throws TransportException
     {
-        logger.LogDebug("Entered in method %s", logger.getMethodName());
+        logger.LogDebug("Entered in method messageReceivedFromServer");
 
-        logger.LogInfo("All the listeners are informed that a message has been received, method name is %s ", logger.getMethodName());
+        logger.LogInfo("All the listeners are informed that a message has been received, method name is messageReceivedFromServer ");
 
         AmqpsConvertFromProtonReturnValue amqpsHandleMessageReturnValue = this.convertFromProton(amqpsMessage, amqpsMessage.getDeviceClientConfig());
 
@@ -890,7 +948,7 @@ public final class AmqpsIotHubConnection extends BaseHandler implements IotHubTr
                         catch (NumberFormatException nfe)
                         {
                             this.savedException = new TransportException("Encountered message from service with invalid status code value");
-                            logger.LogInfo("status code received from service could not be parsed to integer, method name is %s ", logger.getMethodName());
+                            logger.LogInfo("status code received from service could not be parsed to integer, method name is messageReceivedFromServer ");
                         }
                     }
                 }
@@ -900,14 +958,14 @@ public final class AmqpsIotHubConnection extends BaseHandler implements IotHubTr
             }
 
             // Should never happen; message type was not telemetry, twin, methods, or CBS
-            logger.LogError("No handler found for received message, method name is %s ", logger.getMethodName());
+            logger.LogError("No handler found for received message, method name is messageReceivedFromServer ");
             return;
         }
 
         // Codes_SRS_AMQPSTRANSPORT_12_008: [The function shall return if there is no message callback defined.]
         if (amqpsHandleMessageReturnValue.getMessageCallback() == null)
         {
-            logger.LogError("Callback is not defined therefore response to IoT Hub cannot be generated. All received messages will be removed from receive message queue, method name is %s ", logger.getMethodName());
+            logger.LogError("Callback is not defined therefore response to IoT Hub cannot be generated. All received messages will be removed from receive message queue, method name is messageReceivedFromServer ");
             throw new TransportException("callback is not defined");
         }
 
@@ -961,17 +1019,17 @@ public final class AmqpsIotHubConnection extends BaseHandler implements IotHubTr
         }
 
         // Codes_SRS_AMQPSTRANSPORT_34_077: [The function shall attempt to send the Proton message to IoTHub using the underlying AMQPS connection.]
-        Integer sendHash = this.sendMessage(amqpsConvertToProtonReturnValue.getMessageImpl(), amqpsConvertToProtonReturnValue.getMessageType(), message.getConnectionDeviceId());
+        long deliveryId = this.sendMessage(amqpsConvertToProtonReturnValue.getMessageImpl(), amqpsConvertToProtonReturnValue.getMessageType(), message.getConnectionDeviceId());
 
-        if (sendHash != -1)
+        if (deliveryId != -1)
         {
-            // Codes_SRS_AMQPSTRANSPORT_34_078: [If the sent message hash is valid, it shall be added to the in progress map and this function shall return OK.]
-            this.inProgressMessages.put(sendHash, message);
+            // Codes_SRS_AMQPSTRANSPORT_34_078: [If the sent message delivery id is valid, it shall be added to the in progress map and this function shall return OK.]
+            this.inProgressMessages.put(deliveryId, message);
             return IotHubStatusCode.OK;
         }
         else
         {
-            // Codes_SRS_AMQPSTRANSPORT_34_079: [If the sent message hash is -1, this function shall throw a retriable ProtocolException.]
+            // Codes_SRS_AMQPSTRANSPORT_34_079: [If the sent message delivery id is -1, this function shall throw a retriable ProtocolException.]
             ProtocolException protocolException = new ProtocolException("Send failure");
             protocolException.setRetryable(true);
             throw protocolException;
@@ -1015,7 +1073,7 @@ public final class AmqpsIotHubConnection extends BaseHandler implements IotHubTr
                     amqpsMessage.acknowledge(AmqpsMessage.ACK_TYPE.COMPLETE);
                     break;
                 default:
-                    logger.LogError("Invalid IoT Hub message result (%s), method name is %s ", result.name(), logger.getMethodName());
+                    logger.LogError("Invalid IoT Hub message result (%s), method name is sendMessageResult ", result.name());
                     return false;
             }
 
@@ -2,6 +2,8 @@ package com.microsoft.azure.sdk.iot.device.transport.amqps;
 
 import com.microsoft.azure.sdk.iot.device.*;
 import com.microsoft.azure.sdk.iot.device.exceptions.TransportException;
+import org.apache.qpid.proton.amqp.messaging.Data;
+import org.apache.qpid.proton.amqp.messaging.Section;
 import org.apache.qpid.proton.engine.*;
 
 import java.nio.BufferOverflowException;
@@ -9,7 +11,9 @@ import java.util.*;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 public class AmqpsSessionDeviceOperation
 {
@@ -20,13 +24,28 @@ public class AmqpsSessionDeviceOperation
 
     private ArrayList<AmqpsDeviceOperations> amqpsDeviceOperationsList = new ArrayList<>();;
 
-    private long nextTag = 0;
+    // shared by all sessions so that a delivery id identifies one delivery across the whole connection
+    private static final AtomicLong nextDeliveryId = new AtomicLong(0);
+
+    // the size of the encode buffer before the first message is sent
+    private static final int INITIAL_ENCODE_BUFFER_SIZE = 1024;
+    // the largest encode buffer kept between sends; larger messages are encoded into a buffer of their own
+    private static final int MAX_RETAINED_ENCODE_BUFFER_SIZE = 4 * 1024;
+    // the longest delivery tag whose digits always fit in a long
+    private static final int MAX_DELIVERY_TAG_LENGTH = 18;
+    // room for the properties and annotations that are encoded along with the body
+    private static final int ENCODE_OVERHEAD_ESTIMATE = 1024;
+
+    // reused by the sends on this session that fit in it, since proton copies the encoded message before send returns
+    private byte[] encodeBuffer = new byte[INITIAL_ENCODE_BUFFER_SIZE];
 
     private Integer openLock = new Integer(1);
 
     private long tokenRenewalPeriodInMilliseconds = 4000; //4 seconds;
 
     private ScheduledExecutorService taskSchedulerTokenRenewal;
+    private final boolean isSchedulerShared;
+    private ScheduledFuture<?> tokenRenewalFuture;
     private AmqpsDeviceAuthenticationCBSTokenRenewalTask tokenRenewalTask = null;
 
     private static final int MAX_WAIT_TO_AUTHENTICATE = 10*1000;
@@ -47,6 +66,20 @@ public class AmqpsSessionDeviceOperation
      * @throws IllegalArgumentException if deviceClientConfig or amqpsDeviceAuthentication is null
      */
     public AmqpsSessionDeviceOperation(final DeviceClientConfig deviceClientConfig, AmqpsDeviceAuthentication amqpsDeviceAuthentication) throws IllegalArgumentException
+    {
+        this(deviceClientConfig, amqpsDeviceAuthentication, null);
+    }
+
+    /**
+     * Create logical device entity to handle all operation, renewing its token on a scheduler shared with the
+     * other devices of the same connection instead of a thread of its own.
+     *
+     * @param deviceClientConfig the configuration of teh device.
+     * @param amqpsDeviceAuthentication the authentication object associated with the device.
+     * @param sharedScheduler the scheduler that runs the token renewal task, or null to create one for this device.
+     * @throws IllegalArgumentException if deviceClientConfig or amqpsDeviceAuthentication is null
+     */
+    AmqpsSessionDeviceOperation(final DeviceClientConfig deviceClientConfig, AmqpsDeviceAuthentication amqpsDeviceAuthentication, ScheduledExecutorService sharedScheduler) throws IllegalArgumentException
     {
         // Codes_SRS_AMQPSESSIONDEVICEOPERATION_12_001: [The constructor shall throw IllegalArgumentException if the deviceClientConfig or the amqpsDeviceAuthentication parameter is null.]
         if (deviceClientConfig == null)
@@ -62,6 +95,10 @@ public class AmqpsSessionDeviceOperation
         this.deviceClientConfig = deviceClientConfig;
         this.amqpsDeviceAuthentication = amqpsDeviceAuthentication;
 
+        // Codes_SRS_AMQPSESSIONDEVICEOPERATION_34_077: [If a shared scheduler is provided, the constructor shall schedule the token renewal task on it instead of creating a scheduler.]
+        this.isSchedulerShared = sharedScheduler != null;
+        this.taskSchedulerTokenRenewal = sharedScheduler;
+
         // Codes_SRS_AMQPSESSIONDEVICEOPERATION_12_003: [The constructor shall create AmqpsDeviceTelemetry, AmqpsDeviceMethods and AmqpsDeviceTwin and add them to the device operations list. ]
         this.amqpsDeviceOperationsList.add(new AmqpsDeviceTelemetry(this.deviceClientConfig));
         this.amqpsDeviceOperationsList.add(new AmqpsDeviceMethods(this.deviceClientConfig));
@@ -113,38 +150,71 @@ public class AmqpsSessionDeviceOperation
      */
     public void authenticate() throws TransportException
     {
-        logger.LogDebug("Entered in method %s", logger.getMethodName());
+        logger.LogDebug("Entered in method authenticate");
 
         // Codes_SRS_AMQPSESSIONDEVICEOPERATION_12_006: [The function shall start the authentication if the authentication type is CBS.]
-        if (this.deviceClientConfig.getAuthenticationType() == DeviceClientConfig.AuthType.SAS_TOKEN)
+        UUID correlationId = this.beginAuthentication();
+        if (correlationId != null)
         {
-            // Codes_SRS_AMQPSESSIONDEVICEOPERATION_12_060: [The function shall create a new UUID and add it to the correlationIdList if the authentication type is CBS.]
-            UUID correlationId = UUID.randomUUID();
-            synchronized (this.cbsCorrelationIdList)
-            {
-                // Codes_SRS_AMQPSESSIONDEVICEOPERATION_12_061: [The function shall use the correlationID to call authenticate on the authentication object if the authentication type is CBS.]
-                cbsCorrelationIdList.add(correlationId);
-            }
+            // Codes_SRS_AMQPSESSIONDEVICEOPERATION_12_062: [The function shall start the authentication process and start the lock wait if the authentication type is CBS.]
+            this.awaitAuthentication(correlationId, MAX_WAIT_TO_AUTHENTICATE);
+        }
 
-            this.amqpsDeviceAuthentication.authenticate(this.deviceClientConfig, correlationId);
+        logger.LogDebug("Exited from method authenticate");
+    }
 
-            // Codes_SRS_AMQPSESSIONDEVICEOPERATION_12_005: [The function shall set the authentication state to not authenticated if the authentication type is CBS.]
-            this.amqpsAuthenticatorState = AmqpsDeviceAuthenticationState.AUTHENTICATING;
-            try
-            {
-                // Codes_SRS_AMQPSESSIONDEVICEOPERATION_12_062: [The function shall start the authentication process and start the lock wait if the authentication type is CBS.]
-                this.authenticationLatch.await(MAX_WAIT_TO_AUTHENTICATE, TimeUnit.MILLISECONDS);
-            }
-            catch (InterruptedException e)
-            {
-                // Codes_SRS_AMQPSESSIONDEVICEOPERATION_34_063: [If an InterruptedException is encountered while waiting for authentication to finish, this function shall throw a TransportException.]
-                cbsCorrelationIdList.remove(correlationId);
-                throw new TransportException("Waited too long for the authentication message reply.");
-            }
+    /**
+     * Queue the CBS authentication message of this device without waiting for its reply, so that the
+     * session manager can start the authentication of many devices before waiting for any of them.
+     *
+     * @return the correlation id of the authentication message, or null if the authentication type is not CBS.
+     * @throws TransportException if the authentication message cannot be created.
+     */
+    UUID beginAuthentication() throws TransportException
+    {
+        if (this.deviceClientConfig.getAuthenticationType() != DeviceClientConfig.AuthType.SAS_TOKEN)
+        {
+            // Codes_SRS_AMQPSESSIONDEVICEOPERATION_34_072: [If the authentication type is not CBS, the function shall do nothing and return null.]
+            return null;
+        }
 
+        // Codes_SRS_AMQPSESSIONDEVICEOPERATION_12_060: [The function shall create a new UUID and add it to the correlationIdList if the authentication type is CBS.]
+        UUID correlationId = UUID.randomUUID();
+        synchronized (this.cbsCorrelationIdList)
+        {
+            // Codes_SRS_AMQPSESSIONDEVICEOPERATION_12_061: [The function shall use the correlationID to call authenticate on the authentication object if the authentication type is CBS.]
+            cbsCorrelationIdList.add(correlationId);
         }
 
-        logger.LogDebug("Exited from method %s", logger.getMethodName());
+        this.amqpsDeviceAuthentication.authenticate(this.deviceClientConfig, correlationId);
+
+        // Codes_SRS_AMQPSESSIONDEVICEOPERATION_12_005: [The function shall set the authentication state to not authenticated if the authentication type is CBS.]
+        this.amqpsAuthenticatorState = AmqpsDeviceAuthenticationState.AUTHENTICATING;
+
+        // Codes_SRS_AMQPSESSIONDEVICEOPERATION_34_073: [The function shall return the correlation id of the queued authentication message.]
+        return correlationId;
+    }
+
+    /**
+     * Wait for the reply to an authentication message queued by {@link #beginAuthentication()}.
+     *
+     * @param correlationId the correlation id returned by beginAuthentication.
+     * @param timeoutMilliseconds the longest time to wait for the reply.
+     * @throws TransportException if the wait is interrupted.
+     */
+    void awaitAuthentication(UUID correlationId, long timeoutMilliseconds) throws TransportException
+    {
+        try
+        {
+            // Codes_SRS_AMQPSESSIONDEVICEOPERATION_34_074: [The function shall wait for the authentication reply for at most the given time.]
+            this.authenticationLatch.await(timeoutMilliseconds, TimeUnit.MILLISECONDS);
+        }
+        catch (InterruptedException e)
+        {
+            // Codes_SRS_AMQPSESSIONDEVICEOPERATION_34_063: [If an InterruptedException is encountered while waiting for authentication to finish, this function shall throw a TransportException.]
+            cbsCorrelationIdList.remove(correlationId);
+            throw new TransportException("Waited too long for the authentication message reply.");
+        }
     }
 
     /**
@@ -154,14 +224,14 @@ public class AmqpsSessionDeviceOperation
      */
     public void renewToken() throws TransportException
     {
-        logger.LogDebug("Entered in method %s", logger.getMethodName());
+        logger.LogDebug("Entered in method renewToken");
 
         if ((this.deviceClientConfig.getAuthenticationType() == DeviceClientConfig.AuthType.SAS_TOKEN) &&
                 (this.amqpsAuthenticatorState == AmqpsDeviceAuthenticationState.AUTHENTICATED))
         {
             if (this.deviceClientConfig.getSasTokenAuthentication().isRenewalNecessary())
             {
-                logger.LogDebug("Sas token cannot be renewed automatically, so amqp connection will be unauthorized soon, method: %s", logger.getMethodName());
+                logger.LogDebug("Sas token cannot be renewed automatically, so amqp connection will be unauthorized soon, method: renewToken");
             }
             else
             {
@@ -170,7 +240,7 @@ public class AmqpsSessionDeviceOperation
             }
         }
 
-        logger.LogDebug("Exited from method %s", logger.getMethodName());
+        logger.LogDebug("Exited from method renewToken");
     }
 
     /**
@@ -213,7 +283,7 @@ public class AmqpsSessionDeviceOperation
      */
     void openLinks(Session session) throws TransportException
     {
-        logger.LogDebug("Entered in method %s", logger.getMethodName());
+        logger.LogDebug("Entered in method openLinks");
 
         // Codes_SRS_AMQPSESSIONDEVICEOPERATION_12_042: [The function shall do nothing if the session parameter is null.]
         if (session != null)
@@ -231,7 +301,7 @@ public class AmqpsSessionDeviceOperation
             }
         }
 
-        logger.LogDebug("Exited from method %s", logger.getMethodName());
+        logger.LogDebug("Exited from method openLinks");
     }
 
     /**
@@ -239,7 +309,7 @@ public class AmqpsSessionDeviceOperation
      */
     void closeLinks()
     {
-        logger.LogDebug("Entered in method %s", logger.getMethodName());
+        logger.LogDebug("Entered in method closeLinks");
 
         for (int i = 0; i < amqpsDeviceOperationsList.size(); i++)
         {
@@ -247,7 +317,7 @@ public class AmqpsSessionDeviceOperation
             amqpsDeviceOperationsList.get(i).closeLinks();
         }
 
-        logger.LogDebug("Exited from method %s", logger.getMethodName());
+        logger.LogDebug("Exited from method closeLinks");
     }
 
     /**
@@ -259,7 +329,7 @@ public class AmqpsSessionDeviceOperation
      */
     void initLink(Link link) throws TransportException, IllegalArgumentException
     {
-        logger.LogDebug("Entered in method %s", logger.getMethodName());
+        logger.LogDebug("Entered in method initLink");
 
         // Codes_SRS_AMQPSESSIONDEVICEOPERATION_12_043: [The function shall do nothing if the link parameter is null.]
         if (link != null)
@@ -274,7 +344,7 @@ public class AmqpsSessionDeviceOperation
             }
         }
 
-        logger.LogDebug("Exited from method %s", logger.getMethodName());
+        logger.LogDebug("Exited from method initLink");
     }
 
     /**
@@ -287,9 +357,9 @@ public class AmqpsSessionDeviceOperation
      * @param deviceId the deviceId of the message
      * @throws IllegalStateException if sender link has not been initialized
      * @throws IllegalArgumentException if deliveryTag's length is 0
-     * @return Integer
+     * @return the delivery id of the sent message, or -1 if it was not sent
      */
-    Integer sendMessage(org.apache.qpid.proton.message.Message message, MessageType messageType, String deviceId) throws IllegalStateException, IllegalArgumentException
+    synchronized long sendMessage(org.apache.qpid.proton.message.Message message, MessageType messageType, String deviceId) throws IllegalStateException, IllegalArgumentException
     {
         // Codes_SRS_AMQPSESSIONDEVICEOPERATION_12_012: [The function shall return -1 if the state is not authenticated.]
         if (this.amqpsAuthenticatorState == AmqpsDeviceAuthenticationState.AUTHENTICATED)
@@ -297,29 +367,51 @@ public class AmqpsSessionDeviceOperation
             // Codes_SRS_AMQPSESSIONDEVICEOPERATION_12_013: [The function shall return -1 if the deviceId int he connection string is not equal to the deviceId in the config.]
             if (this.deviceClientConfig.getDeviceId() == deviceId)
             {
+                // Codes_SRS_AMQPSESSIONDEVICEOPERATION_34_065: [The function shall reuse the encode buffer of this object for every message that fits in it.]
+                byte[] buffer = this.encodeBuffer;
+                int estimatedLength = estimateEncodedLength(message);
+                if (estimatedLength > buffer.length)
+                {
+                    // Codes_SRS_AMQPSESSIONDEVICEOPERATION_34_064: [If the encode buffer is smaller than the size of the message body plus an estimate for its properties, the function shall encode into a buffer of that size.]
+                    buffer = new byte[estimatedLength];
+                }
+
                 // Codes_SRS_AMQPSESSIONDEVICEOPERATION_12_014: [The function shall encode the message and copy the contents to the byte buffer.]
-                byte[] msgData = new byte[1024];
                 int length;
 
                 while (true)
                 {
                     try
                     {
-                        length = message.encode(msgData, 0, msgData.length);
+                        length = message.encode(buffer, 0, buffer.length);
                         break;
                     }
                     catch (BufferOverflowException e)
                     {
                         // Codes_SRS_AMQPSESSIONDEVICEOPERATION_12_015: [The function shall doubles the buffer if encode throws BufferOverflowException.]
-                        msgData = new byte[msgData.length * 2];
+                        buffer = new byte[buffer.length * 2];
                     }
                 }
+
+                if (buffer != this.encodeBuffer && buffer.length <= MAX_RETAINED_ENCODE_BUFFER_SIZE)
+                {
+                    // Codes_SRS_AMQPSESSIONDEVICEOPERATION_34_079: [The function shall keep a larger buffer it encoded into for the later messages only if that buffer is no larger than 4 KB.]
+                    this.encodeBuffer = buffer;
+                }
                 // Codes_SRS_AMQPSESSIONDEVICEOPERATION_12_017: [The function shall set the delivery tag for the sender.]
-                byte[] deliveryTag = String.valueOf(this.nextTag++).getBytes();
+                // Codes_SRS_AMQPSESSIONDEVICEOPERATION_34_066: [The function shall take the next delivery id and use its decimal digits as the delivery tag.]
+                long deliveryId = nextDeliveryId.getAndIncrement();
+                byte[] deliveryTag = toDeliveryTag(deliveryId);
 
                 // Codes_SRS_AMQPSESSIONDEVICEOPERATION_12_018: [The function shall call sendMessageAndGetDeliveryHash on all device operation objects.]
-                // Codes_SRS_AMQPSESSIONDEVICEOPERATION_12_019: [The function shall return the delivery hash.]
-                return this.sendMessageAndGetDeliveryHash(messageType, msgData, 0, length, deliveryTag);
+                if (this.sendMessageOnDeviceOperations(messageType, buffer, 0, length, deliveryTag))
+                {
+                    // Codes_SRS_AMQPSESSIONDEVICEOPERATION_34_067: [If a device operation object sent the message, the function shall return the delivery id.]
+                    return deliveryId;
+                }
+
+                // Codes_SRS_AMQPSESSIONDEVICEOPERATION_34_068: [If no device operation object sent the message, the function shall return -1.]
+                return -1;
             }
             else
             {
@@ -332,6 +424,81 @@ public class AmqpsSessionDeviceOperation
         }
     }
 
+    /**
+     * Estimates how many bytes the message takes once encoded, so that large messages are encoded in one attempt.
+     *
+     * @param message the message to be encoded.
+     * @return the length of the binary body plus an allowance for the rest of the message, or 0 if the message has no
+     *         binary body.
+     */
+    private static int estimateEncodedLength(org.apache.qpid.proton.message.Message message)
+    {
+        Section body = message.getBody();
+        if (body instanceof Data && ((Data) body).getValue() != null)
+        {
+            return ((Data) body).getValue().getLength() + ENCODE_OVERHEAD_ESTIMATE;
+        }
+
+        return 0;
+    }
+
+    /**
+     * Writes the delivery id as ASCII decimal digits, the same bytes as
+     * {@code String.valueOf(deliveryId).getBytes()} without the intermediate String.
+     *
+     * @param deliveryId the delivery id, not negative.
+     * @return a new delivery tag.
+     */
+    static byte[] toDeliveryTag(long deliveryId)
+    {
+        long tag = deliveryId;
+
+        int digitCount = 1;
+        for (long remaining = tag / 10; remaining > 0; remaining /= 10)
+        {
+            digitCount++;
+        }
+
+        // proton keeps the tag until the delivery is settled, so each delivery gets its own array
+        byte[] deliveryTag = new byte[digitCount];
+        for (int i = digitCount - 1; i >= 0; i--)
+        {
+            deliveryTag[i] = (byte) ('0' + (tag % 10));
+            tag /= 10;
+        }
+
+        return deliveryTag;
+    }
+
+    /**
+     * Reads the delivery id back from a delivery tag written by {@link #toDeliveryTag(long)}.
+     *
+     * @param deliveryTag the tag of the delivery.
+     * @return the delivery id, or -1 if the tag does not hold one.
+     */
+    static long toDeliveryId(byte[] deliveryTag)
+    {
+        // Codes_SRS_AMQPSESSIONDEVICEOPERATION_34_070: [If the tag is null, empty, longer than a long can hold or has a byte that is not a decimal digit, the function shall return -1.]
+        if (deliveryTag == null || deliveryTag.length == 0 || deliveryTag.length > MAX_DELIVERY_TAG_LENGTH)
+        {
+            return -1;
+        }
+
+        long deliveryId = 0;
+        for (byte digit : deliveryTag)
+        {
+            if (digit < '0' || digit > '9')
+            {
+                return -1;
+            }
+
+            deliveryId = deliveryId * 10 + (digit - '0');
+        }
+
+        // Codes_SRS_AMQPSESSIONDEVICEOPERATION_34_069: [The function shall return the delivery id whose decimal digits are the tag.]
+        return deliveryId;
+    }
+
     /**
      * Delegate the send call to device operation objects.
      * Loop through the device operation list and find the sender 
@@ -344,23 +511,21 @@ public class AmqpsSessionDeviceOperation
      * @param deliveryTag the message delivery tag.
      * @throws IllegalStateException if sender link has not been initialized
      * @throws IllegalArgumentException if deliveryTag's length is 0
-     * @return Integer
+     * @return true if a device operation object sent the message, false otherwise
      */
-    private Integer sendMessageAndGetDeliveryHash(MessageType messageType, byte[] msgData, int offset, int length, byte[] deliveryTag) throws IllegalStateException, IllegalArgumentException
+    private boolean sendMessageOnDeviceOperations(MessageType messageType, byte[] msgData, int offset, int length, byte[] deliveryTag) throws IllegalStateException, IllegalArgumentException
     {
-        Integer deliveryHash = -1;
-
         for (int i = 0; i < this.amqpsDeviceOperationsList.size(); i++)
         {
             AmqpsSendReturnValue amqpsSendReturnValue = null;
             amqpsSendReturnValue = this.amqpsDeviceOperationsList.get(i).sendMessageAndGetDeliveryHash(messageType, msgData, 0, length, deliveryTag);
             if (amqpsSendReturnValue.isDeliverySuccessful())
             {
-                return amqpsSendReturnValue.getDeliveryHash();
+                return true;
             }
         }
 
-        return deliveryHash;
+        return false;
     }
 
     /**
@@ -385,29 +550,7 @@ public class AmqpsSessionDeviceOperation
 
             if (amqpsMessage != null)
             {
-                synchronized (this.cbsCorrelationIdList)
-                {
-                    UUID uuidFound = null;
-                    // Codes_SRS_AMQPSESSIONDEVICEOPERATION_12_055: [The function shall find the correlation ID in the correlationIdlist.]
-                    for (UUID correlationId : this.cbsCorrelationIdList)
-                    {
-                        if (this.amqpsDeviceAuthentication.authenticationMessageReceived(amqpsMessage, correlationId))
-                        {
-                            // Codes_SRS_AMQPSESSIONDEVICEOPERATION_12_053: [The function shall call authenticationMessageReceived with the correlation ID on the authentication object and if it returns true set the authentication state to authenticated.]
-                            this.amqpsAuthenticatorState = AmqpsDeviceAuthenticationState.AUTHENTICATED;
-                            // Codes_SRS_AMQPSESSIONDEVICEOPERATION_12_054: [The function shall call notify the lock if after receiving the message and the authentication is in authenticating state.]
-                            this.authenticationLatch.countDown();
-
-                            uuidFound = correlationId;
-                            break;
-                        }
-                    }
-                    // Codes_SRS_AMQPSESSIONDEVICEOPERATION_12_056: [The function shall remove the correlationId from the list if it is found.]
-                    if (uuidFound != null)
-                    {
-                        this.cbsCorrelationIdList.remove(uuidFound);
-                    }
-                }
+                this.onAuthenticationMessage(amqpsMessage);
                 return amqpsMessage;
             }
         }
@@ -427,6 +570,90 @@ public class AmqpsSessionDeviceOperation
         return amqpsMessage;
     }
 
+    /**
+     * Complete the authentication of this device if the given CBS reply answers one of its
+     * authentication messages.
+     *
+     * @param amqpsMessage the CBS reply read from the authentication receiver link.
+     * @return true if the reply answered an authentication message of this device, false otherwise.
+     */
+    boolean onAuthenticationMessage(AmqpsMessage amqpsMessage)
+    {
+        if (this.amqpsAuthenticatorState != AmqpsDeviceAuthenticationState.AUTHENTICATING)
+        {
+            // Codes_SRS_AMQPSESSIONDEVICEOPERATION_34_075: [If the state is not authenticating, the function shall return false.]
+            return false;
+        }
+
+        synchronized (this.cbsCorrelationIdList)
+        {
+            UUID uuidFound = null;
+            // Codes_SRS_AMQPSESSIONDEVICEOPERATION_12_055: [The function shall find the correlation ID in the correlationIdlist.]
+            for (UUID correlationId : this.cbsCorrelationIdList)
+            {
+                if (this.amqpsDeviceAuthentication.authenticationMessageReceived(amqpsMessage, correlationId))
+                {
+                    // Codes_SRS_AMQPSESSIONDEVICEOPERATION_12_053: [The function shall call authenticationMessageReceived with the correlation ID on the authentication object and if it returns true set the authentication state to authenticated.]
+                    this.amqpsAuthenticatorState = AmqpsDeviceAuthenticationState.AUTHENTICATED;
+                    // Codes_SRS_AMQPSESSIONDEVICEOPERATION_12_054: [The function shall call notify the lock if after receiving the message and the authentication is in authenticating state.]
+                    this.authenticationLatch.countDown();
+
+                    uuidFound = correlationId;
+                    break;
+                }
+            }
+
+            // Codes_SRS_AMQPSESSIONDEVICEOPERATION_12_056: [The function shall remove the correlationId from the list if it is found.]
+            if (uuidFound != null)
+            {
+                this.cbsCorrelationIdList.remove(uuidFound);
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Get the names of the sender and receiver links of all device operations.
+     *
+     * @return the link names of this device.
+     */
+    List<String> getLinkNames()
+    {
+        // Codes_SRS_AMQPSESSIONDEVICEOPERATION_34_076: [The function shall return the sender and receiver link tags of all device operations.]
+        List<String> linkNames = new ArrayList<>(this.amqpsDeviceOperationsList.size() * 2);
+        for (int i = 0; i < this.amqpsDeviceOperationsList.size(); i++)
+        {
+            linkNames.add(this.amqpsDeviceOperationsList.get(i).getSenderLinkTag());
+            linkNames.add(this.amqpsDeviceOperationsList.get(i).getReceiverLinkTag());
+        }
+
+        return linkNames;
+    }
+
+    /**
+     * Delegate the link flow event to device operation objects, so that the
+     * operation owning the sender link can send the messages waiting for its credit.
+     *
+     * @param linkName the name of the link whose credit changed.
+     *
+     * @return true if one of the device operations owns the link, false otherwise.
+     */
+    boolean onLinkFlow(String linkName)
+    {
+        for (int i = 0; i < this.amqpsDeviceOperationsList.size(); i++)
+        {
+            // Codes_SRS_AMQPSESSIONDEVICEOPERATION_34_071: [The function shall call onLinkFlow on the device operation objects until one of them owns the link, and return true if one does.]
+            if (this.amqpsDeviceOperationsList.get(i).onLinkFlow(linkName))
+            {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
     /**
      * Find the link by link name in the managed device operations. 
      *
@@ -524,8 +751,11 @@ public class AmqpsSessionDeviceOperation
 
 
             shutDownScheduler();
-            this.taskSchedulerTokenRenewal = Executors.newScheduledThreadPool(1);
-            this.taskSchedulerTokenRenewal.scheduleAtFixedRate(this.tokenRenewalTask, 0, this.tokenRenewalPeriodInMilliseconds, TimeUnit.MILLISECONDS);
+            if (!this.isSchedulerShared)
+            {
+                this.taskSchedulerTokenRenewal = Executors.newScheduledThreadPool(1);
+            }
+            this.tokenRenewalFuture = this.taskSchedulerTokenRenewal.scheduleAtFixedRate(this.tokenRenewalTask, 0, this.tokenRenewalPeriodInMilliseconds, TimeUnit.MILLISECONDS);
         }
     }
 
@@ -534,7 +764,16 @@ public class AmqpsSessionDeviceOperation
      */
     private void shutDownScheduler()
     {
-        if (this.taskSchedulerTokenRenewal  != null)
+        if (this.isSchedulerShared)
+        {
+            // Codes_SRS_AMQPSESSIONDEVICEOPERATION_34_078: [If the scheduler is shared, closing shall cancel the token renewal task instead of shutting the scheduler down.]
+            if (this.tokenRenewalFuture != null)
+            {
+                this.tokenRenewalFuture.cancel(false);
+                this.tokenRenewalFuture = null;
+            }
+        }
+        else if (this.taskSchedulerTokenRenewal  != null)
         {
             taskSchedulerTokenRenewal.shutdown(); // Disable new tasks from being submitted
             try
@@ -8,6 +8,10 @@ import com.microsoft.azure.sdk.iot.device.ObjectLock;
 import com.microsoft.azure.sdk.iot.device.exceptions.TransportException;
 import org.apache.qpid.proton.engine.*;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
 import java.util.concurrent.*;
 
 
@@ -23,8 +27,17 @@ public class AmqpsSessionManager
     private AmqpsDeviceAuthentication amqpsDeviceAuthentication;
     private ArrayList<AmqpsSessionDeviceOperation> amqpsDeviceSessionList = new ArrayList<>();
 
+    // indexes over amqpsDeviceSessionList, so that a send or a link event finds its device without a scan
+    private Map<String, AmqpsSessionDeviceOperation> amqpsDeviceSessionsByDeviceId = new HashMap<>();
+    private Map<String, AmqpsSessionDeviceOperation> amqpsDeviceSessionsByLinkName = new HashMap<>();
+
+    // CBS authentications started by authenticate(), by correlation id, until their reply arrives
+    private final Map<Object, AmqpsSessionDeviceOperation> pendingAuthentications = new ConcurrentHashMap<>();
+
     private long SEND_PERIOD_MILLISECONDS = 300;
     private ScheduledExecutorService taskSchedulerCBSSend;
+    private final boolean isSchedulerShared;
+    private ScheduledFuture<?> cbsAuthSendFuture;
     private AmqpsDeviceAuthenticationCBSSendTask cbsAuthSendTask = null;
 
     private static final int MAX_WAIT_TO_AUTHENTICATE_MS = 10*1000;
@@ -41,6 +54,21 @@ public class AmqpsSessionManager
      * @throws TransportException if a transport error occurs.
      */
     public AmqpsSessionManager(DeviceClientConfig deviceClientConfig, ScheduledExecutorService scheduledExecutorService) throws TransportException
+    {
+        this(deviceClientConfig, scheduledExecutorService, false);
+    }
+
+    /**
+     * Constructor that takes a device configuration and a scheduler that may be shared with other session managers.
+     *
+     * @param deviceClientConfig the device configuration to use for
+     *                           session management.
+     * @param scheduledExecutorService the scheduler that runs the CBS send task.
+     * @param isSchedulerShared if true, closing this session manager cancels its task instead of shutting the
+     *                          scheduler down.
+     * @throws TransportException if a transport error occurs.
+     */
+    AmqpsSessionManager(DeviceClientConfig deviceClientConfig, ScheduledExecutorService scheduledExecutorService, boolean isSchedulerShared) throws TransportException
     {
         // Codes_SRS_AMQPSESSIONMANAGER_12_001: [The constructor shall throw IllegalArgumentException if the deviceClientConfig parameter is null.]
         if (deviceClientConfig == null)
@@ -56,6 +84,8 @@ public class AmqpsSessionManager
 
         this.logger = new CustomLogger(this.getClass());
 
+        this.isSchedulerShared = isSchedulerShared;
+
         // Codes_SRS_AMQPSESSIONMANAGER_12_002: [The constructor shall save the deviceClientConfig parameter value to a member variable.]
         this.deviceClientConfig = deviceClientConfig;
 
@@ -69,7 +99,7 @@ public class AmqpsSessionManager
                 // Codes_SRS_AMQPSESSIONMANAGER_12_006: [The constructor shall create and start a scheduler for AmqpsDeviceAuthenticationCBSTokenRenewalTask if the authentication type is CBS.]
                 this.cbsAuthSendTask = new AmqpsDeviceAuthenticationCBSSendTask((AmqpsDeviceAuthenticationCBS) this.amqpsDeviceAuthentication);
                 this.taskSchedulerCBSSend = scheduledExecutorService;
-                this.taskSchedulerCBSSend.scheduleAtFixedRate(this.cbsAuthSendTask, 0, SEND_PERIOD_MILLISECONDS, TimeUnit.MILLISECONDS);
+                this.cbsAuthSendFuture = this.taskSchedulerCBSSend.scheduleAtFixedRate(this.cbsAuthSendTask, 0, SEND_PERIOD_MILLISECONDS, TimeUnit.MILLISECONDS);
                 break;
 
             case X509_CERTIFICATE:
@@ -95,8 +125,16 @@ public class AmqpsSessionManager
         }
 
         // Codes_SRS_AMQPSESSIONMANAGER_12_009: [The function shall create a new  AmqpsSessionDeviceOperation with the given deviceClietnConfig and add it to the session list.]
-        AmqpsSessionDeviceOperation amqpsSessionDeviceOperation = new AmqpsSessionDeviceOperation(deviceClientConfig, this.amqpsDeviceAuthentication);
+        // Codes_SRS_AMQPSESSIONMANAGER_34_051: [The new device session shall renew its token on the scheduler of this object instead of a thread of its own.]
+        AmqpsSessionDeviceOperation amqpsSessionDeviceOperation = new AmqpsSessionDeviceOperation(deviceClientConfig, this.amqpsDeviceAuthentication, this.taskSchedulerCBSSend);
         this.amqpsDeviceSessionList.add(amqpsSessionDeviceOperation);
+
+        // Codes_SRS_AMQPSESSIONMANAGER_34_047: [The function shall index the new device session by its device id and by the names of its links.]
+        this.amqpsDeviceSessionsByDeviceId.put(deviceClientConfig.getDeviceId(), amqpsSessionDeviceOperation);
+        for (String linkName : amqpsSessionDeviceOperation.getLinkNames())
+        {
+            this.amqpsDeviceSessionsByLinkName.put(linkName, amqpsSessionDeviceOperation);
+        }
     }
 
     /**
@@ -106,7 +144,7 @@ public class AmqpsSessionManager
      */
     void closeNow()
     {
-        logger.LogDebug("Entered in method %s", logger.getMethodName());
+        logger.LogDebug("Entered in method closeNow");
 
         // Codes_SRS_AMQPSESSIONMANAGER_12_043: [THe function shall shut down the scheduler.]
         this.shutDownScheduler();
@@ -130,7 +168,7 @@ public class AmqpsSessionManager
             this.session = null;
         }
 
-        logger.LogDebug("Exited from method %s", logger.getMethodName());
+        logger.LogDebug("Exited from method closeNow");
     }
 
     /**
@@ -140,25 +178,47 @@ public class AmqpsSessionManager
      */
     public void authenticate() throws TransportException
     {
-        logger.LogDebug("Entered in method %s", logger.getMethodName());
+        logger.LogDebug("Entered in method authenticate");
 
         if (this.deviceClientConfig.getAuthenticationType() == DeviceClientConfig.AuthType.SAS_TOKEN)
         {
             // Codes_SRS_AMQPSESSIONMANAGER_12_014: [The function shall do nothing if the authentication is not open.]
             if (this.isAuthenticationOpened())
             {
+                // Codes_SRS_AMQPSESSIONMANAGER_34_048: [The function shall queue the authentication messages of all session list members before waiting for any reply, so that they are sent together.]
+                Map<UUID, AmqpsSessionDeviceOperation> startedAuthentications = new LinkedHashMap<>();
                 for (int i = 0; i < this.amqpsDeviceSessionList.size(); i++)
                 {
-                    if (this.amqpsDeviceSessionList.get(i) != null)
+                    AmqpsSessionDeviceOperation amqpsSessionDeviceOperation = this.amqpsDeviceSessionList.get(i);
+                    if (amqpsSessionDeviceOperation != null)
+                    {
+                        UUID correlationId = amqpsSessionDeviceOperation.beginAuthentication();
+                        if (correlationId != null)
+                        {
+                            this.pendingAuthentications.put(correlationId, amqpsSessionDeviceOperation);
+                            startedAuthentications.put(correlationId, amqpsSessionDeviceOperation);
+                        }
+                    }
+                }
+
+                try
+                {
+                    // Codes_SRS_AMQPSESSIONMANAGER_34_049: [The function shall then wait for the replies of all session list members, for at most the authentication timeout in total.]
+                    long deadline = System.currentTimeMillis() + MAX_WAIT_TO_AUTHENTICATE_MS;
+                    for (Map.Entry<UUID, AmqpsSessionDeviceOperation> entry : startedAuthentications.entrySet())
                     {
-                        // Codes_SRS_AMQPSESSIONMANAGER_12_015: [The function shall call authenticate on all session list members.]
-                        this.amqpsDeviceSessionList.get(i).authenticate();
+                        long remaining = Math.max(0, deadline - System.currentTimeMillis());
+                        entry.getValue().awaitAuthentication(entry.getKey(), remaining);
                     }
                 }
+                finally
+                {
+                    this.pendingAuthentications.keySet().removeAll(startedAuthentications.keySet());
+                }
             }
         }
 
-        logger.LogDebug("Exited from method %s", logger.getMethodName());
+        logger.LogDebug("Exited from method authenticate");
     }
 
     /**
@@ -169,7 +229,7 @@ public class AmqpsSessionManager
      */
     public void openDeviceOperationLinks() throws TransportException
     {
-        logger.LogDebug("Entered in method %s", logger.getMethodName());
+        logger.LogDebug("Entered in method openDeviceOperationLinks");
 
         // Codes_SRS_AMQPSESSIONMANAGER_12_018: [The function shall do nothing if the session is not open.]
         if (this.session != null)
@@ -180,25 +240,31 @@ public class AmqpsSessionManager
                 {
                     // Codes_SRS_AMQPSESSIONMANAGER_12_019: [The function shall call openLinks on all session list members.]
                     this.amqpsDeviceSessionList.get(i).openLinks(this.session);
+                }
+            }
 
-                    synchronized (this.openLinksLock)
+            synchronized (this.openLinksLock)
+            {
+                try
+                {
+                    // Codes_SRS_AMQPSESSIONMANAGER_12_020: [The function shall lock the execution with waitLock until the links of all session list members are open, for at most the open timeout in total.]
+                    long deadline = System.currentTimeMillis() + MAX_WAIT_TO_AUTHENTICATE_MS;
+                    long remaining = MAX_WAIT_TO_AUTHENTICATE_MS;
+                    while (!this.areAllLinksOpen() && remaining > 0)
                     {
-                        try
-                        {
-                            // Codes_SRS_AMQPSESSIONMANAGER_12_020: [The function shall lock the execution with waitLock.]
-                            this.openLinksLock.waitLock(MAX_WAIT_TO_AUTHENTICATE_MS);
-                        }
-                        catch (InterruptedException e)
-                        {
-                            // Codes_SRS_AMQPSESSIONMANAGER_12_021: [The function shall throw TransportException if the lock throws.]
-                            throw new TransportException("Waited too long for the connection to onConnectionInit.");
-                        }
+                        this.openLinksLock.waitLock(remaining);
+                        remaining = deadline - System.currentTimeMillis();
                     }
                 }
+                catch (InterruptedException e)
+                {
+                    // Codes_SRS_AMQPSESSIONMANAGER_12_021: [The function shall throw TransportException if the lock throws.]
+                    throw new TransportException("Waited too long for the connection to onConnectionInit.");
+                }
             }
         }
 
-        logger.LogDebug("Exited from method %s", logger.getMethodName());
+        logger.LogDebug("Exited from method openDeviceOperationLinks");
     }
 
     /**
@@ -209,7 +275,7 @@ public class AmqpsSessionManager
      */
     void onConnectionInit(Connection connection) throws TransportException
     {
-        logger.LogDebug("Entered in method %s", logger.getMethodName());
+        logger.LogDebug("Entered in method onConnectionInit");
 
         if (connection != null)
         {
@@ -239,7 +305,7 @@ public class AmqpsSessionManager
             }
         }
 
-        logger.LogDebug("Exited from method %s", logger.getMethodName());
+        logger.LogDebug("Exited from method onConnectionInit");
     }
 
     /**
@@ -250,7 +316,7 @@ public class AmqpsSessionManager
      */
     void onConnectionBound(Transport transport) throws TransportException
     {
-        logger.LogDebug("Entered in method %s", logger.getMethodName());
+        logger.LogDebug("Entered in method onConnectionBound");
 
         if (this.session != null)
         {
@@ -258,7 +324,7 @@ public class AmqpsSessionManager
             this.amqpsDeviceAuthentication.setSslDomain(transport);
         }
 
-        logger.LogDebug("Exited from method %s", logger.getMethodName());
+        logger.LogDebug("Exited from method onConnectionBound");
     }
 
     /**
@@ -272,16 +338,17 @@ public class AmqpsSessionManager
      */
     void onLinkInit(Link link) throws TransportException, IllegalArgumentException
     {
-        logger.LogDebug("Entered in method %s", logger.getMethodName());
+        logger.LogDebug("Entered in method onLinkInit");
 
         if (this.session != null)
         {
             if (this.isAuthenticationOpened())
             {
-                for (int i = 0; i < this.amqpsDeviceSessionList.size(); i++)
+                // Codes_SRS_AMQPSESSIONMANAGER_12_027: [The function shall call initLink on the device session that owns the link if the authentication is open and the session is not null.]
+                AmqpsSessionDeviceOperation amqpsSessionDeviceOperation = this.amqpsDeviceSessionsByLinkName.get(link.getName());
+                if (amqpsSessionDeviceOperation != null)
                 {
-                    // Codes_SRS_AMQPSESSIONMANAGER_12_027: [The function shall call authentication initLink on all session list member if the authentication is open and the session is not null.]
-                    this.amqpsDeviceSessionList.get(i).initLink(link);
+                    amqpsSessionDeviceOperation.initLink(link);
                 }
             }
             else
@@ -291,7 +358,7 @@ public class AmqpsSessionManager
             }
         }
 
-        logger.LogDebug("Exited from method %s", logger.getMethodName());
+        logger.LogDebug("Exited from method onLinkInit");
     }
 
     /**
@@ -307,26 +374,23 @@ public class AmqpsSessionManager
      */
     boolean onLinkRemoteOpen(Event event)
     {
-        logger.LogDebug("Entered in method %s", logger.getMethodName());
+        logger.LogDebug("Entered in method onLinkRemoteOpen");
 
         Boolean isLinkFound = false;
 
         String linkName = event.getLink().getName();
         if (this.isAuthenticationOpened())
         {
-            for (int i = 0; i < this.amqpsDeviceSessionList.size(); i++)
+            AmqpsSessionDeviceOperation amqpsSessionDeviceOperation = this.amqpsDeviceSessionsByLinkName.get(linkName);
+            if (amqpsSessionDeviceOperation != null)
             {
-                isLinkFound = this.amqpsDeviceSessionList.get(i).isLinkFound(linkName);
-                if (isLinkFound == true)
+                isLinkFound = amqpsSessionDeviceOperation.isLinkFound(linkName);
+                if (isLinkFound == true && amqpsSessionDeviceOperation.operationLinksOpened())
                 {
-                    if (this.amqpsDeviceSessionList.get(i).operationLinksOpened())
+                    synchronized (this.openLinksLock)
                     {
-                        synchronized (this.openLinksLock)
-                        {
-                            // Codes_SRS_AMQPSESSIONMANAGER_12_031: [The function shall call authentication isLinkFound if the authentication is not open and return true if both links are open]
-                            this.openLinksLock.notifyLock();
-                        }
-                        break;
+                        // Codes_SRS_AMQPSESSIONMANAGER_12_031: [The function shall call isLinkFound on the device session that owns the link and notify the lock if all of its links are open.]
+                        this.openLinksLock.notifyLock();
                     }
                 }
             }
@@ -344,7 +408,7 @@ public class AmqpsSessionManager
             }
         }
 
-        logger.LogDebug("Exited from method %s", logger.getMethodName());
+        logger.LogDebug("Exited from method onLinkRemoteOpen");
 
         return isLinkFound;
     }
@@ -359,26 +423,23 @@ public class AmqpsSessionManager
      * @param iotHubConnectionString the deviceconnection string to 
      *                               find the sender.
      *
-     * @return Integer
+     * @return the delivery id of the sent message, or -1 if it was not sent
      */
-    Integer sendMessage(org.apache.qpid.proton.message.Message message, MessageType messageType, String deviceId) throws TransportException
+    long sendMessage(org.apache.qpid.proton.message.Message message, MessageType messageType, String deviceId) throws TransportException
     {
-        Integer deliveryHash = -1;
+        long deliveryId = -1;
 
         if (this.session != null)
         {
-            for (int i = 0; i < this.amqpsDeviceSessionList.size(); i++)
+            // Codes_SRS_AMQPSESSIONMANAGER_12_032: [The function shall call sendMessage on the device session of the given device id and return its delivery id, or return -1 if there is no such session.]
+            AmqpsSessionDeviceOperation amqpsSessionDeviceOperation = this.amqpsDeviceSessionsByDeviceId.get(deviceId);
+            if (amqpsSessionDeviceOperation != null)
             {
-                // Codes_SRS_AMQPSESSIONMANAGER_12_032: [The function shall call sendMessage on all session list member and if there is a successful send return with the deliveryHash, otherwise return -1.]
-                deliveryHash = this.amqpsDeviceSessionList.get(i).sendMessage(message, messageType, deviceId);
-                if (deliveryHash != -1)
-                {
-                    break;
-                }
+                deliveryId = amqpsSessionDeviceOperation.sendMessage(message, messageType, deviceId);
             }
         }
 
-        return deliveryHash;
+        return deliveryId;
     }
 
     /**
@@ -400,13 +461,22 @@ public class AmqpsSessionManager
         {
             if (this.isAuthenticationOpened())
             {
-                for (int i = 0; i < this.amqpsDeviceSessionList.size(); i++)
+                if (linkName.equals(this.amqpsDeviceAuthentication.getReceiverLinkTag()))
                 {
-                    // Codes_SRS_AMQPSESSIONMANAGER_12_035: [The function shall call device sessions getMessageFromReceiverLink if the authentication is open.]
-                    amqpsMessage = this.amqpsDeviceSessionList.get(i).getMessageFromReceiverLink(linkName);
+                    // Codes_SRS_AMQPSESSIONMANAGER_34_050: [If the authentication is open and the link is the authentication receiver link, the function shall read the CBS reply from the authentication and hand it to the device session that is waiting for it.]
+                    amqpsMessage = this.amqpsDeviceAuthentication.getMessageFromReceiverLink(linkName);
                     if (amqpsMessage != null)
                     {
-                        break;
+                        this.onAuthenticationMessage(amqpsMessage);
+                    }
+                }
+                else
+                {
+                    // Codes_SRS_AMQPSESSIONMANAGER_12_035: [The function shall call getMessageFromReceiverLink on the device session that owns the link if the authentication is open.]
+                    AmqpsSessionDeviceOperation amqpsSessionDeviceOperation = this.amqpsDeviceSessionsByLinkName.get(linkName);
+                    if (amqpsSessionDeviceOperation != null)
+                    {
+                        amqpsMessage = amqpsSessionDeviceOperation.getMessageFromReceiverLink(linkName);
                     }
                 }
             }
@@ -420,6 +490,54 @@ public class AmqpsSessionManager
         return amqpsMessage;
     }
 
+    /**
+     * Delegate the link flow event to the authentication object and
+     * the device sessions, so that the owner of the sender link can
+     * send the messages waiting for its credit.
+     *
+     * @param linkName the name of the link whose credit changed.
+     */
+    void onLinkFlow(String linkName)
+    {
+        // Codes_SRS_AMQPSESSIONMANAGER_34_039: [The function shall call onLinkFlow on the authentication object and, if it does not own the link, on the device session that owns the link.]
+        if (this.amqpsDeviceAuthentication.onLinkFlow(linkName))
+        {
+            return;
+        }
+
+        AmqpsSessionDeviceOperation amqpsSessionDeviceOperation = this.amqpsDeviceSessionsByLinkName.get(linkName);
+        if (amqpsSessionDeviceOperation != null)
+        {
+            amqpsSessionDeviceOperation.onLinkFlow(linkName);
+        }
+    }
+
+    /**
+     * Hand a CBS reply to the device session that sent the matching authentication message. Replies to
+     * authentications started by authenticate() are found by their correlation id; replies to token
+     * renewals, which each device session starts on its own, are offered to the sessions in turn.
+     *
+     * @param amqpsMessage the CBS reply.
+     */
+    private void onAuthenticationMessage(AmqpsMessage amqpsMessage)
+    {
+        Object correlationId = amqpsMessage.getProperties() == null ? null : amqpsMessage.getProperties().getCorrelationId();
+        AmqpsSessionDeviceOperation amqpsSessionDeviceOperation = correlationId == null ? null : this.pendingAuthentications.remove(correlationId);
+        if (amqpsSessionDeviceOperation != null)
+        {
+            amqpsSessionDeviceOperation.onAuthenticationMessage(amqpsMessage);
+            return;
+        }
+
+        for (int i = 0; i < this.amqpsDeviceSessionList.size(); i++)
+        {
+            if (this.amqpsDeviceSessionList.get(i).onAuthenticationMessage(amqpsMessage))
+            {
+                break;
+            }
+        }
+    }
+
     /**
      * Find the link by link name in the managed device operations. 
      *
@@ -433,14 +551,11 @@ public class AmqpsSessionManager
 
         if (this.isAuthenticationOpened())
         {
-            for (int i = 0; i < this.amqpsDeviceSessionList.size(); i++)
+            // Codes_SRS_AMQPSESSIONMANAGER_12_038: [The function shall return the isLinkFound of the device session that owns the link, or false if no device session owns it.]
+            AmqpsSessionDeviceOperation amqpsSessionDeviceOperation = this.amqpsDeviceSessionsByLinkName.get(linkName);
+            if (amqpsSessionDeviceOperation != null)
             {
-                // Codes_SRS_AMQPSESSIONMANAGER_12_038: [The function shall call all device session's isLinkFound, and if any of them true return true otherwise return false.]
-                isLinkFound = this.amqpsDeviceSessionList.get(i).isLinkFound(linkName);
-                if (isLinkFound == true)
-                {
-                    break;
-                }
+                isLinkFound = amqpsSessionDeviceOperation.isLinkFound(linkName);
             }
         }
         else
@@ -545,7 +660,15 @@ public class AmqpsSessionManager
      */
     private void shutDownScheduler()
     {
-        if (this.taskSchedulerCBSSend != null)
+        if (this.taskSchedulerCBSSend != null && this.isSchedulerShared)
+        {
+            // Codes_SRS_AMQPSESSIONMANAGER_34_046: [If the scheduler is shared, the function shall cancel the CBS send task instead of shutting the scheduler down.]
+            if (this.cbsAuthSendFuture != null)
+            {
+                this.cbsAuthSendFuture.cancel(false);
+            }
+        }
+        else if (this.taskSchedulerCBSSend != null)
         {
             this.taskSchedulerCBSSend.shutdown(); // Disable new tasks from being submitted
             try
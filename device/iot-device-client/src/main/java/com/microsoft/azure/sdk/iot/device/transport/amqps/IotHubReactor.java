@@ -26,6 +26,42 @@ public class IotHubReactor
 
         //Codes_SRS_IOTHUBREACTOR_34_004: [This function shall start the reactor and have it process indefinitely and stop the reactor when it finishes.]
         while(this.reactor.process()){}
+        this.finish();
+    }
+
+    /**
+     * Starts the reactor so that it can be driven by calls to {@link #process()} from a shared event loop. Each of
+     * those calls polls the sockets of the reactor without waiting for them to become ready.
+     *
+     * @throws HandlerException if a handler of the reactor throws.
+     */
+    void start() throws HandlerException
+    {
+        //Codes_SRS_IOTHUBREACTOR_34_005: [This function shall set the timeout of the reactor to 0 milliseconds and start the reactor.]
+        this.reactor.setTimeout(0);
+        this.reactor.start();
+    }
+
+    /**
+     * Runs the events the reactor has ready.
+     *
+     * @return false once the reactor has stopped and should be finished.
+     * @throws HandlerException if a handler of the reactor throws.
+     */
+    boolean process() throws HandlerException
+    {
+        //Codes_SRS_IOTHUBREACTOR_34_006: [This function shall process the reactor once and return its result.]
+        return this.reactor.process();
+    }
+
+    /**
+     * Stops the reactor, runs its final events and frees it.
+     *
+     * @throws HandlerException if a handler of the reactor throws.
+     */
+    void finish() throws HandlerException
+    {
+        //Codes_SRS_IOTHUBREACTOR_34_007: [This function shall stop the reactor, process it one last time and free it.]
         this.reactor.stop();
         this.reactor.process();
         this.reactor.free();
@@ -9,6 +9,7 @@ import com.microsoft.azure.sdk.iot.device.exceptions.IotHubSizeExceededException
 
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -34,8 +35,25 @@ public final class HttpsBatchMessage implements HttpsMessage
      */
     private static final Charset BATCH_CHARSET = StandardCharsets.UTF_8;
 
-    /** The current batched message body. */
-    private String batchBody;
+    /** The initial capacity of the batch buffer, enough for a few small messages. */
+    private static final int INITIAL_BUFFER_SIZE = 1024;
+
+    private static final byte[] MESSAGE_BODY_PREFIX = "{\"body\":\"".getBytes(BATCH_CHARSET);
+    private static final byte[] MESSAGE_BASE64_ENCODED_FIELD = "\",\"base64Encoded\":true".getBytes(BATCH_CHARSET);
+    private static final byte[] MESSAGE_SUFFIX = "}".getBytes(BATCH_CHARSET);
+    private static final byte ARRAY_OPEN = '[';
+    private static final byte ARRAY_CLOSE = ']';
+    private static final byte ARRAY_SEPARATOR = ',';
+
+    /**
+     * The UTF-8 encoded batch body without its closing bracket. Messages are
+     * appended in place, so adding a message costs time proportional to the
+     * size of that message only.
+     */
+    private byte[] batchBuffer;
+
+    /** The number of bytes used in the batch buffer. */
+    private int batchLength;
 
     /** The current number of messages in the batch. */
     private int numMsgs;
@@ -44,7 +62,9 @@ public final class HttpsBatchMessage implements HttpsMessage
     public HttpsBatchMessage()
     {
         // Codes_SRS_HTTPSBATCHMESSAGE_11_001: [The constructor shall initialize the batch message with the body as an empty JSON array.]
-        this.batchBody = "[]";
+        this.batchBuffer = new byte[INITIAL_BUFFER_SIZE];
+        this.batchBuffer[0] = ARRAY_OPEN;
+        this.batchLength = 1;
         this.numMsgs = 0;
     }
 
@@ -59,22 +79,41 @@ public final class HttpsBatchMessage implements HttpsMessage
      */
     public void addMessage(HttpsSingleMessage msg) throws IotHubSizeExceededException
     {
-        String jsonMsg = msgToJson(msg);
-        // Codes_SRS_HTTPSBATCHMESSAGE_11_002: [The function shall add the message as a JSON object appended to the current JSON array.]
-        String newBatchBody = addJsonObjToArray(jsonMsg, this.batchBody);
+        byte[] body = msg.getBody();
+        byte[] jsonProperties = propertiesToJson(msg);
+        int encodedBodyLength = Base64.encodedLength(body.length);
+
+        int separatorLength = (this.numMsgs > 0) ? 1 : 0;
+        int jsonMsgLength = MESSAGE_BODY_PREFIX.length + encodedBodyLength + MESSAGE_BASE64_ENCODED_FIELD.length
+                + jsonProperties.length + MESSAGE_SUFFIX.length;
 
         // Codes_SRS_HTTPSBATCHMESSAGE_11_008: [If adding the message causes the batched message to exceed 256 kb in size, the function shall throw a IotHubSizeExceededException.]
         // Codes_SRS_HTTPSBATCHMESSAGE_11_009: [If the function throws a IotHubSizeExceededException, the batched message shall remain as if the message was never added.]
-        byte[] newBatchBodyBytes = newBatchBody.getBytes(BATCH_CHARSET);
-
-        if (newBatchBodyBytes.length > SERVICEBOUND_MESSAGE_MAX_SIZE_BYTES)
+        int newBatchBodyLength = this.batchLength + separatorLength + jsonMsgLength + 1;
+        if (newBatchBodyLength > SERVICEBOUND_MESSAGE_MAX_SIZE_BYTES)
         {
             String errMsg = String.format("Service-bound message size (%d bytes) cannot exceed %d bytes.",
-                    newBatchBodyBytes.length, SERVICEBOUND_MESSAGE_MAX_SIZE_BYTES);
+                    newBatchBodyLength, SERVICEBOUND_MESSAGE_MAX_SIZE_BYTES);
             throw new IotHubSizeExceededException(errMsg);
         }
 
-        this.batchBody = newBatchBody;
+        ensureCapacity(newBatchBodyLength);
+
+        // Codes_SRS_HTTPSBATCHMESSAGE_11_002: [The function shall add the message as a JSON object appended to the current JSON array.]
+        if (separatorLength > 0)
+        {
+            this.batchBuffer[this.batchLength++] = ARRAY_SEPARATOR;
+        }
+
+        // Codes_SRS_HTTPSBATCHMESSAGE_11_003: [The JSON object shall have the field "body" set to the raw message encoded in Base64.]
+        append(MESSAGE_BODY_PREFIX);
+        this.batchLength += Base64.encodeBase64Local(body, this.batchBuffer, this.batchLength);
+        // Codes_SRS_HTTPSBATCHMESSAGE_11_004: [The JSON object shall have the field "base64Encoded" set to true and always encode the body for a batch message.]
+        append(MESSAGE_BASE64_ENCODED_FIELD);
+        // Codes_SRS_HTTPSBATCHMESSAGE_11_005: [The JSON object shall have the field "properties" set to a JSON object which has the field "content-type" set to the content type of the raw message.]
+        append(jsonProperties);
+        append(MESSAGE_SUFFIX);
+
         this.numMsgs++;
     }
 
@@ -87,7 +126,9 @@ public final class HttpsBatchMessage implements HttpsMessage
     {
         // Codes_SRS_HTTPSBATCHMESSAGE_11_006: [The function shall return the current batch message body.]
         // Codes_SRS_HTTPSBATCHMESSAGE_11_007: [The batch message body shall be encoded using UTF-8.]
-        return this.batchBody.getBytes(BATCH_CHARSET);
+        byte[] body = Arrays.copyOf(this.batchBuffer, this.batchLength + 1);
+        body[this.batchLength] = ARRAY_CLOSE;
+        return body;
     }
 
     /**
@@ -136,23 +177,16 @@ public final class HttpsBatchMessage implements HttpsMessage
     }
 
     /**
-     * Converts a service-bound message to a JSON object with the correct
-     * format.
+     * Converts the properties of a service-bound message to the "properties"
+     * field of its JSON object.
      *
-     * @param msg the message to be converted to a corresponding JSON object.
+     * @param msg the message whose properties are converted.
      *
-     * @return the JSON string representation of the message.
+     * @return the UTF-8 encoded "properties" field, preceded by a comma, or an
+     * empty array if the message has no properties.
      */
-    private static String msgToJson(HttpsSingleMessage msg)
+    private static byte[] propertiesToJson(HttpsSingleMessage msg)
     {
-        StringBuilder jsonMsg = new StringBuilder("{");
-        // Codes_SRS_HTTPSBATCHMESSAGE_11_003: [The JSON object shall have the field "body" set to the raw message encoded in Base64.]
-        jsonMsg.append("\"body\":");
-        jsonMsg.append("\"").append(Base64.encodeBase64StringLocal(msg.getBody())).append("\",");
-        // Codes_SRS_HTTPSBATCHMESSAGE_11_004: [The JSON object shall have the field "base64Encoded" set to true and always encode the body for a batch message.]
-        jsonMsg.append("\"base64Encoded\":");
-        jsonMsg.append(true);
-        // Codes_SRS_HTTPSBATCHMESSAGE_11_005: [The JSON object shall have the field "properties" set to a JSON object which has the field "content-type" set to the content type of the raw message.]
         MessageProperty[] properties = msg.getProperties();
         Map<String, String> allProperties = new HashMap<>(msg.getSystemProperties());
         for (MessageProperty p : properties)
@@ -160,48 +194,41 @@ public final class HttpsBatchMessage implements HttpsMessage
             allProperties.put(p.getName(), p.getValue());
         }
 
-        int numProperties = allProperties.size();
-        if (numProperties > 0)
+        if (allProperties.isEmpty())
         {
-            jsonMsg.append(",");
-            jsonMsg.append("\"properties\":");
-            jsonMsg.append("{");
-            for (String key : allProperties.keySet())
-            {
-                jsonMsg.append("\"").append(key).append("\":");
-                jsonMsg.append("\"").append(allProperties.get(key)).append("\",");
-            }
-
-            //remove last trailing comma
-            jsonMsg.deleteCharAt(jsonMsg.length()-1);
-
-            jsonMsg.append("}");
+            return new byte[0];
         }
 
-        jsonMsg.append("}");
+        StringBuilder jsonProperties = new StringBuilder(",\"properties\":{");
+        for (Map.Entry<String, String> property : allProperties.entrySet())
+        {
+            jsonProperties.append("\"").append(property.getKey()).append("\":");
+            jsonProperties.append("\"").append(property.getValue()).append("\",");
+        }
+
+        //replace last trailing comma
+        jsonProperties.setCharAt(jsonProperties.length() - 1, '}');
 
-        return jsonMsg.toString();
+        return jsonProperties.toString().getBytes(BATCH_CHARSET);
     }
 
     /**
-     * Adds a JSON object to a JSON array.
-     *
-     * @param jsonObj the object to be added to the JSON array.
-     * @param jsonArray the JSON array.
+     * Grows the batch buffer, at least doubling it, so that it can hold the
+     * provided number of bytes.
      *
-     * @return the JSON string representation of the JSON array with the object
-     * added.
+     * @param capacity the number of bytes the buffer must be able to hold.
      */
-    private static String addJsonObjToArray(String jsonObj, String jsonArray)
+    private void ensureCapacity(int capacity)
     {
-        if (jsonArray.equals("[]"))
+        if (capacity > this.batchBuffer.length)
         {
-            return "[" + jsonObj + "]";
+            this.batchBuffer = Arrays.copyOf(this.batchBuffer, Math.max(capacity, this.batchBuffer.length * 2));
         }
+    }
 
-        // removes the closing brace of the JSON array.
-        String openJsonArray = jsonArray.substring(0, jsonArray.length() - 1);
-
-        return openJsonArray + "," + jsonObj + "]";
+    private void append(byte[] bytes)
+    {
+        System.arraycopy(bytes, 0, this.batchBuffer, this.batchLength, bytes.length);
+        this.batchLength += bytes.length;
     }
 }
@@ -6,17 +6,18 @@ package com.microsoft.azure.sdk.iot.device.transport.https;
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
 import com.microsoft.azure.sdk.iot.deps.transport.http.HttpMethod;
+import com.microsoft.azure.sdk.iot.device.Message;
 import com.microsoft.azure.sdk.iot.device.exceptions.TransportException;
 
 import javax.net.ssl.HttpsURLConnection;
 import javax.net.ssl.SSLContext;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.net.HttpURLConnection;
 import java.net.NoRouteToHostException;
 import java.net.URL;
 import java.net.UnknownHostException;
-import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
@@ -37,6 +38,11 @@ import java.util.Map;
  */
 public class HttpsConnection
 {
+    /** The size of the read buffer when the response does not declare its length. */
+    private static final int DEFAULT_READ_BUFFER_SIZE = 4096;
+    /** The largest read buffer allocated up front from the Content-Length of the response; it grows past it as the bytes arrive. */
+    private static final int MAX_PRESIZED_READ_BUFFER_SIZE = 64 * 1024;
+
     /** The underlying HTTP/HTTPS connection. */
     private final HttpURLConnection connection;
 
@@ -47,6 +53,12 @@ public class HttpsConnection
      */
     private byte[] body;
 
+    /**
+     * The message whose body is streamed through the connection instead of the
+     * body, if any. It is written in {@link #connect()} as well.
+     */
+    private Message streamedBodyMessage;
+
     private URL url;
 
     /**
@@ -99,7 +111,25 @@ public class HttpsConnection
         try
         {
             // Codes_SRS_HTTPSCONNECTION_11_004: [The function shall stream the request body, if present, through the connection.]
-            if (this.body.length > 0)
+            if (this.streamedBodyMessage != null)
+            {
+                // Codes_SRS_HTTPSCONNECTION_34_035: [If a message body is to be streamed, the function shall write it through the connection in fixed length streaming mode, so that the connection does not buffer it.]
+                this.connection.setDoOutput(true);
+                this.connection.setFixedLengthStreamingMode(this.streamedBodyMessage.getBodyLength());
+                OutputStream outputStream = this.connection.getOutputStream();
+                try
+                {
+                    this.streamedBodyMessage.writeBody(outputStream);
+                    outputStream.flush();
+                }
+                catch (IOException e)
+                {
+                    // Codes_SRS_HTTPSCONNECTION_34_036: [If the streamed message body cannot be written in full, the function shall disconnect the connection before failing.]
+                    this.connection.disconnect();
+                    throw e;
+                }
+            }
+            else if (this.body.length > 0)
             {
                 this.connection.setDoOutput(true);
                 this.connection.getOutputStream().write(this.body);
@@ -209,6 +239,30 @@ public class HttpsConnection
         }
     }
 
+    /**
+     * Saves the message whose body is to be streamed with the request. The body
+     * is read while it is written to the connection, and is not copied.
+     *
+     * @param message the message whose body is the request body.
+     *
+     * @throws IllegalArgumentException if the request does not currently use
+     * method POST or PUT.
+     */
+    public void streamOutput(Message message)
+    {
+        // Codes_SRS_HTTPSCONNECTION_34_033: [The function shall throw an IllegalArgumentException if the request does not currently use method POST or PUT.]
+        HttpsMethod method = HttpsMethod.valueOf(this.connection.getRequestMethod());
+        if (method != HttpsMethod.POST && method != HttpsMethod.PUT)
+        {
+            throw new IllegalArgumentException(
+                    "Cannot write a body to a request that "
+                    + "is not a POST or a PUT request.");
+        }
+
+        // Codes_SRS_HTTPSCONNECTION_34_034: [The function shall save the message to stream its body with the request.]
+        this.streamedBodyMessage = message;
+    }
+
     /**
      * Reads from the input stream (response stream) and returns the response.
      *
@@ -223,7 +277,7 @@ public class HttpsConnection
         {
             // Codes_SRS_HTTPSCONNECTION_11_011: [The function shall read from the input stream (response stream) and return the response.]
             InputStream inputStream = this.connection.getInputStream();
-            byte[] input = readInputStream(inputStream);
+            byte[] input = readInputStream(inputStream, this.connection.getContentLength());
             // Codes_SRS_HTTPSCONNECTION_11_019: [The function shall close the input stream after it has been completely read.]
             inputStream.close();
 
@@ -256,7 +310,7 @@ public class HttpsConnection
             // if there is no error reason, getErrorStream() returns null.
             if (errorStream != null)
             {
-                error = readInputStream(errorStream);
+                error = readInputStream(errorStream, this.connection.getContentLength());
                 // Codes_SRS_HTTPSCONNECTION_11_020: [The function shall close the error stream after it has been completely read.]
                 errorStream.close();
             }
@@ -309,32 +363,45 @@ public class HttpsConnection
      * Reads the input stream until the stream is empty.
      *
      * @param stream the input stream.
+     * @param expectedLength the Content-Length of the response, or a negative
+     * value if it is unknown.
      *
      * @return the content of the input stream.
      *
      * @throws TransportException if the input stream could not be read from.
      */
-    private static byte[] readInputStream(InputStream stream) throws TransportException
+    private static byte[] readInputStream(InputStream stream, int expectedLength) throws TransportException
     {
         try
         {
-            ArrayList<Byte> byteBuffer = new ArrayList<>();
-            int nextByte = -1;
-            // read(byte[]) reads the byte into the buffer and returns the number
-            // of bytes read, or -1 if the end of the stream has been reached.
-            while ((nextByte = stream.read()) > -1)
-            {
-                byteBuffer.add((byte) nextByte);
-            }
-
-            int bufferSize = byteBuffer.size();
-            byte[] byteArray = new byte[bufferSize];
-            for (int i = 0; i < bufferSize; ++i)
+            // Codes_SRS_HTTPSCONNECTION_34_032: [The function shall read the stream in chunks into a buffer pre-sized from the Content-Length of the response, up to 64 KiB.]
+            byte[] buffer = new byte[expectedLength > 0 ? Math.min(expectedLength, MAX_PRESIZED_READ_BUFFER_SIZE) : DEFAULT_READ_BUFFER_SIZE];
+            int length = 0;
+            while (true)
             {
-                byteArray[i] = byteBuffer.get(i);
+                if (length == buffer.length)
+                {
+                    // The buffer is full, only grow it if the stream has more to give
+                    int nextByte = stream.read();
+                    if (nextByte == -1)
+                    {
+                        break;
+                    }
+
+                    buffer = Arrays.copyOf(buffer, buffer.length * 2);
+                    buffer[length++] = (byte) nextByte;
+                }
+
+                int bytesRead = stream.read(buffer, length, buffer.length - length);
+                if (bytesRead == -1)
+                {
+                    break;
+                }
+
+                length += bytesRead;
             }
 
-            return byteArray;
+            return length == buffer.length ? buffer : Arrays.copyOf(buffer, length);
         }
         catch (IOException e)
         {
@@ -16,6 +16,7 @@ import java.io.IOException;
 import java.net.MalformedURLException;
 import java.net.URL;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Queue;
 
@@ -91,6 +92,12 @@ public class HttpsIotHubConnection implements IotHubTransportConnection
             // Codes_SRS_HTTPSIOTHUBCONNECTION_11_004: [The function shall set the request body to the message body.]
             HttpsRequest request = new HttpsRequest(eventUrl, HttpsMethod.POST, httpsMessage.getBody(), this.config.getProductInfo().getUserAgentString());
 
+            if (message.hasBodyStream())
+            {
+                // Codes_SRS_HTTPSIOTHUBCONNECTION_34_080: [If the message body is a stream, the function shall stream it as the request body instead.]
+                request.setStreamedBody(message);
+            }
+
             // Codes_SRS_HTTPSIOTHUBCONNECTION_11_005: [The function shall write each message property as a request header.]
             for (MessageProperty property : httpsMessage.getProperties())
             {
@@ -129,16 +136,62 @@ public class HttpsIotHubConnection implements IotHubTransportConnection
 
             IotHubStatusCode status = IotHubStatusCode.getIotHubStatusCode(response.getStatus());
 
-            IotHubTransportMessage transportMessage = new IotHubTransportMessage(message.getBytes(), message.getMessageType(), message.getMessageId(), message.getCorrelationId(), message.getProperties());
+            // Codes_SRS_HTTPSIOTHUBCONNECTION_34_081: [The function shall notify its listener with the provided message, without reading its body again, so that a body stream that was sent is not read twice.]
             if (status == IotHubStatusCode.OK || status == IotHubStatusCode.OK_EMPTY)
             {
                 //Codes_SRS_HTTPSIOTHUBCONNECTION_34_067: [If the response from the service is OK or OK_EMPTY, this function shall notify its listener that a message was sent with no exception.]
-                this.listener.onMessageSent(transportMessage, null);
+                this.listener.onMessageSent(message, null);
             }
             else
             {
                 //Codes_SRS_HTTPSIOTHUBCONNECTION_34_068: [If the response from the service not OK or OK_EMPTY, this function shall notify its listener that a message was with the mapped IotHubServiceException.]
-                this.listener.onMessageSent(transportMessage, IotHubStatusCode.getConnectionStatusException(status, ""));
+                this.listener.onMessageSent(message, IotHubStatusCode.getConnectionStatusException(status, ""));
+            }
+
+            return status;
+        }
+    }
+
+    /**
+     * Sends several event messages in a single batched request. The response status of the request applies to every
+     * message in the batch.
+     *
+     * @param batchMessage the batch built from the provided messages.
+     * @param messages the event messages contained in the batch, in the order they were added to it.
+     *
+     * @return the IotHubStatusCode from sending the batch.
+     *
+     * @throws TransportException if the IoT Hub could not be reached.
+     */
+    public IotHubStatusCode sendBatchMessage(HttpsBatchMessage batchMessage, List<Message> messages) throws TransportException
+    {
+        synchronized (HTTPS_CONNECTION_LOCK)
+        {
+            // Codes_SRS_HTTPSIOTHUBCONNECTION_34_075: [The function shall send a request to the URL 'https://[iotHubHostname]/devices/[deviceId]/messages/events?api-version=2016-02-03'.]
+            IotHubEventUri iotHubEventUri = new IotHubEventUri(getHostName(), this.config.getDeviceId(), this.config.getModuleId());
+            URL eventUrl = this.buildUrlFromString(HTTPS_HEAD_TAG + iotHubEventUri.toString());
+
+            // Codes_SRS_HTTPSIOTHUBCONNECTION_34_076: [The function shall send a POST request with the batch body as the request body.]
+            HttpsRequest request = new HttpsRequest(eventUrl, HttpsMethod.POST, batchMessage.getBody(), this.config.getProductInfo().getUserAgentString());
+
+            // Codes_SRS_HTTPSIOTHUBCONNECTION_34_077: [The function shall set the header field 'iothub-to' to be '/devices/[deviceId]/messages/events' and the header field 'content-type' to be the batch content type.]
+            request.setHeaderField(HTTPS_PROPERTY_IOTHUB_TO_TAG, iotHubEventUri.getPath())
+                    .setHeaderField(HTTPS_PROPERTY_CONTENT_TYPE_TAG, batchMessage.getContentType());
+
+            // Codes_SRS_HTTPSIOTHUBCONNECTION_34_078: [If the IoT Hub could not be reached, the function shall throw a TransportException.]
+            HttpsResponse response = this.sendRequest(request);
+
+            IotHubStatusCode status = IotHubStatusCode.getIotHubStatusCode(response.getStatus());
+            TransportException sendException = null;
+            if (status != IotHubStatusCode.OK && status != IotHubStatusCode.OK_EMPTY)
+            {
+                sendException = IotHubStatusCode.getConnectionStatusException(status, "");
+            }
+
+            for (Message message : messages)
+            {
+                // Codes_SRS_HTTPSIOTHUBCONNECTION_34_079: [The function shall notify its listener once for each message in the batch, with no exception if the response from the service is OK or OK_EMPTY, and with the mapped IotHubServiceException otherwise.]
+                this.listener.onMessageSent(message, sendException);
             }
 
             return status;
@@ -248,7 +301,7 @@ public class HttpsIotHubConnection implements IotHubTransportConnection
                 Message message = httpsMsg.toMessage();
 
                 //callbacks are always for telemetry as HTTPS does not support Twin or Methods
-                transportMessage = new IotHubTransportMessage(message.getBytes(), message.getMessageType(), message.getMessageId(), message.getCorrelationId(), message.getProperties());
+                transportMessage = new IotHubTransportMessage(MessageBodyAccessor.getBodyArray(message), message.getMessageType(), message.getMessageId(), message.getCorrelationId(), message.getProperties());
                 transportMessage.setMessageCallback(this.config.getDeviceTelemetryMessageCallback(message.getInputName()));
                 transportMessage.setMessageCallbackContext(this.config.getDeviceTelemetryMessageContext(message.getInputName()));
 
@@ -3,6 +3,7 @@
 
 package com.microsoft.azure.sdk.iot.device.transport.https;
 
+import com.microsoft.azure.sdk.iot.device.Message;
 import com.microsoft.azure.sdk.iot.device.exceptions.TransportException;
 
 import javax.net.ssl.SSLContext;
@@ -18,6 +19,7 @@ import java.util.Map;
 public class HttpsRequest
 {
     private byte[] body;
+    private Message streamedBodyMessage;
     private HttpsMethod method;
     private URL url;
     private Map<String, List<String>> headers;
@@ -84,7 +86,15 @@ public class HttpsRequest
             }
         }
 
-        connection.writeOutput(this.body);
+        if (this.streamedBodyMessage != null)
+        {
+            // Codes_SRS_HTTPSREQUEST_34_033: [If a message body is to be streamed, the function shall stream it through the connection instead of the body.]
+            connection.streamOutput(this.streamedBodyMessage);
+        }
+        else
+        {
+            connection.writeOutput(this.body);
+        }
 
         if (this.sslContext != null)
         {
@@ -142,6 +152,21 @@ public class HttpsRequest
         return this;
     }
 
+    /**
+     * Sets the message whose body is streamed as the request body, in place of
+     * the body given to the constructor.
+     *
+     * @param message the message whose body is streamed.
+     *
+     * @return itself, for fluent setting.
+     */
+    public HttpsRequest setStreamedBody(Message message)
+    {
+        // Codes_SRS_HTTPSREQUEST_34_032: [The function shall save the message whose body is streamed with the request.]
+        this.streamedBodyMessage = message;
+        return this;
+    }
+
     /**
      * Sets the read timeout, in milliseconds, for the request. The read timeout
      * is the number of milliseconds after the server receives a request and
@@ -4,6 +4,7 @@
 package com.microsoft.azure.sdk.iot.device.transport.https;
 
 import com.microsoft.azure.sdk.iot.device.Message;
+import com.microsoft.azure.sdk.iot.device.MessageBodyAccessor;
 import com.microsoft.azure.sdk.iot.device.MessageProperty;
 
 import java.util.ArrayList;
@@ -29,7 +30,10 @@ public final class HttpsSingleMessage implements HttpsMessage
     protected static final String CONTENT_ENCODING_KEY = HTTPS_SYSTEM_PROPERTY_PREFIX + "contentencoding";
     protected static final String CONTENT_TYPE_KEY = HTTPS_SYSTEM_PROPERTY_PREFIX + "contenttype";
 
+    // The message body, which is the bodyLength bytes of this array starting at bodyOffset.
     private byte[] body;
+    private int bodyOffset;
+    private int bodyLength;
     private boolean base64Encoded;
     private MessageProperty[] properties;
     private Map<String, String> systemProperties;
@@ -77,10 +81,20 @@ public final class HttpsSingleMessage implements HttpsMessage
 
     private static void parser(HttpsSingleMessage httpsMsg, Message message)
     {
-        // Codes_SRS_HTTPSSINGLEMESSAGE_11_001: [The parsed HttpsSingleMessage shall have a copy of the original message body as its body.]
-        // Codes_SRS_HTTPSSINGLEMESSAGE_21_016: [The parsed HttpsSingleMessage shall have a copy of the original message body as its body.]
-        byte[] msgBody = message.getBytes();
-        httpsMsg.body = Arrays.copyOf(msgBody, msgBody.length);
+        // Codes_SRS_HTTPSSINGLEMESSAGE_11_001: [The parsed HttpsSingleMessage shall have the original message body as its body.]
+        // Codes_SRS_HTTPSSINGLEMESSAGE_21_016: [The parsed HttpsSingleMessage shall have the original message body as its body.]
+        if (message.hasBodyStream())
+        {
+            // Codes_SRS_HTTPSSINGLEMESSAGE_34_022: [If the message body is a stream, the parsed HttpsSingleMessage shall have an empty body, so that the stream is only read when the request is sent.]
+            httpsMsg.body = new byte[0];
+        }
+        else
+        {
+            // Codes_SRS_HTTPSSINGLEMESSAGE_34_023: [The parsed HttpsSingleMessage shall share the array that holds the message body, at its offset and length, without copying it.]
+            httpsMsg.body = MessageBodyAccessor.getBodyBackingArray(message);
+            httpsMsg.bodyOffset = MessageBodyAccessor.getBodyOffset(message);
+            httpsMsg.bodyLength = message.getBodyLength();
+        }
 
         // Codes_SRS_HTTPSSINGLEMESSAGE_11_003: [The parsed HttpsSingleMessage shall add the prefix 'iothub-app-' to each of the message properties.]
         // Codes_SRS_HTTPSSINGLEMESSAGE_21_018: [The parsed HttpsSingleMessage shall add the prefix 'iothub-app-' to each of the message properties.]
@@ -146,6 +160,7 @@ public final class HttpsSingleMessage implements HttpsMessage
         // Codes_SRS_HTTPSSINGLEMESSAGE_11_004: [The parsed HttpsSingleMessage shall have a copy of the original response body as its body.]
         byte[] responseBody = response.getBody();
         msg.body = Arrays.copyOf(responseBody, responseBody.length);
+        msg.bodyLength = responseBody.length;
 
         ArrayList<MessageProperty> properties = new ArrayList<>();
         Map<String, String> systemProperties = new HashMap<>();
@@ -232,7 +247,7 @@ public final class HttpsSingleMessage implements HttpsMessage
     public byte[] getBody()
     {
         // Codes_SRS_HTTPSSINGLEMESSAGE_11_009: [The function shall return a copy of the message body.]
-        return Arrays.copyOf(this.body, this.body.length);
+        return Arrays.copyOfRange(this.body, this.bodyOffset, this.bodyOffset + this.bodyLength);
     }
 
     /**
@@ -243,7 +258,7 @@ public final class HttpsSingleMessage implements HttpsMessage
      */
     public String getBodyAsString() {
         // Codes_SRS_HTTPSSINGLEMESSAGE_11_010: [The function shall return the message body as a string encoded using charset UTF-8.]
-        return new String(this.body, Message.DEFAULT_IOTHUB_MESSAGE_CHARSET);
+        return new String(this.body, this.bodyOffset, this.bodyLength, Message.DEFAULT_IOTHUB_MESSAGE_CHARSET);
     }
 
     /**
@@ -5,6 +5,7 @@ package com.microsoft.azure.sdk.iot.device.transport.mqtt;
 
 import com.microsoft.azure.sdk.iot.device.DeviceTwin.DeviceOperations;
 import com.microsoft.azure.sdk.iot.device.Message;
+import com.microsoft.azure.sdk.iot.device.MessageBodyAccessor;
 import com.microsoft.azure.sdk.iot.device.MessageType;
 import com.microsoft.azure.sdk.iot.device.exceptions.TransportException;
 import com.microsoft.azure.sdk.iot.device.transport.IotHubListener;
@@ -14,24 +15,27 @@ import org.apache.commons.lang3.tuple.MutablePair;
 import org.apache.commons.lang3.tuple.Pair;
 import org.eclipse.paho.client.mqttv3.*;
 
-import java.io.UnsupportedEncodingException;
-import java.net.URLDecoder;
-import java.net.URLEncoder;
-import java.nio.charset.StandardCharsets;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
 
 abstract public class Mqtt implements MqttCallback
 {
     private static final int CONNECTION_TIMEOUT = 60 * 1000;
     private static final int DISCONNECTION_TIMEOUT = 60 * 1000;
 
+    // how often a publish waiting for the in flight window checks that the connection is still up
+    private static final long IN_FLIGHT_PERMIT_WAIT_MILLISECONDS = 100;
+
     private MqttConnection mqttConnection;
     private MqttMessageListener messageListener;
     ConcurrentLinkedQueue<Pair<String, byte[]>> allReceivedMessages;
     Object mqttLock;
     Object publishLock;
+    private Semaphore inFlightPermits;
+    private int qos = MqttConnection.QOS;
 
     private static Map<Integer, Message> unacknowledgedSentMessages = new ConcurrentHashMap<>();
 
@@ -43,8 +47,11 @@ abstract public class Mqtt implements MqttCallback
     private final static String MESSAGE_SYSTEM_PROPERTY_IDENTIFIER_ENCODED = "%24";
     private final static char MESSAGE_SYSTEM_PROPERTY_IDENTIFIER_DECODED = '$';
     final static char MESSAGE_PROPERTY_KEY_VALUE_SEPARATOR = '=';
-    private final static int PROPERTY_KEY_INDEX = 0;
-    private final static int PROPERTY_VALUE_INDEX = 1;
+    // token indexes in devices/<deviceId>/modules/<moduleId>/inputs/<inputName>
+    private final static int MODULES_TOKEN = 2;
+    private final static int MODULE_ID_TOKEN = 3;
+    private final static int INPUTS_TOKEN = 4;
+    private final static int INPUT_NAME_TOKEN = 5;
 
     /* The system property keys expected in a message */
     //This may be common with amqp as well
@@ -88,12 +95,31 @@ abstract public class Mqtt implements MqttCallback
         this.allReceivedMessages = mqttConnection.getAllReceivedMessages();
         this.mqttLock = mqttConnection.getMqttLock();
         this.publishLock = new Object();
+        this.inFlightPermits = mqttConnection.getInFlightPermits();
         this.userSpecifiedSASTokenExpiredOnRetry = false;
         this.listener = listener;
         this.messageListener = messageListener;
         this.connectionId = connectionId;
     }
 
+    /**
+     * Sets the quality of service used to publish messages. At QoS 0 paho completes the delivery as soon as the
+     * message is written to the socket, so the listener is told the message was sent without waiting for a PUBACK.
+     * @param qos 0 or 1
+     * @throws IllegalArgumentException if qos is neither 0 nor 1
+     */
+    void setQos(int qos) throws IllegalArgumentException
+    {
+        if (qos != 0 && qos != 1)
+        {
+            //Codes_SRS_Mqtt_34_065: [If the provided qos is neither 0 nor 1, this function shall throw an IllegalArgumentException.]
+            throw new IllegalArgumentException("Mqtt qos must be 0 or 1");
+        }
+
+        //Codes_SRS_Mqtt_34_066: [This function shall save the provided qos to be used by publish.]
+        this.qos = qos;
+    }
+
     /**
      * Method to connect to mqtt broker connection.
      *
@@ -153,7 +179,10 @@ abstract public class Mqtt implements MqttCallback
     }
 
     /**
-     * Method to publish to mqtt broker connection.
+     * Method to publish to mqtt broker connection. The publish is asynchronous: this method returns once paho has
+     * accepted the message, and the listener is told about its delivery from {@link #deliveryComplete}. If the
+     * connection already has as many unacknowledged publishes as it allows, this method waits for one of them to be
+     * acknowledged first, without holding the Mqtt lock.
      *
      * @param publishTopic the topic to publish on mqtt broker connection.
      * @param message the message to publish.
@@ -162,9 +191,13 @@ abstract public class Mqtt implements MqttCallback
      */
     protected void publish(String publishTopic, Message message) throws TransportException
     {
-        synchronized (this.mqttLock)
+        //Codes_SRS_Mqtt_34_058: [Before publishing, this function shall take a permit from the in flight semaphore of the connection, waiting without holding the Mqtt lock until one is available.]
+        this.acquireInFlightPermit(publishTopic);
+
+        boolean isPublished = false;
+        try
         {
-            try
+            synchronized (this.mqttLock)
             {
                 if (this.mqttConnection.getMqttAsyncClient() == null)
                 {
@@ -187,56 +220,86 @@ abstract public class Mqtt implements MqttCallback
                     throw transportException;
                 }
 
-                if (message == null || publishTopic == null || publishTopic.length() == 0 || message.getBytes() == null)
+                byte[] payload = (message == null) ? null : MessageBodyAccessor.getBodyArray(message);
+                if (payload == null || publishTopic == null || publishTopic.length() == 0)
                 {
                     //Codes_SRS_Mqtt_25_013: [If the either publishTopic is null or empty or if payload is null, the function shall throw an IllegalArgumentException.]
                     throw new IllegalArgumentException("Cannot publish on null or empty publish topic");
                 }
 
-                byte[] payload = message.getBytes();
+                MqttMessage mqttMessage = (payload.length == 0) ? new MqttMessage() : new MqttMessage(payload);
 
-                while (this.mqttConnection.getMqttAsyncClient().getPendingDeliveryTokens().length >= MqttConnection.MAX_IN_FLIGHT_COUNT)
-                {
-                    //Codes_SRS_Mqtt_25_048: [publish shall check for pending publish tokens by calling getPendingDeliveryTokens. And if there are pending tokens publish shall sleep until the number of pending tokens are less than 10 as per paho limitations]
-                    Thread.sleep(10);
+                //Codes_SRS_Mqtt_34_062: [The function shall publish the message with the saved qos.]
+                mqttMessage.setQos(this.qos);
 
-                    if (this.mqttConnection.getMqttAsyncClient() == null)
+                synchronized (this.publishLock)
+                {
+                    if (this.qos == 0)
                     {
-                        TransportException transportException = new TransportException("Connection was lost while waiting for mqtt deliveries to finish");
-                        transportException.setRetryable(true);
-                        throw transportException;
+                        // QoS 0 messages have no packet id, so the message travels with its token instead
+                        //Codes_SRS_Mqtt_34_063: [If the saved qos is 0, the function shall publish the message with the message as the user context of the delivery token.]
+                        this.mqttConnection.getMqttAsyncClient().publish(publishTopic, mqttMessage, message, null);
                     }
-
-                    if (!this.mqttConnection.getMqttAsyncClient().isConnected())
+                    else
                     {
-                        //Codes_SRS_Mqtt_25_012: [If the MQTT connection is closed, the function shall throw a ProtocolException.]
-                        TransportException transportException = new TransportException("Cannot publish when mqtt client is holding 10 tokens and is disconnected");
-                        transportException.setRetryable(true);
-                        throw transportException;
+                        //Codes_SRS_Mqtt_25_014: [The function shall publish message payload on the publishTopic specified to the IoT Hub given in the configuration.]
+                        IMqttDeliveryToken publishToken = this.mqttConnection.getMqttAsyncClient().publish(publishTopic, mqttMessage);
+                        this.unacknowledgedSentMessages.put(publishToken.getMessageId(), message);
                     }
                 }
 
-                MqttMessage mqttMessage = (payload.length == 0) ? new MqttMessage() : new MqttMessage(payload);
-
-                mqttMessage.setQos(MqttConnection.QOS);
-
-                synchronized (this.publishLock)
-                {
-                    //Codes_SRS_Mqtt_25_014: [The function shall publish message payload on the publishTopic specified to the IoT Hub given in the configuration.]
-                    IMqttDeliveryToken publishToken = this.mqttConnection.getMqttAsyncClient().publish(publishTopic, mqttMessage);
-                    this.unacknowledgedSentMessages.put(publishToken.getMessageId(), message);
-                }
+                isPublished = true;
             }
-            catch (MqttException e)
+        }
+        catch (MqttException e)
+        {
+            //Codes_SRS_Mqtt_25_047: [If the Mqtt Client Async throws MqttException, the function shall throw a ProtocolException with the message.]
+            throw PahoExceptionTranslator.convertToMqttException(e, "Unable to publish message on topic : " + publishTopic);
+        }
+        finally
+        {
+            if (!isPublished)
             {
-                //Codes_SRS_Mqtt_25_047: [If the Mqtt Client Async throws MqttException, the function shall throw a ProtocolException with the message.]
-                throw PahoExceptionTranslator.convertToMqttException(e, "Unable to publish message on topic : " + publishTopic);
+                //Codes_SRS_Mqtt_34_059: [If the message is not published, this function shall return the permit it took to the in flight semaphore.]
+                this.inFlightPermits.release();
             }
-            catch (InterruptedException e)
+        }
+    }
+
+    /**
+     * Takes a permit from the publish window of the connection. The wait is woken as soon as a delivery completes,
+     * and gives up if the connection is lost in the meantime.
+     *
+     * @param publishTopic the topic that is about to be published on, for error messages.
+     * @throws TransportException if the connection is lost while waiting, or if the thread is interrupted.
+     */
+    private void acquireInFlightPermit(String publishTopic) throws TransportException
+    {
+        try
+        {
+            while (!this.inFlightPermits.tryAcquire(IN_FLIGHT_PERMIT_WAIT_MILLISECONDS, TimeUnit.MILLISECONDS))
             {
-                throw new TransportException("Interrupted, Unable to publish message on topic : " + publishTopic, e);
+                MqttAsyncClient mqttAsyncClient = this.mqttConnection.getMqttAsyncClient();
+                if (mqttAsyncClient == null)
+                {
+                    TransportException transportException = new TransportException("Connection was lost while waiting for mqtt deliveries to finish");
+                    transportException.setRetryable(true);
+                    throw transportException;
+                }
+
+                if (!mqttAsyncClient.isConnected())
+                {
+                    //Codes_SRS_Mqtt_25_012: [If the MQTT connection is closed, the function shall throw a ProtocolException.]
+                    TransportException transportException = new TransportException("Cannot publish when mqtt client is holding the maximum number of messages in flight and is disconnected");
+                    transportException.setRetryable(true);
+                    throw transportException;
+                }
             }
         }
+        catch (InterruptedException e)
+        {
+            throw new TransportException("Interrupted, Unable to publish message on topic : " + publishTopic, e);
+        }
     }
 
     /**
@@ -385,11 +448,25 @@ abstract public class Mqtt implements MqttCallback
     {
         synchronized (this.publishLock)
         {
+            //Codes_SRS_Mqtt_34_060: [This function shall return a permit to the in flight semaphore of the connection, so that a waiting publish can proceed.]
+            this.inFlightPermits.release();
+
+            Message deliveredMessage;
+            if (iMqttDeliveryToken.getUserContext() instanceof Message)
+            {
+                //Codes_SRS_Mqtt_34_064: [If the user context of the token is a message, this function shall treat it as the delivered message.]
+                deliveredMessage = (Message) iMqttDeliveryToken.getUserContext();
+            }
+            else
+            {
+                //Codes_SRS_Mqtt_34_061: [This function shall remove the delivered message from the unacknowledged sent messages.]
+                deliveredMessage = this.unacknowledgedSentMessages.remove(iMqttDeliveryToken.getMessageId());
+            }
+
             if (this.listener != null)
             {
-                if (this.unacknowledgedSentMessages.containsKey(iMqttDeliveryToken.getMessageId()))
+                if (deliveredMessage != null)
                 {
-                    Message deliveredMessage = this.unacknowledgedSentMessages.get(iMqttDeliveryToken.getMessageId());
 
                     if (deliveredMessage instanceof IotHubTransportMessage)
                     {
@@ -408,7 +485,7 @@ abstract public class Mqtt implements MqttCallback
                     }
 
                     //Codes_SRS_Mqtt_34_042: [If this object has a saved listener, that listener shall be notified of the successfully delivered message.]
-                    this.listener.onMessageSent(this.unacknowledgedSentMessages.get(iMqttDeliveryToken.getMessageId()), null);
+                    this.listener.onMessageSent(deliveredMessage, null);
                 }
             }
         }
@@ -446,24 +523,19 @@ abstract public class Mqtt implements MqttCallback
         int propertiesStringStartingIndex = topic.indexOf(MESSAGE_SYSTEM_PROPERTY_IDENTIFIER_ENCODED);
         if (propertiesStringStartingIndex != -1)
         {
-            String propertiesString = topic.substring(propertiesStringStartingIndex);
-
             //Codes_SRS_Mqtt_34_041: [This method shall call assignPropertiesToMessage so that all properties from the topic string can be assigned to the message]
-            assignPropertiesToMessage(message, propertiesString);
-
-            String routeString = topic.substring(0, propertiesStringStartingIndex);
-            String[] routeComponents = routeString.split("/");
+            assignPropertiesToMessage(message, topic, propertiesStringStartingIndex);
 
-            if (routeComponents.length > 2 && routeComponents[2].equals(MODULES_PATH_STRING))
+            if (MqttTopicCodec.tokenEquals(topic, propertiesStringStartingIndex, MODULES_TOKEN, MODULES_PATH_STRING))
             {
                 //Codes_SRS_Mqtt_34_051: [This function shall extract the moduleId from the topic if the topic string fits the following convention: 'devices/<deviceId>/modules/<moduleId>']
-                message.setConnectionModuleId(routeComponents[3]);
+                message.setConnectionModuleId(MqttTopicCodec.getToken(topic, propertiesStringStartingIndex, MODULE_ID_TOKEN));
             }
 
-            if (routeComponents.length > 4 && routeComponents[4].equals(INPUTS_PATH_STRING))
+            if (MqttTopicCodec.tokenEquals(topic, propertiesStringStartingIndex, INPUTS_TOKEN, INPUTS_PATH_STRING))
             {
                 //Codes_SRS_Mqtt_34_050: [This function shall extract the inputName from the topic if the topic string fits the following convention: 'devices/<deviceId>/modules/<moduleId>/inputs/<inputName>']
-                message.setInputName(routeComponents[5]);
+                message.setInputName(MqttTopicCodec.getToken(topic, propertiesStringStartingIndex, INPUT_NAME_TOKEN));
             }
         }
 
@@ -471,34 +543,32 @@ abstract public class Mqtt implements MqttCallback
     }
 
     /**
-     * Takes propertiesString and parses it for all the properties it holds and then assigns them to the provided message
-     * @param propertiesString the string to parse containing all the properties
+     * Parses the properties at the end of the topic in a single pass and assigns them to the provided message
      * @param message the message to add the parsed properties to
+     * @param topic the topic string holding the properties
+     * @param propertiesStringStartingIndex the index in the topic where the properties start
      * @throws IllegalArgumentException if a property's key and value are not separated by the '=' symbol
-     * @throws IllegalStateException if the property for expiry time is present, but the value cannot be parsed as a Long
      * */
-    private void assignPropertiesToMessage(Message message, String propertiesString) throws IllegalStateException, IllegalArgumentException
+    private void assignPropertiesToMessage(Message message, String topic, int propertiesStringStartingIndex) throws IllegalArgumentException
     {
         //Codes_SRS_Mqtt_34_054: [A message may have 0 to many custom properties]
         //expected format is <key>=<value><MESSAGE_PROPERTY_SEPARATOR><key>=<value><MESSAGE_PROPERTY_SEPARATOR>...
-        for (String propertyString : propertiesString.split(String.valueOf(MESSAGE_PROPERTY_SEPARATOR)))
+        int propertyStart = propertiesStringStartingIndex;
+        while (propertyStart < topic.length())
         {
-            if (propertyString.contains("="))
+            int propertyEnd = topic.indexOf(MESSAGE_PROPERTY_SEPARATOR, propertyStart);
+            if (propertyEnd == -1)
+            {
+                propertyEnd = topic.length();
+            }
+
+            int keyValueSeparatorIndex = topic.indexOf(MESSAGE_PROPERTY_KEY_VALUE_SEPARATOR, propertyStart);
+            if (keyValueSeparatorIndex != -1 && keyValueSeparatorIndex < propertyEnd)
             {
                 //Expected format is <key>=<value> where both key and value may be encoded
-                String key = propertyString.split("=")[PROPERTY_KEY_INDEX];
-                String value = propertyString.split("=")[PROPERTY_VALUE_INDEX];
-                try
-                {
-                    //Codes_SRS_Mqtt_34_053: [A property's key and value may include unusual characters such as &, %, $]
-                    key = URLDecoder.decode(key, StandardCharsets.UTF_8.name());
-                    value = URLDecoder.decode(value, StandardCharsets.UTF_8.name());
-                }
-                catch (UnsupportedEncodingException e)
-                {
-                    // should never happen, since the encoding is hard-coded.
-                    throw new IllegalStateException(e);
-                }
+                //Codes_SRS_Mqtt_34_053: [A property's key and value may include unusual characters such as &, %, $]
+                String key = MqttTopicCodec.decode(topic, propertyStart, keyValueSeparatorIndex);
+                String value = MqttTopicCodec.decode(topic, keyValueSeparatorIndex + 1, propertyEnd);
 
                 //Some properties are reserved system properties and must be saved in the message differently
                 //Codes_SRS_Mqtt_34_057: [This function shall parse the messageId, correlationId, outputname, content encoding and content type from the provided property string]
@@ -538,8 +608,10 @@ abstract public class Mqtt implements MqttCallback
             else
             {
                 //Codes_SRS_Mqtt_34_051: [If a topic string's property's key and value are not separated by the '=' symbol, an IllegalArgumentException shall be thrown]
-                throw new IllegalArgumentException("Unexpected property string provided. Expected '=' symbol between key and value of the property in string: " + propertyString);
+                throw new IllegalArgumentException("Unexpected property string provided. Expected '=' symbol between key and value of the property in string: " + topic.substring(propertyStart, propertyEnd));
             }
+
+            propertyStart = propertyEnd + 1;
         }
     }
 }
@@ -14,6 +14,7 @@ import org.eclipse.paho.client.mqttv3.persist.MemoryPersistence;
 import javax.net.ssl.SSLContext;
 import java.io.IOException;
 import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Semaphore;
 
 public class MqttConnection
 {
@@ -22,6 +23,7 @@ public class MqttConnection
     private ConcurrentLinkedQueue<Pair<String, byte[]>> allReceivedMessages;
     private Object mqttLock;
     private MqttCallback mqttCallback;
+    private Semaphore inFlightPermits;
 
     //mqtt connection options
     private static final int KEEP_ALIVE_INTERVAL = 230;
@@ -30,7 +32,7 @@ public class MqttConnection
     static final int QOS = 1;
     static final int MAX_WAIT_TIME = 1000;
 
-    // paho mqtt only supports 10 messages in flight at the same time
+    // the default number of messages paho allows in flight at the same time
     static final int MAX_IN_FLIGHT_COUNT = 10;
 
     /**
@@ -44,6 +46,23 @@ public class MqttConnection
      * @throws TransportException when Mqtt async client cannot be instantiated
      */
     MqttConnection(String serverURI, String clientId, String userName, String password, SSLContext iotHubSSLContext) throws TransportException, IllegalArgumentException
+    {
+        this(serverURI, clientId, userName, password, iotHubSSLContext, MAX_IN_FLIGHT_COUNT);
+    }
+
+    /**
+     * Constructor to create MqttAsync Client with Paho that allows up to {@code maxInFlightCount} publishes to be
+     * waiting for their acknowledgement at the same time.
+     * @param serverURI Uri to connect to
+     * @param clientId Client Id to connect to
+     * @param userName Username
+     * @param password password
+     * @param iotHubSSLContext SSLContext for the connection
+     * @param maxInFlightCount the size of the publish window, at least 1
+     * @throws IllegalArgumentException is thrown if any of the parameters are null or empty, or if maxInFlightCount is less than 1
+     * @throws TransportException when Mqtt async client cannot be instantiated
+     */
+    MqttConnection(String serverURI, String clientId, String userName, String password, SSLContext iotHubSSLContext, int maxInFlightCount) throws TransportException, IllegalArgumentException
     {
         if (serverURI == null || clientId == null || userName == null || iotHubSSLContext == null)
         {
@@ -57,13 +76,19 @@ public class MqttConnection
             throw new IllegalArgumentException("ServerURI, clientId, and userName may not be null or empty");
         }
 
+        if (maxInFlightCount < 1)
+        {
+            //Codes_SRS_MQTTCONNECTION_34_019: [The constructor shall throw IllegalArgumentException if maxInFlightCount is less than 1.]
+            throw new IllegalArgumentException("The maximum number of messages in flight must be at least 1");
+        }
+
         try
         {
             //Codes_SRS_MQTTCONNECTION_25_004: [The constructor shall create an MqttAsync client and update the connection options using the provided serverUri, clientId, userName, password and sslContext.]
             this.mqttAsyncClient = new MqttAsyncClient(serverURI, clientId, new MemoryPersistence());
             this.mqttAsyncClient.setManualAcks(true);
             this.connectionOptions = new MqttConnectOptions();
-            this.updateConnectionOptions(userName, password, iotHubSSLContext);
+            this.updateConnectionOptions(userName, password, iotHubSSLContext, maxInFlightCount);
         }
         catch (MqttException e)
         {
@@ -76,6 +101,9 @@ public class MqttConnection
         //Codes_SRS_MQTTCONNECTION_25_003: [The constructor shall create lock, queue for this MqttConnection.]
         this.allReceivedMessages = new ConcurrentLinkedQueue<>();
         this.mqttLock = new Object();
+
+        //Codes_SRS_MQTTCONNECTION_34_020: [The constructor shall create a semaphore with maxInFlightCount permits that bounds the number of unacknowledged publishes on this MqttConnection.]
+        this.inFlightPermits = new Semaphore(maxInFlightCount);
     }
 
     /**
@@ -83,14 +111,16 @@ public class MqttConnection
      *
      * @param userName the user name for the mqtt broker connection.
      * @param userPassword the user password for the mqtt broker connection.
+     * @param maxInFlightCount the number of messages paho may have in flight at the same time.
      */
-    private void updateConnectionOptions(String userName, String userPassword, SSLContext iotHubSSLContext)
+    private void updateConnectionOptions(String userName, String userPassword, SSLContext iotHubSSLContext, int maxInFlightCount)
     {
         this.connectionOptions.setKeepAliveInterval(KEEP_ALIVE_INTERVAL);
         this.connectionOptions.setCleanSession(SET_CLEAN_SESSION);
         this.connectionOptions.setMqttVersion(MQTT_VERSION);
         this.connectionOptions.setUserName(userName);
         this.connectionOptions.setSocketFactory(iotHubSSLContext.getSocketFactory());
+        this.connectionOptions.setMaxInflight(maxInFlightCount);
 
         if (userPassword != null && !userPassword.isEmpty())
         {
@@ -182,6 +212,17 @@ public class MqttConnection
         return this.mqttLock;
     }
 
+    /**
+     * Getter for the publish window. A permit is taken for every publish and given back when paho reports its
+     * delivery, so publishers on this connection wait on the semaphore rather than on the Mqtt lock.
+     * @return The semaphore holding the available publish permits
+     */
+    Semaphore getInFlightPermits()
+    {
+        //Codes_SRS_MQTTCONNECTION_34_021: [Getter for the semaphore bounding the number of unacknowledged publishes on this connection.]
+        return this.inFlightPermits;
+    }
+
     /**
      * Getter for connection Options
      * @return the connection options to be used for Mqtt
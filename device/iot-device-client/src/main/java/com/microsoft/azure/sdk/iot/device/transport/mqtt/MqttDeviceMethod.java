@@ -6,6 +6,7 @@ package com.microsoft.azure.sdk.iot.device.transport.mqtt;
 import com.microsoft.azure.sdk.iot.device.CustomLogger;
 import com.microsoft.azure.sdk.iot.device.DeviceTwin.DeviceOperations;
 import com.microsoft.azure.sdk.iot.device.Message;
+import com.microsoft.azure.sdk.iot.device.MessageBodyAccessor;
 import com.microsoft.azure.sdk.iot.device.MessageType;
 import com.microsoft.azure.sdk.iot.device.exceptions.TransportException;
 import com.microsoft.azure.sdk.iot.device.transport.IotHubTransportMessage;
@@ -61,7 +62,7 @@ public class MqttDeviceMethod extends Mqtt
 
         if (!requestMap.isEmpty())
         {
-            logger.LogInfo("Pending %d responses to be sent to IotHub yet unsubscribed %s", requestMap.size(), logger.getMethodName());
+            logger.LogInfo("Pending %d responses to be sent to IotHub yet unsubscribed stop", requestMap.size());
         }
     }
 
@@ -74,7 +75,7 @@ public class MqttDeviceMethod extends Mqtt
      */
     public void send(final IotHubTransportMessage message) throws TransportException, IllegalArgumentException
     {
-        if (message == null || message.getBytes() == null)
+        if (message == null || MessageBodyAccessor.getBodyArray(message) == null)
         {
             //Codes_SRS_MqttDeviceMethod_25_016: [send method shall throw an exception if the message is null.]
             throw new IllegalArgumentException("Message cannot be null");
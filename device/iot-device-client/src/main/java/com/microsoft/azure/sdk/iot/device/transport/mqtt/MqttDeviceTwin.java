@@ -6,6 +6,7 @@ package com.microsoft.azure.sdk.iot.device.transport.mqtt;
 import com.microsoft.azure.sdk.iot.device.CustomLogger;
 import com.microsoft.azure.sdk.iot.device.DeviceTwin.DeviceOperations;
 import com.microsoft.azure.sdk.iot.device.Message;
+import com.microsoft.azure.sdk.iot.device.MessageBodyAccessor;
 import com.microsoft.azure.sdk.iot.device.MessageType;
 import com.microsoft.azure.sdk.iot.device.exceptions.IotHubServiceException;
 import com.microsoft.azure.sdk.iot.device.exceptions.TransportException;
@@ -14,7 +15,6 @@ import org.apache.commons.lang3.tuple.Pair;
 
 import java.util.HashMap;
 import java.util.Map;
-import java.util.regex.Pattern;
 
 public class MqttDeviceTwin extends Mqtt
 {
@@ -41,8 +41,8 @@ public class MqttDeviceTwin extends Mqtt
     //Placement in $iothub/twin/res/{status}/?$rid={request id}&$version={new version}
     private final int RES_TOKEN = 2;
     private final int STATUS_TOKEN = 3;
-    private final int REQID_TOKEN = 4;
-    private final int VERSION_TOKEN = 4;
+    // the request id and the version share the query token
+    private final int QUERY_TOKEN = 4;
 
     //Placement for $iothub/twin/PATCH/properties/desired/?$version={new version}
     private final int PATCH_TOKEN = 2;
@@ -75,7 +75,7 @@ public class MqttDeviceTwin extends Mqtt
 
         if (!requestMap.isEmpty())
         {
-            logger.LogInfo("Pending %d responses from IotHub yet unsubscribed %s", requestMap.size(), logger.getMethodName());
+            logger.LogInfo("Pending %d responses from IotHub yet unsubscribed stop", requestMap.size());
         }
     }
 
@@ -177,7 +177,7 @@ public class MqttDeviceTwin extends Mqtt
      */
     public void send(final IotHubTransportMessage message) throws TransportException
     {
-        if (message == null || message.getBytes() == null)
+        if (message == null || MessageBodyAccessor.getBodyArray(message) == null)
         {
             //Codes_SRS_MQTTDEVICETWIN_25_021: [send method shall throw an IllegalArgumentException if the message is null.]
             throw new IllegalArgumentException("Message cannot be null");
@@ -224,7 +224,7 @@ public class MqttDeviceTwin extends Mqtt
     {
         String status = null;
 
-        if (token != null && token.matches("\\d{3}")) // 3 digit number
+        if (isThreeDigitNumber(token))
         {
             status = token;
         }
@@ -237,6 +237,24 @@ public class MqttDeviceTwin extends Mqtt
         return status;
     }
 
+    private static boolean isThreeDigitNumber(String token)
+    {
+        if (token == null || token.length() != 3)
+        {
+            return false;
+        }
+
+        for (int i = 0; i < token.length(); i++)
+        {
+            if (token.charAt(i) < '0' || token.charAt(i) > '9')
+            {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
     private String getRequestId(String token)
     {
         String reqId = null;
@@ -297,8 +315,9 @@ public class MqttDeviceTwin extends Mqtt
 
                         if (topic.length() > RES.length() && topic.startsWith(RES))
                         {
-                            // Tokenize on backslash
-                            String[] topicTokens = topic.split(Pattern.quote("/"));
+                            // Read the tokens out of the topic by index
+                            String statusToken = MqttTopicCodec.getToken(topic, topic.length(), STATUS_TOKEN);
+                            String queryToken = MqttTopicCodec.getToken(topic, topic.length(), QUERY_TOKEN);
                             if (data != null && data.length > 0)
                             {
                                 //Codes_SRS_MQTTDEVICETWIN_25_044: [If the topic is of type response then this method shall set data and operation type as DEVICE_OPERATION_TWIN_GET_RESPONSE if data is not null]
@@ -315,20 +334,20 @@ public class MqttDeviceTwin extends Mqtt
                             }
 
                             // Case for $iothub/twin/res/{status}/?$rid={request id}&$version={new version}
-                            if (topicTokens.length > STATUS_TOKEN)
+                            if (statusToken != null)
                             {
                                 //Codes_SRS_MQTTDEVICETWIN_25_038: [If the topic is of type response topic then this method shall parse further for status and set it for the message by calling setStatus for the message]
-                                messsage.setStatus(getStatus(topicTokens[STATUS_TOKEN]));
+                                messsage.setStatus(getStatus(statusToken));
                             }
                             else
                             {
                                 this.throwDeviceTwinTransportException(new IotHubServiceException("Message received without status"));
                             }
 
-                            if (topicTokens.length > REQID_TOKEN)
+                            if (queryToken != null)
                             {
                                 //Codes_SRS_MQTTDEVICETWIN_25_040: [If the topic is of type response topic then this method shall parse further to look for request id which if found is set by calling setRequestId]
-                                String requestId = getRequestId(topicTokens[REQID_TOKEN]);
+                                String requestId = getRequestId(queryToken);
                                 messsage.setRequestId(requestId);
                                 if (requestMap.containsKey(requestId))
                                 {
@@ -350,10 +369,10 @@ public class MqttDeviceTwin extends Mqtt
                                 }
                             }
 
-                            if (topicTokens.length > VERSION_TOKEN)
+                            if (queryToken != null)
                             {
                                 //Codes_SRS_MQTTDEVICETWIN_25_041: [If the topic is of type response topic then this method shall parse further to look for version which if found is set by calling setVersion]
-                                messsage.setVersion(getVersion(topicTokens[VERSION_TOKEN]));
+                                messsage.setVersion(getVersion(queryToken));
                             }
                         }
                         else if (topic.length() > PATCH.length() && topic.startsWith(PATCH))
@@ -374,12 +393,11 @@ public class MqttDeviceTwin extends Mqtt
                                 }
 
                                 // Case for $iothub/twin/PATCH/properties/desired/?$version={new version}
-                                // Tokenize on backslash
-                                String[] topicTokens = topic.split(Pattern.quote("/"));
-                                if (topicTokens.length > PATCH_VERSION_TOKEN)
+                                String versionToken = MqttTopicCodec.getToken(topic, topic.length(), PATCH_VERSION_TOKEN);
+                                if (versionToken != null)
                                 {
                                     //Codes_SRS_MQTTDEVICETWIN_25_042: [If the topic is of type patch for desired properties then this method shall parse further to look for version which if found is set by calling setVersion]
-                                    messsage.setVersion(getVersion(topicTokens[PATCH_VERSION_TOKEN]));
+                                    messsage.setVersion(getVersion(versionToken));
                                 }
 
                                 logger.LogInfo("Message received on DT " + messsage.getDeviceOperationType());
@@ -160,14 +160,16 @@ public class MqttIotHubConnection implements IotHubTransportConnection, MqttMess
                     //Codes_SRS_MQTTIOTHUBCONNECTION_25_018: [The function shall establish an MQTT WS connection with a server uri as wss://<hostName>/$iothub/websocket?iothub-no-client-cert=true if websocket was enabled.]
                     final String wsServerUri = WS_SSL_PREFIX + host + WEBSOCKET_RAW_PATH + WEBSOCKET_QUERY ;
                     mqttConnection = new MqttConnection(wsServerUri,
-                            clientId, this.iotHubUserName, this.iotHubUserPassword, sslContext);
+                            clientId, this.iotHubUserName, this.iotHubUserPassword, sslContext,
+                            this.config.getMqttMaxInFlightCount());
                 }
                 else
                 {
                     //Codes_SRS_MQTTIOTHUBCONNECTION_25_019: [The function shall establish an MQTT connection with a server uri as ssl://<hostName>:8883 if websocket was not enabled.]
                     final String serverUri = SSL_PREFIX + host + SSL_PORT_SUFFIX;
                     mqttConnection = new MqttConnection(serverUri,
-                            clientId, this.iotHubUserName, this.iotHubUserPassword, sslContext);
+                            clientId, this.iotHubUserName, this.iotHubUserPassword, sslContext,
+                            this.config.getMqttMaxInFlightCount());
                 }
 
                 //Codes_SRS_MQTTIOTHUBCONNECTION_34_030: [This function shall instantiate this object's MqttMessaging object with this object as the listener.]
@@ -176,6 +178,8 @@ public class MqttIotHubConnection implements IotHubTransportConnection, MqttMess
                 this.deviceMethod = new MqttDeviceMethod(mqttConnection, this.connectionId);
                 this.deviceTwin = new MqttDeviceTwin(mqttConnection, this.connectionId);
 
+                //Codes_SRS_MQTTIOTHUBCONNECTION_34_066: [The function shall publish telemetry with the qos saved in the config.]
+                this.deviceMessaging.setQos(this.config.getMqttTelemetryQos());
                 this.deviceMessaging.start();
                 this.state = IotHubConnectionStatus.CONNECTED;
 
@@ -262,11 +266,11 @@ public class MqttIotHubConnection implements IotHubTransportConnection, MqttMess
         {
             // Codes_SRS_MQTTIOTHUBCONNECTION_15_010: [If the message is null or empty,
             // the function shall return status code BAD_FORMAT.]
-            if (message == null || message.getBytes() == null ||
+            if (message == null || MessageBodyAccessor.getBodyArray(message) == null ||
                     (
                             (message.getMessageType() != MessageType.DEVICE_TWIN
                                     && message.getMessageType() != MessageType.DEVICE_METHODS)
-                                    && message.getBytes().length == 0))
+                                    && MessageBodyAccessor.getBodyArray(message).length == 0))
             {
                 return IotHubStatusCode.BAD_FORMAT;
             }
@@ -367,11 +371,11 @@ public class MqttIotHubConnection implements IotHubTransportConnection, MqttMess
         {
             // Codes_SRS_MQTTIOTHUBCONNECTION_15_010: [If the message is null or empty,
             // the function shall return status code BAD_FORMAT.]
-            if (message == null || message.getBytes() == null ||
+            if (message == null || MessageBodyAccessor.getBodyArray(message) == null ||
                     (
                             (message.getMessageType() != DEVICE_TWIN
                                     && message.getMessageType() != DEVICE_METHODS)
-                                    && message.getBytes().length == 0))
+                                    && MessageBodyAccessor.getBodyArray(message).length == 0))
             {
                 return IotHubStatusCode.BAD_FORMAT;
             }
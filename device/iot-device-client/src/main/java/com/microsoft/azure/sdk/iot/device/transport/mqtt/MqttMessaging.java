@@ -4,16 +4,18 @@
 package com.microsoft.azure.sdk.iot.device.transport.mqtt;
 
 import com.microsoft.azure.sdk.iot.device.Message;
-import com.microsoft.azure.sdk.iot.device.MessageProperty;
+import com.microsoft.azure.sdk.iot.device.MessageBodyAccessor;
 import com.microsoft.azure.sdk.iot.device.exceptions.TransportException;
+import com.microsoft.azure.sdk.iot.device.net.UrlEncoding;
 import com.microsoft.azure.sdk.iot.device.transport.IotHubListener;
 
 import java.io.UnsupportedEncodingException;
-import java.net.URLEncoder;
-import java.nio.charset.StandardCharsets;
 
 public class MqttMessaging extends Mqtt
 {
+    // room for the message id and a few properties, so that most topics are built without growing the builder
+    private static final int PUBLISH_TOPIC_PROPERTIES_CAPACITY = 128;
+
     private String moduleId;
     private String eventsSubscribeTopic;
     private String inputsSubscribeTopic;
@@ -81,13 +83,15 @@ public class MqttMessaging extends Mqtt
      */
     public void send(Message message) throws TransportException
     {
-        if (message == null || message.getBytes() == null)
+        if (message == null || MessageBodyAccessor.getBodyArray(message) == null)
         {
             //Codes_SRS_MqttMessaging_25_025: [send method shall throw an IllegalArgumentException if the message is null.]
             throw new IllegalArgumentException("Message cannot be null");
         }
 
-        StringBuilder stringBuilder = new StringBuilder();
+        String encodedProperties = message.getUrlEncodedProperties();
+        int encodedPropertiesLength = encodedProperties.length();
+        StringBuilder stringBuilder = new StringBuilder(this.publishTopic.length() + PUBLISH_TOPIC_PROPERTIES_CAPACITY + encodedPropertiesLength);
         stringBuilder.append(this.publishTopic);
 
         boolean separatorNeeded = false;
@@ -110,9 +114,15 @@ public class MqttMessaging extends Mqtt
         separatorNeeded = appendPropertyIfPresent(stringBuilder, separatorNeeded, CONTENT_ENCODING, message.getContentEncoding());
         separatorNeeded = appendPropertyIfPresent(stringBuilder, separatorNeeded, CONTENT_TYPE, message.getContentType());
 
-        for (MessageProperty property : message.getProperties())
+        if (encodedPropertiesLength > 0)
         {
-            separatorNeeded = appendPropertyIfPresent(stringBuilder, separatorNeeded, property.getName(), property.getValue());
+            //Codes_SRS_MqttMessaging_34_037: [This method shall append the custom properties in the URL encoded form cached by the message.]
+            if (separatorNeeded)
+            {
+                stringBuilder.append(MESSAGE_PROPERTY_SEPARATOR);
+            }
+
+            stringBuilder.append(encodedProperties);
         }
 
         if (this.moduleId != null && !this.moduleId.isEmpty())
@@ -147,7 +157,7 @@ public class MqttMessaging extends Mqtt
 
                 stringBuilder.append(propertyKey);
                 stringBuilder.append(MESSAGE_PROPERTY_KEY_VALUE_SEPARATOR);
-                stringBuilder.append(URLEncoder.encode(propertyValue, StandardCharsets.UTF_8.name()));
+                UrlEncoding.appendEncoded(stringBuilder, propertyValue);
 
                 return true;
             }
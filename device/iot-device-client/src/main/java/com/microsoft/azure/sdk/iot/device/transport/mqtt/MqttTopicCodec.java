@@ -0,0 +1,167 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See LICENSE file in the project root for full license information.
+
+package com.microsoft.azure.sdk.iot.device.transport.mqtt;
+
+import java.io.UnsupportedEncodingException;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Reads MQTT topic strings by index instead of splitting them into arrays. Tokens are only copied out of the topic
+ * when they are asked for, and property keys and values only go through {@link URLDecoder} when they contain
+ * characters it would change.
+ */
+final class MqttTopicCodec
+{
+    private static final char TOPIC_SEPARATOR = '/';
+    private static final char ESCAPE_CHARACTER = '%';
+    private static final char ENCODED_SPACE = '+';
+    private static final String CHARSET_NAME = StandardCharsets.UTF_8.name();
+
+    private MqttTopicCodec()
+    {
+    }
+
+    /**
+     * Counts the "/" separated tokens of the topic the way {@code topic.split("/").length} would, so trailing empty
+     * tokens are not counted.
+     * @param topic the topic to count the tokens of
+     * @return the number of tokens in the topic
+     */
+    static int getTokenCount(String topic)
+    {
+        int lastIndex = topic.length() - 1;
+        while (lastIndex >= 0 && topic.charAt(lastIndex) == TOPIC_SEPARATOR)
+        {
+            lastIndex--;
+        }
+
+        if (lastIndex < 0)
+        {
+            //Codes_SRS_MQTTTOPICCODEC_34_001: [If the topic holds nothing but "/" characters, this function shall return 0.]
+            return 0;
+        }
+
+        int tokenCount = 1;
+        for (int i = 0; i < lastIndex; i++)
+        {
+            if (topic.charAt(i) == TOPIC_SEPARATOR)
+            {
+                tokenCount++;
+            }
+        }
+
+        //Codes_SRS_MQTTTOPICCODEC_34_002: [This function shall return the number of "/" separated tokens in the topic, not counting trailing empty tokens.]
+        return tokenCount;
+    }
+
+    /**
+     * Returns the "/" separated token at the provided index of the first {@code end} characters of the topic.
+     * @param topic the topic to read from
+     * @param end the index in the topic after which characters are ignored
+     * @param tokenIndex the zero based index of the token
+     * @return the token, or null if the topic has no such token or it would be dropped as a trailing empty token by
+     * {@code split("/")}
+     */
+    static String getToken(String topic, int end, int tokenIndex)
+    {
+        int tokenStart = findTokenStart(topic, end, tokenIndex);
+        if (tokenStart < 0)
+        {
+            //Codes_SRS_MQTTTOPICCODEC_34_004: [If the topic has no such token before end, or the token and all tokens after it are empty, this function shall return null.]
+            return null;
+        }
+
+        int tokenEnd = topic.indexOf(TOPIC_SEPARATOR, tokenStart);
+        if (tokenEnd < 0 || tokenEnd > end)
+        {
+            tokenEnd = end;
+        }
+
+        //Codes_SRS_MQTTTOPICCODEC_34_003: [This function shall return the "/" separated token at the provided index, ignoring the characters of the topic from end onwards.]
+        return topic.substring(tokenStart, tokenEnd);
+    }
+
+    /**
+     * Checks the "/" separated token at the provided index of the first {@code end} characters of the topic against
+     * an expected value without copying the token.
+     * @param topic the topic to read from
+     * @param end the index in the topic after which characters are ignored
+     * @param tokenIndex the zero based index of the token
+     * @param expected the expected value of the token
+     * @return true if the token exists and is equal to the expected value
+     */
+    static boolean tokenEquals(String topic, int end, int tokenIndex, String expected)
+    {
+        int tokenStart = findTokenStart(topic, end, tokenIndex);
+        if (tokenStart < 0)
+        {
+            return false;
+        }
+
+        //Codes_SRS_MQTTTOPICCODEC_34_005: [This function shall return true if and only if getToken would return a token equal to the expected value.]
+        int tokenEnd = tokenStart + expected.length();
+        return tokenEnd <= end
+                && topic.startsWith(expected, tokenStart)
+                && (tokenEnd == end || topic.charAt(tokenEnd) == TOPIC_SEPARATOR);
+    }
+
+    /**
+     * URL decodes the characters of the topic between start and end. The characters are copied as they are if they
+     * contain nothing to decode.
+     * @param topic the topic holding the encoded characters
+     * @param start the index of the first character to decode
+     * @param end the index after the last character to decode
+     * @return the decoded characters
+     */
+    static String decode(String topic, int start, int end)
+    {
+        for (int i = start; i < end; i++)
+        {
+            char character = topic.charAt(i);
+            if (character == ESCAPE_CHARACTER || character == ENCODED_SPACE)
+            {
+                //Codes_SRS_MQTTTOPICCODEC_34_006: [If the characters contain a '%' or a '+', this function shall return them decoded by URLDecoder using UTF-8.]
+                try
+                {
+                    return URLDecoder.decode(topic.substring(start, end), CHARSET_NAME);
+                }
+                catch (UnsupportedEncodingException e)
+                {
+                    // should never happen, since the encoding is hard-coded.
+                    throw new IllegalStateException(e);
+                }
+            }
+        }
+
+        //Codes_SRS_MQTTTOPICCODEC_34_007: [If the characters contain neither '%' nor '+', this function shall return them as they are.]
+        return topic.substring(start, end);
+    }
+
+    private static int findTokenStart(String topic, int end, int tokenIndex)
+    {
+        int tokenStart = 0;
+        for (int i = 0; i < tokenIndex; i++)
+        {
+            int separatorIndex = topic.indexOf(TOPIC_SEPARATOR, tokenStart);
+            if (separatorIndex < 0 || separatorIndex >= end)
+            {
+                return -1;
+            }
+
+            tokenStart = separatorIndex + 1;
+        }
+
+        // split("/") drops the empty tokens at the end of the topic
+        for (int i = tokenStart; i < end; i++)
+        {
+            if (topic.charAt(i) != TOPIC_SEPARATOR)
+            {
+                return tokenStart;
+            }
+        }
+
+        return -1;
+    }
+}
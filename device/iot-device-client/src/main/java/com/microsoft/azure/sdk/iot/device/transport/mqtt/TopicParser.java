@@ -7,7 +7,8 @@ import com.microsoft.azure.sdk.iot.device.exceptions.TransportException;
 
 public class TopicParser
 {
-    private String[] topicTokens = null;
+    private String topic = null;
+    private int tokenCount = 0;
 
     private final String QUESTION = "?";
 
@@ -23,22 +24,24 @@ public class TopicParser
         }
 
         //Codes_SRS_TopicParser_25_001: [The constructor shall spilt the topic by "/" and save the tokens.]
-        this.topicTokens = topic.split("/");
+        // the tokens are read out of the topic by index when they are asked for
+        this.topic = topic;
+        this.tokenCount = MqttTopicCodec.getTokenCount(topic);
     }
 
     protected String getStatus(int tokenIndexStatus) throws TransportException
     {
         String status = null;
 
-        if (tokenIndexStatus <= 0 || tokenIndexStatus >= topicTokens.length)
+        if (tokenIndexStatus <= 0 || tokenIndexStatus >= this.tokenCount)
         {
             //Codes_SRS_TopicParser_25_003: [If tokenIndexStatus is not valid i.e less than or equal to zero or greater then token length then getStatus shall throw TransportException.]
             throw new TransportException(new IllegalArgumentException("Invalid token Index for status"));
         }
 
-        if (topicTokens.length > tokenIndexStatus)
+        if (this.tokenCount > tokenIndexStatus)
         {
-            String token = topicTokens[tokenIndexStatus];
+            String token = MqttTopicCodec.getToken(this.topic, this.topic.length(), tokenIndexStatus);
 
             if (token != null)
             {
@@ -59,15 +62,15 @@ public class TopicParser
     {
         String reqId = null;
 
-        if (tokenIndexReqID <= 0 || tokenIndexReqID >= topicTokens.length)
+        if (tokenIndexReqID <= 0 || tokenIndexReqID >= this.tokenCount)
         {
             //Codes_SRS_TopicParser_25_006: [If tokenIndexReqID is not valid i.e less than or equal to zero or greater then token length then getRequestId shall throw TransportException.]
             throw new TransportException(new IllegalArgumentException("Invalid token Index for request id"));
         }
 
-        if (topicTokens.length > tokenIndexReqID)
+        if (this.tokenCount > tokenIndexReqID)
         {
-            String token = topicTokens[tokenIndexReqID];
+            String token = MqttTopicCodec.getToken(this.topic, this.topic.length(), tokenIndexReqID);
 
             //Codes_SRS_TopicParser_25_008: [If the topic token does not contain request id then this method shall return null.]
             if (token.contains(REQ_ID) && token.contains(QUESTION)) // restriction for request id
@@ -93,15 +96,15 @@ public class TopicParser
     {
         String version = null;
 
-        if (tokenIndexVersion <= 0 || tokenIndexVersion >= topicTokens.length)
+        if (tokenIndexVersion <= 0 || tokenIndexVersion >= this.tokenCount)
         {
             //Codes_SRS_TopicParser_25_009: [If tokenIndexVersion is not valid i.e less than or equal to zero or greater then token length then getVersion shall throw TranpsortException.]
             throw new TransportException(new IllegalArgumentException("Invalid token Index for Version"));
         }
 
-        if (topicTokens.length > tokenIndexVersion)
+        if (this.tokenCount > tokenIndexVersion)
         {
-            String token = topicTokens[tokenIndexVersion];
+            String token = MqttTopicCodec.getToken(this.topic, this.topic.length(), tokenIndexVersion);
             
             //Codes_SRS_TopicParser_25_010: [This method shall return the version value(if present) corresponding to the tokenIndexVersion from tokens.]
             //Codes_SRS_TopicParser_25_011: [If the topic token does not contain version then this method shall return null.]
@@ -127,15 +130,15 @@ public class TopicParser
     {
         String methodName = null;
 
-        if (tokenIndexMethod <= 0 || tokenIndexMethod >= topicTokens.length)
+        if (tokenIndexMethod <= 0 || tokenIndexMethod >= this.tokenCount)
         {
             //Codes_SRS_TopicParser_25_012: [If tokenIndexMethod is not valid i.e less than or equal to zero or greater then token length then getMethodName shall throw TransportException.]
             throw new TransportException(new IllegalArgumentException("Invalid token Index for Method Name"));
         }
 
-        if (topicTokens.length > tokenIndexMethod)
+        if (this.tokenCount > tokenIndexMethod)
         {
-            String token = topicTokens[tokenIndexMethod];
+            String token = MqttTopicCodec.getToken(this.topic, this.topic.length(), tokenIndexMethod);
             
             //Codes_SRS_TopicParser_25_013: [This method shall return the method name(if present) corresponding to the tokenIndexMethod from tokens.]
             //Codes_SRS_TopicParser_25_014: [If the topic token does not contain method name or is null then this method shall throw TransportException.]
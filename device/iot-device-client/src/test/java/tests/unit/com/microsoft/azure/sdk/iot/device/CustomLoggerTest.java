@@ -238,4 +238,65 @@ public class CustomLoggerTest
             }
         };
     }
+
+    // Tests_SRS_CUSTOMLOGGER_34_021: [The function shall return true if the INFO level is enabled in the underlying logger, and false otherwise.]
+    // Tests_SRS_CUSTOMLOGGER_34_022: [The function shall return true if the DEBUG level is enabled in the underlying logger, and false otherwise.]
+    // Tests_SRS_CUSTOMLOGGER_34_023: [The function shall return true if the TRACE level is enabled in the underlying logger, and false otherwise.]
+    // Tests_SRS_CUSTOMLOGGER_34_024: [The function shall return true if the WARN level is enabled in the underlying logger, and false otherwise.]
+    // Tests_SRS_CUSTOMLOGGER_34_025: [The function shall return true if the ERROR level is enabled in the underlying logger, and false otherwise.]
+    @Test
+    public void levelChecksReturnUnderlyingLoggerLevels(@Mocked final Logger mockLogger)
+    {
+        new NonStrictExpectations()
+        {
+            {
+                LoggerFactory.getLogger((Class)any);
+                result = mockLogger;
+                mockLogger.isInfoEnabled();
+                result = true;
+                mockLogger.isDebugEnabled();
+                result = false;
+                mockLogger.isTraceEnabled();
+                result = false;
+                mockLogger.isWarnEnabled();
+                result = true;
+                mockLogger.isErrorEnabled();
+                result = true;
+            }
+        };
+
+        CustomLogger logger = new CustomLogger(this.getClass());
+
+        assertThat(logger.isInfoEnabled(), is(true));
+        assertThat(logger.isDebugEnabled(), is(false));
+        assertThat(logger.isTraceEnabled(), is(false));
+        assertThat(logger.isWarnEnabled(), is(true));
+        assertThat(logger.isErrorEnabled(), is(true));
+    }
+
+    // Tests_SRS_CUSTOMLOGGER_25_003: [If INFO level is not enabled, message will not be recorded.]
+    @Test
+    public void logInfoDoesNotFormatWhenDisabled(@Mocked final Logger mockLogger)
+    {
+        new NonStrictExpectations()
+        {
+            {
+                LoggerFactory.getLogger((Class)any);
+                result = mockLogger;
+                mockLogger.isInfoEnabled();
+                result = false;
+            }
+        };
+
+        // a missing argument would make String.format throw if the message was formatted
+        new CustomLogger(this.getClass()).LogInfo("This is INFO message %s");
+
+        new Verifications()
+        {
+            {
+                mockLogger.info(anyString);
+                times = 0;
+            }
+        };
+    }
 }
@@ -8,6 +8,7 @@ import com.microsoft.azure.sdk.iot.device.DeviceTwin.Pair;
 import com.microsoft.azure.sdk.iot.device.auth.*;
 import com.microsoft.azure.sdk.iot.device.transport.ExponentialBackoffWithJitter;
 import com.microsoft.azure.sdk.iot.device.transport.RetryPolicy;
+import com.microsoft.azure.sdk.iot.device.transport.amqps.AmqpsEventLoopGroup;
 import com.microsoft.azure.sdk.iot.provisioning.security.SecurityProvider;
 import com.microsoft.azure.sdk.iot.provisioning.security.SecurityProviderTpm;
 import com.microsoft.azure.sdk.iot.provisioning.security.SecurityProviderX509;
@@ -901,6 +902,141 @@ public class DeviceClientConfigTest
         assertEquals(expectedOperationTimeout, actual);
     }
 
+    //Tests_SRS_DEVICECLIENTCONFIG_34_085: [If the provided batch size is 0 or negative, this function shall throw an IllegalArgumentException.]
+    @Test (expected = IllegalArgumentException.class)
+    public void setHttpsBatchSizeThrowsForZeroBatchSize()
+    {
+        //arrange
+        DeviceClientConfig config = Deencapsulation.newInstance(DeviceClientConfig.class, mockIotHubConnectionString);
+
+        //act
+        Deencapsulation.invoke(config, "setHttpsBatchSize", new Class[] {int.class}, 0);
+    }
+
+    //Tests_SRS_DEVICECLIENTCONFIG_34_086: [This function shall save the provided batch size.]
+    //Tests_SRS_DEVICECLIENTCONFIG_34_087: [This function shall return the saved batch size, 1 by default.]
+    @Test
+    public void setHttpsBatchSizeSavesBatchSize()
+    {
+        //arrange
+        DeviceClientConfig config = Deencapsulation.newInstance(DeviceClientConfig.class, mockIotHubConnectionString);
+        assertEquals(1, config.getHttpsBatchSize());
+
+        //act
+        Deencapsulation.invoke(config, "setHttpsBatchSize", new Class[] {int.class}, 50);
+
+        //assert
+        assertEquals(50, config.getHttpsBatchSize());
+    }
+
+    //Tests_SRS_DEVICECLIENTCONFIG_34_088: [If the provided linger time is negative, this function shall throw an IllegalArgumentException.]
+    @Test (expected = IllegalArgumentException.class)
+    public void setHttpsBatchLingerMillisThrowsForNegativeLingerTime()
+    {
+        //arrange
+        DeviceClientConfig config = Deencapsulation.newInstance(DeviceClientConfig.class, mockIotHubConnectionString);
+
+        //act
+        Deencapsulation.invoke(config, "setHttpsBatchLingerMillis", new Class[] {long.class}, -1L);
+    }
+
+    //Tests_SRS_DEVICECLIENTCONFIG_34_089: [This function shall save the provided linger time.]
+    //Tests_SRS_DEVICECLIENTCONFIG_34_090: [This function shall return the saved linger time, 0 by default.]
+    @Test
+    public void setHttpsBatchLingerMillisSavesLingerTime()
+    {
+        //arrange
+        DeviceClientConfig config = Deencapsulation.newInstance(DeviceClientConfig.class, mockIotHubConnectionString);
+        assertEquals(0, config.getHttpsBatchLingerMillis());
+
+        //act
+        Deencapsulation.invoke(config, "setHttpsBatchLingerMillis", new Class[] {long.class}, 20L);
+
+        //assert
+        assertEquals(20, config.getHttpsBatchLingerMillis());
+    }
+
+    //Tests_SRS_DEVICECLIENTCONFIG_34_091: [If the provided count is 0 or negative, this function shall throw an IllegalArgumentException.]
+    @Test (expected = IllegalArgumentException.class)
+    public void setMqttMaxInFlightCountThrowsForZeroCount()
+    {
+        //arrange
+        DeviceClientConfig config = Deencapsulation.newInstance(DeviceClientConfig.class, mockIotHubConnectionString);
+
+        //act
+        Deencapsulation.invoke(config, "setMqttMaxInFlightCount", new Class[] {int.class}, 0);
+    }
+
+    //Tests_SRS_DEVICECLIENTCONFIG_34_092: [This function shall save the provided count.]
+    //Tests_SRS_DEVICECLIENTCONFIG_34_093: [This function shall return the saved count, 10 by default.]
+    @Test
+    public void setMqttMaxInFlightCountSavesCount()
+    {
+        //arrange
+        DeviceClientConfig config = Deencapsulation.newInstance(DeviceClientConfig.class, mockIotHubConnectionString);
+        assertEquals(10, config.getMqttMaxInFlightCount());
+
+        //act
+        Deencapsulation.invoke(config, "setMqttMaxInFlightCount", new Class[] {int.class}, 100);
+
+        //assert
+        assertEquals(100, config.getMqttMaxInFlightCount());
+    }
+
+    //Tests_SRS_DEVICECLIENTCONFIG_34_094: [If the provided qos is neither 0 nor 1, this function shall throw an IllegalArgumentException.]
+    @Test (expected = IllegalArgumentException.class)
+    public void setMqttTelemetryQosThrowsForQos2()
+    {
+        //arrange
+        DeviceClientConfig config = Deencapsulation.newInstance(DeviceClientConfig.class, mockIotHubConnectionString);
+
+        //act
+        Deencapsulation.invoke(config, "setMqttTelemetryQos", new Class[] {int.class}, 2);
+    }
+
+    //Tests_SRS_DEVICECLIENTCONFIG_34_095: [This function shall save the provided qos.]
+    //Tests_SRS_DEVICECLIENTCONFIG_34_096: [This function shall return the saved qos, 1 by default.]
+    @Test
+    public void setMqttTelemetryQosSavesQos()
+    {
+        //arrange
+        DeviceClientConfig config = Deencapsulation.newInstance(DeviceClientConfig.class, mockIotHubConnectionString);
+        assertEquals(1, config.getMqttTelemetryQos());
+
+        //act
+        Deencapsulation.invoke(config, "setMqttTelemetryQos", new Class[] {int.class}, 0);
+
+        //assert
+        assertEquals(0, config.getMqttTelemetryQos());
+    }
+
+    //Tests_SRS_DEVICECLIENTCONFIG_34_097: [If the provided event loop group is null, this function shall throw an IllegalArgumentException.]
+    @Test (expected = IllegalArgumentException.class)
+    public void setAmqpsEventLoopGroupThrowsForNullGroup()
+    {
+        //arrange
+        DeviceClientConfig config = Deencapsulation.newInstance(DeviceClientConfig.class, mockIotHubConnectionString);
+
+        //act
+        Deencapsulation.invoke(config, "setAmqpsEventLoopGroup", new Class[] {AmqpsEventLoopGroup.class}, (AmqpsEventLoopGroup) null);
+    }
+
+    //Tests_SRS_DEVICECLIENTCONFIG_34_098: [This function shall save the provided event loop group.]
+    //Tests_SRS_DEVICECLIENTCONFIG_34_099: [This function shall return the saved event loop group, null by default.]
+    @Test
+    public void setAmqpsEventLoopGroupSavesGroup(@Mocked final AmqpsEventLoopGroup mockAmqpsEventLoopGroup)
+    {
+        //arrange
+        DeviceClientConfig config = Deencapsulation.newInstance(DeviceClientConfig.class, mockIotHubConnectionString);
+        assertNull(config.getAmqpsEventLoopGroup());
+
+        //act
+        Deencapsulation.invoke(config, "setAmqpsEventLoopGroup", mockAmqpsEventLoopGroup);
+
+        //assert
+        assertEquals(mockAmqpsEventLoopGroup, config.getAmqpsEventLoopGroup());
+    }
+
     //Tests_SRS_DEVICECLIENTCONFIG_34_040: [This function shall return the saved product info.]
     @Test
     public void getProductInfoReturnsSavedProductInfo()
@@ -9,6 +9,7 @@ import com.microsoft.azure.sdk.iot.device.auth.IotHubAuthenticationProvider;
 import com.microsoft.azure.sdk.iot.device.auth.IotHubSasTokenAuthenticationProvider;
 import com.microsoft.azure.sdk.iot.device.exceptions.TransportException;
 import com.microsoft.azure.sdk.iot.device.fileupload.FileUpload;
+import com.microsoft.azure.sdk.iot.device.transport.amqps.AmqpsEventLoopGroup;
 import com.microsoft.azure.sdk.iot.device.transport.amqps.IoTHubConnectionType;
 import com.microsoft.azure.sdk.iot.provisioning.security.SecurityProvider;
 import mockit.*;
@@ -1467,6 +1468,48 @@ public class DeviceClientTest
         client.setOption("SetMinimumPollingInterval", "thisIsNotALong");
     }
 
+    // Tests_SRS_DEVICECLIENT_34_077: [If the client configured to use TransportClient the SetHttpsBatchSize and SetHttpsBatchLingerTime options shall throw IllegalStateException.]
+    @Test (expected = IllegalStateException.class)
+    public void setOptionWithTransportClientThrowsSetHttpsBatchSize()
+            throws URISyntaxException
+    {
+        // arrange
+        final String connString = "HostName=iothub.device.com;CredentialType=SharedAccessKey;deviceId=testdevice;"
+                + "SharedAccessKey=adjkl234j52=";
+        DeviceClient client = new DeviceClient(connString, mockTransportClient);
+
+        // act
+        client.setOption("SetHttpsBatchSize", 10);
+    }
+
+    // Tests_SRS_DEVICECLIENT_34_079: [If the client configured to use TransportClient the SetMqttMaxInFlightCount and SetMqttTelemetryQos options shall throw IllegalStateException.]
+    @Test (expected = IllegalStateException.class)
+    public void setOptionWithTransportClientThrowsSetMqttTelemetryQos()
+            throws URISyntaxException
+    {
+        // arrange
+        final String connString = "HostName=iothub.device.com;CredentialType=SharedAccessKey;deviceId=testdevice;"
+                + "SharedAccessKey=adjkl234j52=";
+        DeviceClient client = new DeviceClient(connString, mockTransportClient);
+
+        // act
+        client.setOption("SetMqttTelemetryQos", 0);
+    }
+
+    // Tests_SRS_DEVICECLIENT_34_081: [If the client configured to use TransportClient the SetAmqpsEventLoopGroup option shall throw IllegalStateException.]
+    @Test (expected = IllegalStateException.class)
+    public void setOptionWithTransportClientThrowsSetAmqpsEventLoopGroup(@Mocked final AmqpsEventLoopGroup mockAmqpsEventLoopGroup)
+            throws URISyntaxException
+    {
+        // arrange
+        final String connString = "HostName=iothub.device.com;CredentialType=SharedAccessKey;deviceId=testdevice;"
+                + "SharedAccessKey=adjkl234j52=";
+        DeviceClient client = new DeviceClient(connString, mockTransportClient);
+
+        // act
+        client.setOption("SetAmqpsEventLoopGroup", mockAmqpsEventLoopGroup);
+    }
+
     //Tests_SRS_DEVICECLIENT_34_065: [""SetSASTokenExpiryTime" if this option is called when not using sas token authentication, an IllegalStateException shall be thrown.*]
     @Test (expected = IllegalStateException.class)
     public void setOptionSASTokenExpiryTimeWhenNotUsingSasTokenAuthThrows() throws URISyntaxException
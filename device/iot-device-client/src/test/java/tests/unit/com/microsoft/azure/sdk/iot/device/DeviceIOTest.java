@@ -9,6 +9,7 @@ import com.microsoft.azure.sdk.iot.device.exceptions.TransportException;
 import com.microsoft.azure.sdk.iot.device.transport.IotHubReceiveTask;
 import com.microsoft.azure.sdk.iot.device.transport.IotHubSendTask;
 import com.microsoft.azure.sdk.iot.device.transport.IotHubTransport;
+import com.microsoft.azure.sdk.iot.device.transport.amqps.AmqpsEventLoopGroup;
 import mockit.*;
 import org.junit.Ignore;
 import org.junit.Test;
@@ -22,6 +23,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
 
 import static org.junit.Assert.*;
@@ -71,6 +73,8 @@ public class DeviceIOTest
             {
                 new IotHubTransport(mockConfig);
                 result = mockedTransport;
+                mockConfig.getAmqpsEventLoopGroup();
+                result = null;
             }
         };
 
@@ -306,7 +310,7 @@ public class DeviceIOTest
     }
 
     /* Tests_SRS_DEVICE_IO_21_012: [The open shall open the transport to communicate with an IoT Hub.] */
-    /* Tests_SRS_DEVICE_IO_21_013: [The open shall schedule send tasks to run every SEND_PERIOD_MILLIS milliseconds.] */
+    /* Tests_SRS_DEVICE_IO_34_021: [The open shall start the send task once on its own thread.] */
     /* Tests_SRS_DEVICE_IO_21_014: [The open shall schedule receive tasks to run every RECEIVE_PERIOD_MILLIS milliseconds.] */
     /* Tests_SRS_DEVICE_IO_21_016: [The open shall set the `state` as `CONNECTED`.] */
     @Test
@@ -337,9 +341,8 @@ public class DeviceIOTest
         {
             {
                 mockedTransport.open(configs);
-                mockScheduler.scheduleAtFixedRate(mockIotHubSendTask,
-                        0, SEND_PERIOD_MILLIS,
-                        TimeUnit.MILLISECONDS);
+                mockScheduler.execute(mockIotHubSendTask);
+                times = 1;
                 mockScheduler.scheduleAtFixedRate(mockIotHubReceiveTask,
                         0, RECEIVE_PERIOD_MILLIS_AMQPS,
                         TimeUnit.MILLISECONDS);
@@ -348,6 +351,80 @@ public class DeviceIOTest
         };
     }
 
+    /* Tests_SRS_DEVICE_IO_34_023: [If the config has an AmqpsEventLoopGroup, the open shall schedule the receive task on the scheduler of that group instead.] */
+    @Test
+    public void openWithEventLoopGroupSchedulesReceiveTaskOnGroup(
+            @Mocked final AmqpsEventLoopGroup mockAmqpsEventLoopGroup,
+            @Mocked final ScheduledExecutorService mockSharedScheduler) throws IOException
+    {
+        // arrange
+        new NonStrictExpectations()
+        {
+            {
+                new IotHubTransport(mockConfig);
+                result = mockedTransport;
+                new IotHubSendTask(mockedTransport);
+                result = mockIotHubSendTask;
+                new IotHubReceiveTask(mockedTransport);
+                result = mockIotHubReceiveTask;
+                mockConfig.getAmqpsEventLoopGroup();
+                result = mockAmqpsEventLoopGroup;
+                mockAmqpsEventLoopGroup.getScheduler();
+                result = mockSharedScheduler;
+                mockExecutors.newScheduledThreadPool(1);
+                result = mockScheduler;
+            }
+        };
+        final Object deviceIO = Deencapsulation.newInstance("com.microsoft.azure.sdk.iot.device.DeviceIO",
+                new Class[] {DeviceClientConfig.class, long.class, long.class},
+                mockConfig, SEND_PERIOD_MILLIS, RECEIVE_PERIOD_MILLIS_AMQPS);
+
+        // act
+        Deencapsulation.invoke(deviceIO, "open");
+
+        // assert
+        new Verifications()
+        {
+            {
+                mockScheduler.execute(mockIotHubSendTask);
+                times = 1;
+                mockSharedScheduler.scheduleAtFixedRate(mockIotHubReceiveTask, 0, RECEIVE_PERIOD_MILLIS_AMQPS, TimeUnit.MILLISECONDS);
+                times = 1;
+                mockScheduler.scheduleAtFixedRate((Runnable) any, anyLong, anyLong, (TimeUnit) any);
+                times = 0;
+            }
+        };
+    }
+
+    /* Tests_SRS_DEVICE_IO_34_024: [The close shall cancel the receive task scheduled on a shared AmqpsEventLoopGroup, without shutting the group down.] */
+    @Test
+    public void closeCancelsReceiveTaskOnGroup(
+            @Mocked final ScheduledExecutorService mockSharedScheduler,
+            @Mocked final ScheduledFuture<?> mockReceiveTaskFuture) throws IOException
+    {
+        // arrange
+        final Object deviceIO = newDeviceIO();
+        openDeviceIO(deviceIO, mockedTransport, mockExecutors, mockScheduler);
+        Deencapsulation.setField(deviceIO, "sharedReceiveTaskFuture", mockReceiveTaskFuture);
+
+        // act
+        Deencapsulation.invoke(deviceIO, "close");
+
+        // assert
+        new Verifications()
+        {
+            {
+                mockReceiveTaskFuture.cancel(false);
+                times = 1;
+                mockSharedScheduler.shutdown();
+                times = 0;
+                mockSharedScheduler.shutdownNow();
+                times = 0;
+            }
+        };
+        assertNull(Deencapsulation.getField(deviceIO, "sharedReceiveTaskFuture"));
+    }
+
     /* Tests_SRS_DEVICE_IO_21_015: [If an error occurs in opening the transport, the open shall throw an IOException.] */
     @Test (expected = IOException.class)
     public void openThrowsIOExceptionIfTransportOpenThrows() throws DeviceClientException
@@ -396,6 +473,31 @@ public class DeviceIOTest
         };
     }
 
+    /* Tests_SRS_DEVICE_IO_34_022: [The close shall stop the send task.] */
+    @Test
+    public void closeStopsSendTask()
+            throws URISyntaxException, IOException
+    {
+        // arrange
+        final Object deviceIO = newDeviceIO();
+        openDeviceIO(deviceIO, mockedTransport, mockExecutors, mockScheduler);
+        Deencapsulation.setField(deviceIO, "sendTask", mockIotHubSendTask);
+
+        // act
+        Deencapsulation.invoke(deviceIO, "close");
+
+        // assert
+        new VerificationsInOrder()
+        {
+            {
+                mockIotHubSendTask.stop();
+                times = 1;
+                mockScheduler.shutdown();
+                times = 1;
+            }
+        };
+    }
+
     /* Tests_SRS_DEVICE_IO_21_019: [The close shall close the transport.] */
     @Test
     public void closeClosesTransportSuccess() throws IOException, DeviceClientException
@@ -653,6 +755,48 @@ public class DeviceIOTest
         assertEquals(20L, Deencapsulation.getField(deviceIO, "receivePeriodInMilliseconds"));
     }
 
+    /* Tests_SRS_DEVICE_IO_34_025: [If the receive task runs on a shared AmqpsEventLoopGroup, the setReceivePeriodInMilliseconds shall cancel it and schedule it again on that group with the new value.] */
+    @Test
+    public void setReceivePeriodInMillisecondsReschedulesReceiveTaskOnGroup(
+            @Mocked final AmqpsEventLoopGroup mockAmqpsEventLoopGroup,
+            @Mocked final ScheduledExecutorService mockSharedScheduler,
+            @Mocked final ScheduledFuture<?> mockReceiveTaskFuture) throws IOException
+    {
+        // arrange
+        final long interval = 1234L;
+        new NonStrictExpectations()
+        {
+            {
+                new IotHubTransport(mockConfig);
+                result = mockedTransport;
+                mockConfig.getAmqpsEventLoopGroup();
+                result = mockAmqpsEventLoopGroup;
+                mockAmqpsEventLoopGroup.getScheduler();
+                result = mockSharedScheduler;
+            }
+        };
+        final Object deviceIO = Deencapsulation.newInstance("com.microsoft.azure.sdk.iot.device.DeviceIO",
+                new Class[] {DeviceClientConfig.class, long.class, long.class},
+                mockConfig, SEND_PERIOD_MILLIS, RECEIVE_PERIOD_MILLIS_AMQPS);
+        Deencapsulation.setField(deviceIO, "taskScheduler", mockScheduler);
+        Deencapsulation.setField(deviceIO, "receiveTask", mockIotHubReceiveTask);
+        Deencapsulation.setField(deviceIO, "sharedReceiveTaskFuture", mockReceiveTaskFuture);
+
+        // act
+        Deencapsulation.invoke(deviceIO, "setReceivePeriodInMilliseconds", interval);
+
+        // assert
+        new VerificationsInOrder()
+        {
+            {
+                mockReceiveTaskFuture.cancel(false);
+                times = 1;
+                mockSharedScheduler.scheduleAtFixedRate(mockIotHubReceiveTask, 0, interval, TimeUnit.MILLISECONDS);
+                times = 1;
+            }
+        };
+    }
+
      /* Tests_SRS_DEVICE_IO_21_028: [If the task scheduler already exists, the setReceivePeriodInMilliseconds shall change the `scheduleAtFixedRate` for the receiveTask to the new value.] */
     @Test
     public void setReceivePeriodInMillisecondsTransportOpenedSuccess()
@@ -770,9 +914,9 @@ public class DeviceIOTest
         assertEquals(20L, Deencapsulation.getField(deviceIO, "sendPeriodInMilliseconds"));
     }
 
-    /* Tests_SRS_DEVICE_IO_21_034: [If the task scheduler already exists, the setSendPeriodInMilliseconds shall change the `scheduleAtFixedRate` for the sendTask to the new value.] */
+    /* Tests_SRS_DEVICE_IO_21_033: [The setSendPeriodInMilliseconds shall store the new send period in milliseconds.] */
     @Test
-    public void setSendPeriodInMillisecondsTransportOpenedSuccess()
+    public void setSendPeriodInMillisecondsTransportOpenedDoesNotRescheduleSendTask()
             throws URISyntaxException, IOException, InterruptedException
     {
         // arrange
@@ -802,20 +946,18 @@ public class DeviceIOTest
         new Verifications()
         {
             {
-                mockScheduler.scheduleAtFixedRate(mockIotHubSendTask,
-                        0, lastInterval,
-                        TimeUnit.MILLISECONDS);
+                mockScheduler.execute(mockIotHubSendTask);
                 times = 1;
                 mockScheduler.scheduleAtFixedRate(mockIotHubSendTask,
-                        0, interval,
+                        anyLong, anyLong,
                         TimeUnit.MILLISECONDS);
-                times = 1;
+                times = 0;
             }
         };
         assertEquals(interval, Deencapsulation.getField(deviceIO, "sendPeriodInMilliseconds"));
     }
 
-    /* Tests_SRS_DEVICE_IO_21_035: [If the `sendTask` is null, the setSendPeriodInMilliseconds shall throw IOException.] */
+    /* Tests_SRS_DEVICE_IO_21_035: [If the task scheduler already exists and the `sendTask` is null, the setSendPeriodInMilliseconds shall throw IOException.] */
     @Test (expected = IOException.class)
     public void setSendPeriodInMillisecondsNullSendTaskThrows()
             throws URISyntaxException, IOException, InterruptedException
@@ -10,8 +10,10 @@ import com.microsoft.azure.sdk.iot.device.DeviceTwin.*;
 import com.microsoft.azure.sdk.iot.device.auth.IotHubAuthenticationProvider;
 import com.microsoft.azure.sdk.iot.device.auth.IotHubSasTokenAuthenticationProvider;
 import com.microsoft.azure.sdk.iot.device.fileupload.FileUpload;
+import com.microsoft.azure.sdk.iot.device.hsm.IotHubSasTokenHsmAuthenticationProvider;
 import com.microsoft.azure.sdk.iot.device.transport.ExponentialBackoffWithJitter;
 import com.microsoft.azure.sdk.iot.device.transport.RetryPolicy;
+import com.microsoft.azure.sdk.iot.device.transport.amqps.AmqpsEventLoopGroup;
 import com.microsoft.azure.sdk.iot.provisioning.security.SecurityProvider;
 import com.microsoft.azure.sdk.iot.provisioning.security.exceptions.SecurityProviderException;
 import mockit.*;
@@ -70,6 +72,9 @@ public class InternalClientTest
     @Mocked
     ProductInfo mockedProductInfo;
 
+    @Mocked
+    AmqpsEventLoopGroup mockAmqpsEventLoopGroup;
+
     private static long SEND_PERIOD_MILLIS = 10L;
     private static long RECEIVE_PERIOD_MILLIS_AMQPS = 10L;
     private static long RECEIVE_PERIOD_MILLIS_HTTPS = 25*60*1000; /*25 minutes*/
@@ -401,6 +406,126 @@ public class InternalClientTest
         };
     }
 
+    /* Tests_SRS_INTERNALCLIENT_34_103: [The close shall release the ssl context of the client to the shared cache.] */
+    @Test
+    public void closeReleasesSSLContext() throws IOException, URISyntaxException
+    {
+        //arrange
+        final IotHubClientProtocol protocol = IotHubClientProtocol.AMQPS;
+        new NonStrictExpectations()
+        {
+            {
+                mockConfig.getAuthenticationProvider();
+                result = mockIotHubAuthenticationProvider;
+            }
+        };
+        InternalClient client = Deencapsulation.newInstance(InternalClient.class, new Class[] {IotHubConnectionString.class, IotHubClientProtocol.class, long.class, long.class}, mockIotHubConnectionString, protocol, SEND_PERIOD, RECEIVE_PERIOD);
+        Deencapsulation.invoke(client, "open");
+
+        // act
+        Deencapsulation.invoke(client, "close");
+
+        // assert
+        new Verifications()
+        {
+            {
+                mockDeviceIO.close();
+                times = 1;
+                mockIotHubAuthenticationProvider.releaseSSLContext();
+                times = 1;
+            }
+        };
+    }
+
+    /* Tests_SRS_INTERNALCLIENT_34_104: [The closeNow shall release the ssl context of the client to the shared cache.] */
+    @Test
+    public void closeNowReleasesSSLContext() throws IOException, URISyntaxException
+    {
+        //arrange
+        final IotHubClientProtocol protocol = IotHubClientProtocol.AMQPS;
+        new NonStrictExpectations()
+        {
+            {
+                mockConfig.getAuthenticationProvider();
+                result = mockIotHubAuthenticationProvider;
+            }
+        };
+        InternalClient client = Deencapsulation.newInstance(InternalClient.class, new Class[] {IotHubConnectionString.class, IotHubClientProtocol.class, long.class, long.class}, mockIotHubConnectionString, protocol, SEND_PERIOD, RECEIVE_PERIOD);
+        Deencapsulation.invoke(client, "open");
+
+        // act
+        Deencapsulation.invoke(client, "closeNow");
+
+        // assert
+        new Verifications()
+        {
+            {
+                mockDeviceIO.close();
+                times = 1;
+                mockIotHubAuthenticationProvider.releaseSSLContext();
+                times = 1;
+            }
+        };
+    }
+
+    /* Tests_SRS_INTERNALCLIENT_34_105: [If the client authenticates with an HSM, the close shall stop the renewals of its sas token ahead of expiry.] */
+    @Test
+    public void closeStopsHsmSasTokenRenewal(final @Mocked IotHubSasTokenHsmAuthenticationProvider mockHsmAuthenticationProvider) throws IOException, URISyntaxException
+    {
+        //arrange
+        final IotHubClientProtocol protocol = IotHubClientProtocol.MQTT;
+        new NonStrictExpectations()
+        {
+            {
+                mockConfig.getAuthenticationProvider();
+                result = mockHsmAuthenticationProvider;
+            }
+        };
+        InternalClient client = Deencapsulation.newInstance(InternalClient.class, new Class[] {IotHubConnectionString.class, IotHubClientProtocol.class, long.class, long.class}, mockIotHubConnectionString, protocol, SEND_PERIOD, RECEIVE_PERIOD);
+        Deencapsulation.invoke(client, "open");
+
+        // act
+        Deencapsulation.invoke(client, "close");
+
+        // assert
+        new Verifications()
+        {
+            {
+                mockHsmAuthenticationProvider.stopRenewal();
+                times = 1;
+            }
+        };
+    }
+
+    /* Tests_SRS_INTERNALCLIENT_34_106: [If the client authenticates with an HSM, the closeNow shall stop the renewals of its sas token ahead of expiry.] */
+    @Test
+    public void closeNowStopsHsmSasTokenRenewal(final @Mocked IotHubSasTokenHsmAuthenticationProvider mockHsmAuthenticationProvider) throws IOException, URISyntaxException
+    {
+        //arrange
+        final IotHubClientProtocol protocol = IotHubClientProtocol.MQTT;
+        new NonStrictExpectations()
+        {
+            {
+                mockConfig.getAuthenticationProvider();
+                result = mockHsmAuthenticationProvider;
+            }
+        };
+        InternalClient client = Deencapsulation.newInstance(InternalClient.class, new Class[] {IotHubConnectionString.class, IotHubClientProtocol.class, long.class, long.class}, mockIotHubConnectionString, protocol, SEND_PERIOD, RECEIVE_PERIOD);
+        Deencapsulation.invoke(client, "open");
+
+        // act
+        Deencapsulation.invoke(client, "closeNow");
+
+        // assert
+        new Verifications()
+        {
+            {
+                mockHsmAuthenticationProvider.stopRenewal();
+                times = 1;
+            }
+        };
+    }
+
     /* Tests_SRS_INTERNALCLIENT_21_009: [If the closing a connection via deviceIO is not successful, the closeNow shall throw IOException.] */
     @Test
     public void closeNowBadCloseTransportThrows() throws IOException, URISyntaxException
@@ -1990,6 +2115,391 @@ public class InternalClientTest
         };
     }
 
+    // Tests_SRS_INTERNALCLIENT_34_090: ["SetHttpsBatchSize" shall save the batch size in the config.]
+    @Test
+    public void setOptionHttpsBatchSizeSucceeds()
+            throws IOException, URISyntaxException
+    {
+        // arrange
+        final IotHubClientProtocol protocol = IotHubClientProtocol.HTTPS;
+        new NonStrictExpectations()
+        {
+            {
+                mockDeviceIO.getProtocol();
+                result = IotHubClientProtocol.HTTPS;
+            }
+        };
+        InternalClient client = Deencapsulation.newInstance(InternalClient.class, new Class[] {IotHubConnectionString.class, IotHubClientProtocol.class, long.class, long.class}, mockIotHubConnectionString, protocol, SEND_PERIOD, RECEIVE_PERIOD);
+
+        // act
+        client.setOption("SetHttpsBatchSize", 25);
+
+        // assert
+        new Verifications()
+        {
+            {
+                Deencapsulation.invoke(mockConfig, "setHttpsBatchSize", new Class[] {int.class}, 25);
+                times = 1;
+            }
+        };
+    }
+
+    // Tests_SRS_INTERNALCLIENT_34_089: ["SetHttpsBatchSize" needs to have value type int.]
+    @Test (expected = IllegalArgumentException.class)
+    public void setOptionHttpsBatchSizeWithLongInsteadOfIntFails()
+            throws IOException, URISyntaxException
+    {
+        // arrange
+        final IotHubClientProtocol protocol = IotHubClientProtocol.HTTPS;
+        new NonStrictExpectations()
+        {
+            {
+                mockDeviceIO.getProtocol();
+                result = IotHubClientProtocol.HTTPS;
+            }
+        };
+        InternalClient client = Deencapsulation.newInstance(InternalClient.class, new Class[] {IotHubConnectionString.class, IotHubClientProtocol.class, long.class, long.class}, mockIotHubConnectionString, protocol, SEND_PERIOD, RECEIVE_PERIOD);
+
+        // act
+        client.setOption("SetHttpsBatchSize", 25L);
+    }
+
+    // Tests_SRS_INTERNALCLIENT_34_088: [If the option is SET_HTTPS_BATCH_SIZE or SET_HTTPS_BATCH_LINGER_TIME, and the saved protocol is not HTTPS, this function shall throw an IllegalArgumentException.]
+    @Test (expected = IllegalArgumentException.class)
+    public void setOptionHttpsBatchSizeWithAMQPFails()
+            throws IOException, URISyntaxException
+    {
+        // arrange
+        final IotHubClientProtocol protocol = IotHubClientProtocol.AMQPS;
+        new NonStrictExpectations()
+        {
+            {
+                mockDeviceIO.getProtocol();
+                result = IotHubClientProtocol.AMQPS;
+            }
+        };
+        InternalClient client = Deencapsulation.newInstance(InternalClient.class, new Class[] {IotHubConnectionString.class, IotHubClientProtocol.class, long.class, long.class}, mockIotHubConnectionString, protocol, SEND_PERIOD, RECEIVE_PERIOD);
+
+        // act
+        client.setOption("SetHttpsBatchSize", 25);
+    }
+
+    // Tests_SRS_INTERNALCLIENT_34_096: ["SetMqttMaxInFlightCount" shall save the count in the config.]
+    @Test
+    public void setOptionMqttMaxInFlightCountSucceeds()
+            throws IOException, URISyntaxException
+    {
+        // arrange
+        final IotHubClientProtocol protocol = IotHubClientProtocol.MQTT;
+        new NonStrictExpectations()
+        {
+            {
+                mockDeviceIO.getProtocol();
+                result = IotHubClientProtocol.MQTT;
+                mockDeviceIO.isOpen();
+                result = false;
+            }
+        };
+        InternalClient client = Deencapsulation.newInstance(InternalClient.class, new Class[] {IotHubConnectionString.class, IotHubClientProtocol.class, long.class, long.class}, mockIotHubConnectionString, protocol, SEND_PERIOD, RECEIVE_PERIOD);
+
+        // act
+        client.setOption("SetMqttMaxInFlightCount", 100);
+
+        // assert
+        new Verifications()
+        {
+            {
+                Deencapsulation.invoke(mockConfig, "setMqttMaxInFlightCount", new Class[] {int.class}, 100);
+                times = 1;
+            }
+        };
+    }
+
+    // Tests_SRS_INTERNALCLIENT_34_095: ["SetMqttMaxInFlightCount" needs to have value type int.]
+    @Test (expected = IllegalArgumentException.class)
+    public void setOptionMqttMaxInFlightCountWithLongInsteadOfIntFails()
+            throws IOException, URISyntaxException
+    {
+        // arrange
+        final IotHubClientProtocol protocol = IotHubClientProtocol.MQTT;
+        new NonStrictExpectations()
+        {
+            {
+                mockDeviceIO.getProtocol();
+                result = IotHubClientProtocol.MQTT;
+                mockDeviceIO.isOpen();
+                result = false;
+            }
+        };
+        InternalClient client = Deencapsulation.newInstance(InternalClient.class, new Class[] {IotHubConnectionString.class, IotHubClientProtocol.class, long.class, long.class}, mockIotHubConnectionString, protocol, SEND_PERIOD, RECEIVE_PERIOD);
+
+        // act
+        client.setOption("SetMqttMaxInFlightCount", 100L);
+    }
+
+    // Tests_SRS_INTERNALCLIENT_34_093: [If the option is SET_MQTT_MAX_IN_FLIGHT_COUNT or SET_MQTT_TELEMETRY_QOS, and the saved protocol is not MQTT or MQTT_WS, this function shall throw an IllegalArgumentException.]
+    @Test (expected = IllegalArgumentException.class)
+    public void setOptionMqttMaxInFlightCountWithAMQPFails()
+            throws IOException, URISyntaxException
+    {
+        // arrange
+        final IotHubClientProtocol protocol = IotHubClientProtocol.AMQPS;
+        new NonStrictExpectations()
+        {
+            {
+                mockDeviceIO.getProtocol();
+                result = IotHubClientProtocol.AMQPS;
+                mockDeviceIO.isOpen();
+                result = false;
+            }
+        };
+        InternalClient client = Deencapsulation.newInstance(InternalClient.class, new Class[] {IotHubConnectionString.class, IotHubClientProtocol.class, long.class, long.class}, mockIotHubConnectionString, protocol, SEND_PERIOD, RECEIVE_PERIOD);
+
+        // act
+        client.setOption("SetMqttMaxInFlightCount", 100);
+    }
+
+    // Tests_SRS_INTERNALCLIENT_34_094: [If the option is SET_MQTT_MAX_IN_FLIGHT_COUNT or SET_MQTT_TELEMETRY_QOS, and the client is open, this function shall throw an IllegalStateException.]
+    @Test (expected = IllegalStateException.class)
+    public void setOptionMqttMaxInFlightCountWhileOpenFails()
+            throws IOException, URISyntaxException
+    {
+        // arrange
+        final IotHubClientProtocol protocol = IotHubClientProtocol.MQTT;
+        new NonStrictExpectations()
+        {
+            {
+                mockDeviceIO.getProtocol();
+                result = IotHubClientProtocol.MQTT;
+                mockDeviceIO.isOpen();
+                result = true;
+            }
+        };
+        InternalClient client = Deencapsulation.newInstance(InternalClient.class, new Class[] {IotHubConnectionString.class, IotHubClientProtocol.class, long.class, long.class}, mockIotHubConnectionString, protocol, SEND_PERIOD, RECEIVE_PERIOD);
+
+        // act
+        client.setOption("SetMqttMaxInFlightCount", 100);
+    }
+
+    // Tests_SRS_INTERNALCLIENT_34_098: ["SetMqttTelemetryQos" shall save the qos in the config.]
+    @Test
+    public void setOptionMqttTelemetryQosSucceeds()
+            throws IOException, URISyntaxException
+    {
+        // arrange
+        final IotHubClientProtocol protocol = IotHubClientProtocol.MQTT_WS;
+        new NonStrictExpectations()
+        {
+            {
+                mockDeviceIO.getProtocol();
+                result = IotHubClientProtocol.MQTT_WS;
+                mockDeviceIO.isOpen();
+                result = false;
+            }
+        };
+        InternalClient client = Deencapsulation.newInstance(InternalClient.class, new Class[] {IotHubConnectionString.class, IotHubClientProtocol.class, long.class, long.class}, mockIotHubConnectionString, protocol, SEND_PERIOD, RECEIVE_PERIOD);
+
+        // act
+        client.setOption("SetMqttTelemetryQos", 0);
+
+        // assert
+        new Verifications()
+        {
+            {
+                Deencapsulation.invoke(mockConfig, "setMqttTelemetryQos", new Class[] {int.class}, 0);
+                times = 1;
+            }
+        };
+    }
+
+    // Tests_SRS_INTERNALCLIENT_34_097: ["SetMqttTelemetryQos" needs to have value type int.]
+    @Test (expected = IllegalArgumentException.class)
+    public void setOptionMqttTelemetryQosWithStringInsteadOfIntFails()
+            throws IOException, URISyntaxException
+    {
+        // arrange
+        final IotHubClientProtocol protocol = IotHubClientProtocol.MQTT;
+        new NonStrictExpectations()
+        {
+            {
+                mockDeviceIO.getProtocol();
+                result = IotHubClientProtocol.MQTT;
+                mockDeviceIO.isOpen();
+                result = false;
+            }
+        };
+        InternalClient client = Deencapsulation.newInstance(InternalClient.class, new Class[] {IotHubConnectionString.class, IotHubClientProtocol.class, long.class, long.class}, mockIotHubConnectionString, protocol, SEND_PERIOD, RECEIVE_PERIOD);
+
+        // act
+        client.setOption("SetMqttTelemetryQos", "thisIsNotAnInt");
+    }
+
+    // Tests_SRS_INTERNALCLIENT_34_102: ["SetAmqpsEventLoopGroup" shall save the event loop group in the config.]
+    @Test
+    public void setOptionAmqpsEventLoopGroupSucceeds()
+            throws IOException, URISyntaxException
+    {
+        // arrange
+        final IotHubClientProtocol protocol = IotHubClientProtocol.AMQPS;
+        new NonStrictExpectations()
+        {
+            {
+                mockDeviceIO.getProtocol();
+                result = IotHubClientProtocol.AMQPS;
+                mockDeviceIO.isOpen();
+                result = false;
+            }
+        };
+        InternalClient client = Deencapsulation.newInstance(InternalClient.class, new Class[] {IotHubConnectionString.class, IotHubClientProtocol.class, long.class, long.class}, mockIotHubConnectionString, protocol, SEND_PERIOD, RECEIVE_PERIOD);
+
+        // act
+        client.setOption("SetAmqpsEventLoopGroup", mockAmqpsEventLoopGroup);
+
+        // assert
+        new Verifications()
+        {
+            {
+                Deencapsulation.invoke(mockConfig, "setAmqpsEventLoopGroup", mockAmqpsEventLoopGroup);
+                times = 1;
+            }
+        };
+    }
+
+    // Tests_SRS_INTERNALCLIENT_34_101: ["SetAmqpsEventLoopGroup" needs to have value type AmqpsEventLoopGroup.]
+    @Test (expected = IllegalArgumentException.class)
+    public void setOptionAmqpsEventLoopGroupWithWrongTypeFails()
+            throws IOException, URISyntaxException
+    {
+        // arrange
+        final IotHubClientProtocol protocol = IotHubClientProtocol.AMQPS_WS;
+        new NonStrictExpectations()
+        {
+            {
+                mockDeviceIO.getProtocol();
+                result = IotHubClientProtocol.AMQPS_WS;
+                mockDeviceIO.isOpen();
+                result = false;
+            }
+        };
+        InternalClient client = Deencapsulation.newInstance(InternalClient.class, new Class[] {IotHubConnectionString.class, IotHubClientProtocol.class, long.class, long.class}, mockIotHubConnectionString, protocol, SEND_PERIOD, RECEIVE_PERIOD);
+
+        // act
+        client.setOption("SetAmqpsEventLoopGroup", 4);
+    }
+
+    // Tests_SRS_INTERNALCLIENT_34_099: [If the option is SET_AMQPS_EVENT_LOOP_GROUP, and the saved protocol is not AMQPS or AMQPS_WS, this function shall throw an IllegalArgumentException.]
+    @Test (expected = IllegalArgumentException.class)
+    public void setOptionAmqpsEventLoopGroupWithMQTTFails()
+            throws IOException, URISyntaxException
+    {
+        // arrange
+        final IotHubClientProtocol protocol = IotHubClientProtocol.MQTT;
+        new NonStrictExpectations()
+        {
+            {
+                mockDeviceIO.getProtocol();
+                result = IotHubClientProtocol.MQTT;
+                mockDeviceIO.isOpen();
+                result = false;
+            }
+        };
+        InternalClient client = Deencapsulation.newInstance(InternalClient.class, new Class[] {IotHubConnectionString.class, IotHubClientProtocol.class, long.class, long.class}, mockIotHubConnectionString, protocol, SEND_PERIOD, RECEIVE_PERIOD);
+
+        // act
+        client.setOption("SetAmqpsEventLoopGroup", mockAmqpsEventLoopGroup);
+    }
+
+    // Tests_SRS_INTERNALCLIENT_34_100: [If the option is SET_AMQPS_EVENT_LOOP_GROUP, and the client is open, this function shall throw an IllegalStateException.]
+    @Test (expected = IllegalStateException.class)
+    public void setOptionAmqpsEventLoopGroupWhileOpenFails()
+            throws IOException, URISyntaxException
+    {
+        // arrange
+        final IotHubClientProtocol protocol = IotHubClientProtocol.AMQPS;
+        new NonStrictExpectations()
+        {
+            {
+                mockDeviceIO.getProtocol();
+                result = IotHubClientProtocol.AMQPS;
+                mockDeviceIO.isOpen();
+                result = true;
+            }
+        };
+        InternalClient client = Deencapsulation.newInstance(InternalClient.class, new Class[] {IotHubConnectionString.class, IotHubClientProtocol.class, long.class, long.class}, mockIotHubConnectionString, protocol, SEND_PERIOD, RECEIVE_PERIOD);
+
+        // act
+        client.setOption("SetAmqpsEventLoopGroup", mockAmqpsEventLoopGroup);
+    }
+
+    // Tests_SRS_INTERNALCLIENT_34_092: ["SetHttpsBatchLingerTime" shall save the linger time in the config.]
+    @Test
+    public void setOptionHttpsBatchLingerTimeSucceeds()
+            throws IOException, URISyntaxException
+    {
+        // arrange
+        final IotHubClientProtocol protocol = IotHubClientProtocol.HTTPS;
+        new NonStrictExpectations()
+        {
+            {
+                mockDeviceIO.getProtocol();
+                result = IotHubClientProtocol.HTTPS;
+            }
+        };
+        InternalClient client = Deencapsulation.newInstance(InternalClient.class, new Class[] {IotHubConnectionString.class, IotHubClientProtocol.class, long.class, long.class}, mockIotHubConnectionString, protocol, SEND_PERIOD, RECEIVE_PERIOD);
+
+        // act
+        client.setOption("SetHttpsBatchLingerTime", 50L);
+
+        // assert
+        new Verifications()
+        {
+            {
+                Deencapsulation.invoke(mockConfig, "setHttpsBatchLingerMillis", new Class[] {long.class}, 50L);
+                times = 1;
+            }
+        };
+    }
+
+    // Tests_SRS_INTERNALCLIENT_34_091: ["SetHttpsBatchLingerTime" needs to have value type long.]
+    @Test (expected = IllegalArgumentException.class)
+    public void setOptionHttpsBatchLingerTimeWithStringInsteadOfLongFails()
+            throws IOException, URISyntaxException
+    {
+        // arrange
+        final IotHubClientProtocol protocol = IotHubClientProtocol.HTTPS;
+        new NonStrictExpectations()
+        {
+            {
+                mockDeviceIO.getProtocol();
+                result = IotHubClientProtocol.HTTPS;
+            }
+        };
+        InternalClient client = Deencapsulation.newInstance(InternalClient.class, new Class[] {IotHubConnectionString.class, IotHubClientProtocol.class, long.class, long.class}, mockIotHubConnectionString, protocol, SEND_PERIOD, RECEIVE_PERIOD);
+
+        // act
+        client.setOption("SetHttpsBatchLingerTime", "thisIsNotALong");
+    }
+
+    // Tests_SRS_INTERNALCLIENT_34_088: [If the option is SET_HTTPS_BATCH_SIZE or SET_HTTPS_BATCH_LINGER_TIME, and the saved protocol is not HTTPS, this function shall throw an IllegalArgumentException.]
+    @Test (expected = IllegalArgumentException.class)
+    public void setOptionHttpsBatchLingerTimeWithMQTTFails()
+            throws IOException, URISyntaxException
+    {
+        // arrange
+        final IotHubClientProtocol protocol = IotHubClientProtocol.MQTT;
+        new NonStrictExpectations()
+        {
+            {
+                mockDeviceIO.getProtocol();
+                result = IotHubClientProtocol.MQTT;
+            }
+        };
+        InternalClient client = Deencapsulation.newInstance(InternalClient.class, new Class[] {IotHubConnectionString.class, IotHubClientProtocol.class, long.class, long.class}, mockIotHubConnectionString, protocol, SEND_PERIOD, RECEIVE_PERIOD);
+
+        // act
+        client.setOption("SetHttpsBatchLingerTime", 50L);
+    }
+
     @Test (expected = IllegalArgumentException.class)
     public void setOptionSendIntervalWithStringInsteadOfLongFails()
             throws IOException, URISyntaxException
@@ -5,6 +5,7 @@ package tests.unit.com.microsoft.azure.sdk.iot.device;
 
 import com.microsoft.azure.sdk.iot.device.IotHubConnectionString;
 import com.microsoft.azure.sdk.iot.device.Message;
+import com.microsoft.azure.sdk.iot.device.MessageBodyAccessor;
 import com.microsoft.azure.sdk.iot.device.MessageProperty;
 import com.microsoft.azure.sdk.iot.device.MessageType;
 import mockit.Deencapsulation;
@@ -12,6 +13,12 @@ import mockit.Mocked;
 import mockit.NonStrictExpectations;
 import org.junit.Test;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ReadOnlyBufferException;
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
 
@@ -51,6 +58,301 @@ public class MessageTest
         new Message(body);
     }
 
+    // Tests_SRS_MESSAGE_34_063: [If the message body is null, the constructor shall throw an IllegalArgumentException.]
+    @Test(expected = IllegalArgumentException.class)
+    public void constructorRejectsNullBodyBuffer()
+    {
+        final ByteBuffer body = null;
+
+        new Message(body);
+    }
+
+    // Tests_SRS_MESSAGE_34_064: [If the buffer is backed by an accessible array, the constructor shall save the remaining content of the buffer without copying it.]
+    // Tests_SRS_MESSAGE_34_067: [The function shall return a read only buffer over the message body that does not copy it.]
+    @Test
+    public void constructorSavesRemainingContentOfBufferWithoutCopyingIt()
+    {
+        //arrange
+        final byte[] pooled = { 1, 2, 3, 4, 5, 6 };
+        ByteBuffer buffer = ByteBuffer.wrap(pooled);
+        buffer.position(1);
+        buffer.limit(4);
+
+        //act
+        Message msg = new Message(buffer);
+        pooled[2] = 9;
+
+        //assert
+        assertThat(msg.getBytes(), is(new byte[] { 2, 9, 4 }));
+        assertEquals(1, buffer.position());
+        ByteBuffer bodyBuffer = msg.getBodyBuffer();
+        assertTrue(bodyBuffer.isReadOnly());
+        assertEquals(0, bodyBuffer.position());
+        assertEquals(3, bodyBuffer.remaining());
+        assertEquals(9, bodyBuffer.get(1));
+    }
+
+    // Tests_SRS_MESSAGE_34_065: [If the buffer is direct or read only, the constructor shall save a copy of the remaining content of the buffer.]
+    @Test
+    public void constructorCopiesDirectBuffer()
+    {
+        //arrange
+        ByteBuffer buffer = ByteBuffer.allocateDirect(3);
+        buffer.put(new byte[] { 1, 2, 3 });
+        buffer.flip();
+
+        //act
+        Message msg = new Message(buffer);
+        buffer.put(0, (byte) 9);
+
+        //assert
+        assertThat(MessageBodyAccessor.getBodyArray(msg), is(new byte[] { 1, 2, 3 }));
+        assertEquals(0, buffer.position());
+    }
+
+    // Tests_SRS_MESSAGE_34_067: [The function shall return a read only buffer over the message body that does not copy it.]
+    @Test(expected = ReadOnlyBufferException.class)
+    public void getBodyBufferRejectsWrites()
+    {
+        Message msg = new Message(new byte[] { 1, 2, 3 });
+
+        msg.getBodyBuffer().put(0, (byte) 9);
+    }
+
+    // Tests_SRS_MESSAGE_34_066: [If the message has no body, the function shall return null.]
+    // Tests_SRS_MESSAGE_34_068: [If the message has no body, the function shall return null.]
+    @Test
+    public void getBodyBufferAndGetBodyArrayReturnNullWithoutBody()
+    {
+        Message msg = new Message();
+
+        assertNull(msg.getBodyBuffer());
+        assertNull(MessageBodyAccessor.getBodyArray(msg));
+    }
+
+    // Tests_SRS_MESSAGE_34_069: [If the body spans the whole array that holds it, the function shall return that array without copying it.]
+    @Test
+    public void getBodyArrayReturnsWholeBodyWithoutCopyingIt()
+    {
+        final byte[] body = { 1, 2, 3 };
+
+        Message msg = new Message(body);
+
+        assertSame(body, MessageBodyAccessor.getBodyArray(msg));
+        assertSame(body, MessageBodyAccessor.getBodyArray(new Message(ByteBuffer.wrap(body))));
+    }
+
+    // Tests_SRS_MESSAGE_34_070: [If the body is a part of a larger array, the function shall return a copy of that part, made by the first call and returned by the later ones.]
+    @Test
+    public void getBodyArrayCopiesPartOfLargerArray()
+    {
+        final byte[] pooled = { 1, 2, 3, 4 };
+
+        Message msg = new Message(ByteBuffer.wrap(pooled, 1, 2));
+        byte[] bodyArray = MessageBodyAccessor.getBodyArray(msg);
+        pooled[1] = 9;
+
+        assertThat(bodyArray, is(new byte[] { 2, 3 }));
+        assertSame(bodyArray, MessageBodyAccessor.getBodyArray(msg));
+    }
+
+    // Tests_SRS_MESSAGE_34_070: [If the body is a part of a larger array, the function shall return a copy of that part, made by the first call and returned by the later ones.]
+    @Test
+    public void getBodyArrayLeavesBodyViewUnchanged()
+    {
+        final byte[] pooled = { 1, 2, 3, 4 };
+
+        Message msg = new Message(ByteBuffer.wrap(pooled, 1, 2));
+        MessageBodyAccessor.getBodyArray(msg);
+
+        assertSame(pooled, Deencapsulation.getField(msg, "body"));
+        assertEquals(1, (int) Deencapsulation.getField(msg, "bodyOffset"));
+        assertThat(msg.getBytes(), is(new byte[] { 2, 3 }));
+        assertEquals(ByteBuffer.wrap(new byte[] { 2, 3 }), msg.getBodyBuffer());
+    }
+
+    // Tests_SRS_MESSAGE_34_087: [The function shall return the array that holds the body without copying it, or null if the message has no body.]
+    // Tests_SRS_MESSAGE_34_088: [The function shall return the index of the first byte of the body in the array that holds it.]
+    @Test
+    public void getBodyBackingArrayAndOffsetShareLargerArray()
+    {
+        final byte[] pooled = { 1, 2, 3, 4 };
+
+        Message msg = new Message(ByteBuffer.wrap(pooled, 1, 2));
+
+        assertSame(pooled, MessageBodyAccessor.getBodyBackingArray(msg));
+        assertEquals(1, MessageBodyAccessor.getBodyOffset(msg));
+        assertEquals(2, msg.getBodyLength());
+        assertNull(Deencapsulation.getField(msg, "bodyArray"));
+    }
+
+    // Tests_SRS_MESSAGE_34_087: [The function shall return the array that holds the body without copying it, or null if the message has no body.]
+    @Test
+    public void getBodyBackingArrayReturnsNullWithoutBody()
+    {
+        Message msg = new Message();
+
+        assertNull(MessageBodyAccessor.getBodyBackingArray(msg));
+        assertEquals(0, MessageBodyAccessor.getBodyOffset(msg));
+    }
+
+    // Tests_SRS_MESSAGE_34_089: [If the stream is null, the constructor shall throw an IllegalArgumentException.]
+    @Test(expected = IllegalArgumentException.class)
+    public void constructorRejectsNullByteArrayInputStream()
+    {
+        new Message((ByteArrayInputStream) null);
+    }
+
+    // Tests_SRS_MESSAGE_34_090: [The constructor shall save the stream as the body stream, with its available bytes as the body length, without reading it.]
+    @Test
+    public void constructorUsesByteArrayInputStreamAsBody()
+    {
+        //arrange
+        ByteArrayInputStream stream = new ByteArrayInputStream(new byte[] { 1, 2, 3 });
+
+        //act
+        Message msg = new Message(stream);
+
+        //assert
+        assertTrue(msg.hasBodyStream());
+        assertEquals(3, msg.getBodyLength());
+        assertEquals(3, stream.available());
+        assertThat(msg.getBytes(), is(new byte[] { 1, 2, 3 }));
+    }
+
+    // Tests_SRS_MESSAGE_34_071: [If the body stream is null, the constructor shall throw an IllegalArgumentException.]
+    @Test(expected = IllegalArgumentException.class)
+    public void constructorRejectsNullBodyStream()
+    {
+        new Message(null, 3);
+    }
+
+    // Tests_SRS_MESSAGE_34_072: [If the body length is negative, the constructor shall throw an IllegalArgumentException.]
+    @Test(expected = IllegalArgumentException.class)
+    public void constructorRejectsNegativeBodyLength()
+    {
+        new Message(new ByteArrayInputStream(new byte[0]), -1);
+    }
+
+    // Tests_SRS_MESSAGE_34_073: [The constructor shall save the body stream and length without reading the stream.]
+    // Tests_SRS_MESSAGE_34_074: [The function shall return true if the body is a stream that was not read into memory, and false otherwise.]
+    // Tests_SRS_MESSAGE_34_075: [The function shall return the number of bytes of the body.]
+    @Test
+    public void constructorSavesBodyStreamWithoutReadingIt()
+    {
+        //arrange
+        ByteArrayInputStream stream = new ByteArrayInputStream(new byte[] { 1, 2, 3 });
+
+        //act
+        Message msg = new Message(stream, 3);
+
+        //assert
+        assertTrue(msg.hasBodyStream());
+        assertEquals(3, msg.getBodyLength());
+        assertEquals(3, stream.available());
+        assertFalse(new Message(new byte[] { 1 }).hasBodyStream());
+    }
+
+    // Tests_SRS_MESSAGE_34_076: [If the body is a stream, the function shall copy the body length bytes of the stream to the output stream in chunks.]
+    // Tests_SRS_MESSAGE_34_081: [The body stream shall be marked before it is first read, if it supports mark.]
+    // Tests_SRS_MESSAGE_34_082: [If the body stream was read already, it shall be reset to its mark before it is read again.]
+    @Test
+    public void writeBodyCopiesBodyStreamAndRewindsItForRetries() throws IOException
+    {
+        //arrange
+        byte[] body = new byte[10000];
+        for (int i = 0; i < body.length; i++)
+        {
+            body[i] = (byte) i;
+        }
+        Message msg = new Message(new ByteArrayInputStream(body), body.length);
+        ByteArrayOutputStream firstSend = new ByteArrayOutputStream();
+        ByteArrayOutputStream retriedSend = new ByteArrayOutputStream();
+
+        //act
+        msg.writeBody(firstSend);
+        msg.writeBody(retriedSend);
+
+        //assert
+        assertThat(firstSend.toByteArray(), is(body));
+        assertThat(retriedSend.toByteArray(), is(body));
+        assertTrue(msg.hasBodyStream());
+    }
+
+    // Tests_SRS_MESSAGE_34_077: [If the body stream ends before the body length, the function shall throw an IOException.]
+    @Test(expected = IOException.class)
+    public void writeBodyThrowsIfBodyStreamIsShorterThanBodyLength() throws IOException
+    {
+        Message msg = new Message(new ByteArrayInputStream(new byte[] { 1, 2 }), 3);
+
+        msg.writeBody(new ByteArrayOutputStream());
+    }
+
+    // Tests_SRS_MESSAGE_34_083: [If the body stream was read already and does not support mark, reading it again shall throw an IOException.]
+    @Test
+    public void writeBodyThrowsIfBodyStreamCannotBeReadAgain() throws IOException
+    {
+        //arrange
+        InputStream stream = new ByteArrayInputStream(new byte[] { 1, 2, 3 })
+        {
+            @Override
+            public boolean markSupported()
+            {
+                return false;
+            }
+        };
+        Message msg = new Message(stream, 3);
+        msg.writeBody(new ByteArrayOutputStream());
+
+        //act
+        try
+        {
+            msg.writeBody(new ByteArrayOutputStream());
+            fail("Expected an IOException");
+        }
+        catch (IOException expected)
+        {
+            // expected
+        }
+    }
+
+    // Tests_SRS_MESSAGE_34_078: [If the body is not a stream, the function shall write the body to the output stream.]
+    @Test
+    public void writeBodyWritesBody() throws IOException
+    {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+
+        new Message(ByteBuffer.wrap(new byte[] { 1, 2, 3, 4 }, 1, 2)).writeBody(outputStream);
+
+        assertThat(outputStream.toByteArray(), is(new byte[] { 2, 3 }));
+    }
+
+    // Tests_SRS_MESSAGE_34_079: [If the body is a stream, the functions that return the body shall first read the stream into a single array of the body length.]
+    @Test
+    public void getBodyArrayReadsBodyStreamOnce()
+    {
+        //arrange
+        Message msg = new Message(new ByteArrayInputStream(new byte[] { 1, 2, 3, 4 }), 3);
+
+        //act
+        byte[] bodyArray = MessageBodyAccessor.getBodyArray(msg);
+
+        //assert
+        assertThat(bodyArray, is(new byte[] { 1, 2, 3 }));
+        assertFalse(msg.hasBodyStream());
+        assertSame(bodyArray, MessageBodyAccessor.getBodyArray(msg));
+        assertThat(msg.getBytes(), is(new byte[] { 1, 2, 3 }));
+    }
+
+    // Tests_SRS_MESSAGE_34_080: [If the body stream cannot be read, the functions that return the body shall throw an IllegalStateException.]
+    @Test(expected = IllegalStateException.class)
+    public void getBytesThrowsIfBodyStreamIsShorterThanBodyLength()
+    {
+        Message msg = new Message(new ByteArrayInputStream(new byte[] { 1, 2 }), 3);
+
+        msg.getBytes();
+    }
+
     // Tests_SRS_MESSAGE_11_022: [The function shall return the message body, encoded using charset UTF-8.]
     @Test
     public void getBodyAsStringReturnsUtf8Body()
@@ -221,6 +523,95 @@ public class MessageTest
         assertThat(testProperties[0], is(not(mockProperty)));
     }
 
+    // Tests_SRS_MESSAGE_34_084: [If a property with the same name exists, the function shall replace it in place, keeping the order in which the properties were first set.]
+    @Test
+    public void setPropertyReplacesPropertyWithSameNameInPlace()
+    {
+        final byte[] body = { 0x61, 0x62, 0x63 };
+        Message msg = new Message(body);
+        msg.setProperty("first", "1");
+        msg.setProperty("second", "2");
+        msg.setProperty("third", "3");
+
+        msg.setProperty("SECOND", "two");
+
+        MessageProperty[] testProperties = msg.getProperties();
+        assertEquals(3, testProperties.length);
+        assertEquals("first", testProperties[0].getName());
+        assertEquals("SECOND", testProperties[1].getName());
+        assertEquals("two", testProperties[1].getValue());
+        assertEquals("third", testProperties[2].getName());
+        assertEquals("two", msg.getProperty("second"));
+    }
+
+    // Tests_SRS_MESSAGE_11_026: [The function shall set the message property to the given value.]
+    // Tests_SRS_MESSAGE_11_032: [The function shall return the value associated with the message property name, where the name can be either the HTTPS or AMQPS property name.]
+    // Tests_SRS_MESSAGE_11_034: [If no value associated with the property name is found, the function shall return null.]
+    @Test
+    public void setPropertyKeepsEveryPropertyOfALargeSet()
+    {
+        final byte[] body = { 0x61, 0x62, 0x63 };
+        final int propertyCount = 100;
+        Message msg = new Message(body);
+
+        for (int i = 0; i < propertyCount; i++)
+        {
+            msg.setProperty("name" + i, "value" + i);
+        }
+
+        MessageProperty[] testProperties = msg.getProperties();
+        assertEquals(propertyCount, testProperties.length);
+        for (int i = 0; i < propertyCount; i++)
+        {
+            assertEquals("name" + i, testProperties[i].getName());
+            assertEquals("value" + i, msg.getProperty("NAME" + i));
+        }
+        assertNull(msg.getProperty("name" + propertyCount));
+    }
+
+    // Tests_SRS_MESSAGE_34_085: [The function shall return the properties with a non-empty value as name=value pairs separated by '&', in the order they were first set, with the values URL encoded in UTF-8.]
+    @Test
+    public void getUrlEncodedPropertiesEncodesValuesInOrder()
+    {
+        final byte[] body = { 0x61, 0x62, 0x63 };
+        Message msg = new Message(body);
+        msg.setProperty("key1", "value1");
+        msg.setProperty("empty", "");
+        msg.setProperty("key2", "a b&c=d");
+
+        String testEncodedProperties = msg.getUrlEncodedProperties();
+
+        assertEquals("key1=value1&key2=a+b%26c%3Dd", testEncodedProperties);
+    }
+
+    // Tests_SRS_MESSAGE_34_085: [The function shall return the properties with a non-empty value as name=value pairs separated by '&', in the order they were first set, with the values URL encoded in UTF-8.]
+    @Test
+    public void getUrlEncodedPropertiesReturnsEmptyStringWithoutProperties()
+    {
+        final byte[] body = { 0x61, 0x62, 0x63 };
+        Message msg = new Message(body);
+
+        assertEquals("", msg.getUrlEncodedProperties());
+        assertEquals(0, msg.getProperties().length);
+    }
+
+    // Tests_SRS_MESSAGE_34_086: [The function shall build the string once and return the same string until a property is set.]
+    @Test
+    public void getUrlEncodedPropertiesIsCachedUntilAPropertyIsSet()
+    {
+        final byte[] body = { 0x61, 0x62, 0x63 };
+        Message msg = new Message(body);
+        msg.setProperty("key1", "value1");
+
+        String firstEncodedProperties = msg.getUrlEncodedProperties();
+        String secondEncodedProperties = msg.getUrlEncodedProperties();
+        msg.setProperty("key1", "value2");
+        String thirdEncodedProperties = msg.getUrlEncodedProperties();
+
+        assertSame(firstEncodedProperties, secondEncodedProperties);
+        assertEquals("key1=value2", thirdEncodedProperties);
+    }
+
     // Tests_SRS_MESSAGE_15_035: [The function shall return true if the expiryTime is set to 0.]
     @Test
     public void isExpiredReturnsTrueIfExpiryIsNotSet()
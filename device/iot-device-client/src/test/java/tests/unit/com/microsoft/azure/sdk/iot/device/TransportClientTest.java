@@ -247,6 +247,38 @@ public class TransportClientTest
         };
     }
 
+    // Tests_SRS_TRANSPORTCLIENT_34_001: [The function shall release the ssl contexts of all registered devices to the shared cache.]
+    @Test
+    public void closeNowReleasesSSLContexts() throws IOException
+    {
+        // arrange
+        IotHubClientProtocol iotHubClientProtocol = IotHubClientProtocol.AMQPS;
+        final TransportClient transportClient = new TransportClient(iotHubClientProtocol);
+        Deencapsulation.setField(transportClient, "deviceIO", mockDeviceIO);
+        Deencapsulation.invoke(transportClient, "registerDeviceClient", mockDeviceClient);
+        new NonStrictExpectations()
+        {
+            {
+                mockDeviceClient.getConfig();
+                result = mockDeviceClientConfig;
+                mockDeviceClientConfig.getAuthenticationProvider();
+                result = mockIotHubSasTokenAuthenticationProvider;
+            }
+        };
+
+        // act
+        transportClient.closeNow();
+
+        // assert
+        new Verifications()
+        {
+            {
+                mockIotHubSasTokenAuthenticationProvider.releaseSSLContext();
+                times = 1;
+            }
+        };
+    }
+
     // Tests_SRS_TRANSPORTCLIENT_12_017: [The function shall throw IllegalArgumentException if the newIntervalInMilliseconds parameter is less or equql to zero.]
     @Test (expected = IllegalArgumentException.class)
     public void setSendIntervalThrowsNegativeNumber() throws IOException
@@ -6,6 +6,7 @@
 package tests.unit.com.microsoft.azure.sdk.iot.device.auth;
 
 import com.microsoft.azure.sdk.iot.deps.auth.IotHubSSLContext;
+import com.microsoft.azure.sdk.iot.deps.auth.IotHubSSLContextCache;
 import com.microsoft.azure.sdk.iot.device.auth.*;
 import com.microsoft.azure.sdk.iot.device.auth.IotHubAuthenticationProvider;
 import com.microsoft.azure.sdk.iot.device.auth.IotHubX509SoftwareAuthenticationProvider;
@@ -58,6 +59,7 @@ public class IotHubX509SoftwareIotHubAuthenticationProviderTest
     }
 
     @Mocked IotHubSSLContext mockIotHubSSLContext;
+    @Mocked IotHubSSLContextCache mockIotHubSSLContextCache;
     @Mocked IotHubX509 mockIotHubX509;
     @Mocked SSLContext mockSSLContext;
 
@@ -151,7 +153,7 @@ public class IotHubX509SoftwareIotHubAuthenticationProviderTest
         assertEquals(mockSSLContext, actualSSLContext);
     }
 
-    // Tests_SRS_IOTHUBSASTOKENAUTHENTICATION_34_019: [If this has a saved iotHubTrustedCert, this function shall generate a new IotHubSSLContext object with that saved cert as the trusted cert.]
+    // Tests_SRS_IOTHUBX509AUTHENTICATION_34_019: [If this has a saved iotHubTrustedCert, this function shall acquire the shared IotHubSSLContext object with that saved cert as the trusted cert and with the saved public and private key combo.]
     @Test
     public void generateSSLContextUsesSavedTrustedCert() throws CertificateException, NoSuchAlgorithmException, KeyStoreException, KeyManagementException, IOException, UnrecoverableKeyException
     {
@@ -168,13 +170,13 @@ public class IotHubX509SoftwareIotHubAuthenticationProviderTest
         new Verifications()
         {
             {
-                Deencapsulation.newInstance(IotHubSSLContext.class, new Class[] {String.class, String.class, String.class, boolean.class}, publicKeyCertificate, privateKey, expectedCert, false);
+                IotHubSSLContextCache.acquire(publicKeyCertificate, privateKey, expectedCert, false);
                 times = 1;
             }
         };
     }
 
-    // Tests_SRS_IOTHUBSASTOKENAUTHENTICATION_34_020: [If this has a saved path to a iotHubTrustedCert, this function shall generate a new IotHubSSLContext object with that saved cert path as the trusted cert.]
+    // Tests_SRS_IOTHUBX509AUTHENTICATION_34_020: [If this has a saved path to a iotHubTrustedCert, this function shall acquire the shared IotHubSSLContext object with that saved cert path as the trusted cert and with the saved public and private key combo.]
     @Test
     public void generateSSLContextUsesSavedTrustedCertPath() throws CertificateException, NoSuchAlgorithmException, KeyStoreException, KeyManagementException, IOException, UnrecoverableKeyException
     {
@@ -191,13 +193,13 @@ public class IotHubX509SoftwareIotHubAuthenticationProviderTest
         new Verifications()
         {
             {
-                Deencapsulation.newInstance(IotHubSSLContext.class, new Class[] {String.class, String.class, String.class, boolean.class}, publicKeyCertificate, privateKey, expectedCertPath, true);
+                IotHubSSLContextCache.acquire(publicKeyCertificate, privateKey, expectedCertPath, true);
                 times = 1;
             }
         };
     }
 
-    // Tests_SRS_IOTHUBX509AUTHENTICATION_34_021: [If this has no saved iotHubTrustedCert or path, This function shall create and save a new IotHubSSLContext object with the saved public and private key combo.]
+    // Tests_SRS_IOTHUBX509AUTHENTICATION_34_021: [If this has no saved iotHubTrustedCert or path, This function shall acquire the shared IotHubSSLContext object with the default trusted certs and the saved public and private key combo.]
     @Test
     public void generateSSLContextUsesSavedKeys() throws CertificateException, UnrecoverableKeyException, NoSuchAlgorithmException, IOException, KeyManagementException, KeyStoreException
     {
@@ -212,7 +214,7 @@ public class IotHubX509SoftwareIotHubAuthenticationProviderTest
         new Verifications()
         {
             {
-                Deencapsulation.newInstance(IotHubSSLContext.class, new Class[] {String.class, String.class}, publicKeyCertificate, privateKey);
+                IotHubSSLContextCache.acquire(publicKeyCertificate, privateKey, null, false);
                 times = 1;
             }
         };
@@ -258,7 +260,7 @@ public class IotHubX509SoftwareIotHubAuthenticationProviderTest
 
     //Tests_SRS_IOTHUBX509SOFTWAREAUTHENTICATION_34_004: [If the security provider throws a SecurityProviderException while generating an SSLContext, this function shall throw an IOException.]
     @Test (expected = IOException.class)
-    public void getSSLContextThrowsIOExceptionIfExceptionEncountered() throws SecurityProviderException, IOException, TransportException
+    public void getSSLContextThrowsIOExceptionIfExceptionEncountered() throws Exception
     {
         //arrange
         IotHubAuthenticationProvider authentication = new IotHubX509SoftwareAuthenticationProvider(hostname, gatewayHostname, deviceId, moduleId, publicKeyCertificate, false, privateKey, false);
@@ -266,7 +268,7 @@ public class IotHubX509SoftwareIotHubAuthenticationProviderTest
         new NonStrictExpectations()
         {
             {
-                Deencapsulation.newInstance(IotHubSSLContext.class, new Class[] {String.class, String.class});
+                IotHubSSLContextCache.acquire(anyString, anyString, null, false);
                 result = mockIotHubSSLContext;
 
                 Deencapsulation.invoke(mockIotHubSSLContext, "getSSLContext");
@@ -281,7 +283,7 @@ public class IotHubX509SoftwareIotHubAuthenticationProviderTest
     //Tests_SRS_IOTHUBX509SOFTWAREAUTHENTICATION_34_003: [If this object's ssl context has not been generated yet, this function shall generate it from the saved security provider.]
     //Tests_SRS_IOTHUBX509SOFTWAREAUTHENTICATION_34_005: [This function shall return the saved IotHubSSLContext.]
     @Test
-    public void getSSLContextSuccess() throws IOException, TransportException
+    public void getSSLContextSuccess() throws Exception
     {
         //arrange
         IotHubAuthenticationProvider authentication = new IotHubX509SoftwareAuthenticationProvider(hostname, gatewayHostname, deviceId, moduleId, publicKeyCertificate, false, privateKey, false);
@@ -289,7 +291,7 @@ public class IotHubX509SoftwareIotHubAuthenticationProviderTest
         new NonStrictExpectations()
         {
             {
-                Deencapsulation.newInstance(IotHubSSLContext.class, new Class[] {String.class, String.class});
+                IotHubSSLContextCache.acquire(anyString, anyString, null, false);
                 result = mockIotHubSSLContext;
 
                 Deencapsulation.invoke(mockIotHubSSLContext, "getSSLContext");
@@ -304,5 +306,26 @@ public class IotHubX509SoftwareIotHubAuthenticationProviderTest
         assertEquals(mockSSLContext, actualSSLContext);
     }
 
-}
+    //Tests_SRS_IOTHUBX509SOFTWAREAUTHENTICATION_34_065: [If this function regenerated the ssl context, it shall release the previous one to the shared cache.]
+    @Test
+    public void getSSLContextReleasesPreviousContextWhenRegenerated(@Mocked final IotHubSSLContext mockPreviousIotHubSSLContext) throws Exception
+    {
+        //arrange
+        commonExpectations();
+        IotHubAuthenticationProvider authentication = new IotHubX509SoftwareAuthenticationProvider(hostname, gatewayHostname, deviceId, moduleId, publicKeyCertificate, false, privateKey, false);
+        Deencapsulation.setField(authentication, "iotHubSSLContext", mockPreviousIotHubSSLContext);
+        authentication.setIotHubTrustedCert("someTrustedCert");
+
+        //act
+        authentication.getSSLContext();
 
+        //assert
+        new Verifications()
+        {
+            {
+                IotHubSSLContextCache.release(mockPreviousIotHubSSLContext);
+                times = 1;
+            }
+        };
+    }
+}
@@ -0,0 +1,269 @@
+/*
+ *  Copyright (c) Microsoft. All rights reserved.
+ *  Licensed under the MIT license. See LICENSE file in the project root for full license information.
+ */
+
+package tests.unit.com.microsoft.azure.sdk.iot.device.hsm;
+
+import com.microsoft.azure.sdk.iot.device.auth.SignatureProvider;
+import com.microsoft.azure.sdk.iot.device.exceptions.TransportException;
+import com.microsoft.azure.sdk.iot.device.hsm.HsmException;
+import mockit.Deencapsulation;
+import mockit.Delegate;
+import mockit.Mock;
+import mockit.MockUp;
+import mockit.Mocked;
+import mockit.NonStrictExpectations;
+import mockit.Verifications;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static junit.framework.TestCase.assertEquals;
+import static junit.framework.TestCase.assertTrue;
+import static junit.framework.TestCase.fail;
+
+public class HsmSignatureCacheTest
+{
+    private static final String HSM_SIGNATURE_CACHE_CLASS = "com.microsoft.azure.sdk.iot.device.hsm.HsmSignatureCache";
+
+    @Mocked
+    SignatureProvider mockedSignatureProvider;
+
+    private static final String expectedKeyName = "module";
+    private static final String expectedGenerationId = "gen1";
+    private static final String expectedAudience = "hostname%2Fdevices%2Fdevice%2Fmodules%2Fmodule";
+    private static final long expectedTimeToLive = 3600;
+    private static final String expectedSignature = "someSignature";
+
+    @Before
+    public void clearCache() throws ClassNotFoundException
+    {
+        Map<?, ?> entries = Deencapsulation.getField(Class.forName(HSM_SIGNATURE_CACHE_CLASS), "entries");
+        entries.clear();
+    }
+
+    private Object sign(long renewalWindowSeconds) throws ClassNotFoundException
+    {
+        return Deencapsulation.invoke(Class.forName(HSM_SIGNATURE_CACHE_CLASS), "sign",
+                mockedSignatureProvider, expectedKeyName, expectedGenerationId, expectedAudience, expectedTimeToLive, renewalWindowSeconds);
+    }
+
+    // Tests_SRS_HSMSIGNATURECACHE_34_002: [If there is no usable signature and no pending request for the
+    // scope, this function shall sign "<audience>\n<expiry time>" with the signature provider, where the
+    // expiry time is the current time plus the time to live.]
+    @Test
+    public void signSignsAudienceAndExpiryTime() throws ClassNotFoundException, IOException, TransportException, URISyntaxException, HsmException
+    {
+        //arrange
+        new MockUp<System>()
+        {
+            @Mock long currentTimeMillis()
+            {
+                return 1000L;
+            }
+        };
+        new NonStrictExpectations()
+        {
+            {
+                mockedSignatureProvider.sign(expectedKeyName, anyString, expectedGenerationId);
+                result = expectedSignature;
+            }
+        };
+
+        //act
+        Object signature = sign(60);
+
+        //assert
+        assertEquals(expectedSignature, Deencapsulation.invoke(signature, "getSignature"));
+        Long expiryTime = Deencapsulation.invoke(signature, "getExpiryTime");
+        assertEquals(1 + expectedTimeToLive, (long) expiryTime);
+        new Verifications()
+        {
+            {
+                mockedSignatureProvider.sign(expectedKeyName, expectedAudience + "\n" + (1 + expectedTimeToLive), expectedGenerationId);
+                times = 1;
+            }
+        };
+    }
+
+    // Tests_SRS_HSMSIGNATURECACHE_34_001: [If the cached signature of the scope expires after the renewal
+    // window, this function shall return it without calling the signature provider.]
+    @Test
+    public void signReusesSignatureUntilRenewalWindow() throws ClassNotFoundException, IOException, TransportException, URISyntaxException, HsmException
+    {
+        //arrange
+        new NonStrictExpectations()
+        {
+            {
+                mockedSignatureProvider.sign(expectedKeyName, anyString, expectedGenerationId);
+                result = expectedSignature;
+            }
+        };
+        Object firstSignature = sign(60);
+
+        //act
+        Object secondSignature = sign(60);
+
+        //assert
+        assertTrue(firstSignature == secondSignature);
+        new Verifications()
+        {
+            {
+                mockedSignatureProvider.sign(expectedKeyName, anyString, expectedGenerationId);
+                times = 1;
+            }
+        };
+    }
+
+    // Tests_SRS_HSMSIGNATURECACHE_34_001: [If the cached signature of the scope expires after the renewal
+    // window, this function shall return it without calling the signature provider.]
+    @Test
+    public void signSignsAgainWithinRenewalWindow() throws ClassNotFoundException, IOException, TransportException, URISyntaxException, HsmException
+    {
+        //arrange
+        new NonStrictExpectations()
+        {
+            {
+                mockedSignatureProvider.sign(expectedKeyName, anyString, expectedGenerationId);
+                result = expectedSignature;
+            }
+        };
+        sign(60);
+
+        //act
+        sign(expectedTimeToLive);
+
+        //assert
+        new Verifications()
+        {
+            {
+                mockedSignatureProvider.sign(expectedKeyName, anyString, expectedGenerationId);
+                times = 2;
+            }
+        };
+    }
+
+    // Tests_SRS_HSMSIGNATURECACHE_34_003: [If a request for the scope is pending, this function shall wait for
+    // its signature instead of calling the signature provider.]
+    @Test
+    public void signWaitsForPendingRequest() throws Exception
+    {
+        //arrange
+        final CountDownLatch requestStarted = new CountDownLatch(1);
+        final CountDownLatch requestReleased = new CountDownLatch(1);
+        new NonStrictExpectations()
+        {
+            {
+                mockedSignatureProvider.sign(expectedKeyName, anyString, expectedGenerationId);
+                result = new Delegate()
+                {
+                    String sign(String keyName, String data, String generationId) throws InterruptedException
+                    {
+                        requestStarted.countDown();
+                        requestReleased.await(10, TimeUnit.SECONDS);
+                        return expectedSignature;
+                    }
+                };
+            }
+        };
+
+        // A renewal window as long as the time to live, so that only the pending request can spare a second call
+        final Object[] pendingSignature = new Object[1];
+        Thread pendingRequest = new Thread(new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                try
+                {
+                    pendingSignature[0] = sign(expectedTimeToLive);
+                }
+                catch (ClassNotFoundException e)
+                {
+                    fail(e.getMessage());
+                }
+            }
+        });
+        pendingRequest.start();
+        requestStarted.await(10, TimeUnit.SECONDS);
+
+        Thread releasingThread = new Thread(new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                try
+                {
+                    Thread.sleep(500);
+                }
+                catch (InterruptedException e)
+                {
+                    // release right away
+                }
+
+                requestReleased.countDown();
+            }
+        });
+        releasingThread.start();
+
+        //act
+        Object signature = sign(expectedTimeToLive);
+        pendingRequest.join();
+        releasingThread.join();
+
+        //assert
+        assertTrue(signature == pendingSignature[0]);
+        new Verifications()
+        {
+            {
+                mockedSignatureProvider.sign(expectedKeyName, anyString, expectedGenerationId);
+                times = 1;
+            }
+        };
+    }
+
+    // Tests_SRS_HSMSIGNATURECACHE_34_004: [If the signature provider fails, this function shall throw its
+    // exception to every caller waiting for that request, and shall not cache anything.]
+    @Test
+    public void signThrowsAndDoesNotCacheIfSigningFails() throws ClassNotFoundException, IOException, TransportException, URISyntaxException, HsmException
+    {
+        //arrange
+        new NonStrictExpectations()
+        {
+            {
+                mockedSignatureProvider.sign(expectedKeyName, anyString, expectedGenerationId);
+                result = new HsmException("some error");
+                result = expectedSignature;
+            }
+        };
+
+        try
+        {
+            sign(60);
+            fail("expected the HsmException of the signature provider");
+        }
+        catch (Exception e)
+        {
+            assertTrue(e instanceof HsmException);
+        }
+
+        //act
+        Object signature = sign(60);
+
+        //assert
+        assertEquals(expectedSignature, Deencapsulation.invoke(signature, "getSignature"));
+        new Verifications()
+        {
+            {
+                mockedSignatureProvider.sign(expectedKeyName, anyString, expectedGenerationId);
+                times = 2;
+            }
+        };
+    }
+}
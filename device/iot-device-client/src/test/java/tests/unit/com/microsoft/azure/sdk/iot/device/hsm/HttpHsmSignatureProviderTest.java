@@ -26,6 +26,8 @@ import java.net.URLEncoder;
 import java.security.NoSuchAlgorithmException;
 
 import static junit.framework.TestCase.assertEquals;
+import static junit.framework.TestCase.assertFalse;
+import static junit.framework.TestCase.assertTrue;
 
 public class HttpHsmSignatureProviderTest
 {
@@ -163,4 +165,22 @@ public class HttpHsmSignatureProviderTest
         signatureProvider.sign(keyName, null, expectedGenId);
     }
 
+    // Tests_SRS_HTTPHSMSIGNATUREPROVIDER_34_008: [This function shall return true if and only if the other object
+    // is an HttpHsmSignatureProvider with the same provider uri and api version.]
+    @Test
+    public void equalsComparesProviderUriAndApiVersion() throws NoSuchAlgorithmException, URISyntaxException
+    {
+        //arrange
+        HttpHsmSignatureProvider httpHsmSignatureProvider = new HttpHsmSignatureProvider(expectedProviderUri, expectedApiVersion);
+        HttpHsmSignatureProvider sameProvider = new HttpHsmSignatureProvider(expectedProviderUri, expectedApiVersion);
+        HttpHsmSignatureProvider otherUriProvider = new HttpHsmSignatureProvider("someOtherProviderUri", expectedApiVersion);
+        HttpHsmSignatureProvider otherApiVersionProvider = new HttpHsmSignatureProvider(expectedProviderUri, defaultApiVersion);
+
+        //act, assert
+        assertTrue(httpHsmSignatureProvider.equals(sameProvider));
+        assertEquals(httpHsmSignatureProvider.hashCode(), sameProvider.hashCode());
+        assertFalse(httpHsmSignatureProvider.equals(otherUriProvider));
+        assertFalse(httpHsmSignatureProvider.equals(otherApiVersionProvider));
+        assertFalse(httpHsmSignatureProvider.equals(expectedProviderUri));
+    }
 }
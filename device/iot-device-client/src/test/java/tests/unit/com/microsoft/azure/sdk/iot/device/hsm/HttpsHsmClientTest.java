@@ -23,7 +23,6 @@ import org.junit.Test;
 
 import java.io.*;
 import java.net.*;
-import java.nio.ByteBuffer;
 import java.nio.channels.Channels;
 
 import static junit.framework.TestCase.assertEquals;
@@ -198,8 +197,10 @@ public class HttpsHsmClientTest
     }
 
     // Tests_SRS_HSMHTTPCLIENT_34_006: [If the scheme of the provided url is Unix, this function shall send the http request using unix domain sockets.]
+    // Tests_SRS_HSMHTTPCLIENT_34_013: [If the scheme of the provided url is Unix, this function shall send the request
+    // over a keep-alive connection from the pool of the unix socket, and read the response from that connection.]
     @Test
-    public void signSuccessWithUnix(@Mocked final URI mockedURI) throws IOException, TransportException, URISyntaxException, HsmException
+    public void signSuccessWithUnix(@Mocked final URI mockedURI, @Mocked final InputStream mockedInputStream) throws IOException, TransportException, URISyntaxException, HsmException
     {
         //arrange
         final String expectedJson = "some json";
@@ -220,7 +221,7 @@ public class HttpsHsmClientTest
                 new HttpsRequest((URL) any, HttpsMethod.POST, expectedJson.getBytes(), anyString);
                 result = mockedHttpsRequest;
 
-                HttpsRequestResponseSerializer.serializeRequest(mockedHttpsRequest, anyString, anyString, anyString);
+                HttpsRequestResponseSerializer.serializeRequest(mockedHttpsRequest, anyString, anyString, anyString, true);
                 result = expectedMetaData;
 
                 mockedHttpsRequest.getBody();
@@ -232,15 +233,18 @@ public class HttpsHsmClientTest
                 UnixSocketChannel.open(mockedUnixSocketAddress);
                 result = mockedUnixSocketChannel;
 
-                mockedUnixSocketChannel.read((ByteBuffer) any);
-                result = -1;
+                Channels.newInputStream(mockedUnixSocketChannel);
+                result = mockedInputStream;
 
                 Channels.newOutputStream(mockedUnixSocketChannel);
                 result = mockedOutputStream;
 
-                HttpsRequestResponseSerializer.deserializeResponse((BufferedReader) any);
+                HttpsRequestResponseSerializer.readResponse((InputStream) any);
                 result = mockedHttpsResponse;
 
+                HttpsRequestResponseSerializer.keepsConnectionOpen(mockedHttpsResponse);
+                result = false;
+
                 mockedHttpsResponse.getStatus();
                 result = 200;
             }
@@ -256,10 +260,19 @@ public class HttpsHsmClientTest
         new Verifications()
         {
             {
-                HttpsRequestResponseSerializer.serializeRequest(mockedHttpsRequest, anyString, anyString, anyString);
+                HttpsRequestResponseSerializer.serializeRequest(mockedHttpsRequest, anyString, anyString, anyString, true);
+                times = 1;
+
+                mockedOutputStream.write(expectedMetaData);
+                times = 1;
+
+                mockedOutputStream.write(expectedBody);
+                times = 1;
+
+                HttpsRequestResponseSerializer.readResponse((InputStream) any);
                 times = 1;
 
-                HttpsRequestResponseSerializer.deserializeResponse((BufferedReader) any);
+                mockedUnixSocketChannel.close();
                 times = 1;
 
                 mockedHttpsRequest.send();
@@ -18,7 +18,9 @@ import mockit.Verifications;
 import org.junit.Test;
 
 import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.StringReader;
 import java.io.UnsupportedEncodingException;
 import java.net.MalformedURLException;
@@ -31,6 +33,8 @@ import java.util.List;
 import java.util.Map;
 
 import static junit.framework.TestCase.assertEquals;
+import static junit.framework.TestCase.assertFalse;
+import static junit.framework.TestCase.assertTrue;
 
 public class HttpsRequestResponseSerializerTest
 {
@@ -321,4 +325,274 @@ public class HttpsRequestResponseSerializerTest
         //act
         HttpsRequestResponseSerializer.deserializeResponse(new BufferedReader(new StringReader(stringToDeserialize)));
     }
-}
\ No newline at end of file
+
+    // Tests_SRS_HTTPREQUESTRESPONSESERIALIZER_34_009: [If keepAlive is true, this function shall set the Connection header to keep-alive instead of close.]
+    @Test
+    public void serializeWithKeepAliveSetsConnectionHeader() throws MalformedURLException
+    {
+        //arrange
+        new NonStrictExpectations()
+        {
+            {
+                mockedHttpsRequest.getRequestUrl();
+                result = mockedURL;
+            }
+        };
+
+        //act
+        HttpsRequestResponseSerializer.serializeRequest(mockedHttpsRequest, "/modules/testModule/sign", "api-version=2018-06-28",  "localhost:8081", true);
+
+        //assert
+        new Verifications()
+        {
+            {
+                mockedHttpsRequest.setHeaderField("Connection", "keep-alive");
+                times = 1;
+
+                mockedHttpsRequest.setHeaderField("Connection", "close");
+                times = 0;
+            }
+        };
+    }
+
+    // Tests_SRS_HTTPREQUESTRESPONSESERIALIZER_34_010: [If the provided inputStream is null, this function shall throw an IllegalArgumentException.]
+    @Test (expected = IllegalArgumentException.class)
+    public void readResponseThrowsForNullInputStream() throws IOException
+    {
+        //act
+        HttpsRequestResponseSerializer.readResponse(null);
+    }
+
+    // Tests_SRS_HTTPREQUESTRESPONSESERIALIZER_34_011: [If the stream ends before the status line, this function shall throw an IOException.]
+    @Test (expected = IOException.class)
+    public void readResponseThrowsForEmptyStream() throws IOException
+    {
+        //act
+        HttpsRequestResponseSerializer.readResponse(new ByteArrayInputStream(new byte[0]));
+    }
+
+    // Tests_SRS_HTTPREQUESTRESPONSESERIALIZER_34_012: [This function shall read the status line in the form
+    // <version> <status code> <reason phrase>, where the reason phrase may contain spaces or be empty, and throw an
+    // IOException if the version is not an HTTP version or the status code is not a number.]
+    // Tests_SRS_HTTPREQUESTRESPONSESERIALIZER_34_013: [This function shall read the header lines until the empty
+    // line that ends them, trimming the values, and throw an IOException if a header has no ':' separator.]
+    // Tests_SRS_HTTPREQUESTRESPONSESERIALIZER_34_016: [If the response has a Content-Length, this function shall read exactly that many bytes as the body, and throw an IOException if the stream ends first.]
+    @Test
+    public void readResponseWithContentLengthLeavesStreamAtNextResponse() throws IOException
+    {
+        //arrange
+        final Map<String, List<String>> expectedHeaders = new HashMap<>();
+        List<String> lengthValues = new ArrayList<>();
+        lengthValues.add("4");
+        expectedHeaders.put("Content-Length", lengthValues);
+        InputStream inputStream = new ByteArrayInputStream((
+                "HTTP/1.1 404 Not Found\r\n" +
+                "Content-Length: 4\r\n" +
+                "\r\n" +
+                "testHTTP/1.1").getBytes());
+
+        //act
+        HttpsRequestResponseSerializer.readResponse(inputStream);
+
+        //assert
+        new Verifications()
+        {
+            {
+                new HttpsResponse(404, "test".getBytes(), expectedHeaders, "Not Found".getBytes());
+                times = 1;
+            }
+        };
+        assertEquals('H', inputStream.read());
+    }
+
+    // Tests_SRS_HTTPREQUESTRESPONSESERIALIZER_34_016: [If the response has a Content-Length, this function shall read exactly that many bytes as the body, and throw an IOException if the stream ends first.]
+    @Test (expected = IOException.class)
+    public void readResponseThrowsForTruncatedBody() throws IOException
+    {
+        //arrange
+        InputStream inputStream = new ByteArrayInputStream((
+                "HTTP/1.1 200 OK\r\n" +
+                "Content-Length: 10\r\n" +
+                "\r\n" +
+                "test").getBytes());
+
+        //act
+        HttpsRequestResponseSerializer.readResponse(inputStream);
+    }
+
+    // Tests_SRS_HTTPREQUESTRESPONSESERIALIZER_34_013: [This function shall read the header lines until the empty
+    // line that ends them, trimming the values, and throw an IOException if a header has no ':' separator.]
+    @Test (expected = IOException.class)
+    public void readResponseThrowsForHeaderWithoutSeparator() throws IOException
+    {
+        //arrange
+        InputStream inputStream = new ByteArrayInputStream((
+                "HTTP/1.1 200 OK\r\n" +
+                "header1 value1\r\n" +
+                "\r\n").getBytes());
+
+        //act
+        HttpsRequestResponseSerializer.readResponse(inputStream);
+    }
+
+    // Tests_SRS_HTTPREQUESTRESPONSESERIALIZER_34_015: [If the response uses the chunked transfer encoding, this function shall read the chunks and their trailer, and return the chunks joined as the body.]
+    @Test
+    public void readResponseWithChunkedBody() throws IOException
+    {
+        //arrange
+        final Map<String, List<String>> expectedHeaders = new HashMap<>();
+        List<String> encodingValues = new ArrayList<>();
+        encodingValues.add("chunked");
+        expectedHeaders.put("Transfer-Encoding", encodingValues);
+        InputStream inputStream = new ByteArrayInputStream((
+                "HTTP/1.1 200 OK\r\n" +
+                "Transfer-Encoding: chunked\r\n" +
+                "\r\n" +
+                "4;name=value\r\n" +
+                "test\r\n" +
+                "5\r\n" +
+                " body\r\n" +
+                "0\r\n" +
+                "trailer: value\r\n" +
+                "\r\n" +
+                "HTTP/1.1").getBytes());
+
+        //act
+        HttpsRequestResponseSerializer.readResponse(inputStream);
+
+        //assert
+        new Verifications()
+        {
+            {
+                new HttpsResponse(200, "test body".getBytes(), expectedHeaders, "OK".getBytes());
+                times = 1;
+            }
+        };
+        assertEquals('H', inputStream.read());
+    }
+
+    // Tests_SRS_HTTPREQUESTRESPONSESERIALIZER_34_017: [If the response has neither, this function shall read the body until the stream ends.]
+    @Test
+    public void readResponseWithoutLengthReadsUntilStreamEnds() throws IOException
+    {
+        //arrange
+        final Map<String, List<String>> expectedHeaders = new HashMap<>();
+        InputStream inputStream = new ByteArrayInputStream((
+                "HTTP/1.1 200\r\n" +
+                "\r\n" +
+                "test\r\nbody").getBytes());
+
+        //act
+        HttpsRequestResponseSerializer.readResponse(inputStream);
+
+        //assert
+        new Verifications()
+        {
+            {
+                new HttpsResponse(200, "test\r\nbody".getBytes(), expectedHeaders, "".getBytes());
+                times = 1;
+            }
+        };
+    }
+
+    // Tests_SRS_HTTPREQUESTRESPONSESERIALIZER_34_014: [If the status code does not allow a body, this function shall return an empty body.]
+    @Test
+    public void readResponseWithNoContentStatusHasEmptyBody() throws IOException
+    {
+        //arrange
+        final Map<String, List<String>> expectedHeaders = new HashMap<>();
+        InputStream inputStream = new ByteArrayInputStream((
+                "HTTP/1.1 204 No Content\r\n" +
+                "\r\n" +
+                "HTTP/1.1").getBytes());
+
+        //act
+        HttpsRequestResponseSerializer.readResponse(inputStream);
+
+        //assert
+        new Verifications()
+        {
+            {
+                new HttpsResponse(204, new byte[0], expectedHeaders, "No Content".getBytes());
+                times = 1;
+            }
+        };
+        assertEquals('H', inputStream.read());
+    }
+
+    // Tests_SRS_HTTPREQUESTRESPONSESERIALIZER_34_019: [This function shall return true if and only if the body of the response was delimited by its status code, its Content-Length or its chunked transfer encoding.]
+    @Test
+    public void keepsConnectionOpenTrueForContentLength()
+    {
+        //arrange
+        final Map<String, String> headers = new HashMap<>();
+        headers.put("content-length", "4");
+        new NonStrictExpectations()
+        {
+            {
+                mockedHttpsResponse.getStatus();
+                result = 200;
+
+                mockedHttpsResponse.getHeaderFields();
+                result = headers;
+            }
+        };
+
+        //act
+        boolean keepsConnectionOpen = HttpsRequestResponseSerializer.keepsConnectionOpen(mockedHttpsResponse);
+
+        //assert
+        assertTrue(keepsConnectionOpen);
+    }
+
+    // Tests_SRS_HTTPREQUESTRESPONSESERIALIZER_34_019: [This function shall return true if and only if the body of the response was delimited by its status code, its Content-Length or its chunked transfer encoding.]
+    @Test
+    public void keepsConnectionOpenFalseForBodyReadUntilStreamEnds()
+    {
+        //arrange
+        final Map<String, String> headers = new HashMap<>();
+        headers.put("Content-Type", "application/json");
+        new NonStrictExpectations()
+        {
+            {
+                mockedHttpsResponse.getStatus();
+                result = 200;
+
+                mockedHttpsResponse.getHeaderFields();
+                result = headers;
+            }
+        };
+
+        //act
+        boolean keepsConnectionOpen = HttpsRequestResponseSerializer.keepsConnectionOpen(mockedHttpsResponse);
+
+        //assert
+        assertFalse(keepsConnectionOpen);
+    }
+
+    // Tests_SRS_HTTPREQUESTRESPONSESERIALIZER_34_018: [If the response has the header Connection: close, this function shall return false.]
+    @Test
+    public void keepsConnectionOpenFalseForConnectionClose()
+    {
+        //arrange
+        final Map<String, String> headers = new HashMap<>();
+        headers.put("Transfer-Encoding", "chunked");
+        headers.put("Connection", "Close");
+        new NonStrictExpectations()
+        {
+            {
+                mockedHttpsResponse.getStatus();
+                result = 200;
+
+                mockedHttpsResponse.getHeaderFields();
+                result = headers;
+            }
+        };
+
+        //act
+        boolean keepsConnectionOpen = HttpsRequestResponseSerializer.keepsConnectionOpen(mockedHttpsResponse);
+
+        //assert
+        assertFalse(keepsConnectionOpen);
+    }
+}
@@ -12,10 +12,19 @@ import com.microsoft.azure.sdk.iot.device.hsm.IotHubSasTokenHsmAuthenticationPro
 import com.microsoft.azure.sdk.iot.device.auth.SignatureProvider;
 import com.microsoft.azure.sdk.iot.device.exceptions.TransportException;
 import mockit.*;
+import org.junit.Before;
 import org.junit.Test;
 
 import java.io.IOException;
 import java.net.URISyntaxException;
+import java.util.Map;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import static junit.framework.TestCase.assertFalse;
+import static junit.framework.TestCase.assertNotNull;
+import static junit.framework.TestCase.assertNull;
+import static junit.framework.TestCase.assertTrue;
 
 public class IotHubSasTokenHsmAuthenticationProviderTest
 {
@@ -37,6 +46,13 @@ public class IotHubSasTokenHsmAuthenticationProviderTest
     private static final String expectedSignature = "someSignature";
     private static final String expectedSharedAccessToken = "someSharedAccessToken";
 
+    // The signatures are shared by every provider of the process, so a test must not find those of the previous one
+    @Before
+    public void clearSignatureCache() throws ClassNotFoundException
+    {
+        Map<?, ?> entries = Deencapsulation.getField(Class.forName("com.microsoft.azure.sdk.iot.device.hsm.HsmSignatureCache"), "entries");
+        entries.clear();
+    }
 
     // Tests_SRS_MODULEAUTHENTICATIONWITHHSM_34_001: [This function shall construct a sas token from the provided arguments and then return a IotHubSasTokenHsmAuthenticationProvider instance that uses that sas token.]
     // Tests_SRS_MODULEAUTHENTICATIONWITHHSM_34_003: [If the gatewayHostname is not null or empty, this function shall construct the sas token using the gateway hostname instead of the hostname.]
@@ -184,4 +200,221 @@ public class IotHubSasTokenHsmAuthenticationProviderTest
         //act
         IotHubSasTokenHsmAuthenticationProvider.create(null, expectedDeviceId, expectedModuleId, expectedHostname, expectedGatewayHostname, "gen1", expectedTimeToLive, expectedBufferPercent);
     }
+
+    // Tests_SRS_MODULEAUTHENTICATIONWITHHSM_34_007: [This function shall schedule the renewal of the sas token ahead of its expiry.]
+    @Test
+    public void staticConstructorSchedulesRenewal() throws IOException, TransportException, URISyntaxException, HsmException
+    {
+        //arrange
+        new MockUp<System>()
+        {
+            @Mock long currentTimeMillis()
+            {
+                return 0;
+            }
+        };
+        new NonStrictExpectations()
+        {
+            {
+                mockedSignatureProvider.sign("module", anyString, anyString);
+                result = expectedSignature;
+            }
+        };
+
+        //act
+        IotHubSasTokenHsmAuthenticationProvider auth = IotHubSasTokenHsmAuthenticationProvider.create(mockedSignatureProvider, expectedDeviceId, expectedModuleId, expectedHostname, expectedGatewayHostname, "gen1", expectedTimeToLive, expectedBufferPercent);
+
+        //assert
+        ScheduledFuture<?> scheduledRenewal = Deencapsulation.getField(auth, "scheduledRenewal");
+        assertNotNull(scheduledRenewal);
+        assertFalse(scheduledRenewal.isDone());
+    }
+
+    // Tests_SRS_MODULEAUTHENTICATIONWITHHSM_34_008: [This function shall reschedule the renewal of the sas token ahead of the expiry of the new sas token.]
+    // Tests_SRS_MODULEAUTHENTICATIONWITHHSM_34_009: [When its scheduled renewal runs, this provider shall refresh its sas token.]
+    @Test
+    public void renewSasTokenAheadOfExpiryRefreshesAndReschedules() throws IOException, TransportException, URISyntaxException, HsmException
+    {
+        //arrange
+        new MockUp<System>()
+        {
+            @Mock long currentTimeMillis()
+            {
+                return 0;
+            }
+        };
+        new NonStrictExpectations()
+        {
+            {
+                mockedSignatureProvider.sign("module", anyString, anyString);
+                result = expectedSignature;
+            }
+        };
+
+        IotHubSasTokenHsmAuthenticationProvider auth = IotHubSasTokenHsmAuthenticationProvider.create(mockedSignatureProvider, expectedDeviceId, expectedModuleId, expectedHostname, "", "gen1", expectedTimeToLive, expectedBufferPercent);
+        Deencapsulation.setField(auth, "hostname", expectedHostname);
+        Deencapsulation.setField(auth, "gatewayHostname", "");
+        Deencapsulation.setField(auth, "deviceId", expectedDeviceId);
+        Deencapsulation.setField(auth, "moduleId", expectedModuleId);
+        Deencapsulation.setField(auth, "tokenValidSecs", expectedTimeToLive);
+        Deencapsulation.setField(auth, "timeBufferPercentage", expectedBufferPercent);
+        ScheduledFuture<?> firstRenewal = Deencapsulation.getField(auth, "scheduledRenewal");
+
+        //act
+        Deencapsulation.invoke(auth, "renewSasTokenAheadOfExpiry");
+
+        //assert
+        ScheduledFuture<?> nextRenewal = Deencapsulation.getField(auth, "scheduledRenewal");
+        assertTrue(firstRenewal.isCancelled());
+        assertFalse(nextRenewal.isDone());
+        new Verifications()
+        {
+            {
+                mockedSignatureProvider.sign("module", anyString, anyString);
+                times = 2;
+            }
+        };
+    }
+
+    // Tests_SRS_MODULEAUTHENTICATIONWITHHSM_34_010: [If the scheduled renewal fails, it shall be scheduled
+    // again 10 seconds later, and each further failure shall double that delay, up to 5 minutes.]
+    @Test
+    public void renewSasTokenAheadOfExpiryRetriesIfHsmFails() throws IOException, TransportException, URISyntaxException, HsmException
+    {
+        //arrange
+        IotHubSasTokenHsmAuthenticationProvider auth = createProviderWithFailingRenewals();
+
+        //act
+        Deencapsulation.invoke(auth, "renewSasTokenAheadOfExpiry");
+
+        //assert
+        ScheduledFuture<?> retry = Deencapsulation.getField(auth, "scheduledRenewal");
+        long retryDelay = retry.getDelay(TimeUnit.MILLISECONDS);
+        assertTrue(retryDelay > 0 && retryDelay <= 10 * 1000);
+    }
+
+    // Tests_SRS_MODULEAUTHENTICATIONWITHHSM_34_010: [If the scheduled renewal fails, it shall be scheduled
+    // again 10 seconds later, and each further failure shall double that delay, up to 5 minutes.]
+    @Test
+    public void renewSasTokenAheadOfExpiryBacksOffIfHsmKeepsFailing() throws IOException, TransportException, URISyntaxException, HsmException
+    {
+        //arrange
+        IotHubSasTokenHsmAuthenticationProvider auth = createProviderWithFailingRenewals();
+        for (int i = 0; i < 10; i++)
+        {
+            Deencapsulation.invoke(auth, "renewSasTokenAheadOfExpiry");
+        }
+
+        //act
+        Deencapsulation.invoke(auth, "renewSasTokenAheadOfExpiry");
+
+        //assert
+        ScheduledFuture<?> retry = Deencapsulation.getField(auth, "scheduledRenewal");
+        long retryDelay = retry.getDelay(TimeUnit.MILLISECONDS);
+        assertTrue(retryDelay > 150 * 1000 && retryDelay <= 5 * 60 * 1000);
+    }
+
+    // Tests_SRS_MODULEAUTHENTICATIONWITHHSM_34_013: [If the scheduled renewal fails after the sas token
+    // expired, it shall not be scheduled again.]
+    @Test
+    public void renewSasTokenAheadOfExpiryStopsRetryingOnceTokenExpired() throws IOException, TransportException, URISyntaxException, HsmException
+    {
+        //arrange
+        IotHubSasTokenHsmAuthenticationProvider auth = createProviderWithFailingRenewals();
+        ScheduledFuture<?> firstRenewal = Deencapsulation.getField(auth, "scheduledRenewal");
+        Deencapsulation.setField(auth, "sasTokenExpiryTime", 0L);
+
+        //act
+        Deencapsulation.invoke(auth, "renewSasTokenAheadOfExpiry");
+
+        //assert
+        ScheduledFuture<?> scheduledRenewal = Deencapsulation.getField(auth, "scheduledRenewal");
+        assertTrue(scheduledRenewal == firstRenewal);
+    }
+
+    // Tests_SRS_MODULEAUTHENTICATIONWITHHSM_34_011: [This function shall cancel the scheduled renewal, and
+    // no renewal shall be scheduled until the sas token is refreshed again.]
+    @Test
+    public void stopRenewalCancelsScheduledRenewal() throws IOException, TransportException, URISyntaxException, HsmException
+    {
+        //arrange
+        IotHubSasTokenHsmAuthenticationProvider auth = createProviderWithFailingRenewals();
+        ScheduledFuture<?> firstRenewal = Deencapsulation.getField(auth, "scheduledRenewal");
+
+        //act
+        auth.stopRenewal();
+        Deencapsulation.invoke(auth, "renewSasTokenAheadOfExpiry");
+
+        //assert
+        assertTrue(firstRenewal.isCancelled());
+        assertNull(Deencapsulation.getField(auth, "scheduledRenewal"));
+    }
+
+    // Tests_SRS_MODULEAUTHENTICATIONWITHHSM_34_012: [This function shall resume the renewals ahead of expiry if they were stopped.]
+    @Test
+    public void refreshSasTokenResumesStoppedRenewal() throws IOException, TransportException, URISyntaxException, HsmException
+    {
+        //arrange
+        new MockUp<System>()
+        {
+            @Mock long currentTimeMillis()
+            {
+                return 0;
+            }
+        };
+        new NonStrictExpectations()
+        {
+            {
+                mockedSignatureProvider.sign("module", anyString, anyString);
+                result = expectedSignature;
+            }
+        };
+
+        IotHubSasTokenHsmAuthenticationProvider auth = IotHubSasTokenHsmAuthenticationProvider.create(mockedSignatureProvider, expectedDeviceId, expectedModuleId, expectedHostname, "", "gen1", expectedTimeToLive, expectedBufferPercent);
+        setProviderFields(auth);
+        auth.stopRenewal();
+
+        //act
+        auth.refreshSasToken();
+
+        //assert
+        ScheduledFuture<?> scheduledRenewal = Deencapsulation.getField(auth, "scheduledRenewal");
+        assertNotNull(scheduledRenewal);
+        assertFalse(scheduledRenewal.isDone());
+    }
+
+    // The first signature succeeds so that the provider can be created, and every renewal fails
+    private IotHubSasTokenHsmAuthenticationProvider createProviderWithFailingRenewals() throws IOException, TransportException, URISyntaxException, HsmException
+    {
+        new MockUp<System>()
+        {
+            @Mock long currentTimeMillis()
+            {
+                return 0;
+            }
+        };
+        new NonStrictExpectations()
+        {
+            {
+                mockedSignatureProvider.sign("module", anyString, anyString);
+                result = expectedSignature;
+                result = new HsmException("some error");
+            }
+        };
+
+        IotHubSasTokenHsmAuthenticationProvider auth = IotHubSasTokenHsmAuthenticationProvider.create(mockedSignatureProvider, expectedDeviceId, expectedModuleId, expectedHostname, "", "gen1", expectedTimeToLive, expectedBufferPercent);
+        setProviderFields(auth);
+        return auth;
+    }
+
+    // The mocked base class leaves the fields of the provider unset
+    private static void setProviderFields(IotHubSasTokenHsmAuthenticationProvider auth)
+    {
+        Deencapsulation.setField(auth, "hostname", expectedHostname);
+        Deencapsulation.setField(auth, "gatewayHostname", "");
+        Deencapsulation.setField(auth, "deviceId", expectedDeviceId);
+        Deencapsulation.setField(auth, "moduleId", expectedModuleId);
+        Deencapsulation.setField(auth, "tokenValidSecs", expectedTimeToLive);
+        Deencapsulation.setField(auth, "timeBufferPercentage", expectedBufferPercent);
+    }
 }
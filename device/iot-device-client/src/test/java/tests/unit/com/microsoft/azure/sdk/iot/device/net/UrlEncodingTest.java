@@ -0,0 +1,52 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See LICENSE file in the project root for full license information.
+
+package tests.unit.com.microsoft.azure.sdk.iot.device.net;
+
+import com.microsoft.azure.sdk.iot.device.net.UrlEncoding;
+import org.junit.Test;
+
+import java.io.UnsupportedEncodingException;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.assertEquals;
+
+/** Unit tests for UrlEncoding. */
+public class UrlEncodingTest
+{
+    private static String encode(String value) throws UnsupportedEncodingException
+    {
+        StringBuilder builder = new StringBuilder("prefix");
+        UrlEncoding.appendEncoded(builder, value);
+        return builder.substring("prefix".length());
+    }
+
+    // Tests_SRS_URLENCODING_34_001: [If the value contains a character that URLEncoder changes, this function shall append the value encoded by URLEncoder using UTF-8.]
+    @Test
+    public void appendEncodedEncodesReservedCharacters() throws UnsupportedEncodingException
+    {
+        for (String value : new String[] {"a b", "a/b", "a&b=c", "100%", "caf\u00e9", "~"})
+        {
+            //act
+            String encoded = encode(value);
+
+            //assert
+            assertEquals(URLEncoder.encode(value, StandardCharsets.UTF_8.name()), encoded);
+        }
+    }
+
+    // Tests_SRS_URLENCODING_34_002: [If the value contains only characters that URLEncoder leaves as they are, this function shall append the value as it is.]
+    @Test
+    public void appendEncodedAppendsUnreservedCharactersAsTheyAre() throws UnsupportedEncodingException
+    {
+        //arrange
+        String value = "azAZ09.-*_";
+
+        //act
+        String encoded = encode(value);
+
+        //assert
+        assertEquals(value, encoded);
+    }
+}
@@ -81,4 +81,73 @@ public class IotHubSendTaskTest
         IotHubSendTask sendTask = new IotHubSendTask(mockTransport);
         sendTask.run();
     }
+
+    // Tests_SRS_IOTHUBSENDTASK_34_009: [The function shall send and invoke callbacks again each time the transport signals that there is more work, until it is stopped or the thread is interrupted.]
+    @Test
+    public void runSendsAgainEachTimeTransportSignalsWork()
+    {
+        new NonStrictExpectations()
+        {
+            {
+                mockTransport.waitForSendWork();
+                returns(true, true, false);
+            }
+        };
+
+        IotHubSendTask sendTask = new IotHubSendTask(mockTransport);
+        sendTask.run();
+
+        new Verifications()
+        {
+            {
+                mockTransport.sendMessages();
+                times = 3;
+                mockTransport.invokeCallbacks();
+                times = 3;
+            }
+        };
+    }
+
+    // Tests_SRS_IOTHUBSENDTASK_34_009: [The function shall send and invoke callbacks again each time the transport signals that there is more work, until it is stopped or the thread is interrupted.]
+    @Test
+    public void runReturnsAfterOnePassIfStopped()
+    {
+        new NonStrictExpectations()
+        {
+            {
+                mockTransport.waitForSendWork();
+                result = true;
+            }
+        };
+
+        IotHubSendTask sendTask = new IotHubSendTask(mockTransport);
+        sendTask.stop();
+        sendTask.run();
+
+        new Verifications()
+        {
+            {
+                mockTransport.sendMessages();
+                times = 1;
+                mockTransport.waitForSendWork();
+                times = 0;
+            }
+        };
+    }
+
+    // Tests_SRS_IOTHUBSENDTASK_34_010: [The function shall mark the task as stopped and signal the transport to wake the send thread.]
+    @Test
+    public void stopSignalsTransport()
+    {
+        IotHubSendTask sendTask = new IotHubSendTask(mockTransport);
+        sendTask.stop();
+
+        new Verifications()
+        {
+            {
+                mockTransport.signalSendWork();
+                times = 1;
+            }
+        };
+    }
 }
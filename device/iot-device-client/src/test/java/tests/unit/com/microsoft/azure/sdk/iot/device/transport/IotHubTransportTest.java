@@ -6,13 +6,16 @@ package tests.unit.com.microsoft.azure.sdk.iot.device.transport;
 import com.microsoft.azure.sdk.iot.device.*;
 import com.microsoft.azure.sdk.iot.device.exceptions.DeviceClientException;
 import com.microsoft.azure.sdk.iot.device.exceptions.IotHubServiceException;
+import com.microsoft.azure.sdk.iot.device.exceptions.IotHubSizeExceededException;
 import com.microsoft.azure.sdk.iot.device.exceptions.TransportException;
 import com.microsoft.azure.sdk.iot.device.exceptions.UnauthorizedException;
 import com.microsoft.azure.sdk.iot.device.transport.*;
 import com.microsoft.azure.sdk.iot.device.transport.amqps.AmqpsIotHubConnection;
 import com.microsoft.azure.sdk.iot.device.transport.amqps.exceptions.AmqpConnectionThrottledException;
 import com.microsoft.azure.sdk.iot.device.transport.amqps.exceptions.AmqpUnauthorizedAccessException;
+import com.microsoft.azure.sdk.iot.device.transport.https.HttpsBatchMessage;
 import com.microsoft.azure.sdk.iot.device.transport.https.HttpsIotHubConnection;
+import com.microsoft.azure.sdk.iot.device.transport.https.HttpsSingleMessage;
 import com.microsoft.azure.sdk.iot.device.transport.mqtt.MqttIotHubConnection;
 import com.microsoft.azure.sdk.iot.device.transport.mqtt.exceptions.MqttUnauthorizedException;
 import mockit.*;
@@ -189,6 +192,60 @@ public class IotHubTransportTest
         };
     }
 
+    //Tests_SRS_IOTHUBTRANSPORT_34_080: [This function shall signal the send thread, since a slot in the in progress
+    // window has been freed.]
+    @Test
+    public void onMessageSentSignalsSendThread()
+    {
+        //arrange
+        final IotHubTransport transport = new IotHubTransport(mockedConfig);
+        final String messageId = "1234";
+        Deencapsulation.setField(transport, "connectionStatus", CONNECTED);
+        new NonStrictExpectations()
+        {
+            {
+                mockedMessage.getMessageId();
+                result = messageId;
+            }
+        };
+
+        //act
+        transport.onMessageSent(mockedMessage, null);
+
+        //assert
+        assertTrue((boolean) Deencapsulation.getField(transport, "hasSendWork"));
+    }
+
+    //Tests_SRS_IOTHUBTRANSPORT_34_095: [If there was no packet in the inProgressPackets queue tied to the
+    // provided message, this function shall log an error with the message id of the provided message.]
+    @Test
+    public void onMessageSentLogsMessageIdIfNotInProgress()
+    {
+        //arrange
+        final IotHubTransport transport = new IotHubTransport(mockedConfig);
+        final String messageId = "1234";
+        Deencapsulation.setField(transport, "connectionStatus", CONNECTED);
+        new NonStrictExpectations()
+        {
+            {
+                mockedMessage.getMessageId();
+                result = messageId;
+            }
+        };
+
+        //act
+        transport.onMessageSent(mockedMessage, null);
+
+        //assert
+        new Verifications()
+        {
+            {
+                mockedLogger.LogError(anyString, messageId);
+                times = 1;
+            }
+        };
+    }
+
     //Tests_SRS_IOTHUBTRANSPORT_34_007: [If there was a packet in the inProgressPackets queue tied to the provided message, and the provided throwable is not a TransportException, this function shall call "handleMessageException" with the provided packet and a new transport exception with the provided exception as the inner exception.]
     @Test
     public void onMessageSentRetrievesFromInProgressAndCallsHandleMessageExceptionForNonTransportException()
@@ -1126,6 +1183,21 @@ public class IotHubTransportTest
         assertEquals(1, waitingPacketsQueue.size());
     }
 
+    //Tests_SRS_IOTHUBTRANSPORT_34_081: [This function shall signal the send thread that there is a packet to send.]
+    @Test
+    public void addMessageSignalsSendThread()
+    {
+        //arrange
+        IotHubTransport transport = new IotHubTransport(mockedConfig);
+        Deencapsulation.setField(transport, "connectionStatus", CONNECTED);
+
+        //act
+        transport.addMessage(mockedMessage, mockedEventCallback, new Object());
+
+        //assert
+        assertTrue((boolean) Deencapsulation.getField(transport, "hasSendWork"));
+    }
+
     //Tests_SRS_IOTHUBTRANSPORT_34_043: [If the connection status of this object is not CONNECTED, this function shall do nothing]
     @Test
     public void sendMessagesDoesNothingIfNotConnected()
@@ -1145,9 +1217,10 @@ public class IotHubTransportTest
     }
 
     //Tests_SRS_IOTHUBTRANSPORT_34_044: [This function continue to dequeue packets saved in the waiting
-    // queue and send them until connection status isn't CONNECTED or until 10 messages have been sent]
+    // queue and send them until connection status isn't CONNECTED, the waiting queue is empty, or the in progress
+    // window is full.]
     @Test
-    public void sendMessagesSendsMessages()
+    public void sendMessagesSendsAllMessages()
     {
         //arrange
         new MockUp<IotHubTransport>()
@@ -1159,10 +1232,9 @@ public class IotHubTransportTest
         };
 
         final IotHubTransport transport = new IotHubTransport(mockedConfig);
-        final int MAX_MESSAGES_TO_SEND_PER_THREAD = Deencapsulation.getField(transport, "MAX_MESSAGES_TO_SEND_PER_THREAD");
         Deencapsulation.setField(transport, "connectionStatus", CONNECTED);
         Queue<IotHubTransportPacket> waitingPacketsQueue = new ConcurrentLinkedQueue<>();
-        for (int i = 0; i < MAX_MESSAGES_TO_SEND_PER_THREAD + 1; i++)
+        for (int i = 0; i < 25; i++)
         {
             waitingPacketsQueue.add(mockedPacket);
         }
@@ -1172,10 +1244,537 @@ public class IotHubTransportTest
         //act
         transport.sendMessages();
 
+        //assert
+        assertTrue(waitingPacketsQueue.isEmpty());
+    }
+
+    //Tests_SRS_IOTHUBTRANSPORT_34_044: [This function continue to dequeue packets saved in the waiting
+    // queue and send them until connection status isn't CONNECTED, the waiting queue is empty, or the in progress
+    // window is full.]
+    @Test
+    public void sendMessagesStopsWhenInProgressWindowIsFull()
+    {
+        //arrange
+        new MockUp<IotHubTransport>()
+        {
+            @Mock void sendPacket(IotHubTransportPacket packet)
+            {
+                //do nothing
+            }
+        };
+
+        final IotHubTransport transport = new IotHubTransport(mockedConfig);
+        final int MAX_IN_PROGRESS_PACKETS = Deencapsulation.getField(transport, "MAX_IN_PROGRESS_PACKETS");
+        Deencapsulation.setField(transport, "connectionStatus", CONNECTED);
+        Map<String, IotHubTransportPacket> inProgressPackets = new ConcurrentHashMap<>();
+        for (int i = 0; i < MAX_IN_PROGRESS_PACKETS; i++)
+        {
+            inProgressPackets.put(String.valueOf(i), mockedPacket);
+        }
+
+        Queue<IotHubTransportPacket> waitingPacketsQueue = new ConcurrentLinkedQueue<>();
+        waitingPacketsQueue.add(mockedPacket);
+        Deencapsulation.setField(transport, "inProgressPackets", inProgressPackets);
+        Deencapsulation.setField(transport, "waitingPacketsQueue", waitingPacketsQueue);
+
+        //act
+        transport.sendMessages();
+
         //assert
         assertEquals(1, waitingPacketsQueue.size());
     }
 
+    //Tests_SRS_IOTHUBTRANSPORT_34_096: [If the protocol is MQTT or MQTT_WS, the in progress window shall
+    // hold at least as many packets as the configured mqtt max in flight count.]
+    @Test
+    public void sendMessagesGrowsInProgressWindowToMqttMaxInFlightCount()
+    {
+        //arrange
+        new MockUp<IotHubTransport>()
+        {
+            @Mock void sendPacket(IotHubTransportPacket packet)
+            {
+                //do nothing
+            }
+        };
+
+        final IotHubTransport transport = new IotHubTransport(mockedConfig);
+        final int MAX_IN_PROGRESS_PACKETS = Deencapsulation.getField(transport, "MAX_IN_PROGRESS_PACKETS");
+        final int maxInFlightCount = MAX_IN_PROGRESS_PACKETS * 2;
+        Deencapsulation.setField(transport, "connectionStatus", CONNECTED);
+        Map<String, IotHubTransportPacket> inProgressPackets = new ConcurrentHashMap<>();
+        for (int i = 0; i < MAX_IN_PROGRESS_PACKETS; i++)
+        {
+            inProgressPackets.put(String.valueOf(i), mockedPacket);
+        }
+
+        Queue<IotHubTransportPacket> waitingPacketsQueue = new ConcurrentLinkedQueue<>();
+        waitingPacketsQueue.add(mockedPacket);
+        Deencapsulation.setField(transport, "inProgressPackets", inProgressPackets);
+        Deencapsulation.setField(transport, "waitingPacketsQueue", waitingPacketsQueue);
+        new NonStrictExpectations()
+        {
+            {
+                mockedConfig.getProtocol();
+                result = IotHubClientProtocol.MQTT;
+                mockedConfig.getMqttMaxInFlightCount();
+                result = maxInFlightCount;
+            }
+        };
+
+        //act
+        transport.sendMessages();
+
+        //assert
+        assertTrue(waitingPacketsQueue.isEmpty());
+    }
+
+    //Tests_SRS_IOTHUBTRANSPORT_34_088: [If the protocol is HTTPS and the configured https batch size is
+    // greater than 1, this function shall send the waiting packets in batches.]
+    //Tests_SRS_IOTHUBTRANSPORT_34_092: [This function shall send the batch over the https connection, which
+    // reports the single response status of the request back for every message in it.]
+    @Test
+    public void sendMessagesSendsWaitingPacketsAsOneHttpsBatch(@Mocked final HttpsBatchMessage mockedBatchMessage,
+                                                               @Mocked final HttpsSingleMessage mockedHttpsSingleMessage) throws TransportException, IotHubSizeExceededException
+    {
+        //arrange
+        final int[] packetsSentAlone = {0};
+        new MockUp<IotHubTransport>()
+        {
+            @Mock boolean isMessageValid(IotHubTransportPacket packet)
+            {
+                return true;
+            }
+
+            @Mock void sendPacket(IotHubTransportPacket packet)
+            {
+                packetsSentAlone[0]++;
+            }
+        };
+
+        final IotHubTransport transport = new IotHubTransport(mockedConfig);
+        Deencapsulation.setField(transport, "connectionStatus", CONNECTED);
+        Deencapsulation.setField(transport, "iotHubTransportConnection", mockedHttpsIotHubConnection);
+        Queue<IotHubTransportPacket> waitingPacketsQueue = new ConcurrentLinkedQueue<>();
+        waitingPacketsQueue.add(mockedPacket);
+        waitingPacketsQueue.add(mockedPacket);
+        waitingPacketsQueue.add(mockedPacket);
+        Deencapsulation.setField(transport, "waitingPacketsQueue", waitingPacketsQueue);
+
+        new NonStrictExpectations()
+        {
+            {
+                mockedConfig.getProtocol();
+                result = IotHubClientProtocol.HTTPS;
+                mockedConfig.getHttpsBatchSize();
+                result = 10;
+                mockedConfig.getHttpsBatchLingerMillis();
+                result = 0L;
+                mockedPacket.getMessage();
+                result = mockedMessage;
+                mockedMessage.getMessageId();
+                result = "messageId";
+            }
+        };
+
+        //act
+        transport.sendMessages();
+
+        //assert
+        assertTrue(waitingPacketsQueue.isEmpty());
+        assertEquals(0, packetsSentAlone[0]);
+        new Verifications()
+        {
+            {
+                mockedBatchMessage.addMessage((HttpsSingleMessage) any);
+                times = 3;
+                mockedHttpsIotHubConnection.sendBatchMessage((HttpsBatchMessage) any, (List<Message>) any);
+                times = 1;
+            }
+        };
+    }
+
+    //Tests_SRS_IOTHUBTRANSPORT_34_088: [If the protocol is HTTPS and the configured https batch size is
+    // greater than 1, this function shall send the waiting packets in batches.]
+    @Test
+    public void sendMessagesDoesNotBatchWhenHttpsBatchSizeIsOne() throws TransportException
+    {
+        //arrange
+        final int[] packetsSentAlone = {0};
+        new MockUp<IotHubTransport>()
+        {
+            @Mock void sendPacket(IotHubTransportPacket packet)
+            {
+                packetsSentAlone[0]++;
+            }
+        };
+
+        final IotHubTransport transport = new IotHubTransport(mockedConfig);
+        Deencapsulation.setField(transport, "connectionStatus", CONNECTED);
+        Deencapsulation.setField(transport, "iotHubTransportConnection", mockedHttpsIotHubConnection);
+        Queue<IotHubTransportPacket> waitingPacketsQueue = new ConcurrentLinkedQueue<>();
+        waitingPacketsQueue.add(mockedPacket);
+        waitingPacketsQueue.add(mockedPacket);
+        Deencapsulation.setField(transport, "waitingPacketsQueue", waitingPacketsQueue);
+
+        new NonStrictExpectations()
+        {
+            {
+                mockedConfig.getProtocol();
+                result = IotHubClientProtocol.HTTPS;
+                mockedConfig.getHttpsBatchSize();
+                result = 1;
+            }
+        };
+
+        //act
+        transport.sendMessages();
+
+        //assert
+        assertEquals(2, packetsSentAlone[0]);
+        new Verifications()
+        {
+            {
+                mockedHttpsIotHubConnection.sendBatchMessage((HttpsBatchMessage) any, (List<Message>) any);
+                times = 0;
+            }
+        };
+    }
+
+    //Tests_SRS_IOTHUBTRANSPORT_34_089: [If fewer packets than the batch size are waiting and the oldest
+    // of them has not waited for the configured linger time, this function shall not send them, and shall
+    // schedule the send thread to be signalled once the linger time has passed.]
+    @Test
+    public void sendMessagesHoldsBackPartialHttpsBatchWhileLingering(@Mocked final HttpsBatchMessage mockedBatchMessage) throws TransportException
+    {
+        //arrange
+        final IotHubTransport transport = new IotHubTransport(mockedConfig);
+        Deencapsulation.setField(transport, "connectionStatus", CONNECTED);
+        Deencapsulation.setField(transport, "iotHubTransportConnection", mockedHttpsIotHubConnection);
+        Deencapsulation.setField(transport, "taskScheduler", mockedTaskScheduler);
+        Queue<IotHubTransportPacket> waitingPacketsQueue = new ConcurrentLinkedQueue<>();
+        waitingPacketsQueue.add(mockedPacket);
+        Deencapsulation.setField(transport, "waitingPacketsQueue", waitingPacketsQueue);
+
+        new NonStrictExpectations()
+        {
+            {
+                mockedConfig.getProtocol();
+                result = IotHubClientProtocol.HTTPS;
+                mockedConfig.getHttpsBatchSize();
+                result = 10;
+                mockedConfig.getHttpsBatchLingerMillis();
+                result = 60000L;
+                mockedPacket.getStartTimeMillis();
+                result = System.currentTimeMillis();
+            }
+        };
+
+        //act
+        transport.sendMessages();
+        transport.sendMessages();
+
+        //assert
+        assertEquals(1, waitingPacketsQueue.size());
+        new Verifications()
+        {
+            {
+                mockedHttpsIotHubConnection.sendBatchMessage((HttpsBatchMessage) any, (List<Message>) any);
+                times = 0;
+                mockedTaskScheduler.schedule((Runnable) any, anyLong, TimeUnit.MILLISECONDS);
+                times = 1;
+            }
+        };
+    }
+
+    //Tests_SRS_IOTHUBTRANSPORT_34_089: [If fewer packets than the batch size are waiting and the oldest
+    // of them has not waited for the configured linger time, this function shall not send them, and shall
+    // schedule the send thread to be signalled once the linger time has passed.]
+    @Test
+    public void sendMessagesSendsFullHttpsBatchWithoutLingering(@Mocked final HttpsBatchMessage mockedBatchMessage,
+                                                                @Mocked final HttpsSingleMessage mockedHttpsSingleMessage) throws TransportException
+    {
+        //arrange
+        new MockUp<IotHubTransport>()
+        {
+            @Mock boolean isMessageValid(IotHubTransportPacket packet)
+            {
+                return true;
+            }
+        };
+
+        final IotHubTransport transport = new IotHubTransport(mockedConfig);
+        Deencapsulation.setField(transport, "connectionStatus", CONNECTED);
+        Deencapsulation.setField(transport, "iotHubTransportConnection", mockedHttpsIotHubConnection);
+        Deencapsulation.setField(transport, "taskScheduler", mockedTaskScheduler);
+        Queue<IotHubTransportPacket> waitingPacketsQueue = new ConcurrentLinkedQueue<>();
+        waitingPacketsQueue.add(mockedPacket);
+        waitingPacketsQueue.add(mockedPacket);
+        Deencapsulation.setField(transport, "waitingPacketsQueue", waitingPacketsQueue);
+
+        new NonStrictExpectations()
+        {
+            {
+                mockedConfig.getProtocol();
+                result = IotHubClientProtocol.HTTPS;
+                mockedConfig.getHttpsBatchSize();
+                result = 2;
+                mockedConfig.getHttpsBatchLingerMillis();
+                result = 60000L;
+                mockedPacket.getStartTimeMillis();
+                result = System.currentTimeMillis();
+                mockedPacket.getMessage();
+                result = mockedMessage;
+                mockedMessage.getMessageId();
+                result = "messageId";
+            }
+        };
+
+        //act
+        transport.sendMessages();
+
+        //assert
+        assertTrue(waitingPacketsQueue.isEmpty());
+        new Verifications()
+        {
+            {
+                mockedHttpsIotHubConnection.sendBatchMessage((HttpsBatchMessage) any, (List<Message>) any);
+                times = 1;
+                mockedTaskScheduler.schedule((Runnable) any, anyLong, (TimeUnit) any);
+                times = 0;
+            }
+        };
+    }
+
+    //Tests_SRS_IOTHUBTRANSPORT_34_090: [This function shall add waiting packets to the batch until the
+    // batch size is reached, the waiting queue is empty, or the next message would make the batch exceed
+    // the maximum size of a batched request. That message is left in the waiting queue.]
+    @Test
+    public void sendMessagesStartsNewHttpsBatchWhenMessageDoesNotFit(@Mocked final HttpsBatchMessage mockedBatchMessage,
+                                                                     @Mocked final HttpsSingleMessage mockedHttpsSingleMessage) throws TransportException, IotHubSizeExceededException
+    {
+        //arrange
+        final int[] packetsSentAlone = {0};
+        new MockUp<IotHubTransport>()
+        {
+            @Mock boolean isMessageValid(IotHubTransportPacket packet)
+            {
+                return true;
+            }
+
+            @Mock void sendPacket(IotHubTransportPacket packet)
+            {
+                packetsSentAlone[0]++;
+            }
+        };
+
+        final IotHubTransport transport = new IotHubTransport(mockedConfig);
+        Deencapsulation.setField(transport, "connectionStatus", CONNECTED);
+        Deencapsulation.setField(transport, "iotHubTransportConnection", mockedHttpsIotHubConnection);
+        Queue<IotHubTransportPacket> waitingPacketsQueue = new ConcurrentLinkedQueue<>();
+        waitingPacketsQueue.add(mockedPacket);
+        waitingPacketsQueue.add(mockedPacket);
+        waitingPacketsQueue.add(mockedPacket);
+        Deencapsulation.setField(transport, "waitingPacketsQueue", waitingPacketsQueue);
+
+        new NonStrictExpectations()
+        {
+            {
+                mockedConfig.getProtocol();
+                result = IotHubClientProtocol.HTTPS;
+                mockedConfig.getHttpsBatchSize();
+                result = 10;
+                mockedConfig.getHttpsBatchLingerMillis();
+                result = 0L;
+                mockedPacket.getMessage();
+                result = mockedMessage;
+                mockedMessage.getMessageId();
+                result = "messageId";
+                mockedBatchMessage.addMessage((HttpsSingleMessage) any);
+                result = new Delegate()
+                {
+                    int calls = 0;
+
+                    @SuppressWarnings("unused")
+                    void addMessage(HttpsSingleMessage message) throws IotHubSizeExceededException
+                    {
+                        if (++calls == 3)
+                        {
+                            throw new IotHubSizeExceededException("batch is full");
+                        }
+                    }
+                };
+            }
+        };
+
+        //act
+        transport.sendMessages();
+
+        //assert
+        assertTrue(waitingPacketsQueue.isEmpty());
+        assertEquals(1, packetsSentAlone[0]);
+        new Verifications()
+        {
+            {
+                mockedHttpsIotHubConnection.sendBatchMessage((HttpsBatchMessage) any, (List<Message>) any);
+                times = 1;
+            }
+        };
+    }
+
+    //Tests_SRS_IOTHUBTRANSPORT_34_094: [A message whose body is a stream shall not be batched. If no packet
+    // was added to the batch yet, this function shall send it on its own, otherwise it is left in the
+    // waiting queue.]
+    @Test
+    public void sendMessagesSendsStreamedMessagesOnTheirOwn(@Mocked final HttpsBatchMessage mockedBatchMessage) throws TransportException, IotHubSizeExceededException
+    {
+        //arrange
+        final int[] packetsSentAlone = {0};
+        new MockUp<IotHubTransport>()
+        {
+            @Mock boolean isMessageValid(IotHubTransportPacket packet)
+            {
+                return true;
+            }
+
+            @Mock void sendPacket(IotHubTransportPacket packet)
+            {
+                packetsSentAlone[0]++;
+            }
+        };
+
+        final IotHubTransport transport = new IotHubTransport(mockedConfig);
+        Deencapsulation.setField(transport, "connectionStatus", CONNECTED);
+        Deencapsulation.setField(transport, "iotHubTransportConnection", mockedHttpsIotHubConnection);
+        Queue<IotHubTransportPacket> waitingPacketsQueue = new ConcurrentLinkedQueue<>();
+        waitingPacketsQueue.add(mockedPacket);
+        waitingPacketsQueue.add(mockedPacket);
+        Deencapsulation.setField(transport, "waitingPacketsQueue", waitingPacketsQueue);
+
+        new NonStrictExpectations()
+        {
+            {
+                mockedConfig.getProtocol();
+                result = IotHubClientProtocol.HTTPS;
+                mockedConfig.getHttpsBatchSize();
+                result = 10;
+                mockedConfig.getHttpsBatchLingerMillis();
+                result = 0L;
+                mockedPacket.getMessage();
+                result = mockedMessage;
+                mockedMessage.hasBodyStream();
+                result = true;
+            }
+        };
+
+        //act
+        transport.sendMessages();
+
+        //assert
+        assertTrue(waitingPacketsQueue.isEmpty());
+        assertEquals(2, packetsSentAlone[0]);
+        new Verifications()
+        {
+            {
+                mockedBatchMessage.addMessage((HttpsSingleMessage) any);
+                times = 0;
+                mockedHttpsIotHubConnection.sendBatchMessage((HttpsBatchMessage) any, (List<Message>) any);
+                times = 0;
+            }
+        };
+    }
+
+    //Tests_SRS_IOTHUBTRANSPORT_34_093: [If an exception is encountered while sending the batch, this
+    // function shall invoke handleMessageException with each packet of the batch.]
+    @Test
+    public void sendMessagesHandlesExceptionForEveryPacketInHttpsBatch(@Mocked final HttpsBatchMessage mockedBatchMessage,
+                                                                       @Mocked final HttpsSingleMessage mockedHttpsSingleMessage) throws TransportException
+    {
+        //arrange
+        final int[] packetsHandled = {0};
+        new MockUp<IotHubTransport>()
+        {
+            @Mock boolean isMessageValid(IotHubTransportPacket packet)
+            {
+                return true;
+            }
+
+            @Mock void handleMessageException(IotHubTransportPacket packet, TransportException transportException)
+            {
+                packetsHandled[0]++;
+            }
+        };
+
+        final IotHubTransport transport = new IotHubTransport(mockedConfig);
+        Deencapsulation.setField(transport, "connectionStatus", CONNECTED);
+        Deencapsulation.setField(transport, "iotHubTransportConnection", mockedHttpsIotHubConnection);
+        Queue<IotHubTransportPacket> waitingPacketsQueue = new ConcurrentLinkedQueue<>();
+        waitingPacketsQueue.add(mockedPacket);
+        waitingPacketsQueue.add(mockedPacket);
+        Deencapsulation.setField(transport, "waitingPacketsQueue", waitingPacketsQueue);
+
+        new NonStrictExpectations()
+        {
+            {
+                mockedConfig.getProtocol();
+                result = IotHubClientProtocol.HTTPS;
+                mockedConfig.getHttpsBatchSize();
+                result = 10;
+                mockedConfig.getHttpsBatchLingerMillis();
+                result = 0L;
+                mockedPacket.getMessage();
+                result = mockedMessage;
+                mockedMessage.getMessageId();
+                returns("1", "2", "1", "2");
+                mockedHttpsIotHubConnection.sendBatchMessage((HttpsBatchMessage) any, (List<Message>) any);
+                result = mockedTransportException;
+            }
+        };
+
+        //act
+        transport.sendMessages();
+
+        //assert
+        assertEquals(2, packetsHandled[0]);
+        Map<String, IotHubTransportPacket> inProgressPackets = Deencapsulation.getField(transport, "inProgressPackets");
+        assertTrue(inProgressPackets.isEmpty());
+    }
+
+    //Tests_SRS_IOTHUBTRANSPORT_34_082: [This function shall wait until the send thread has been signalled
+    // and then clear the signal and return true.]
+    //Tests_SRS_IOTHUBTRANSPORT_34_084: [This function shall signal the send thread and wake it up if it is waiting.]
+    @Test
+    public void waitForSendWorkReturnsOnceSignalled()
+    {
+        //arrange
+        IotHubTransport transport = new IotHubTransport(mockedConfig);
+        transport.signalSendWork();
+
+        //act
+        boolean hasWork = transport.waitForSendWork();
+
+        //assert
+        assertTrue(hasWork);
+        assertFalse((boolean) Deencapsulation.getField(transport, "hasSendWork"));
+    }
+
+    //Tests_SRS_IOTHUBTRANSPORT_34_083: [If the waiting thread is interrupted, this function shall restore
+    // the interrupt flag and return false.]
+    @Test
+    public void waitForSendWorkReturnsFalseIfInterrupted()
+    {
+        //arrange
+        IotHubTransport transport = new IotHubTransport(mockedConfig);
+        Thread.currentThread().interrupt();
+
+        //act
+        boolean hasWork = transport.waitForSendWork();
+
+        //assert
+        assertFalse(hasWork);
+        assertTrue(Thread.interrupted());
+    }
+
     //Tests_SRS_IOTHUBTRANSPORT_34_045: [This function shall dequeue each packet in the callback queue and execute
     // their saved callback with their saved status and context]
     @Test
@@ -2150,6 +2749,8 @@ public class IotHubTransportTest
     //Tests_SRS_IOTHUBTRANSPORT_28_005:[This function shall updated the saved connection status if the connection status has changed.]
     //Tests_SRS_IOTHUBTRANSPORT_28_006:[This function shall invoke all callbacks listening for the state change if the connection status has changed.]
     //Tests_SRS_IOTHUBTRANSPORT_28_007: [This function shall reset currentReconnectionAttempt and reconnectionAttemptStartTimeMillis if connection status is changed to CONNECTED.]
+    //Tests_SRS_IOTHUBTRANSPORT_34_086: [If the connection status is changed to CONNECTED, this function shall
+    // signal the send thread so that packets queued while disconnected are sent.]
     @Test
     public void updateStatusConnectionStatusChangedToConnected()
     {
@@ -2177,6 +2778,7 @@ public class IotHubTransportTest
         assertEquals(0, Deencapsulation.getField(transport, "currentReconnectionAttempt"));
         assertEquals(0L, Deencapsulation.getField(transport, "reconnectionAttemptStartTimeMillis"));
         assertTrue(methodsCalled.toString().equalsIgnoreCase("invokeConnectionStatusChangeCallback"));
+        assertTrue((boolean) Deencapsulation.getField(transport, "hasSendWork"));
     }
 
     //Tests_SRS_IOTHUBTRANSPORT_28_005:[This function shall updated the saved connection status if the connection status has changed.]
@@ -289,6 +289,14 @@ public class AmqpsDeviceMethodsTest
         AmqpsDeviceMethods amqpsDeviceMethods = Deencapsulation.newInstance(AmqpsDeviceMethods.class, mockDeviceClientConfig);
         Deencapsulation.invoke(amqpsDeviceMethods, "openLinks", mockSession);
 
+        new NonStrictExpectations()
+        {
+            {
+                mockSender.getCredit();
+                result = 1;
+            }
+        };
+
         //act
         AmqpsSendReturnValue amqpsSendReturnValue = Deencapsulation.invoke(amqpsDeviceMethods, "sendMessageAndGetDeliveryHash", MessageType.DEVICE_METHODS, bytes, 0, 1, bytes);
         boolean deliverySuccessful = Deencapsulation.invoke(amqpsSendReturnValue, "isDeliverySuccessful");
@@ -21,9 +21,11 @@ import org.apache.qpid.proton.engine.*;
 import org.apache.qpid.proton.message.impl.MessageImpl;
 import org.junit.Test;
 
+import java.nio.ByteBuffer;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Queue;
 import java.util.UUID;
 
 import static junit.framework.TestCase.assertFalse;
@@ -309,6 +311,23 @@ public class AmqpsDeviceOperationsTest
         };
     }
 
+    // Tests_SRS_AMQPSDEVICEOPERATIONS_34_050: [The function shall drop the messages waiting for credit on the sender link.]
+    @Test
+    public void closeLinksDropsQueuedMessages()
+    {
+        //arrange
+        final AmqpsDeviceOperations amqpsDeviceOperations = Deencapsulation.newInstance(AmqpsDeviceOperations.class, mockDeviceClientConfig, "", "", "", "", "", "");
+        Deencapsulation.setField(amqpsDeviceOperations, "senderLink", mockSender);
+        Deencapsulation.invoke(amqpsDeviceOperations, "sendMessageAndGetDeliveryHash", MessageType.DEVICE_TELEMETRY, new byte[1], 0, 1, new byte[1]);
+
+        //act
+        Deencapsulation.invoke(amqpsDeviceOperations, "closeLinks");
+
+        //assert
+        Queue<?> pendingDeliveries = Deencapsulation.getField(amqpsDeviceOperations, "pendingDeliveries");
+        assertTrue(pendingDeliveries.isEmpty());
+    }
+
     /*
     **Tests_SRS_AMQPSDEVICEOPERATIONS_12_011: [**If the sender link is not null the function shall closeNow it and sets it to null.**]**
     **Tests_SRS_AMQPSDEVICEOPERATIONS_12_012: [**If the receiver link is not null the function shall closeNow it and sets it to null.**]**
@@ -541,6 +560,8 @@ public class AmqpsDeviceOperationsTest
         new NonStrictExpectations()
         {
             {
+                mockSender.getCredit();
+                result = 1;
                 mockSender.delivery(deliveryTag);
                 result = mockDelivery;
                 mockDelivery.hashCode();
@@ -587,6 +608,8 @@ public class AmqpsDeviceOperationsTest
         new NonStrictExpectations()
         {
             {
+                mockSender.getCredit();
+                result = 1;
                 mockSender.delivery(deliveryTag);
                 result = mockDelivery;
                 mockSender.send(msgData, offset, length);
@@ -612,6 +635,142 @@ public class AmqpsDeviceOperationsTest
         };
     }
 
+    // Tests_SRS_AMQPSDEVICEOPERATIONS_34_049: [If the sender link has no credit or other messages are waiting for credit, the function shall queue a copy of the message data behind them and return a successful result.]
+    @Test
+    public void sendMessageAndGetDeliveryHashQueuesMessageIfSenderLinkHasNoCredit()
+    {
+        //arrange
+        AmqpsDeviceOperations amqpsDeviceOperations = Deencapsulation.newInstance(AmqpsDeviceOperations.class, mockDeviceClientConfig, "", "", "", "", "", "");
+        final byte[] msgData = new byte[] {1, 2, 3};
+        final byte[] deliveryTag = new byte[1];
+        Deencapsulation.setField(amqpsDeviceOperations, "senderLink", mockSender);
+
+        new NonStrictExpectations()
+        {
+            {
+                mockSender.getCredit();
+                result = 0;
+            }
+        };
+
+        //act
+        AmqpsSendReturnValue amqpsSendReturnValue = Deencapsulation.invoke(amqpsDeviceOperations, "sendMessageAndGetDeliveryHash", MessageType.DEVICE_TELEMETRY, msgData, 1, 2, deliveryTag);
+
+        //assert
+        boolean isDeliverySuccessful = Deencapsulation.invoke(amqpsSendReturnValue, "isDeliverySuccessful");
+        assertTrue(isDeliverySuccessful);
+        Queue<?> pendingDeliveries = Deencapsulation.getField(amqpsDeviceOperations, "pendingDeliveries");
+        assertEquals(1, pendingDeliveries.size());
+        byte[] queuedData = Deencapsulation.getField(pendingDeliveries.peek(), "msgData");
+        assertArrayEquals(new byte[] {2, 3}, queuedData);
+        new Verifications()
+        {
+            {
+                mockSender.delivery((byte[]) any);
+                times = 0;
+                mockSender.send((byte[]) any, anyInt, anyInt);
+                times = 0;
+            }
+        };
+    }
+
+    // Tests_SRS_AMQPSDEVICEOPERATIONS_34_052: [The function shall send the queued messages in order until the queue is empty or the sender link runs out of credit.]
+    @Test
+    public void onLinkFlowSendsQueuedMessagesWhileSenderLinkHasCredit()
+    {
+        //arrange
+        AmqpsDeviceOperations amqpsDeviceOperations = Deencapsulation.newInstance(AmqpsDeviceOperations.class, mockDeviceClientConfig, "", "", "", "", "", "");
+        final byte[] firstDeliveryTag = "1".getBytes();
+        final byte[] secondDeliveryTag = "2".getBytes();
+        final byte[] thirdDeliveryTag = "3".getBytes();
+        Deencapsulation.setField(amqpsDeviceOperations, "senderLink", mockSender);
+        Deencapsulation.setField(amqpsDeviceOperations, "senderLinkTag", "senderLinkTag");
+
+        new NonStrictExpectations()
+        {
+            {
+                mockSender.getCredit();
+                returns(0, 0, 0, 2, 1, 0);
+            }
+        };
+        Deencapsulation.invoke(amqpsDeviceOperations, "sendMessageAndGetDeliveryHash", MessageType.DEVICE_TELEMETRY, new byte[1], 0, 1, firstDeliveryTag);
+        Deencapsulation.invoke(amqpsDeviceOperations, "sendMessageAndGetDeliveryHash", MessageType.DEVICE_TELEMETRY, new byte[1], 0, 1, secondDeliveryTag);
+        Deencapsulation.invoke(amqpsDeviceOperations, "sendMessageAndGetDeliveryHash", MessageType.DEVICE_TELEMETRY, new byte[1], 0, 1, thirdDeliveryTag);
+
+        //act
+        boolean isSenderLink = Deencapsulation.invoke(amqpsDeviceOperations, "onLinkFlow", "senderLinkTag");
+
+        //assert
+        assertTrue(isSenderLink);
+        Queue<?> pendingDeliveries = Deencapsulation.getField(amqpsDeviceOperations, "pendingDeliveries");
+        assertEquals(1, pendingDeliveries.size());
+        new Verifications()
+        {
+            {
+                mockSender.delivery(firstDeliveryTag);
+                times = 1;
+                mockSender.delivery(secondDeliveryTag);
+                times = 1;
+                mockSender.delivery(thirdDeliveryTag);
+                times = 0;
+                mockSender.advance();
+                times = 2;
+            }
+        };
+    }
+
+    // Tests_SRS_AMQPSDEVICEOPERATIONS_34_051: [If the sender link is not initialized or the linkName is not its tag, the function shall return false.]
+    @Test
+    public void onLinkFlowReturnsFalseForOtherLinks()
+    {
+        //arrange
+        AmqpsDeviceOperations amqpsDeviceOperations = Deencapsulation.newInstance(AmqpsDeviceOperations.class, mockDeviceClientConfig, "", "", "", "", "", "");
+        Deencapsulation.setField(amqpsDeviceOperations, "senderLink", mockSender);
+        Deencapsulation.setField(amqpsDeviceOperations, "senderLinkTag", "senderLinkTag");
+
+        //act
+        boolean isSenderLink = Deencapsulation.invoke(amqpsDeviceOperations, "onLinkFlow", "receiverLinkTag");
+
+        //assert
+        assertFalse(isSenderLink);
+        new Verifications()
+        {
+            {
+                mockSender.getCredit();
+                times = 0;
+            }
+        };
+    }
+
+    // Tests_SRS_AMQPSDEVICEOPERATIONS_34_053: [If proton fails to send a queued message, the function shall leave it at the head of the queue and stop.]
+    @Test
+    public void onLinkFlowKeepsQueuedMessageIfSendFails()
+    {
+        //arrange
+        AmqpsDeviceOperations amqpsDeviceOperations = Deencapsulation.newInstance(AmqpsDeviceOperations.class, mockDeviceClientConfig, "", "", "", "", "", "");
+        Deencapsulation.setField(amqpsDeviceOperations, "senderLink", mockSender);
+        Deencapsulation.setField(amqpsDeviceOperations, "senderLinkTag", "senderLinkTag");
+
+        new NonStrictExpectations()
+        {
+            {
+                mockSender.getCredit();
+                returns(0, 1);
+                mockSender.send((byte[]) any, anyInt, anyInt);
+                result = new IllegalStateException();
+            }
+        };
+        Deencapsulation.invoke(amqpsDeviceOperations, "sendMessageAndGetDeliveryHash", MessageType.DEVICE_TELEMETRY, new byte[1], 0, 1, new byte[1]);
+
+        //act
+        boolean isSenderLink = Deencapsulation.invoke(amqpsDeviceOperations, "onLinkFlow", "senderLinkTag");
+
+        //assert
+        assertTrue(isSenderLink);
+        Queue<?> pendingDeliveries = Deencapsulation.getField(amqpsDeviceOperations, "pendingDeliveries");
+        assertEquals(1, pendingDeliveries.size());
+    }
+
     /*
     **Tests_SRS_AMQPSDEVICEOPERATIONS_12_036: [**The function shall throw IllegalArgumentException if the linkName is empty.**]**
     */
@@ -1025,6 +1184,26 @@ public class AmqpsDeviceOperationsTest
         assertTrue(protonMessage != null);
     }
 
+    //Tests_SRS_AMQPSDEVICEOPERATION_34_055: [The Proton message body shall share the array that holds the IoTHubMessage body, at its offset and length, without copying it.]
+    @Test
+    public void convertToProtonSharesBodyArray()
+    {
+        //arrange
+        final byte[] pooledBuffer = new byte[] { 1, 2, 3, 4, 5, 6, 7, 8 };
+        ByteBuffer bodyBuffer = ByteBuffer.wrap(pooledBuffer, 2, 3);
+        Message message = new Message(bodyBuffer.slice());
+        AmqpsDeviceOperations amqpsDeviceOperation = Deencapsulation.newInstance(AmqpsDeviceOperations.class, mockDeviceClientConfig, "some string", "some string", "some string", "some string", "some string", "some string");
+
+        //act
+        MessageImpl protonMessage = Deencapsulation.invoke(amqpsDeviceOperation, "iotHubMessageToProtonMessage", message);
+
+        //assert
+        Binary binary = ((Data) protonMessage.getBody()).getValue();
+        assertSame(pooledBuffer, binary.getArray());
+        assertEquals(2, binary.getArrayOffset());
+        assertEquals(3, binary.getLength());
+    }
+
     // Tests_SRS_AMQPSDEVICEOPERATION_34_025: [The function shall create a new empty buffer for message body if the proton message body is null.]
     @Test
     public void convertFromProtonEmptyBodySuccess(
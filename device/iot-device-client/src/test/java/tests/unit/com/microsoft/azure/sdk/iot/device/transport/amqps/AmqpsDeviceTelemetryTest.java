@@ -301,6 +301,14 @@ public class AmqpsDeviceTelemetryTest
         final int length = 1;
         final byte[] deliveryTag = new byte[1];
 
+        new NonStrictExpectations()
+        {
+            {
+                mockSender.getCredit();
+                result = 1;
+            }
+        };
+
         //act
         AmqpsSendReturnValue amqpsSendReturnValue = Deencapsulation.invoke(amqpsDeviceTelemetry, "sendMessageAndGetDeliveryHash", MessageType.DEVICE_TELEMETRY, msgData, offset, length, deliveryTag);
             boolean deliverySuccessful = Deencapsulation.invoke(amqpsSendReturnValue, "isDeliverySuccessful");
@@ -320,6 +320,14 @@ public class AmqpsDeviceTwinTest
         AmqpsDeviceTwin amqpsDeviceTwin = Deencapsulation.newInstance(AmqpsDeviceTwin.class, mockDeviceClientConfig);
         Deencapsulation.invoke(amqpsDeviceTwin, "openLinks", mockSession);
 
+        new NonStrictExpectations()
+        {
+            {
+                mockSender.getCredit();
+                result = 1;
+            }
+        };
+
         //act
 
 
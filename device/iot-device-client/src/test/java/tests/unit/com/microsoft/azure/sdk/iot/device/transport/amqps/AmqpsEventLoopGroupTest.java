@@ -0,0 +1,360 @@
+/*
+*  Copyright (c) Microsoft. All rights reserved.
+*  Licensed under the MIT license. See LICENSE file in the project root for full license information.
+*/
+
+package tests.unit.com.microsoft.azure.sdk.iot.device.transport.amqps;
+
+import com.microsoft.azure.sdk.iot.device.transport.amqps.AmqpsEventLoopGroup;
+import com.microsoft.azure.sdk.iot.device.transport.amqps.AmqpsIotHubConnection;
+import com.microsoft.azure.sdk.iot.device.transport.amqps.IotHubReactor;
+import mockit.Deencapsulation;
+import mockit.Mocked;
+import mockit.NonStrictExpectations;
+import mockit.Verifications;
+import org.apache.qpid.proton.engine.HandlerException;
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static junit.framework.TestCase.assertEquals;
+import static junit.framework.TestCase.assertTrue;
+
+/**
+ * Unit tests for AmqpsEventLoopGroup.java
+ * The event loops run on real threads; the reactors and connections they drive are mocked.
+ */
+public class AmqpsEventLoopGroupTest
+{
+    private static final long WAIT_SECONDS = 5;
+
+    @Mocked
+    IotHubReactor mockIotHubReactor;
+
+    @Mocked
+    AmqpsIotHubConnection mockConnection;
+
+    @Mocked
+    HandlerException mockHandlerException;
+
+    private static CountDownLatch register(AmqpsEventLoopGroup group, IotHubReactor reactor, AmqpsIotHubConnection connection)
+    {
+        return Deencapsulation.invoke(group, "register", new Class[] {IotHubReactor.class, AmqpsIotHubConnection.class}, reactor, connection);
+    }
+
+    // Tests_SRS_AMQPSEVENTLOOPGROUP_34_001: [If the provided thread count is less than 1, the constructor shall throw an IllegalArgumentException.]
+    @Test (expected = IllegalArgumentException.class)
+    public void constructorThrowsForZeroThreads()
+    {
+        //act
+        new AmqpsEventLoopGroup(0);
+    }
+
+    // Tests_SRS_AMQPSEVENTLOOPGROUP_34_002: [The constructor shall start one event loop thread per the provided thread count.]
+    // Tests_SRS_AMQPSEVENTLOOPGROUP_34_003: [The constructor shall create a scheduler with the provided thread count.]
+    // Tests_SRS_AMQPSEVENTLOOPGROUP_34_007: [This function shall return the scheduler of the group.]
+    @Test
+    public void constructorStartsEventLoopsAndScheduler()
+    {
+        //act
+        AmqpsEventLoopGroup group = new AmqpsEventLoopGroup(2);
+
+        //assert
+        try
+        {
+            Thread[] threads = Deencapsulation.getField(group, "threads");
+            assertEquals(2, threads.length);
+            for (Thread thread : threads)
+            {
+                assertTrue(thread.isAlive());
+            }
+
+            ScheduledExecutorService scheduler = group.getScheduler();
+            assertEquals(Deencapsulation.getField(group, "scheduler"), scheduler);
+            assertTrue(!scheduler.isShutdown());
+        }
+        finally
+        {
+            group.close();
+        }
+    }
+
+    // Tests_SRS_AMQPSEVENTLOOPGROUP_34_004: [If the provided reactor or connection is null, this function shall throw an IllegalArgumentException.]
+    @Test (expected = IllegalArgumentException.class)
+    public void registerThrowsForNullReactor()
+    {
+        //arrange
+        AmqpsEventLoopGroup group = new AmqpsEventLoopGroup(1);
+
+        //act
+        try
+        {
+            register(group, null, mockConnection);
+        }
+        finally
+        {
+            group.close();
+        }
+    }
+
+    // Tests_SRS_AMQPSEVENTLOOPGROUP_34_004: [If the provided reactor or connection is null, this function shall throw an IllegalArgumentException.]
+    @Test (expected = IllegalArgumentException.class)
+    public void registerThrowsForNullConnection()
+    {
+        //arrange
+        AmqpsEventLoopGroup group = new AmqpsEventLoopGroup(1);
+
+        //act
+        try
+        {
+            register(group, mockIotHubReactor, null);
+        }
+        finally
+        {
+            group.close();
+        }
+    }
+
+    // Tests_SRS_AMQPSEVENTLOOPGROUP_34_005: [If the group is closed, this function shall throw an IllegalStateException.]
+    @Test (expected = IllegalStateException.class)
+    public void registerThrowsIfClosed()
+    {
+        //arrange
+        AmqpsEventLoopGroup group = new AmqpsEventLoopGroup(1);
+        group.close();
+
+        //act
+        register(group, mockIotHubReactor, mockConnection);
+    }
+
+    // Tests_SRS_AMQPSEVENTLOOPGROUP_34_006: [This function shall add the reactor to the event loop that runs the fewest reactors and return a latch that is released once that event loop is done with the reactor.]
+    // Tests_SRS_AMQPSEVENTLOOPGROUP_34_010: [Each event loop shall start the reactors added to it before its next pass.]
+    // Tests_SRS_AMQPSEVENTLOOPGROUP_34_011: [Each pass of an event loop shall process each of its reactors once, and finish and drop the reactors that stopped.]
+    @Test
+    public void registeredReactorIsStartedProcessedAndFinished() throws InterruptedException
+    {
+        //arrange
+        new NonStrictExpectations()
+        {
+            {
+                Deencapsulation.invoke(mockIotHubReactor, "process");
+                result = false;
+            }
+        };
+        AmqpsEventLoopGroup group = new AmqpsEventLoopGroup(1);
+
+        //act
+        CountDownLatch finished;
+        try
+        {
+            finished = register(group, mockIotHubReactor, mockConnection);
+            assertTrue(finished.await(WAIT_SECONDS, TimeUnit.SECONDS));
+        }
+        finally
+        {
+            group.close();
+        }
+
+        //assert
+        new Verifications()
+        {
+            {
+                Deencapsulation.invoke(mockIotHubReactor, "start");
+                times = 1;
+                Deencapsulation.invoke(mockIotHubReactor, "process");
+                times = 1;
+                Deencapsulation.invoke(mockIotHubReactor, "finish");
+                times = 1;
+            }
+        };
+    }
+
+    // Tests_SRS_AMQPSEVENTLOOPGROUP_34_006: [This function shall add the reactor to the event loop that runs the fewest reactors and return a latch that is released once that event loop is done with the reactor.]
+    @Test
+    public void registerPicksLeastLoadedEventLoop()
+    {
+        //arrange
+        new NonStrictExpectations()
+        {
+            {
+                Deencapsulation.invoke(mockIotHubReactor, "process");
+                result = true;
+            }
+        };
+        AmqpsEventLoopGroup group = new AmqpsEventLoopGroup(2);
+
+        //act
+        try
+        {
+            register(group, mockIotHubReactor, mockConnection);
+            register(group, mockIotHubReactor, mockConnection);
+
+            //assert
+            Object[] eventLoops = Deencapsulation.getField(group, "eventLoops");
+            for (Object eventLoop : eventLoops)
+            {
+                Object load = Deencapsulation.getField(eventLoop, "load");
+                assertEquals("1", load.toString());
+            }
+        }
+        finally
+        {
+            group.close();
+        }
+    }
+
+    // Tests_SRS_AMQPSEVENTLOOPGROUP_34_012: [If a reactor throws, the event loop shall drop it and report the error to its connection, and go on running its other reactors.]
+    @Test
+    public void reactorErrorIsReportedToConnection() throws InterruptedException
+    {
+        //arrange
+        new NonStrictExpectations()
+        {
+            {
+                Deencapsulation.invoke(mockIotHubReactor, "process");
+                result = mockHandlerException;
+            }
+        };
+        AmqpsEventLoopGroup group = new AmqpsEventLoopGroup(1);
+
+        //act
+        try
+        {
+            CountDownLatch finished = register(group, mockIotHubReactor, mockConnection);
+            assertTrue(finished.await(WAIT_SECONDS, TimeUnit.SECONDS));
+        }
+        finally
+        {
+            group.close();
+        }
+
+        //assert
+        new Verifications()
+        {
+            {
+                Deencapsulation.invoke(mockConnection, "onReactorError", mockHandlerException);
+                times = 1;
+                Deencapsulation.invoke(mockIotHubReactor, "finish");
+                times = 0;
+            }
+        };
+    }
+
+    // Tests_SRS_AMQPSEVENTLOOPGROUP_34_012: [If a reactor throws, the event loop shall drop it and report the error to its connection, and go on running its other reactors.]
+    @Test
+    public void reactorRuntimeExceptionDoesNotStopEventLoop() throws InterruptedException
+    {
+        //arrange
+        final IllegalStateException reactorException = new IllegalStateException("some error");
+        new NonStrictExpectations()
+        {
+            {
+                Deencapsulation.invoke(mockIotHubReactor, "process");
+                result = reactorException;
+                result = false;
+                Deencapsulation.invoke(mockConnection, "onReactorError", reactorException);
+                result = new IllegalStateException("reporting failed");
+            }
+        };
+        AmqpsEventLoopGroup group = new AmqpsEventLoopGroup(1);
+
+        //act
+        try
+        {
+            CountDownLatch failed = register(group, mockIotHubReactor, mockConnection);
+            assertTrue(failed.await(WAIT_SECONDS, TimeUnit.SECONDS));
+            CountDownLatch finished = register(group, mockIotHubReactor, mockConnection);
+            assertTrue(finished.await(WAIT_SECONDS, TimeUnit.SECONDS));
+        }
+        finally
+        {
+            group.close();
+        }
+
+        //assert
+        new Verifications()
+        {
+            {
+                Deencapsulation.invoke(mockConnection, "onReactorError", reactorException);
+                times = 1;
+                Deencapsulation.invoke(mockIotHubReactor, "finish");
+                times = 1;
+            }
+        };
+    }
+
+    // Tests_SRS_AMQPSEVENTLOOPGROUP_34_009: [This function shall mark the group as closed, wake every event loop so that it finishes its reactors and exits, and shut the scheduler down.]
+    // Tests_SRS_AMQPSEVENTLOOPGROUP_34_014: [Once the group is closed, each event loop shall finish all of its reactors and exit.]
+    @Test
+    public void closeFinishesRunningReactors() throws InterruptedException
+    {
+        //arrange
+        new NonStrictExpectations()
+        {
+            {
+                Deencapsulation.invoke(mockIotHubReactor, "process");
+                result = true;
+            }
+        };
+        AmqpsEventLoopGroup group = new AmqpsEventLoopGroup(1);
+        CountDownLatch finished = register(group, mockIotHubReactor, mockConnection);
+
+        //act
+        group.close();
+
+        //assert
+        assertTrue(finished.await(WAIT_SECONDS, TimeUnit.SECONDS));
+        assertTrue(group.getScheduler().isShutdown());
+        new Verifications()
+        {
+            {
+                Deencapsulation.invoke(mockIotHubReactor, "finish");
+                times = 1;
+            }
+        };
+    }
+
+    // Tests_SRS_AMQPSEVENTLOOPGROUP_34_015: [This function shall wait for every event loop thread other than the calling thread to exit.]
+    @Test
+    public void closeWaitsForEventLoopsToExit()
+    {
+        //arrange
+        new NonStrictExpectations()
+        {
+            {
+                Deencapsulation.invoke(mockIotHubReactor, "process");
+                result = true;
+            }
+        };
+        AmqpsEventLoopGroup group = new AmqpsEventLoopGroup(2);
+        CountDownLatch finished = register(group, mockIotHubReactor, mockConnection);
+
+        //act
+        group.close();
+
+        //assert
+        assertEquals(0, finished.getCount());
+        Thread[] threads = Deencapsulation.getField(group, "threads");
+        for (Thread thread : threads)
+        {
+            assertTrue(!thread.isAlive());
+        }
+    }
+
+    // Tests_SRS_AMQPSEVENTLOOPGROUP_34_008: [If the group is already closed, this function shall do nothing.]
+    @Test
+    public void closeTwiceDoesNothing()
+    {
+        //arrange
+        AmqpsEventLoopGroup group = new AmqpsEventLoopGroup(1);
+        group.close();
+
+        //act
+        group.close();
+
+        //assert
+        assertTrue(group.getScheduler().isShutdown());
+    }
+}
@@ -0,0 +1,157 @@
+/*
+ * Copyright (c) Microsoft. All rights reserved.
+ * Licensed under the MIT license. See LICENSE file in the project root for full license information.
+ */
+package tests.unit.com.microsoft.azure.sdk.iot.device.transport.amqps;
+
+import com.microsoft.azure.sdk.iot.device.Message;
+import com.microsoft.azure.sdk.iot.device.transport.amqps.AmqpsInFlightMessages;
+import mockit.Deencapsulation;
+import mockit.Mocked;
+import org.junit.Test;
+
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import static org.junit.Assert.*;
+
+/**
+*  Unit tests for AmqpsInFlightMessages
+* 100% methods covered
+* 100% lines covered
+*/
+public class AmqpsInFlightMessagesTest
+{
+    @Mocked
+    Message mockMessage;
+
+    @Mocked
+    Message mockOtherMessage;
+
+    private static AmqpsInFlightMessages createInFlightMessages(int capacity)
+    {
+        return Deencapsulation.newInstance(AmqpsInFlightMessages.class, new Class[] {int.class}, capacity);
+    }
+
+    private static void put(AmqpsInFlightMessages inFlightMessages, long deliveryId, Message message)
+    {
+        Deencapsulation.invoke(inFlightMessages, "put", new Class[] {long.class, Message.class}, deliveryId, message);
+    }
+
+    private static boolean containsKey(AmqpsInFlightMessages inFlightMessages, long deliveryId)
+    {
+        return Deencapsulation.invoke(inFlightMessages, "containsKey", new Class[] {long.class}, deliveryId);
+    }
+
+    private static Message remove(AmqpsInFlightMessages inFlightMessages, long deliveryId)
+    {
+        return Deencapsulation.invoke(inFlightMessages, "remove", new Class[] {long.class}, deliveryId);
+    }
+
+    // Tests_SRS_AMQPSINFLIGHTMESSAGES_34_001: [If the provided capacity is less than 1, the constructor shall throw an IllegalArgumentException.]
+    @Test (expected = IllegalArgumentException.class)
+    public void constructorThrowsForCapacityLessThanOne()
+    {
+        //act
+        createInFlightMessages(0);
+    }
+
+    // Tests_SRS_AMQPSINFLIGHTMESSAGES_34_002: [The constructor shall create a ring with the provided capacity rounded up to a power of two.]
+    @Test
+    public void constructorRoundsCapacityUpToPowerOfTwo()
+    {
+        //act
+        AmqpsInFlightMessages exactInFlightMessages = createInFlightMessages(8);
+        AmqpsInFlightMessages roundedInFlightMessages = createInFlightMessages(9);
+
+        //assert
+        AtomicReferenceArray<?> exactSlots = Deencapsulation.getField(exactInFlightMessages, "slots");
+        AtomicReferenceArray<?> roundedSlots = Deencapsulation.getField(roundedInFlightMessages, "slots");
+        assertEquals(8, exactSlots.length());
+        assertEquals(16, roundedSlots.length());
+    }
+
+    // Tests_SRS_AMQPSINFLIGHTMESSAGES_34_003: [If the delivery id is negative or the message is null, this function shall throw an IllegalArgumentException.]
+    @Test (expected = IllegalArgumentException.class)
+    public void putThrowsForNegativeDeliveryId()
+    {
+        //arrange
+        AmqpsInFlightMessages inFlightMessages = createInFlightMessages(8);
+
+        //act
+        put(inFlightMessages, -1, mockMessage);
+    }
+
+    // Tests_SRS_AMQPSINFLIGHTMESSAGES_34_003: [If the delivery id is negative or the message is null, this function shall throw an IllegalArgumentException.]
+    @Test (expected = IllegalArgumentException.class)
+    public void putThrowsForNullMessage()
+    {
+        //arrange
+        AmqpsInFlightMessages inFlightMessages = createInFlightMessages(8);
+
+        //act
+        Deencapsulation.invoke(inFlightMessages, "put", new Class[] {long.class, Message.class}, 1L, null);
+    }
+
+    // Tests_SRS_AMQPSINFLIGHTMESSAGES_34_004: [If the slot of the delivery id is free, this function shall save the message in that slot.]
+    // Tests_SRS_AMQPSINFLIGHTMESSAGES_34_006: [This function shall return true if and only if a message with the provided delivery id is saved in its slot or in the overflow map.]
+    // Tests_SRS_AMQPSINFLIGHTMESSAGES_34_007: [If the slot of the delivery id holds its message, this function shall free the slot and return the message.]
+    @Test
+    public void putThenRemoveReturnsMessageFromSlot()
+    {
+        //arrange
+        AmqpsInFlightMessages inFlightMessages = createInFlightMessages(8);
+        put(inFlightMessages, 3, mockMessage);
+
+        //act
+        boolean containedBeforeRemove = containsKey(inFlightMessages, 3);
+        Message removedMessage = remove(inFlightMessages, 3);
+
+        //assert
+        assertTrue(containedBeforeRemove);
+        assertEquals(mockMessage, removedMessage);
+        assertFalse(containsKey(inFlightMessages, 3));
+        Map<Long, Message> overflow = Deencapsulation.getField(inFlightMessages, "overflow");
+        assertTrue(overflow.isEmpty());
+    }
+
+    // Tests_SRS_AMQPSINFLIGHTMESSAGES_34_006: [This function shall return true if and only if a message with the provided delivery id is saved in its slot or in the overflow map.]
+    // Tests_SRS_AMQPSINFLIGHTMESSAGES_34_008: [If no message with the provided delivery id is saved, this function shall return null.]
+    @Test
+    public void removeReturnsNullForDeliveryIdSharingSlot()
+    {
+        //arrange
+        AmqpsInFlightMessages inFlightMessages = createInFlightMessages(8);
+        put(inFlightMessages, 3, mockMessage);
+
+        //act
+        boolean contained = containsKey(inFlightMessages, 11);
+        Message removedMessage = remove(inFlightMessages, 11);
+
+        //assert
+        assertFalse(contained);
+        assertNull(removedMessage);
+        assertTrue(containsKey(inFlightMessages, 3));
+    }
+
+    // Tests_SRS_AMQPSINFLIGHTMESSAGES_34_005: [If the slot of the delivery id holds another message, this function shall save the message in the overflow map.]
+    // Tests_SRS_AMQPSINFLIGHTMESSAGES_34_009: [If the message with the provided delivery id is in the overflow map, this function shall remove it from there and return it.]
+    @Test
+    public void putSavesMessageInOverflowIfSlotIsTaken()
+    {
+        //arrange
+        AmqpsInFlightMessages inFlightMessages = createInFlightMessages(8);
+        put(inFlightMessages, 3, mockMessage);
+
+        //act
+        put(inFlightMessages, 11, mockOtherMessage);
+
+        //assert
+        Map<Long, Message> overflow = Deencapsulation.getField(inFlightMessages, "overflow");
+        assertEquals(1, overflow.size());
+        assertTrue(containsKey(inFlightMessages, 11));
+        assertEquals(mockOtherMessage, remove(inFlightMessages, 11));
+        assertEquals(mockMessage, remove(inFlightMessages, 3));
+        assertTrue(overflow.isEmpty());
+    }
+}
@@ -44,6 +44,7 @@ import static junit.framework.TestCase.assertEquals;
 import static junit.framework.TestCase.assertTrue;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
 
 
 /**
@@ -408,6 +409,8 @@ public class AmqpsIotHubConnectionTest {
                 result = hubName;
                 mockConfig.isUseWebsocket();
                 result = true;
+                mockConfig.getAmqpsEventLoopGroup();
+                result = null;
                 new AmqpsSessionManager(mockConfig, (ScheduledExecutorService)any);
                 result = mockAmqpsSessionManager;
             }
@@ -439,6 +442,8 @@ public class AmqpsIotHubConnectionTest {
                 result = hubName;
                 mockConfig.isUseWebsocket();
                 result = false;
+                mockConfig.getAmqpsEventLoopGroup();
+                result = null;
             }
         };
 
@@ -913,6 +918,130 @@ public class AmqpsIotHubConnectionTest {
         };
     }
 
+    // Tests_SRS_AMQPSIOTHUBCONNECTION_34_094: [If the config has an AmqpsEventLoopGroup, the constructor shall
+    // initialize the AmqpsSessionManager with the given config and the shared scheduler of that group.]
+    @Test
+    public void constructorWithEventLoopGroupUsesSharedScheduler(@Mocked final AmqpsEventLoopGroup mockAmqpsEventLoopGroup) throws TransportException
+    {
+        // arrange
+        baseExpectationsWithEventLoopGroup(mockAmqpsEventLoopGroup);
+
+        // act
+        new AmqpsIotHubConnection(mockConfig);
+
+        // assert
+        new Verifications()
+        {
+            {
+                Deencapsulation.newInstance(AmqpsSessionManager.class, new Class[] {DeviceClientConfig.class, ScheduledExecutorService.class, boolean.class}, mockConfig, mockScheduledExecutorService, true);
+                times = 1;
+            }
+        };
+    }
+
+    // Tests_SRS_AMQPSIOTHUBCONNECTION_34_095: [If the config has an AmqpsEventLoopGroup, the function shall
+    // register the reactor with that group instead of running it on a thread of its own.]
+    @Test
+    public void openAsyncRegistersReactorWithEventLoopGroup(@Mocked final AmqpsEventLoopGroup mockAmqpsEventLoopGroup,
+                                                            @Mocked final CountDownLatch mockReactorFinishedLatch) throws TransportException
+    {
+        // arrange
+        baseExpectationsWithEventLoopGroup(mockAmqpsEventLoopGroup);
+        final AmqpsIotHubConnection connection = new AmqpsIotHubConnection(mockConfig);
+        new NonStrictExpectations()
+        {
+            {
+                Deencapsulation.invoke(mockAmqpsEventLoopGroup, "register", new Class[] {IotHubReactor.class, AmqpsIotHubConnection.class}, mockIotHubReactor, connection);
+                result = mockReactorFinishedLatch;
+            }
+        };
+
+        // act
+        Deencapsulation.invoke(connection, "openAsync");
+
+        // assert
+        assertEquals(mockReactorFinishedLatch, Deencapsulation.getField(connection, "reactorFinishedLatch"));
+        new Verifications()
+        {
+            {
+                Deencapsulation.invoke(mockAmqpsEventLoopGroup, "register", new Class[] {IotHubReactor.class, AmqpsIotHubConnection.class}, mockIotHubReactor, connection);
+                times = 1;
+                mockExecutorService.submit((Callable) any);
+                times = 0;
+            }
+        };
+    }
+
+    // Tests_SRS_AMQPSIOTHUBCONNECTION_34_096: [If the reactor runs on an AmqpsEventLoopGroup, the function
+    // shall wait for the group to free the reactor.]
+    @Test
+    public void closeWaitsForEventLoopGroupToFreeReactor(@Mocked final CountDownLatch mockReactorFinishedLatch) throws TransportException, InterruptedException
+    {
+        // arrange
+        baseExpectations();
+        final AmqpsIotHubConnection connection = new AmqpsIotHubConnection(mockConfig);
+        this.setLatches(connection);
+        Deencapsulation.setField(connection, "reactorFinishedLatch", mockReactorFinishedLatch);
+
+        // act
+        connection.close(false);
+
+        // assert
+        assertNull(Deencapsulation.getField(connection, "reactorFinishedLatch"));
+        new Verifications()
+        {
+            {
+                mockReactorFinishedLatch.await(anyLong, TimeUnit.SECONDS);
+                times = 1;
+            }
+        };
+    }
+
+    // Tests_SRS_AMQPSIOTHUBCONNECTION_34_097: [The function shall throw TransportException if waiting for the
+    // group to free the reactor is interrupted.]
+    @Test (expected = TransportException.class)
+    public void closeThrowsIfWaitingForEventLoopGroupIsInterrupted(@Mocked final CountDownLatch mockReactorFinishedLatch) throws TransportException, InterruptedException
+    {
+        // arrange
+        baseExpectations();
+        final AmqpsIotHubConnection connection = new AmqpsIotHubConnection(mockConfig);
+        this.setLatches(connection);
+        Deencapsulation.setField(connection, "reactorFinishedLatch", mockReactorFinishedLatch);
+        new NonStrictExpectations()
+        {
+            {
+                mockReactorFinishedLatch.await(anyLong, TimeUnit.SECONDS);
+                result = new InterruptedException();
+            }
+        };
+
+        // act
+        connection.close(false);
+    }
+
+    // Tests_SRS_AMQPSIOTHUBCONNECTION_34_098: [The function shall schedule the reconnection with a TransportException wrapping the provided exception.]
+    @Test
+    public void onReactorErrorSchedulesReconnection(@Mocked final HandlerException mockHandlerException) throws TransportException
+    {
+        // arrange
+        final StringBuilder methodsCalled = new StringBuilder();
+        new MockUp<AmqpsIotHubConnection>()
+        {
+            @Mock void scheduleReconnection(Throwable throwable)
+            {
+                methodsCalled.append("scheduleReconnection");
+            }
+        };
+        baseExpectations();
+        final AmqpsIotHubConnection connection = new AmqpsIotHubConnection(mockConfig);
+
+        // act
+        Deencapsulation.invoke(connection, "onReactorError", mockHandlerException);
+
+        // assert
+        assertEquals("scheduleReconnection", methodsCalled.toString());
+    }
+
     // Tests_SRS_AMQPSIOTHUBCONNECTION_12_005: [The function shall throw IOException if the executor shutdown is interrupted.]
     @Test (expected = InterruptedException.class)
     public void closeThrowsIfShutdownThrows() throws TransportException
@@ -957,8 +1086,7 @@ public class AmqpsIotHubConnectionTest {
         };
     }
 
-    // Tests_SRS_AMQPSIOTHUBCONNECTION_15_015: [If the state of the connection is DISCONNECTED or there is not enough
-    // credit, the function shall return -1.]
+    // Tests_SRS_AMQPSIOTHUBCONNECTION_15_015: [If the state of the connection is DISCONNECTED, the function shall return -1.]
     @Test
     public void sendMessageDoesNothingIfConnectionIsClosed() throws TransportException
     {
@@ -967,34 +1095,15 @@ public class AmqpsIotHubConnectionTest {
         final AmqpsIotHubConnection connection = new AmqpsIotHubConnection(mockConfig);
 
         Deencapsulation.setField(connection, "state", IotHubConnectionStatus.DISCONNECTED);
-        Deencapsulation.setField(connection, "linkCredit", 100);
 
-        Integer expectedDeliveryHash = -1;
-        Integer actualDeliveryHash = Deencapsulation.invoke(connection, "sendMessage", Message.Factory.create(), MessageType.DEVICE_TELEMETRY, "someDeviceId");
+        Long expectedDeliveryId = -1L;
+        Long actualDeliveryId = Deencapsulation.invoke(connection, "sendMessage", Message.Factory.create(), MessageType.DEVICE_TELEMETRY, "someDeviceId");
 
-        assertEquals(expectedDeliveryHash, actualDeliveryHash);
-    }
-
-    // Tests_SRS_AMQPSIOTHUBCONNECTION_15_015: [If the state of the connection is DISCONNECTED or there is not enough
-    // credit, the function shall return -1.]
-    @Test
-    public void sendMessageDoesNothingIfNotEnoughLinkCredit() throws TransportException
-    {
-        baseExpectations();
-
-        final AmqpsIotHubConnection connection = new AmqpsIotHubConnection(mockConfig);
-
-        Deencapsulation.setField(connection, "state", IotHubConnectionStatus.CONNECTED);
-        Deencapsulation.setField(connection, "linkCredit", -1);
-
-        Integer expectedDeliveryHash = -1;
-        Integer actualDeliveryHash = Deencapsulation.invoke(connection, "sendMessage", Message.Factory.create(), MessageType.DEVICE_TELEMETRY, "someDeviceId");
-
-        assertEquals(expectedDeliveryHash, actualDeliveryHash);
+        assertEquals(expectedDeliveryId, actualDeliveryId);
     }
 
     // Tests_SRS_AMQPSIOTHUBCONNECTION_12_024: [The function shall call AmqpsSessionManager.sendMessage with the given parameters.]
-    // Tests_SRS_AMQPSIOTHUBCONNECTION_15_021: [The function shall return the delivery hash.]
+    // Tests_SRS_AMQPSIOTHUBCONNECTION_15_021: [The function shall return the delivery id.]
     @Test
     public void sendMessage() throws TransportException
     {
@@ -1002,13 +1111,13 @@ public class AmqpsIotHubConnectionTest {
         baseExpectations();
 
         final byte[] messageBytes = new byte[] {1, 2};
-        final Integer expectedDeliveryHash = 42;
+        final Long expectedDeliveryId = 42L;
 
         new NonStrictExpectations()
         {
             {
                 Deencapsulation.invoke(mockAmqpsSessionManager, "sendMessage", new Class[] {Message.class, MessageType.class, String.class}, mockProtonMessage, MessageType.DEVICE_TELEMETRY, "someDeviceId");
-                result = expectedDeliveryHash;
+                result = expectedDeliveryId;
 
                 mockConfig.getDeviceId();
                 result = "someDeviceId";
@@ -1018,13 +1127,12 @@ public class AmqpsIotHubConnectionTest {
         final AmqpsIotHubConnection connection = new AmqpsIotHubConnection(mockConfig);
         Deencapsulation.setField(connection, "amqpsSessionManager", mockAmqpsSessionManager);
         Deencapsulation.setField(connection, "state", IotHubConnectionStatus.CONNECTED);
-        Deencapsulation.setField(connection, "linkCredit", 100);
 
         // act
-        Integer actualDeliveryHash = Deencapsulation.invoke(connection, "sendMessage", mockProtonMessage, MessageType.DEVICE_TELEMETRY, "someDeviceId");
+        Long actualDeliveryId = Deencapsulation.invoke(connection, "sendMessage", mockProtonMessage, MessageType.DEVICE_TELEMETRY, "someDeviceId");
 
         // assert
-        assertEquals(expectedDeliveryHash, actualDeliveryHash);
+        assertEquals(expectedDeliveryId, actualDeliveryId);
 
         new Verifications()
         {
@@ -1364,7 +1472,7 @@ public class AmqpsIotHubConnectionTest {
     // Tests_SRS_AMQPSIOTHUBCONNECTION_15_038: [If this link is the Sender link and the event type is DELIVERY, the event handler shall get the Delivery (Proton) object from the event.]
     // Tests_SRS_AMQPSIOTHUBCONNECTION_34_064: [If the acknowledgement sent from the service is "Accepted", this function shall notify its listener that the message was successfully sent.]
     @Test
-    public void onDeliverySend(@Mocked final Map<Integer, com.microsoft.azure.sdk.iot.device.Message> mockInProgressMessages) throws TransportException
+    public void onDeliverySend(@Mocked final AmqpsInFlightMessages mockInProgressMessages) throws TransportException
     {
         baseExpectations();
         final String receiverLinkName = "receiver";
@@ -1399,10 +1507,10 @@ public class AmqpsIotHubConnectionTest {
                 mockDelivery.getRemoteState();
                 result = Accepted.getInstance();
 
-                mockInProgressMessages.containsKey(anyInt);
+                Deencapsulation.invoke(mockInProgressMessages, "containsKey", new Class[] {long.class}, anyLong);
                 result = true;
 
-                mockInProgressMessages.remove(anyInt);
+                Deencapsulation.invoke(mockInProgressMessages, "remove", new Class[] {long.class}, anyLong);
                 result = mockedTransportMessage;
             }
         };
@@ -1432,7 +1540,7 @@ public class AmqpsIotHubConnectionTest {
 
     // Tests_SRS_AMQPSIOTHUBCONNECTION_28_001: [If the acknowledgement sent from the service is "Rejected", this function shall map the error condition if it exists to amqp exceptions.]
     @Test
-    public void onDeliverySendRejectedMessageWithAmqpErrorCondition(@Mocked final Map<Integer, com.microsoft.azure.sdk.iot.device.Message> mockInProgressMessages) throws TransportException
+    public void onDeliverySendRejectedMessageWithAmqpErrorCondition(@Mocked final AmqpsInFlightMessages mockInProgressMessages) throws TransportException
     {
         baseExpectations();
         final String receiverLinkName = "receiver";
@@ -1467,7 +1575,7 @@ public class AmqpsIotHubConnectionTest {
                 mockDelivery.getRemoteState();
                 result = mockedRejected;
 
-                mockInProgressMessages.containsKey(anyInt);
+                Deencapsulation.invoke(mockInProgressMessages, "containsKey", new Class[] {long.class}, anyLong);
                 result = true;
 
                 mockedRejected.getError();
@@ -1479,7 +1587,7 @@ public class AmqpsIotHubConnectionTest {
                 mockedSymbol.toString();
                 result = AmqpConnectionThrottledException.errorCode;
 
-                mockInProgressMessages.remove(anyInt);
+                Deencapsulation.invoke(mockInProgressMessages, "remove", new Class[] {long.class}, anyLong);
                 result = mockedTransportMessage;
 
                 Deencapsulation.newInstance(AmqpConnectionThrottledException.class, anyString);
@@ -1516,7 +1624,7 @@ public class AmqpsIotHubConnectionTest {
 
     // Tests_SRS_AMQPSIOTHUBCONNECTION_34_065: [If the acknowledgement sent from the service is "Rejected", this function shall notify its listener that the sent message was rejected and that it should not be retried.]
     @Test
-    public void onDeliverySendRejectedMessage(@Mocked final Map<Integer, com.microsoft.azure.sdk.iot.device.Message> mockInProgressMessages) throws TransportException
+    public void onDeliverySendRejectedMessage(@Mocked final AmqpsInFlightMessages mockInProgressMessages) throws TransportException
     {
         baseExpectations();
         final String receiverLinkName = "receiver";
@@ -1554,10 +1662,10 @@ public class AmqpsIotHubConnectionTest {
                 mockedRejected.getError();
                 result = null;
 
-                mockInProgressMessages.containsKey(anyInt);
+                Deencapsulation.invoke(mockInProgressMessages, "containsKey", new Class[] {long.class}, anyLong);
                 result = true;
 
-                mockInProgressMessages.remove(anyInt);
+                Deencapsulation.invoke(mockInProgressMessages, "remove", new Class[] {long.class}, anyLong);
                 result = mockedTransportMessage;
 
                 new TransportException(anyString);
@@ -1593,7 +1701,7 @@ public class AmqpsIotHubConnectionTest {
 
     // Tests_SRS_AMQPSIOTHUBCONNECTION_34_066: [If the acknowledgement sent from the service is "Modified", "Released", or "Received", this function shall notify its listener that the sent message needs to be retried.]
     @Test
-    public void onDeliverySendModifiedMessage(@Mocked final Map<Integer, com.microsoft.azure.sdk.iot.device.Message> mockInProgressMessages) throws TransportException
+    public void onDeliverySendModifiedMessage(@Mocked final AmqpsInFlightMessages mockInProgressMessages) throws TransportException
     {
         baseExpectations();
         final String receiverLinkName = "receiver";
@@ -1628,10 +1736,10 @@ public class AmqpsIotHubConnectionTest {
                 mockDelivery.getRemoteState();
                 result = mockedModified;
 
-                mockInProgressMessages.containsKey(anyInt);
+                Deencapsulation.invoke(mockInProgressMessages, "containsKey", new Class[] {long.class}, anyLong);
                 result = true;
 
-                mockInProgressMessages.remove(anyInt);
+                Deencapsulation.invoke(mockInProgressMessages, "remove", new Class[] {long.class}, anyLong);
                 result = mockedTransportMessage;
 
                 new TransportException(anyString);
@@ -1667,7 +1775,7 @@ public class AmqpsIotHubConnectionTest {
 
     // Tests_SRS_AMQPSIOTHUBCONNECTION_34_066: [If the acknowledgement sent from the service is "Modified", "Released", or "Received", this function shall notify its listener that the sent message needs to be retried.]
     @Test
-    public void onDeliverySendReceivedMessage(@Mocked final Map<Integer, com.microsoft.azure.sdk.iot.device.Message> mockInProgressMessages) throws TransportException
+    public void onDeliverySendReceivedMessage(@Mocked final AmqpsInFlightMessages mockInProgressMessages) throws TransportException
     {
         baseExpectations();
         final String receiverLinkName = "receiver";
@@ -1702,10 +1810,10 @@ public class AmqpsIotHubConnectionTest {
                 mockDelivery.getRemoteState();
                 result = mockedReceived;
 
-                mockInProgressMessages.containsKey(anyInt);
+                Deencapsulation.invoke(mockInProgressMessages, "containsKey", new Class[] {long.class}, anyLong);
                 result = true;
 
-                mockInProgressMessages.remove(anyInt);
+                Deencapsulation.invoke(mockInProgressMessages, "remove", new Class[] {long.class}, anyLong);
                 result = mockedTransportMessage;
 
                 new TransportException(anyString);
@@ -1741,7 +1849,7 @@ public class AmqpsIotHubConnectionTest {
 
     // Tests_SRS_AMQPSIOTHUBCONNECTION_34_066: [If the acknowledgement sent from the service is "Modified", "Released", or "Received", this function shall notify its listener that the sent message needs to be retried.]
     @Test
-    public void onDeliverySendReleasedMessage(@Mocked final Map<Integer, com.microsoft.azure.sdk.iot.device.Message> mockInProgressMessages) throws TransportException
+    public void onDeliverySendReleasedMessage(@Mocked final AmqpsInFlightMessages mockInProgressMessages) throws TransportException
     {
         baseExpectations();
         final String receiverLinkName = "receiver";
@@ -1776,10 +1884,10 @@ public class AmqpsIotHubConnectionTest {
                 mockDelivery.getRemoteState();
                 result = mockedReleased;
 
-                mockInProgressMessages.containsKey(anyInt);
+                Deencapsulation.invoke(mockInProgressMessages, "containsKey", new Class[] {long.class}, anyLong);
                 result = true;
 
-                mockInProgressMessages.remove(anyInt);
+                Deencapsulation.invoke(mockInProgressMessages, "remove", new Class[] {long.class}, anyLong);
                 result = mockedTransportMessage;
 
                 new TransportException(anyString);
@@ -1859,36 +1967,34 @@ public class AmqpsIotHubConnectionTest {
         assertNotNull(savedException);
     }
 
-    // Tests_SRS_AMQPSIOTHUBCONNECTION_15_040: [The event handler shall save the remaining link credit.]
+    // Tests_SRS_AMQPSIOTHUBCONNECTION_15_040: [The event handler shall call AmqpsSessionManager.onLinkFlow with the name of the link, which keeps the credit of each link apart.]
     @Test
     public void onLinkFlow() throws TransportException
     {
         baseExpectations();
+        final String linkName = "senderLinkName";
 
         new NonStrictExpectations()
         {
             {
                 mockEvent.getLink();
                 result = mockSender;
-                mockSender.getCredit();
-                result = 100;
+                mockSender.getName();
+                result = linkName;
             }
         };
 
         final AmqpsIotHubConnection connection = new AmqpsIotHubConnection(mockConfig);
-        connection.onLinkFlow(mockEvent);
-
-        Integer expectedLinkCredit = 100;
-        Integer actualLinkCredit = Deencapsulation.getField(connection, "linkCredit");
+        Deencapsulation.setField(connection, "amqpsSessionManager", mockAmqpsSessionManager);
 
-        assertEquals(expectedLinkCredit, actualLinkCredit);
+        connection.onLinkFlow(mockEvent);
 
         new Verifications()
         {
             {
                 mockEvent.getLink();
                 times = 1;
-                mockSender.getCredit();
+                Deencapsulation.invoke(mockAmqpsSessionManager, "onLinkFlow", linkName);
                 times = 1;
             }
         };
@@ -2367,10 +2473,9 @@ public class AmqpsIotHubConnectionTest {
     {
         //arrange
         baseExpectations();
-        final int expectedHash = 40;
+        final long expectedDeliveryId = 40;
         AmqpsIotHubConnection connection = new AmqpsIotHubConnection(mockConfig);
         Deencapsulation.setField(connection, "state", IotHubConnectionStatus.CONNECTED);
-        Deencapsulation.setField(connection, "linkCredit", 20);
         new NonStrictExpectations()
         {
             {
@@ -2387,7 +2492,7 @@ public class AmqpsIotHubConnectionTest {
                 result = mockConnectionString;
 
                 Deencapsulation.invoke(mockAmqpsSessionManager, "sendMessage", new Class[] {Message.class, MessageType.class, String.class}, mockedMessageImpl, MessageType.DEVICE_TWIN, "someDeviceId");
-                result = expectedHash;
+                result = expectedDeliveryId;
 
                 mockConfig.getDeviceId();
                 result = "someDeviceId";
@@ -2401,8 +2506,9 @@ public class AmqpsIotHubConnectionTest {
         IotHubStatusCode actualStatusCode = connection.sendMessage(mockIoTMessage);
 
         //assert
-        Map<Integer, com.microsoft.azure.sdk.iot.device.Message> inProgressMessages = Deencapsulation.getField(connection, "inProgressMessages");
-        assertTrue(inProgressMessages.containsKey(expectedHash));
+        AmqpsInFlightMessages inProgressMessages = Deencapsulation.getField(connection, "inProgressMessages");
+        boolean isInProgress = Deencapsulation.invoke(inProgressMessages, "containsKey", new Class[] {long.class}, expectedDeliveryId);
+        assertTrue(isInProgress);
         assertEquals(IotHubStatusCode.OK, actualStatusCode);
     }
 
@@ -2412,10 +2518,9 @@ public class AmqpsIotHubConnectionTest {
     {
         //arrange
         baseExpectations();
-        final int expectedHash = -1;
+        final long expectedHash = -1;
         AmqpsIotHubConnection connection = new AmqpsIotHubConnection(mockConfig);
         Deencapsulation.setField(connection, "state", IotHubConnectionStatus.CONNECTED);
-        Deencapsulation.setField(connection, "linkCredit", 20);
         new NonStrictExpectations()
         {
             {
@@ -2855,12 +2960,36 @@ public class AmqpsIotHubConnectionTest {
                 result = deviceId;
                 mockConfig.isUseWebsocket();
                 result = false;
+                mockConfig.getAmqpsEventLoopGroup();
+                result = null;
                 new AmqpsSessionManager(mockConfig, (ScheduledExecutorService)any);
                 result = mockAmqpsSessionManager;
             }
         };
     }
 
+    private void baseExpectationsWithEventLoopGroup(final AmqpsEventLoopGroup mockAmqpsEventLoopGroup)
+    {
+        new NonStrictExpectations() {
+            {
+                mockConfig.getAuthenticationType();
+                result = DeviceClientConfig.AuthType.SAS_TOKEN;
+                mockConfig.getIotHubHostname();
+                result = hostName;
+                mockConfig.getIotHubName();
+                result = hubName;
+                mockConfig.getDeviceId();
+                result = deviceId;
+                mockConfig.isUseWebsocket();
+                result = false;
+                mockConfig.getAmqpsEventLoopGroup();
+                result = mockAmqpsEventLoopGroup;
+                mockAmqpsEventLoopGroup.getScheduler();
+                result = mockScheduledExecutorService;
+            }
+        };
+    }
+
     private void setLatches(AmqpsIotHubConnection connection)
     {
         Deencapsulation.setField(connection, "openLatch", mockOpenLatch);
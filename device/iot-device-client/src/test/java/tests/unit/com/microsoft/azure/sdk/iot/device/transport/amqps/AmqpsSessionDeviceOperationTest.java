@@ -8,6 +8,8 @@ import mockit.Deencapsulation;
 import mockit.Mocked;
 import mockit.NonStrictExpectations;
 import mockit.Verifications;
+import org.apache.qpid.proton.amqp.Binary;
+import org.apache.qpid.proton.amqp.messaging.Data;
 import org.apache.qpid.proton.engine.Link;
 import org.apache.qpid.proton.engine.Session;
 import org.junit.Test;
@@ -20,6 +22,7 @@ import java.util.UUID;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
 
 import static junit.framework.TestCase.assertFalse;
@@ -213,6 +216,78 @@ public class AmqpsSessionDeviceOperationTest
         };
     }
 
+    // Tests_SRS_AMQPSESSIONDEVICEOPERATION_34_077: [If a shared scheduler is provided, the constructor shall schedule the token renewal task on it instead of creating a scheduler.]
+    @Test
+    public void constructorWithSharedSchedulerDoesNotCreateScheduler() throws IllegalArgumentException, TransportException
+    {
+        // arrange
+        final long tokenValidSecs = 3600;
+        final long expectedRenewalTimeMillisecs = 2700 * 1000;
+
+        new NonStrictExpectations()
+        {
+            {
+                mockDeviceClientConfig.getAuthenticationType();
+                result = DeviceClientConfig.AuthType.SAS_TOKEN;
+                mockDeviceClientConfig.getSasTokenAuthentication();
+                result = mockIotHubSasTokenAuthenticationProvider;
+                mockIotHubSasTokenAuthenticationProvider.getTokenValidSecs();
+                result = tokenValidSecs;
+                new AmqpsDeviceAuthenticationCBSTokenRenewalTask((AmqpsSessionDeviceOperation)any);
+                result = mockAmqpsDeviceAuthenticationCBSTokenRenewalTask;
+            }
+        };
+
+        // act
+        Deencapsulation.newInstance(AmqpsSessionDeviceOperation.class, new Class[] {DeviceClientConfig.class, AmqpsDeviceAuthentication.class, ScheduledExecutorService.class}, mockDeviceClientConfig, mockAmqpsDeviceAuthenticationCBS, mockScheduledExecutorService);
+
+        // assert
+        new Verifications()
+        {
+            {
+                mockExecutors.newScheduledThreadPool(anyInt);
+                times = 0;
+                mockScheduledExecutorService.scheduleAtFixedRate(mockAmqpsDeviceAuthenticationCBSTokenRenewalTask, 0, expectedRenewalTimeMillisecs, TimeUnit.MILLISECONDS);
+                times = 1;
+            }
+        };
+    }
+
+    // Tests_SRS_AMQPSESSIONDEVICEOPERATION_34_078: [If the scheduler is shared, closing shall cancel the token renewal task instead of shutting the scheduler down.]
+    @Test
+    public void closeWithSharedSchedulerCancelsRenewalTask(@Mocked final ScheduledFuture<?> mockScheduledFuture) throws IllegalArgumentException, TransportException
+    {
+        // arrange
+        new NonStrictExpectations()
+        {
+            {
+                mockDeviceClientConfig.getAuthenticationType();
+                result = DeviceClientConfig.AuthType.SAS_TOKEN;
+                mockDeviceClientConfig.getSasTokenAuthentication();
+                result = mockIotHubSasTokenAuthenticationProvider;
+                mockIotHubSasTokenAuthenticationProvider.getTokenValidSecs();
+                result = 3600;
+                mockScheduledExecutorService.scheduleAtFixedRate((Runnable) any, anyLong, anyLong, (TimeUnit) any);
+                result = mockScheduledFuture;
+            }
+        };
+        AmqpsSessionDeviceOperation amqpsSessionDeviceOperation = Deencapsulation.newInstance(AmqpsSessionDeviceOperation.class, new Class[] {DeviceClientConfig.class, AmqpsDeviceAuthentication.class, ScheduledExecutorService.class}, mockDeviceClientConfig, mockAmqpsDeviceAuthenticationCBS, mockScheduledExecutorService);
+
+        // act
+        amqpsSessionDeviceOperation.close();
+
+        // assert
+        new Verifications()
+        {
+            {
+                mockScheduledFuture.cancel(false);
+                times = 1;
+                mockScheduledExecutorService.shutdown();
+                times = 0;
+            }
+        };
+    }
+
     // Tests_SRS_AMQPSESSIONDEVICEOPERATION_12_058: [The function shall shut down the executor threads.]
     // Tests_SRS_AMQPSESSIONDEVICEOPERATION_12_059: [The function shall close the operation links.]
     @Test
@@ -306,6 +381,187 @@ public class AmqpsSessionDeviceOperationTest
         amqpsSessionDeviceOperation.authenticate();
     }
 
+    // Tests_SRS_AMQPSESSIONDEVICEOPERATION_34_072: [If the authentication type is not CBS, the function shall do nothing and return null.]
+    @Test
+    public void beginAuthenticationX509ReturnsNull() throws TransportException
+    {
+        // arrange
+        final AmqpsSessionDeviceOperation amqpsSessionDeviceOperation = new AmqpsSessionDeviceOperation(mockDeviceClientConfig, mockAmqpsDeviceAuthentication);
+        new NonStrictExpectations()
+        {
+            {
+                mockDeviceClientConfig.getAuthenticationType();
+                result = DeviceClientConfig.AuthType.X509_CERTIFICATE;
+            }
+        };
+
+        // act
+        UUID correlationId = Deencapsulation.invoke(amqpsSessionDeviceOperation, "beginAuthentication");
+
+        // assert
+        assertNull(correlationId);
+        new Verifications()
+        {
+            {
+                Deencapsulation.invoke(mockAmqpsDeviceAuthentication, "authenticate", mockDeviceClientConfig, any);
+                times = 0;
+            }
+        };
+    }
+
+    // Tests_SRS_AMQPSESSIONDEVICEOPERATION_34_073: [The function shall return the correlation id of the queued authentication message.]
+    @Test
+    public void beginAuthenticationQueuesMessageWithoutWaiting() throws TransportException, InterruptedException
+    {
+        // arrange
+        final AmqpsSessionDeviceOperation amqpsSessionDeviceOperation = new AmqpsSessionDeviceOperation(mockDeviceClientConfig, mockAmqpsDeviceAuthentication);
+        Deencapsulation.setField(amqpsSessionDeviceOperation, "authenticationLatch", mockCountDownLatch);
+        Deencapsulation.setField(amqpsSessionDeviceOperation, "cbsCorrelationIdList", mockListUUID);
+        new NonStrictExpectations()
+        {
+            {
+                mockDeviceClientConfig.getAuthenticationType();
+                result = DeviceClientConfig.AuthType.SAS_TOKEN;
+                UUID.randomUUID();
+                result = mockUUID;
+            }
+        };
+
+        // act
+        UUID correlationId = Deencapsulation.invoke(amqpsSessionDeviceOperation, "beginAuthentication");
+
+        // assert
+        assertEquals(mockUUID, correlationId);
+        AmqpsDeviceAuthenticationState authenticatorState = Deencapsulation.getField(amqpsSessionDeviceOperation, "amqpsAuthenticatorState");
+        assertEquals(AmqpsDeviceAuthenticationState.AUTHENTICATING, authenticatorState);
+        new Verifications()
+        {
+            {
+                Deencapsulation.invoke(mockAmqpsDeviceAuthentication, "authenticate", mockDeviceClientConfig, mockUUID);
+                times = 1;
+                mockCountDownLatch.await(anyLong, TimeUnit.MILLISECONDS);
+                times = 0;
+            }
+        };
+    }
+
+    // Tests_SRS_AMQPSESSIONDEVICEOPERATION_34_074: [The function shall wait for the authentication reply for at most the given time.]
+    @Test
+    public void awaitAuthenticationWaitsForGivenTime() throws TransportException, InterruptedException
+    {
+        // arrange
+        final long timeout = 1234;
+        final AmqpsSessionDeviceOperation amqpsSessionDeviceOperation = new AmqpsSessionDeviceOperation(mockDeviceClientConfig, mockAmqpsDeviceAuthentication);
+        Deencapsulation.setField(amqpsSessionDeviceOperation, "authenticationLatch", mockCountDownLatch);
+
+        // act
+        Deencapsulation.invoke(amqpsSessionDeviceOperation, "awaitAuthentication", new Class[] {UUID.class, long.class}, mockUUID, timeout);
+
+        // assert
+        new Verifications()
+        {
+            {
+                mockCountDownLatch.await(timeout, TimeUnit.MILLISECONDS);
+                times = 1;
+            }
+        };
+    }
+
+    // Tests_SRS_AMQPSESSIONDEVICEOPERATION_34_075: [If the state is not authenticating, the function shall return false.]
+    @Test
+    public void onAuthenticationMessageReturnsFalseIfNotAuthenticating() throws TransportException
+    {
+        // arrange
+        final AmqpsSessionDeviceOperation amqpsSessionDeviceOperation = new AmqpsSessionDeviceOperation(mockDeviceClientConfig, mockAmqpsDeviceAuthentication);
+        Deencapsulation.setField(amqpsSessionDeviceOperation, "amqpsAuthenticatorState", AmqpsDeviceAuthenticationState.AUTHENTICATED);
+
+        // act
+        boolean isOwned = Deencapsulation.invoke(amqpsSessionDeviceOperation, "onAuthenticationMessage", mockAmqpsMessage);
+
+        // assert
+        assertFalse(isOwned);
+        new Verifications()
+        {
+            {
+                Deencapsulation.invoke(mockAmqpsDeviceAuthentication, "authenticationMessageReceived", mockAmqpsMessage, any);
+                times = 0;
+            }
+        };
+    }
+
+    // Tests_SRS_AMQPSESSIONDEVICEOPERATION_12_053: [The function shall call authenticationMessageReceived with the correlation ID on the authentication object and if it returns true set the authentication state to authenticated.]
+    @Test
+    public void onAuthenticationMessageCompletesMatchingAuthentication() throws TransportException
+    {
+        // arrange
+        final List<UUID> cbsCorrelationIdList = Collections.synchronizedList(new ArrayList<UUID>());
+        cbsCorrelationIdList.add(mockUUID);
+        final AmqpsSessionDeviceOperation amqpsSessionDeviceOperation = new AmqpsSessionDeviceOperation(mockDeviceClientConfig, mockAmqpsDeviceAuthentication);
+        Deencapsulation.setField(amqpsSessionDeviceOperation, "amqpsAuthenticatorState", AmqpsDeviceAuthenticationState.AUTHENTICATING);
+        Deencapsulation.setField(amqpsSessionDeviceOperation, "cbsCorrelationIdList", cbsCorrelationIdList);
+        Deencapsulation.setField(amqpsSessionDeviceOperation, "authenticationLatch", mockCountDownLatch);
+        new NonStrictExpectations()
+        {
+            {
+                Deencapsulation.invoke(mockAmqpsDeviceAuthentication, "authenticationMessageReceived", mockAmqpsMessage, mockUUID);
+                result = true;
+            }
+        };
+
+        // act
+        boolean isOwned = Deencapsulation.invoke(amqpsSessionDeviceOperation, "onAuthenticationMessage", mockAmqpsMessage);
+
+        // assert
+        assertTrue(isOwned);
+        assertTrue(cbsCorrelationIdList.isEmpty());
+        AmqpsDeviceAuthenticationState authenticatorState = Deencapsulation.getField(amqpsSessionDeviceOperation, "amqpsAuthenticatorState");
+        assertEquals(AmqpsDeviceAuthenticationState.AUTHENTICATED, authenticatorState);
+        new Verifications()
+        {
+            {
+                mockCountDownLatch.countDown();
+                times = 1;
+            }
+        };
+    }
+
+    // Tests_SRS_AMQPSESSIONDEVICEOPERATION_34_076: [The function shall return the sender and receiver link tags of all device operations.]
+    @Test
+    public void getLinkNamesReturnsTagsOfAllOperations() throws TransportException
+    {
+        // arrange
+        final AmqpsSessionDeviceOperation amqpsSessionDeviceOperation = new AmqpsSessionDeviceOperation(mockDeviceClientConfig, mockAmqpsDeviceAuthentication);
+        new NonStrictExpectations()
+        {
+            {
+                Deencapsulation.invoke(mockAmqpsDeviceTelemetry, "getSenderLinkTag");
+                result = "telemetrySender";
+                Deencapsulation.invoke(mockAmqpsDeviceTelemetry, "getReceiverLinkTag");
+                result = "telemetryReceiver";
+                Deencapsulation.invoke(mockAmqpsDeviceMethods, "getSenderLinkTag");
+                result = "methodsSender";
+                Deencapsulation.invoke(mockAmqpsDeviceMethods, "getReceiverLinkTag");
+                result = "methodsReceiver";
+                Deencapsulation.invoke(mockAmqpsDeviceTwin, "getSenderLinkTag");
+                result = "twinSender";
+                Deencapsulation.invoke(mockAmqpsDeviceTwin, "getReceiverLinkTag");
+                result = "twinReceiver";
+            }
+        };
+
+        // act
+        List<String> linkNames = Deencapsulation.invoke(amqpsSessionDeviceOperation, "getLinkNames");
+
+        // assert
+        assertEquals(6, linkNames.size());
+        assertTrue(linkNames.contains("telemetrySender"));
+        assertTrue(linkNames.contains("telemetryReceiver"));
+        assertTrue(linkNames.contains("methodsSender"));
+        assertTrue(linkNames.contains("methodsReceiver"));
+        assertTrue(linkNames.contains("twinSender"));
+        assertTrue(linkNames.contains("twinReceiver"));
+    }
+
     // Tests_SRS_AMQPSESSIONDEVICEOPERATION_12_051: [The function start the authentication with the new token.]
     @Test
     public void renewTokenSuccess() throws IllegalArgumentException, TransportException
@@ -495,10 +751,10 @@ public class AmqpsSessionDeviceOperationTest
         Deencapsulation.setField(amqpsSessionDeviceOperation, "amqpsAuthenticatorState", AmqpsDeviceAuthenticationState.AUTHENTICATING);
 
         // act
-        Integer deliveryHash = Deencapsulation.invoke(amqpsSessionDeviceOperation, "sendMessage", mockProtonMessage, MessageType.DEVICE_TELEMETRY, "someDeviceId");
+        Long deliveryId = Deencapsulation.invoke(amqpsSessionDeviceOperation, "sendMessage", mockProtonMessage, MessageType.DEVICE_TELEMETRY, "someDeviceId");
 
         // assert
-        assertTrue(deliveryHash == -1);
+        assertTrue(deliveryId == -1);
     }
 
     // Tests_SRS_AMQPSESSIONDEVICEOPERATION_12_013: [The function shall return -1 if the deviceId int he connection string is not equal to the deviceId in the config.]
@@ -520,16 +776,16 @@ public class AmqpsSessionDeviceOperationTest
         };
 
         // act
-        Integer deliveryHash = Deencapsulation.invoke(amqpsSessionDeviceOperation, "sendMessage", mockProtonMessage, MessageType.DEVICE_TELEMETRY, "someDeviceId");
+        Long deliveryId = Deencapsulation.invoke(amqpsSessionDeviceOperation, "sendMessage", mockProtonMessage, MessageType.DEVICE_TELEMETRY, "someDeviceId");
 
         // assert
-        assertTrue(deliveryHash == -1);
+        assertTrue(deliveryId == -1);
     }
 
     // Tests_SRS_AMQPSESSIONDEVICEOPERATION_12_014: [The function shall encode the message and copy the contents to the byte buffer.]
     // Tests_SRS_AMQPSESSIONDEVICEOPERATION_12_017: [The function shall set the delivery tag for the sender.]
     // Tests_SRS_AMQPSESSIONDEVICEOPERATION_12_018: [The function shall call sendMessageAndGetDeliveryHash on all device operation objects.]
-    // Tests_SRS_AMQPSESSIONDEVICEOPERATION_12_019: [The function shall return the delivery hash.]
+    // Tests_SRS_AMQPSESSIONDEVICEOPERATION_34_068: [If no device operation object sent the message, the function shall return -1.]
     @Test
     public void sendMessageNoDelivery() throws IllegalArgumentException, TransportException
     {
@@ -558,10 +814,10 @@ public class AmqpsSessionDeviceOperationTest
         };
 
         // act
-        Integer actualDeliveryHash = Deencapsulation.invoke(amqpsSessionDeviceOperation, "sendMessage", mockProtonMessage, MessageType.DEVICE_TELEMETRY, "someDeviceId");
+        Long actualDeliveryId = Deencapsulation.invoke(amqpsSessionDeviceOperation, "sendMessage", mockProtonMessage, MessageType.DEVICE_TELEMETRY, "someDeviceId");
 
         // assert
-        assertTrue(actualDeliveryHash == -1);
+        assertTrue(actualDeliveryId == -1);
         new Verifications()
         {
             {
@@ -574,7 +830,7 @@ public class AmqpsSessionDeviceOperationTest
     // Tests_SRS_AMQPSESSIONDEVICEOPERATION_12_014: [The function shall encode the message and copy the contents to the byte buffer.]
     // Tests_SRS_AMQPSESSIONDEVICEOPERATION_12_017: [The function shall set the delivery tag for the sender.]
     // Tests_SRS_AMQPSESSIONDEVICEOPERATION_12_018: [The function shall call sendMessageAndGetDeliveryHash on all device operation objects.]
-    // Tests_SRS_AMQPSESSIONDEVICEOPERATION_12_019: [The function shall return the delivery hash.]
+    // Tests_SRS_AMQPSESSIONDEVICEOPERATION_34_067: [If a device operation object sent the message, the function shall return the delivery id.]
     @Test
     public void sendMessageSuccess() throws IllegalArgumentException, TransportException
     {
@@ -603,10 +859,10 @@ public class AmqpsSessionDeviceOperationTest
         };
 
         // act
-        Integer actualDeliveryHash = Deencapsulation.invoke(amqpsSessionDeviceOperation, "sendMessage", mockProtonMessage, MessageType.DEVICE_TELEMETRY, "someDeviceId");
+        Long actualDeliveryId = Deencapsulation.invoke(amqpsSessionDeviceOperation, "sendMessage", mockProtonMessage, MessageType.DEVICE_TELEMETRY, "someDeviceId");
 
         // assert
-        assertTrue(actualDeliveryHash != -1);
+        assertTrue(actualDeliveryId != -1);
         new Verifications()
         {
             {
@@ -646,10 +902,10 @@ public class AmqpsSessionDeviceOperationTest
         };
 
         // act
-        Integer actualDeliveryHash = Deencapsulation.invoke(amqpsSessionDeviceOperation, "sendMessage", mockProtonMessage, MessageType.DEVICE_TELEMETRY, "someDeviceId");
+        Long actualDeliveryId = Deencapsulation.invoke(amqpsSessionDeviceOperation, "sendMessage", mockProtonMessage, MessageType.DEVICE_TELEMETRY, "someDeviceId");
 
         // assert
-        assertTrue(actualDeliveryHash != -1);
+        assertTrue(actualDeliveryId != -1);
         new Verifications()
         {
             {
@@ -659,6 +915,164 @@ public class AmqpsSessionDeviceOperationTest
         };
     }
 
+    // Tests_SRS_AMQPSESSIONDEVICEOPERATION_34_065: [The function shall reuse the encode buffer of this object for every message that fits in it.]
+    @Test
+    public void sendMessageReusesEncodeBuffer() throws IllegalArgumentException, TransportException
+    {
+        // arrange
+        final AmqpsSessionDeviceOperation amqpsSessionDeviceOperation = new AmqpsSessionDeviceOperation(mockDeviceClientConfig, mockAmqpsDeviceAuthentication);
+        Deencapsulation.setField(amqpsSessionDeviceOperation, "amqpsAuthenticatorState", AmqpsDeviceAuthenticationState.AUTHENTICATED);
+        final byte[] encodeBuffer = Deencapsulation.getField(amqpsSessionDeviceOperation, "encodeBuffer");
+        new NonStrictExpectations()
+        {
+            {
+                mockDeviceClientConfig.getDeviceId();
+                result = "someDeviceId";
+                Deencapsulation.invoke(mockAmqpsSendReturnValue, "isDeliverySuccessful");
+                result = true;
+            }
+        };
+
+        // act
+        Deencapsulation.invoke(amqpsSessionDeviceOperation, "sendMessage", mockProtonMessage, MessageType.DEVICE_TELEMETRY, "someDeviceId");
+        Deencapsulation.invoke(amqpsSessionDeviceOperation, "sendMessage", mockProtonMessage, MessageType.DEVICE_TELEMETRY, "someDeviceId");
+
+        // assert
+        assertSame(encodeBuffer, Deencapsulation.getField(amqpsSessionDeviceOperation, "encodeBuffer"));
+        new Verifications()
+        {
+            {
+                mockProtonMessage.encode(withSameInstance(encodeBuffer), 0, encodeBuffer.length);
+                times = 2;
+            }
+        };
+    }
+
+    // Tests_SRS_AMQPSESSIONDEVICEOPERATION_34_064: [If the encode buffer is smaller than the size of the message body plus an estimate for its properties, the function shall encode into a buffer of that size.]
+    // Tests_SRS_AMQPSESSIONDEVICEOPERATION_34_079: [The function shall keep a larger buffer it encoded into for the later messages only if that buffer is no larger than 4 KB.]
+    @Test
+    public void sendMessageSizesEncodeBufferFromBody() throws IllegalArgumentException, TransportException
+    {
+        // arrange
+        final int bodyLength = 200 * 1024;
+        final AmqpsSessionDeviceOperation amqpsSessionDeviceOperation = new AmqpsSessionDeviceOperation(mockDeviceClientConfig, mockAmqpsDeviceAuthentication);
+        Deencapsulation.setField(amqpsSessionDeviceOperation, "amqpsAuthenticatorState", AmqpsDeviceAuthenticationState.AUTHENTICATED);
+        new NonStrictExpectations()
+        {
+            {
+                mockDeviceClientConfig.getDeviceId();
+                result = "someDeviceId";
+                mockProtonMessage.getBody();
+                result = new Data(new Binary(new byte[bodyLength]));
+                Deencapsulation.invoke(mockAmqpsSendReturnValue, "isDeliverySuccessful");
+                result = true;
+            }
+        };
+
+        // act
+        Deencapsulation.invoke(amqpsSessionDeviceOperation, "sendMessage", mockProtonMessage, MessageType.DEVICE_TELEMETRY, "someDeviceId");
+
+        // assert
+        final byte[] encodeBuffer = Deencapsulation.getField(amqpsSessionDeviceOperation, "encodeBuffer");
+        assertEquals(1024, encodeBuffer.length);
+        new Verifications()
+        {
+            {
+                byte[] buffer;
+                mockProtonMessage.encode(buffer = withCapture(), anyInt, anyInt);
+                times = 1;
+                assertTrue(buffer.length > bodyLength);
+            }
+        };
+    }
+
+    // Tests_SRS_AMQPSESSIONDEVICEOPERATION_34_079: [The function shall keep a larger buffer it encoded into for the later messages only if that buffer is no larger than 4 KB.]
+    @Test
+    public void sendMessageKeepsSmallGrownEncodeBuffer() throws IllegalArgumentException, TransportException
+    {
+        // arrange
+        final int bodyLength = 2 * 1024;
+        final AmqpsSessionDeviceOperation amqpsSessionDeviceOperation = new AmqpsSessionDeviceOperation(mockDeviceClientConfig, mockAmqpsDeviceAuthentication);
+        Deencapsulation.setField(amqpsSessionDeviceOperation, "amqpsAuthenticatorState", AmqpsDeviceAuthenticationState.AUTHENTICATED);
+        new NonStrictExpectations()
+        {
+            {
+                mockDeviceClientConfig.getDeviceId();
+                result = "someDeviceId";
+                mockProtonMessage.getBody();
+                result = new Data(new Binary(new byte[bodyLength]));
+                Deencapsulation.invoke(mockAmqpsSendReturnValue, "isDeliverySuccessful");
+                result = true;
+            }
+        };
+
+        // act
+        Deencapsulation.invoke(amqpsSessionDeviceOperation, "sendMessage", mockProtonMessage, MessageType.DEVICE_TELEMETRY, "someDeviceId");
+
+        // assert
+        final byte[] encodeBuffer = Deencapsulation.getField(amqpsSessionDeviceOperation, "encodeBuffer");
+        assertTrue(encodeBuffer.length > bodyLength && encodeBuffer.length <= 4 * 1024);
+    }
+
+    // Tests_SRS_AMQPSESSIONDEVICEOPERATION_34_066: [The function shall take the next delivery id and use its decimal digits as the delivery tag.]
+    // Tests_SRS_AMQPSESSIONDEVICEOPERATION_34_067: [If a device operation object sent the message, the function shall return the delivery id.]
+    @Test
+    public void sendMessageReturnsIncreasingDeliveryIds() throws IllegalArgumentException, TransportException
+    {
+        // arrange
+        final AmqpsSessionDeviceOperation amqpsSessionDeviceOperation = new AmqpsSessionDeviceOperation(mockDeviceClientConfig, mockAmqpsDeviceAuthentication);
+        final AmqpsSessionDeviceOperation otherAmqpsSessionDeviceOperation = new AmqpsSessionDeviceOperation(mockDeviceClientConfig, mockAmqpsDeviceAuthentication);
+        Deencapsulation.setField(amqpsSessionDeviceOperation, "amqpsAuthenticatorState", AmqpsDeviceAuthenticationState.AUTHENTICATED);
+        Deencapsulation.setField(otherAmqpsSessionDeviceOperation, "amqpsAuthenticatorState", AmqpsDeviceAuthenticationState.AUTHENTICATED);
+        new NonStrictExpectations()
+        {
+            {
+                mockDeviceClientConfig.getDeviceId();
+                result = "someDeviceId";
+                Deencapsulation.invoke(mockAmqpsSendReturnValue, "isDeliverySuccessful");
+                result = true;
+            }
+        };
+
+        // act
+        long firstDeliveryId = Deencapsulation.invoke(amqpsSessionDeviceOperation, "sendMessage", mockProtonMessage, MessageType.DEVICE_TELEMETRY, "someDeviceId");
+        long secondDeliveryId = Deencapsulation.invoke(otherAmqpsSessionDeviceOperation, "sendMessage", mockProtonMessage, MessageType.DEVICE_TELEMETRY, "someDeviceId");
+
+        // assert
+        assertEquals(firstDeliveryId + 1, secondDeliveryId);
+    }
+
+    // Tests_SRS_AMQPSESSIONDEVICEOPERATION_34_066: [The function shall take the next delivery id and use its decimal digits as the delivery tag.]
+    // Tests_SRS_AMQPSESSIONDEVICEOPERATION_34_069: [The function shall return the delivery id whose decimal digits are the tag.]
+    @Test
+    public void deliveryTagRoundTripsDeliveryId() throws ClassNotFoundException
+    {
+        for (long deliveryId : new long[] {0, 1, 9, 10, 99, 100, 12345, 999999999999999999L})
+        {
+            // act
+            byte[] deliveryTag = Deencapsulation.invoke(AmqpsSessionDeviceOperation.class, "toDeliveryTag", new Class[] {long.class}, deliveryId);
+            long actualDeliveryId = Deencapsulation.invoke(AmqpsSessionDeviceOperation.class, "toDeliveryId", new Class[] {byte[].class}, deliveryTag);
+
+            // assert
+            assertArrayEquals(String.valueOf(deliveryId).getBytes(), deliveryTag);
+            assertEquals(deliveryId, actualDeliveryId);
+        }
+    }
+
+    // Tests_SRS_AMQPSESSIONDEVICEOPERATION_34_070: [If the tag is null, empty, longer than a long can hold or has a byte that is not a decimal digit, the function shall return -1.]
+    @Test
+    public void toDeliveryIdReturnsMinusOneForTagsItDidNotWrite()
+    {
+        for (byte[] deliveryTag : new byte[][] {null, new byte[0], "12a".getBytes(), "-1".getBytes(), "9999999999999999999".getBytes()})
+        {
+            // act
+            long deliveryId = Deencapsulation.invoke(AmqpsSessionDeviceOperation.class, "toDeliveryId", new Class[] {byte[].class}, (Object) deliveryTag);
+
+            // assert
+            assertEquals(-1, deliveryId);
+        }
+    }
+
     // Tests_SRS_AMQPSESSIONDEVICEOPERATION_12_020: [The function shall return null if the state is not authenticated or authenticating.]
     @Test
     public void getMessageFromReceiverLinkNotAuthenticated() throws IllegalArgumentException, TransportException
@@ -968,6 +1382,53 @@ public class AmqpsSessionDeviceOperationTest
         assertFalse(isFound);
     }
 
+    // Tests_SRS_AMQPSESSIONDEVICEOPERATION_34_071: [The function shall call onLinkFlow on the device operation objects until one of them owns the link, and return true if one does.]
+    @Test
+    public void onLinkFlowStopsAtOperationOwningLink() throws TransportException
+    {
+        // arrange
+        final String linkName = "linkName";
+        final AmqpsSessionDeviceOperation amqpsSessionDeviceOperation = new AmqpsSessionDeviceOperation(mockDeviceClientConfig, mockAmqpsDeviceAuthentication);
+
+        new NonStrictExpectations()
+        {
+            {
+                Deencapsulation.invoke(mockAmqpsDeviceTelemetry, "onLinkFlow", linkName);
+                result = false;
+                Deencapsulation.invoke(mockAmqpsDeviceMethods, "onLinkFlow", linkName);
+                result = true;
+            }
+        };
+
+        // act
+        boolean isFound = Deencapsulation.invoke(amqpsSessionDeviceOperation, "onLinkFlow", linkName);
+
+        // assert
+        assertTrue(isFound);
+        new Verifications()
+        {
+            {
+                Deencapsulation.invoke(mockAmqpsDeviceTwin, "onLinkFlow", linkName);
+                times = 0;
+            }
+        };
+    }
+
+    // Tests_SRS_AMQPSESSIONDEVICEOPERATION_34_071: [The function shall call onLinkFlow on the device operation objects until one of them owns the link, and return true if one does.]
+    @Test
+    public void onLinkFlowReturnsFalseIfNoOperationOwnsLink() throws TransportException
+    {
+        // arrange
+        final String linkName = "linkName";
+        final AmqpsSessionDeviceOperation amqpsSessionDeviceOperation = new AmqpsSessionDeviceOperation(mockDeviceClientConfig, mockAmqpsDeviceAuthentication);
+
+        // act
+        boolean isFound = Deencapsulation.invoke(amqpsSessionDeviceOperation, "onLinkFlow", linkName);
+
+        // assert
+        assertFalse(isFound);
+    }
+
     // Tests_SRS_AMQPSESSIONDEVICEOPERATION_12_040: [The function shall call all device operation's convertToProton, and if any of them not null return with the value.]
     // Tests_SRS_AMQPSESSIONDEVICEOPERATION_12_041: [The function shall call all device operation's convertFromProton, and if any of them not null return with the value.]
     @Test
@@ -9,7 +9,11 @@ import org.junit.Test;
 
 import javax.net.ssl.SSLContext;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
 import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
 
 import static org.junit.Assert.*;
@@ -78,6 +82,16 @@ public class AmqpsSessionManagerTest
     @Mocked
     AmqpsConvertFromProtonReturnValue mockAmqpsConvertFromProtonReturnValue;
 
+    @Mocked
+    org.apache.qpid.proton.amqp.messaging.Properties mockProperties;
+
+    private static void index(AmqpsSessionManager amqpsSessionManager, String indexName, String key, AmqpsSessionDeviceOperation amqpsSessionDeviceOperation)
+    {
+        Map<String, AmqpsSessionDeviceOperation> sessionIndex = new HashMap<>();
+        sessionIndex.put(key, amqpsSessionDeviceOperation);
+        Deencapsulation.setField(amqpsSessionManager, indexName, sessionIndex);
+    }
+
     // Tests_SRS_AMQPSESSIONMANAGER_12_001: [The constructor shall throw IllegalArgumentException if the deviceClientConfig parameter is null.]
     @Test (expected = IllegalArgumentException.class)
     public void constructorThrowsIfDeviceClientIsNull() throws IllegalArgumentException, TransportException
@@ -148,6 +162,26 @@ public class AmqpsSessionManagerTest
         };
     }
 
+    // Tests_SRS_AMQPSESSIONMANAGER_34_051: [The new device session shall renew its token on the scheduler of this object instead of a thread of its own.]
+    @Test
+    public void constructorSharesSchedulerWithDeviceSession() throws IllegalArgumentException, TransportException
+    {
+        // arrange
+        baseExpectationsSAS();
+
+        // act
+        new AmqpsSessionManager(mockDeviceClientConfig, mockScheduledExecutorService);
+
+        // assert
+        new Verifications()
+        {
+            {
+                Deencapsulation.newInstance(AmqpsSessionDeviceOperation.class, new Class[] {DeviceClientConfig.class, AmqpsDeviceAuthentication.class, ScheduledExecutorService.class}, mockDeviceClientConfig, mockAmqpsDeviceAuthenticationCBS, mockScheduledExecutorService);
+                times = 1;
+            }
+        };
+    }
+
     // Tests_SRS_AMQPSESSIONMANAGER_12_009: [The function shall create a new  AmqpsSessionDeviceOperation with the given deviceClientConfig and add it to the session list.]
     @Test
     public void addDeviceOperationSessionSuccess() throws IllegalArgumentException, TransportException
@@ -166,12 +200,45 @@ public class AmqpsSessionManagerTest
         new Verifications()
         {
             {
-                new AmqpsSessionDeviceOperation(mockDeviceClientConfig, mockAmqpsDeviceAuthenticationCBS);
+                Deencapsulation.newInstance(AmqpsSessionDeviceOperation.class, new Class[] {DeviceClientConfig.class, AmqpsDeviceAuthentication.class, ScheduledExecutorService.class}, mockDeviceClientConfig, mockAmqpsDeviceAuthenticationCBS, (ScheduledExecutorService) any);
                 times = 1;
             }
         };
     }
 
+    // Tests_SRS_AMQPSESSIONMANAGER_34_047: [The function shall index the new device session by its device id and by the names of its links.]
+    @Test
+    public void addDeviceOperationSessionIndexesSession(@Mocked final DeviceClientConfig mockDeviceClientConfig1) throws IllegalArgumentException, TransportException
+    {
+        // arrange
+        final String deviceId = "someDeviceId";
+        final java.util.List<String> linkNames = new ArrayList<>();
+        linkNames.add("senderLink");
+        linkNames.add("receiverLink");
+        AmqpsSessionManager amqpsSessionManager = new AmqpsSessionManager(mockDeviceClientConfig, mockScheduledExecutorService);
+        new NonStrictExpectations()
+        {
+            {
+                mockDeviceClientConfig1.getDeviceId();
+                result = deviceId;
+                Deencapsulation.invoke(mockAmqpsSessionDeviceOperation, "getLinkNames");
+                result = linkNames;
+            }
+        };
+
+        // act
+        Deencapsulation.invoke(amqpsSessionManager, "addDeviceOperationSession", mockDeviceClientConfig1);
+
+        // assert
+        ArrayList<AmqpsSessionDeviceOperation> actualList = Deencapsulation.getField(amqpsSessionManager, "amqpsDeviceSessionList");
+        AmqpsSessionDeviceOperation addedSession = actualList.get(1);
+        Map<String, AmqpsSessionDeviceOperation> byDeviceId = Deencapsulation.getField(amqpsSessionManager, "amqpsDeviceSessionsByDeviceId");
+        Map<String, AmqpsSessionDeviceOperation> byLinkName = Deencapsulation.getField(amqpsSessionManager, "amqpsDeviceSessionsByLinkName");
+        assertEquals(addedSession, byDeviceId.get(deviceId));
+        assertEquals(addedSession, byLinkName.get("senderLink"));
+        assertEquals(addedSession, byLinkName.get("receiverLink"));
+    }
+
     // Tests_SRS_AMQPSESSIONMANAGER_12_010: [The function shall call all device session to closeNow links.]
     // Tests_SRS_AMQPSESSIONMANAGER_12_011: [The function shall closeNow the authentication links.]
     // Tests_SRS_AMQPSESSIONMANAGER_12_012: [The function shall closeNow the session.]
@@ -227,6 +294,38 @@ public class AmqpsSessionManagerTest
         };
     }
 
+    // Tests_SRS_AMQPSESSIONMANAGER_34_046: [If the scheduler is shared, the function shall cancel the CBS send task instead of shutting the scheduler down.]
+    @Test
+    public void closeNowCancelsTaskOnSharedScheduler(@Mocked final ScheduledFuture<?> mockScheduledFuture) throws TransportException
+    {
+        // arrange
+        baseExpectationsSAS();
+        new NonStrictExpectations()
+        {
+            {
+                mockScheduledExecutorService.scheduleAtFixedRate((Runnable) any, anyLong, anyLong, (TimeUnit) any);
+                result = mockScheduledFuture;
+            }
+        };
+        AmqpsSessionManager amqpsSessionManager = Deencapsulation.newInstance(AmqpsSessionManager.class, new Class[] {DeviceClientConfig.class, ScheduledExecutorService.class, boolean.class}, mockDeviceClientConfig, mockScheduledExecutorService, true);
+
+        // act
+        Deencapsulation.invoke(amqpsSessionManager, "closeNow");
+
+        // assert
+        new Verifications()
+        {
+            {
+                mockScheduledFuture.cancel(false);
+                times = 1;
+                mockScheduledExecutorService.shutdown();
+                times = 0;
+                mockScheduledExecutorService.shutdownNow();
+                times = 0;
+            }
+        };
+    }
+
     // Tests_SRS_AMQPSESSIONMANAGER_12_014: [The function shall do nothing if the authentication is not open.]
     @Test
     public void authenticateDoesNothing() throws IllegalArgumentException, InterruptedException, TransportException
@@ -247,7 +346,8 @@ public class AmqpsSessionManagerTest
         Deencapsulation.invoke(amqpsSessionManager, "authenticate");
     }
 
-    // Tests_SRS_AMQPSESSIONMANAGER_12_015: [The function shall call authenticate on all session list members.]
+    // Tests_SRS_AMQPSESSIONMANAGER_34_048: [The function shall queue the authentication messages of all session list members before waiting for any reply, so that they are sent together.]
+    // Tests_SRS_AMQPSESSIONMANAGER_34_049: [The function shall then wait for the replies of all session list members, for at most the authentication timeout in total.]
     @Test
     public void authenticateSuccess() throws IllegalArgumentException, InterruptedException, TransportException
     {
@@ -260,6 +360,8 @@ public class AmqpsSessionManagerTest
         sessionList.add(mockAmqpsSessionDeviceOperation1);
         Deencapsulation.setField(amqpsSessionManager, "amqpsDeviceSessionList", sessionList);
 
+        final UUID correlationId = UUID.randomUUID();
+        final UUID correlationId1 = UUID.randomUUID();
         new NonStrictExpectations()
         {
             {
@@ -267,6 +369,10 @@ public class AmqpsSessionManagerTest
                 result = DeviceClientConfig.AuthType.SAS_TOKEN;
                 mockAmqpsDeviceAuthenticationCBS.operationLinksOpened();
                 result = true;
+                Deencapsulation.invoke(mockAmqpsSessionDeviceOperation, "beginAuthentication");
+                result = correlationId;
+                Deencapsulation.invoke(mockAmqpsSessionDeviceOperation1, "beginAuthentication");
+                result = correlationId1;
             }
         };
 
@@ -274,15 +380,21 @@ public class AmqpsSessionManagerTest
         Deencapsulation.invoke(amqpsSessionManager, "authenticate");
 
         // assert
-        new Verifications()
+        new VerificationsInOrder()
         {
             {
-                Deencapsulation.invoke(mockAmqpsSessionDeviceOperation, "authenticate");
+                Deencapsulation.invoke(mockAmqpsSessionDeviceOperation, "beginAuthentication");
+                times = 1;
+                Deencapsulation.invoke(mockAmqpsSessionDeviceOperation1, "beginAuthentication");
                 times = 1;
-                Deencapsulation.invoke(mockAmqpsSessionDeviceOperation1, "authenticate");
+                Deencapsulation.invoke(mockAmqpsSessionDeviceOperation, "awaitAuthentication", new Class[] {UUID.class, long.class}, correlationId, anyLong);
+                times = 1;
+                Deencapsulation.invoke(mockAmqpsSessionDeviceOperation1, "awaitAuthentication", new Class[] {UUID.class, long.class}, correlationId1, anyLong);
                 times = 1;
             }
         };
+        Map<Object, AmqpsSessionDeviceOperation> pendingAuthentications = Deencapsulation.getField(amqpsSessionManager, "pendingAuthentications");
+        assertTrue(pendingAuthentications.isEmpty());
     }
 
     // Tests_SRS_AMQPSESSIONMANAGER_12_018: [The function shall do nothing if the session is not open.]
@@ -326,7 +438,7 @@ public class AmqpsSessionManagerTest
     }
 
     // Tests_SRS_AMQPSESSIONMANAGER_12_019: [The function shall call openLinks on all session list members.]
-    // Tests_SRS_AMQPSESSIONMANAGER_12_020: [The function shall lock the execution with waitLock.]
+    // Tests_SRS_AMQPSESSIONMANAGER_12_020: [The function shall lock the execution with waitLock until the links of all session list members are open, for at most the open timeout in total.]
     @Test
     public void openDeviceOperationLinksSuccess() throws IllegalArgumentException, InterruptedException, TransportException
     {
@@ -346,6 +458,10 @@ public class AmqpsSessionManagerTest
             {
                 mockAmqpsDeviceAuthenticationCBS.operationLinksOpened();
                 result = true;
+                mockAmqpsSessionDeviceOperation.operationLinksOpened();
+                returns(false, true);
+                mockAmqpsSessionDeviceOperation1.operationLinksOpened();
+                result = true;
             }
         };
 
@@ -361,7 +477,7 @@ public class AmqpsSessionManagerTest
                 Deencapsulation.invoke(mockAmqpsSessionDeviceOperation1, "openLinks", mockSession);
                 times = 1;
                 mockObjectLock.waitLock(anyLong);
-                times = 2;
+                times = 1;
             }
         };
     }
@@ -482,7 +598,7 @@ public class AmqpsSessionManagerTest
         };
     }
 
-    // Tests_SRS_AMQPSESSIONMANAGER_12_027: [The function shall call authentication initLink on all session list member if the authentication is open and the session is not null.]
+    // Tests_SRS_AMQPSESSIONMANAGER_12_027: [The function shall call initLink on the device session that owns the link if the authentication is open and the session is not null.]
     @Test
     public void onLinkInitCallsDeviceSessionInitLink() throws IllegalArgumentException, InterruptedException, TransportException
     {
@@ -495,12 +611,15 @@ public class AmqpsSessionManagerTest
         sessionList.add(mockAmqpsSessionDeviceOperation);
         sessionList.add(mockAmqpsSessionDeviceOperation1);
         Deencapsulation.setField(amqpsSessionManager, "amqpsDeviceSessionList", sessionList);
+        index(amqpsSessionManager, "amqpsDeviceSessionsByLinkName", "linkName", mockAmqpsSessionDeviceOperation);
 
         new NonStrictExpectations()
         {
             {
                 mockAmqpsDeviceAuthenticationCBS.operationLinksOpened();
                 result = true;
+                mockLink.getName();
+                result = "linkName";
             }
         };
 
@@ -514,7 +633,7 @@ public class AmqpsSessionManagerTest
                 Deencapsulation.invoke(mockAmqpsSessionDeviceOperation, "initLink", mockLink);
                 times = 1;
                 Deencapsulation.invoke(mockAmqpsSessionDeviceOperation1, "initLink", mockLink);
-                times = 1;
+                times = 0;
             }
         };
     }
@@ -625,7 +744,7 @@ public class AmqpsSessionManagerTest
         assertTrue(returnValue);
     }
 
-    // Tests_SRS_AMQPSESSIONMANAGER_12_031: [The function shall call all all device session's isLinkFound, and if both links are opened notify the lock.]
+    // Tests_SRS_AMQPSESSIONMANAGER_12_031: [The function shall call isLinkFound on the device session that owns the link and notify the lock if all of its links are open.]
     @Test
     public void onLinkRemoteOpenNotify() throws IllegalArgumentException, InterruptedException, TransportException
     {
@@ -638,6 +757,7 @@ public class AmqpsSessionManagerTest
         sessionList.add(mockAmqpsSessionDeviceOperation);
         sessionList.add(mockAmqpsSessionDeviceOperation1);
         Deencapsulation.setField(amqpsSessionManager, "amqpsDeviceSessionList", sessionList);
+        index(amqpsSessionManager, "amqpsDeviceSessionsByLinkName", linkName, mockAmqpsSessionDeviceOperation);
 
         Deencapsulation.setField(amqpsSessionManager, "openLinksLock", mockObjectLock);
 
@@ -677,7 +797,7 @@ public class AmqpsSessionManagerTest
         };
     }
 
-    // Tests_SRS_AMQPSESSIONMANAGER_12_032: [The function shall call sendMessage on all session list member and if there is a successful send return with the deliveryHash, otherwise return -1.]
+    // Tests_SRS_AMQPSESSIONMANAGER_12_032: [The function shall call sendMessage on the device session of the given device id and return its delivery id, or return -1 if there is no such session.]
     @Test
     public void sendMessageNoSender() throws IllegalArgumentException, InterruptedException, TransportException
     {
@@ -691,25 +811,24 @@ public class AmqpsSessionManagerTest
         sessionList.add(mockAmqpsSessionDeviceOperation);
         sessionList.add(mockAmqpsSessionDeviceOperation1);
         Deencapsulation.setField(amqpsSessionManager, "amqpsDeviceSessionList", sessionList);
+        index(amqpsSessionManager, "amqpsDeviceSessionsByDeviceId", "someDeviceId", mockAmqpsSessionDeviceOperation);
 
         new StrictExpectations()
         {
             {
                 Deencapsulation.invoke(mockAmqpsSessionDeviceOperation, "sendMessage", mockProtonMessage, MessageType.DEVICE_TELEMETRY, "someDeviceId");
-                result = -1;
-                Deencapsulation.invoke(mockAmqpsSessionDeviceOperation1, "sendMessage", mockProtonMessage, MessageType.DEVICE_TELEMETRY, "someDeviceId");
-                result = -1;
+                result = -1L;
             }
         };
 
         // act
-        Integer deliveryHash = Deencapsulation.invoke(amqpsSessionManager, "sendMessage", mockProtonMessage, MessageType.DEVICE_TELEMETRY, "someDeviceId");
+        Long deliveryId = Deencapsulation.invoke(amqpsSessionManager, "sendMessage", mockProtonMessage, MessageType.DEVICE_TELEMETRY, "someDeviceId");
 
         // assert
-        assertTrue(deliveryHash == -1);
+        assertTrue(deliveryId == -1);
     }
 
-    // Tests_SRS_AMQPSESSIONMANAGER_12_032: [The function shall call sendMessage on all session list member and if there is a successful send return with the deliveryHash, otherwise return -1.]
+    // Tests_SRS_AMQPSESSIONMANAGER_12_032: [The function shall call sendMessage on the device session of the given device id and return its delivery id, or return -1 if there is no such session.]
     @Test
     public void sendMessageSuccess() throws IllegalArgumentException, InterruptedException, TransportException
     {
@@ -723,22 +842,44 @@ public class AmqpsSessionManagerTest
         sessionList.add(mockAmqpsSessionDeviceOperation);
         sessionList.add(mockAmqpsSessionDeviceOperation1);
         Deencapsulation.setField(amqpsSessionManager, "amqpsDeviceSessionList", sessionList);
+        index(amqpsSessionManager, "amqpsDeviceSessionsByDeviceId", "someDeviceId", mockAmqpsSessionDeviceOperation1);
 
         new StrictExpectations()
         {
             {
-                Deencapsulation.invoke(mockAmqpsSessionDeviceOperation, "sendMessage", mockProtonMessage, MessageType.DEVICE_TELEMETRY, "someDeviceId");
-                result = -1;
                 Deencapsulation.invoke(mockAmqpsSessionDeviceOperation1, "sendMessage", mockProtonMessage, MessageType.DEVICE_TELEMETRY, "someDeviceId");
-                result = 42;
+                result = 42L;
             }
         };
 
         // act
-        Integer deliveryHash = Deencapsulation.invoke(amqpsSessionManager, "sendMessage", mockProtonMessage, MessageType.DEVICE_TELEMETRY, "someDeviceId");
+        Long deliveryId = Deencapsulation.invoke(amqpsSessionManager, "sendMessage", mockProtonMessage, MessageType.DEVICE_TELEMETRY, "someDeviceId");
 
         // assert
-        assertEquals((Integer)42, deliveryHash);
+        assertEquals((Long) 42L, deliveryId);
+    }
+
+    // Tests_SRS_AMQPSESSIONMANAGER_12_032: [The function shall call sendMessage on the device session of the given device id and return its delivery id, or return -1 if there is no such session.]
+    @Test
+    public void sendMessageUnknownDeviceReturnsMinusOne() throws IllegalArgumentException, TransportException
+    {
+        // arrange
+        final AmqpsSessionManager amqpsSessionManager = new AmqpsSessionManager(mockDeviceClientConfig, mockScheduledExecutorService);
+        Deencapsulation.setField(amqpsSessionManager, "session", mockSession);
+        index(amqpsSessionManager, "amqpsDeviceSessionsByDeviceId", "someDeviceId", mockAmqpsSessionDeviceOperation);
+
+        // act
+        Long deliveryId = Deencapsulation.invoke(amqpsSessionManager, "sendMessage", mockProtonMessage, MessageType.DEVICE_TELEMETRY, "otherDeviceId");
+
+        // assert
+        assertTrue(deliveryId == -1);
+        new Verifications()
+        {
+            {
+                Deencapsulation.invoke(mockAmqpsSessionDeviceOperation, "sendMessage", mockProtonMessage, MessageType.DEVICE_TELEMETRY, anyString);
+                times = 0;
+            }
+        };
     }
 
     // Tests_SRS_AMQPSESSIONMANAGER_12_033: [The function shall do nothing and return null if the session is not open.]
@@ -786,7 +927,7 @@ public class AmqpsSessionManagerTest
 
     }
 
-    // Tests_SRS_AMQPSESSIONMANAGER_12_035: [The function shall call device sessions getMessageFromReceiverLink if the authentication is open.]
+    // Tests_SRS_AMQPSESSIONMANAGER_12_035: [The function shall call getMessageFromReceiverLink on the device session that owns the link if the authentication is open.]
     @Test
     public void getMessageFromReceiverLinkCallsDeviceSessionsAuthenticated() throws IllegalArgumentException, InterruptedException, TransportException
     {
@@ -800,6 +941,7 @@ public class AmqpsSessionManagerTest
         sessionList.add(mockAmqpsSessionDeviceOperation);
         sessionList.add(mockAmqpsSessionDeviceOperation1);
         Deencapsulation.setField(amqpsSessionManager, "amqpsDeviceSessionList", sessionList);
+        index(amqpsSessionManager, "amqpsDeviceSessionsByLinkName", linkName, mockAmqpsSessionDeviceOperation);
 
         new Expectations()
         {
@@ -818,6 +960,105 @@ public class AmqpsSessionManagerTest
         assertEquals(mockAmqpsMessage, amqpsMessage);
     }
 
+    // Tests_SRS_AMQPSESSIONMANAGER_34_050: [If the authentication is open and the link is the authentication receiver link, the function shall read the CBS reply from the authentication and hand it to the device session that is waiting for it.]
+    @Test
+    public void getMessageFromReceiverLinkRoutesCbsReplyByCorrelationId() throws IllegalArgumentException, TransportException
+    {
+        // arrange
+        final String cbsLinkName = "cbsReceiverLink";
+        final UUID correlationId = UUID.randomUUID();
+        final AmqpsSessionManager amqpsSessionManager = new AmqpsSessionManager(mockDeviceClientConfig, mockScheduledExecutorService);
+        Deencapsulation.setField(amqpsSessionManager, "session", mockSession);
+        Deencapsulation.setField(amqpsSessionManager, "amqpsDeviceAuthentication", mockAmqpsDeviceAuthenticationCBS);
+
+        ArrayList<AmqpsSessionDeviceOperation> sessionList = new ArrayList<>();
+        sessionList.add(mockAmqpsSessionDeviceOperation);
+        sessionList.add(mockAmqpsSessionDeviceOperation1);
+        Deencapsulation.setField(amqpsSessionManager, "amqpsDeviceSessionList", sessionList);
+        Map<Object, AmqpsSessionDeviceOperation> pendingAuthentications = Deencapsulation.getField(amqpsSessionManager, "pendingAuthentications");
+        pendingAuthentications.put(correlationId, mockAmqpsSessionDeviceOperation1);
+
+        new NonStrictExpectations()
+        {
+            {
+                mockAmqpsDeviceAuthenticationCBS.operationLinksOpened();
+                result = true;
+                Deencapsulation.invoke(mockAmqpsDeviceAuthenticationCBS, "getReceiverLinkTag");
+                result = cbsLinkName;
+                Deencapsulation.invoke(mockAmqpsDeviceAuthenticationCBS, "getMessageFromReceiverLink", cbsLinkName);
+                result = mockAmqpsMessage;
+                mockAmqpsMessage.getProperties();
+                result = mockProperties;
+                mockProperties.getCorrelationId();
+                result = correlationId;
+            }
+        };
+
+        // act
+        AmqpsMessage amqpsMessage = Deencapsulation.invoke(amqpsSessionManager, "getMessageFromReceiverLink", cbsLinkName);
+
+        // assert
+        assertEquals(mockAmqpsMessage, amqpsMessage);
+        assertTrue(pendingAuthentications.isEmpty());
+        new Verifications()
+        {
+            {
+                Deencapsulation.invoke(mockAmqpsSessionDeviceOperation1, "onAuthenticationMessage", mockAmqpsMessage);
+                times = 1;
+                Deencapsulation.invoke(mockAmqpsSessionDeviceOperation, "onAuthenticationMessage", mockAmqpsMessage);
+                times = 0;
+            }
+        };
+    }
+
+    // Tests_SRS_AMQPSESSIONMANAGER_34_050: [If the authentication is open and the link is the authentication receiver link, the function shall read the CBS reply from the authentication and hand it to the device session that is waiting for it.]
+    @Test
+    public void getMessageFromReceiverLinkOffersUnindexedCbsReplyToSessions() throws IllegalArgumentException, TransportException
+    {
+        // arrange
+        final String cbsLinkName = "cbsReceiverLink";
+        final AmqpsSessionManager amqpsSessionManager = new AmqpsSessionManager(mockDeviceClientConfig, mockScheduledExecutorService);
+        Deencapsulation.setField(amqpsSessionManager, "session", mockSession);
+        Deencapsulation.setField(amqpsSessionManager, "amqpsDeviceAuthentication", mockAmqpsDeviceAuthenticationCBS);
+
+        ArrayList<AmqpsSessionDeviceOperation> sessionList = new ArrayList<>();
+        sessionList.add(mockAmqpsSessionDeviceOperation);
+        sessionList.add(mockAmqpsSessionDeviceOperation1);
+        Deencapsulation.setField(amqpsSessionManager, "amqpsDeviceSessionList", sessionList);
+
+        new NonStrictExpectations()
+        {
+            {
+                mockAmqpsDeviceAuthenticationCBS.operationLinksOpened();
+                result = true;
+                Deencapsulation.invoke(mockAmqpsDeviceAuthenticationCBS, "getReceiverLinkTag");
+                result = cbsLinkName;
+                Deencapsulation.invoke(mockAmqpsDeviceAuthenticationCBS, "getMessageFromReceiverLink", cbsLinkName);
+                result = mockAmqpsMessage;
+                mockAmqpsMessage.getProperties();
+                result = mockProperties;
+                mockProperties.getCorrelationId();
+                result = UUID.randomUUID();
+                Deencapsulation.invoke(mockAmqpsSessionDeviceOperation, "onAuthenticationMessage", mockAmqpsMessage);
+                result = true;
+            }
+        };
+
+        // act
+        Deencapsulation.invoke(amqpsSessionManager, "getMessageFromReceiverLink", cbsLinkName);
+
+        // assert
+        new Verifications()
+        {
+            {
+                Deencapsulation.invoke(mockAmqpsSessionDeviceOperation, "onAuthenticationMessage", mockAmqpsMessage);
+                times = 1;
+                Deencapsulation.invoke(mockAmqpsSessionDeviceOperation1, "onAuthenticationMessage", mockAmqpsMessage);
+                times = 0;
+            }
+        };
+    }
+
     // Tests_SRS_AMQPSESSIONMANAGER_12_037: [The function shall return with the authentication isLinkFound's return value if the authentication is not open.]
     @Test
     public void isLinkFoundCallsAuth() throws IllegalArgumentException, InterruptedException, TransportException
@@ -850,7 +1091,70 @@ public class AmqpsSessionManagerTest
         assertEquals(true, isFound);
     }
 
-    // Tests_SRS_AMQPSESSIONMANAGER_12_038: [The function shall call all device session's isLinkFound, and if any of them true return true otherwise return false.]
+    // Tests_SRS_AMQPSESSIONMANAGER_34_039: [The function shall call onLinkFlow on the authentication object and, if it does not own the link, on the device session that owns the link.]
+    @Test
+    public void onLinkFlowCallsAuthenticationFirst() throws IllegalArgumentException, TransportException
+    {
+        // arrange
+        final String linkName = "linkName";
+        final AmqpsSessionManager amqpsSessionManager = new AmqpsSessionManager(mockDeviceClientConfig, mockScheduledExecutorService);
+        Deencapsulation.setField(amqpsSessionManager, "amqpsDeviceAuthentication", mockAmqpsDeviceAuthenticationCBS);
+
+        ArrayList<AmqpsSessionDeviceOperation> sessionList = new ArrayList<>();
+        sessionList.add(mockAmqpsSessionDeviceOperation);
+        Deencapsulation.setField(amqpsSessionManager, "amqpsDeviceSessionList", sessionList);
+
+        new NonStrictExpectations()
+        {
+            {
+                Deencapsulation.invoke(mockAmqpsDeviceAuthenticationCBS, "onLinkFlow", linkName);
+                result = true;
+            }
+        };
+
+        // act
+        Deencapsulation.invoke(amqpsSessionManager, "onLinkFlow", linkName);
+
+        // assert
+        new Verifications()
+        {
+            {
+                Deencapsulation.invoke(mockAmqpsSessionDeviceOperation, "onLinkFlow", linkName);
+                times = 0;
+            }
+        };
+    }
+
+    // Tests_SRS_AMQPSESSIONMANAGER_34_039: [The function shall call onLinkFlow on the authentication object and, if it does not own the link, on the device session that owns the link.]
+    @Test
+    public void onLinkFlowCallsDeviceSessionThatOwnsLink() throws IllegalArgumentException, TransportException
+    {
+        // arrange
+        final String linkName = "linkName";
+        final AmqpsSessionManager amqpsSessionManager = new AmqpsSessionManager(mockDeviceClientConfig, mockScheduledExecutorService);
+        Deencapsulation.setField(amqpsSessionManager, "amqpsDeviceAuthentication", mockAmqpsDeviceAuthenticationCBS);
+
+        ArrayList<AmqpsSessionDeviceOperation> sessionList = new ArrayList<>();
+        sessionList.add(mockAmqpsSessionDeviceOperation);
+        sessionList.add(mockAmqpsSessionDeviceOperation1);
+        Deencapsulation.setField(amqpsSessionManager, "amqpsDeviceSessionList", sessionList);
+        index(amqpsSessionManager, "amqpsDeviceSessionsByLinkName", linkName, mockAmqpsSessionDeviceOperation);
+
+        new StrictExpectations()
+        {
+            {
+                Deencapsulation.invoke(mockAmqpsDeviceAuthenticationCBS, "onLinkFlow", linkName);
+                result = false;
+                Deencapsulation.invoke(mockAmqpsSessionDeviceOperation, "onLinkFlow", linkName);
+                result = true;
+            }
+        };
+
+        // act
+        Deencapsulation.invoke(amqpsSessionManager, "onLinkFlow", linkName);
+    }
+
+    // Tests_SRS_AMQPSESSIONMANAGER_12_038: [The function shall return the isLinkFound of the device session that owns the link, or false if no device session owns it.]
     @Test
     public void isLinkFoundCallsDeviceSessions() throws IllegalArgumentException, InterruptedException, TransportException
     {
@@ -864,6 +1168,7 @@ public class AmqpsSessionManagerTest
         sessionList.add(mockAmqpsSessionDeviceOperation);
         sessionList.add(mockAmqpsSessionDeviceOperation1);
         Deencapsulation.setField(amqpsSessionManager, "amqpsDeviceSessionList", sessionList);
+        index(amqpsSessionManager, "amqpsDeviceSessionsByLinkName", linkName, mockAmqpsSessionDeviceOperation);
 
         new Expectations()
         {
@@ -1165,7 +1470,7 @@ public class AmqpsSessionManagerTest
                 result = DeviceClientConfig.AuthType.SAS_TOKEN;
                 new AmqpsDeviceAuthenticationCBS(mockDeviceClientConfig);
                 result = mockAmqpsDeviceAuthenticationCBS;
-                new AmqpsSessionDeviceOperation(mockDeviceClientConfig, mockAmqpsDeviceAuthenticationCBS);
+                Deencapsulation.newInstance(AmqpsSessionDeviceOperation.class, new Class[] {DeviceClientConfig.class, AmqpsDeviceAuthentication.class, ScheduledExecutorService.class}, mockDeviceClientConfig, mockAmqpsDeviceAuthenticationCBS, mockScheduledExecutorService);
                 result = mockAmqpsSessionDeviceOperation;
             }
         };
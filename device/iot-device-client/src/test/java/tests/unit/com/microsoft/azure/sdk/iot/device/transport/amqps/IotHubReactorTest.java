@@ -10,6 +10,7 @@ import mockit.Deencapsulation;
 import mockit.Mocked;
 import mockit.StrictExpectations;
 import mockit.Verifications;
+import mockit.VerificationsInOrder;
 import org.apache.qpid.proton.reactor.Reactor;
 import org.junit.Test;
 
@@ -61,4 +62,65 @@ public class IotHubReactorTest
         };
     }
 
+    // Tests_SRS_IOTHUBREACTOR_34_005: [This function shall set the timeout of the reactor to 0 milliseconds and start the reactor.]
+    @Test
+    public void startSetsZeroTimeoutAndStartsReactor()
+    {
+        //arrange
+        IotHubReactor iotHubReactor = Deencapsulation.newInstance(IotHubReactor.class, new Class[] {Reactor.class}, mockReactor);
+
+        //act
+        Deencapsulation.invoke(iotHubReactor, "start");
+
+        //assert
+        new VerificationsInOrder()
+        {
+            {
+                mockReactor.setTimeout(0);
+                mockReactor.start();
+            }
+        };
+    }
+
+    // Tests_SRS_IOTHUBREACTOR_34_006: [This function shall process the reactor once and return its result.]
+    @Test
+    public void processReturnsReactorResult()
+    {
+        //arrange
+        IotHubReactor iotHubReactor = Deencapsulation.newInstance(IotHubReactor.class, new Class[] {Reactor.class}, mockReactor);
+        new StrictExpectations()
+        {
+            {
+                mockReactor.process();
+                result = false;
+            }
+        };
+
+        //act
+        boolean result = Deencapsulation.invoke(iotHubReactor, "process");
+
+        //assert
+        assertEquals(false, result);
+    }
+
+    // Tests_SRS_IOTHUBREACTOR_34_007: [This function shall stop the reactor, process it one last time and free it.]
+    @Test
+    public void finishStopsProcessesAndFreesReactor()
+    {
+        //arrange
+        IotHubReactor iotHubReactor = Deencapsulation.newInstance(IotHubReactor.class, new Class[] {Reactor.class}, mockReactor);
+
+        //act
+        Deencapsulation.invoke(iotHubReactor, "finish");
+
+        //assert
+        new VerificationsInOrder()
+        {
+            {
+                mockReactor.stop();
+                mockReactor.process();
+                mockReactor.free();
+            }
+        };
+    }
 }
@@ -212,6 +212,31 @@ public class HttpsBatchMessageTest
         assertThat(testBatchBody, containsString(expectedMessageIdString));
     }
 
+    // Tests_SRS_HTTPSBATCHMESSAGE_11_002: [The function shall add the message as a JSON object appended to the current JSON array.]
+    @Test
+    public void addMessageAppendsEachMessageToTheArray(
+            @Mocked final HttpsSingleMessage mockMsg) throws IotHubSizeExceededException
+    {
+        final byte[] msgBody = new byte[2000];
+        new NonStrictExpectations()
+        {
+            {
+                mockMsg.getBody();
+                result = msgBody;
+            }
+        };
+
+        HttpsBatchMessage batchMsg = new HttpsBatchMessage();
+        batchMsg.addMessage(mockMsg);
+        batchMsg.addMessage(mockMsg);
+        batchMsg.addMessage(mockMsg);
+        String testBatchBody = new String(batchMsg.getBody(), UTF8);
+
+        final String expectedJsonMsg = "{\"body\":\"" + Base64.encodeBase64StringLocal(msgBody) + "\",\"base64Encoded\":true}";
+        final String expectedBatchBody = "[" + expectedJsonMsg + "," + expectedJsonMsg + "," + expectedJsonMsg + "]";
+        assertThat(testBatchBody, is(expectedBatchBody));
+    }
+
     // Tests_SRS_HTTPSBATCHMESSAGE_11_009: [If the function throws a IotHubSizeExceededException, the batched message shall remain as if the message was never added.]
     @Test
     public void addMessageRejectsOverflowingMessageAndPreservesOldBatchState(
@@ -3,6 +3,7 @@
 
 package tests.unit.com.microsoft.azure.sdk.iot.device.transport.https;
 
+import com.microsoft.azure.sdk.iot.device.Message;
 import com.microsoft.azure.sdk.iot.device.exceptions.ProtocolException;
 import com.microsoft.azure.sdk.iot.device.exceptions.TransportException;
 import com.microsoft.azure.sdk.iot.device.transport.https.HttpsConnection;
@@ -16,8 +17,10 @@ import org.junit.Test;
 
 import javax.net.ssl.HttpsURLConnection;
 import javax.net.ssl.SSLContext;
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.net.HttpURLConnection;
 import java.net.NoRouteToHostException;
 import java.net.URL;
@@ -190,6 +193,110 @@ public class HttpsConnectionTest
         };
     }
 
+    // Tests_SRS_HTTPSCONNECTION_34_034: [The function shall save the message to stream its body with the request.]
+    // Tests_SRS_HTTPSCONNECTION_34_035: [If a message body is to be streamed, the function shall write it through the connection in fixed length streaming mode, so that the connection does not buffer it.]
+    @Test
+    public void connectStreamsMessageBodyInFixedLengthMode(@Mocked final Message mockMessage) throws IOException, TransportException
+    {
+        final HttpsMethod httpsMethod = HttpsMethod.POST;
+        new NonStrictExpectations()
+        {
+            {
+                mockUrl.getProtocol();
+                result = "https";
+                mockUrl.openConnection();
+                result = mockUrlConn;
+                mockUrlConn.getRequestMethod();
+                result = httpsMethod.name();
+                mockMessage.getBodyLength();
+                result = 300000;
+            }
+        };
+        HttpsConnection conn = new HttpsConnection(mockUrl, httpsMethod);
+
+        conn.streamOutput(mockMessage);
+        conn.connect();
+
+        new Verifications()
+        {
+            {
+                mockUrlConn.setDoOutput(true);
+                mockUrlConn.setFixedLengthStreamingMode(300000);
+                mockMessage.writeBody(mockUrlConn.getOutputStream());
+                times = 1;
+                mockMessage.getBytes();
+                times = 0;
+                Deencapsulation.invoke(mockMessage, "getBodyArray");
+                times = 0;
+                Deencapsulation.invoke(mockMessage, "getBodyBackingArray");
+                times = 0;
+            }
+        };
+    }
+
+    // Tests_SRS_HTTPSCONNECTION_34_036: [If the streamed message body cannot be written in full, the function shall disconnect the connection before failing.]
+    @Test
+    public void connectDisconnectsWhenStreamedBodyCannotBeWritten(@Mocked final Message mockMessage) throws IOException, TransportException
+    {
+        final HttpsMethod httpsMethod = HttpsMethod.POST;
+        new NonStrictExpectations()
+        {
+            {
+                mockUrl.getProtocol();
+                result = "https";
+                mockUrl.openConnection();
+                result = mockUrlConn;
+                mockUrlConn.getRequestMethod();
+                result = httpsMethod.name();
+                mockMessage.getBodyLength();
+                result = 10;
+                mockMessage.writeBody((OutputStream) any);
+                result = new IOException();
+            }
+        };
+        HttpsConnection conn = new HttpsConnection(mockUrl, httpsMethod);
+        conn.streamOutput(mockMessage);
+
+        try
+        {
+            conn.connect();
+            fail("Expected a TransportException");
+        }
+        catch (TransportException expected)
+        {
+            // expected
+        }
+
+        new Verifications()
+        {
+            {
+                mockUrlConn.disconnect();
+                times = 1;
+            }
+        };
+    }
+
+    // Tests_SRS_HTTPSCONNECTION_34_033: [The function shall throw an IllegalArgumentException if the request does not currently use method POST or PUT.]
+    @Test(expected = IllegalArgumentException.class)
+    public void streamOutputFailsWhenMethodIsNotPostOrPut(@Mocked final Message mockMessage) throws IOException, TransportException
+    {
+        final HttpsMethod httpsMethod = HttpsMethod.GET;
+        new NonStrictExpectations()
+        {
+            {
+                mockUrl.getProtocol();
+                result = "https";
+                mockUrl.openConnection();
+                result = mockUrlConn;
+                mockUrlConn.getRequestMethod();
+                result = httpsMethod.name();
+            }
+        };
+        HttpsConnection conn = new HttpsConnection(mockUrl, httpsMethod);
+
+        conn.streamOutput(mockMessage);
+    }
+
     // Tests_SRS_HTTPSCONNECTION_11_005: [The function shall throw a TransportException if the connection could not be established, or the server responded with a bad status code.]
     @Test(expected = TransportException.class)
     public void connectThrowsIoExceptionIfCannotConnect() throws IOException, TransportException
@@ -454,8 +561,7 @@ public class HttpsConnectionTest
 
     // Tests_SRS_HTTPSCONNECTION_11_011: [The function shall read from the input stream (response stream) and return the response.]
     @Test
-    public void readInputCompletelyReadsInputStream(
-            @Mocked final InputStream mockIs) throws IOException, TransportException
+    public void readInputCompletelyReadsInputStream() throws IOException, TransportException
     {
         final HttpsMethod httpsMethod = HttpsMethod.GET;
         new NonStrictExpectations()
@@ -468,9 +574,7 @@ public class HttpsConnectionTest
                 mockUrlConn.getRequestMethod();
                 result = httpsMethod.name();
                 mockUrlConn.getInputStream();
-                result = mockIs;
-                mockIs.read();
-                returns(1, 2, 3, -1);
+                result = new ByteArrayInputStream(new byte[] { 1, 2, 3 });
             }
         };
         HttpsConnection conn = new HttpsConnection(mockUrl, httpsMethod);
@@ -482,6 +586,97 @@ public class HttpsConnectionTest
         assertThat(testResponse, is(expectedResponse));
     }
 
+    // Tests_SRS_HTTPSCONNECTION_34_032: [The function shall read the stream in chunks into a buffer pre-sized from the Content-Length of the response, up to 64 KiB.]
+    @Test
+    public void readInputReadsBodyLongerThanContentLength() throws IOException, TransportException
+    {
+        final HttpsMethod httpsMethod = HttpsMethod.GET;
+        final byte[] expectedResponse = new byte[10000];
+        for (int i = 0; i < expectedResponse.length; i++)
+        {
+            expectedResponse[i] = (byte) i;
+        }
+        new NonStrictExpectations()
+        {
+            {
+                mockUrl.getProtocol();
+                result = "https";
+                mockUrl.openConnection();
+                result = mockUrlConn;
+                mockUrlConn.getRequestMethod();
+                result = httpsMethod.name();
+                mockUrlConn.getContentLength();
+                result = 3;
+                mockUrlConn.getInputStream();
+                result = new ByteArrayInputStream(expectedResponse);
+            }
+        };
+        HttpsConnection conn = new HttpsConnection(mockUrl, httpsMethod);
+        conn.connect();
+
+        byte[] testResponse = conn.readInput();
+
+        assertThat(testResponse, is(expectedResponse));
+    }
+
+    // Tests_SRS_HTTPSCONNECTION_34_032: [The function shall read the stream in chunks into a buffer pre-sized from the Content-Length of the response, up to 64 KiB.]
+    @Test
+    public void readInputReadsBodyMatchingContentLength() throws IOException, TransportException
+    {
+        final HttpsMethod httpsMethod = HttpsMethod.GET;
+        final byte[] expectedResponse = { 1, 2, 3, 4, 5 };
+        new NonStrictExpectations()
+        {
+            {
+                mockUrl.getProtocol();
+                result = "https";
+                mockUrl.openConnection();
+                result = mockUrlConn;
+                mockUrlConn.getRequestMethod();
+                result = httpsMethod.name();
+                mockUrlConn.getContentLength();
+                result = expectedResponse.length;
+                mockUrlConn.getInputStream();
+                result = new ByteArrayInputStream(expectedResponse);
+            }
+        };
+        HttpsConnection conn = new HttpsConnection(mockUrl, httpsMethod);
+        conn.connect();
+
+        byte[] testResponse = conn.readInput();
+
+        assertThat(testResponse, is(expectedResponse));
+    }
+
+
+    // Tests_SRS_HTTPSCONNECTION_34_032: [The function shall read the stream in chunks into a buffer pre-sized from the Content-Length of the response, up to 64 KiB.]
+    @Test
+    public void readInputDoesNotTrustHugeContentLength() throws IOException, TransportException
+    {
+        final HttpsMethod httpsMethod = HttpsMethod.GET;
+        final byte[] expectedResponse = { 1, 2, 3, 4, 5 };
+        new NonStrictExpectations()
+        {
+            {
+                mockUrl.getProtocol();
+                result = "https";
+                mockUrl.openConnection();
+                result = mockUrlConn;
+                mockUrlConn.getRequestMethod();
+                result = httpsMethod.name();
+                mockUrlConn.getContentLength();
+                result = Integer.MAX_VALUE;
+                mockUrlConn.getInputStream();
+                result = new ByteArrayInputStream(expectedResponse);
+            }
+        };
+        HttpsConnection conn = new HttpsConnection(mockUrl, httpsMethod);
+        conn.connect();
+
+        byte[] testResponse = conn.readInput();
+
+        assertThat(testResponse, is(expectedResponse));
+    }
     // Tests_SRS_HTTPSCONNECTION_11_012: [The function shall throw a TransportException if the input stream could not be accessed.]
     @Test(expected = TransportException.class)
     public void readInputFailsIfCannotAccessInputStream() throws IOException, TransportException
@@ -562,6 +757,8 @@ public class HttpsConnectionTest
                 result = mockIs;
                 mockIs.read();
                 result = -1;
+                mockIs.read((byte[]) any, anyInt, anyInt);
+                result = -1;
             }
         };
         HttpsConnection conn = new HttpsConnection(mockUrl, httpsMethod);
@@ -579,8 +776,7 @@ public class HttpsConnectionTest
 
     // Tests_SRS_HTTPSCONNECTION_11_013: [The function shall read from the error stream and return the response.]
     @Test
-    public void readErrorCompletelyReadsErrorStream(
-            @Mocked final InputStream mockIs) throws IOException, TransportException
+    public void readErrorCompletelyReadsErrorStream() throws IOException, TransportException
     {
         final HttpsMethod httpsMethod = HttpsMethod.GET;
         new NonStrictExpectations()
@@ -593,9 +789,7 @@ public class HttpsConnectionTest
                 mockUrlConn.getRequestMethod();
                 result = httpsMethod.name();
                 mockUrlConn.getErrorStream();
-                result = mockIs;
-                mockIs.read();
-                returns(1, 2, 3, -1);
+                result = new ByteArrayInputStream(new byte[] { 1, 2, 3 });
             }
         };
         HttpsConnection conn = new HttpsConnection(mockUrl, httpsMethod);
@@ -676,6 +870,8 @@ public class HttpsConnectionTest
                 result = mockIs;
                 mockIs.read();
                 result = -1;
+                mockIs.read((byte[]) any, anyInt, anyInt);
+                result = -1;
             }
         };
         HttpsConnection conn = new HttpsConnection(mockUrl, httpsMethod);
@@ -20,7 +20,9 @@ import org.junit.Test;
 
 import javax.net.ssl.SSLContext;
 import java.io.IOException;
+import java.net.MalformedURLException;
 import java.net.URL;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -153,6 +155,75 @@ public class HttpsIotHubConnectionTest
         };
     }
 
+    // Tests_SRS_HTTPSIOTHUBCONNECTION_34_080: [If the message body is a stream, the function shall stream it as the request body instead.]
+    @Test
+    public void sendEventStreamsMessageBodyStream(
+            @Mocked final IotHubEventUri mockUri) throws TransportException
+    {
+        new NonStrictExpectations()
+        {
+            {
+                mockedMessage.hasBodyStream();
+                result = true;
+            }
+        };
+
+        HttpsIotHubConnection conn = new HttpsIotHubConnection(mockConfig);
+        conn.setListener(mockedListener);
+        conn.sendMessage(mockedMessage);
+
+        new Verifications()
+        {
+            {
+                mockRequest.setStreamedBody(mockedMessage);
+                times = 1;
+                Deencapsulation.invoke(mockedMessage, "getBodyArray");
+                times = 0;
+                Deencapsulation.invoke(mockedMessage, "getBodyBackingArray");
+                times = 0;
+            }
+        };
+    }
+
+    // Tests_SRS_HTTPSIOTHUBCONNECTION_34_081: [The function shall notify its listener with the provided message, without reading its body again, so that a body stream that was sent is not read twice.]
+    @Test
+    public void sendEventWithBodyStreamThatCannotBeResetNotifiesListener(
+            @Mocked final IotHubEventUri mockUri) throws TransportException
+    {
+        new NonStrictExpectations()
+        {
+            {
+                mockedMessage.hasBodyStream();
+                result = true;
+                // what reading the body again does once a stream without mark support was sent
+                mockedMessage.getBytes();
+                result = new IllegalStateException("Cannot read the message body from its stream");
+                Deencapsulation.invoke(mockedMessage, "getBodyArray");
+                result = new IllegalStateException("Cannot read the message body from its stream");
+                Deencapsulation.invoke(mockedMessage, "getBodyBackingArray");
+                result = new IllegalStateException("Cannot read the message body from its stream");
+                mockRequest.send();
+                result = mockResponse;
+                mockResponse.getStatus();
+                result = 204;
+            }
+        };
+
+        HttpsIotHubConnection conn = new HttpsIotHubConnection(mockConfig);
+        conn.setListener(mockedListener);
+        conn.sendMessage(mockedMessage);
+
+        new Verifications()
+        {
+            {
+                mockedListener.onMessageSent(mockedMessage, null);
+                times = 1;
+                mockedMessage.getBytes();
+                times = 0;
+            }
+        };
+    }
+
     // Tests_SRS_HTTPSIOTHUBCONNECTION_11_005: [The function shall write each message property as a request header.]
     @Test
     public void sendEventSendsMessageProperties(
@@ -1925,7 +1996,7 @@ public class HttpsIotHubConnectionTest
         new Verifications()
         {
             {
-                mockedListener.onMessageSent((IotHubTransportMessage) any, null);
+                mockedListener.onMessageSent(mockedMessage, null);
                 times = 1;
             }
         };
@@ -1969,12 +2040,156 @@ public class HttpsIotHubConnectionTest
         new Verifications()
         {
             {
-                mockedListener.onMessageSent((IotHubTransportMessage) any, (TransportException) any);
+                mockedListener.onMessageSent(mockedMessage, (TransportException) any);
                 times = 1;
             }
         };
     }
 
+    //Tests_SRS_HTTPSIOTHUBCONNECTION_34_075: [The function shall send a request to the URL 'https://[iotHubHostname]/devices/[deviceId]/messages/events?api-version=2016-02-03'.]
+    //Tests_SRS_HTTPSIOTHUBCONNECTION_34_076: [The function shall send a POST request with the batch body as the request body.]
+    //Tests_SRS_HTTPSIOTHUBCONNECTION_34_077: [The function shall set the header field 'iothub-to' to be '/devices/[deviceId]/messages/events' and the header field 'content-type' to be the batch content type.]
+    @Test
+    public void sendBatchMessageSendsBatchBodyToEventsUri(final @Mocked IotHubEventUri mockUri,
+                                                          final @Mocked HttpsBatchMessage mockBatchMessage) throws TransportException, MalformedURLException
+    {
+        //arrange
+        final String iotHubHostname = "test.iothub";
+        final String deviceId = "test-device-id";
+        final String eventUri = "test-event-uri";
+        final String eventPath = "/devices/test-device-id/messages/events";
+        final String batchContentType = "application/vnd.microsoft.iothub.json";
+        final byte[] batchBody = {'[', ']'};
+        new NonStrictExpectations()
+        {
+            {
+                mockConfig.getIotHubHostname();
+                result = iotHubHostname;
+                mockConfig.getDeviceId();
+                result = deviceId;
+                new IotHubEventUri(iotHubHostname, deviceId, null);
+                result = mockUri;
+                mockUri.toString();
+                result = eventUri;
+                mockUri.getPath();
+                result = eventPath;
+                mockBatchMessage.getBody();
+                result = batchBody;
+                mockBatchMessage.getContentType();
+                result = batchContentType;
+                mockRequest.send();
+                result = mockResponse;
+                mockResponse.getStatus();
+                result = 204;
+            }
+        };
+
+        HttpsIotHubConnection conn = new HttpsIotHubConnection(mockConfig);
+        conn.setListener(mockedListener);
+
+        //act
+        IotHubStatusCode status = conn.sendBatchMessage(mockBatchMessage, Arrays.asList(mockedMessage, mockedMessage));
+
+        //assert
+        assertEquals(IotHubStatusCode.OK_EMPTY, status);
+        final String expectedUrl = "https://" + eventUri;
+        new Verifications()
+        {
+            {
+                new URL(expectedUrl);
+                new HttpsRequest((URL) any, HttpsMethod.POST, batchBody, anyString);
+                mockRequest.setHeaderField(withMatch("(?i)iothub-to"), eventPath);
+                mockRequest.setHeaderField(withMatch("(?i)content-type"), batchContentType);
+            }
+        };
+    }
+
+    //Tests_SRS_HTTPSIOTHUBCONNECTION_34_079: [The function shall notify its listener once for each message in the batch, with no exception if the response from the service is OK or OK_EMPTY, and with the mapped IotHubServiceException otherwise.]
+    @Test
+    public void sendBatchMessageNotifiesListenerForEveryMessage(final @Mocked IotHubEventUri mockUri,
+                                                                final @Mocked HttpsBatchMessage mockBatchMessage) throws TransportException
+    {
+        //arrange
+        new NonStrictExpectations()
+        {
+            {
+                mockRequest.send();
+                result = mockResponse;
+                mockResponse.getStatus();
+                result = 204;
+            }
+        };
+
+        HttpsIotHubConnection conn = new HttpsIotHubConnection(mockConfig);
+        conn.setListener(mockedListener);
+
+        //act
+        conn.sendBatchMessage(mockBatchMessage, Arrays.asList(mockedMessage, mockedMessage, mockedMessage));
+
+        //assert
+        new Verifications()
+        {
+            {
+                mockedListener.onMessageSent(mockedMessage, null);
+                times = 3;
+            }
+        };
+    }
+
+    //Tests_SRS_HTTPSIOTHUBCONNECTION_34_079: [The function shall notify its listener once for each message in the batch, with no exception if the response from the service is OK or OK_EMPTY, and with the mapped IotHubServiceException otherwise.]
+    @Test
+    public void sendBatchMessageNotifiesListenerOfIotHubServiceExceptionForEveryMessage(final @Mocked IotHubEventUri mockUri,
+                                                                                        final @Mocked HttpsBatchMessage mockBatchMessage) throws TransportException
+    {
+        //arrange
+        new NonStrictExpectations()
+        {
+            {
+                mockRequest.send();
+                result = mockResponse;
+                mockResponse.getStatus();
+                result = 404;
+            }
+        };
+
+        HttpsIotHubConnection conn = new HttpsIotHubConnection(mockConfig);
+        conn.setListener(mockedListener);
+
+        //act
+        IotHubStatusCode status = conn.sendBatchMessage(mockBatchMessage, Arrays.asList(mockedMessage, mockedMessage));
+
+        //assert
+        assertEquals(IotHubStatusCode.HUB_OR_DEVICE_ID_NOT_FOUND, status);
+        new Verifications()
+        {
+            {
+                mockedListener.onMessageSent(mockedMessage, (IotHubServiceException) any);
+                times = 2;
+            }
+        };
+    }
+
+    //Tests_SRS_HTTPSIOTHUBCONNECTION_34_078: [If the IoT Hub could not be reached, the function shall throw a TransportException.]
+    @Test (expected = TransportException.class)
+    public void sendBatchMessageThrowsTransportExceptionIfRequestFails(final @Mocked IotHubEventUri mockUri,
+                                                                       final @Mocked HttpsBatchMessage mockBatchMessage) throws TransportException
+    {
+        //arrange
+        new NonStrictExpectations()
+        {
+            {
+                mockRequest.send();
+                result = new TransportException("could not reach the hub");
+            }
+        };
+
+        HttpsIotHubConnection conn = new HttpsIotHubConnection(mockConfig);
+        conn.setListener(mockedListener);
+
+        //act
+        conn.sendBatchMessage(mockBatchMessage, Arrays.asList(mockedMessage, mockedMessage));
+    }
+
     //Tests_SRS_HTTPSIOTHUBCONNECTION_34_071: [This function shall return the empty string.]
     @Test
     public void getConnectionIdReturnsEmptyString()
@@ -7,12 +7,14 @@ import com.microsoft.azure.sdk.iot.device.Message;
 import com.microsoft.azure.sdk.iot.device.MessageProperty;
 import com.microsoft.azure.sdk.iot.device.transport.https.HttpsResponse;
 import com.microsoft.azure.sdk.iot.device.transport.https.HttpsSingleMessage;
+import mockit.Deencapsulation;
 import mockit.Expectations;
 import mockit.Mocked;
 import mockit.NonStrictExpectations;
 import mockit.Verifications;
 import org.junit.Test;
 
+import java.nio.ByteBuffer;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -29,7 +31,7 @@ import static org.junit.Assert.*;
 */
 public class HttpsSingleMessageTest
 {
-    // Tests_SRS_HTTPSSINGLEMESSAGE_11_001: [The parsed HttpsSingleMessage shall have a copy of the original message body as its body.]
+    // Tests_SRS_HTTPSSINGLEMESSAGE_11_001: [The parsed HttpsSingleMessage shall have the original message body as its body.]
     @Test
     public void parseHttpsMessageFromMessageCopiesBody(
             @Mocked final Message mockMsg,
@@ -42,8 +44,10 @@ public class HttpsSingleMessageTest
         new NonStrictExpectations()
         {
             {
-                mockMsg.getBytes();
+                Deencapsulation.invoke(mockMsg, "getBodyBackingArray");
                 result = body;
+                mockMsg.getBodyLength();
+                result = body.length;
                 mockMsg.getProperties();
                 result = properties;
                 mockProperty.getName();
@@ -64,6 +68,23 @@ public class HttpsSingleMessageTest
         assertThat(testBody, is(not(expectedBody)));
     }
 
+    // Tests_SRS_HTTPSSINGLEMESSAGE_34_023: [The parsed HttpsSingleMessage shall share the array that holds the message body, at its offset and length, without copying it.]
+    @Test
+    public void parseHttpsMessageFromMessageSharesBodyArray()
+    {
+        // arrange
+        final byte[] pooledBuffer = { 0x61, 0x62, 0x63, 0x64, 0x65 };
+        Message message = new Message(ByteBuffer.wrap(pooledBuffer, 1, 3).slice());
+
+        // act
+        HttpsSingleMessage httpsMsg = HttpsSingleMessage.parseHttpsMessage(message);
+
+        // assert
+        assertSame(pooledBuffer, Deencapsulation.getField(httpsMsg, "body"));
+        assertArrayEquals(new byte[] { 0x62, 0x63, 0x64 }, httpsMsg.getBody());
+        assertEquals("bcd", httpsMsg.getBodyAsString());
+    }
+
     // Tests_SRS_HTTPSSINGLEMESSAGE_21_002: [The parsed HttpsSingleMessage shall set the contentType as `binary/octet-stream`.]
     @Test
     public void parseHttpsMessageFromMessageSetContentType(
@@ -78,8 +99,10 @@ public class HttpsSingleMessageTest
         new NonStrictExpectations()
         {
             {
-                mockMsg.getBytes();
+                Deencapsulation.invoke(mockMsg, "getBodyBackingArray");
                 result = body;
+                mockMsg.getBodyLength();
+                result = body.length;
                 mockMsg.getProperties();
                 result = properties;
                 mockProperty.getName();
@@ -111,8 +134,10 @@ public class HttpsSingleMessageTest
         new NonStrictExpectations()
         {
             {
-                mockMsg.getBytes();
+                Deencapsulation.invoke(mockMsg, "getBodyBackingArray");
                 result = body;
+                mockMsg.getBodyLength();
+                result = body.length;
                 mockMsg.getProperties();
                 result = properties;
                 mockProperty.getName();
@@ -190,8 +215,10 @@ public class HttpsSingleMessageTest
         new NonStrictExpectations()
         {
             {
-                mockMsg.getBytes();
+                Deencapsulation.invoke(mockMsg, "getBodyBackingArray");
                 result = body;
+                mockMsg.getBodyLength();
+                result = body.length;
                 mockMsg.getProperties();
                 result = properties;
                 mockMsg.getMessageId();
@@ -217,7 +244,7 @@ public class HttpsSingleMessageTest
         assertTrue(systemPropertyAssignedCorrectly(httpsSingleMessage.getSystemProperties(), toName, toValue));
     }
 
-    // Tests_SRS_HTTPSSINGLEMESSAGE_21_016: [The parsed HttpsSingleMessage shall have a copy of the original message body as its body.]
+    // Tests_SRS_HTTPSSINGLEMESSAGE_21_016: [The parsed HttpsSingleMessage shall have the original message body as its body.]
     @Test
     public void parseHttpsJsonMessageFromMessageCopiesBody(
             @Mocked final Message mockMsg,
@@ -231,8 +258,10 @@ public class HttpsSingleMessageTest
         new NonStrictExpectations()
         {
             {
-                mockMsg.getBytes();
+                Deencapsulation.invoke(mockMsg, "getBodyBackingArray");
                 result = body;
+                mockMsg.getBodyLength();
+                result = body.length;
                 mockMsg.getProperties();
                 result = properties;
                 mockProperty.getName();
@@ -270,8 +299,10 @@ public class HttpsSingleMessageTest
         new NonStrictExpectations()
         {
             {
-                mockMsg.getBytes();
+                Deencapsulation.invoke(mockMsg, "getBodyBackingArray");
                 result = body;
+                mockMsg.getBodyLength();
+                result = body.length;
                 mockMsg.getProperties();
                 result = properties;
                 mockProperty.getName();
@@ -304,8 +335,10 @@ public class HttpsSingleMessageTest
         new NonStrictExpectations()
         {
             {
-                mockMsg.getBytes();
+                Deencapsulation.invoke(mockMsg, "getBodyBackingArray");
                 result = body;
+                mockMsg.getBodyLength();
+                result = body.length;
                 mockMsg.getProperties();
                 result = properties;
                 mockProperty.getName();
@@ -357,8 +390,10 @@ public class HttpsSingleMessageTest
         new NonStrictExpectations()
         {
             {
-                mockMsg.getBytes();
+                Deencapsulation.invoke(mockMsg, "getBodyBackingArray");
                 result = body;
+                mockMsg.getBodyLength();
+                result = body.length;
                 mockMsg.getProperties();
                 result = properties;
                 mockMsg.getMessageId();
@@ -584,8 +619,10 @@ public class HttpsSingleMessageTest
         new NonStrictExpectations()
         {
             {
-                mockMsg.getBytes();
+                Deencapsulation.invoke(mockMsg, "getBodyBackingArray");
                 result = body;
+                mockMsg.getBodyLength();
+                result = body.length;
                 mockMsg.getProperties();
                 result = properties;
                 mockProperty.getName();
@@ -620,8 +657,10 @@ public class HttpsSingleMessageTest
         new NonStrictExpectations()
         {
             {
-                mockMsg.getBytes();
+                Deencapsulation.invoke(mockMsg, "getBodyBackingArray");
                 result = body;
+                mockMsg.getBodyLength();
+                result = body.length;
                 mockMsg.getProperties();
                 result = properties;
                 mockProperty.getName();
@@ -653,8 +692,10 @@ public class HttpsSingleMessageTest
         new NonStrictExpectations()
         {
             {
-                mockMsg.getBytes();
+                Deencapsulation.invoke(mockMsg, "getBodyBackingArray");
                 result = body;
+                mockMsg.getBodyLength();
+                result = body.length;
                 mockMsg.getProperties();
                 result = properties;
                 mockProperty.getName();
@@ -686,8 +727,10 @@ public class HttpsSingleMessageTest
         new NonStrictExpectations()
         {
             {
-                mockMsg.getBytes();
+                Deencapsulation.invoke(mockMsg, "getBodyBackingArray");
                 result = body;
+                mockMsg.getBodyLength();
+                result = body.length;
                 mockMsg.getProperties();
                 result = properties;
                 mockProperty.getName();
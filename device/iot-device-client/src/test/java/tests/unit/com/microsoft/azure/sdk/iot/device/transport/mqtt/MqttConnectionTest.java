@@ -21,6 +21,7 @@ import javax.net.ssl.SSLContext;
 import java.io.IOException;
 import java.util.Queue;
 import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Semaphore;
 
 import static org.junit.Assert.*;
 
@@ -111,6 +112,46 @@ public class MqttConnectionTest
         assertNotNull(actualQueue);
         Object actualLock = Deencapsulation.getField(mqttConnection, "mqttLock");
         assertNotNull(actualLock);
+        Semaphore actualInFlightPermits = Deencapsulation.getField(mqttConnection, "inFlightPermits");
+        assertEquals(10, actualInFlightPermits.availablePermits());
+        new Verifications()
+        {
+            {
+                mockMqttConnectionOptions.setMaxInflight(10);
+                times = 1;
+            }
+        };
+    }
+
+    //Tests_SRS_MQTTCONNECTION_34_020: [The constructor shall create a semaphore with maxInFlightCount permits that bounds the number of unacknowledged publishes on this MqttConnection.]
+    @Test
+    public void constructorWithMaxInFlightCountSucceeds() throws Exception
+    {
+        //arrange
+        final int maxInFlightCount = 250;
+        baseConstructorExpectations();
+
+        //act
+        final MqttConnection mqttConnection = Deencapsulation.newInstance(MqttConnection.class, new Class[] {String.class, String.class, String.class, String.class, SSLContext.class, int.class}, SERVER_URI, CLIENT_ID, USER_NAME, PWORD, mockIotHubSSLContext, maxInFlightCount);
+
+        //assert
+        baseConstructorVerifications();
+        Semaphore actualInFlightPermits = Deencapsulation.getField(mqttConnection, "inFlightPermits");
+        assertEquals(maxInFlightCount, actualInFlightPermits.availablePermits());
+        new Verifications()
+        {
+            {
+                mockMqttConnectionOptions.setMaxInflight(maxInFlightCount);
+                times = 1;
+            }
+        };
+    }
+
+    //Tests_SRS_MQTTCONNECTION_34_019: [The constructor shall throw IllegalArgumentException if maxInFlightCount is less than 1.]
+    @Test (expected = IllegalArgumentException.class)
+    public void constructorWithZeroMaxInFlightCountThrows() throws Exception
+    {
+        final MqttConnection mqttConnection = Deencapsulation.newInstance(MqttConnection.class, new Class[] {String.class, String.class, String.class, String.class, SSLContext.class, int.class}, SERVER_URI, CLIENT_ID, USER_NAME, PWORD, mockIotHubSSLContext, 0);
     }
 
     @Test (expected = ProtocolException.class)
@@ -219,6 +260,20 @@ public class MqttConnectionTest
         assertNotNull(mqttLock);
     }
 
+    //Tests_SRS_MQTTCONNECTION_34_021: [Getter for the semaphore bounding the number of unacknowledged publishes on this connection.]
+    @Test
+    public void getInFlightPermitsSucceeds() throws Exception
+    {
+        //arrange
+        final MqttConnection mqttConnection = Deencapsulation.newInstance(MqttConnection.class, new Class[] {String.class, String.class, String.class, String.class, SSLContext.class}, SERVER_URI, CLIENT_ID, USER_NAME, PWORD, mockIotHubSSLContext);
+
+        //act
+        Semaphore inFlightPermits = Deencapsulation.invoke(mqttConnection, "getInFlightPermits");
+
+        //assert
+        assertNotNull(inFlightPermits);
+    }
+
     //Tests_SRS_MQTTCONNECTION_25_010: [Getter for the MqttConnectionOptions.]
     @Test
     public void getConnectionOptionsSucceeds() throws Exception
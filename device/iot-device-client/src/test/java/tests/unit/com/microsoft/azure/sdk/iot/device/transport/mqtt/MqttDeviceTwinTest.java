@@ -135,7 +135,7 @@ public class MqttDeviceTwinTest
         new NonStrictExpectations()
         {
             {
-                mockMessage.getBytes();
+                Deencapsulation.invoke(mockMessage, "getBodyArray");
                 result = actualPayload;
                 mockMessage.getMessageType();
                 result = MessageType.DEVICE_TWIN;
@@ -153,7 +153,7 @@ public class MqttDeviceTwinTest
         new Verifications()
         {
             {
-                mockMessage.getBytes();
+                Deencapsulation.invoke(mockMessage, "getBodyArray");
                 times = 1;
                 Deencapsulation.invoke(mockMqtt, "publish", expectedTopic, mockMessage);
                 times = 1;
@@ -176,7 +176,7 @@ public class MqttDeviceTwinTest
             new NonStrictExpectations()
             {
                 {
-                    mockMessage.getBytes();
+                    Deencapsulation.invoke(mockMessage, "getBodyArray");
                     result = actualPayload;
                     mockMessage.getMessageType();
                     result = MessageType.DEVICE_TWIN;
@@ -196,7 +196,7 @@ public class MqttDeviceTwinTest
             new Verifications()
             {
                 {
-                    mockMessage.getBytes();
+                    Deencapsulation.invoke(mockMessage, "getBodyArray");
                     times = 1;
                     Deencapsulation.invoke(mockMqtt, "publish", expectedTopic, actualPayload, mockMessage);
                     times = 0;
@@ -219,7 +219,7 @@ public class MqttDeviceTwinTest
         new NonStrictExpectations()
         {
             {
-                mockMessage.getBytes();
+                Deencapsulation.invoke(mockMessage, "getBodyArray");
                 result = actualPayload;
                 mockMessage.getMessageType();
                 result = MessageType.DEVICE_TWIN;
@@ -239,7 +239,7 @@ public class MqttDeviceTwinTest
         new Verifications()
         {
             {
-                mockMessage.getBytes();
+                Deencapsulation.invoke(mockMessage, "getBodyArray");
                 times = 1;
                 Deencapsulation.invoke(mockMqtt, "publish", expectedTopic, mockMessage);
                 times = 1;
@@ -262,7 +262,7 @@ public class MqttDeviceTwinTest
             new NonStrictExpectations()
             {
                 {
-                    mockMessage.getBytes();
+                    Deencapsulation.invoke(mockMessage, "getBodyArray");
                     result = actualPayload;
                     mockMessage.getMessageType();
                     result = MessageType.DEVICE_TWIN;
@@ -282,7 +282,7 @@ public class MqttDeviceTwinTest
             new Verifications()
             {
                 {
-                    mockMessage.getBytes();
+                    Deencapsulation.invoke(mockMessage, "getBodyArray");
                     times = 1;
                     Deencapsulation.invoke(mockMqtt, "publish", expectedTopic, actualPayload, mockMessage);
                     times = 0;
@@ -305,7 +305,7 @@ public class MqttDeviceTwinTest
         new NonStrictExpectations()
         {
             {
-                mockMessage.getBytes();
+                Deencapsulation.invoke(mockMessage, "getBodyArray");
                 result = actualPayload;
                 mockMessage.getMessageType();
                 result = MessageType.DEVICE_TWIN;
@@ -323,7 +323,7 @@ public class MqttDeviceTwinTest
         new Verifications()
         {
             {
-                mockMessage.getBytes();
+                Deencapsulation.invoke(mockMessage, "getBodyArray");
                 times = 1;
                 Deencapsulation.invoke(mockMqtt, "subscribe", expectedTopic);
                 times = 1;
@@ -345,7 +345,7 @@ public class MqttDeviceTwinTest
         new NonStrictExpectations()
         {
             {
-                mockMessage.getBytes();
+                Deencapsulation.invoke(mockMessage, "getBodyArray");
                 result = actualPayload;
                 mockMessage.getMessageType();
                 result = MessageType.DEVICE_TWIN;
@@ -366,7 +366,7 @@ public class MqttDeviceTwinTest
         new Verifications()
         {
             {
-                mockMessage.getBytes();
+                Deencapsulation.invoke(mockMessage, "getBodyArray");
                 times = 1;
                 Deencapsulation.invoke(mockMqtt, "subscribe", anyString);
                 times = 0;
@@ -397,7 +397,7 @@ public class MqttDeviceTwinTest
                 result = DEVICE_OPERATION_TWIN_SUBSCRIBE_DESIRED_PROPERTIES_REQUEST;
                 mockMessage.getVersion();
                 result = mockVersion;
-                mockMessage.getBytes();
+                Deencapsulation.invoke(mockMessage, "getBodyArray");
                 result = actualPayload;
             }
         };
@@ -409,7 +409,7 @@ public class MqttDeviceTwinTest
         new Verifications()
         {
             {
-                mockMessage.getBytes();
+                Deencapsulation.invoke(mockMessage, "getBodyArray");
                 times = 1;
                 Deencapsulation.invoke(mockMqtt, "subscribe", expectedSubscribeTopic);
                 times = 1;
@@ -439,7 +439,7 @@ public class MqttDeviceTwinTest
             new Verifications()
             {
                 {
-                    mockMessage.getBytes();
+                    Deencapsulation.invoke(mockMessage, "getBodyArray");
                     times = 0;
                     Deencapsulation.invoke(mockMqtt, "publish", expectedTopic, actualPayload, mockMessage);
                     times = 0;
@@ -460,7 +460,7 @@ public class MqttDeviceTwinTest
             new NonStrictExpectations()
             {
                 {
-                    mockMessage.getBytes();
+                    Deencapsulation.invoke(mockMessage, "getBodyArray");
                     result = actualPayload;
                     mockMessage.getMessageType();
                     result = MessageType.DEVICE_TWIN;
@@ -479,7 +479,7 @@ public class MqttDeviceTwinTest
             new Verifications()
             {
                 {
-                    mockMessage.getBytes();
+                    Deencapsulation.invoke(mockMessage, "getBodyArray");
                     times = 1;
                     Deencapsulation.invoke(mockMqtt, "publish", expectedTopic, mockMessage);
                     times = 1;
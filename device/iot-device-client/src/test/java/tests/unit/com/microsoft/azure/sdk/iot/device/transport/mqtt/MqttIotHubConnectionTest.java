@@ -297,7 +297,47 @@ public class MqttIotHubConnectionTest
         new Verifications()
         {
             {
-                Deencapsulation.newInstance(MqttConnection.class, new Class[] {String.class, String.class, String.class, String.class, SSLContext.class}, serverUri, deviceId, any, any, any);
+                Deencapsulation.newInstance(MqttConnection.class, new Class[] {String.class, String.class, String.class, String.class, SSLContext.class, int.class}, serverUri, deviceId, any, any, any, anyInt);
+                times = 1;
+            }
+        };
+    }
+
+    //Tests_SRS_MQTTIOTHUBCONNECTION_34_066: [The function shall publish telemetry with the qos saved in the config.]
+    @Test
+    public void openUsesMqttSettingsFromConfig() throws IOException, TransportException
+    {
+        //arrange
+        baseExpectations();
+        openExpectations();
+        new NonStrictExpectations()
+        {
+            {
+                mockConfig.getAuthenticationType();
+                result = DeviceClientConfig.AuthType.SAS_TOKEN;
+                mockConfig.getSasTokenAuthentication().getRenewedSasToken();
+                result = expectedToken;
+                mockConfig.isUseWebsocket();
+                result = false;
+                mockConfig.getMqttMaxInFlightCount();
+                result = 100;
+                mockConfig.getMqttTelemetryQos();
+                result = 0;
+            }
+        };
+        MqttIotHubConnection connection = new MqttIotHubConnection(mockConfig);
+        Deencapsulation.setField(connection, "listener", mockedIotHubListener);
+
+        //act
+        connection.open(mockedQueue);
+
+        //assert
+        new Verifications()
+        {
+            {
+                Deencapsulation.newInstance(MqttConnection.class, new Class[] {String.class, String.class, String.class, String.class, SSLContext.class, int.class}, anyString, anyString, anyString, anyString, any, 100);
+                times = 1;
+                Deencapsulation.invoke(mockDeviceMessaging, "setQos", new Class[] {int.class}, 0);
                 times = 1;
             }
         };
@@ -346,7 +386,7 @@ public class MqttIotHubConnectionTest
         new Verifications()
         {
             {
-               Deencapsulation.newInstance(MqttConnection.class, new Class[] {String.class, String.class, String.class, String.class, SSLContext.class}, serverUri, deviceId, any, any, any);
+               Deencapsulation.newInstance(MqttConnection.class, new Class[] {String.class, String.class, String.class, String.class, SSLContext.class, int.class}, serverUri, deviceId, any, any, any, anyInt);
                times = 1;
             }
         };
@@ -375,7 +415,7 @@ public class MqttIotHubConnectionTest
         new StrictExpectations()
         {
             {
-                Deencapsulation.newInstance(MqttConnection.class, new Class[] {String.class, String.class, String.class, String.class, SSLContext.class}, serverUri, deviceId, any, any, mockSslContext);
+                Deencapsulation.newInstance(MqttConnection.class, new Class[] {String.class, String.class, String.class, String.class, SSLContext.class, int.class}, serverUri, deviceId, any, any, mockSslContext, anyInt);
                 result = new IOException();
             }
         };
@@ -423,7 +463,7 @@ public class MqttIotHubConnectionTest
         new StrictExpectations()
         {
             {
-                Deencapsulation.newInstance(MqttConnection.class, new Class[] {String.class, String.class, String.class, String.class, SSLContext.class}, any, any, any, any, mockSslContext);
+                Deencapsulation.newInstance(MqttConnection.class, new Class[] {String.class, String.class, String.class, String.class, SSLContext.class, int.class}, any, any, any, any, mockSslContext, anyInt);
                 result = mockedMqttConnection;
             }
         };
@@ -479,7 +519,7 @@ public class MqttIotHubConnectionTest
         new StrictExpectations()
         {
             {
-                Deencapsulation.newInstance(MqttConnection.class, new Class[] {String.class, String.class, String.class, String.class, SSLContext.class}, any, any, any, any, mockSslContext);
+                Deencapsulation.newInstance(MqttConnection.class, new Class[] {String.class, String.class, String.class, String.class, SSLContext.class, int.class}, any, any, any, any, mockSslContext, anyInt);
                 result = mockedMqttConnection;
             }
         };
@@ -537,7 +577,7 @@ public class MqttIotHubConnectionTest
         new Verifications()
         {
             {
-                Deencapsulation.newInstance(MqttConnection.class, new Class[] {String.class, String.class, String.class, String.class, SSLContext.class}, any, any, any, any, any);
+                Deencapsulation.newInstance(MqttConnection.class, new Class[] {String.class, String.class, String.class, String.class, SSLContext.class, int.class}, any, any, any, any, any, anyInt);
                 maxTimes = 1;
             }
         };
@@ -702,7 +742,7 @@ public class MqttIotHubConnectionTest
         new NonStrictExpectations()
         {
             {
-                mockedMessage.getBytes();
+                Deencapsulation.invoke(mockedMessage, "getBodyArray");
                 result = msgBody;
                 mockDeviceMessaging.send(mockedMessage);
             }
@@ -752,7 +792,7 @@ public class MqttIotHubConnectionTest
         new NonStrictExpectations()
         {
             {
-                mockedMessage.getBytes();
+                Deencapsulation.invoke(mockedMessage, "getBodyArray");
                 result = msgBody;
             }
         };
@@ -776,7 +816,7 @@ public class MqttIotHubConnectionTest
         new NonStrictExpectations()
         {
             {
-                mockedMessage.getBytes();
+                Deencapsulation.invoke(mockedMessage, "getBodyArray");
                 result = new byte[0];
             }
         };
@@ -799,7 +839,7 @@ public class MqttIotHubConnectionTest
         new NonStrictExpectations()
         {
             {
-                mockedMessage.getBytes();
+                Deencapsulation.invoke(mockedMessage, "getBodyArray");
                 result = msgBody;
             }
         };
@@ -818,7 +858,7 @@ public class MqttIotHubConnectionTest
         new NonStrictExpectations()
         {
             {
-                mockedMessage.getBytes();
+                Deencapsulation.invoke(mockedMessage, "getBodyArray");
                 result = msgBody;
             }
         };
@@ -841,7 +881,7 @@ public class MqttIotHubConnectionTest
         new NonStrictExpectations()
         {
             {
-                mockDeviceTwinMsg.getBytes();
+                Deencapsulation.invoke(mockDeviceTwinMsg, "getBodyArray");
                 result = msgBody;
                 mockDeviceTwinMsg.getMessageType();
                 result = MessageType.DEVICE_TWIN;
@@ -881,7 +921,7 @@ public class MqttIotHubConnectionTest
         new NonStrictExpectations()
         {
             {
-                mockDeviceMethodMsg.getBytes();
+                Deencapsulation.invoke(mockDeviceMethodMsg, "getBodyArray");
                 result = msgBody;
                 mockDeviceMethodMsg.getMessageType();
                 result = MessageType.DEVICE_METHODS;
@@ -1136,7 +1176,7 @@ public class MqttIotHubConnectionTest
         new Verifications()
         {
             {
-                Deencapsulation.newInstance(MqttConnection.class, new Class[] {String.class, String.class, String.class, String.class, SSLContext.class}, anyString, anyString, expectedUserName, anyString, any);
+                Deencapsulation.newInstance(MqttConnection.class, new Class[] {String.class, String.class, String.class, String.class, SSLContext.class, int.class}, anyString, anyString, expectedUserName, anyString, any, anyInt);
                 times = 1;
             }
         };
@@ -1594,7 +1634,7 @@ public class MqttIotHubConnectionTest
                 mockedProductInfo.getUserAgentString();
                 result = "some user agent string";
 
-                mockedMessage.getBytes();
+                Deencapsulation.invoke(mockedMessage, "getBodyArray");
                 result = expectedMessageBody;
 
                 mockedMessage.getMessageType();
@@ -1608,7 +1648,7 @@ public class MqttIotHubConnectionTest
         new NonStrictExpectations()
         {
             {
-                Deencapsulation.newInstance(MqttConnection.class, new Class[] {String.class, String.class, String.class, String.class, SSLContext.class}, anyString, anyString, anyString, anyString, any);
+                Deencapsulation.newInstance(MqttConnection.class, new Class[] {String.class, String.class, String.class, String.class, SSLContext.class, int.class}, anyString, anyString, anyString, anyString, any, anyInt);
                 result = mockedMqttConnection;
                 new MqttMessaging(mockedMqttConnection, anyString, (IotHubListener) any, null, null, anyString, anyBoolean);
                 result = mockDeviceMessaging;
@@ -5,7 +5,6 @@
 package tests.unit.com.microsoft.azure.sdk.iot.device.transport.mqtt;
 
 import com.microsoft.azure.sdk.iot.device.Message;
-import com.microsoft.azure.sdk.iot.device.MessageProperty;
 import com.microsoft.azure.sdk.iot.device.exceptions.TransportException;
 import com.microsoft.azure.sdk.iot.device.transport.IotHubListener;
 import com.microsoft.azure.sdk.iot.device.transport.mqtt.Mqtt;
@@ -250,8 +249,10 @@ public class MqttMessagingTest
         new NonStrictExpectations()
         {
             {
-                mockedMessage.getBytes();
+                Deencapsulation.invoke(mockedMessage, "getBodyArray");
                 result = messageBody;
+                mockedMessage.getUrlEncodedProperties();
+                result = "";
                 Deencapsulation.invoke(mockMqtt, "publish", new Class[] {String.class, Message.class}, anyString, (Message) any);
             }
         };
@@ -263,7 +264,7 @@ public class MqttMessagingTest
         new Verifications()
         {
             {
-                mockedMessage.getBytes();
+                Deencapsulation.invoke(mockedMessage, "getBodyArray");
                 times = 1;
                 Deencapsulation.invoke(mockMqtt, "publish", new Class[]{String.class, Message.class}, anyString, mockedMessage);
                 times = 1;
@@ -280,7 +281,7 @@ public class MqttMessagingTest
         new NonStrictExpectations()
         {
             {
-                mockedMessage.getBytes();
+                Deencapsulation.invoke(mockedMessage, "getBodyArray");
                 result = messageBody;
             }
         };
@@ -291,7 +292,7 @@ public class MqttMessagingTest
         new Verifications()
         {
             {
-                mockedMessage.getBytes();
+                Deencapsulation.invoke(mockedMessage, "getBodyArray");
                 times = 1;
                 Deencapsulation.invoke(mockMqtt, "publish", MOCK_PARSE_TOPIC, new byte[1]);
                 times = 1;
@@ -312,7 +313,7 @@ public class MqttMessagingTest
         new Verifications()
         {
             {
-                mockedMessage.getBytes();
+                Deencapsulation.invoke(mockedMessage, "getBodyArray");
                 times = 0;
                 Deencapsulation.invoke(mockMqtt, "publish", MOCK_PARSE_TOPIC, new byte[1]);
                 times = 0;
@@ -321,6 +322,7 @@ public class MqttMessagingTest
     }
 
     //Tests_SRS_MqttMessaging_34_026: [This method shall append each custom property's name and value to the publishTopic before publishing.]
+    //Tests_SRS_MqttMessaging_34_037: [This method shall append the custom properties in the URL encoded form cached by the message.]
     @Test
     public void sendShallIncludeAllCustomPropertiesInPublishTopic(@Mocked final Mqtt mockMqtt) throws TransportException
     {
@@ -329,18 +331,14 @@ public class MqttMessagingTest
         final String propertyValue1 = "value1";
         final String propertyName2 = "key2";
         final String propertyValue2 = "value2";
-        final MessageProperty[] messageProperties = new MessageProperty[]
-                {
-                        new MessageProperty(propertyName1, propertyValue1),
-                        new MessageProperty(propertyName2, propertyValue2)
-                };
+        final String encodedProperties = propertyName1 + "=" + propertyValue1 + "&" + propertyName2 + "=" + propertyValue2;
         new NonStrictExpectations()
         {
             {
-                mockedMessage.getBytes();
+                Deencapsulation.invoke(mockedMessage, "getBodyArray");
                 result = messageBody;
-                mockedMessage.getProperties();
-                result = messageProperties;
+                mockedMessage.getUrlEncodedProperties();
+                result = encodedProperties;
             }
         };
 
@@ -366,16 +364,16 @@ public class MqttMessagingTest
     {
         //arrange
         final byte[] messageBody = {0x61, 0x62, 0x63};
-        final MessageProperty[] messageProperties = new MessageProperty[]{};
+        final String encodedProperties = "";
         final String messageId = "test-message-id";
         final String publishTopicWithMessageId = String.format("devices/%s/messages/events/$.mid=%s", CLIENT_ID, messageId);
         new NonStrictExpectations()
         {
             {
-                mockedMessage.getBytes();
+                Deencapsulation.invoke(mockedMessage, "getBodyArray");
                 result = messageBody;
-                mockedMessage.getProperties();
-                result = messageProperties;
+                mockedMessage.getUrlEncodedProperties();
+                result = encodedProperties;
                 mockedMessage.getMessageId();
                 result = messageId;
             }
@@ -402,16 +400,16 @@ public class MqttMessagingTest
     {
         //arrange
         final byte[] messageBody = {0x61, 0x62, 0x63};
-        final MessageProperty[] messageProperties = new MessageProperty[]{};
+        final String encodedProperties = "";
         final String correlationId = "test-correlation-id";
         final String publishTopicWithCorrelationId = String.format("devices/%s/messages/events/$.cid=%s", CLIENT_ID, correlationId);
         new NonStrictExpectations()
         {
             {
-                mockedMessage.getBytes();
+                Deencapsulation.invoke(mockedMessage, "getBodyArray");
                 result = messageBody;
-                mockedMessage.getProperties();
-                result = messageProperties;
+                mockedMessage.getUrlEncodedProperties();
+                result = encodedProperties;
                 mockedMessage.getCorrelationId();
                 result = correlationId;
             }
@@ -438,16 +436,16 @@ public class MqttMessagingTest
     {
         //arrange
         final byte[] messageBody = {0x61, 0x62, 0x63};
-        final MessageProperty[] messageProperties = new MessageProperty[]{};
+        final String encodedProperties = "";
         final String userId = "test-user-id";
         final String publishTopicWithUserId = String.format("devices/%s/messages/events/$.uid=%s", CLIENT_ID, userId);
         new NonStrictExpectations()
         {
             {
-                mockedMessage.getBytes();
+                Deencapsulation.invoke(mockedMessage, "getBodyArray");
                 result = messageBody;
-                mockedMessage.getProperties();
-                result = messageProperties;
+                mockedMessage.getUrlEncodedProperties();
+                result = encodedProperties;
                 mockedMessage.getUserId();
                 result = userId;
             }
@@ -474,16 +472,16 @@ public class MqttMessagingTest
     {
         //arrange
         final byte[] messageBody = {0x61, 0x62, 0x63};
-        final MessageProperty[] messageProperties = new MessageProperty[]{};
+        final String encodedProperties = "";
         final String to = "test-to";
         final String publishTopicWithTo = String.format("devices/%s/messages/events/$.to=%s", CLIENT_ID, to);
         new NonStrictExpectations()
         {
             {
-                mockedMessage.getBytes();
+                Deencapsulation.invoke(mockedMessage, "getBodyArray");
                 result = messageBody;
-                mockedMessage.getProperties();
-                result = messageProperties;
+                mockedMessage.getUrlEncodedProperties();
+                result = encodedProperties;
                 mockedMessage.getTo();
                 result = to;
             }
@@ -509,6 +507,7 @@ public class MqttMessagingTest
     //Tests_SRS_MqttMessaging_34_028: [If the message has a correlationId, this method shall append that correlationid to publishTopic before publishing using the key name `$.cid`.]
     //Tests_SRS_MqttMessaging_21_027: [send method shall append the messageid to publishTopic before publishing using the key name `$.mid`.]
     //Tests_SRS_MqttMessaging_34_026: [This method shall append each custom property's name and value to the publishTopic before publishing.]
+    //Tests_SRS_MqttMessaging_34_037: [This method shall append the custom properties in the URL encoded form cached by the message.]
     //Tests_SRS_MqttMessaging_34_032: [If the message has a OutputName, this method shall append that to publishTopic before publishing using the key name `$.on`.]
     //Tests_SRS_MqttMessaging_34_032: [If the message has a content type, this method shall append that to publishTopic before publishing using the key name `$.ct`.]
     //Tests_SRS_MqttMessaging_34_032: [If the message has a content encoding, this method shall append that to publishTopic before publishing using the key name `$.ce`.]
@@ -528,15 +527,11 @@ public class MqttMessagingTest
         final String contentType = "application/json";
         final String contentTypeEncoded = URLEncoder.encode(contentType, StandardCharsets.UTF_8.name());
         final String contentEncoding = "utf-8";
-        final MessageProperty[] messageProperties = new MessageProperty[]
-                {
-                        new MessageProperty(propertyName1, propertyValue1),
-                        new MessageProperty(propertyName2, propertyValue2)
-                };
+        final String encodedProperties = propertyName1 + "=" + propertyValue1 + "&" + propertyName2 + "=" + propertyValue2;
         new NonStrictExpectations()
         {
             {
-                mockedMessage.getBytes();
+                Deencapsulation.invoke(mockedMessage, "getBodyArray");
                 result = messageBody;
                 mockedMessage.getMessageId();
                 result = messageId;
@@ -550,8 +545,8 @@ public class MqttMessagingTest
                 result = contentType;
                 mockedMessage.getContentEncoding();
                 result = contentEncoding;
-                mockedMessage.getProperties();
-                result = messageProperties;
+                mockedMessage.getUrlEncodedProperties();
+                result = encodedProperties;
                 mockedMessage.getOutputName();
                 result = outputName;
             }
@@ -25,6 +25,7 @@ import java.util.HashMap;
 import java.util.Map;
 import java.util.Queue;
 import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Semaphore;
 
 import static com.microsoft.azure.sdk.iot.device.DeviceTwin.DeviceOperations.DEVICE_OPERATION_METHOD_SUBSCRIBE_REQUEST;
 import static com.microsoft.azure.sdk.iot.device.DeviceTwin.DeviceOperations.DEVICE_OPERATION_TWIN_SUBSCRIBE_DESIRED_PROPERTIES_REQUEST;
@@ -137,6 +138,11 @@ public class MqttTest
     }
 
     private void baseConstructorExpectations()
+    {
+        baseConstructorExpectations(new Semaphore(10));
+    }
+
+    private void baseConstructorExpectations(final Semaphore inFlightPermits)
     {
         new NonStrictExpectations()
         {
@@ -145,6 +151,8 @@ public class MqttTest
                 result = new ConcurrentLinkedQueue<>();
                 Deencapsulation.invoke(mockedMqttConnection, "getMqttLock");
                 result = new Object();
+                Deencapsulation.invoke(mockedMqttConnection, "getInFlightPermits");
+                result = inFlightPermits;
             }
         };
     }
@@ -183,7 +191,7 @@ public class MqttTest
         new NonStrictExpectations()
         {
             {
-                mockedMessage.getBytes();
+                Deencapsulation.invoke(mockedMessage, "getBodyArray");
                 result = payload;
                 mockMqttAsyncClient.isConnected();
                 result = true;
@@ -515,6 +523,48 @@ public class MqttTest
         };
     }
 
+    //Tests_SRS_Mqtt_34_062: [The function shall publish the message with the saved qos.]
+    //Tests_SRS_Mqtt_34_063: [If the saved qos is 0, the function shall publish the message with the message as the user context of the delivery token.]
+    @Test
+    public void publishWithQos0PassesMessageAsUserContext(final @Mocked Message mockedMessage) throws TransportException, MqttException
+    {
+        //arrange
+        baseConstructorExpectations();
+        baseConnectExpectation();
+        basePublishExpectations(mockedMessage);
+        Mqtt mockMqtt = instantiateMqtt(true);
+        Deencapsulation.invoke(mockMqtt, "connect");
+        Deencapsulation.invoke(mockMqtt, "setQos", new Class[] {int.class}, 0);
+
+        //act
+        Deencapsulation.invoke(mockMqtt, "publish", MOCK_PARSE_TOPIC, mockedMessage);
+
+        //assert
+        new Verifications()
+        {
+            {
+                mockMqttMessage.setQos(0);
+                times = 1;
+                mockMqttAsyncClient.publish(MOCK_PARSE_TOPIC, mockMqttMessage, mockedMessage, null);
+                times = 1;
+                mockMqttAsyncClient.publish(MOCK_PARSE_TOPIC, mockMqttMessage);
+                times = 0;
+            }
+        };
+    }
+
+    //Tests_SRS_Mqtt_34_065: [If the provided qos is neither 0 nor 1, this function shall throw an IllegalArgumentException.]
+    @Test (expected = IllegalArgumentException.class)
+    public void setQosThrowsForQos2() throws TransportException
+    {
+        //arrange
+        baseConstructorExpectations();
+        Mqtt mockMqtt = instantiateMqtt(true);
+
+        //act
+        Deencapsulation.invoke(mockMqtt, "setQos", new Class[] {int.class}, 2);
+    }
+
     /*
     **Tests_SRS_Mqtt_99_049: [If the user supplied SAS token has expired, the function shall throw a TransportException.]
      */
@@ -561,20 +611,10 @@ public class MqttTest
     public void publishFailsWhenConnectionBrokenWhilePublishing(final @Mocked Message mockedMessage) throws TransportException
     {
         //arrange
-        baseConstructorExpectations();
-        final byte[] payload = {0x61, 0x62, 0x63};
-        final IMqttDeliveryToken[] testTokens = {mockMqttDeliveryToken, mockMqttDeliveryToken, mockMqttDeliveryToken,
-                mockMqttDeliveryToken, mockMqttDeliveryToken, mockMqttDeliveryToken,
-                mockMqttDeliveryToken, mockMqttDeliveryToken, mockMqttDeliveryToken,
-                mockMqttDeliveryToken, mockMqttDeliveryToken, mockMqttDeliveryToken
-        };
+        baseConstructorExpectations(new Semaphore(0));
         new NonStrictExpectations()
         {
             {
-                mockMqttAsyncClient.isConnected();
-                result = true;
-                mockMqttAsyncClient.getPendingDeliveryTokens();
-                result = testTokens;
                 mockMqttAsyncClient.isConnected();
                 result = false;
             }
@@ -585,6 +625,103 @@ public class MqttTest
         Deencapsulation.invoke(mockMqtt, "publish", MOCK_PARSE_TOPIC, mockedMessage);
     }
 
+    //Tests_SRS_Mqtt_34_058: [Before publishing, this function shall take a permit from the in flight semaphore of the connection, waiting without holding the Mqtt lock until one is available.]
+    @Test
+    public void publishTakesInFlightPermit(final @Mocked Message mockedMessage) throws TransportException, MqttException
+    {
+        //arrange
+        final Semaphore inFlightPermits = new Semaphore(10);
+        baseConstructorExpectations(inFlightPermits);
+        baseConnectExpectation();
+        basePublishExpectations(mockedMessage);
+        Mqtt mockMqtt = instantiateMqtt(true);
+        Deencapsulation.invoke(mockMqtt, "connect");
+
+        //act
+        Deencapsulation.invoke(mockMqtt, "publish", MOCK_PARSE_TOPIC, mockedMessage);
+
+        //assert
+        assertEquals(9, inFlightPermits.availablePermits());
+    }
+
+    //Tests_SRS_Mqtt_34_058: [Before publishing, this function shall take a permit from the in flight semaphore of the connection, waiting without holding the Mqtt lock until one is available.]
+    //Tests_SRS_Mqtt_34_060: [This function shall return a permit to the in flight semaphore of the connection, so that a waiting publish can proceed.]
+    @Test
+    public void publishWaitsForDeliveryCompleteWhenWindowIsFull(final @Mocked Message mockedMessage) throws Exception
+    {
+        //arrange
+        final Semaphore inFlightPermits = new Semaphore(0);
+        baseConstructorExpectations(inFlightPermits);
+        baseConnectExpectation();
+        basePublishExpectations(mockedMessage);
+        final Mqtt mockMqtt = instantiateMqtt(true);
+        Deencapsulation.invoke(mockMqtt, "connect");
+        Thread publisher = new Thread(new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                Deencapsulation.invoke(mockMqtt, "publish", MOCK_PARSE_TOPIC, mockedMessage);
+            }
+        });
+
+        //act
+        publisher.start();
+        publisher.join(200);
+        boolean publishedBeforeDelivery = !publisher.isAlive();
+        mockMqtt.deliveryComplete(mockMqttDeliveryToken);
+        publisher.join(1000);
+
+        //assert
+        assertFalse(publishedBeforeDelivery);
+        assertFalse(publisher.isAlive());
+        assertEquals(0, inFlightPermits.availablePermits());
+        new Verifications()
+        {
+            {
+                mockMqttAsyncClient.publish(MOCK_PARSE_TOPIC, mockMqttMessage);
+                times = 1;
+            }
+        };
+    }
+
+    //Tests_SRS_Mqtt_34_059: [If the message is not published, this function shall return the permit it took to the in flight semaphore.]
+    @Test
+    public void publishReturnsInFlightPermitIfPublishFails(final @Mocked Message mockedMessage) throws MqttException, TransportException
+    {
+        //arrange
+        final Semaphore inFlightPermits = new Semaphore(10);
+        baseConstructorExpectations(inFlightPermits);
+        basePublishExpectations(mockedMessage);
+        final byte[] payload = {0x61, 0x62, 0x63};
+        new NonStrictExpectations()
+        {
+            {
+                mockMqttAsyncClient.isConnected();
+                result = true;
+                new MqttMessage(payload);
+                result = mockMqttMessage;
+                mockMqttAsyncClient.publish(MOCK_PARSE_TOPIC, mockMqttMessage);
+                result = mockMqttException;
+            }
+        };
+        Mqtt mockMqtt = instantiateMqtt(true);
+        boolean exceptionThrown = false;
+
+        //act
+        try
+        {
+            Deencapsulation.invoke(mockMqtt, "publish", MOCK_PARSE_TOPIC, mockedMessage);
+        }
+        catch (Exception e)
+        {
+            exceptionThrown = true;
+        }
+
+        //assert
+        assertTrue(exceptionThrown);
+        assertEquals(10, inFlightPermits.availablePermits());
+    }
 
     /*
     **Tests_SRS_Mqtt_25_014: [The function shall publish message payload on the publishTopic specified to the IoT Hub given in the configuration.]
@@ -1369,6 +1506,66 @@ public class MqttTest
         };
     }
 
+    //Tests_SRS_Mqtt_34_060: [This function shall return a permit to the in flight semaphore of the connection, so that a waiting publish can proceed.]
+    //Tests_SRS_Mqtt_34_061: [This function shall remove the delivered message from the unacknowledged sent messages.]
+    @Test
+    public void deliveryCompleteReturnsPermitAndForgetsMessage() throws TransportException
+    {
+        //arrange
+        final int expectedMessageId = 13;
+        final Semaphore inFlightPermits = new Semaphore(9);
+        baseConstructorExpectations(inFlightPermits);
+        Mqtt mockMqtt = instantiateMqtt(true, mockedIotHubListener);
+        Map<Integer, Message> unacknowledgedMessages = new HashMap<>();
+        unacknowledgedMessages.put(expectedMessageId, new Message());
+        Deencapsulation.setField(mockMqtt, "unacknowledgedSentMessages", unacknowledgedMessages);
+        new NonStrictExpectations()
+        {
+            {
+                mockMqttDeliveryToken.getMessageId();
+                result = expectedMessageId;
+            }
+        };
+
+        //act
+        mockMqtt.deliveryComplete(mockMqttDeliveryToken);
+
+        //assert
+        assertEquals(10, inFlightPermits.availablePermits());
+        assertTrue(unacknowledgedMessages.isEmpty());
+    }
+
+    //Tests_SRS_Mqtt_34_064: [If the user context of the token is a message, this function shall treat it as the delivered message.]
+    @Test
+    public void deliveryCompleteNotifiesListenerOfMessageInUserContext() throws TransportException
+    {
+        //arrange
+        final Message expectedMessage = new Message();
+        final Semaphore inFlightPermits = new Semaphore(9);
+        baseConstructorExpectations(inFlightPermits);
+        Mqtt mockMqtt = instantiateMqtt(true, mockedIotHubListener);
+        new NonStrictExpectations()
+        {
+            {
+                mockMqttDeliveryToken.getUserContext();
+                result = expectedMessage;
+            }
+        };
+
+        //act
+        mockMqtt.deliveryComplete(mockMqttDeliveryToken);
+
+        //assert
+        assertEquals(10, inFlightPermits.availablePermits());
+        new Verifications()
+        {
+            {
+                mockedIotHubListener.onMessageSent(expectedMessage, null);
+                times = 1;
+            }
+        };
+    }
+
     //Tests_SRS_Mqtt_34_056: [If the acknowledged message is of type
     // DEVICE_OPERATION_TWIN_SUBSCRIBE_DESIRED_PROPERTIES_REQUEST, DEVICE_OPERATION_METHOD_SUBSCRIBE_REQUEST,
     // or DEVICE_OPERATION_TWIN_UNSUBSCRIBE_DESIRED_PROPERTIES_REQUEST, this function shall not notify the saved
@@ -0,0 +1,141 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See LICENSE file in the project root for full license information.
+
+package tests.unit.com.microsoft.azure.sdk.iot.device.transport.mqtt;
+
+import mockit.Deencapsulation;
+import org.junit.Test;
+
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.*;
+
+/*
+ * Unit tests for MqttTopicCodec
+ * Coverage : 100% method, 100% line
+ */
+public class MqttTopicCodecTest
+{
+    private static final String MQTT_TOPIC_CODEC_CLASS = "com.microsoft.azure.sdk.iot.device.transport.mqtt.MqttTopicCodec";
+
+    private static final String[] TOPICS =
+    {
+        "a", "a/b", "a/b/", "a/b//", "/a", "a//b", "/", "///",
+        "$iothub/twin/res/200/?$rid=1&$version=2",
+        "devices/deviceId/modules/moduleId/inputs/inputName/"
+    };
+
+    private static int getTokenCount(String topic) throws ClassNotFoundException
+    {
+        return Deencapsulation.invoke(Class.forName(MQTT_TOPIC_CODEC_CLASS), "getTokenCount", new Class[] {String.class}, topic);
+    }
+
+    private static String getToken(String topic, int end, int tokenIndex) throws ClassNotFoundException
+    {
+        return Deencapsulation.invoke(Class.forName(MQTT_TOPIC_CODEC_CLASS), "getToken", new Class[] {String.class, int.class, int.class}, topic, end, tokenIndex);
+    }
+
+    private static boolean tokenEquals(String topic, int end, int tokenIndex, String expected) throws ClassNotFoundException
+    {
+        return Deencapsulation.invoke(Class.forName(MQTT_TOPIC_CODEC_CLASS), "tokenEquals", new Class[] {String.class, int.class, int.class, String.class}, topic, end, tokenIndex, expected);
+    }
+
+    private static String decode(String topic, int start, int end) throws ClassNotFoundException
+    {
+        return Deencapsulation.invoke(Class.forName(MQTT_TOPIC_CODEC_CLASS), "decode", new Class[] {String.class, int.class, int.class}, topic, start, end);
+    }
+
+    //Tests_SRS_MQTTTOPICCODEC_34_001: [If the topic holds nothing but "/" characters, this function shall return 0.]
+    //Tests_SRS_MQTTTOPICCODEC_34_002: [This function shall return the number of "/" separated tokens in the topic, not counting trailing empty tokens.]
+    @Test
+    public void getTokenCountMatchesSplit() throws ClassNotFoundException
+    {
+        for (String topic : TOPICS)
+        {
+            //act
+            int tokenCount = getTokenCount(topic);
+
+            //assert
+            assertEquals(topic, topic.split("/").length, tokenCount);
+        }
+    }
+
+    //Tests_SRS_MQTTTOPICCODEC_34_003: [This function shall return the "/" separated token at the provided index, ignoring the characters of the topic from end onwards.]
+    //Tests_SRS_MQTTTOPICCODEC_34_004: [If the topic has no such token before end, or the token and all tokens after it are empty, this function shall return null.]
+    @Test
+    public void getTokenMatchesSplit() throws ClassNotFoundException
+    {
+        for (String topic : TOPICS)
+        {
+            String[] expectedTokens = topic.split("/");
+            for (int tokenIndex = 0; tokenIndex <= expectedTokens.length; tokenIndex++)
+            {
+                //act
+                String token = getToken(topic, topic.length(), tokenIndex);
+
+                //assert
+                assertEquals(topic + " token " + tokenIndex, tokenIndex < expectedTokens.length ? expectedTokens[tokenIndex] : null, token);
+            }
+        }
+    }
+
+    //Tests_SRS_MQTTTOPICCODEC_34_003: [This function shall return the "/" separated token at the provided index, ignoring the characters of the topic from end onwards.]
+    @Test
+    public void getTokenStopsAtEnd() throws ClassNotFoundException
+    {
+        //arrange
+        String topic = "devices/deviceId/modules/moduleId/%24.mid=1";
+        int end = topic.indexOf("%24");
+
+        //act
+        String moduleId = getToken(topic, end, 3);
+        String properties = getToken(topic, end, 4);
+
+        //assert
+        assertEquals("moduleId", moduleId);
+        assertNull(properties);
+    }
+
+    //Tests_SRS_MQTTTOPICCODEC_34_005: [This function shall return true if and only if getToken would return a token equal to the expected value.]
+    @Test
+    public void tokenEqualsMatchesWholeTokensOnly() throws ClassNotFoundException
+    {
+        //arrange
+        String topic = "devices/deviceId/modules/moduleId/inputs";
+
+        //act
+        //assert
+        assertTrue(tokenEquals(topic, topic.length(), 2, "modules"));
+        assertTrue(tokenEquals(topic, topic.length(), 4, "inputs"));
+        assertFalse(tokenEquals(topic, topic.length(), 2, "module"));
+        assertFalse(tokenEquals(topic, topic.length(), 2, "modules/moduleId"));
+        assertFalse(tokenEquals(topic, topic.length() - 1, 4, "inputs"));
+        assertFalse(tokenEquals(topic, topic.length(), 5, "inputs"));
+    }
+
+    //Tests_SRS_MQTTTOPICCODEC_34_006: [If the characters contain a '%' or a '+', this function shall return them decoded by URLDecoder using UTF-8.]
+    @Test
+    public void decodeDecodesEscapedCharacters() throws Exception
+    {
+        //arrange
+        String encoded = "%24.to=%2Fa+b%C3%A9";
+
+        //act
+        String decoded = decode("&" + encoded + "&", 1, encoded.length() + 1);
+
+        //assert
+        assertEquals(URLDecoder.decode(encoded, StandardCharsets.UTF_8.name()), decoded);
+    }
+
+    //Tests_SRS_MQTTTOPICCODEC_34_007: [If the characters contain neither '%' nor '+', this function shall return them as they are.]
+    @Test
+    public void decodeReturnsPlainCharactersAsTheyAre() throws ClassNotFoundException
+    {
+        //act
+        String decoded = decode("key=value", 4, 9);
+
+        //assert
+        assertEquals("value", decoded);
+    }
+}
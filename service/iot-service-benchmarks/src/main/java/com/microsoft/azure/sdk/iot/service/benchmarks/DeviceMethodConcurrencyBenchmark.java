@@ -0,0 +1,230 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See LICENSE file in the project root for full license information.
+
+package com.microsoft.azure.sdk.iot.service.benchmarks;
+
+import com.microsoft.azure.sdk.iot.service.devicetwin.DeviceMethod;
+import com.microsoft.azure.sdk.iot.service.devicetwin.MethodResult;
+import org.openjdk.jmh.annotations.*;
+
+import javax.net.ssl.HttpsURLConnection;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URL;
+import java.net.URLConnection;
+import java.net.URLStreamHandler;
+import java.nio.charset.StandardCharsets;
+import java.security.cert.Certificate;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the direct method throughput of one {@link DeviceMethod} shared by 1, 4 and 16 caller threads.
+ * <p>
+ * Every HTTPS request is answered in-process after {@code deviceLatencyMillis}, which stands in for the round trip to
+ * the hub and the time the device takes to run the method. {@code shared...} calls the client directly and should scale
+ * almost linearly with the thread count. {@code serialized...} holds the client's monitor around each call, the way the
+ * client's {@code synchronized} methods used to, and stays at one call per round trip whatever the thread count.
+ * </p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DeviceMethodConcurrencyBenchmark
+{
+    private static final String CONNECTION_STRING = "HostName=benchmark.azure-devices.net;SharedAccessKeyName=iothubowner;SharedAccessKey=MTIzNDU2Nzg5MDEyMzQ1Njc4OTAxMjM0NTY3ODkwMTI=";
+    private static final byte[] METHOD_RESPONSE = "{\"status\":200,\"payload\":\"done\"}".getBytes(StandardCharsets.UTF_8);
+    private static final long RESPONSE_TIMEOUT_SECONDS = 30L;
+    private static final long CONNECT_TIMEOUT_SECONDS = 5L;
+
+    private static volatile long deviceLatency;
+
+    @Param({"5"})
+    public long deviceLatencyMillis;
+
+    private DeviceMethod deviceMethod;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception
+    {
+        deviceLatency = this.deviceLatencyMillis;
+        StandInHttpsHandler.install();
+        this.deviceMethod = DeviceMethod.createFromConnectionString(CONNECTION_STRING);
+    }
+
+    @Benchmark
+    @Threads(1)
+    public MethodResult shared1Thread() throws Exception
+    {
+        return invoke();
+    }
+
+    @Benchmark
+    @Threads(4)
+    public MethodResult shared4Threads() throws Exception
+    {
+        return invoke();
+    }
+
+    @Benchmark
+    @Threads(16)
+    public MethodResult shared16Threads() throws Exception
+    {
+        return invoke();
+    }
+
+    @Benchmark
+    @Threads(4)
+    public MethodResult serialized4Threads() throws Exception
+    {
+        synchronized (this.deviceMethod)
+        {
+            return invoke();
+        }
+    }
+
+    @Benchmark
+    @Threads(16)
+    public MethodResult serialized16Threads() throws Exception
+    {
+        synchronized (this.deviceMethod)
+        {
+            return invoke();
+        }
+    }
+
+    private MethodResult invoke() throws Exception
+    {
+        return this.deviceMethod.invoke("device", "reboot", RESPONSE_TIMEOUT_SECONDS, CONNECT_TIMEOUT_SECONDS, null);
+    }
+
+    /**
+     * Routes every https URL created after {@link #install()} to a {@link StandInConnection}. The handler factory of
+     * a JVM can only be set once, and each benchmark trial runs in its own fork.
+     */
+    private static final class StandInHttpsHandler extends URLStreamHandler
+    {
+        private static boolean installed;
+
+        private static synchronized void install()
+        {
+            if (!installed)
+            {
+                final StandInHttpsHandler handler = new StandInHttpsHandler();
+                URL.setURLStreamHandlerFactory(protocol -> "https".equals(protocol) ? handler : null);
+                installed = true;
+            }
+        }
+
+        @Override
+        protected URLConnection openConnection(URL url)
+        {
+            return new StandInConnection(url);
+        }
+    }
+
+    /**
+     * Answers a direct method request with a successful method result once the device latency has passed.
+     */
+    private static final class StandInConnection extends HttpsURLConnection
+    {
+        private final ByteArrayOutputStream requestBody = new ByteArrayOutputStream();
+
+        private StandInConnection(URL url)
+        {
+            super(url);
+        }
+
+        @Override
+        public void connect()
+        {
+            if (!this.connected)
+            {
+                try
+                {
+                    Thread.sleep(deviceLatency);
+                }
+                catch (InterruptedException e)
+                {
+                    Thread.currentThread().interrupt();
+                }
+
+                this.connected = true;
+            }
+        }
+
+        @Override
+        public OutputStream getOutputStream()
+        {
+            return this.requestBody;
+        }
+
+        @Override
+        public int getResponseCode()
+        {
+            connect();
+            return HTTP_OK;
+        }
+
+        @Override
+        public InputStream getInputStream()
+        {
+            connect();
+            return new ByteArrayInputStream(METHOD_RESPONSE);
+        }
+
+        @Override
+        public InputStream getErrorStream()
+        {
+            return null;
+        }
+
+        @Override
+        public int getContentLength()
+        {
+            return METHOD_RESPONSE.length;
+        }
+
+        @Override
+        public Map<String, List<String>> getHeaderFields()
+        {
+            return Collections.emptyMap();
+        }
+
+        @Override
+        public void disconnect()
+        {
+        }
+
+        @Override
+        public boolean usingProxy()
+        {
+            return false;
+        }
+
+        @Override
+        public String getCipherSuite()
+        {
+            return "TLS_ECDHE_RSA_WITH_AES_128_GCM_SHA256";
+        }
+
+        @Override
+        public Certificate[] getLocalCertificates()
+        {
+            return null;
+        }
+
+        @Override
+        public Certificate[] getServerCertificates()
+        {
+            return null;
+        }
+    }
+}
@@ -10,7 +10,7 @@ import com.microsoft.azure.sdk.iot.deps.serializer.ConfigurationParser;
 import com.microsoft.azure.sdk.iot.deps.serializer.DeviceParser;
 import com.microsoft.azure.sdk.iot.deps.serializer.JobPropertiesParser;
 import com.microsoft.azure.sdk.iot.deps.serializer.RegistryStatisticsParser;
-import com.microsoft.azure.sdk.iot.service.auth.IotHubServiceSasToken;
+import com.microsoft.azure.sdk.iot.service.auth.IotHubServiceSasTokenCache;
 import com.microsoft.azure.sdk.iot.service.exceptions.IotHubException;
 import com.microsoft.azure.sdk.iot.service.exceptions.IotHubExceptionManager;
 import com.microsoft.azure.sdk.iot.service.transport.http.HttpMethod;
@@ -112,7 +112,7 @@ public class RegistryManager
         // Codes_SRS_SERVICE_SDK_JAVA_REGISTRYMANAGER_12_006: [The function shall get the URL for the device]
         URL url = iotHubConnectionString.getUrlDevice(device.getDeviceId());
         // Codes_SRS_SERVICE_SDK_JAVA_REGISTRYMANAGER_12_007: [The function shall create a new SAS token for the device]
-        String sasTokenString = new IotHubServiceSasToken(this.iotHubConnectionString).toString();
+        String sasTokenString = IotHubServiceSasTokenCache.getToken(this.iotHubConnectionString);
 
         // Codes_SRS_SERVICE_SDK_JAVA_REGISTRYMANAGER_12_008: [The function shall create a new HttpRequest for adding the device to IotHub]
         HttpRequest request = CreateRequest(url, HttpMethod.PUT, deviceJson.getBytes(), sasTokenString);
@@ -183,7 +183,7 @@ public class RegistryManager
         // Codes_SRS_SERVICE_SDK_JAVA_REGISTRYMANAGER_12_015: [The function shall get the URL for the device]
         URL url = iotHubConnectionString.getUrlDevice(deviceId);
         // Codes_SRS_SERVICE_SDK_JAVA_REGISTRYMANAGER_12_016: [The function shall create a new SAS token for the device]
-        String sasTokenString = new IotHubServiceSasToken(this.iotHubConnectionString).toString();
+        String sasTokenString = IotHubServiceSasTokenCache.getToken(this.iotHubConnectionString);
 
         // Codes_SRS_SERVICE_SDK_JAVA_REGISTRYMANAGER_12_017: [The function shall create a new HttpRequest for getting a device from IotHub]
         HttpRequest request = CreateRequest(url, HttpMethod.GET, new byte[0], sasTokenString);
@@ -257,7 +257,7 @@ public class RegistryManager
         // Codes_SRS_SERVICE_SDK_JAVA_REGISTRYMANAGER_12_024: [The function shall get the URL for the device]
         URL url = iotHubConnectionString.getUrlDeviceList(maxCount);
         // Codes_SRS_SERVICE_SDK_JAVA_REGISTRYMANAGER_12_025: [The function shall create a new SAS token for the device]
-        String sasTokenString = new IotHubServiceSasToken(this.iotHubConnectionString).toString();
+        String sasTokenString = IotHubServiceSasTokenCache.getToken(this.iotHubConnectionString);
 
         // Codes_SRS_SERVICE_SDK_JAVA_REGISTRYMANAGER_12_026: [The function shall create a new HttpRequest for getting a device list from IotHub]
         HttpRequest request = CreateRequest(url, HttpMethod.GET, new byte[0], sasTokenString);
@@ -399,7 +399,7 @@ public class RegistryManager
         // Codes_SRS_SERVICE_SDK_JAVA_REGISTRYMANAGER_12_036: [The function shall get the URL for the device]
         URL url = iotHubConnectionString.getUrlDevice(device.getDeviceId());
         // Codes_SRS_SERVICE_SDK_JAVA_REGISTRYMANAGER_12_037: [The function shall create a new SAS token for the device]
-        String sasTokenString = new IotHubServiceSasToken(this.iotHubConnectionString).toString();
+        String sasTokenString = IotHubServiceSasTokenCache.getToken(this.iotHubConnectionString);
 
         // Codes_SRS_SERVICE_SDK_JAVA_REGISTRYMANAGER_12_038: [The function shall create a new HttpRequest for updating the device on IotHub]
         HttpRequest request = CreateRequest(url, HttpMethod.PUT, device.toDeviceParser().toJson().getBytes(), sasTokenString);
@@ -542,7 +542,7 @@ public class RegistryManager
         URL url = iotHubConnectionString.getUrlDevice(deviceId);
 
         // Codes_SRS_SERVICE_SDK_JAVA_REGISTRYMANAGER_12_048: [The function shall create a new SAS token for the device]
-        String sasToken = new IotHubServiceSasToken(this.iotHubConnectionString).toString();
+        String sasToken = IotHubServiceSasTokenCache.getToken(this.iotHubConnectionString);
 
         // Codes_SRS_SERVICE_SDK_JAVA_REGISTRYMANAGER_12_049: [The function shall create a new HttpRequest for removing the device from IotHub]
         HttpRequest request = new HttpRequest(url, HttpMethod.DELETE, new byte[0]);
@@ -604,7 +604,7 @@ public class RegistryManager
         URL url = iotHubConnectionString.getUrlDeviceStatistics();
 
         // Codes_SRS_SERVICE_SDK_JAVA_REGISTRYMANAGER_12_055: [The function shall create a new SAS token for the device]
-        String sasTokenString = new IotHubServiceSasToken(this.iotHubConnectionString).toString();
+        String sasTokenString = IotHubServiceSasTokenCache.getToken(this.iotHubConnectionString);
 
         // Codes_SRS_SERVICE_SDK_JAVA_REGISTRYMANAGER_12_056: [The function shall create a new HttpRequest for getting statistics a device from IotHub]
         HttpRequest request = CreateRequest(url, HttpMethod.GET, new byte[0], sasTokenString);
@@ -673,7 +673,7 @@ public class RegistryManager
         URL url = iotHubConnectionString.getUrlCreateExportImportJob();
 
         // CODES_SRS_SERVICE_SDK_JAVA_REGISTRYMANAGER_15_063: [The function shall create a new SAS token for the bulk export job]
-        String sasTokenString = new IotHubServiceSasToken(this.iotHubConnectionString).toString();
+        String sasTokenString = IotHubServiceSasTokenCache.getToken(this.iotHubConnectionString);
 
         // CODES_SRS_SERVICE_SDK_JAVA_REGISTRYMANAGER_15_064: [The function shall create a new HttpRequest for the bulk export job creation ]
         String jobPropertiesJson = CreateExportJobPropertiesJson(exportBlobContainerUri, excludeKeys);
@@ -743,7 +743,7 @@ public class RegistryManager
         URL url = iotHubConnectionString.getUrlCreateExportImportJob();
 
         // CODES_SRS_SERVICE_SDK_JAVA_REGISTRYMANAGER_15_071: [The function shall create a new SAS token for the bulk import job]
-        String sasTokenString = new IotHubServiceSasToken(this.iotHubConnectionString).toString();
+        String sasTokenString = IotHubServiceSasTokenCache.getToken(this.iotHubConnectionString);
 
         // CODES_SRS_SERVICE_SDK_JAVA_REGISTRYMANAGER_15_072: [The function shall create a new HttpRequest for the bulk import job creation]
         String jobPropertiesJson = CreateImportJobPropertiesJson(importBlobContainerUri, outputBlobContainerUri);
@@ -812,7 +812,7 @@ public class RegistryManager
         URL url = iotHubConnectionString.getUrlImportExportJob(jobId);
 
         // CODES_SRS_SERVICE_SDK_JAVA_REGISTRYMANAGER_15_079: [The function shall create a new SAS token for the get request **]
-        String sasTokenString = new IotHubServiceSasToken(this.iotHubConnectionString).toString();
+        String sasTokenString = IotHubServiceSasTokenCache.getToken(this.iotHubConnectionString);
 
         // CODES_SRS_SERVICE_SDK_JAVA_REGISTRYMANAGER_15_080: [The function shall create a new HttpRequest for getting the properties of a job]
         HttpRequest request = CreateRequest(url, HttpMethod.GET, new byte[0], sasTokenString);
@@ -878,7 +878,7 @@ public class RegistryManager
         // Codes_SRS_SERVICE_SDK_JAVA_REGISTRYMANAGER_28_003: [The function shall get the URL for the module]
         URL url = iotHubConnectionString.getUrlModule(module.getDeviceId(), module.getId());
         // Codes_SRS_SERVICE_SDK_JAVA_REGISTRYMANAGER_28_004: [The function shall create a new SAS token for the module]
-        String sasTokenString = new IotHubServiceSasToken(this.iotHubConnectionString).toString();
+        String sasTokenString = IotHubServiceSasTokenCache.getToken(this.iotHubConnectionString);
 
         // Codes_SRS_SERVICE_SDK_JAVA_REGISTRYMANAGER_28_005: [The function shall create a new HttpRequest for adding the module to IotHub]
         HttpRequest request = CreateRequest(url, HttpMethod.PUT, moduleJson.getBytes(), sasTokenString);
@@ -923,7 +923,7 @@ public class RegistryManager
         // Codes_SRS_SERVICE_SDK_JAVA_REGISTRYMANAGER_28_011: [The function shall get the URL for the device]
         URL url = iotHubConnectionString.getUrlModule(deviceId, moduleId);
         // Codes_SRS_SERVICE_SDK_JAVA_REGISTRYMANAGER_28_012: [The function shall create a new SAS token for the device]
-        String sasTokenString = new IotHubServiceSasToken(this.iotHubConnectionString).toString();
+        String sasTokenString = IotHubServiceSasTokenCache.getToken(this.iotHubConnectionString);
 
         // Codes_SRS_SERVICE_SDK_JAVA_REGISTRYMANAGER_28_013: [The function shall create a new HttpRequest for getting a device from IotHub]
         HttpRequest request = CreateRequest(url, HttpMethod.GET, new byte[0], sasTokenString);
@@ -960,7 +960,7 @@ public class RegistryManager
         // Codes_SRS_SERVICE_SDK_JAVA_REGISTRYMANAGER_28_018: [The function shall get the URL for the device]
         URL url = iotHubConnectionString.getUrlModulesOnDevice(deviceId);
         // Codes_SRS_SERVICE_SDK_JAVA_REGISTRYMANAGER_28_019: [The function shall create a new SAS token for the device]
-        String sasTokenString = new IotHubServiceSasToken(this.iotHubConnectionString).toString();
+        String sasTokenString = IotHubServiceSasTokenCache.getToken(this.iotHubConnectionString);
 
         // Codes_SRS_SERVICE_SDK_JAVA_REGISTRYMANAGER_28_020: [The function shall create a new HttpRequest for getting a device from IotHub]
         HttpRequest request = CreateRequest(url, HttpMethod.GET, new byte[0], sasTokenString);
@@ -1030,7 +1030,7 @@ public class RegistryManager
         // Codes_SRS_SERVICE_SDK_JAVA_REGISTRYMANAGER_28_028: [The function shall get the URL for the module]
         URL url = iotHubConnectionString.getUrlModule(module.getDeviceId(), module.getId());
         // Codes_SRS_SERVICE_SDK_JAVA_REGISTRYMANAGER_28_029: [The function shall create a new SAS token for the module]
-        String sasTokenString = new IotHubServiceSasToken(this.iotHubConnectionString).toString();
+        String sasTokenString = IotHubServiceSasTokenCache.getToken(this.iotHubConnectionString);
 
         // Codes_SRS_SERVICE_SDK_JAVA_REGISTRYMANAGER_28_030: [The function shall create a new HttpRequest for updating the module on IotHub]
         HttpRequest request = CreateRequest(url, HttpMethod.PUT, module.toDeviceParser().toJson().getBytes(), sasTokenString);
@@ -1116,7 +1116,7 @@ public class RegistryManager
         URL url = iotHubConnectionString.getUrlModule(deviceId, moduleId);
 
         // Codes_SRS_SERVICE_SDK_JAVA_REGISTRYMANAGER_28_037: [The function shall create a new SAS token for the module]
-        String sasToken = new IotHubServiceSasToken(this.iotHubConnectionString).toString();
+        String sasToken = IotHubServiceSasTokenCache.getToken(this.iotHubConnectionString);
 
         // Codes_SRS_SERVICE_SDK_JAVA_REGISTRYMANAGER_28_038: [The function shall create a new HttpRequest for removing the module from IotHub]
         HttpRequest request = new HttpRequest(url, HttpMethod.DELETE, new byte[0]);
@@ -1154,7 +1154,7 @@ public class RegistryManager
         // Codes_SRS_SERVICE_SDK_JAVA_REGISTRYMANAGER_28_043: [The function shall get the URL for the configuration]
         URL url = iotHubConnectionString.getUrlConfiguration(configuration.getId());
         // Codes_SRS_SERVICE_SDK_JAVA_REGISTRYMANAGER_28_044: [The function shall create a new SAS token for the configuration]
-        String sasTokenString = new IotHubServiceSasToken(this.iotHubConnectionString).toString();
+        String sasTokenString = IotHubServiceSasTokenCache.getToken(this.iotHubConnectionString);
 
         // Codes_SRS_SERVICE_SDK_JAVA_REGISTRYMANAGER_28_045: [The function shall create a new HttpRequest for adding the configuration to IotHub]
         HttpRequest request = CreateRequest(url, HttpMethod.PUT, configurationJson.getBytes(), sasTokenString);
@@ -1192,7 +1192,7 @@ public class RegistryManager
         // Codes_SRS_SERVICE_SDK_JAVA_REGISTRYMANAGER_28_050: [The function shall get the URL for the device]
         URL url = iotHubConnectionString.getUrlConfiguration(configurationId);
         // Codes_SRS_SERVICE_SDK_JAVA_REGISTRYMANAGER_28_051: [The function shall create a new SAS token for the device]
-        String sasTokenString = new IotHubServiceSasToken(this.iotHubConnectionString).toString();
+        String sasTokenString = IotHubServiceSasTokenCache.getToken(this.iotHubConnectionString);
 
         // Codes_SRS_SERVICE_SDK_JAVA_REGISTRYMANAGER_28_052: [The function shall create a new HttpRequest for getting a device from IotHub]
         HttpRequest request = CreateRequest(url, HttpMethod.GET, new byte[0], sasTokenString);
@@ -1229,7 +1229,7 @@ public class RegistryManager
         // Codes_SRS_SERVICE_SDK_JAVA_REGISTRYMANAGER_28_057: [The function shall get the URL for the device]
         URL url = iotHubConnectionString.getUrlConfigurationsList(maxCount);
         // Codes_SRS_SERVICE_SDK_JAVA_REGISTRYMANAGER_28_058: [The function shall create a new SAS token for the device]
-        String sasTokenString = new IotHubServiceSasToken(this.iotHubConnectionString).toString();
+        String sasTokenString = IotHubServiceSasTokenCache.getToken(this.iotHubConnectionString);
 
         // Codes_SRS_SERVICE_SDK_JAVA_REGISTRYMANAGER_28_059: [The function shall create a new HttpRequest for getting a device from IotHub]
         HttpRequest request = CreateRequest(url, HttpMethod.GET, new byte[0], sasTokenString);
@@ -1299,7 +1299,7 @@ public class RegistryManager
         // Codes_SRS_SERVICE_SDK_JAVA_REGISTRYMANAGER_28_067: [The function shall get the URL for the configuration]
         URL url = iotHubConnectionString.getUrlConfiguration(configuration.getId());
         // Codes_SRS_SERVICE_SDK_JAVA_REGISTRYMANAGER_28_068: [The function shall create a new SAS token for the configuration]
-        String sasTokenString = new IotHubServiceSasToken(this.iotHubConnectionString).toString();
+        String sasTokenString = IotHubServiceSasTokenCache.getToken(this.iotHubConnectionString);
 
         // Codes_SRS_SERVICE_SDK_JAVA_REGISTRYMANAGER_28_069: [The function shall create a new HttpRequest for updating the device on IotHub]
         HttpRequest request = CreateRequest(url, HttpMethod.PUT, configuration.toConfigurationParser().toJson().getBytes(), sasTokenString);
@@ -1377,7 +1377,7 @@ public class RegistryManager
         URL url = iotHubConnectionString.getUrlConfiguration(configurationId);
 
         // Codes_SRS_SERVICE_SDK_JAVA_REGISTRYMANAGER_28_075: [The function shall create a new SAS token for the configuration]
-        String sasToken = new IotHubServiceSasToken(this.iotHubConnectionString).toString();
+        String sasToken = IotHubServiceSasTokenCache.getToken(this.iotHubConnectionString);
 
         // Codes_SRS_SERVICE_SDK_JAVA_REGISTRYMANAGER_28_076: [The function shall create a new HttpRequest for removing the configuration from IotHub]
         HttpRequest request = new HttpRequest(url, HttpMethod.DELETE, new byte[0]);
@@ -1411,7 +1411,7 @@ public class RegistryManager
         URL url = iotHubConnectionString.getUrlApplyConfigurationContent(deviceId);
 
         // Codes_SRS_SERVICE_SDK_JAVA_REGISTRYMANAGER_34_090: [The function shall create a new SAS token for the configuration]
-        String sasTokenString = new IotHubServiceSasToken(this.iotHubConnectionString).toString();
+        String sasTokenString = IotHubServiceSasTokenCache.getToken(this.iotHubConnectionString);
 
         // Codes_SRS_SERVICE_SDK_JAVA_REGISTRYMANAGER_34_091: [The function shall send a new HTTP POST request with the created url, sas token, and the provided content in json form as the body.]
         HttpRequest request = CreateRequest(url, HttpMethod.POST, content.toConfigurationContentParser().toJson().getBytes(), sasTokenString);
@@ -5,9 +5,10 @@
 
 package com.microsoft.azure.sdk.iot.service;
 
-import com.microsoft.azure.sdk.iot.service.auth.IotHubServiceSasToken;
+import com.microsoft.azure.sdk.iot.service.auth.IotHubServiceSasTokenCache;
 import com.microsoft.azure.sdk.iot.service.exceptions.IotHubException;
 import com.microsoft.azure.sdk.iot.service.transport.amqps.AmqpSend;
+import com.microsoft.azure.sdk.iot.service.transport.amqps.AmqpSendHandler;
 
 import java.io.IOException;
 import java.util.concurrent.CompletableFuture;
@@ -36,6 +37,20 @@ public class ServiceClient
      * @throws IOException This exception is thrown if the object creation failed
      */
     public static ServiceClient createFromConnectionString(String connectionString, IotHubServiceClientProtocol iotHubServiceClientProtocol) throws IOException
+    {
+        return createFromConnectionString(connectionString, iotHubServiceClientProtocol, AmqpSendHandler.DEFAULT_MAX_IN_FLIGHT_MESSAGES);
+    }
+
+    /**
+     * Create ServiceClient from the specified connection string
+     * @param iotHubServiceClientProtocol  protocol to use
+     * @param connectionString The connection string for the IotHub
+     * @param maxInFlightMessages The maximum number of messages sent and not yet acknowledged by the service.
+     * Messages passed to {@link #sendAsync(String, Message)} beyond that wait in a queue, without blocking the caller.
+     * @return The created ServiceClient object
+     * @throws IOException This exception is thrown if the object creation failed
+     */
+    public static ServiceClient createFromConnectionString(String connectionString, IotHubServiceClientProtocol iotHubServiceClientProtocol, int maxInFlightMessages) throws IOException
     {
         // Codes_SRS_SERVICE_SDK_JAVA_SERVICECLIENT_12_001: [The constructor shall throw IllegalArgumentException if the input string is empty or null]
         if (Tools.isNullOrEmpty(connectionString))
@@ -47,7 +62,7 @@ public class ServiceClient
         IotHubConnectionString iotHubConnectionString = IotHubConnectionStringBuilder.createConnectionString(connectionString);
 
         // Codes_SRS_SERVICE_SDK_JAVA_SERVICECLIENT_12_003: [The constructor shall create a new instance of ServiceClient using the created IotHubConnectionString object and return with it]
-        ServiceClient iotServiceClient = new ServiceClient(iotHubConnectionString, iotHubServiceClientProtocol);
+        ServiceClient iotServiceClient = new ServiceClient(iotHubConnectionString, iotHubServiceClientProtocol, maxInFlightMessages);
         return iotServiceClient;
     }
 
@@ -58,6 +73,18 @@ public class ServiceClient
      * @param iotHubServiceClientProtocol protocol to use
      */
     protected ServiceClient(IotHubConnectionString iotHubConnectionString, IotHubServiceClientProtocol iotHubServiceClientProtocol)
+    {
+        this(iotHubConnectionString, iotHubServiceClientProtocol, AmqpSendHandler.DEFAULT_MAX_IN_FLIGHT_MESSAGES);
+    }
+
+    /**
+     * Initialize AMQP sender using given connection string
+     *
+     * @param iotHubConnectionString The ConnectionString object for the IotHub
+     * @param iotHubServiceClientProtocol protocol to use
+     * @param maxInFlightMessages The maximum number of messages sent and not yet acknowledged by the service
+     */
+    protected ServiceClient(IotHubConnectionString iotHubConnectionString, IotHubServiceClientProtocol iotHubServiceClientProtocol, int maxInFlightMessages)
     {
         // Codes_SRS_SERVICE_SDK_JAVA_SERVICECLIENT_12_004: [The constructor shall throw IllegalArgumentException if the input object is null]
         if (iotHubConnectionString == null)
@@ -66,17 +93,17 @@ public class ServiceClient
         }
 
         // Codes_SRS_SERVICE_SDK_JAVA_SERVICECLIENT_12_005: [The constructor shall create a SAS token object using the IotHubConnectionString]
-        IotHubServiceSasToken iotHubServiceSasToken = new IotHubServiceSasToken(iotHubConnectionString);
+        String sasToken = IotHubServiceSasTokenCache.getToken(iotHubConnectionString);
 
         // Codes_SRS_SERVICE_SDK_JAVA_SERVICECLIENT_12_006: [The constructor shall store connection string, hostname, username and sasToken]
         this.iotHubConnectionString = iotHubConnectionString;
         this.hostName = iotHubConnectionString.getHostName();
         this.userName = iotHubConnectionString.getUserString();
-        this.sasToken = iotHubServiceSasToken.toString();
+        this.sasToken = sasToken;
         this.iotHubServiceClientProtocol = iotHubServiceClientProtocol;
 
         // Codes_SRS_SERVICE_SDK_JAVA_SERVICECLIENT_12_007: [The constructor shall create a new instance of AmqpSend object]
-        this.amqpMessageSender = new AmqpSend(hostName, userName, sasToken, this.iotHubServiceClientProtocol);
+        this.amqpMessageSender = new AmqpSend(hostName, userName, sasToken, this.iotHubServiceClientProtocol, maxInFlightMessages);
     }
 
     /**
@@ -188,27 +215,54 @@ public class ServiceClient
     }
 
     /**
-     * Provide asynchronous access to send()
+     * Send a one-way message to the specified device without blocking the caller.
+     * The message is queued on the AMQP sender link shared by all the sends of this client.
      *
      * @param deviceId The device identifier for the target device
      * @param message The message for the device
-     * @return The future object for the requested operation
+     * @return The future object for the requested operation. It completes when the service
+     * acknowledges the message and completes exceptionally if the service rejects it or the send fails.
      */
     public CompletableFuture<Void> sendAsync(String deviceId, Message message)
     {
-        // Codes_SRS_SERVICE_SDK_JAVA_SERVICECLIENT_12_016: [The function shall create an async wrapper around the send() function call]
-        final CompletableFuture<Void> future = new CompletableFuture<>();
-        executor.submit(() -> {
+        // Codes_SRS_SERVICE_SDK_JAVA_SERVICECLIENT_12_016: [The function shall call sendAsync() with the given parameters and null moduleId]
+        return this.sendAsync(deviceId, null, message);
+    }
+
+    /**
+     * Send a one-way message to the specified module without blocking the caller.
+     * The message is queued on the AMQP sender link shared by all the sends of this client.
+     * At most the configured number of messages are waiting for acknowledgement at any time,
+     * the rest stay queued until the window frees up.
+     *
+     * @param deviceId The device identifier for the target device
+     * @param moduleId The module identifier for the target device
+     * @param message The message for the device
+     * @return The future object for the requested operation. It completes when the service
+     * acknowledges the message and completes exceptionally if the service rejects it or the send fails.
+     */
+    public CompletableFuture<Void> sendAsync(String deviceId, String moduleId, Message message)
+    {
+        if (this.amqpMessageSender == null)
+        {
+            // Codes_SRS_SERVICE_SDK_JAVA_SERVICECLIENT_34_019: [The function shall return a future completed with IOException if the member AMQP sender object has not been initialized]
+            CompletableFuture<Void> future = new CompletableFuture<>();
+            future.completeExceptionally(new IOException("AMQP sender is not initialized"));
+            return future;
+        }
+
         try
         {
-            send(deviceId, message);
-            future.complete(null);
-        } catch (Exception e)
+            // Codes_SRS_SERVICE_SDK_JAVA_SERVICECLIENT_34_020: [The function shall call sendAsync() on the member AMQP sender object with the given parameters and return its future]
+            return this.amqpMessageSender.sendAsync(deviceId, moduleId, message);
+        }
+        catch (IOException e)
         {
+            // Codes_SRS_SERVICE_SDK_JAVA_SERVICECLIENT_34_021: [If the AMQP sender throws, the function shall return a future completed with that exception]
+            CompletableFuture<Void> future = new CompletableFuture<>();
             future.completeExceptionally(e);
+            return future;
         }
-        });
-        return future;
     }
 
     /**
@@ -0,0 +1,139 @@
+/*
+ * Copyright (c) Microsoft. All rights reserved.
+ * Licensed under the MIT license. See LICENSE file in the project root for full license information.
+ */
+
+package com.microsoft.azure.sdk.iot.service.auth;
+
+import com.microsoft.azure.sdk.iot.service.IotHubConnectionString;
+
+import java.util.Map;
+import java.util.Objects;
+import java.util.WeakHashMap;
+
+/**
+ * Caches the signed {@link IotHubServiceSasToken} of each connection string, so that the service clients that send a
+ * request per call do not decode the shared access key and compute an HMAC for every request. A cached token is reused
+ * until the configured fraction of its lifetime has elapsed, and is then renewed by the first caller that needs it.
+ * Tokens are cached per connection string object and are dropped once that object is no longer referenced.
+ */
+public final class IotHubServiceSasTokenCache
+{
+    private static final double DEFAULT_RENEWAL_FRACTION = 0.5;
+
+    private static final Map<IotHubConnectionString, CachedToken> cachedTokens = new WeakHashMap<>();
+    private static volatile double renewalFraction = DEFAULT_RENEWAL_FRACTION;
+
+    private IotHubServiceSasTokenCache()
+    {
+    }
+
+    /**
+     * Returns a SAS token for the provided connection string, signing a new one only if there is no cached token yet,
+     * the cached one has lived past the renewal fraction of its lifetime, or the keys of the connection string changed.
+     *
+     * @param iotHubConnectionString the connection string to get a token for.
+     * @return the string representation of the SAS token.
+     * @throws IllegalArgumentException if the provided connection string is null.
+     */
+    public static String getToken(IotHubConnectionString iotHubConnectionString) throws IllegalArgumentException
+    {
+        if (iotHubConnectionString == null)
+        {
+            // Codes_SRS_SERVICE_SDK_JAVA_IOTHUBSERVICESASTOKENCACHE_34_001: [If the provided connection string is null, this function shall throw an IllegalArgumentException.]
+            throw new IllegalArgumentException("iotHubConnectionString cannot be null");
+        }
+
+        CachedToken cachedToken;
+        synchronized (cachedTokens)
+        {
+            cachedToken = cachedTokens.get(iotHubConnectionString);
+            if (cachedToken == null)
+            {
+                cachedToken = new CachedToken();
+                cachedTokens.put(iotHubConnectionString, cachedToken);
+            }
+        }
+
+        return cachedToken.get(iotHubConnectionString);
+    }
+
+    /**
+     * Sets the fraction of their lifetime after which cached tokens are renewed. Defaults to 0.5.
+     *
+     * @param fraction the fraction, greater than 0 and at most 1.
+     * @throws IllegalArgumentException if the fraction is not greater than 0 and at most 1.
+     */
+    public static void setRenewalFraction(double fraction) throws IllegalArgumentException
+    {
+        if (!(fraction > 0 && fraction <= 1))
+        {
+            // Codes_SRS_SERVICE_SDK_JAVA_IOTHUBSERVICESASTOKENCACHE_34_004: [If the provided fraction is not greater than 0 and at most 1, this function shall throw an IllegalArgumentException.]
+            throw new IllegalArgumentException("fraction must be greater than 0 and at most 1");
+        }
+
+        // Codes_SRS_SERVICE_SDK_JAVA_IOTHUBSERVICESASTOKENCACHE_34_005: [This function shall save the provided fraction for the tokens signed from then on.]
+        renewalFraction = fraction;
+    }
+
+    /**
+     * The token of one connection string. Its signed state is replaced as a whole, so readers never see a token
+     * with the renewal time of another one.
+     */
+    private static final class CachedToken
+    {
+        private volatile SignedToken signedToken;
+
+        private String get(IotHubConnectionString iotHubConnectionString)
+        {
+            SignedToken current = this.signedToken;
+            if (current == null || current.needsRenewal(iotHubConnectionString, System.currentTimeMillis()))
+            {
+                synchronized (this)
+                {
+                    // Another caller may have renewed the token while this one waited for the lock
+                    current = this.signedToken;
+                    long now = System.currentTimeMillis();
+                    if (current == null || current.needsRenewal(iotHubConnectionString, now))
+                    {
+                        // Codes_SRS_SERVICE_SDK_JAVA_IOTHUBSERVICESASTOKENCACHE_34_003: [If there is no cached token, the renewal fraction of the lifetime of the cached token has elapsed, or the host name, key name or key of the connection string changed, this function shall sign and cache a new IotHubServiceSasToken.]
+                        IotHubServiceSasToken sasToken = new IotHubServiceSasToken(iotHubConnectionString);
+                        long lifetimeMillis = sasToken.expiryTime * 1000 - now;
+                        current = new SignedToken(iotHubConnectionString, sasToken.toString(), now + (long) (lifetimeMillis * renewalFraction));
+                        this.signedToken = current;
+                    }
+                }
+            }
+
+            // Codes_SRS_SERVICE_SDK_JAVA_IOTHUBSERVICESASTOKENCACHE_34_002: [This function shall return the cached token of the provided connection string.]
+            return current.token;
+        }
+    }
+
+    private static final class SignedToken
+    {
+        private final String hostName;
+        private final String sharedAccessKeyName;
+        private final String sharedAccessKey;
+        private final String token;
+        private final long renewAtMillis;
+
+        private SignedToken(IotHubConnectionString iotHubConnectionString, String token, long renewAtMillis)
+        {
+            this.hostName = iotHubConnectionString.getHostName();
+            this.sharedAccessKeyName = iotHubConnectionString.getSharedAccessKeyName();
+            this.sharedAccessKey = iotHubConnectionString.getSharedAccessKey();
+            this.token = token;
+            this.renewAtMillis = renewAtMillis;
+        }
+
+        private boolean needsRenewal(IotHubConnectionString iotHubConnectionString, long nowMillis)
+        {
+            return this.token == null
+                    || nowMillis >= this.renewAtMillis
+                    || !Objects.equals(this.hostName, iotHubConnectionString.getHostName())
+                    || !Objects.equals(this.sharedAccessKeyName, iotHubConnectionString.getSharedAccessKeyName())
+                    || !Objects.equals(this.sharedAccessKey, iotHubConnectionString.getSharedAccessKey());
+        }
+    }
+}
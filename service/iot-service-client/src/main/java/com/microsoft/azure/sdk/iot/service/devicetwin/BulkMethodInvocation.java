@@ -0,0 +1,244 @@
+/*
+ * Copyright (c) Microsoft. All rights reserved.
+ * Licensed under the MIT license. See LICENSE file in the project root for full license information.
+ */
+
+package com.microsoft.azure.sdk.iot.service.devicetwin;
+
+import com.microsoft.azure.sdk.iot.service.exceptions.IotHubException;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A direct method invoked on many devices at once, created by {@link DeviceMethod#invokeAll}.
+ * <p>
+ * The invocations run on a pool of at most {@link BulkMethodOptions#getMaxParallelism()} threads that is owned by this
+ * object and ends with the last invocation. Their results are returned by {@link #next()} in the order the devices
+ * answer, not in the order of the device ids.
+ * </p>
+ */
+public class BulkMethodInvocation
+{
+    private static final AtomicInteger threadCount = new AtomicInteger(0);
+
+    private final DeviceMethod deviceMethod;
+    private final String methodName;
+    private final Object payload;
+    private final Long responseTimeoutInSeconds;
+    private final Long connectTimeoutInSeconds;
+
+    private final int deviceCount;
+    private final BlockingQueue<BulkMethodResult> completedResults = new LinkedBlockingQueue<>();
+    private final ThreadPoolExecutor executor;
+    // Counts the results returned by next, and those that a call to next is waiting for
+    private final AtomicInteger returnedCount = new AtomicInteger(0);
+
+    private final Object statisticsLock = new Object();
+    private final long startNanos;
+    private long lastCompletedNanos;
+    private int succeededCount = 0;
+    private int failedCount = 0;
+    private long minDurationMillis = Long.MAX_VALUE;
+    private long maxDurationMillis = 0;
+    private long totalDurationMillis = 0;
+
+    BulkMethodInvocation(DeviceMethod deviceMethod, List<String> deviceIds, String methodName, Object payload, BulkMethodOptions options)
+    {
+        this.deviceMethod = deviceMethod;
+        this.methodName = methodName;
+        this.payload = payload;
+        this.responseTimeoutInSeconds = options.getResponseTimeoutInSeconds();
+        this.connectTimeoutInSeconds = options.getConnectTimeoutInSeconds();
+        this.deviceCount = deviceIds.size();
+
+        // Codes_SRS_BULKMETHODINVOCATION_34_001: [The constructor shall invoke the method on every provided device on a pool of as many daemon threads as the max parallelism of the options, but no more than there are devices.]
+        int poolSize = Math.min(options.getMaxParallelism(), this.deviceCount);
+        this.executor = new ThreadPoolExecutor(poolSize, poolSize, 0L, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(), runnable ->
+        {
+            Thread thread = new Thread(runnable, "azure-iot-sdk-BulkMethodInvocation-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        this.startNanos = System.nanoTime();
+        this.lastCompletedNanos = this.startNanos;
+        for (String deviceId : deviceIds)
+        {
+            this.executor.execute(new DeviceInvocation(deviceId));
+        }
+
+        // Lets the threads end once the last queued invocation ran
+        this.executor.shutdown();
+    }
+
+    /**
+     * Returns whether there are results that were not returned by {@link #next()} yet.
+     *
+     * @return {@code true} if {@link #next()} has a result to return, possibly after waiting for it.
+     */
+    public boolean hasNext()
+    {
+        // Codes_SRS_BULKMETHODINVOCATION_34_002: [The method shall return true if fewer results than devices were returned by next and false otherwise.]
+        return this.returnedCount.get() < this.deviceCount;
+    }
+
+    /**
+     * Returns the result of the next device to answer, waiting for it if no device answered since the last call.
+     *
+     * @return the result of the invocation on one device.
+     * @throws InterruptedException if the thread was interrupted while waiting.
+     * @throws NoSuchElementException if the results of all the devices were returned already.
+     */
+    public BulkMethodResult next() throws InterruptedException, NoSuchElementException
+    {
+        // Claims a result before waiting for it, so that concurrent callers never wait for more results than there are
+        int claimedCount;
+        do
+        {
+            claimedCount = this.returnedCount.get();
+            if (claimedCount >= this.deviceCount)
+            {
+                // Codes_SRS_BULKMETHODINVOCATION_34_003: [If the results of all the devices were returned already, the method shall throw NoSuchElementException.]
+                throw new NoSuchElementException();
+            }
+        }
+        while (!this.returnedCount.compareAndSet(claimedCount, claimedCount + 1));
+
+        try
+        {
+            // Codes_SRS_BULKMETHODINVOCATION_34_004: [The method shall return the next completed result, waiting for one to complete if there is none.]
+            return this.completedResults.take();
+        }
+        catch (InterruptedException e)
+        {
+            // Codes_SRS_BULKMETHODINVOCATION_34_010: [If the thread is interrupted while waiting, the method shall give the result it claimed back to later calls.]
+            this.returnedCount.decrementAndGet();
+            throw e;
+        }
+    }
+
+    /**
+     * Waits for the invocations on all the devices to complete.
+     *
+     * @param timeoutInMs the maximum time to wait, in milliseconds.
+     * @return {@code true} if all the invocations completed, {@code false} if the timeout elapsed first.
+     * @throws InterruptedException if the thread was interrupted while waiting.
+     */
+    public boolean awaitCompletion(long timeoutInMs) throws InterruptedException
+    {
+        // Codes_SRS_BULKMETHODINVOCATION_34_005: [The method shall wait for the pool to end for at most the provided timeout, and return whether it ended.]
+        return this.executor.awaitTermination(timeoutInMs, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Cancels the invocations that did not start yet. Their results fail with a {@link CancellationException}, while the
+     * invocations in flight are not interrupted and complete normally.
+     */
+    public void cancel()
+    {
+        // Codes_SRS_BULKMETHODINVOCATION_34_006: [The method shall remove the invocations that did not start from the pool without interrupting those in flight, and complete each of them with a CancellationException.]
+        List<Runnable> notStartedInvocations = new ArrayList<>();
+        this.executor.getQueue().drainTo(notStartedInvocations);
+        for (Runnable notStarted : notStartedInvocations)
+        {
+            DeviceInvocation deviceInvocation = (DeviceInvocation) notStarted;
+            complete(new BulkMethodResult(deviceInvocation.deviceId, null, new CancellationException("Bulk method invocation cancelled"), 0));
+        }
+    }
+
+    /**
+     * Returns the aggregate timing of the invocations that completed so far.
+     *
+     * @return a snapshot of the statistics.
+     */
+    public BulkMethodStatistics getStatistics()
+    {
+        synchronized (this.statisticsLock)
+        {
+            // Codes_SRS_BULKMETHODINVOCATION_34_007: [The method shall return the counts and durations of the invocations that completed so far.]
+            boolean anyCompleted = this.succeededCount + this.failedCount > 0;
+            return new BulkMethodStatistics(
+                    this.deviceCount,
+                    this.succeededCount,
+                    this.failedCount,
+                    TimeUnit.NANOSECONDS.toMillis(this.lastCompletedNanos - this.startNanos),
+                    anyCompleted ? this.minDurationMillis : 0,
+                    this.maxDurationMillis,
+                    this.totalDurationMillis);
+        }
+    }
+
+    private void complete(BulkMethodResult result)
+    {
+        synchronized (this.statisticsLock)
+        {
+            if (result.isSuccessful())
+            {
+                this.succeededCount++;
+            }
+            else
+            {
+                this.failedCount++;
+            }
+
+            this.lastCompletedNanos = System.nanoTime();
+            this.minDurationMillis = Math.min(this.minDurationMillis, result.getDurationMillis());
+            this.maxDurationMillis = Math.max(this.maxDurationMillis, result.getDurationMillis());
+            this.totalDurationMillis += result.getDurationMillis();
+        }
+
+        this.completedResults.add(result);
+    }
+
+    private final class DeviceInvocation implements Runnable
+    {
+        private final String deviceId;
+
+        private DeviceInvocation(String deviceId)
+        {
+            this.deviceId = deviceId;
+        }
+
+        @Override
+        public void run()
+        {
+            long invocationStartNanos = System.nanoTime();
+            MethodResult methodResult = null;
+            Exception exception = null;
+            Error error = null;
+            try
+            {
+                // Codes_SRS_BULKMETHODINVOCATION_34_008: [Each invocation shall call invoke on the DeviceMethod with the device id, method name, timeouts and payload.]
+                methodResult = deviceMethod.invoke(this.deviceId, methodName, responseTimeoutInSeconds, connectTimeoutInSeconds, payload);
+            }
+            catch (IotHubException | IOException | RuntimeException e)
+            {
+                // Codes_SRS_BULKMETHODINVOCATION_34_009: [If the invocation throws, its result shall hold the exception instead of a method result.]
+                exception = e;
+            }
+            catch (Error e)
+            {
+                // Codes_SRS_BULKMETHODINVOCATION_34_011: [If the invocation throws an Error, its result shall hold an ExecutionException caused by it, and the Error shall be rethrown once the result is completed.]
+                exception = new ExecutionException(e);
+                error = e;
+            }
+
+            long durationMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - invocationStartNanos);
+            complete(new BulkMethodResult(this.deviceId, methodResult, exception, durationMillis));
+            if (error != null)
+            {
+                throw error;
+            }
+        }
+    }
+}
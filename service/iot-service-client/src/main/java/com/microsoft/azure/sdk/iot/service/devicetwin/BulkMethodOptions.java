@@ -0,0 +1,122 @@
+/*
+ * Copyright (c) Microsoft. All rights reserved.
+ * Licensed under the MIT license. See LICENSE file in the project root for full license information.
+ */
+
+package com.microsoft.azure.sdk.iot.service.devicetwin;
+
+/**
+ * Options of a direct method invoked on many devices through {@link DeviceMethod#invokeAll}.
+ * <p>
+ * The invocations share the keep-alive HTTPS connections that the JVM pools per host. The JVM keeps at most
+ * {@code http.maxConnections} (5 by default) idle connections per host, so set that system property to at least the
+ * max parallelism to reuse every connection instead of opening a new one for the invocations above that number.
+ * </p>
+ */
+public class BulkMethodOptions
+{
+    private static final int DEFAULT_MAX_PARALLELISM = 16;
+
+    private Long responseTimeoutInSeconds;
+    private Long connectTimeoutInSeconds;
+    private int maxParallelism;
+
+    /**
+     * Constructor for the default BulkMethodOptions object. No timeouts are set, so the defaults of
+     * {@link DeviceMethod#invoke(String, String, Long, Long, Object)} apply, and at most 16 invocations run at a time.
+     */
+    public BulkMethodOptions()
+    {
+        //Codes_SRS_BULKMETHODOPTIONS_34_001: [This constructor shall initialize a BulkMethodOptions object with no timeouts and a max parallelism of 16.]
+        this.responseTimeoutInSeconds = null;
+        this.connectTimeoutInSeconds = null;
+        this.maxParallelism = DEFAULT_MAX_PARALLELISM;
+    }
+
+    /**
+     * Getter for ResponseTimeoutInSeconds
+     *
+     * @return The value of ResponseTimeoutInSeconds, or {@code null} if the default is used
+     */
+    public Long getResponseTimeoutInSeconds()
+    {
+        //Codes_SRS_BULKMETHODOPTIONS_34_002: [This function shall return the saved response timeout.]
+        return this.responseTimeoutInSeconds;
+    }
+
+    /**
+     * Setter for ResponseTimeoutInSeconds
+     *
+     * @param responseTimeoutInSeconds the maximum time to wait for each device to answer, or {@code null} for the default
+     * @throws IllegalArgumentException if responseTimeoutInSeconds is negative
+     */
+    public void setResponseTimeoutInSeconds(Long responseTimeoutInSeconds) throws IllegalArgumentException
+    {
+        //Codes_SRS_BULKMETHODOPTIONS_34_003: [If the provided timeout is negative, an IllegalArgumentException shall be thrown.]
+        if (responseTimeoutInSeconds != null && responseTimeoutInSeconds < 0)
+        {
+            throw new IllegalArgumentException("responseTimeoutInSeconds cannot be negative");
+        }
+
+        //Codes_SRS_BULKMETHODOPTIONS_34_004: [This function shall save the provided response timeout.]
+        this.responseTimeoutInSeconds = responseTimeoutInSeconds;
+    }
+
+    /**
+     * Getter for ConnectTimeoutInSeconds
+     *
+     * @return The value of ConnectTimeoutInSeconds, or {@code null} if the default is used
+     */
+    public Long getConnectTimeoutInSeconds()
+    {
+        //Codes_SRS_BULKMETHODOPTIONS_34_005: [This function shall return the saved connect timeout.]
+        return this.connectTimeoutInSeconds;
+    }
+
+    /**
+     * Setter for ConnectTimeoutInSeconds
+     *
+     * @param connectTimeoutInSeconds the maximum time to wait for each device to be connected, or {@code null} for the default
+     * @throws IllegalArgumentException if connectTimeoutInSeconds is negative
+     */
+    public void setConnectTimeoutInSeconds(Long connectTimeoutInSeconds) throws IllegalArgumentException
+    {
+        //Codes_SRS_BULKMETHODOPTIONS_34_006: [If the provided timeout is negative, an IllegalArgumentException shall be thrown.]
+        if (connectTimeoutInSeconds != null && connectTimeoutInSeconds < 0)
+        {
+            throw new IllegalArgumentException("connectTimeoutInSeconds cannot be negative");
+        }
+
+        //Codes_SRS_BULKMETHODOPTIONS_34_007: [This function shall save the provided connect timeout.]
+        this.connectTimeoutInSeconds = connectTimeoutInSeconds;
+    }
+
+    /**
+     * Getter for MaxParallelism
+     *
+     * @return The maximum number of invocations in flight at a time
+     */
+    public int getMaxParallelism()
+    {
+        //Codes_SRS_BULKMETHODOPTIONS_34_008: [This function shall return the saved max parallelism.]
+        return this.maxParallelism;
+    }
+
+    /**
+     * Setter for MaxParallelism
+     *
+     * @param maxParallelism the maximum number of invocations in flight at a time
+     * @throws IllegalArgumentException if maxParallelism is less than 1
+     */
+    public void setMaxParallelism(int maxParallelism) throws IllegalArgumentException
+    {
+        //Codes_SRS_BULKMETHODOPTIONS_34_009: [If the provided max parallelism is less than 1, an IllegalArgumentException shall be thrown.]
+        if (maxParallelism < 1)
+        {
+            throw new IllegalArgumentException("maxParallelism must be at least 1");
+        }
+
+        //Codes_SRS_BULKMETHODOPTIONS_34_010: [This function shall save the provided max parallelism.]
+        this.maxParallelism = maxParallelism;
+    }
+}
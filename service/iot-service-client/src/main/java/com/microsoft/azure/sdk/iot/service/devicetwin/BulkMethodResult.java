@@ -0,0 +1,71 @@
+/*
+ * Copyright (c) Microsoft. All rights reserved.
+ * Licensed under the MIT license. See LICENSE file in the project root for full license information.
+ */
+
+package com.microsoft.azure.sdk.iot.service.devicetwin;
+
+/**
+ * Store the outcome of a direct method invoked on one of the devices of a {@link BulkMethodInvocation}.
+ */
+public final class BulkMethodResult
+{
+    private final String deviceId;
+    private final MethodResult methodResult;
+    private final Exception exception;
+    private final long durationMillis;
+
+    BulkMethodResult(String deviceId, MethodResult methodResult, Exception exception, long durationMillis)
+    {
+        /* Codes_SRS_BULKMETHODRESULT_34_001: [The constructor shall save the device id, method result, exception and duration.] */
+        this.deviceId = deviceId;
+        this.methodResult = methodResult;
+        this.exception = exception;
+        this.durationMillis = durationMillis;
+    }
+
+    /**
+     * @return the id of the device the method was invoked on.
+     */
+    public String getDeviceId()
+    {
+        /* Codes_SRS_BULKMETHODRESULT_34_002: [The getDeviceId shall return the device id stored by the constructor.] */
+        return this.deviceId;
+    }
+
+    /**
+     * @return the status and payload the device answered with, or {@code null} if the invocation failed.
+     */
+    public MethodResult getMethodResult()
+    {
+        /* Codes_SRS_BULKMETHODRESULT_34_003: [The getMethodResult shall return the method result stored by the constructor.] */
+        return this.methodResult;
+    }
+
+    /**
+     * @return the exception the invocation failed with, or {@code null} if it succeeded.
+     */
+    public Exception getException()
+    {
+        /* Codes_SRS_BULKMETHODRESULT_34_004: [The getException shall return the exception stored by the constructor.] */
+        return this.exception;
+    }
+
+    /**
+     * @return the time the invocation took, in milliseconds.
+     */
+    public long getDurationMillis()
+    {
+        /* Codes_SRS_BULKMETHODRESULT_34_005: [The getDurationMillis shall return the duration stored by the constructor.] */
+        return this.durationMillis;
+    }
+
+    /**
+     * @return {@code true} if the device answered, whatever the status of its answer.
+     */
+    public boolean isSuccessful()
+    {
+        /* Codes_SRS_BULKMETHODRESULT_34_006: [The isSuccessful shall return true if no exception is stored.] */
+        return this.exception == null;
+    }
+}
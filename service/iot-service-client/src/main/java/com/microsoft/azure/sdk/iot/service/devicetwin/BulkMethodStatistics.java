@@ -0,0 +1,100 @@
+/*
+ * Copyright (c) Microsoft. All rights reserved.
+ * Licensed under the MIT license. See LICENSE file in the project root for full license information.
+ */
+
+package com.microsoft.azure.sdk.iot.service.devicetwin;
+
+/**
+ * Aggregate timing of the invocations of a {@link BulkMethodInvocation} that completed when the statistics were taken.
+ */
+public final class BulkMethodStatistics
+{
+    private final int deviceCount;
+    private final int succeededCount;
+    private final int failedCount;
+    private final long elapsedMillis;
+    private final long minDurationMillis;
+    private final long maxDurationMillis;
+    private final long totalDurationMillis;
+
+    BulkMethodStatistics(int deviceCount, int succeededCount, int failedCount, long elapsedMillis,
+                         long minDurationMillis, long maxDurationMillis, long totalDurationMillis)
+    {
+        /* Codes_SRS_BULKMETHODSTATISTICS_34_001: [The constructor shall save the provided counts and durations.] */
+        this.deviceCount = deviceCount;
+        this.succeededCount = succeededCount;
+        this.failedCount = failedCount;
+        this.elapsedMillis = elapsedMillis;
+        this.minDurationMillis = minDurationMillis;
+        this.maxDurationMillis = maxDurationMillis;
+        this.totalDurationMillis = totalDurationMillis;
+    }
+
+    /**
+     * @return the number of devices the method is invoked on.
+     */
+    public int getDeviceCount()
+    {
+        return this.deviceCount;
+    }
+
+    /**
+     * @return the number of invocations that completed so far.
+     */
+    public int getCompletedCount()
+    {
+        /* Codes_SRS_BULKMETHODSTATISTICS_34_002: [The getCompletedCount shall return the sum of the succeeded and failed counts.] */
+        return this.succeededCount + this.failedCount;
+    }
+
+    /**
+     * @return the number of devices that answered.
+     */
+    public int getSucceededCount()
+    {
+        return this.succeededCount;
+    }
+
+    /**
+     * @return the number of invocations that failed.
+     */
+    public int getFailedCount()
+    {
+        return this.failedCount;
+    }
+
+    /**
+     * @return the time from the start of the bulk invocation until its last completed invocation, in milliseconds.
+     */
+    public long getElapsedMillis()
+    {
+        return this.elapsedMillis;
+    }
+
+    /**
+     * @return the shortest completed invocation, in milliseconds, or 0 if none completed.
+     */
+    public long getMinDurationMillis()
+    {
+        return this.minDurationMillis;
+    }
+
+    /**
+     * @return the longest completed invocation, in milliseconds, or 0 if none completed.
+     */
+    public long getMaxDurationMillis()
+    {
+        return this.maxDurationMillis;
+    }
+
+    /**
+     * @return the average completed invocation, in milliseconds, or 0 if none completed.
+     */
+    public double getAverageDurationMillis()
+    {
+        /* Codes_SRS_BULKMETHODSTATISTICS_34_003: [The getAverageDurationMillis shall return the total duration divided by the completed count, or 0 if no invocation completed.] */
+        int completedCount = getCompletedCount();
+        return completedCount == 0 ? 0 : (double) this.totalDurationMillis / completedCount;
+    }
+}
@@ -13,7 +13,11 @@ import com.microsoft.azure.sdk.iot.service.transport.http.HttpResponse;
 import java.io.IOException;
 import java.net.URL;
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Date;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * DeviceMethod enables service client to directly invoke methods on various devices from service client.
@@ -21,7 +25,7 @@ import java.util.Date;
 public class DeviceMethod
 {
     private IotHubConnectionString iotHubConnectionString = null;
-    private Integer requestId = 0;
+    private final AtomicInteger requestId = new AtomicInteger(0);
     private static final int DEFAULT_RESPONSE_TIMEOUT = 30; // default response timeout is 30 seconds
     private static final int DEFAULT_CONNECT_TIMEOUT = 0;
     private static final int THOUSAND_MS = 1000;
@@ -61,7 +65,7 @@ public class DeviceMethod
      * @throws IotHubException This exception is thrown if the response verification failed
      * @throws IOException This exception is thrown if the IO operation failed
      */
-    public synchronized MethodResult invoke(String deviceId, String methodName, Long responseTimeoutInSeconds, Long connectTimeoutInSeconds, Object payload) throws IotHubException, IOException
+    public MethodResult invoke(String deviceId, String methodName, Long responseTimeoutInSeconds, Long connectTimeoutInSeconds, Object payload) throws IotHubException, IOException
     {
         /* Codes_SRS_DEVICEMETHOD_21_004: [The invoke shall throw IllegalArgumentException if the provided deviceId is null or empty.] */
         if((deviceId == null) || deviceId.isEmpty())
@@ -94,7 +98,7 @@ public class DeviceMethod
      * @throws IotHubException This exception is thrown if the response verification failed
      * @throws IOException This exception is thrown if the IO operation failed
      */
-    public synchronized MethodResult invoke(String deviceId, String moduleId, String methodName, Long responseTimeoutInSeconds, Long connectTimeoutInSeconds, Object payload) throws IotHubException, IOException
+    public MethodResult invoke(String deviceId, String moduleId, String methodName, Long responseTimeoutInSeconds, Long connectTimeoutInSeconds, Object payload) throws IotHubException, IOException
     {
         /* Codes_SRS_DEVICEMETHOD_28_001: [The invoke shall throw IllegalArgumentException if the provided deviceId is null or empty.] */
         if((deviceId == null) || deviceId.isEmpty())
@@ -132,7 +136,7 @@ public class DeviceMethod
      * @throws IotHubException This exception is thrown if the response verification failed
      * @throws IOException This exception is thrown if the IO operation failed
      */
-    private synchronized MethodResult invokeMethod(URL url, String methodName, Long responseTimeoutInSeconds, Long connectTimeoutInSeconds, Object payload) throws IotHubException, IOException
+    private MethodResult invokeMethod(URL url, String methodName, Long responseTimeoutInSeconds, Long connectTimeoutInSeconds, Object payload) throws IotHubException, IOException
     {
         /* Codes_SRS_DEVICEMETHOD_21_006: [The invoke shall throw IllegalArgumentException if the provided responseTimeoutInSeconds is negative.] */
         /* Codes_SRS_DEVICEMETHOD_21_007: [The invoke shall throw IllegalArgumentException if the provided connectTimeoutInSeconds is negative.] */
@@ -172,7 +176,7 @@ public class DeviceMethod
                
         /* Codes_SRS_DEVICEMETHOD_21_009: [The invoke shall send the created request and get the response using the HttpRequester.] */
         /* Codes_SRS_DEVICEMETHOD_21_010: [The invoke shall create a new HttpRequest with http method as `POST`.] */
-        HttpResponse response = DeviceOperations.request(this.iotHubConnectionString, url, HttpMethod.POST, json.getBytes(StandardCharsets.UTF_8), String.valueOf(requestId++), timeoutInMs);
+        HttpResponse response = DeviceOperations.request(this.iotHubConnectionString, url, HttpMethod.POST, json.getBytes(StandardCharsets.UTF_8), String.valueOf(requestId.getAndIncrement()), timeoutInMs);
 
         /* Codes_SRS_DEVICEMETHOD_21_013: [The invoke shall deserialize the payload using the `serializer.MethodParser`.] */
         MethodParser methodParserResponse = new MethodParser();
@@ -182,6 +186,50 @@ public class DeviceMethod
         return new MethodResult(methodParserResponse.getStatus(), methodParserResponse.getPayload());
     }
 
+    /**
+     * Directly invokes a method on many devices at once, running at most the max parallelism of the options at a time.
+     * The results can be read from the returned object as each device answers.
+     *
+     * @param deviceIds is the list of devices the method shall be invoked on.
+     * @param methodName is the name of the method that shall be invoked on the devices.
+     * @param payload is the the method parameter. It can be {@code null}.
+     * @param options are the timeouts and max parallelism of the invocations. It can be {@code null} for the defaults.
+     * @return the invocation, which returns the result of each device as it completes.
+     * @throws IllegalArgumentException if the list of devices is null or empty or contains a null or empty device id, or if the method name is null or empty.
+     */
+    public BulkMethodInvocation invokeAll(Collection<String> deviceIds, String methodName, Object payload, BulkMethodOptions options) throws IllegalArgumentException
+    {
+        /* Codes_SRS_DEVICEMETHOD_34_024: [The invokeAll shall throw IllegalArgumentException if the provided deviceIds is null or empty, or contains a null or empty device id.] */
+        if ((deviceIds == null) || deviceIds.isEmpty())
+        {
+            throw new IllegalArgumentException("deviceIds cannot be null or empty");
+        }
+
+        List<String> deviceIdList = new ArrayList<>(deviceIds);
+        for (String deviceId : deviceIdList)
+        {
+            if ((deviceId == null) || deviceId.isEmpty())
+            {
+                throw new IllegalArgumentException("deviceIds cannot contain a null or empty device id");
+            }
+        }
+
+        /* Codes_SRS_DEVICEMETHOD_34_025: [The invokeAll shall throw IllegalArgumentException if the provided methodName is null or empty.] */
+        if ((methodName == null) || methodName.isEmpty())
+        {
+            throw new IllegalArgumentException("methodName cannot be null or empty");
+        }
+
+        /* Codes_SRS_DEVICEMETHOD_34_026: [If the provided options are null, the invokeAll shall use the default BulkMethodOptions.] */
+        if (options == null)
+        {
+            options = new BulkMethodOptions();
+        }
+
+        /* Codes_SRS_DEVICEMETHOD_34_027: [The invokeAll shall create and return a BulkMethodInvocation that invokes the method on a copy of the provided device ids.] */
+        return new BulkMethodInvocation(this, deviceIdList, methodName, payload, options);
+    }
+
     /**
      * Creates a new Job to invoke method on one or multiple devices
      *
@@ -155,7 +155,7 @@ public class Query
      * @throws IOException If any of the input parameters are not valid
      * @throws IotHubException If HTTP response other then status ok is received
      */
-    public QueryResponse sendQueryRequest(IotHubConnectionString iotHubConnectionString,
+    public synchronized QueryResponse sendQueryRequest(IotHubConnectionString iotHubConnectionString,
                                    URL url,
                                    HttpMethod method,
                                    Long timeoutInMs) throws IOException, IotHubException
@@ -249,7 +249,7 @@ public class Query
      * @throws IOException if sending the request is unsuccessful because of input parameters
      * @throws IotHubException if sending the request is unsuccessful at the Hub
      */
-    public boolean hasNext() throws IOException, IotHubException
+    public synchronized boolean hasNext() throws IOException, IotHubException
     {
         //Codes_SRS_QUERY_25_015: [The method shall return true if next element from QueryResponse is available and false otherwise.]
         boolean isNextAvailable = this.queryResponse.hasNext();
@@ -273,7 +273,7 @@ public class Query
      * @throws IotHubException if sending the request is unsuccessful at the Hub
      * @throws NoSuchElementException if no further elements are available
      */
-    public Object next() throws IOException, IotHubException, NoSuchElementException
+    public synchronized Object next() throws IOException, IotHubException, NoSuchElementException
     {
         //Codes_SRS_QUERY_25_016: [The method shall return the next element for this QueryResponse.]
        if (this.hasNext())
@@ -163,7 +163,7 @@ public class QueryCollection
      *
      * @return true if there is another page to return in the query and false otherwise
      */
-    protected boolean hasNext()
+    protected synchronized boolean hasNext()
     {
         if (this.isInitialQuery)
         {
@@ -201,7 +201,7 @@ public class QueryCollection
      * @throws IOException If an IOException occurs when calling the Service API, or if the results of that call are unexpected
      * @throws IotHubException If an IotHubException occurs when calling the Service API
      */
-    protected QueryCollectionResponse<String> next(QueryOptions options) throws IOException, IotHubException
+    protected synchronized QueryCollectionResponse<String> next(QueryOptions options) throws IOException, IotHubException
     {
         if (this.hasNext())
         {
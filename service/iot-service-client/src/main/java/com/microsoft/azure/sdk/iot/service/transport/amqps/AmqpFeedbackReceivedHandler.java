@@ -6,6 +6,7 @@
 package com.microsoft.azure.sdk.iot.service.transport.amqps;
 
 import com.microsoft.azure.sdk.iot.deps.auth.IotHubSSLContext;
+import com.microsoft.azure.sdk.iot.deps.auth.IotHubSSLContextCache;
 import com.microsoft.azure.sdk.iot.deps.ws.impl.WebSocketImpl;
 import com.microsoft.azure.sdk.iot.service.IotHubServiceClientProtocol;
 import com.microsoft.azure.sdk.iot.service.transport.TransportUtils;
@@ -49,6 +50,7 @@ public class AmqpFeedbackReceivedHandler extends BaseHandler
     private AmqpFeedbackReceivedEvent amqpFeedbackReceivedEvent;
 
     private Exception savedException;
+    private IotHubSSLContext iotHubSSLContext;
     private boolean connectionWasOpened = false;
 
     /**
@@ -162,7 +164,13 @@ public class AmqpFeedbackReceivedHandler extends BaseHandler
             try
             {
                 // Need the base trusted certs for IotHub in our ssl context. IotHubSSLContext handles that
-                domain.setSslContext(new IotHubSSLContext().getSSLContext());
+                // Codes_SRS_SERVICE_SDK_JAVA_AMQPFEEDBACKRECEIVEDHANDLER_34_020: [The event handler shall use the shared default ssl context, acquiring it from the cache the first time it is needed.]
+                if (this.iotHubSSLContext == null)
+                {
+                    this.iotHubSSLContext = IotHubSSLContextCache.acquire(null, false);
+                }
+
+                domain.setSslContext(this.iotHubSSLContext.getSSLContext());
             }
             catch (Exception e)
             {
@@ -173,6 +181,17 @@ public class AmqpFeedbackReceivedHandler extends BaseHandler
         }
     }
 
+    @Override
+    public void onConnectionUnbound(Event event)
+    {
+        if (this.iotHubSSLContext != null)
+        {
+            // Codes_SRS_SERVICE_SDK_JAVA_AMQPFEEDBACKRECEIVEDHANDLER_34_021: [The event handler shall release the shared ssl context once the connection is unbound from its transport.]
+            IotHubSSLContextCache.release(this.iotHubSSLContext);
+            this.iotHubSSLContext = null;
+        }
+    }
+
     @Override
     public void onConnectionInit(Event event)
     {
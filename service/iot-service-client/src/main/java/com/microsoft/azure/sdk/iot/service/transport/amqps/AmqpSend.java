@@ -12,24 +12,40 @@ import com.microsoft.azure.sdk.iot.service.exceptions.IotHubException;
 import org.apache.qpid.proton.Proton;
 import org.apache.qpid.proton.engine.BaseHandler;
 import org.apache.qpid.proton.engine.Event;
+import org.apache.qpid.proton.engine.HandlerException;
 import org.apache.qpid.proton.reactor.Reactor;
 
 import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Instance of the QPID-Proton-J BaseHandler class
  * overriding the events what are needed to handle
  * high level open, close and send methods.
  * Initialize and use AmqpsSendHandler class for low level ampqs operations.
+ * The Proton reactor and its connection are kept alive between sends on a dedicated
+ * thread, and are restarted by the next send if the connection is lost.
  */
 public class AmqpSend extends BaseHandler
 {
+    private static final int REACTOR_TIMEOUT = 3141; // reactor timeout in milliseconds
+    private static final int MAX_WAIT_TO_TERMINATE_EXECUTOR = 30; // seconds
+
     protected final String hostName;
     protected final String userName;
     protected final String sasToken;
     protected Reactor reactor = null;
     protected AmqpSendHandler amqpSendHandler;
     protected IotHubServiceClientProtocol iotHubServiceClientProtocol;
+    private final int maxInFlightMessages;
+
+    private final Object reactorLock = new Object();
+    private boolean isReactorRunning = false;
+    private ExecutorService executorService;
 
     /**
      * Constructor to set up connection parameters
@@ -39,6 +55,20 @@ public class AmqpSend extends BaseHandler
      * @param iotHubServiceClientProtocol protocol to use
      */
     public AmqpSend(String hostName, String userName, String sasToken, IotHubServiceClientProtocol iotHubServiceClientProtocol)
+    {
+        this(hostName, userName, sasToken, iotHubServiceClientProtocol, AmqpSendHandler.DEFAULT_MAX_IN_FLIGHT_MESSAGES);
+    }
+
+    /**
+     * Constructor to set up connection parameters
+     * @param hostName The address string of the service (example: AAA.BBB.CCC)
+     * @param userName The username string to use SASL authentication (example: user@sas.service)
+     * @param sasToken The SAS token string
+     * @param iotHubServiceClientProtocol protocol to use
+     * @param maxInFlightMessages The maximum number of messages sent and not yet acknowledged by the service.
+     * Messages beyond that stay queued until earlier ones are acknowledged.
+     */
+    public AmqpSend(String hostName, String userName, String sasToken, IotHubServiceClientProtocol iotHubServiceClientProtocol, int maxInFlightMessages)
     {
         // Codes_SRS_SERVICE_SDK_JAVA_AMQPSEND_12_001: [The constructor shall throw IllegalArgumentException if any of the input parameter is null or empty]
         if (Tools.isNullOrEmpty(hostName))
@@ -59,11 +89,17 @@ public class AmqpSend extends BaseHandler
             throw new IllegalArgumentException("iotHubServiceClientProtocol cannot be null");
         }
 
+        if (maxInFlightMessages < 1)
+        {
+            throw new IllegalArgumentException("maxInFlightMessages must be greater than zero");
+        }
+
         // Codes_SRS_SERVICE_SDK_JAVA_AMQPSEND_12_002: [The constructor shall copy all input parameters to private member variables for event processing]
         this.hostName = hostName;
         this.userName = userName;
         this.sasToken = sasToken;
         this.iotHubServiceClientProtocol = iotHubServiceClientProtocol;
+        this.maxInFlightMessages = maxInFlightMessages;
     }
 
     /**
@@ -83,63 +119,231 @@ public class AmqpSend extends BaseHandler
         event.getReactor().connection(amqpSendHandler);
     }
 
+    /**
+     * Event handler for the reactor quiesced event. Messages queued by other threads
+     * are handed to the sender link here, on the reactor thread.
+     * @param event The proton event object
+     */
+    @Override
+    public void onReactorQuiesced(Event event)
+    {
+        // Codes_SRS_SERVICE_SDK_JAVA_AMQPSEND_34_006: [The event handler shall send the queued messages through the member AmqpsSendHandler object]
+        AmqpSendHandler handler = this.amqpSendHandler;
+        if (handler != null)
+        {
+            handler.sendQueuedMessages();
+        }
+    }
+
     /**
      * Create AmqpsSendHandler and store it in a member variable
      */
     public void open()
     {
         // Codes_SRS_SERVICE_SDK_JAVA_AMQPSEND_12_004: [The function shall create an AmqpsSendHandler object to handle reactor events]
-        amqpSendHandler = new AmqpSendHandler(this.hostName, this.userName, this.sasToken, this.iotHubServiceClientProtocol);
+        amqpSendHandler = new AmqpSendHandler(this.hostName, this.userName, this.sasToken, this.iotHubServiceClientProtocol, this.maxInFlightMessages);
     }
 
     /**
-     * Invalidate AmqpsSendHandler member variable
+     * Close the connection if there is one and invalidate AmqpsSendHandler member variable.
+     * Messages which have not been acknowledged yet are failed.
      */
     public void close()
     {
+        synchronized (this.reactorLock)
+        {
+            if (this.amqpSendHandler != null && this.isReactorRunning)
+            {
+                // Codes_SRS_SERVICE_SDK_JAVA_AMQPSEND_34_007: [The function shall ask the member AmqpsSendHandler object to close the connection and wake up the reactor]
+                this.amqpSendHandler.requestClose();
+                this.reactor.wakeup();
+            }
+        }
+
+        if (this.executorService != null)
+        {
+            // Codes_SRS_SERVICE_SDK_JAVA_AMQPSEND_34_008: [The function shall wait for the reactor thread to finish]
+            this.executorService.shutdown();
+            try
+            {
+                if (!this.executorService.awaitTermination(MAX_WAIT_TO_TERMINATE_EXECUTOR, TimeUnit.SECONDS))
+                {
+                    this.executorService.shutdownNow();
+                }
+            }
+            catch (InterruptedException e)
+            {
+                this.executorService.shutdownNow();
+                Thread.currentThread().interrupt();
+            }
+            this.executorService = null;
+        }
+
         // Codes_SRS_SERVICE_SDK_JAVA_AMQPSEND_12_005: [The function shall invalidate the member AmqpsSendHandler object]
         amqpSendHandler = null;
     }
 
     /**
-     * Create binary message
-     * Initialize and start Proton reactor
-     * Send the created message
+     * Create binary message and queue it on the persistent connection, starting
+     * the Proton reactor if it is not running.
+     * Multiple callers may have sends in progress at the same time.
      * @param deviceId The device name string
      * @param moduleId The module name string
      * @param message The message to be sent
+     * @return The future which completes when the service acknowledges the message,
+     * or completes exceptionally with an IotHubException if the service rejects it
+     * or an IOException if the connection fails. The future is completed on the reactor
+     * thread, so dependent actions should not block.
      * @throws IOException This exception is thrown if the AmqpSend object is not initialized
+     */
+    public CompletableFuture<Void> sendAsync(String deviceId, String moduleId, Message message) throws IOException
+    {
+        synchronized (this.reactorLock)
+        {
+            AmqpSendHandler handler = this.amqpSendHandler;
+            if (handler == null)
+            {
+                // Codes_SRS_SERVICE_SDK_JAVA_AMQPSEND_28_005: [The function shall throw IOException if the send handler object is not initialized]
+                throw new IOException("send handler is not initialized. call open before send");
+            }
+
+            CompletableFuture<Void> deliveryFuture;
+            if (moduleId == null)
+            {
+                // Codes_SRS_SERVICE_SDK_JAVA_AMQPSEND_28_006: [The function shall create a binary message with the given content with deviceId only if moduleId is null]
+                deliveryFuture = handler.createProtonMessage(deviceId, message);
+            }
+            else
+            {
+                // Codes_SRS_SERVICE_SDK_JAVA_AMQPSEND_28_001: [The function shall create a binary message with the given content with moduleId]
+                deliveryFuture = handler.createProtonMessage(deviceId, moduleId, message);
+            }
+
+            if (this.isReactorRunning)
+            {
+                // Codes_SRS_SERVICE_SDK_JAVA_AMQPSEND_34_009: [If the Proton reactor is already running, the function shall wake it up so that the message is sent]
+                this.reactor.wakeup();
+            }
+            else
+            {
+                this.startReactor(handler);
+            }
+
+            return deliveryFuture;
+        }
+    }
+
+    /**
+     * Create binary message
+     * Send the created message over the persistent connection and wait for its acknowledgement
+     * @param deviceId The device name string
+     * @param moduleId The module name string
+     * @param message The message to be sent
+     * @throws IOException This exception is thrown if the AmqpSend object is not initialized or the connection fails
      * @throws IotHubException If IotHub rejects the message for any reason
      */
     public void send(String deviceId, String moduleId, Message message) throws IOException, IotHubException
     {
-        synchronized(this)
+        CompletableFuture<Void> deliveryFuture = this.sendAsync(deviceId, moduleId, message);
+
+        try
+        {
+            // Codes_SRS_SERVICE_SDK_JAVA_AMQPSEND_28_004: [** The function shall wait for the delivery of the sent message and throw the exception it completed with, if any **]**
+            deliveryFuture.get();
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for the message to be acknowledged", e);
+        }
+        catch (ExecutionException e)
         {
-            if  (amqpSendHandler != null)
+            Throwable cause = e.getCause();
+            if (cause instanceof IotHubException)
             {
-                if (moduleId == null)
-                {
-                    // Codes_SRS_SERVICE_SDK_JAVA_AMQPSEND_28_006: [The function shall create a binary message with the given content with deviceId only if moduleId is null]
-                    amqpSendHandler.createProtonMessage(deviceId, message);
-                }
-                else
-                {
-                    // Codes_SRS_SERVICE_SDK_JAVA_AMQPSEND_28_001: [The function shall create a binary message with the given content with moduleId]
-                    amqpSendHandler.createProtonMessage(deviceId, moduleId, message);
-                }
-                // Codes_SRS_SERVICE_SDK_JAVA_AMQPSEND_28_002: [The function shall initialize the Proton reactor object]
-                this.reactor = Proton.reactor(this);
-                // Codes_SRS_SERVICE_SDK_JAVA_AMQPSEND_28_003: [The function shall start the Proton reactor object]
-                this.reactor.run();
-                this.reactor.free();
-                // Codes_SRS_SERVICE_SDK_JAVA_AMQPSEND_28_004: [** The function shall call sendComplete to identify the status of sent message and throws exception if thrown by sendComplete **]**
-                amqpSendHandler.sendComplete();
+                throw (IotHubException) cause;
             }
-            else
+            if (cause instanceof IOException)
             {
-                // Codes_SRS_SERVICE_SDK_JAVA_AMQPSEND_28_005: [The function shall throw IOException if the send handler object is not initialized]
-                throw new IOException("send handler is not initialized. call open before send");
+                throw (IOException) cause;
             }
+            throw new IOException(cause);
+        }
+    }
+
+    /**
+     * Create a Proton reactor for a new connection and run it on the reactor thread.
+     * Must be called while holding the reactor lock.
+     */
+    private void startReactor(AmqpSendHandler handler) throws IOException
+    {
+        // Codes_SRS_SERVICE_SDK_JAVA_AMQPSEND_28_002: [The function shall initialize the Proton reactor object]
+        this.reactor = Proton.reactor(this);
+        this.reactor.setTimeout(REACTOR_TIMEOUT);
+
+        if (this.executorService == null)
+        {
+            this.executorService = Executors.newSingleThreadExecutor();
+        }
+
+        // Codes_SRS_SERVICE_SDK_JAVA_AMQPSEND_28_003: [The function shall start the Proton reactor object]
+        this.isReactorRunning = true;
+        this.executorService.submit(new ReactorRunner(this.reactor, handler));
+    }
+
+    /**
+     * Runs one Proton reactor until its connection is closed, then fails the pending deliveries
+     * and restarts the reactor if messages were queued meanwhile.
+     */
+    private class ReactorRunner implements Runnable
+    {
+        private static final String THREAD_NAME = "azure-iot-sdk-AmqpSendReactorRunner";
+        private final Reactor runnerReactor;
+        private final AmqpSendHandler handler;
+
+        ReactorRunner(Reactor runnerReactor, AmqpSendHandler handler)
+        {
+            this.runnerReactor = runnerReactor;
+            this.handler = handler;
+        }
+
+        @Override
+        public void run()
+        {
+            Thread.currentThread().setName(THREAD_NAME);
+            try
+            {
+                this.runnerReactor.start();
+                while (this.runnerReactor.process()) {}
+                this.runnerReactor.stop();
+                this.runnerReactor.process();
+            }
+            catch (HandlerException e)
+            {
+                // The connection is gone, the pending deliveries are failed below
+            }
+
+            synchronized (reactorLock)
+            {
+                isReactorRunning = false;
+                this.handler.onConnectionTerminated();
+
+                // Reconnect for messages queued while the connection was going down
+                if (this.handler == amqpSendHandler && this.handler.hasQueuedMessages()
+                        && executorService != null && !executorService.isShutdown())
+                {
+                    try
+                    {
+                        startReactor(this.handler);
+                    }
+                    catch (IOException e)
+                    {
+                        this.handler.failQueuedMessages(e);
+                    }
+                }
+            }
+
+            this.runnerReactor.free();
         }
     }
 }
@@ -6,6 +6,7 @@
 package com.microsoft.azure.sdk.iot.service.transport.amqps;
 
 import com.microsoft.azure.sdk.iot.deps.auth.IotHubSSLContext;
+import com.microsoft.azure.sdk.iot.deps.auth.IotHubSSLContextCache;
 import com.microsoft.azure.sdk.iot.deps.ws.impl.WebSocketImpl;
 import com.microsoft.azure.sdk.iot.service.IotHubServiceClientProtocol;
 import com.microsoft.azure.sdk.iot.service.Tools;
@@ -25,7 +26,8 @@ import java.nio.BufferOverflowException;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Queue;
-import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
 
 /**
  * Instance of the QPID-Proton-J BaseHandler class to override
@@ -33,6 +35,8 @@ import java.util.concurrent.LinkedBlockingQueue;
  * Contains and sets connection parameters (path, port, endpoint)
  * Maintains the layers of AMQP protocol (Link, Session, Connection, Transport)
  * Creates and sets SASL authentication for transport
+ * The connection and the sender link stay open across sends. Each queued message
+ * carries its own future which completes when the service settles the delivery.
  */
 public class AmqpSendHandler extends BaseHandler
 {
@@ -44,20 +48,48 @@ public class AmqpSendHandler extends BaseHandler
     public static final String MODULE_PATH_FORMAT = "/devices/%s/modules/%s/messages/devicebound";
     public static final String WEBSOCKET_PATH = "/$iothub/websocket";
     public static final String WEBSOCKET_SUB_PROTOCOL = "AMQPWSB10";
-    private Queue<AmqpResponseVerification> sendStatusQueue = new LinkedBlockingQueue<>();
-    private Queue<org.apache.qpid.proton.message.Message> messagesToBeSent = new LinkedBlockingQueue<>();
+    public static final int DEFAULT_MAX_IN_FLIGHT_MESSAGES = 100;
+    private static final int INITIAL_ENCODE_BUFFER_SIZE = 1024;
+    // the largest encode buffer kept between sends; larger messages are encoded into a buffer of their own
+    private static final int MAX_RETAINED_ENCODE_BUFFER_SIZE = 4 * 1024;
+    // room for the properties and annotations that are encoded along with the body
+    private static final int ENCODE_OVERHEAD_ESTIMATE = 256;
+    private Queue<QueuedMessage> messagesToBeSent = new ConcurrentLinkedQueue<>();
+    // Only touched from the reactor thread
+    private Map<Delivery, CompletableFuture<Void>> inProgressDeliveries = new HashMap<>();
+    private Sender sender = null;
+    // Only touched from the reactor thread
+    private byte[] encodeBuffer = new byte[INITIAL_ENCODE_BUFFER_SIZE];
 
     protected final String hostName;
     protected final String userName;
     protected final String sasToken;
-    private int nextTag = 0;
+    private long nextTag = 0;
+    private final int maxInFlightMessages;
 
     protected final IotHubServiceClientProtocol iotHubServiceClientProtocol;
     protected final String webSocketHostName;
 
     private boolean isConnected = false;
     private Exception savedException = null;
+    private IotHubSSLContext iotHubSSLContext;
     private boolean connectionWasOpened = false;
+    private volatile boolean closeRequested = false;
+
+    /**
+     * A Proton message waiting for link credit together with the future of its delivery
+     */
+    private static final class QueuedMessage
+    {
+        private final org.apache.qpid.proton.message.Message protonMessage;
+        private final CompletableFuture<Void> deliveryFuture;
+
+        private QueuedMessage(org.apache.qpid.proton.message.Message protonMessage, CompletableFuture<Void> deliveryFuture)
+        {
+            this.protonMessage = protonMessage;
+            this.deliveryFuture = deliveryFuture;
+        }
+    }
 
     /**
      * Constructor to set up connection parameters and initialize handshaker for transport
@@ -68,6 +100,20 @@ public class AmqpSendHandler extends BaseHandler
      * @param iotHubServiceClientProtocol protocol to use
      */
     public AmqpSendHandler(String hostName, String userName, String sasToken, IotHubServiceClientProtocol iotHubServiceClientProtocol)
+    {
+        this(hostName, userName, sasToken, iotHubServiceClientProtocol, DEFAULT_MAX_IN_FLIGHT_MESSAGES);
+    }
+
+    /**
+     * Constructor to set up connection parameters and initialize handshaker for transport
+     *
+     * @param hostName The address string of the service (example: AAA.BBB.CCC)
+     * @param userName The username string to use SASL authentication (example: user@sas.service)
+     * @param sasToken The SAS token string
+     * @param iotHubServiceClientProtocol protocol to use
+     * @param maxInFlightMessages The maximum number of messages sent on the link and not yet acknowledged
+     */
+    public AmqpSendHandler(String hostName, String userName, String sasToken, IotHubServiceClientProtocol iotHubServiceClientProtocol, int maxInFlightMessages)
     {
         // Codes_SRS_SERVICE_SDK_JAVA_AMQPSENDHANDLER_12_001: [The constructor shall throw IllegalArgumentException if any of the input parameter is null or empty]
         if (Tools.isNullOrEmpty(hostName))
@@ -87,8 +133,14 @@ public class AmqpSendHandler extends BaseHandler
         {
             throw new IllegalArgumentException("iotHubServiceClientProtocol cannot be null");
         }
+
+        if (maxInFlightMessages < 1)
+        {
+            throw new IllegalArgumentException("maxInFlightMessages must be greater than zero");
+        }
      
         this.iotHubServiceClientProtocol = iotHubServiceClientProtocol;
+        this.maxInFlightMessages = maxInFlightMessages;
         this.webSocketHostName = hostName;
         if (this.iotHubServiceClientProtocol == IotHubServiceClientProtocol.AMQPS_WS)
         {
@@ -111,27 +163,29 @@ public class AmqpSendHandler extends BaseHandler
     }
 
     /**
-     * Create Proton message from deviceId and content string
+     * Create Proton message from deviceId and content string and queue it for sending
      * @param deviceId The device name string
      * @param message The message to be sent
+     * @return The future which completes when the service settles the delivery of the message
      */
-    public void createProtonMessage(String deviceId, com.microsoft.azure.sdk.iot.service.Message message)
+    public CompletableFuture<Void> createProtonMessage(String deviceId, com.microsoft.azure.sdk.iot.service.Message message)
     {
-        populateProtonMessage(String.format(DEVICE_PATH_FORMAT, deviceId), message);
+        return populateProtonMessage(String.format(DEVICE_PATH_FORMAT, deviceId), message);
     }
 
     /**
-     * Create Proton message from deviceId and content string
+     * Create Proton message from deviceId and content string and queue it for sending
      * @param deviceId The device name string
      * @param moduleId The device name string
      * @param message The message to be sent
+     * @return The future which completes when the service settles the delivery of the message
      */
-    public void createProtonMessage(String deviceId, String moduleId, com.microsoft.azure.sdk.iot.service.Message message)
+    public CompletableFuture<Void> createProtonMessage(String deviceId, String moduleId, com.microsoft.azure.sdk.iot.service.Message message)
     {
-        populateProtonMessage(String.format(MODULE_PATH_FORMAT, deviceId, moduleId), message);
+        return populateProtonMessage(String.format(MODULE_PATH_FORMAT, deviceId, moduleId), message);
     }
 
-    private void populateProtonMessage(String targetPath, com.microsoft.azure.sdk.iot.service.Message message)
+    private CompletableFuture<Void> populateProtonMessage(String targetPath, com.microsoft.azure.sdk.iot.service.Message message)
     {
         // Codes_SRS_SERVICE_SDK_JAVA_AMQPSENDHANDLER_12_005: [The function shall create a new Message (Proton) object]
         org.apache.qpid.proton.message.Message protonMessage = Proton.message();
@@ -168,7 +222,10 @@ public class AmqpSendHandler extends BaseHandler
         Section section = new Data(binary);
         // Codes_SRS_SERVICE_SDK_JAVA_AMQPSENDHANDLER_12_009: [The function shall set the Message body to the created data section]
         protonMessage.setBody(section);
-        messagesToBeSent.add(protonMessage);
+
+        CompletableFuture<Void> deliveryFuture = new CompletableFuture<>();
+        messagesToBeSent.add(new QueuedMessage(protonMessage, deliveryFuture));
+        return deliveryFuture;
     }
 
     /**
@@ -183,7 +240,13 @@ public class AmqpSendHandler extends BaseHandler
         try
         {
             // Need the base trusted certs for IotHub in our ssl context. IotHubSSLContext handles that
-            domain.setSslContext(new IotHubSSLContext().getSSLContext());
+            // Codes_SRS_SERVICE_SDK_JAVA_AMQPSENDHANDLER_34_039: [The event handler shall use the shared default ssl context, acquiring it from the cache the first time it is needed.]
+            if (this.iotHubSSLContext == null)
+            {
+                this.iotHubSSLContext = IotHubSSLContextCache.acquire(null, false);
+            }
+
+            domain.setSslContext(this.iotHubSSLContext.getSSLContext());
         }
         catch (Exception e)
         {
@@ -222,6 +285,21 @@ public class AmqpSendHandler extends BaseHandler
         }
     }
 
+    /**
+     * Event handler for the connection unbound event
+     * @param event The proton event object
+     */
+    @Override
+    public void onConnectionUnbound(Event event)
+    {
+        if (this.iotHubSSLContext != null)
+        {
+            // Codes_SRS_SERVICE_SDK_JAVA_AMQPSENDHANDLER_34_040: [The event handler shall release the shared ssl context once the connection is unbound from its transport.]
+            IotHubSSLContextCache.release(this.iotHubSSLContext);
+            this.iotHubSSLContext = null;
+        }
+    }
+
     /**
      * Event handler for the connection init event
      * @param event The proton event object
@@ -233,6 +311,10 @@ public class AmqpSendHandler extends BaseHandler
         Connection conn = event.getConnection();
         conn.setHostname(hostName);
 
+        // A new connection is being opened, forget the state of any previous one
+        savedException = null;
+        connectionWasOpened = false;
+
         // Every session or link could have their own handler(s) if we
         // wanted simply by adding the handler to the given session
         // or link
@@ -256,6 +338,7 @@ public class AmqpSendHandler extends BaseHandler
         conn.open();
         ssn.open();
         snd.open();
+        sender = snd;
         isConnected = true;
     }
 
@@ -292,35 +375,189 @@ public class AmqpSendHandler extends BaseHandler
     @Override
     public void onLinkFlow(Event event)
     {
-        if (!messagesToBeSent.isEmpty())
+        // Codes_SRS_SERVICE_SDK_JAVA_AMQPSENDHANDLER_12_018: [The event handler shall get the Sender (Proton) object from the link]
+        sender = (Sender)event.getLink();
+        sendQueuedMessages();
+    }
+
+    /**
+     * Send queued messages for as long as the sender link has credit and fewer than
+     * the maximum number of messages are waiting for acknowledgement. If a close was
+     * requested, close the Sender, Session and Connection instead.
+     * This function shall only be called from the reactor thread.
+     */
+    public void sendQueuedMessages()
+    {
+        if (sender == null)
+        {
+            return;
+        }
+
+        if (closeRequested)
         {
-            org.apache.qpid.proton.message.Message protonMessage = messagesToBeSent.remove();
-            // Codes_SRS_SERVICE_SDK_JAVA_AMQPSENDHANDLER_12_018: [The event handler shall get the Sender (Proton) object from the link]
-            Sender snd = (Sender)event.getLink();
+            // Codes_SRS_SERVICE_SDK_JAVA_AMQPSENDHANDLER_34_035: [If a close was requested, the function shall close the Sender, Session and Connection]
+            sender.close();
+            sender.getSession().close();
+            sender.getSession().getConnection().close();
+            sender = null;
+            isConnected = false;
+            return;
+        }
+
+        // Codes_SRS_SERVICE_SDK_JAVA_AMQPSENDHANDLER_34_037: [The function shall not send more messages while the number of unacknowledged deliveries is at the maximum in flight count]
+        while (isConnected && sender.getCredit() > 0 && inProgressDeliveries.size() < maxInFlightMessages && !messagesToBeSent.isEmpty())
+        {
+            QueuedMessage queuedMessage = messagesToBeSent.remove();
+            // Codes_SRS_SERVICE_SDK_JAVA_AMQPSENDHANDLER_34_041: [The event handler shall reuse the encode buffer of this handler for every message that fits in it, and encode a larger message into a buffer sized from its body.]
+            byte[] msgData = encodeBuffer;
+            int estimatedLength = estimateEncodedLength(queuedMessage.protonMessage);
+            if (estimatedLength > msgData.length)
+            {
+                msgData = new byte[estimatedLength];
+            }
             // Codes_SRS_SERVICE_SDK_JAVA_AMQPSENDHANDLER_12_019: [The event handler shall encode the message and copy to the byte buffer]
-            if (snd.getCredit() > 0)
+            int length;
+            while (true)
             {
-                byte[] msgData = new byte[1024];
-                int length;
-                while (true)
+                try
                 {
-                    try
-                    {
-                        length = protonMessage.encode(msgData, 0, msgData.length);
-                        break;
-                    } catch (BufferOverflowException e)
-                    {
-                        msgData = new byte[msgData.length * 2];
-                    }
+                    length = queuedMessage.protonMessage.encode(msgData, 0, msgData.length);
+                    break;
                 }
-                // Codes_SRS_SERVICE_SDK_JAVA_AMQPSENDHANDLER_12_020: [The event handler shall set the delivery tag on the Sender (Proton) object]
-                byte[] tag = String.valueOf(nextTag++).getBytes();
-                Delivery dlv = snd.delivery(tag);
-                // Codes_SRS_SERVICE_SDK_JAVA_AMQPSENDHANDLER_12_021: [The event handler shall send the encoded bytes]
-                snd.send(msgData, 0, length);
-
-                snd.advance();
+                catch (BufferOverflowException e)
+                {
+                    msgData = new byte[msgData.length * 2];
+                }
+            }
+            if (msgData != encodeBuffer && msgData.length <= MAX_RETAINED_ENCODE_BUFFER_SIZE)
+            {
+                // Codes_SRS_SERVICE_SDK_JAVA_AMQPSENDHANDLER_34_042: [The event handler shall keep a larger buffer it encoded into for the later messages only if that buffer is no larger than 4 KB.]
+                encodeBuffer = msgData;
             }
+            // Codes_SRS_SERVICE_SDK_JAVA_AMQPSENDHANDLER_12_020: [The event handler shall set the delivery tag on the Sender (Proton) object]
+            // Codes_SRS_SERVICE_SDK_JAVA_AMQPSENDHANDLER_34_043: [The event handler shall use the decimal digits of the next delivery number as the delivery tag.]
+            byte[] tag = toDeliveryTag(nextTag++);
+            Delivery dlv = sender.delivery(tag);
+            // Codes_SRS_SERVICE_SDK_JAVA_AMQPSENDHANDLER_12_021: [The event handler shall send the encoded bytes]
+            // proton copies the bytes into its own buffer, so the encode buffer can be reused for the next message
+            sender.send(msgData, 0, length);
+            sender.advance();
+            inProgressDeliveries.put(dlv, queuedMessage.deliveryFuture);
+        }
+    }
+
+    /**
+     * Estimates how many bytes the message takes once encoded, so that large messages are encoded in one attempt.
+     *
+     * @param protonMessage the message to be encoded.
+     * @return the length of the binary body plus an allowance for the rest of the message, or 0 if the message has no
+     *         binary body.
+     */
+    private static int estimateEncodedLength(org.apache.qpid.proton.message.Message protonMessage)
+    {
+        Section body = protonMessage.getBody();
+        if (body instanceof Data && ((Data) body).getValue() != null)
+        {
+            return ((Data) body).getValue().getLength() + ENCODE_OVERHEAD_ESTIMATE;
+        }
+
+        return 0;
+    }
+
+    /**
+     * Writes the delivery number as ASCII decimal digits, the same bytes as
+     * {@code String.valueOf(deliveryNumber).getBytes()} without the intermediate String.
+     *
+     * @param deliveryNumber the delivery number, not negative.
+     * @return a new delivery tag.
+     */
+    private static byte[] toDeliveryTag(long deliveryNumber)
+    {
+        long tag = deliveryNumber;
+
+        int digitCount = 1;
+        for (long remaining = tag / 10; remaining > 0; remaining /= 10)
+        {
+            digitCount++;
+        }
+
+        // proton keeps the tag until the delivery is settled, so each delivery gets its own array
+        byte[] deliveryTag = new byte[digitCount];
+        for (int i = digitCount - 1; i >= 0; i--)
+        {
+            deliveryTag[i] = (byte) ('0' + (tag % 10));
+            tag /= 10;
+        }
+
+        return deliveryTag;
+    }
+
+    /**
+     * Ask the handler to close the Sender, Session and Connection the next time
+     * {@link #sendQueuedMessages()} runs on the reactor thread.
+     */
+    public void requestClose()
+    {
+        closeRequested = true;
+    }
+
+    /**
+     * @return true if there are messages which have not been sent yet
+     */
+    public boolean hasQueuedMessages()
+    {
+        return !messagesToBeSent.isEmpty();
+    }
+
+    /**
+     * Fail the futures of every message which can no longer be delivered. Called once the
+     * reactor that owned the connection has stopped. Messages that were sent but not yet
+     * settled are always failed. Queued messages are kept for the next connection unless
+     * the connection never opened or a close was requested.
+     */
+    public void onConnectionTerminated()
+    {
+        IOException exception;
+        if (savedException != null)
+        {
+            exception = new IOException("Connection failed to be established", savedException);
+        }
+        else if (!connectionWasOpened)
+        {
+            exception = new IOException("Connection failed to open");
+        }
+        else
+        {
+            exception = new IOException("Connection was closed before the message was acknowledged");
+        }
+
+        // Codes_SRS_SERVICE_SDK_JAVA_AMQPSENDHANDLER_34_036: [The function shall fail the messages which were sent but not acknowledged, and keep the queued messages for the next connection]
+        for (CompletableFuture<Void> deliveryFuture : inProgressDeliveries.values())
+        {
+            deliveryFuture.completeExceptionally(exception);
+        }
+        inProgressDeliveries.clear();
+
+        if (!connectionWasOpened || closeRequested)
+        {
+            // Codes_SRS_SERVICE_SDK_JAVA_AMQPSENDHANDLER_34_034: [if 'connectionWasOpened' is false, or 'isConnectionError' is true, the function shall fail the queued messages with an IOException]
+            failQueuedMessages(exception);
+        }
+
+        sender = null;
+        isConnected = false;
+    }
+
+    /**
+     * Fail the futures of all the messages which have not been sent yet
+     * @param exception The exception to complete the futures with
+     */
+    public void failQueuedMessages(Exception exception)
+    {
+        QueuedMessage queuedMessage;
+        while ((queuedMessage = messagesToBeSent.poll()) != null)
+        {
+            queuedMessage.deliveryFuture.completeExceptionally(exception);
         }
     }
 
@@ -343,20 +580,28 @@ public class AmqpSendHandler extends BaseHandler
             //Codes_SRS_SERVICE_SDK_JAVA_AMQPSENDHANDLER_25_024: [ The event handler shall get the Delivery remote state from the delivery **]**
             DeliveryState remoteState = d.getRemoteState();
 
-            //Codes_SRS_SERVICE_SDK_JAVA_AMQPSENDHANDLER_25_025: [ The event handler shall verify the Amqp response and add the response to a queue. **]**
-            sendStatusQueue.add(new AmqpResponseVerification(remoteState));
+            //Codes_SRS_SERVICE_SDK_JAVA_AMQPSENDHANDLER_25_025: [ The event handler shall verify the Amqp response. **]**
+            AmqpResponseVerification verification = new AmqpResponseVerification(remoteState);
 
             //Codes_SRS_SERVICE_SDK_JAVA_AMQPSENDHANDLER_25_026: [ The event handler shall settle the delivery. **]**
             d.settle();
 
-            //Codes_SRS_SERVICE_SDK_JAVA_AMQPSENDHANDLER_25_027: [ The event handler shall get the Sender (Proton) object from the event **]**
-            Sender snd = event.getSender();
+            //Codes_SRS_SERVICE_SDK_JAVA_AMQPSENDHANDLER_25_027: [ The event handler shall complete the future of the delivery, exceptionally if the response holds an exception. The Sender, Session and Connection stay open. **]**
+            CompletableFuture<Void> deliveryFuture = inProgressDeliveries.remove(d);
+            if (deliveryFuture != null)
+            {
+                if (verification.getException() != null)
+                {
+                    deliveryFuture.completeExceptionally(verification.getException());
+                }
+                else
+                {
+                    deliveryFuture.complete(null);
+                }
+            }
 
-            //Codes_SRS_SERVICE_SDK_JAVA_AMQPSENDHANDLER_25_028: [ The event handler shall close the Sender, Session and Connection **]**
-            snd.close();
-            snd.getSession().close();
-            snd.getSession().getConnection().close();
-            isConnected = false;
+            //Codes_SRS_SERVICE_SDK_JAVA_AMQPSENDHANDLER_34_038: [ The event handler shall send the queued messages that fit in the window freed by the delivery. **]**
+            sendQueuedMessages();
         }
     }
 
@@ -365,31 +610,6 @@ public class AmqpSendHandler extends BaseHandler
     {
         // Code_SRS_SERVICE_SDK_JAVA_AMQPSENDHANDLER_34_032: [This function shall close the transport tail]
         event.getTransport().close_tail();
-    }
-
-    public void sendComplete() throws IotHubException, IOException
-    {
-        //Codes_SRS_SERVICE_SDK_JAVA_AMQPSENDHANDLER_34_034: [if 'connectionWasOpened' is false, or 'isConnectionError' is true, this function shall throw an IOException]
-        if (savedException != null)
-        {
-            throw new IOException("Connection failed to be established", savedException);
-        }
-
-        if (!connectionWasOpened)
-        {
-            throw new IOException("Connection failed to open");
-        }
-
-        //Codes_SRS_SERVICE_SDK_JAVA_AMQPSENDHANDLER_25_029: [ The event handler shall check the status queue to get the response for the sent message]
-        if (!sendStatusQueue.isEmpty())
-        {
-            //Codes_SRS_SERVICE_SDK_JAVA_AMQPSENDHANDLER_25_030: [ The event handler shall remove the response from the queue]
-            AmqpResponseVerification verifier = sendStatusQueue.remove();
-            if (verifier.getException() != null)
-            {
-                //Codes_SRS_SERVICE_SDK_JAVA_AMQPSENDHANDLER_25_031: [ The event handler shall get the exception from the response and throw is it is not null]
-                throw verifier.getException();
-            }
-        }
+        isConnected = false;
     }
 }
@@ -10,7 +10,6 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.net.ProtocolException;
 import java.net.URL;
-import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
@@ -28,6 +27,11 @@ import java.util.Map;
  */
 public class HttpConnection
 {
+    /** The size of the read buffer when the response does not declare its length. */
+    private static final int DEFAULT_READ_BUFFER_SIZE = 4096;
+    /** The largest read buffer allocated up front from the Content-Length of the response; it grows past it as the bytes arrive. */
+    private static final int MAX_PRESIZED_READ_BUFFER_SIZE = 64 * 1024;
+
     /** The underlying HTTPS connection. */
     protected final HttpsURLConnection connection;
 
@@ -203,7 +207,7 @@ public class HttpConnection
         // Codes_SRS_SERVICE_SDK_JAVA_HTTPCONNECTION_12_014: [The function shall read from the input stream (response stream) and return the response.]
         // Codes_SRS_SERVICE_SDK_JAVA_HTTPCONNECTION_12_015: [The function shall throw an IOException if the input stream could not be accessed.]
         InputStream inputStream = this.connection.getInputStream();
-        byte[] input = readInputStream(inputStream);
+        byte[] input = readInputStream(inputStream, this.connection.getContentLength());
         // Codes_SRS_SERVICE_SDK_JAVA_HTTPCONNECTION_12_016: [The function shall close the input stream after it has been completely read.]
         inputStream.close();
 
@@ -228,7 +232,7 @@ public class HttpConnection
         // if there is no error reason, getErrorStream() returns null.
         if (errorStream != null)
         {
-            error = readInputStream(errorStream);
+            error = readInputStream(errorStream, this.connection.getContentLength());
             // Codes_SRS_SERVICE_SDK_JAVA_HTTPCONNECTION_12_019: [The function shall close the error stream after it has been completely read.]
             errorStream.close();
         }
@@ -278,23 +282,52 @@ public class HttpConnection
     protected static byte[] readInputStream(InputStream stream)
             throws IOException
     {
-        ArrayList<Byte> byteBuffer = new ArrayList<>();
-        int nextByte = -1;
-        // read(byte[]) reads the byte into the buffer and returns the number
-        // of bytes read, or -1 if the end of the stream has been reached.
-        while ((nextByte = stream.read()) > -1)
-        {
-            byteBuffer.add((byte) nextByte);
-        }
+        return readInputStream(stream, -1);
+    }
 
-        int bufferSize = byteBuffer.size();
-        byte[] byteArray = new byte[bufferSize];
-        for (int i = 0; i < bufferSize; ++i)
+    /**
+     * Reads the input stream until the stream is empty, in chunks, into a buffer
+     * sized from the expected length of the content.
+     *
+     * @param stream The input stream.
+     * @param expectedLength The value of the Content-Length header, or a negative
+     * value if it is unknown.
+     *
+     * @return The content of the input stream.
+     *
+     * @throws IOException This exception thrown if the input stream could not be read from.
+     */
+    protected static byte[] readInputStream(InputStream stream, int expectedLength)
+            throws IOException
+    {
+        // Codes_SRS_SERVICE_SDK_JAVA_HTTPCONNECTION_34_026: [The function shall read the stream in chunks into a buffer pre-sized from the Content-Length of the response, up to 64 KiB.]
+        byte[] buffer = new byte[expectedLength > 0 ? Math.min(expectedLength, MAX_PRESIZED_READ_BUFFER_SIZE) : DEFAULT_READ_BUFFER_SIZE];
+        int length = 0;
+        while (true)
         {
-            byteArray[i] = byteBuffer.get(i);
+            if (length == buffer.length)
+            {
+                // The buffer is full, only grow it if the stream has more to give
+                int nextByte = stream.read();
+                if (nextByte == -1)
+                {
+                    break;
+                }
+
+                buffer = Arrays.copyOf(buffer, buffer.length * 2);
+                buffer[length++] = (byte) nextByte;
+            }
+
+            int bytesRead = stream.read(buffer, length, buffer.length - length);
+            if (bytesRead == -1)
+            {
+                break;
+            }
+
+            length += bytesRead;
         }
 
-        return byteArray;
+        return length == buffer.length ? buffer : Arrays.copyOf(buffer, length);
     }
 
     protected HttpConnection()
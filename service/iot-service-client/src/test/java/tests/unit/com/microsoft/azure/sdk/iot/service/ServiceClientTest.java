@@ -13,9 +13,13 @@ import org.junit.Test;
 
 import java.io.IOException;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
 
 public class ServiceClientTest
 {
@@ -418,7 +422,8 @@ public class ServiceClientTest
         completableFuture.get();
     }
 
-    // Tests_SRS_SERVICE_SDK_JAVA_SERVICECLIENT_12_016: [The function shall create an async wrapper around the send() function call, handle the return value or delegate exception]
+    // Tests_SRS_SERVICE_SDK_JAVA_SERVICECLIENT_12_016: [The function shall call sendAsync() with the given parameters and null moduleId]
+    // Tests_SRS_SERVICE_SDK_JAVA_SERVICECLIENT_34_020: [The function shall call sendAsync() on the member AMQP sender object with the given parameters and return its future]
     @Test
     public void send_async_future_return_ok() throws Exception
     {
@@ -434,33 +439,34 @@ public class ServiceClientTest
         Message iotMessage = new Message(content);
         IotHubServiceClientProtocol iotHubServiceClientProtocol = IotHubServiceClientProtocol.AMQPS;
         ServiceClient serviceClient = ServiceClient.createFromConnectionString(connectionString, iotHubServiceClientProtocol);
-        // Assert
+        CompletableFuture<Void> deliveryFuture = CompletableFuture.completedFuture(null);
         new Expectations()
         {
             {
-                amqpSend.send(deviceId, null, iotMessage);
-                serviceClient.send(deviceId, iotMessage);
+                amqpSend.sendAsync(deviceId, null, iotMessage);
+                result = deliveryFuture;
             }
         };
         // Act
         CompletableFuture<Void> completableFuture = serviceClient.sendAsync(deviceId, iotMessage);
         completableFuture.get();
+        // Assert
+        assertSame(deliveryFuture, completableFuture);
+        new Verifications()
+        {
+            {
+                amqpSend.send(anyString, anyString, (Message) any);
+                times = 0;
+            }
+        };
     }
 
-    // Tests_SRS_SERVICE_SDK_JAVA_SERVICECLIENT_12_016: [The function shall create an async wrapper around the send() function call, handle the return value or delegate exception]
+    // Tests_SRS_SERVICE_SDK_JAVA_SERVICECLIENT_34_021: [If the AMQP sender throws, the function shall return a future completed with that exception]
     // Assert
-    @Test (expected = Exception.class)
+    @Test (expected = ExecutionException.class)
     public void send_async_future_throw() throws Exception
     {
         // Arrange
-        new MockUp<ServiceClient>()
-        {
-            @Mock
-            public void send(String deviceId, String message) throws IOException
-            {
-                throw new IOException();
-            }
-        };
         String iotHubName = "IOTHUBNAME";
         String hostName = "HOSTNAME";
         String sharedAccessKeyName = "ACCESSKEYNAME";
@@ -472,11 +478,56 @@ public class ServiceClientTest
         Message iotMessage = new Message(content);
         IotHubServiceClientProtocol iotHubServiceClientProtocol = IotHubServiceClientProtocol.AMQPS;
         ServiceClient serviceClient = ServiceClient.createFromConnectionString(connectionString, iotHubServiceClientProtocol);
+        new Expectations()
+        {
+            {
+                amqpSend.sendAsync(deviceId, null, iotMessage);
+                result = new IOException();
+            }
+        };
         // Act
         CompletableFuture<Void> completableFuture = serviceClient.sendAsync(deviceId, iotMessage);
         completableFuture.get();
     }
 
+    // Tests_SRS_SERVICE_SDK_JAVA_SERVICECLIENT_34_020: [The function shall call sendAsync() on the member AMQP sender object with the given parameters and return its future]
+    @Test
+    public void send_async_to_module_does_not_block() throws Exception
+    {
+        // Arrange
+        String connectionString = "HostName=HOSTNAME.IOTHUBNAME;SharedAccessKeyName=ACCESSKEYNAME;SharedAccessKey=1234567890abcdefghijklmnopqrstvwxyz=";
+        String deviceId = "XXX";
+        String moduleId = "YYY";
+        Message iotMessage = new Message("HELLO");
+        ServiceClient serviceClient = ServiceClient.createFromConnectionString(connectionString, IotHubServiceClientProtocol.AMQPS, 5);
+        CompletableFuture<Void> pendingDelivery = new CompletableFuture<>();
+        new Expectations()
+        {
+            {
+                amqpSend.sendAsync(deviceId, moduleId, iotMessage);
+                result = pendingDelivery;
+            }
+        };
+        // Act
+        CompletableFuture<Void> completableFuture = serviceClient.sendAsync(deviceId, moduleId, iotMessage);
+        // Assert
+        assertFalse(completableFuture.isDone());
+    }
+
+    // Tests_SRS_SERVICE_SDK_JAVA_SERVICECLIENT_34_019: [The function shall return a future completed with IOException if the member AMQP sender object has not been initialized]
+    @Test
+    public void send_async_without_sender_completes_exceptionally() throws Exception
+    {
+        // Arrange
+        String connectionString = "HostName=HOSTNAME.IOTHUBNAME;SharedAccessKeyName=ACCESSKEYNAME;SharedAccessKey=1234567890abcdefghijklmnopqrstvwxyz=";
+        ServiceClient serviceClient = ServiceClient.createFromConnectionString(connectionString, IotHubServiceClientProtocol.AMQPS);
+        Deencapsulation.setField(serviceClient, "amqpMessageSender", null);
+        // Act
+        CompletableFuture<Void> completableFuture = serviceClient.sendAsync("XXX", new Message("HELLO"));
+        // Assert
+        assertTrue(completableFuture.isCompletedExceptionally());
+    }
+
     // Tests_SRS_SERVICE_SDK_JAVA_SERVICECLIENT_12_017: [The function shall create a FeedbackReceiver object and returns with it]
     @Test
     public void getFeedbackReceiver_good_case() throws Exception
@@ -0,0 +1,149 @@
+/*
+ * Copyright (c) Microsoft. All rights reserved.
+ * Licensed under the MIT license. See LICENSE file in the project root for full license information.
+ */
+
+package tests.unit.com.microsoft.azure.sdk.iot.service.auth;
+
+import com.microsoft.azure.sdk.iot.service.IotHubConnectionString;
+import com.microsoft.azure.sdk.iot.service.IotHubConnectionStringBuilder;
+import com.microsoft.azure.sdk.iot.service.auth.IotHubServiceSasToken;
+import com.microsoft.azure.sdk.iot.service.auth.IotHubServiceSasTokenCache;
+import mockit.Deencapsulation;
+import mockit.Mock;
+import mockit.MockUp;
+import org.junit.After;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit tests for IotHubServiceSasTokenCache
+ * Methods: 100%
+ * Lines: 100%
+ */
+public class IotHubServiceSasTokenCacheTest
+{
+    private static final String CONNECTION_STRING = "HostName=HOSTNAME.b.c.d;SharedAccessKeyName=ACCESSKEYNAME;SharedAccessKey=1234567890abcdefghijklmnopqrstvwxyz=";
+    private static final String OTHER_SHARED_ACCESS_KEY = "abcdefghijklmnopqrstvwxyz1234567890=";
+
+    @After
+    public void restoreRenewalFraction()
+    {
+        IotHubServiceSasTokenCache.setRenewalFraction(0.5);
+    }
+
+    // Tests_SRS_SERVICE_SDK_JAVA_IOTHUBSERVICESASTOKENCACHE_34_001: [If the provided connection string is null, this function shall throw an IllegalArgumentException.]
+    @Test (expected = IllegalArgumentException.class)
+    public void getTokenThrowsForNullConnectionString()
+    {
+        // Act
+        IotHubServiceSasTokenCache.getToken(null);
+    }
+
+    // Tests_SRS_SERVICE_SDK_JAVA_IOTHUBSERVICESASTOKENCACHE_34_002: [This function shall return the cached token of the provided connection string.]
+    // Tests_SRS_SERVICE_SDK_JAVA_IOTHUBSERVICESASTOKENCACHE_34_003: [If there is no cached token, the renewal fraction of the lifetime of the cached token has elapsed, or the host name, key name or key of the connection string changed, this function shall sign and cache a new IotHubServiceSasToken.]
+    @Test
+    public void getTokenReusesSignedToken() throws Exception
+    {
+        // Arrange
+        IotHubConnectionString iotHubConnectionString = IotHubConnectionStringBuilder.createConnectionString(CONNECTION_STRING);
+
+        // Act
+        String first = IotHubServiceSasTokenCache.getToken(iotHubConnectionString);
+        String second = IotHubServiceSasTokenCache.getToken(iotHubConnectionString);
+
+        // Assert
+        assertSame(first, second);
+        assertTrue(first.startsWith("SharedAccessSignature sr=hostname.b.c.d&sig="));
+    }
+
+    // Tests_SRS_SERVICE_SDK_JAVA_IOTHUBSERVICESASTOKENCACHE_34_003: [If there is no cached token, the renewal fraction of the lifetime of the cached token has elapsed, or the host name, key name or key of the connection string changed, this function shall sign and cache a new IotHubServiceSasToken.]
+    @Test
+    public void getTokenRenewsTokenPastRenewalFraction() throws Exception
+    {
+        // Arrange
+        new MockUp<IotHubServiceSasToken>()
+        {
+            @Mock
+            long buildExpiresOn()
+            {
+                return System.currentTimeMillis() / 1000;
+            }
+        };
+        IotHubConnectionString iotHubConnectionString = IotHubConnectionStringBuilder.createConnectionString(CONNECTION_STRING);
+
+        // Act
+        String first = IotHubServiceSasTokenCache.getToken(iotHubConnectionString);
+        String second = IotHubServiceSasTokenCache.getToken(iotHubConnectionString);
+
+        // Assert
+        assertNotSame(first, second);
+    }
+
+    // Tests_SRS_SERVICE_SDK_JAVA_IOTHUBSERVICESASTOKENCACHE_34_003: [If there is no cached token, the renewal fraction of the lifetime of the cached token has elapsed, or the host name, key name or key of the connection string changed, this function shall sign and cache a new IotHubServiceSasToken.]
+    @Test
+    public void getTokenRenewsTokenWhenKeyChanges() throws Exception
+    {
+        // Arrange
+        IotHubConnectionString iotHubConnectionString = IotHubConnectionStringBuilder.createConnectionString(CONNECTION_STRING);
+        String first = IotHubServiceSasTokenCache.getToken(iotHubConnectionString);
+        Deencapsulation.setField(iotHubConnectionString, "sharedAccessKey", OTHER_SHARED_ACCESS_KEY);
+
+        // Act
+        String second = IotHubServiceSasTokenCache.getToken(iotHubConnectionString);
+
+        // Assert
+        assertNotEquals(first, second);
+    }
+
+    // Tests_SRS_SERVICE_SDK_JAVA_IOTHUBSERVICESASTOKENCACHE_34_003: [If there is no cached token, the renewal fraction of the lifetime of the cached token has elapsed, or the host name, key name or key of the connection string changed, this function shall sign and cache a new IotHubServiceSasToken.]
+    @Test
+    public void getTokenCachesPerConnectionString() throws Exception
+    {
+        // Arrange
+        IotHubConnectionString iotHubConnectionString = IotHubConnectionStringBuilder.createConnectionString(CONNECTION_STRING);
+        IotHubConnectionString otherIotHubConnectionString = IotHubConnectionStringBuilder.createConnectionString(CONNECTION_STRING);
+
+        // Act
+        String first = IotHubServiceSasTokenCache.getToken(iotHubConnectionString);
+        String other = IotHubServiceSasTokenCache.getToken(otherIotHubConnectionString);
+
+        // Assert
+        assertNotSame(first, other);
+        assertSame(first, IotHubServiceSasTokenCache.getToken(iotHubConnectionString));
+        assertSame(other, IotHubServiceSasTokenCache.getToken(otherIotHubConnectionString));
+    }
+
+    // Tests_SRS_SERVICE_SDK_JAVA_IOTHUBSERVICESASTOKENCACHE_34_004: [If the provided fraction is not greater than 0 and at most 1, this function shall throw an IllegalArgumentException.]
+    @Test (expected = IllegalArgumentException.class)
+    public void setRenewalFractionThrowsForZero()
+    {
+        // Act
+        IotHubServiceSasTokenCache.setRenewalFraction(0);
+    }
+
+    // Tests_SRS_SERVICE_SDK_JAVA_IOTHUBSERVICESASTOKENCACHE_34_004: [If the provided fraction is not greater than 0 and at most 1, this function shall throw an IllegalArgumentException.]
+    @Test (expected = IllegalArgumentException.class)
+    public void setRenewalFractionThrowsAboveOne()
+    {
+        // Act
+        IotHubServiceSasTokenCache.setRenewalFraction(1.5);
+    }
+
+    // Tests_SRS_SERVICE_SDK_JAVA_IOTHUBSERVICESASTOKENCACHE_34_005: [This function shall save the provided fraction for the tokens signed from then on.]
+    @Test
+    public void setRenewalFractionSavesFraction()
+    {
+        // Act
+        IotHubServiceSasTokenCache.setRenewalFraction(0.8);
+
+        // Assert
+        double actualFraction = Deencapsulation.getField(IotHubServiceSasTokenCache.class, "renewalFraction");
+        assertEquals(0.8, actualFraction, 0);
+    }
+}
@@ -0,0 +1,354 @@
+/*
+*  Copyright (c) Microsoft. All rights reserved.
+*  Licensed under the MIT license. See LICENSE file in the project root for full license information.
+*/
+
+package tests.unit.com.microsoft.azure.sdk.iot.service.devicetwin;
+
+import com.microsoft.azure.sdk.iot.service.devicetwin.BulkMethodInvocation;
+import com.microsoft.azure.sdk.iot.service.devicetwin.BulkMethodOptions;
+import com.microsoft.azure.sdk.iot.service.devicetwin.BulkMethodResult;
+import com.microsoft.azure.sdk.iot.service.devicetwin.BulkMethodStatistics;
+import com.microsoft.azure.sdk.iot.service.devicetwin.DeviceMethod;
+import com.microsoft.azure.sdk.iot.service.devicetwin.MethodResult;
+import com.microsoft.azure.sdk.iot.service.exceptions.IotHubException;
+import mockit.Deencapsulation;
+import mockit.Delegate;
+import mockit.Mocked;
+import mockit.NonStrictExpectations;
+import mockit.Verifications;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit tests for BulkMethodInvocation.java
+ * Code coverage:
+ * 100% Methods
+ * 95% lines
+ */
+public class BulkMethodInvocationTest
+{
+    private static final String METHOD_NAME = "someMethod";
+    private static final Object PAYLOAD = "somePayload";
+    private static final Long RESPONSE_TIMEOUT = 20L;
+    private static final Long CONNECT_TIMEOUT = 5L;
+    private static final List<String> DEVICE_IDS = Arrays.asList("device1", "device2", "device3");
+    private static final long TIMEOUT_MS = 10000;
+
+    @Mocked DeviceMethod mockedDeviceMethod;
+    @Mocked MethodResult mockedMethodResult;
+
+    private static BulkMethodInvocation createInvocation(DeviceMethod deviceMethod, List<String> deviceIds, int maxParallelism)
+    {
+        BulkMethodOptions options = new BulkMethodOptions();
+        options.setResponseTimeoutInSeconds(RESPONSE_TIMEOUT);
+        options.setConnectTimeoutInSeconds(CONNECT_TIMEOUT);
+        options.setMaxParallelism(maxParallelism);
+        return Deencapsulation.newInstance(BulkMethodInvocation.class,
+                new Class[] {DeviceMethod.class, List.class, String.class, Object.class, BulkMethodOptions.class},
+                deviceMethod, deviceIds, METHOD_NAME, PAYLOAD, options);
+    }
+
+    //Tests_SRS_BULKMETHODINVOCATION_34_001: [The constructor shall invoke the method on every provided device on a pool of as many daemon threads as the max parallelism of the options, but no more than there are devices.]
+    @Test
+    public void constructorBoundsPoolToDeviceCount() throws Exception
+    {
+        //act
+        BulkMethodInvocation invocation = createInvocation(mockedDeviceMethod, DEVICE_IDS, 16);
+
+        //assert
+        ExecutorService executor = Deencapsulation.getField(invocation, "executor");
+        assertEquals(DEVICE_IDS.size(), ((ThreadPoolExecutor) executor).getMaximumPoolSize());
+        assertTrue(invocation.awaitCompletion(TIMEOUT_MS));
+    }
+
+    //Tests_SRS_BULKMETHODINVOCATION_34_002: [The method shall return true if fewer results than devices were returned by next and false otherwise.]
+    //Tests_SRS_BULKMETHODINVOCATION_34_004: [The method shall return the next completed result, waiting for one to complete if there is none.]
+    //Tests_SRS_BULKMETHODINVOCATION_34_008: [Each invocation shall call invoke on the DeviceMethod with the device id, method name, timeouts and payload.]
+    @Test
+    public void nextReturnsResultOfEveryDevice() throws Exception
+    {
+        //arrange
+        new NonStrictExpectations()
+        {
+            {
+                mockedDeviceMethod.invoke(anyString, METHOD_NAME, RESPONSE_TIMEOUT, CONNECT_TIMEOUT, PAYLOAD);
+                result = mockedMethodResult;
+            }
+        };
+        BulkMethodInvocation invocation = createInvocation(mockedDeviceMethod, DEVICE_IDS, 2);
+
+        //act
+        Set<String> answeredDevices = new HashSet<>();
+        while (invocation.hasNext())
+        {
+            BulkMethodResult result = invocation.next();
+            assertTrue(result.isSuccessful());
+            assertSame(mockedMethodResult, result.getMethodResult());
+            answeredDevices.add(result.getDeviceId());
+        }
+
+        //assert
+        assertEquals(new HashSet<>(DEVICE_IDS), answeredDevices);
+        assertFalse(invocation.hasNext());
+        new Verifications()
+        {
+            {
+                mockedDeviceMethod.invoke(anyString, METHOD_NAME, RESPONSE_TIMEOUT, CONNECT_TIMEOUT, PAYLOAD);
+                times = DEVICE_IDS.size();
+            }
+        };
+    }
+
+    //Tests_SRS_BULKMETHODINVOCATION_34_003: [If the results of all the devices were returned already, the method shall throw NoSuchElementException.]
+    @Test (expected = NoSuchElementException.class)
+    public void nextThrowsOnceAllResultsReturned() throws Exception
+    {
+        //arrange
+        BulkMethodInvocation invocation = createInvocation(mockedDeviceMethod, Arrays.asList("device1"), 1);
+        invocation.next();
+
+        //act
+        invocation.next();
+    }
+
+    //Tests_SRS_BULKMETHODINVOCATION_34_009: [If the invocation throws, its result shall hold the exception instead of a method result.]
+    @Test
+    public void nextReturnsFailedResultForThrowingInvocation() throws Exception
+    {
+        //arrange
+        final IotHubException expectedException = new IotHubException("device not online");
+        new NonStrictExpectations()
+        {
+            {
+                mockedDeviceMethod.invoke(anyString, anyString, (Long) any, (Long) any, any);
+                result = expectedException;
+            }
+        };
+        BulkMethodInvocation invocation = createInvocation(mockedDeviceMethod, Arrays.asList("device1"), 1);
+
+        //act
+        BulkMethodResult result = invocation.next();
+
+        //assert
+        assertFalse(result.isSuccessful());
+        assertNull(result.getMethodResult());
+        assertSame(expectedException, result.getException());
+        assertEquals("device1", result.getDeviceId());
+    }
+
+    //Tests_SRS_BULKMETHODINVOCATION_34_011: [If the invocation throws an Error, its result shall hold an ExecutionException caused by it, and the Error shall be rethrown once the result is completed.]
+    @Test
+    public void nextReturnsFailedResultForInvocationThrowingError() throws Exception
+    {
+        //arrange
+        final StackOverflowError expectedError = new StackOverflowError();
+        new NonStrictExpectations()
+        {
+            {
+                mockedDeviceMethod.invoke(anyString, anyString, (Long) any, (Long) any, any);
+                result = expectedError;
+            }
+        };
+        BulkMethodInvocation invocation = createInvocation(mockedDeviceMethod, Arrays.asList("device1"), 1);
+
+        //act
+        BulkMethodResult result = invocation.next();
+
+        //assert
+        assertFalse(result.isSuccessful());
+        assertTrue(result.getException() instanceof ExecutionException);
+        assertSame(expectedError, result.getException().getCause());
+        assertFalse(invocation.hasNext());
+    }
+
+    //Tests_SRS_BULKMETHODINVOCATION_34_002: [The method shall return true if fewer results than devices were returned by next and false otherwise.]
+    //Tests_SRS_BULKMETHODINVOCATION_34_004: [The method shall return the next completed result, waiting for one to complete if there is none.]
+    @Test (timeout = TIMEOUT_MS)
+    public void nextDoesNotBlockOtherCallsWhileWaiting() throws Exception
+    {
+        //arrange
+        final CountDownLatch releaseInvocation = new CountDownLatch(1);
+        new NonStrictExpectations()
+        {
+            {
+                mockedDeviceMethod.invoke(anyString, anyString, (Long) any, (Long) any, any);
+                result = new Delegate()
+                {
+                    MethodResult delegate(String deviceId, String methodName, Long responseTimeout, Long connectTimeout, Object payload) throws InterruptedException
+                    {
+                        releaseInvocation.await(TIMEOUT_MS, TimeUnit.MILLISECONDS);
+                        return mockedMethodResult;
+                    }
+                };
+            }
+        };
+        final BulkMethodInvocation invocation = createInvocation(mockedDeviceMethod, DEVICE_IDS, 1);
+        final BulkMethodResult[] waitedResult = new BulkMethodResult[1];
+        Thread waitingThread = new Thread(() ->
+        {
+            try
+            {
+                waitedResult[0] = invocation.next();
+            }
+            catch (InterruptedException e)
+            {
+                // the result stays null and fails the test
+            }
+        });
+        waitingThread.start();
+        while (waitingThread.getState() != Thread.State.WAITING)
+        {
+            Thread.sleep(10);
+        }
+
+        //act
+        boolean hasNext = invocation.hasNext();
+        invocation.cancel();
+        releaseInvocation.countDown();
+        waitingThread.join();
+
+        //assert
+        assertTrue(hasNext);
+        assertTrue(waitedResult[0] != null);
+    }
+
+    //Tests_SRS_BULKMETHODINVOCATION_34_010: [If the thread is interrupted while waiting, the method shall give the result it claimed back to later calls.]
+    @Test
+    public void nextGivesClaimedResultBackIfInterrupted() throws Exception
+    {
+        //arrange
+        final CountDownLatch releaseInvocation = new CountDownLatch(1);
+        new NonStrictExpectations()
+        {
+            {
+                mockedDeviceMethod.invoke(anyString, anyString, (Long) any, (Long) any, any);
+                result = new Delegate()
+                {
+                    MethodResult delegate(String deviceId, String methodName, Long responseTimeout, Long connectTimeout, Object payload) throws InterruptedException
+                    {
+                        releaseInvocation.await(TIMEOUT_MS, TimeUnit.MILLISECONDS);
+                        return mockedMethodResult;
+                    }
+                };
+            }
+        };
+        BulkMethodInvocation invocation = createInvocation(mockedDeviceMethod, Arrays.asList("device1"), 1);
+        Thread.currentThread().interrupt();
+        boolean interrupted = false;
+        try
+        {
+            invocation.next();
+        }
+        catch (InterruptedException e)
+        {
+            interrupted = true;
+        }
+
+        //act
+        releaseInvocation.countDown();
+        BulkMethodResult result = invocation.next();
+
+        //assert
+        assertTrue(interrupted);
+        assertEquals("device1", result.getDeviceId());
+        assertFalse(invocation.hasNext());
+    }
+
+    //Tests_SRS_BULKMETHODINVOCATION_34_005: [The method shall wait for the pool to end for at most the provided timeout, and return whether it ended.]
+    //Tests_SRS_BULKMETHODINVOCATION_34_007: [The method shall return the counts and durations of the invocations that completed so far.]
+    @Test
+    public void getStatisticsCountsCompletedInvocations() throws Exception
+    {
+        //arrange
+        new NonStrictExpectations()
+        {
+            {
+                mockedDeviceMethod.invoke("device1", anyString, (Long) any, (Long) any, any);
+                result = mockedMethodResult;
+                mockedDeviceMethod.invoke("device2", anyString, (Long) any, (Long) any, any);
+                result = new IotHubException();
+                mockedDeviceMethod.invoke("device3", anyString, (Long) any, (Long) any, any);
+                result = mockedMethodResult;
+            }
+        };
+        BulkMethodInvocation invocation = createInvocation(mockedDeviceMethod, DEVICE_IDS, 3);
+
+        //act
+        assertTrue(invocation.awaitCompletion(TIMEOUT_MS));
+        BulkMethodStatistics statistics = invocation.getStatistics();
+
+        //assert
+        assertEquals(3, statistics.getDeviceCount());
+        assertEquals(3, statistics.getCompletedCount());
+        assertEquals(2, statistics.getSucceededCount());
+        assertEquals(1, statistics.getFailedCount());
+        assertTrue(statistics.getMinDurationMillis() <= statistics.getMaxDurationMillis());
+    }
+
+    //Tests_SRS_BULKMETHODINVOCATION_34_006: [The method shall remove the invocations that did not start from the pool without interrupting those in flight, and complete each of them with a CancellationException.]
+    @Test
+    public void cancelFailsInvocationsThatDidNotStart() throws Exception
+    {
+        //arrange
+        final CountDownLatch firstInvocationStarted = new CountDownLatch(1);
+        final CountDownLatch releaseFirstInvocation = new CountDownLatch(1);
+        new NonStrictExpectations()
+        {
+            {
+                mockedDeviceMethod.invoke("device1", anyString, (Long) any, (Long) any, any);
+                result = new Delegate()
+                {
+                    MethodResult delegate(String deviceId, String methodName, Long responseTimeout, Long connectTimeout, Object payload) throws InterruptedException
+                    {
+                        firstInvocationStarted.countDown();
+                        releaseFirstInvocation.await(TIMEOUT_MS, TimeUnit.MILLISECONDS);
+                        return mockedMethodResult;
+                    }
+                };
+            }
+        };
+        BulkMethodInvocation invocation = createInvocation(mockedDeviceMethod, DEVICE_IDS, 1);
+        assertTrue(firstInvocationStarted.await(TIMEOUT_MS, TimeUnit.MILLISECONDS));
+
+        //act
+        invocation.cancel();
+        releaseFirstInvocation.countDown();
+
+        //assert
+        int cancelledCount = 0;
+        while (invocation.hasNext())
+        {
+            BulkMethodResult result = invocation.next();
+            if (result.getException() instanceof CancellationException)
+            {
+                cancelledCount++;
+            }
+            else
+            {
+                // the invocation in flight was not interrupted
+                assertEquals("device1", result.getDeviceId());
+                assertTrue(result.isSuccessful());
+            }
+        }
+        assertEquals(2, cancelledCount);
+        assertEquals(3, invocation.getStatistics().getCompletedCount());
+    }
+}
@@ -0,0 +1,103 @@
+/*
+*  Copyright (c) Microsoft. All rights reserved.
+*  Licensed under the MIT license. See LICENSE file in the project root for full license information.
+*/
+
+package tests.unit.com.microsoft.azure.sdk.iot.service.devicetwin;
+
+import com.microsoft.azure.sdk.iot.service.devicetwin.BulkMethodOptions;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+/**
+ * Unit tests for BulkMethodOptions.java
+ * Code coverage:
+ * 100% Methods
+ * 100% lines
+ */
+public class BulkMethodOptionsTest
+{
+    //Tests_SRS_BULKMETHODOPTIONS_34_001: [This constructor shall initialize a BulkMethodOptions object with no timeouts and a max parallelism of 16.]
+    @Test
+    public void constructorSuccess()
+    {
+        //act
+        BulkMethodOptions options = new BulkMethodOptions();
+
+        //assert
+        assertNull(options.getResponseTimeoutInSeconds());
+        assertNull(options.getConnectTimeoutInSeconds());
+        assertEquals(16, options.getMaxParallelism());
+    }
+
+    //Tests_SRS_BULKMETHODOPTIONS_34_002: [This function shall return the saved response timeout.]
+    //Tests_SRS_BULKMETHODOPTIONS_34_004: [This function shall save the provided response timeout.]
+    @Test
+    public void setResponseTimeoutInSecondsSuccess()
+    {
+        //arrange
+        BulkMethodOptions options = new BulkMethodOptions();
+
+        //act
+        options.setResponseTimeoutInSeconds(20L);
+
+        //assert
+        assertEquals(new Long(20), options.getResponseTimeoutInSeconds());
+    }
+
+    //Tests_SRS_BULKMETHODOPTIONS_34_003: [If the provided timeout is negative, an IllegalArgumentException shall be thrown.]
+    @Test (expected = IllegalArgumentException.class)
+    public void setResponseTimeoutInSecondsThrowsForNegativeTimeout()
+    {
+        //act
+        new BulkMethodOptions().setResponseTimeoutInSeconds(-1L);
+    }
+
+    //Tests_SRS_BULKMETHODOPTIONS_34_005: [This function shall return the saved connect timeout.]
+    //Tests_SRS_BULKMETHODOPTIONS_34_007: [This function shall save the provided connect timeout.]
+    @Test
+    public void setConnectTimeoutInSecondsSuccess()
+    {
+        //arrange
+        BulkMethodOptions options = new BulkMethodOptions();
+
+        //act
+        options.setConnectTimeoutInSeconds(5L);
+
+        //assert
+        assertEquals(new Long(5), options.getConnectTimeoutInSeconds());
+    }
+
+    //Tests_SRS_BULKMETHODOPTIONS_34_006: [If the provided timeout is negative, an IllegalArgumentException shall be thrown.]
+    @Test (expected = IllegalArgumentException.class)
+    public void setConnectTimeoutInSecondsThrowsForNegativeTimeout()
+    {
+        //act
+        new BulkMethodOptions().setConnectTimeoutInSeconds(-1L);
+    }
+
+    //Tests_SRS_BULKMETHODOPTIONS_34_008: [This function shall return the saved max parallelism.]
+    //Tests_SRS_BULKMETHODOPTIONS_34_010: [This function shall save the provided max parallelism.]
+    @Test
+    public void setMaxParallelismSuccess()
+    {
+        //arrange
+        BulkMethodOptions options = new BulkMethodOptions();
+
+        //act
+        options.setMaxParallelism(64);
+
+        //assert
+        assertEquals(64, options.getMaxParallelism());
+    }
+
+    //Tests_SRS_BULKMETHODOPTIONS_34_009: [If the provided max parallelism is less than 1, an IllegalArgumentException shall be thrown.]
+    @Test (expected = IllegalArgumentException.class)
+    public void setMaxParallelismThrowsForZero()
+    {
+        //act
+        new BulkMethodOptions().setMaxParallelism(0);
+    }
+}
@@ -0,0 +1,106 @@
+/*
+ * Copyright (c) Microsoft. All rights reserved.
+ * Licensed under the MIT license. See LICENSE file in the project root for full license information.
+ */
+
+package tests.unit.com.microsoft.azure.sdk.iot.service.devicetwin;
+
+import com.microsoft.azure.sdk.iot.service.devicetwin.BulkMethodResult;
+import com.microsoft.azure.sdk.iot.service.devicetwin.BulkMethodStatistics;
+import com.microsoft.azure.sdk.iot.service.devicetwin.MethodResult;
+import mockit.Deencapsulation;
+import mockit.Mocked;
+import org.junit.Test;
+
+import java.io.IOException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit tests for BulkMethodResult and BulkMethodStatistics
+ * 100% methods, 100% lines covered
+ */
+public class BulkMethodResultTest
+{
+    private static final String DEVICE_ID = "someDevice";
+
+    @Mocked MethodResult mockedMethodResult;
+
+    /* Tests_SRS_BULKMETHODRESULT_34_001: [The constructor shall save the device id, method result, exception and duration.] */
+    /* Tests_SRS_BULKMETHODRESULT_34_002: [The getDeviceId shall return the device id stored by the constructor.] */
+    /* Tests_SRS_BULKMETHODRESULT_34_003: [The getMethodResult shall return the method result stored by the constructor.] */
+    /* Tests_SRS_BULKMETHODRESULT_34_005: [The getDurationMillis shall return the duration stored by the constructor.] */
+    /* Tests_SRS_BULKMETHODRESULT_34_006: [The isSuccessful shall return true if no exception is stored.] */
+    @Test
+    public void constructorStoresSuccessfulResult()
+    {
+        //act
+        BulkMethodResult result = Deencapsulation.newInstance(BulkMethodResult.class,
+                new Class[] {String.class, MethodResult.class, Exception.class, long.class},
+                DEVICE_ID, mockedMethodResult, null, 12L);
+
+        //assert
+        assertEquals(DEVICE_ID, result.getDeviceId());
+        assertSame(mockedMethodResult, result.getMethodResult());
+        assertNull(result.getException());
+        assertEquals(12L, result.getDurationMillis());
+        assertTrue(result.isSuccessful());
+    }
+
+    /* Tests_SRS_BULKMETHODRESULT_34_004: [The getException shall return the exception stored by the constructor.] */
+    /* Tests_SRS_BULKMETHODRESULT_34_006: [The isSuccessful shall return true if no exception is stored.] */
+    @Test
+    public void constructorStoresFailedResult()
+    {
+        //arrange
+        IOException exception = new IOException();
+
+        //act
+        BulkMethodResult result = Deencapsulation.newInstance(BulkMethodResult.class,
+                new Class[] {String.class, MethodResult.class, Exception.class, long.class},
+                DEVICE_ID, null, exception, 12L);
+
+        //assert
+        assertSame(exception, result.getException());
+        assertFalse(result.isSuccessful());
+    }
+
+    /* Tests_SRS_BULKMETHODSTATISTICS_34_001: [The constructor shall save the provided counts and durations.] */
+    /* Tests_SRS_BULKMETHODSTATISTICS_34_002: [The getCompletedCount shall return the sum of the succeeded and failed counts.] */
+    /* Tests_SRS_BULKMETHODSTATISTICS_34_003: [The getAverageDurationMillis shall return the total duration divided by the completed count, or 0 if no invocation completed.] */
+    @Test
+    public void statisticsStoresCountsAndDurations()
+    {
+        //act
+        BulkMethodStatistics statistics = Deencapsulation.newInstance(BulkMethodStatistics.class,
+                new Class[] {int.class, int.class, int.class, long.class, long.class, long.class, long.class},
+                10, 3, 1, 200L, 10L, 90L, 160L);
+
+        //assert
+        assertEquals(10, statistics.getDeviceCount());
+        assertEquals(4, statistics.getCompletedCount());
+        assertEquals(3, statistics.getSucceededCount());
+        assertEquals(1, statistics.getFailedCount());
+        assertEquals(200L, statistics.getElapsedMillis());
+        assertEquals(10L, statistics.getMinDurationMillis());
+        assertEquals(90L, statistics.getMaxDurationMillis());
+        assertEquals(40.0, statistics.getAverageDurationMillis(), 0);
+    }
+
+    /* Tests_SRS_BULKMETHODSTATISTICS_34_003: [The getAverageDurationMillis shall return the total duration divided by the completed count, or 0 if no invocation completed.] */
+    @Test
+    public void statisticsAverageIsZeroWithoutCompletedInvocations()
+    {
+        //act
+        BulkMethodStatistics statistics = Deencapsulation.newInstance(BulkMethodStatistics.class,
+                new Class[] {int.class, int.class, int.class, long.class, long.class, long.class, long.class},
+                10, 0, 0, 0L, 0L, 0L, 0L);
+
+        //assert
+        assertEquals(0.0, statistics.getAverageDurationMillis(), 0);
+    }
+}
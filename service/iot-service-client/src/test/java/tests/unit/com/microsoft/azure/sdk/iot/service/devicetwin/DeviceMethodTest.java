@@ -7,6 +7,8 @@ import com.microsoft.azure.sdk.iot.deps.serializer.MethodParser;
 import com.microsoft.azure.sdk.iot.service.IotHubConnectionString;
 import com.microsoft.azure.sdk.iot.service.IotHubConnectionStringBuilder;
 import com.microsoft.azure.sdk.iot.service.auth.IotHubServiceSasToken;
+import com.microsoft.azure.sdk.iot.service.devicetwin.BulkMethodInvocation;
+import com.microsoft.azure.sdk.iot.service.devicetwin.BulkMethodOptions;
 import com.microsoft.azure.sdk.iot.service.devicetwin.DeviceMethod;
 import com.microsoft.azure.sdk.iot.service.devicetwin.DeviceOperations;
 import com.microsoft.azure.sdk.iot.service.devicetwin.Job;
@@ -19,8 +21,11 @@ import org.junit.Test;
 
 import java.io.IOException;
 import java.net.URL;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.TimeUnit;
 
@@ -696,4 +701,76 @@ public class DeviceMethodTest
         testMethod.scheduleDeviceMethod(queryCondition, STANDARD_METHODNAME, STANDARD_TIMEOUT_SECONDS, STANDARD_TIMEOUT_SECONDS, STANDARD_PAYLOAD_MAP, now, maxExecutionTimeInSeconds);
     }
 
+    /* Tests_SRS_DEVICEMETHOD_34_024: [The invokeAll shall throw IllegalArgumentException if the provided deviceIds is null or empty, or contains a null or empty device id.] */
+    @Test (expected = IllegalArgumentException.class)
+    public void invokeAllThrowOnNullDeviceIds() throws Exception
+    {
+        //arrange
+        DeviceMethod testMethod = DeviceMethod.createFromConnectionString(STANDARD_CONNECTIONSTRING);
+
+        //act
+        testMethod.invokeAll(null, STANDARD_METHODNAME, STANDARD_PAYLOAD_MAP, null);
+    }
+
+    /* Tests_SRS_DEVICEMETHOD_34_024: [The invokeAll shall throw IllegalArgumentException if the provided deviceIds is null or empty, or contains a null or empty device id.] */
+    @Test (expected = IllegalArgumentException.class)
+    public void invokeAllThrowOnEmptyDeviceIds() throws Exception
+    {
+        //arrange
+        DeviceMethod testMethod = DeviceMethod.createFromConnectionString(STANDARD_CONNECTIONSTRING);
+
+        //act
+        testMethod.invokeAll(new ArrayList<String>(), STANDARD_METHODNAME, STANDARD_PAYLOAD_MAP, null);
+    }
+
+    /* Tests_SRS_DEVICEMETHOD_34_024: [The invokeAll shall throw IllegalArgumentException if the provided deviceIds is null or empty, or contains a null or empty device id.] */
+    @Test (expected = IllegalArgumentException.class)
+    public void invokeAllThrowOnEmptyDeviceId() throws Exception
+    {
+        //arrange
+        DeviceMethod testMethod = DeviceMethod.createFromConnectionString(STANDARD_CONNECTIONSTRING);
+
+        //act
+        testMethod.invokeAll(Arrays.asList(STANDARD_DEVICEID, ""), STANDARD_METHODNAME, STANDARD_PAYLOAD_MAP, null);
+    }
+
+    /* Tests_SRS_DEVICEMETHOD_34_025: [The invokeAll shall throw IllegalArgumentException if the provided methodName is null or empty.] */
+    @Test (expected = IllegalArgumentException.class)
+    public void invokeAllThrowOnNullMethodName() throws Exception
+    {
+        //arrange
+        DeviceMethod testMethod = DeviceMethod.createFromConnectionString(STANDARD_CONNECTIONSTRING);
+
+        //act
+        testMethod.invokeAll(Arrays.asList(STANDARD_DEVICEID), null, STANDARD_PAYLOAD_MAP, null);
+    }
+
+    /* Tests_SRS_DEVICEMETHOD_34_026: [If the provided options are null, the invokeAll shall use the default BulkMethodOptions.] */
+    /* Tests_SRS_DEVICEMETHOD_34_027: [The invokeAll shall create and return a BulkMethodInvocation that invokes the method on a copy of the provided device ids.] */
+    @Test
+    public void invokeAllCreatesBulkMethodInvocation(
+            @Mocked final BulkMethodOptions mockedOptions,
+            @Mocked final BulkMethodInvocation mockedInvocation) throws Exception
+    {
+        //arrange
+        final List<String> deviceIds = Arrays.asList(STANDARD_DEVICEID, "otherDeviceId");
+        final DeviceMethod testMethod = DeviceMethod.createFromConnectionString(STANDARD_CONNECTIONSTRING);
+
+        //act
+        BulkMethodInvocation invocation = testMethod.invokeAll(deviceIds, STANDARD_METHODNAME, STANDARD_PAYLOAD_MAP, null);
+
+        //assert
+        assertNotNull(invocation);
+        new Verifications()
+        {
+            {
+                new BulkMethodOptions();
+                times = 1;
+                Deencapsulation.newInstance(BulkMethodInvocation.class,
+                        new Class[] {DeviceMethod.class, List.class, String.class, Object.class, BulkMethodOptions.class},
+                        testMethod, deviceIds, STANDARD_METHODNAME, STANDARD_PAYLOAD_MAP, (BulkMethodOptions) any);
+                times = 1;
+            }
+        };
+    }
 }
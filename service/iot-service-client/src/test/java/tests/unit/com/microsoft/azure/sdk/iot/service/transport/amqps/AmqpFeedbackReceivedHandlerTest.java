@@ -5,6 +5,8 @@
 
 package tests.unit.com.microsoft.azure.sdk.iot.service.transport.amqps;
 
+import com.microsoft.azure.sdk.iot.deps.auth.IotHubSSLContext;
+import com.microsoft.azure.sdk.iot.deps.auth.IotHubSSLContextCache;
 import com.microsoft.azure.sdk.iot.deps.ws.impl.WebSocketImpl;
 import com.microsoft.azure.sdk.iot.service.IotHubServiceClientProtocol;
 import com.microsoft.azure.sdk.iot.service.exceptions.IotHubException;
@@ -13,6 +15,7 @@ import com.microsoft.azure.sdk.iot.service.transport.amqps.AmqpFeedbackReceivedH
 import mockit.Deencapsulation;
 import mockit.Expectations;
 import mockit.Mocked;
+import mockit.Verifications;
 import mockit.integration.junit4.JMockit;
 import org.apache.qpid.proton.Proton;
 import org.apache.qpid.proton.amqp.Symbol;
@@ -39,6 +42,7 @@ import java.util.Map;
 
 import static com.microsoft.azure.sdk.iot.service.transport.amqps.AmqpFeedbackReceivedHandler.RECEIVE_TAG;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 
 /** Unit tests for AmqpFeedbackReceivedHandler */
@@ -205,6 +209,32 @@ public class AmqpFeedbackReceivedHandlerTest
         amqpReceiveHandler.onConnectionBound(event);
     }
 
+    // Tests_SRS_SERVICE_SDK_JAVA_AMQPFEEDBACKRECEIVEDHANDLER_34_021: [The event handler shall release the shared ssl context once the connection is unbound from its transport.]
+    @Test
+    public void onConnectionUnboundReleasesSSLContext(@Mocked final IotHubSSLContextCache mockedIotHubSSLContextCache, @Mocked final IotHubSSLContext mockedIotHubSSLContext)
+    {
+        // Arrange
+        final String hostName = "aaa";
+        final String userName = "bbb";
+        final String sasToken = "ccc";
+        IotHubServiceClientProtocol iotHubServiceClientProtocol = IotHubServiceClientProtocol.AMQPS;
+        AmqpFeedbackReceivedHandler amqpReceiveHandler = new AmqpFeedbackReceivedHandler(hostName, userName, sasToken, iotHubServiceClientProtocol, null);
+        Deencapsulation.setField(amqpReceiveHandler, "iotHubSSLContext", mockedIotHubSSLContext);
+
+        // Act
+        amqpReceiveHandler.onConnectionUnbound(event);
+
+        // Assert
+        assertNull(Deencapsulation.getField(amqpReceiveHandler, "iotHubSSLContext"));
+        new Verifications()
+        {
+            {
+                IotHubSSLContextCache.release(mockedIotHubSSLContext);
+                times = 1;
+            }
+        };
+    }
+
     // Tests_SRS_SERVICE_SDK_JAVA_AMQPFEEDBACKRECEIVEDHANDLER_12_011: [The event handler shall set the host name on the connection]
     // Tests_SRS_SERVICE_SDK_JAVA_AMQPFEEDBACKRECEIVEDHANDLER_12_012: [The event handler shall create a Session (Proton) object from the connection]
     // Tests_SRS_SERVICE_SDK_JAVA_AMQPFEEDBACKRECEIVEDHANDLER_12_013: [The event handler shall create a Receiver (Proton) object and set the protocol tag on it to a predefined constant]
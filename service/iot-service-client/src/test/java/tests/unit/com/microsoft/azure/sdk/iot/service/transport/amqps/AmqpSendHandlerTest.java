@@ -6,6 +6,7 @@
 package tests.unit.com.microsoft.azure.sdk.iot.service.transport.amqps;
 
 import com.microsoft.azure.sdk.iot.deps.auth.IotHubSSLContext;
+import com.microsoft.azure.sdk.iot.deps.auth.IotHubSSLContextCache;
 import com.microsoft.azure.sdk.iot.deps.ws.impl.WebSocketImpl;
 import com.microsoft.azure.sdk.iot.service.IotHubServiceClientProtocol;
 import com.microsoft.azure.sdk.iot.service.exceptions.IotHubException;
@@ -46,15 +47,24 @@ import java.security.KeyStoreException;
 import java.security.NoSuchAlgorithmException;
 import java.security.cert.CertificateException;
 import java.util.*;
-import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
 /** Unit tests for AmqpSendHandler */
 @RunWith(JMockit.class)
 public class AmqpSendHandlerTest
 {
+    private static final String QUEUED_MESSAGE_CLASS_NAME = "com.microsoft.azure.sdk.iot.service.transport.amqps.AmqpSendHandler$QueuedMessage";
+
     private Integer exceptionCount = 0;
 
     @Mocked Handshaker handshaker;
@@ -80,6 +90,7 @@ public class AmqpSendHandlerTest
     @Mocked Disposition disposition;
     @Mocked AmqpResponseVerification responseVerification;
     @Mocked IotHubSSLContext mockedIotHubSSLContext;
+    @Mocked IotHubSSLContextCache mockedIotHubSSLContextCache;
 
     // Test_SRS_SERVICE_SDK_JAVA_AMQPSENDHANDLER_12_001: [The constructor shall copy all input parameters to private member variables for event processing]
     // Test_SRS_SERVICE_SDK_JAVA_AMQPSENDHANDLER_12_002: [The constructor shall concatenate the host name with the port]
@@ -377,7 +388,7 @@ public class AmqpSendHandlerTest
                 sslDomain.init(SslDomain.Mode.CLIENT);
                 sslDomain.setPeerAuthentication(SslDomain.VerifyMode.VERIFY_PEER);
                 transportInternal.ssl(sslDomain);
-                new IotHubSSLContext();
+                IotHubSSLContextCache.acquire(null, false);
                 result = mockedIotHubSSLContext;
             }
         };
@@ -465,18 +476,30 @@ public class AmqpSendHandlerTest
         createProtonObjects();
         AmqpSendHandler amqpSendHandler = new AmqpSendHandler(hostName, userName, sasToken, iotHubServiceClientProtocol);
         amqpSendHandler.createProtonMessage(deviceId, iotMessage);
+        Deencapsulation.setField(amqpSendHandler, "isConnected", true);
         // Assert
         new Expectations()
         {
             {
-                link = event.getLink();
-                link.getCredit();
+                event.getLink();
+                result = sender;
+                sender.getCredit();
+                result = 1;
                 byte[] buffer = new byte[1024];
                 message.encode(buffer, 0, 1024);
             }
         };
         // Act
         amqpSendHandler.onLinkFlow(event);
+        new Verifications()
+        {
+            {
+                sender.advance();
+                times = 1;
+                sender.close();
+                times = 0;
+            }
+        };
     }
 
     // Tests_SRS_SERVICE_SDK_JAVA_AMQPSENDHANDLER_12_017: [The event handler shall get the Sender (Proton) object from the link]
@@ -500,19 +523,280 @@ public class AmqpSendHandlerTest
         IotHubServiceClientProtocol iotHubServiceClientProtocol = IotHubServiceClientProtocol.AMQPS;
         createProtonObjects();
         AmqpSendHandler amqpSendHandler = new AmqpSendHandler(hostName, userName, sasToken, iotHubServiceClientProtocol);
-        Queue<Message> testMessagesToBeSent = new LinkedBlockingQueue<>();
-        testMessagesToBeSent.add(messageWithException);
+        Queue<Object> testMessagesToBeSent = new ConcurrentLinkedQueue<>();
+        testMessagesToBeSent.add(Deencapsulation.newInstance(QUEUED_MESSAGE_CLASS_NAME, messageWithException, new CompletableFuture<Void>()));
         Deencapsulation.setField(amqpSendHandler,"messagesToBeSent", testMessagesToBeSent );
+        Deencapsulation.setField(amqpSendHandler, "isConnected", true);
         // Assert
         new Expectations()
         {
             {
-                link = event.getLink();
-                link.getCredit();
+                event.getLink();
+                result = sender;
+                sender.getCredit();
+                result = 1;
+            }
+        };
+        // Act
+        amqpSendHandler.onLinkFlow(event);
+        assertTrue(testMessagesToBeSent.isEmpty());
+    }
+
+    // Tests_SRS_SERVICE_SDK_JAVA_AMQPSENDHANDLER_34_041: [The event handler shall reuse the encode buffer of this handler for every message that fits in it, and encode a larger message into a buffer sized from its body.]
+    // Tests_SRS_SERVICE_SDK_JAVA_AMQPSENDHANDLER_34_043: [The event handler shall use the decimal digits of the next delivery number as the delivery tag.]
+    @Test
+    public void onLinkFlowReusesEncodeBufferAndWritesDigitTags() throws UnsupportedEncodingException
+    {
+        // Arrange
+        com.microsoft.azure.sdk.iot.service.Message iotMessage = new com.microsoft.azure.sdk.iot.service.Message("abcdefghijklmnopqrst");
+        createProtonObjects();
+        AmqpSendHandler amqpSendHandler = new AmqpSendHandler("aaa", "bbb", "ccc", IotHubServiceClientProtocol.AMQPS);
+        amqpSendHandler.createProtonMessage("deviceId", iotMessage);
+        amqpSendHandler.createProtonMessage("deviceId", iotMessage);
+        Deencapsulation.setField(amqpSendHandler, "isConnected", true);
+        new Expectations()
+        {
+            {
+                event.getLink();
+                result = sender;
+                sender.getCredit();
+                result = 10;
+            }
+        };
+
+        // Act
+        amqpSendHandler.onLinkFlow(event);
+
+        // Assert
+        final List<byte[]> encodeBuffers = new ArrayList<>();
+        final List<byte[]> deliveryTags = new ArrayList<>();
+        new Verifications()
+        {
+            {
+                message.encode(withCapture(encodeBuffers), 0, anyInt);
+                times = 2;
+                sender.delivery(withCapture(deliveryTags));
+                times = 2;
+            }
+        };
+        assertSame(encodeBuffers.get(0), encodeBuffers.get(1));
+        assertArrayEquals("0".getBytes(), deliveryTags.get(0));
+        assertArrayEquals("1".getBytes(), deliveryTags.get(1));
+    }
+
+    // Tests_SRS_SERVICE_SDK_JAVA_AMQPSENDHANDLER_34_042: [The event handler shall keep a larger buffer it encoded into for the later messages only if that buffer is no larger than 4 KB.]
+    @Test
+    public void onLinkFlowBufferOverflowKeepsSmallGrownEncodeBuffer()
+    {
+        // Arrange
+        exceptionCount = 0;
+        createProtonObjects();
+        AmqpSendHandler amqpSendHandler = new AmqpSendHandler("aaa", "bbb", "ccc", IotHubServiceClientProtocol.AMQPS);
+        Queue<Object> testMessagesToBeSent = new ConcurrentLinkedQueue<>();
+        testMessagesToBeSent.add(Deencapsulation.newInstance(QUEUED_MESSAGE_CLASS_NAME, messageWithException, new CompletableFuture<Void>()));
+        Deencapsulation.setField(amqpSendHandler, "messagesToBeSent", testMessagesToBeSent);
+        Deencapsulation.setField(amqpSendHandler, "isConnected", true);
+        new Expectations()
+        {
+            {
+                event.getLink();
+                result = sender;
+                sender.getCredit();
+                result = 1;
+            }
+        };
+
+        // Act
+        amqpSendHandler.onLinkFlow(event);
+
+        // Assert
+        byte[] encodeBuffer = Deencapsulation.getField(amqpSendHandler, "encodeBuffer");
+        assertEquals(2048, encodeBuffer.length);
+    }
+
+    // Tests_SRS_SERVICE_SDK_JAVA_AMQPSENDHANDLER_34_042: [The event handler shall keep a larger buffer it encoded into for the later messages only if that buffer is no larger than 4 KB.]
+    @Test
+    public void onLinkFlowBufferOverflowDropsLargeGrownEncodeBuffer()
+    {
+        // Arrange
+        exceptionCount = 0;
+        createProtonObjects();
+        AmqpSendHandler amqpSendHandler = new AmqpSendHandler("aaa", "bbb", "ccc", IotHubServiceClientProtocol.AMQPS);
+        final byte[] retainedBuffer = new byte[4096];
+        Deencapsulation.setField(amqpSendHandler, "encodeBuffer", retainedBuffer);
+        Queue<Object> testMessagesToBeSent = new ConcurrentLinkedQueue<>();
+        testMessagesToBeSent.add(Deencapsulation.newInstance(QUEUED_MESSAGE_CLASS_NAME, messageWithException, new CompletableFuture<Void>()));
+        Deencapsulation.setField(amqpSendHandler, "messagesToBeSent", testMessagesToBeSent);
+        Deencapsulation.setField(amqpSendHandler, "isConnected", true);
+        new Expectations()
+        {
+            {
+                event.getLink();
+                result = sender;
+                sender.getCredit();
+                result = 1;
+            }
+        };
+
+        // Act
+        amqpSendHandler.onLinkFlow(event);
+
+        // Assert
+        assertTrue(testMessagesToBeSent.isEmpty());
+        assertSame(retainedBuffer, Deencapsulation.getField(amqpSendHandler, "encodeBuffer"));
+    }
+
+    // Tests_SRS_SERVICE_SDK_JAVA_AMQPSENDHANDLER_34_043: [The event handler shall use the decimal digits of the next delivery number as the delivery tag.]
+    @Test
+    public void toDeliveryTagWritesDecimalDigits()
+    {
+        // Act
+        byte[] zeroTag = Deencapsulation.invoke(AmqpSendHandler.class, "toDeliveryTag", 0L);
+        byte[] largeTag = Deencapsulation.invoke(AmqpSendHandler.class, "toDeliveryTag", 9876543210123L);
+
+        // Assert
+        assertArrayEquals("0".getBytes(), zeroTag);
+        assertArrayEquals("9876543210123".getBytes(), largeTag);
+    }
+
+    // Tests_SRS_SERVICE_SDK_JAVA_AMQPSENDHANDLER_12_021: [The event handler shall send the encoded bytes]
+    @Test
+    public void onLinkFlowSendsAllQueuedMessagesWhileThereIsCredit() throws UnsupportedEncodingException
+    {
+        // Arrange
+        com.microsoft.azure.sdk.iot.service.Message iotMessage = new com.microsoft.azure.sdk.iot.service.Message("abcdefghijklmnopqrst");
+        createProtonObjects();
+        AmqpSendHandler amqpSendHandler = new AmqpSendHandler("aaa", "bbb", "ccc", IotHubServiceClientProtocol.AMQPS);
+        amqpSendHandler.createProtonMessage("deviceId", iotMessage);
+        amqpSendHandler.createProtonMessage("deviceId", iotMessage);
+        amqpSendHandler.createProtonMessage("deviceId", "moduleId", iotMessage);
+        Deencapsulation.setField(amqpSendHandler, "isConnected", true);
+        new Expectations()
+        {
+            {
+                event.getLink();
+                result = sender;
+                sender.getCredit();
+                result = 10;
             }
         };
+
         // Act
         amqpSendHandler.onLinkFlow(event);
+
+        // Assert
+        assertFalse(amqpSendHandler.hasQueuedMessages());
+        Map<Delivery, CompletableFuture<Void>> inProgressDeliveries = Deencapsulation.getField(amqpSendHandler, "inProgressDeliveries");
+        assertEquals(1, inProgressDeliveries.size()); // the mocked sender hands out the same delivery every time
+        new Verifications()
+        {
+            {
+                sender.advance();
+                times = 3;
+            }
+        };
+    }
+
+    // Tests_SRS_SERVICE_SDK_JAVA_AMQPSENDHANDLER_12_021: [The event handler shall send the encoded bytes]
+    @Test
+    public void onLinkFlowKeepsMessagesQueuedWithoutCredit() throws UnsupportedEncodingException
+    {
+        // Arrange
+        com.microsoft.azure.sdk.iot.service.Message iotMessage = new com.microsoft.azure.sdk.iot.service.Message("abcdefghijklmnopqrst");
+        createProtonObjects();
+        AmqpSendHandler amqpSendHandler = new AmqpSendHandler("aaa", "bbb", "ccc", IotHubServiceClientProtocol.AMQPS);
+        amqpSendHandler.createProtonMessage("deviceId", iotMessage);
+        Deencapsulation.setField(amqpSendHandler, "isConnected", true);
+        new Expectations()
+        {
+            {
+                event.getLink();
+                result = sender;
+                sender.getCredit();
+                result = 0;
+            }
+        };
+
+        // Act
+        amqpSendHandler.onLinkFlow(event);
+
+        // Assert
+        assertTrue(amqpSendHandler.hasQueuedMessages());
+        new Verifications()
+        {
+            {
+                sender.advance();
+                times = 0;
+            }
+        };
+    }
+
+    // Tests_SRS_SERVICE_SDK_JAVA_AMQPSENDHANDLER_34_037: [The function shall not send more messages while the number of unacknowledged deliveries is at the maximum in flight count]
+    @Test
+    public void onLinkFlowStopsAtMaxInFlightMessages() throws UnsupportedEncodingException
+    {
+        // Arrange
+        com.microsoft.azure.sdk.iot.service.Message iotMessage = new com.microsoft.azure.sdk.iot.service.Message("abcdefghijklmnopqrst");
+        createProtonObjects();
+        AmqpSendHandler amqpSendHandler = new AmqpSendHandler("aaa", "bbb", "ccc", IotHubServiceClientProtocol.AMQPS, 1);
+        amqpSendHandler.createProtonMessage("deviceId", iotMessage);
+        amqpSendHandler.createProtonMessage("deviceId", iotMessage);
+        Deencapsulation.setField(amqpSendHandler, "isConnected", true);
+        new Expectations()
+        {
+            {
+                event.getLink();
+                result = sender;
+                sender.getCredit();
+                result = 10;
+            }
+        };
+
+        // Act
+        amqpSendHandler.onLinkFlow(event);
+
+        // Assert
+        assertTrue(amqpSendHandler.hasQueuedMessages());
+        new Verifications()
+        {
+            {
+                sender.advance();
+                times = 1;
+            }
+        };
+    }
+
+    // Tests_SRS_SERVICE_SDK_JAVA_AMQPSENDHANDLER_34_037: [The function shall not send more messages while the number of unacknowledged deliveries is at the maximum in flight count]
+    @Test (expected = IllegalArgumentException.class)
+    public void constructorThrowsForNonPositiveMaxInFlightMessages()
+    {
+        // Act
+        new AmqpSendHandler("aaa", "bbb", "ccc", IotHubServiceClientProtocol.AMQPS, 0);
+    }
+
+    // Tests_SRS_SERVICE_SDK_JAVA_AMQPSENDHANDLER_34_035: [If a close was requested, the function shall close the Sender, Session and Connection]
+    @Test
+    public void sendQueuedMessagesClosesConnectionWhenCloseRequested()
+    {
+        // Arrange
+        AmqpSendHandler amqpSendHandler = new AmqpSendHandler("aaa", "bbb", "ccc", IotHubServiceClientProtocol.AMQPS);
+        Deencapsulation.setField(amqpSendHandler, "sender", sender);
+        Deencapsulation.setField(amqpSendHandler, "isConnected", true);
+        amqpSendHandler.requestClose();
+
+        // Act
+        amqpSendHandler.sendQueuedMessages();
+
+        // Assert
+        new Verifications()
+        {
+            {
+                sender.close();
+                times = 1;
+                sender.getSession().close();
+                sender.getSession().getConnection().close();
+            }
+        };
     }
 
     /*
@@ -520,13 +804,11 @@ public class AmqpSendHandlerTest
 
     Tests_SRS_SERVICE_SDK_JAVA_AMQPSENDHANDLER_25_024: [** The event handler shall get the Delivery remote state from the delivery **]**
 
-    Tests_SRS_SERVICE_SDK_JAVA_AMQPSENDHANDLER_25_025: [** The event handler shall verify the Amqp response and add the response to a queue. **]**
+    Tests_SRS_SERVICE_SDK_JAVA_AMQPSENDHANDLER_25_025: [** The event handler shall verify the Amqp response. **]**
 
     Tests_SRS_SERVICE_SDK_JAVA_AMQPSENDHANDLER_25_026: [** The event handler shall settle the delivery. **]**
 
-    Tests_SRS_SERVICE_SDK_JAVA_AMQPSENDHANDLER_25_027: [** The event handler shall get the Sender (Proton) object from the event **]**
-
-    Tests_SRS_SERVICE_SDK_JAVA_AMQPSENDHANDLER_25_028: [** The event handler shall close the Sender, Session and Connection **]**
+    Tests_SRS_SERVICE_SDK_JAVA_AMQPSENDHANDLER_25_027: [** The event handler shall complete the future of the delivery, exceptionally if the response holds an exception. The Sender, Session and Connection stay open. **]**
      */
     @Test
     public void onDelivery_flow_ok(final @Mocked Event mockedEvent,
@@ -539,6 +821,9 @@ public class AmqpSendHandlerTest
         String sasToken = "ccc";
         IotHubServiceClientProtocol iotHubServiceClientProtocol = IotHubServiceClientProtocol.AMQPS;
         AmqpSendHandler amqpSendHandler = new AmqpSendHandler(hostName, userName, sasToken, iotHubServiceClientProtocol);
+        CompletableFuture<Void> deliveryFuture = new CompletableFuture<>();
+        Map<Delivery, CompletableFuture<Void>> inProgressDeliveries = Deencapsulation.getField(amqpSendHandler, "inProgressDeliveries");
+        inProgressDeliveries.put(mockedDelivery, deliveryFuture);
 
         // Assert
         new Expectations()
@@ -550,96 +835,149 @@ public class AmqpSendHandlerTest
                 result = mockedDelivery;
                 mockedDelivery.getRemoteState();
                 result = mockedDeliveryState;
-                sender.close();
-                session = sender.getSession();
-                connection = session.getConnection();
-                connection.close();
+                responseVerification.getException();
+                result = null;
             }
         };
         // Act
         amqpSendHandler.onDelivery(mockedEvent);
-    }
-
-    /*
-    Tests_SRS_SERVICE_SDK_JAVA_AMQPSENDHANDLER_25_029: [** The event handler shall check the status queue to get the response for the sent message **]**
 
-    Tests_SRS_SERVICE_SDK_JAVA_AMQPSENDHANDLER_25_030: [** The event handler shall remove the response from the queue **]**
+        assertTrue(deliveryFuture.isDone());
+        assertFalse(deliveryFuture.isCompletedExceptionally());
+        assertTrue(inProgressDeliveries.isEmpty());
+        new Verifications()
+        {
+            {
+                mockedDelivery.settle();
+                times = 1;
+                sender.close();
+                times = 0;
+                connection.close();
+                times = 0;
+            }
+        };
+    }
 
-    Tests_SRS_SERVICE_SDK_JAVA_AMQPSENDHANDLER_25_031: [** The event handler shall get the exception from the response and throw is it is not null **]**
-     */
+    //Tests_SRS_SERVICE_SDK_JAVA_AMQPSENDHANDLER_25_027: [** The event handler shall complete the future of the delivery, exceptionally if the response holds an exception. The Sender, Session and Connection stay open. **]**
     @Test
-    public void sendComplete_flow_OK(final @Mocked AmqpResponseVerification mockedVerification) throws IotHubException, IOException
+    public void onDeliveryCompletesFutureExceptionallyIfRejected(final @Mocked Event mockedEvent,
+                                                                 final @Mocked Delivery mockedDelivery,
+                                                                 final @Mocked IotHubException mockedIotHubException)
     {
         // Arrange
-        String hostName = "aaa";
-        String userName = "bbb";
-        String sasToken = "ccc";
-        IotHubServiceClientProtocol iotHubServiceClientProtocol = IotHubServiceClientProtocol.AMQPS;
-        AmqpSendHandler amqpSendHandler = new AmqpSendHandler(hostName, userName, sasToken, iotHubServiceClientProtocol);
-        Queue<AmqpResponseVerification> testsendStatusQueue = new LinkedBlockingQueue<>();
-        testsendStatusQueue.add(mockedVerification);
-        Deencapsulation.setField(amqpSendHandler,"sendStatusQueue", testsendStatusQueue );
-        Deencapsulation.setField(amqpSendHandler, "connectionWasOpened", true);
-
-        // Assert
+        AmqpSendHandler amqpSendHandler = new AmqpSendHandler("aaa", "bbb", "ccc", IotHubServiceClientProtocol.AMQPS);
+        CompletableFuture<Void> deliveryFuture = new CompletableFuture<>();
+        Map<Delivery, CompletableFuture<Void>> inProgressDeliveries = Deencapsulation.getField(amqpSendHandler, "inProgressDeliveries");
+        inProgressDeliveries.put(mockedDelivery, deliveryFuture);
         new Expectations()
         {
             {
-                mockedVerification.getException();
-                result = null;
+                mockedEvent.getType();
+                result = Event.Type.DELIVERY;
+                mockedEvent.getDelivery();
+                result = mockedDelivery;
+                responseVerification.getException();
+                result = mockedIotHubException;
             }
         };
+
         // Act
-        amqpSendHandler.sendComplete();
+        amqpSendHandler.onDelivery(mockedEvent);
+
+        // Assert
+        assertTrue(deliveryFuture.isCompletedExceptionally());
     }
 
-    //Tests_SRS_SERVICE_SDK_JAVA_AMQPSENDHANDLER_25_031: [** The event handler shall get the exception from the response and throw is it is not null **]**
-    @Test (expected = IotHubException.class)
-    public void sendComplete_throws_exception_if_found(final @Mocked AmqpResponseVerification mockedVerification,
-                                                       final @Mocked IotHubException mockedIotHubException) throws IotHubException, IOException
+    //Tests_SRS_SERVICE_SDK_JAVA_AMQPSENDHANDLER_34_034: [if 'connectionWasOpened' is false, or 'isConnectionError' is true, the function shall fail the queued messages with an IOException]
+    @Test
+    public void onConnectionTerminatedFailsQueuedMessagesIfConnectionNeverOpened() throws UnsupportedEncodingException
     {
         // Arrange
-        String hostName = "aaa";
-        String userName = "bbb";
-        String sasToken = "ccc";
-        IotHubServiceClientProtocol iotHubServiceClientProtocol = IotHubServiceClientProtocol.AMQPS;
-        AmqpSendHandler amqpSendHandler = new AmqpSendHandler(hostName, userName, sasToken, iotHubServiceClientProtocol);
-        Queue<AmqpResponseVerification> testsendStatusQueue = new LinkedBlockingQueue<>();
-        testsendStatusQueue.add(mockedVerification);
-        Deencapsulation.setField(amqpSendHandler,"sendStatusQueue", testsendStatusQueue );
-        Deencapsulation.setField(amqpSendHandler, "connectionWasOpened", true);
+        createProtonObjects();
+        AmqpSendHandler amqpSendHandler = new AmqpSendHandler("aaa", "bbb", "ccc", IotHubServiceClientProtocol.AMQPS);
+        CompletableFuture<Void> deliveryFuture = amqpSendHandler.createProtonMessage("deviceId", new com.microsoft.azure.sdk.iot.service.Message("abc"));
+        Deencapsulation.setField(amqpSendHandler, "connectionWasOpened", false);
 
-        // Assert
-        new Expectations()
-        {
-            {
-                mockedVerification.getException();
-                result = mockedIotHubException;
-            }
-        };
         // Act
-        amqpSendHandler.sendComplete();
+        amqpSendHandler.onConnectionTerminated();
 
+        // Assert
+        assertTrue(deliveryFuture.isCompletedExceptionally());
+        assertFalse(amqpSendHandler.hasQueuedMessages());
     }
 
+    //Tests_SRS_SERVICE_SDK_JAVA_AMQPSENDHANDLER_34_036: [The function shall fail the messages which were sent but not acknowledged, and keep the queued messages for the next connection]
+    @Test
+    public void onConnectionTerminatedFailsInProgressAndKeepsQueuedMessages(final @Mocked Delivery mockedDelivery) throws UnsupportedEncodingException
+    {
+        // Arrange
+        createProtonObjects();
+        AmqpSendHandler amqpSendHandler = new AmqpSendHandler("aaa", "bbb", "ccc", IotHubServiceClientProtocol.AMQPS);
+        CompletableFuture<Void> queuedFuture = amqpSendHandler.createProtonMessage("deviceId", new com.microsoft.azure.sdk.iot.service.Message("abc"));
+        CompletableFuture<Void> inProgressFuture = new CompletableFuture<>();
+        Map<Delivery, CompletableFuture<Void>> inProgressDeliveries = Deencapsulation.getField(amqpSendHandler, "inProgressDeliveries");
+        inProgressDeliveries.put(mockedDelivery, inProgressFuture);
+        Deencapsulation.setField(amqpSendHandler, "connectionWasOpened", true);
+
+        // Act
+        amqpSendHandler.onConnectionTerminated();
+
+        // Assert
+        assertTrue(inProgressFuture.isCompletedExceptionally());
+        assertFalse(queuedFuture.isDone());
+        assertTrue(amqpSendHandler.hasQueuedMessages());
+    }
 
-    //Tests_SRS_SERVICE_SDK_JAVA_AMQPSENDHANDLER_25_031: [** The event handler shall get the exception from the response and throw is it is not null **]**
-    @Test (expected = IOException.class)
-    public void sendComplete_throws_Connection_exception_if_found(final @Mocked AmqpResponseVerification mockedVerification,
-                                                                  final @Mocked IotHubException mockedIotHubException,
-                                                                  final @Mocked Event mockedEvent) throws IotHubException, IOException
+    //Tests_SRS_SERVICE_SDK_JAVA_AMQPSENDHANDLER_34_034: [if 'connectionWasOpened' is false, or 'isConnectionError' is true, the function shall fail the queued messages with an IOException]
+    @Test
+    public void onConnectionTerminatedReportsSavedException(final @Mocked Event mockedEvent) throws Exception
     {
         // Arrange
+        createProtonObjects();
+        AmqpSendHandler amqpSendHandler = new AmqpSendHandler("aaa", "bbb", "ccc", IotHubServiceClientProtocol.AMQPS);
+        CompletableFuture<Void> deliveryFuture = amqpSendHandler.createProtonMessage("deviceId", new com.microsoft.azure.sdk.iot.service.Message("abc"));
+        amqpSendHandler.onTransportError(mockedEvent);
+
+        // Act
+        amqpSendHandler.onConnectionTerminated();
+
+        // Assert
+        try
+        {
+            deliveryFuture.get();
+        }
+        catch (ExecutionException e)
+        {
+            assertTrue(e.getCause() instanceof IOException);
+            return;
+        }
+        fail("The delivery future should have completed exceptionally");
+    }
+
+    // Tests_SRS_SERVICE_SDK_JAVA_AMQPSENDHANDLER_34_040: [The event handler shall release the shared ssl context once the connection is unbound from its transport.]
+    @Test
+    public void onConnectionUnboundReleasesSSLContext()
+    {
+        // arrange
         String hostName = "aaa";
         String userName = "bbb";
         String sasToken = "ccc";
         IotHubServiceClientProtocol iotHubServiceClientProtocol = IotHubServiceClientProtocol.AMQPS;
         AmqpSendHandler amqpSendHandler = new AmqpSendHandler(hostName, userName, sasToken, iotHubServiceClientProtocol);
-        amqpSendHandler.onTransportError(mockedEvent);
+        Deencapsulation.setField(amqpSendHandler, "iotHubSSLContext", mockedIotHubSSLContext);
 
-        // Act
-        amqpSendHandler.sendComplete();
+        // act
+        amqpSendHandler.onConnectionUnbound(event);
 
+        // assert
+        assertNull(Deencapsulation.getField(amqpSendHandler, "iotHubSSLContext"));
+        new Verifications()
+        {
+            {
+                IotHubSSLContextCache.release(mockedIotHubSSLContext);
+                times = 1;
+            }
+        };
     }
 
     // Tests_SRS_SERVICE_SDK_JAVA_AMQPSENDHANDLER_34_032: [This function shall close the transport tail]
@@ -692,42 +1030,6 @@ public class AmqpSendHandlerTest
         assertTrue(Deencapsulation.getField(amqpSendHandler, "connectionWasOpened"));
     }
 
-    //Tests_SRS_SERVICE_SDK_JAVA_AMQPSENDHANDLER_34_034: [if 'connectionWasOpened' is false, or 'isConnectionError' is true, this function shall throw an IOException]
-    @Test (expected = IOException.class)
-    public void sendCompleteChecksForSavedException() throws IOException, IotHubException
-    {
-        // Arrange
-        String hostName = "aaa";
-        String userName = "bbb";
-        String sasToken = "ccc";
-        IotHubServiceClientProtocol iotHubServiceClientProtocol = IotHubServiceClientProtocol.AMQPS;
-        AmqpSendHandler amqpSendHandler = new AmqpSendHandler(hostName, userName, sasToken, iotHubServiceClientProtocol);
-
-        Deencapsulation.setField(amqpSendHandler, "connectionWasOpened", true);
-        Deencapsulation.setField(amqpSendHandler, "savedException", new SSLHandshakeException("some nonsense exception"));
-
-        // Act
-        amqpSendHandler.sendComplete();
-    }
-
-    //Tests_SRS_SERVICE_SDK_JAVA_AMQPSENDHANDLER_34_034: [if 'connectionWasOpened' is false, or 'isConnectionError' is true, this function shall throw an IOException]
-    @Test (expected = IOException.class)
-    public void sendCompleteChecksThatConnectionWasOpened() throws IOException, IotHubException
-    {
-        // Arrange
-        String hostName = "aaa";
-        String userName = "bbb";
-        String sasToken = "ccc";
-        IotHubServiceClientProtocol iotHubServiceClientProtocol = IotHubServiceClientProtocol.AMQPS;
-        AmqpSendHandler amqpSendHandler = new AmqpSendHandler(hostName, userName, sasToken, iotHubServiceClientProtocol);
-
-        Deencapsulation.setField(amqpSendHandler, "connectionWasOpened", false);
-        Deencapsulation.setField(amqpSendHandler, "savedException", null);
-
-        // Act
-        amqpSendHandler.sendComplete();
-    }
-
     private void createProtonObjects()
     {
         String exceptionMessage = "Not expected function called";
@@ -7,11 +7,13 @@ package tests.unit.com.microsoft.azure.sdk.iot.service.transport.amqps;
 
 import com.microsoft.azure.sdk.iot.service.IotHubServiceClientProtocol;
 import com.microsoft.azure.sdk.iot.service.Message;
+import com.microsoft.azure.sdk.iot.service.exceptions.IotHubException;
 import com.microsoft.azure.sdk.iot.service.transport.amqps.AmqpSend;
 import com.microsoft.azure.sdk.iot.service.transport.amqps.AmqpSendHandler;
 import mockit.Deencapsulation;
 import mockit.Expectations;
 import mockit.Mocked;
+import mockit.Verifications;
 import mockit.integration.junit4.JMockit;
 import org.apache.qpid.proton.Proton;
 import org.apache.qpid.proton.engine.Connection;
@@ -22,9 +24,11 @@ import org.junit.Test;
 import org.junit.runner.RunWith;
 
 import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 
 /** Unit tests for AmqpSend */
 @RunWith(JMockit.class)
@@ -244,6 +248,7 @@ public class AmqpSendTest
             {
                 Deencapsulation.invoke(handler, "createProtonMessage"
                         , deviceId, message);
+                result = CompletableFuture.completedFuture(null);
             }
         };
         // Act
@@ -273,6 +278,7 @@ public class AmqpSendTest
             {
                 Deencapsulation.invoke(handler, "createProtonMessage"
                         , deviceId, moduleId, message);
+                result = CompletableFuture.completedFuture(null);
             }
         };
         // Act
@@ -295,16 +301,135 @@ public class AmqpSendTest
         IotHubServiceClientProtocol iotHubServiceClientProtocol = IotHubServiceClientProtocol.AMQPS;
         AmqpSend amqpSend = new AmqpSend(hostName, userName, sasToken, iotHubServiceClientProtocol);
         amqpSend.open();
-        // Assert
+        AmqpSendHandler handler = Deencapsulation.getField(amqpSend, "amqpSendHandler");
         new Expectations()
         {
             {
-                reactor = proton.reactor(amqpSend);
-                reactor.run();
+                Deencapsulation.invoke(handler, "createProtonMessage"
+                        , deviceId, moduleId, message);
+                result = CompletableFuture.completedFuture(null);
             }
         };
         // Act
         amqpSend.send(deviceId, moduleId, message);
+        // Assert
+        new Verifications()
+        {
+            {
+                proton.reactor(amqpSend);
+                times = 1;
+            }
+        };
+    }
+
+    // Tests_SRS_SERVICE_SDK_JAVA_AMQPSEND_34_009: [If the Proton reactor is already running, the function shall wake it up so that the message is sent]
+    @Test
+    public void sendAsyncWakesUpRunningReactor(@Mocked AmqpSendHandler mockAmqpSendHandler) throws Exception
+    {
+        // Arrange
+        String deviceId = "deviceId";
+        Message message = new Message("abcdefghijklmnopqrst");
+        AmqpSend amqpSend = new AmqpSend("aaa", "bbb", "ccc", IotHubServiceClientProtocol.AMQPS);
+        amqpSend.open();
+        AmqpSendHandler handler = Deencapsulation.getField(amqpSend, "amqpSendHandler");
+        final CompletableFuture<Void> deliveryFuture = new CompletableFuture<>();
+        Deencapsulation.setField(amqpSend, "reactor", reactor);
+        Deencapsulation.setField(amqpSend, "isReactorRunning", true);
+        new Expectations()
+        {
+            {
+                Deencapsulation.invoke(handler, "createProtonMessage"
+                        , deviceId, message);
+                result = deliveryFuture;
+            }
+        };
+
+        // Act
+        CompletableFuture<Void> returnedFuture = amqpSend.sendAsync(deviceId, null, message);
+
+        // Assert
+        assertSame(deliveryFuture, returnedFuture);
+        new Verifications()
+        {
+            {
+                reactor.wakeup();
+                times = 1;
+                Proton.reactor((AmqpSend) any);
+                times = 0;
+            }
+        };
+    }
+
+    // Tests_SRS_SERVICE_SDK_JAVA_AMQPSEND_28_004: [** The function shall wait for the delivery of the sent message and throw the exception it completed with, if any **]**
+    @Test (expected = IotHubException.class)
+    public void sendThrowsExceptionOfRejectedDelivery(@Mocked AmqpSendHandler mockAmqpSendHandler) throws Exception
+    {
+        // Arrange
+        String deviceId = "deviceId";
+        Message message = new Message("abcdefghijklmnopqrst");
+        AmqpSend amqpSend = new AmqpSend("aaa", "bbb", "ccc", IotHubServiceClientProtocol.AMQPS);
+        amqpSend.open();
+        AmqpSendHandler handler = Deencapsulation.getField(amqpSend, "amqpSendHandler");
+        final CompletableFuture<Void> deliveryFuture = new CompletableFuture<>();
+        deliveryFuture.completeExceptionally(new IotHubException("rejected"));
+        new Expectations()
+        {
+            {
+                Deencapsulation.invoke(handler, "createProtonMessage"
+                        , deviceId, message);
+                result = deliveryFuture;
+            }
+        };
+
+        // Act
+        amqpSend.send(deviceId, null, message);
+    }
+
+    // Tests_SRS_SERVICE_SDK_JAVA_AMQPSEND_34_006: [The event handler shall send the queued messages through the member AmqpsSendHandler object]
+    @Test
+    public void onReactorQuiescedSendsQueuedMessages(@Mocked AmqpSendHandler mockAmqpSendHandler)
+    {
+        // Arrange
+        AmqpSend amqpSend = new AmqpSend("aaa", "bbb", "ccc", IotHubServiceClientProtocol.AMQPS);
+        amqpSend.open();
+
+        // Act
+        amqpSend.onReactorQuiesced(event);
+
+        // Assert
+        new Verifications()
+        {
+            {
+                mockAmqpSendHandler.sendQueuedMessages();
+                times = 1;
+            }
+        };
+    }
+
+    // Tests_SRS_SERVICE_SDK_JAVA_AMQPSEND_34_007: [The function shall ask the member AmqpsSendHandler object to close the connection and wake up the reactor]
+    @Test
+    public void closeRequestsConnectionCloseWhenReactorIsRunning(@Mocked AmqpSendHandler mockAmqpSendHandler)
+    {
+        // Arrange
+        AmqpSend amqpSend = new AmqpSend("aaa", "bbb", "ccc", IotHubServiceClientProtocol.AMQPS);
+        amqpSend.open();
+        Deencapsulation.setField(amqpSend, "reactor", reactor);
+        Deencapsulation.setField(amqpSend, "isReactorRunning", true);
+
+        // Act
+        amqpSend.close();
+
+        // Assert
+        new Verifications()
+        {
+            {
+                mockAmqpSendHandler.requestClose();
+                times = 1;
+                reactor.wakeup();
+                times = 1;
+            }
+        };
+        assertNull(Deencapsulation.getField(amqpSend, "amqpSendHandler"));
     }
 
     // Tests_SRS_SERVICE_SDK_JAVA_AMQPSEND_28_005: [The event handler shall throw IOException if the send handler object is not initialized]
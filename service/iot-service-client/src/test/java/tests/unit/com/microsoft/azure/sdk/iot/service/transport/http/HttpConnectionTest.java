@@ -15,6 +15,7 @@ import org.junit.Test;
 import org.junit.runner.RunWith;
 
 import javax.net.ssl.HttpsURLConnection;
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.URL;
@@ -24,6 +25,7 @@ import java.util.List;
 import java.util.Map;
 
 import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertThat;
 
 /** Unit tests for HttpConnection. */
@@ -389,11 +391,11 @@ public class HttpConnectionTest
 
     // Tests_SRS_SERVICE_SDK_JAVA_HTTPSCONNECTION_12_014: [The function shall read from the input stream (response stream) and return the response.]
     @Test
-    public void readInputCompletelyReadsInputStream(@Mocked final InputStream mockIs) throws IOException
+    public void readInputCompletelyReadsInputStream() throws IOException
     {
         // Arrange
         final HttpMethod httpsMethod = HttpMethod.GET;
-        byte[] expectedResponse = { 1, 2, 3 };
+        final byte[] expectedResponse = { 1, 2, 3 };
         new NonStrictExpectations()
         {
             {
@@ -404,9 +406,41 @@ public class HttpConnectionTest
                 mockUrlConn.getRequestMethod();
                 result = httpsMethod.name();
                 mockUrlConn.getInputStream();
-                result = mockIs;
-                mockIs.read();
-                returns(1, 2, 3, -1);
+                result = new ByteArrayInputStream(expectedResponse);
+            }
+        };
+        HttpConnection conn = new HttpConnection(mockUrl, httpsMethod);
+        conn.connect();
+        // Act
+        byte[] testResponse = conn.readInput();
+        // Assert
+        assertThat(testResponse, is(expectedResponse));
+    }
+
+    // Tests_SRS_SERVICE_SDK_JAVA_HTTPCONNECTION_34_026: [The function shall read the stream in chunks into a buffer pre-sized from the Content-Length of the response, up to 64 KiB.]
+    @Test
+    public void readInputReadsBodyLongerThanContentLength() throws IOException
+    {
+        // Arrange
+        final HttpMethod httpsMethod = HttpMethod.GET;
+        final byte[] expectedResponse = new byte[10000];
+        for (int i = 0; i < expectedResponse.length; i++)
+        {
+            expectedResponse[i] = (byte) i;
+        }
+        new NonStrictExpectations()
+        {
+            {
+                mockUrl.getProtocol();
+                result = "https";
+                mockUrl.openConnection();
+                result = mockUrlConn;
+                mockUrlConn.getRequestMethod();
+                result = httpsMethod.name();
+                mockUrlConn.getContentLength();
+                result = 3;
+                mockUrlConn.getInputStream();
+                result = new ByteArrayInputStream(expectedResponse);
             }
         };
         HttpConnection conn = new HttpConnection(mockUrl, httpsMethod);
@@ -417,6 +451,66 @@ public class HttpConnectionTest
         assertThat(testResponse, is(expectedResponse));
     }
 
+    // Tests_SRS_SERVICE_SDK_JAVA_HTTPCONNECTION_34_026: [The function shall read the stream in chunks into a buffer pre-sized from the Content-Length of the response, up to 64 KiB.]
+    @Test
+    public void readInputReadsBodyMatchingContentLength() throws IOException
+    {
+        // Arrange
+        final HttpMethod httpsMethod = HttpMethod.GET;
+        final byte[] expectedResponse = { 1, 2, 3, 4, 5 };
+        new NonStrictExpectations()
+        {
+            {
+                mockUrl.getProtocol();
+                result = "https";
+                mockUrl.openConnection();
+                result = mockUrlConn;
+                mockUrlConn.getRequestMethod();
+                result = httpsMethod.name();
+                mockUrlConn.getContentLength();
+                result = expectedResponse.length;
+                mockUrlConn.getInputStream();
+                result = new ByteArrayInputStream(expectedResponse);
+            }
+        };
+        HttpConnection conn = new HttpConnection(mockUrl, httpsMethod);
+        conn.connect();
+        // Act
+        byte[] testResponse = conn.readInput();
+        // Assert
+        assertThat(testResponse, is(expectedResponse));
+    }
+
+
+    // Tests_SRS_SERVICE_SDK_JAVA_HTTPCONNECTION_34_026: [The function shall read the stream in chunks into a buffer pre-sized from the Content-Length of the response, up to 64 KiB.]
+    @Test
+    public void readInputDoesNotTrustHugeContentLength() throws IOException
+    {
+        // Arrange
+        final HttpMethod httpsMethod = HttpMethod.GET;
+        final byte[] expectedResponse = { 1, 2, 3, 4, 5 };
+        new NonStrictExpectations()
+        {
+            {
+                mockUrl.getProtocol();
+                result = "https";
+                mockUrl.openConnection();
+                result = mockUrlConn;
+                mockUrlConn.getRequestMethod();
+                result = httpsMethod.name();
+                mockUrlConn.getContentLength();
+                result = Integer.MAX_VALUE;
+                mockUrlConn.getInputStream();
+                result = new ByteArrayInputStream(expectedResponse);
+            }
+        };
+        HttpConnection conn = new HttpConnection(mockUrl, httpsMethod);
+        conn.connect();
+        // Act
+        byte[] testResponse = conn.readInput();
+        // Assert
+        assertThat(testResponse, is(expectedResponse));
+    }
     // Tests_SRS_SERVICE_SDK_JAVA_HTTPSCONNECTION_12_015: [The function shall throw an IOException if the input stream could not be accessed.]
     // Assert
     @Test(expected = IOException.class)
@@ -462,6 +556,8 @@ public class HttpConnectionTest
                 result = mockIs;
                 mockIs.read();
                 result = -1;
+                mockIs.read((byte[]) any, anyInt, anyInt);
+                result = -1;
             }
         };
         HttpConnection conn = new HttpConnection(mockUrl, httpsMethod);
@@ -479,11 +575,11 @@ public class HttpConnectionTest
 
     // Tests_SRS_SERVICE_SDK_JAVA_HTTPSCONNECTION_12_017: [The function shall read from the error stream and return the response.]
     @Test
-    public void readErrorCompletelyReadsErrorStream(@Mocked final InputStream mockIs) throws IOException
+    public void readErrorCompletelyReadsErrorStream() throws IOException
     {
         // Arrange
         final HttpMethod httpsMethod = HttpMethod.GET;
-        byte[] expectedError = { 1, 2, 3 };
+        final byte[] expectedError = { 1, 2, 3 };
         new NonStrictExpectations()
         {
             {
@@ -494,9 +590,7 @@ public class HttpConnectionTest
                 mockUrlConn.getRequestMethod();
                 result = httpsMethod.name();
                 mockUrlConn.getErrorStream();
-                result = mockIs;
-                mockIs.read();
-                returns(1, 2, 3, -1);
+                result = new ByteArrayInputStream(expectedError);
             }
         };
         HttpConnection conn = new HttpConnection(mockUrl, httpsMethod);
@@ -580,6 +674,8 @@ public class HttpConnectionTest
                 result = mockIs;
                 mockIs.read();
                 result = -1;
+                mockIs.read((byte[]) any, anyInt, anyInt);
+                result = -1;
             }
         };
         HttpConnection conn = new HttpConnection(mockUrl, httpsMethod);